@@ -0,0 +1,105 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+/**
+ * The combiners merging the messages sent to a vertex during a superstep of a {@link ComputeEngine}. The
+ * messages are combined as soon as they are delivered, so that each vertex receives a single message whatever
+ * the number of messages sent to it.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public enum Combiner {
+
+	/**
+	 * The vertex receives the sum of the messages, 0 without message.
+	 */
+	SUM,
+
+	/**
+	 * The vertex receives the smallest message, {@link Double#POSITIVE_INFINITY} without message.
+	 */
+	MIN,
+
+	/**
+	 * The vertex receives the largest message, {@link Double#NEGATIVE_INFINITY} without message.
+	 */
+	MAX;
+
+	/**
+	 * Returns the message received by a vertex to which no message has been sent.
+	 * 
+	 * @return The identity of the combiner
+	 */
+	public double identity() {
+		double identity;
+		switch (this) {
+			case SUM:
+				identity = 0;
+				break;
+			case MIN:
+				identity = Double.POSITIVE_INFINITY;
+				break;
+			case MAX:
+				identity = Double.NEGATIVE_INFINITY;
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(this));
+		}
+		return identity;
+	}
+
+	/**
+	 * Combines two messages sent to the same vertex.
+	 * 
+	 * @param first
+	 *            The first message
+	 * @param second
+	 *            The second message
+	 * @return The combined message
+	 */
+	public double combine(double first, double second) {
+		double combined;
+		switch (this) {
+			case SUM:
+				combined = first + second;
+				break;
+			case MIN:
+				combined = Math.min(first, second);
+				break;
+			case MAX:
+				combined = Math.max(first, second);
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(this));
+		}
+		return combined;
+	}
+}
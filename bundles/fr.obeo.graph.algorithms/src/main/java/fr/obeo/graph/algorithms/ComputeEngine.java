@@ -0,0 +1,144 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs vertex programs over a graph in bulk synchronous supersteps, in the manner of Pregel. The vertices
+ * are numbered and their neighbours are read once from the graph at the start of each run, then the
+ * supersteps only work on primitive arrays: the values of the vertices are not stored in the properties of
+ * the graph, and the messages are appended to primitive buffers and merged by the {@link Combiner} of the
+ * program. The vertices are split into partitions of consecutive numbers computed in parallel by a
+ * fork/join pool.
+ * <p>
+ * The graph must not be modified during a run. PageRank, the weakly connected components and the
+ * triangle counting are provided by {@link PageRank}, {@link ConnectedComponents} and {@link TriangleCount}:
+ * </p>
+ * 
+ * <pre>
+ * ComputeResult ranks = new ComputeEngine(graph, pool).run(new PageRank(0.85, 20));
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class ComputeEngine {
+	/**
+	 * The number of partitions per thread of the pool, so that the threads finishing early can steal work.
+	 */
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	/**
+	 * The graph.
+	 */
+	private final IGraph graph;
+
+	/**
+	 * The pool computing the partitions.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The labels of the edges joining the vertices to their neighbours, all the edges if there is no label.
+	 */
+	private String[] labels = new String[0];
+
+	/**
+	 * The maximum number of supersteps.
+	 */
+	private int maxSupersteps = Integer.MAX_VALUE;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param pool
+	 *            The pool computing the partitions
+	 */
+	public ComputeEngine(IGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		this.pool = pool;
+	}
+
+	/**
+	 * Sets the labels of the edges joining the vertices to their neighbours, all the edges are used by
+	 * default.
+	 * 
+	 * @param edgeLabels
+	 *            The labels of the edges
+	 * @return The engine
+	 */
+	public ComputeEngine labels(String... edgeLabels) {
+		this.labels = edgeLabels.clone();
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of supersteps of a run, after which the run stops even if some vertices are
+	 * still active.
+	 * 
+	 * @param supersteps
+	 *            The maximum number of supersteps
+	 * @return The engine
+	 */
+	public ComputeEngine maxSupersteps(int supersteps) {
+		if (supersteps < 0) {
+			throw new IllegalArgumentException("The number of supersteps can not be negative: " + supersteps);
+		}
+		this.maxSupersteps = supersteps;
+		return this;
+	}
+
+	/**
+	 * Runs the given program over the graph.
+	 * 
+	 * @param program
+	 *            The program
+	 * @return The values of the vertices at the end of the run
+	 */
+	public ComputeResult run(IVertexProgram program) {
+		VertexIndex index = new VertexIndex();
+		try (ICloseableIterable<IVertex> vertices = this.graph.getVertices()) {
+			for (IVertex vertex : vertices) {
+				index.add(vertex);
+			}
+		}
+		int partitions = this.pool.getParallelism() * PARTITIONS_PER_THREAD;
+		ComputeExecution execution = new ComputeExecution(index, program, this.pool, partitions);
+		execution.loadAdjacency(this.labels);
+		int supersteps = execution.run(this.maxSupersteps);
+		return new ComputeResult(index, execution.values(), supersteps);
+	}
+}
@@ -0,0 +1,684 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.internal.IntList;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The state of a run of a {@link IVertexProgram} by a {@link ComputeEngine}. The vertices are split into
+ * partitions of consecutive numbers, each phase of the run being executed for all the partitions in parallel
+ * by a fork/join pool.
+ * <p>
+ * The neighbours of the vertices are read once from the graph, in a compressed adjacency made of the offset
+ * of the neighbours of each vertex and of the sorted numbers of these neighbours. The values, the messages
+ * and the activity of the vertices are held in primitive arrays indexed by the numbers of the vertices, each
+ * partition writing only in the range of its vertices. The messages sent during a superstep are appended to
+ * a buffer per sending partition and per receiving partition, then each receiving partition combines the
+ * messages of its buffers into the messages of its vertices for the next superstep.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ComputeExecution {
+	/**
+	 * The phase reading the neighbours of the vertices of a partition from the graph.
+	 */
+	private static final int LOAD = 0;
+
+	/**
+	 * The phase copying and sorting the neighbours of the vertices of a partition in the adjacency.
+	 */
+	private static final int LINK = 1;
+
+	/**
+	 * The phase computing the vertices of a partition.
+	 */
+	private static final int COMPUTE = 2;
+
+	/**
+	 * The phase combining the messages sent to the vertices of a partition.
+	 */
+	private static final int COMBINE = 3;
+
+	/**
+	 * The vertices.
+	 */
+	private final VertexIndex index;
+
+	/**
+	 * The program.
+	 */
+	private final IVertexProgram program;
+
+	/**
+	 * The combiner of the program.
+	 */
+	private final Combiner combiner;
+
+	/**
+	 * The pool running the phases.
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * The number of vertices per partition.
+	 */
+	private final int partitionSize;
+
+	/**
+	 * The number of partitions.
+	 */
+	private final int partitionCount;
+
+	/**
+	 * The neighbours read by each partition while loading the adjacency.
+	 */
+	private final IntList[] loadedNeighbours;
+
+	/**
+	 * The offset of the neighbours of each vertex in the adjacency, followed by the number of neighbours.
+	 */
+	private final int[] offsets;
+
+	/**
+	 * The numbers of the neighbours of all the vertices.
+	 */
+	private int[] neighbours;
+
+	/**
+	 * The value of each vertex.
+	 */
+	private final double[] values;
+
+	/**
+	 * The message of each vertex for the current superstep.
+	 */
+	private double[] messages;
+
+	/**
+	 * Whether each vertex has received a message for the current superstep.
+	 */
+	private boolean[] received;
+
+	/**
+	 * The message of each vertex for the next superstep.
+	 */
+	private double[] nextMessages;
+
+	/**
+	 * Whether each vertex has received a message for the next superstep.
+	 */
+	private boolean[] nextReceived;
+
+	/**
+	 * Whether each vertex has voted to halt.
+	 */
+	private final boolean[] halted;
+
+	/**
+	 * The buffers of messages, by sending partition then by receiving partition.
+	 */
+	private final MessageBuffer[][] buffers;
+
+	/**
+	 * The number of vertices still active after the current superstep, by partition.
+	 */
+	private final int[] activeCounts;
+
+	/**
+	 * The context of each partition.
+	 */
+	private final PartitionContext[] contexts;
+
+	/**
+	 * The current superstep.
+	 */
+	private int superstep;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param index
+	 *            The vertices
+	 * @param program
+	 *            The program
+	 * @param pool
+	 *            The pool running the phases
+	 * @param partitions
+	 *            The maximum number of partitions
+	 */
+	ComputeExecution(VertexIndex index, IVertexProgram program, ForkJoinPool pool, int partitions) {
+		this.index = index;
+		this.program = program;
+		this.combiner = program.getCombiner();
+		this.pool = pool;
+		int size = index.size();
+		this.partitionSize = Math.max(1, (size + partitions - 1) / partitions);
+		this.partitionCount = Math.max(1, (size + this.partitionSize - 1) / this.partitionSize);
+		this.loadedNeighbours = new IntList[this.partitionCount];
+		this.offsets = new int[size + 1];
+		this.values = new double[size];
+		this.messages = new double[size];
+		this.received = new boolean[size];
+		this.nextMessages = new double[size];
+		this.nextReceived = new boolean[size];
+		this.halted = new boolean[size];
+		this.buffers = new MessageBuffer[this.partitionCount][this.partitionCount];
+		this.activeCounts = new int[this.partitionCount];
+		this.contexts = new PartitionContext[this.partitionCount];
+		for (int i = 0; i < this.partitionCount; i++) {
+			for (int j = 0; j < this.partitionCount; j++) {
+				this.buffers[i][j] = new MessageBuffer();
+			}
+			this.contexts[i] = new PartitionContext(this, i);
+		}
+	}
+
+	/**
+	 * Reads the neighbours of all the vertices from the graph.
+	 * 
+	 * @param labels
+	 *            The labels of the edges joining the neighbours
+	 */
+	void loadAdjacency(String... labels) {
+		this.pool.invoke(new PartitionTask(this, LOAD, labels, 0, this.partitionCount));
+		int offset = 0;
+		for (int i = 0; i < this.offsets.length - 1; i++) {
+			int degree = this.offsets[i];
+			this.offsets[i] = offset;
+			offset += degree;
+			if (offset < 0) {
+				throw new IllegalStateException("Too many neighbours to compute the graph");
+			}
+		}
+		this.offsets[this.offsets.length - 1] = offset;
+		this.neighbours = new int[offset];
+		this.pool.invoke(new PartitionTask(this, LINK, labels, 0, this.partitionCount));
+	}
+
+	/**
+	 * Runs the supersteps until all the vertices are inactive and no message is in flight or until the given
+	 * number of supersteps has been run.
+	 * 
+	 * @param maxSupersteps
+	 *            The maximum number of supersteps
+	 * @return The number of supersteps run
+	 */
+	int run(int maxSupersteps) {
+		boolean running = this.index.size() > 0;
+		while (running && this.superstep < maxSupersteps) {
+			this.pool.invoke(new PartitionTask(this, COMPUTE, null, 0, this.partitionCount));
+			this.pool.invoke(new PartitionTask(this, COMBINE, null, 0, this.partitionCount));
+			double[] swapMessages = this.messages;
+			this.messages = this.nextMessages;
+			this.nextMessages = swapMessages;
+			boolean[] swapReceived = this.received;
+			this.received = this.nextReceived;
+			this.nextReceived = swapReceived;
+			running = false;
+			for (int i = 0; i < this.partitionCount && !running; i++) {
+				running = this.activeCounts[i] > 0;
+			}
+			this.superstep++;
+		}
+		return this.superstep;
+	}
+
+	/**
+	 * Returns the values of the vertices.
+	 * 
+	 * @return The values of the vertices
+	 */
+	double[] values() {
+		return this.values;
+	}
+
+	/**
+	 * Executes the given phase for the given partition.
+	 * 
+	 * @param phase
+	 *            The phase
+	 * @param partition
+	 *            The partition
+	 * @param labels
+	 *            The labels of the edges joining the neighbours
+	 */
+	private void execute(int phase, int partition, String... labels) {
+		int start = partition * this.partitionSize;
+		int end = Math.min(this.index.size(), start + this.partitionSize);
+		switch (phase) {
+			case LOAD:
+				this.load(partition, start, end, labels);
+				break;
+			case LINK:
+				this.link(partition, start, end);
+				break;
+			case COMPUTE:
+				this.compute(partition, start, end);
+				break;
+			case COMBINE:
+				this.combine(partition, start, end);
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(phase));
+		}
+	}
+
+	/**
+	 * Reads the neighbours of the vertices of a partition, storing the degree of each vertex in place of its
+	 * offset.
+	 * 
+	 * @param partition
+	 *            The partition
+	 * @param start
+	 *            The first vertex of the partition
+	 * @param end
+	 *            The end of the vertices of the partition, exclusive
+	 * @param labels
+	 *            The labels of the edges joining the neighbours
+	 */
+	private void load(int partition, int start, int end, String... labels) {
+		IntList loaded = new IntList();
+		Direction direction = this.program.getDirection();
+		for (int i = start; i < end; i++) {
+			int size = loaded.size();
+			try (ICloseableIterable<IVertex> adjacents = this.index.get(i).getVertices(direction, labels)) {
+				for (IVertex adjacent : adjacents) {
+					int neighbour = this.index.indexOf(adjacent);
+					if (neighbour != VertexIndex.MISSING) {
+						loaded.add(neighbour);
+					}
+				}
+			}
+			this.offsets[i] = loaded.size() - size;
+		}
+		this.loadedNeighbours[partition] = loaded;
+	}
+
+	/**
+	 * Copies the neighbours read by a partition in the adjacency and sorts the neighbours of each vertex.
+	 * 
+	 * @param partition
+	 *            The partition
+	 * @param start
+	 *            The first vertex of the partition
+	 * @param end
+	 *            The end of the vertices of the partition, exclusive
+	 */
+	private void link(int partition, int start, int end) {
+		IntList loaded = this.loadedNeighbours[partition];
+		int base = this.offsets[start];
+		for (int i = 0; i < loaded.size(); i++) {
+			this.neighbours[base + i] = loaded.get(i);
+		}
+		this.loadedNeighbours[partition] = null;
+		for (int i = start; i < end; i++) {
+			Arrays.sort(this.neighbours, this.offsets[i], this.offsets[i + 1]);
+		}
+	}
+
+	/**
+	 * Computes the active vertices of a partition.
+	 * 
+	 * @param partition
+	 *            The partition
+	 * @param start
+	 *            The first vertex of the partition
+	 * @param end
+	 *            The end of the vertices of the partition, exclusive
+	 */
+	private void compute(int partition, int start, int end) {
+		PartitionContext context = this.contexts[partition];
+		int active = 0;
+		for (int i = start; i < end; i++) {
+			if (!this.halted[i] || this.received[i]) {
+				this.halted[i] = false;
+				context.vertex = i;
+				this.program.compute(context);
+			}
+			if (!this.halted[i]) {
+				active++;
+			}
+		}
+		this.activeCounts[partition] = active;
+	}
+
+	/**
+	 * Combines the messages sent to the vertices of a partition during the current superstep.
+	 * 
+	 * @param partition
+	 *            The partition
+	 * @param start
+	 *            The first vertex of the partition
+	 * @param end
+	 *            The end of the vertices of the partition, exclusive
+	 */
+	private void combine(int partition, int start, int end) {
+		Arrays.fill(this.nextReceived, start, end, false);
+		int messageCount = 0;
+		for (int i = 0; i < this.partitionCount; i++) {
+			MessageBuffer buffer = this.buffers[i][partition];
+			for (int j = 0; j < buffer.size(); j++) {
+				int recipient = buffer.recipient(j);
+				if (this.nextReceived[recipient]) {
+					this.nextMessages[recipient] = this.combiner.combine(this.nextMessages[recipient],
+							buffer.value(j));
+				} else {
+					this.nextMessages[recipient] = buffer.value(j);
+					this.nextReceived[recipient] = true;
+				}
+			}
+			messageCount += buffer.size();
+			buffer.clear();
+		}
+		this.activeCounts[partition] += messageCount;
+	}
+
+	/**
+	 * A fork/join task executing a phase for a range of partitions. The task splits its range in two halves
+	 * until it covers a single partition.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class PartitionTask extends RecursiveAction {
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The execution.
+		 */
+		private final transient ComputeExecution execution;
+
+		/**
+		 * The phase.
+		 */
+		private final int phase;
+
+		/**
+		 * The labels of the edges joining the neighbours.
+		 */
+		private final String[] labels;
+
+		/**
+		 * The first partition, inclusive.
+		 */
+		private final int start;
+
+		/**
+		 * The last partition, exclusive.
+		 */
+		private final int end;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param execution
+		 *            The execution
+		 * @param phase
+		 *            The phase
+		 * @param labels
+		 *            The labels of the edges joining the neighbours
+		 * @param start
+		 *            The first partition, inclusive
+		 * @param end
+		 *            The last partition, exclusive
+		 */
+		PartitionTask(ComputeExecution execution, int phase, String[] labels, int start, int end) {
+			this.execution = execution;
+			this.phase = phase;
+			this.labels = labels;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (this.end - this.start == 1) {
+				this.execution.execute(this.phase, this.start, this.labels);
+			} else {
+				int middle = (this.start + this.end) >>> 1;
+				PartitionTask first = new PartitionTask(this.execution, this.phase, this.labels, this.start,
+						middle);
+				PartitionTask second = new PartitionTask(this.execution, this.phase, this.labels, middle,
+						this.end);
+				RecursiveAction.invokeAll(first, second);
+			}
+		}
+	}
+
+	/**
+	 * The context given to the program for the vertices of a partition, pointing to the vertex being
+	 * computed.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class PartitionContext implements IVertexContext {
+		/**
+		 * The execution.
+		 */
+		private final ComputeExecution execution;
+
+		/**
+		 * The partition.
+		 */
+		private final int partition;
+
+		/**
+		 * The number of the vertex being computed.
+		 */
+		private int vertex;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param execution
+		 *            The execution
+		 * @param partition
+		 *            The partition
+		 */
+		PartitionContext(ComputeExecution execution, int partition) {
+			this.execution = execution;
+			this.partition = partition;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getSuperstep()
+		 */
+		@Override
+		public int getSuperstep() {
+			return this.execution.superstep;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getVertexCount()
+		 */
+		@Override
+		public int getVertexCount() {
+			return this.execution.index.size();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getVertexNumber()
+		 */
+		@Override
+		public int getVertexNumber() {
+			return this.vertex;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getVertex()
+		 */
+		@Override
+		public IVertex getVertex() {
+			return this.execution.index.get(this.vertex);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getValue()
+		 */
+		@Override
+		public double getValue() {
+			return this.execution.values[this.vertex];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#setValue(double)
+		 */
+		@Override
+		public void setValue(double value) {
+			this.execution.values[this.vertex] = value;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#hasMessage()
+		 */
+		@Override
+		public boolean hasMessage() {
+			return this.execution.received[this.vertex];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getMessage()
+		 */
+		@Override
+		public double getMessage() {
+			double message = this.execution.combiner.identity();
+			if (this.execution.received[this.vertex]) {
+				message = this.execution.messages[this.vertex];
+			}
+			return message;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getDegree()
+		 */
+		@Override
+		public int getDegree() {
+			return this.execution.offsets[this.vertex + 1] - this.execution.offsets[this.vertex];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#getNeighbour(int)
+		 */
+		@Override
+		public int getNeighbour(int position) {
+			if (position < 0 || position >= this.getDegree()) {
+				throw new IndexOutOfBoundsException(String.valueOf(position));
+			}
+			return this.execution.neighbours[this.execution.offsets[this.vertex] + position];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#isNeighbour(int, int)
+		 */
+		@Override
+		public boolean isNeighbour(int vertexNumber, int neighbourNumber) {
+			int[] offsets = this.execution.offsets;
+			return Arrays.binarySearch(this.execution.neighbours, offsets[vertexNumber],
+					offsets[vertexNumber + 1], neighbourNumber) >= 0;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#sendMessage(int, double)
+		 */
+		@Override
+		public void sendMessage(int vertexNumber, double message) {
+			if (vertexNumber < 0 || vertexNumber >= this.execution.index.size()) {
+				throw new IndexOutOfBoundsException(String.valueOf(vertexNumber));
+			}
+			this.execution.buffers[this.partition][vertexNumber / this.execution.partitionSize].add(
+					vertexNumber, message);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#sendMessageToNeighbours(double)
+		 */
+		@Override
+		public void sendMessageToNeighbours(double message) {
+			int[] neighbours = this.execution.neighbours;
+			MessageBuffer[] partitionBuffers = this.execution.buffers[this.partition];
+			int partitionSize = this.execution.partitionSize;
+			int end = this.execution.offsets[this.vertex + 1];
+			for (int i = this.execution.offsets[this.vertex]; i < end; i++) {
+				partitionBuffers[neighbours[i] / partitionSize].add(neighbours[i], message);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.algorithms.IVertexContext#voteToHalt()
+		 */
+		@Override
+		public void voteToHalt() {
+			this.execution.halted[this.vertex] = true;
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.ITypedElement;
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * The values of the vertices at the end of a run of a {@link ComputeEngine}, addressed either by vertex or
+ * by the number given to the vertex during the run.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class ComputeResult {
+	/**
+	 * The vertices.
+	 */
+	private final VertexIndex index;
+
+	/**
+	 * The value of each vertex.
+	 */
+	private final double[] values;
+
+	/**
+	 * The number of supersteps run.
+	 */
+	private final int supersteps;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param index
+	 *            The vertices
+	 * @param values
+	 *            The value of each vertex
+	 * @param supersteps
+	 *            The number of supersteps run
+	 */
+	ComputeResult(VertexIndex index, double[] values, int supersteps) {
+		this.index = index;
+		this.values = values;
+		this.supersteps = supersteps;
+	}
+
+	/**
+	 * Returns the number of vertices.
+	 * 
+	 * @return The number of vertices
+	 */
+	public int size() {
+		return this.index.size();
+	}
+
+	/**
+	 * Returns the number of supersteps run.
+	 * 
+	 * @return The number of supersteps run
+	 */
+	public int getSupersteps() {
+		return this.supersteps;
+	}
+
+	/**
+	 * Returns the vertex with the given number.
+	 * 
+	 * @param vertexNumber
+	 *            The number of the vertex
+	 * @return The vertex
+	 */
+	public IVertex getVertex(int vertexNumber) {
+		return this.index.get(vertexNumber);
+	}
+
+	/**
+	 * Returns the value of the vertex with the given number.
+	 * 
+	 * @param vertexNumber
+	 *            The number of the vertex
+	 * @return The value of the vertex
+	 */
+	public double getValue(int vertexNumber) {
+		if (vertexNumber < 0 || vertexNumber >= this.values.length) {
+			throw new IndexOutOfBoundsException(String.valueOf(vertexNumber));
+		}
+		return this.values[vertexNumber];
+	}
+
+	/**
+	 * Returns the value of the given vertex.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The value of the vertex
+	 */
+	public double getValue(IVertex vertex) {
+		int vertexNumber = this.index.indexOf(vertex);
+		if (vertexNumber == VertexIndex.MISSING) {
+			throw new IllegalArgumentException("The vertex has not been computed: " + vertex);
+		}
+		return this.values[vertexNumber];
+	}
+
+	/**
+	 * Stores the value of each vertex in the property with the given key, as a double.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 */
+	public void store(String key) {
+		for (int i = 0; i < this.values.length; i++) {
+			IVertex vertex = this.index.get(i);
+			if (vertex instanceof ITypedElement) {
+				((ITypedElement)vertex).setDouble(key, this.values[i]);
+			} else {
+				((IElement)vertex).setProperty(key, Double.valueOf(this.values[i]));
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.Direction;
+
+/**
+ * Computes the weakly connected components of the graph, ignoring the direction of the edges. The value of
+ * each vertex is the smallest number of the vertices of its component, so that two vertices are in the same
+ * component if they have the same value and {@link ComputeResult#getVertex(int)} returns a representative of
+ * each component. The smallest number spreads to the whole component, a vertex sending messages only when
+ * its value decreases.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class ConnectedComponents implements IVertexProgram {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#getDirection()
+	 */
+	@Override
+	public Direction getDirection() {
+		return Direction.BOTH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#getCombiner()
+	 */
+	@Override
+	public Combiner getCombiner() {
+		return Combiner.MIN;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#compute(fr.obeo.graph.algorithms.IVertexContext)
+	 */
+	@Override
+	public void compute(IVertexContext context) {
+		if (context.getSuperstep() == 0) {
+			double component = context.getVertexNumber();
+			for (int i = 0; i < context.getDegree(); i++) {
+				component = Math.min(component, context.getNeighbour(i));
+			}
+			context.setValue(component);
+			context.sendMessageToNeighbours(component);
+		} else if (context.getMessage() < context.getValue()) {
+			context.setValue(context.getMessage());
+			context.sendMessageToNeighbours(context.getValue());
+		}
+		context.voteToHalt();
+	}
+}
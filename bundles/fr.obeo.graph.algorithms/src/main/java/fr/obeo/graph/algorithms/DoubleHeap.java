@@ -0,0 +1,210 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of the indexes of the vertices ordered by a primitive priority. The heap knows the
+ * position of each index so that the priority of an index already in the heap can be decreased in place
+ * instead of inserting the index a second time.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class DoubleHeap {
+	/**
+	 * The initial capacity of the heap.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The indexes in heap order.
+	 */
+	private int[] heap = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The number of indexes in the heap.
+	 */
+	private int size;
+
+	/**
+	 * The position of each index in the heap plus one, 0 if the index is not in the heap.
+	 */
+	private int[] positions = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The priority of each index.
+	 */
+	private double[] priorities = new double[INITIAL_CAPACITY];
+
+	/**
+	 * Inserts the given index or changes its priority if it is already in the heap.
+	 * 
+	 * @param index
+	 *            The index
+	 * @param priority
+	 *            The priority of the index
+	 */
+	void update(int index, double priority) {
+		if (index >= this.positions.length) {
+			int capacity = Math.max(index + 1, this.positions.length * 2);
+			this.positions = Arrays.copyOf(this.positions, capacity);
+			this.priorities = Arrays.copyOf(this.priorities, capacity);
+		}
+		int position = this.positions[index] - 1;
+		if (position < 0) {
+			if (this.size == this.heap.length) {
+				this.heap = Arrays.copyOf(this.heap, this.size * 2);
+			}
+			position = this.size;
+			this.size++;
+		}
+		this.priorities[index] = priority;
+		this.siftUp(position, index);
+		this.siftDown(this.positions[index] - 1, index);
+	}
+
+	/**
+	 * Removes and returns the index with the smallest priority.
+	 * 
+	 * @return The index with the smallest priority
+	 */
+	int poll() {
+		if (this.size == 0) {
+			throw new IndexOutOfBoundsException(String.valueOf(this.size));
+		}
+		int first = this.heap[0];
+		this.positions[first] = 0;
+		this.size--;
+		if (this.size > 0) {
+			this.siftDown(0, this.heap[this.size]);
+		}
+		return first;
+	}
+
+	/**
+	 * Returns the smallest priority of the heap, {@link Double#POSITIVE_INFINITY} if the heap is empty.
+	 * 
+	 * @return The smallest priority of the heap
+	 */
+	double peekPriority() {
+		double priority = Double.POSITIVE_INFINITY;
+		if (this.size > 0) {
+			priority = this.priorities[this.heap[0]];
+		}
+		return priority;
+	}
+
+	/**
+	 * Returns the number of indexes in the heap.
+	 * 
+	 * @return The number of indexes in the heap
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Indicates if the heap is empty.
+	 * 
+	 * @return <code>true</code> if the heap is empty, <code>false</code> otherwise
+	 */
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Moves the given index from the given position toward the root until its parent has a smaller priority.
+	 * 
+	 * @param start
+	 *            The position where the index is placed
+	 * @param index
+	 *            The index
+	 */
+	private void siftUp(int start, int index) {
+		int position = start;
+		double priority = this.priorities[index];
+		boolean moving = position > 0;
+		while (moving) {
+			int parentPosition = (position - 1) >>> 1;
+			int parent = this.heap[parentPosition];
+			if (this.priorities[parent] > priority) {
+				this.place(parent, position);
+				position = parentPosition;
+				moving = position > 0;
+			} else {
+				moving = false;
+			}
+		}
+		this.place(index, position);
+	}
+
+	/**
+	 * Moves the given index from the given position toward the leaves until its children have greater
+	 * priorities.
+	 * 
+	 * @param start
+	 *            The position where the index is placed
+	 * @param index
+	 *            The index
+	 */
+	private void siftDown(int start, int index) {
+		int position = start;
+		double priority = this.priorities[index];
+		int child = 2 * position + 1;
+		while (child < this.size) {
+			int right = child + 1;
+			if (right < this.size && this.priorities[this.heap[right]] < this.priorities[this.heap[child]]) {
+				child = right;
+			}
+			if (this.priorities[this.heap[child]] < priority) {
+				this.place(this.heap[child], position);
+				position = child;
+				child = 2 * position + 1;
+			} else {
+				child = this.size;
+			}
+		}
+		this.place(index, position);
+	}
+
+	/**
+	 * Places the given index at the given position of the heap.
+	 * 
+	 * @param index
+	 *            The index
+	 * @param position
+	 *            The position
+	 */
+	private void place(int index, int position) {
+		this.heap[position] = index;
+		this.positions[index] = position + 1;
+	}
+}
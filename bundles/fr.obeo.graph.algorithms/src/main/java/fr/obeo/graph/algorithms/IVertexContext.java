@@ -0,0 +1,151 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * The view of a vertex given to an {@link IVertexProgram} during a superstep. The vertices of the graph are
+ * numbered from 0 to the number of vertices, the neighbours of a vertex are given by their numbers in
+ * ascending order and the messages are addressed to these numbers.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IVertexContext {
+	/**
+	 * Return the current superstep, starting at 0.
+	 * 
+	 * @return The current superstep
+	 */
+	int getSuperstep();
+
+	/**
+	 * Return the number of vertices of the graph.
+	 * 
+	 * @return The number of vertices of the graph
+	 */
+	int getVertexCount();
+
+	/**
+	 * Return the number of the vertex being computed.
+	 * 
+	 * @return The number of the vertex being computed
+	 */
+	int getVertexNumber();
+
+	/**
+	 * Return the vertex being computed.
+	 * 
+	 * @return The vertex being computed
+	 */
+	IVertex getVertex();
+
+	/**
+	 * Return the value of the vertex, 0 before it has been set.
+	 * 
+	 * @return The value of the vertex
+	 */
+	double getValue();
+
+	/**
+	 * Set the value of the vertex.
+	 * 
+	 * @param value
+	 *            The value of the vertex
+	 */
+	void setValue(double value);
+
+	/**
+	 * Indicate if the vertex has received a message during the previous superstep.
+	 * 
+	 * @return <code>true</code> if the vertex has received a message, <code>false</code> otherwise
+	 */
+	boolean hasMessage();
+
+	/**
+	 * Return the combination of the messages received by the vertex during the previous superstep or the
+	 * identity of the combiner if it has not received any message.
+	 * 
+	 * @return The message received by the vertex
+	 */
+	double getMessage();
+
+	/**
+	 * Return the number of neighbours of the vertex, a neighbour joined by several edges being counted once
+	 * per edge.
+	 * 
+	 * @return The number of neighbours of the vertex
+	 */
+	int getDegree();
+
+	/**
+	 * Return the number of a neighbour of the vertex.
+	 * 
+	 * @param position
+	 *            The position of the neighbour, between 0 and the degree of the vertex
+	 * @return The number of the neighbour, the numbers being returned in ascending order of position
+	 */
+	int getNeighbour(int position);
+
+	/**
+	 * Indicate if a vertex is a neighbour of another one.
+	 * 
+	 * @param vertexNumber
+	 *            The number of the vertex
+	 * @param neighbourNumber
+	 *            The number of the potential neighbour
+	 * @return <code>true</code> if the second vertex is a neighbour of the first one, <code>false</code>
+	 *         otherwise
+	 */
+	boolean isNeighbour(int vertexNumber, int neighbourNumber);
+
+	/**
+	 * Send a message to a vertex for the next superstep.
+	 * 
+	 * @param vertexNumber
+	 *            The number of the recipient
+	 * @param message
+	 *            The message
+	 */
+	void sendMessage(int vertexNumber, double message);
+
+	/**
+	 * Send a message to each neighbour of the vertex for the next superstep.
+	 * 
+	 * @param message
+	 *            The message
+	 */
+	void sendMessageToNeighbours(double message);
+
+	/**
+	 * Deactivate the vertex until it receives a message.
+	 */
+	void voteToHalt();
+}
@@ -0,0 +1,73 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.Direction;
+
+/**
+ * A vertex program run by a {@link ComputeEngine}. The program is executed in supersteps: during each
+ * superstep, the program computes the new value of each active vertex from its current value and from the
+ * message combining all the messages sent to the vertex during the previous superstep, and sends messages
+ * to other vertices for the next superstep.
+ * <p>
+ * All the vertices are active during the first superstep. A vertex becomes inactive when it votes to halt
+ * and it is active again when it receives a message. The computation ends once all the vertices are
+ * inactive and no message is in flight.
+ * </p>
+ * <p>
+ * The program is called by several threads at once, for different vertices: it must not hold any state
+ * depending on the vertex being computed outside of the context it is given.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IVertexProgram {
+	/**
+	 * Return the direction of the edges joining each vertex to its neighbours.
+	 * 
+	 * @return The direction of the edges joining each vertex to its neighbours
+	 */
+	Direction getDirection();
+
+	/**
+	 * Return the combiner merging the messages sent to a vertex.
+	 * 
+	 * @return The combiner merging the messages sent to a vertex
+	 */
+	Combiner getCombiner();
+
+	/**
+	 * Compute a superstep for the vertex of the provided context.
+	 * 
+	 * @param context
+	 *            The context giving access to the vertex, its value, its message and its neighbours
+	 */
+	void compute(IVertexContext context);
+}
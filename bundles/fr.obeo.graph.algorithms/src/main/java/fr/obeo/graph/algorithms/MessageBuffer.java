@@ -0,0 +1,116 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * The messages sent by the vertices of a partition to the vertices of another partition during a superstep,
+ * stored as two parallel primitive arrays of recipients and values.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MessageBuffer {
+	/**
+	 * The initial capacity of the buffer.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The numbers of the recipients.
+	 */
+	private int[] recipients = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The values of the messages.
+	 */
+	private double[] values = new double[INITIAL_CAPACITY];
+
+	/**
+	 * The number of messages.
+	 */
+	private int size;
+
+	/**
+	 * Appends a message.
+	 * 
+	 * @param recipient
+	 *            The number of the recipient
+	 * @param value
+	 *            The value of the message
+	 */
+	void add(int recipient, double value) {
+		if (this.size == this.recipients.length) {
+			this.recipients = Arrays.copyOf(this.recipients, this.size * 2);
+			this.values = Arrays.copyOf(this.values, this.size * 2);
+		}
+		this.recipients[this.size] = recipient;
+		this.values[this.size] = value;
+		this.size++;
+	}
+
+	/**
+	 * Returns the number of the recipient of the message at the given position.
+	 * 
+	 * @param position
+	 *            The position of the message
+	 * @return The number of the recipient
+	 */
+	int recipient(int position) {
+		return this.recipients[position];
+	}
+
+	/**
+	 * Returns the value of the message at the given position.
+	 * 
+	 * @param position
+	 *            The position of the message
+	 * @return The value of the message
+	 */
+	double value(int position) {
+		return this.values[position];
+	}
+
+	/**
+	 * Returns the number of messages.
+	 * 
+	 * @return The number of messages
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all the messages, keeping the arrays for the next superstep.
+	 */
+	void clear() {
+		this.size = 0;
+	}
+}
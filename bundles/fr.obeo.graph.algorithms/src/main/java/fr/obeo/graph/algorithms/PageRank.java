@@ -0,0 +1,108 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.Direction;
+
+/**
+ * Computes the PageRank of the vertices, following the outgoing edges. The rank of each vertex starts at 1 /
+ * N for N vertices, then at each iteration a vertex shares its rank among its neighbours and gets (1 - d) /
+ * N plus d times the sum of the ranks it receives, d being the damping factor. The rank of the vertices
+ * without outgoing edges is not redistributed.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class PageRank implements IVertexProgram {
+	/**
+	 * The damping factor.
+	 */
+	private final double damping;
+
+	/**
+	 * The number of iterations.
+	 */
+	private final int iterations;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param damping
+	 *            The damping factor, between 0 and 1
+	 * @param iterations
+	 *            The number of iterations
+	 */
+	public PageRank(double damping, int iterations) {
+		if (damping < 0 || damping > 1) {
+			throw new IllegalArgumentException("The damping factor must be between 0 and 1: " + damping);
+		}
+		this.damping = damping;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#getDirection()
+	 */
+	@Override
+	public Direction getDirection() {
+		return Direction.OUT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#getCombiner()
+	 */
+	@Override
+	public Combiner getCombiner() {
+		return Combiner.SUM;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#compute(fr.obeo.graph.algorithms.IVertexContext)
+	 */
+	@Override
+	public void compute(IVertexContext context) {
+		double count = context.getVertexCount();
+		if (context.getSuperstep() == 0) {
+			context.setValue(1 / count);
+		} else {
+			context.setValue((1 - this.damping) / count + this.damping * context.getMessage());
+		}
+		if (context.getSuperstep() < this.iterations && context.getDegree() > 0) {
+			context.sendMessageToNeighbours(context.getValue() / context.getDegree());
+		} else if (context.getSuperstep() >= this.iterations) {
+			context.voteToHalt();
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A path found by {@link ShortestPath}: the vertices from the source to the target, the edges between them
+ * and the total weight of these edges.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class Path {
+	/**
+	 * The vertices of the path, from the source to the target.
+	 */
+	private final List<IVertex> vertices;
+
+	/**
+	 * The edges of the path, the edge at position i joining the vertices at positions i and i + 1.
+	 */
+	private final List<IEdge> edges;
+
+	/**
+	 * The weight of the path.
+	 */
+	private final double weight;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param vertices
+	 *            The vertices of the path, from the source to the target
+	 * @param edges
+	 *            The edges of the path
+	 * @param weight
+	 *            The weight of the path
+	 */
+	Path(List<IVertex> vertices, List<IEdge> edges, double weight) {
+		this.vertices = Collections.unmodifiableList(vertices);
+		this.edges = Collections.unmodifiableList(edges);
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns the vertices of the path, from the source to the target.
+	 * 
+	 * @return The vertices of the path
+	 */
+	public List<IVertex> getVertices() {
+		return this.vertices;
+	}
+
+	/**
+	 * Returns the edges of the path, the edge at position i joining the vertices at positions i and i + 1.
+	 * 
+	 * @return The edges of the path
+	 */
+	public List<IEdge> getEdges() {
+		return this.edges;
+	}
+
+	/**
+	 * Returns the total weight of the edges of the path, their number for an unweighted path.
+	 * 
+	 * @return The weight of the path
+	 */
+	public double getWeight() {
+		return this.weight;
+	}
+
+	/**
+	 * Returns the number of edges of the path.
+	 * 
+	 * @return The number of edges of the path
+	 */
+	public int getLength() {
+		return this.edges.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.vertices.toString() + " (" + this.weight + ")";
+	}
+}
@@ -0,0 +1,212 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The tree of the shortest paths found from a root vertex. The vertices reached are numbered by a
+ * {@link VertexIndex}, the root having the index 0, and the distance, the parent and the edge leading to each
+ * vertex are stored in primitive arrays addressed by these indexes. The vertices waiting to be expanded are
+ * held in a {@link DoubleHeap} when the search is ordered by priority.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class SearchTree {
+	/**
+	 * The initial capacity of the arrays.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The index of the vertices reached.
+	 */
+	private final VertexIndex index = new VertexIndex();
+
+	/**
+	 * The vertices waiting to be expanded by a search ordered by priority.
+	 */
+	private final DoubleHeap heap = new DoubleHeap();
+
+	/**
+	 * The distance of each vertex from the root.
+	 */
+	private double[] distances = new double[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the parent of each vertex, -1 for the root.
+	 */
+	private int[] parents = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The edge between each vertex and its parent.
+	 */
+	private IEdge[] edges = new IEdge[INITIAL_CAPACITY];
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param root
+	 *            The root vertex, which gets the index 0
+	 */
+	SearchTree(IVertex root) {
+		this.index.add(root);
+		this.parents[0] = -1;
+	}
+
+	/**
+	 * Records the given path to the given vertex if it is the first or the shortest one found so far.
+	 * 
+	 * @param vertex
+	 *            The vertex reached
+	 * @param distance
+	 *            The distance of the vertex from the root through the parent
+	 * @param parent
+	 *            The index of the parent
+	 * @param edge
+	 *            The edge between the parent and the vertex
+	 * @return The index of the vertex if the path has been recorded, -1 otherwise
+	 */
+	int reach(IVertex vertex, double distance, int parent, IEdge edge) {
+		int size = this.index.size();
+		int position = this.index.add(vertex);
+		if (position == size && size == this.distances.length) {
+			this.distances = Arrays.copyOf(this.distances, size * 2);
+			this.parents = Arrays.copyOf(this.parents, size * 2);
+			this.edges = Arrays.copyOf(this.edges, size * 2);
+		}
+		if (position == size || distance < this.distances[position]) {
+			this.distances[position] = distance;
+			this.parents[position] = parent;
+			this.edges[position] = edge;
+		} else {
+			position = -1;
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the vertices waiting to be expanded by a search ordered by priority.
+	 * 
+	 * @return The vertices waiting to be expanded
+	 */
+	DoubleHeap heap() {
+		return this.heap;
+	}
+
+	/**
+	 * Returns the index of the given vertex or {@link VertexIndex#MISSING} if it has not been reached.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The index of the vertex or {@link VertexIndex#MISSING}
+	 */
+	int indexOf(IVertex vertex) {
+		return this.index.indexOf(vertex);
+	}
+
+	/**
+	 * Returns the vertex of the given index.
+	 * 
+	 * @param position
+	 *            The index
+	 * @return The vertex of the index
+	 */
+	IVertex vertex(int position) {
+		return this.index.get(position);
+	}
+
+	/**
+	 * Returns the shortest distance found so far between the root and the vertex of the given index.
+	 * 
+	 * @param position
+	 *            The index of the vertex
+	 * @return The distance of the vertex from the root
+	 */
+	double distance(int position) {
+		return this.distances[position];
+	}
+
+	/**
+	 * Returns the number of vertices reached.
+	 * 
+	 * @return The number of vertices reached
+	 */
+	int size() {
+		return this.index.size();
+	}
+
+	/**
+	 * Appends the edges of the path from the vertex of the given index to the root, and the vertices of this
+	 * path after the vertex of the given index, in the order of the path.
+	 * 
+	 * @param position
+	 *            The index of the vertex
+	 * @param vertices
+	 *            The vertices of the path
+	 * @param pathEdges
+	 *            The edges of the path
+	 */
+	void appendPathToRoot(int position, List<IVertex> vertices, List<IEdge> pathEdges) {
+		int current = position;
+		while (this.parents[current] >= 0) {
+			pathEdges.add(this.edges[current]);
+			current = this.parents[current];
+			vertices.add(this.index.get(current));
+		}
+	}
+
+	/**
+	 * Appends the vertices and the edges of the path from the root to the vertex of the given index.
+	 * 
+	 * @param position
+	 *            The index of the vertex
+	 * @param vertices
+	 *            The list receiving the vertices of the path
+	 * @param pathEdges
+	 *            The list receiving the edges of the path
+	 */
+	void appendPathFromRoot(int position, List<IVertex> vertices, List<IEdge> pathEdges) {
+		List<IVertex> reversedVertices = new ArrayList<IVertex>();
+		List<IEdge> reversedEdges = new ArrayList<IEdge>();
+		reversedVertices.add(this.index.get(position));
+		this.appendPathToRoot(position, reversedVertices, reversedEdges);
+		Collections.reverse(reversedVertices);
+		Collections.reverse(reversedEdges);
+		vertices.addAll(reversedVertices);
+		pathEdges.addAll(reversedEdges);
+	}
+}
@@ -0,0 +1,453 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.ISchemaGraph;
+import fr.obeo.graph.api.ITypedElement;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.PropertyType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Finds the shortest path between two vertices of a graph, following the edges of a given direction and
+ * labels. Without a weight, all the edges weigh 1 and the path with the fewest edges is found by a breadth
+ * first search. With a weight, each edge weighs the value of a numeric property and the lightest path is
+ * found by Dijkstra's algorithm, or by the A* algorithm when a heuristic estimates the remaining weight
+ * toward the target. The bidirectional search runs two of these searches at once, one from the source
+ * following the edges in the given direction and one from the target following them in the opposite
+ * direction, until they meet.
+ * <p>
+ * The weights must not be negative. An edge without the weight property makes the search fail with an
+ * {@link IllegalStateException}. When the weight is declared in the schema of the graph as a primitive
+ * property of the edges, it is read without boxing.
+ * </p>
+ * <p>
+ * The searches number the vertices they reach with dense indexes, keep the distances and the parents of the
+ * vertices in primitive arrays addressed by these indexes and order the vertices to expand with a primitive
+ * binary heap supporting the decrease of a priority in place.
+ * </p>
+ * 
+ * <pre>
+ * Path path = new ShortestPath(graph).labels("road").weight("length").findBidirectional(source, target);
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class ShortestPath {
+	/**
+	 * The graph.
+	 */
+	private final IGraph graph;
+
+	/**
+	 * The direction of the edges followed from the source.
+	 */
+	private Direction direction = Direction.OUT;
+
+	/**
+	 * The labels of the edges followed, all the edges are followed if there is no label.
+	 */
+	private String[] labels = new String[0];
+
+	/**
+	 * The key of the weight of the edges or <code>null</code> if the edges are not weighted.
+	 */
+	private String weightKey;
+
+	/**
+	 * The type with which the weight is declared in the schema of the graph or <code>null</code>.
+	 */
+	private PropertyType weightType;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	public ShortestPath(IGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Sets the direction of the edges followed from the source, {@link Direction#OUT} by default.
+	 * 
+	 * @param edgeDirection
+	 *            The direction of the edges
+	 * @return The search
+	 */
+	public ShortestPath direction(Direction edgeDirection) {
+		if (edgeDirection == null) {
+			throw new IllegalArgumentException("The direction can not be null");
+		}
+		this.direction = edgeDirection;
+		return this;
+	}
+
+	/**
+	 * Sets the labels of the edges followed, all the edges are followed by default.
+	 * 
+	 * @param edgeLabels
+	 *            The labels of the edges
+	 * @return The search
+	 */
+	public ShortestPath labels(String... edgeLabels) {
+		this.labels = edgeLabels.clone();
+		return this;
+	}
+
+	/**
+	 * Sets the key of the numeric property holding the weight of the edges.
+	 * 
+	 * @param key
+	 *            The key of the weight or <code>null</code> to give the weight 1 to all the edges
+	 * @return The search
+	 */
+	public ShortestPath weight(String key) {
+		this.weightKey = key;
+		this.weightType = null;
+		if (key != null && this.graph instanceof ISchemaGraph) {
+			this.weightType = ((ISchemaGraph)this.graph).getPropertyType(key, IEdge.class);
+		}
+		return this;
+	}
+
+	/**
+	 * Finds the shortest path from the source to the target, by a breadth first search without weight and
+	 * with Dijkstra's algorithm otherwise.
+	 * 
+	 * @param source
+	 *            The source
+	 * @param target
+	 *            The target
+	 * @return The shortest path or <code>null</code> if the target cannot be reached from the source
+	 */
+	public Path find(IVertex source, IVertex target) {
+		Path path;
+		if (this.weightKey == null) {
+			path = this.breadthFirst(source, target);
+		} else {
+			path = this.find(source, target, null);
+		}
+		return path;
+	}
+
+	/**
+	 * Finds the shortest path from the source to the target with the A* algorithm, expanding first the
+	 * vertices with the smallest distance from the source plus estimate of the distance to the target.
+	 * 
+	 * @param source
+	 *            The source
+	 * @param target
+	 *            The target
+	 * @param heuristic
+	 *            The estimate of the distance to the target or <code>null</code> to run Dijkstra's algorithm
+	 * @return The shortest path or <code>null</code> if the target cannot be reached from the source
+	 */
+	public Path find(IVertex source, IVertex target, IHeuristic heuristic) {
+		Object targetId = ((IElement)target).getId();
+		SearchTree tree = new SearchTree(source);
+		tree.heap().update(0, 0);
+		int found = -1;
+		while (found < 0 && !tree.heap().isEmpty()) {
+			int position = tree.heap().poll();
+			IVertex vertex = tree.vertex(position);
+			if (targetId.equals(((IElement)vertex).getId())) {
+				found = position;
+			} else {
+				try (ICloseableIterable<IEdge> edges = vertex.getEdges(this.direction, this.labels)) {
+					for (IEdge edge : edges) {
+						IVertex adjacent = ShortestPath.opposite(edge, vertex, this.direction);
+						double distance = tree.distance(position) + this.weight(edge);
+						int reached = tree.reach(adjacent, distance, position, edge);
+						if (reached >= 0 && heuristic != null) {
+							tree.heap().update(reached, distance + heuristic.estimate(adjacent, target));
+						} else if (reached >= 0) {
+							tree.heap().update(reached, distance);
+						}
+					}
+				}
+			}
+		}
+		Path path = null;
+		if (found >= 0) {
+			List<IVertex> vertices = new ArrayList<IVertex>();
+			List<IEdge> edges = new ArrayList<IEdge>();
+			tree.appendPathFromRoot(found, vertices, edges);
+			path = new Path(vertices, edges, tree.distance(found));
+		}
+		return path;
+	}
+
+	/**
+	 * Finds the path with the fewest edges from the source to the target with a breadth first search. The
+	 * vertices being indexed in the order in which they are reached, the indexes are also the queue of the
+	 * search.
+	 * 
+	 * @param source
+	 *            The source
+	 * @param target
+	 *            The target
+	 * @return The shortest path or <code>null</code> if the target cannot be reached from the source
+	 */
+	private Path breadthFirst(IVertex source, IVertex target) {
+		Object targetId = ((IElement)target).getId();
+		SearchTree tree = new SearchTree(source);
+		int found = -1;
+		if (targetId.equals(((IElement)source).getId())) {
+			found = 0;
+		}
+		int head = 0;
+		while (found < 0 && head < tree.size()) {
+			IVertex vertex = tree.vertex(head);
+			try (ICloseableIterable<IEdge> edges = vertex.getEdges(this.direction, this.labels)) {
+				Iterator<IEdge> iterator = edges.iterator();
+				while (found < 0 && iterator.hasNext()) {
+					IEdge edge = iterator.next();
+					IVertex adjacent = ShortestPath.opposite(edge, vertex, this.direction);
+					int size = tree.size();
+					int reached = tree.reach(adjacent, tree.distance(head) + 1, head, edge);
+					if (reached == size && targetId.equals(((IElement)adjacent).getId())) {
+						found = reached;
+					}
+				}
+			}
+			head++;
+		}
+		Path path = null;
+		if (found >= 0) {
+			List<IVertex> vertices = new ArrayList<IVertex>();
+			List<IEdge> edges = new ArrayList<IEdge>();
+			tree.appendPathFromRoot(found, vertices, edges);
+			path = new Path(vertices, edges, tree.distance(found));
+		}
+		return path;
+	}
+
+	/**
+	 * Finds the shortest path from the source to the target with two searches, one from the source following
+	 * the edges in the direction of the search and one from the target following the edges in the opposite
+	 * direction. The search with the fewest vertices waiting to be expanded is advanced first, and the
+	 * searches stop once the sum of their smallest distances waiting to be expanded reaches the weight of the
+	 * shortest path found through a vertex reached by both.
+	 * 
+	 * @param source
+	 *            The source
+	 * @param target
+	 *            The target
+	 * @return The shortest path or <code>null</code> if the target cannot be reached from the source
+	 */
+	public Path findBidirectional(IVertex source, IVertex target) {
+		SearchTree forward = new SearchTree(source);
+		SearchTree backward = new SearchTree(target);
+		forward.heap().update(0, 0);
+		backward.heap().update(0, 0);
+		Meeting meeting = new Meeting();
+		if (((IElement)source).getId().equals(((IElement)target).getId())) {
+			meeting.update(0, 0, 0);
+		}
+		while (!forward.heap().isEmpty() && !backward.heap().isEmpty()
+				&& forward.heap().peekPriority() + backward.heap().peekPriority() < meeting.weight) {
+			if (forward.heap().size() <= backward.heap().size()) {
+				this.expand(forward, backward, this.direction, meeting, true);
+			} else {
+				this.expand(backward, forward, this.direction.opposite(), meeting, false);
+			}
+		}
+		Path path = null;
+		if (meeting.forwardPosition >= 0) {
+			List<IVertex> vertices = new ArrayList<IVertex>();
+			List<IEdge> edges = new ArrayList<IEdge>();
+			forward.appendPathFromRoot(meeting.forwardPosition, vertices, edges);
+			backward.appendPathToRoot(meeting.backwardPosition, vertices, edges);
+			path = new Path(vertices, edges, meeting.weight);
+		}
+		return path;
+	}
+
+	/**
+	 * Expands the closest vertex waiting in the given search and records the paths through the vertices
+	 * which have also been reached by the other search.
+	 * 
+	 * @param search
+	 *            The search to advance
+	 * @param other
+	 *            The search in the other direction
+	 * @param searchDirection
+	 *            The direction of the edges followed by the search to advance
+	 * @param meeting
+	 *            The shortest path found through a vertex reached by both searches
+	 * @param isForward
+	 *            Whether the search to advance is the one from the source
+	 */
+	private void expand(SearchTree search, SearchTree other, Direction searchDirection, Meeting meeting,
+			boolean isForward) {
+		int position = search.heap().poll();
+		IVertex vertex = search.vertex(position);
+		try (ICloseableIterable<IEdge> edges = vertex.getEdges(searchDirection, this.labels)) {
+			for (IEdge edge : edges) {
+				IVertex adjacent = ShortestPath.opposite(edge, vertex, searchDirection);
+				double distance = search.distance(position) + this.weight(edge);
+				int reached = search.reach(adjacent, distance, position, edge);
+				int otherPosition = VertexIndex.MISSING;
+				if (reached >= 0) {
+					search.heap().update(reached, distance);
+					otherPosition = other.indexOf(adjacent);
+				}
+				if (otherPosition != VertexIndex.MISSING && isForward) {
+					meeting.update(distance + other.distance(otherPosition), reached, otherPosition);
+				} else if (otherPosition != VertexIndex.MISSING) {
+					meeting.update(distance + other.distance(otherPosition), otherPosition, reached);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the weight of the given edge.
+	 * 
+	 * @param edge
+	 *            The edge
+	 * @return The weight of the edge
+	 */
+	private double weight(IEdge edge) {
+		double weight = 1;
+		if (this.weightKey != null) {
+			weight = this.readWeight((IElement)edge);
+			if (weight < 0) {
+				throw new IllegalArgumentException("The weight of an edge can not be negative: " + weight);
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Reads the weight property of the given element, without boxing if it is declared as a primitive
+	 * property.
+	 * 
+	 * @param element
+	 *            The element
+	 * @return The value of the weight property
+	 */
+	private double readWeight(IElement element) {
+		double weight;
+		if (this.weightType == PropertyType.DOUBLE && element instanceof ITypedElement) {
+			weight = ((ITypedElement)element).getDouble(this.weightKey);
+		} else if (this.weightType == PropertyType.LONG && element instanceof ITypedElement) {
+			weight = ((ITypedElement)element).getLong(this.weightKey);
+		} else if (this.weightType == PropertyType.INT && element instanceof ITypedElement) {
+			weight = ((ITypedElement)element).getInt(this.weightKey);
+		} else {
+			Object value = element.getProperty(this.weightKey);
+			if (value instanceof Number) {
+				weight = ((Number)value).doubleValue();
+			} else if (value == null) {
+				throw new IllegalStateException("The edge has no weight: " + element.getId());
+			} else {
+				throw new IllegalArgumentException("The weight of an edge must be a number: " + value);
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Returns the vertex at the other end of the given edge.
+	 * 
+	 * @param edge
+	 *            The edge
+	 * @param vertex
+	 *            The vertex from which the edge has been followed
+	 * @param direction
+	 *            The direction in which the edge has been followed
+	 * @return The vertex at the other end of the edge
+	 */
+	private static IVertex opposite(IEdge edge, IVertex vertex, Direction direction) {
+		IVertex opposite;
+		if (direction == Direction.OUT) {
+			opposite = edge.getVertex(Direction.IN);
+		} else if (direction == Direction.IN) {
+			opposite = edge.getVertex(Direction.OUT);
+		} else {
+			opposite = edge.getVertex(Direction.OUT);
+			if (((IElement)opposite).getId().equals(((IElement)vertex).getId())) {
+				opposite = edge.getVertex(Direction.IN);
+			}
+		}
+		return opposite;
+	}
+
+	/**
+	 * The shortest path found so far through a vertex reached by both searches of a bidirectional search.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Meeting {
+		/**
+		 * The weight of the path.
+		 */
+		private double weight = Double.POSITIVE_INFINITY;
+
+		/**
+		 * The index of the meeting vertex in the search from the source, -1 if no path has been found.
+		 */
+		private int forwardPosition = -1;
+
+		/**
+		 * The index of the meeting vertex in the search from the target.
+		 */
+		private int backwardPosition = -1;
+
+		/**
+		 * Records the path through the given meeting vertex if it is shorter than the path found so far.
+		 * 
+		 * @param pathWeight
+		 *            The weight of the path
+		 * @param forward
+		 *            The index of the meeting vertex in the search from the source
+		 * @param backward
+		 *            The index of the meeting vertex in the search from the target
+		 */
+		void update(double pathWeight, int forward, int backward) {
+			if (pathWeight < this.weight) {
+				this.weight = pathWeight;
+				this.forwardPosition = forward;
+				this.backwardPosition = backward;
+			}
+		}
+	}
+}
@@ -0,0 +1,558 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.internal.IntList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A traversal walks the graph from a set of start vertices, hop after hop, in breadth first or depth first
+ * order. Each hop follows the edges of a given direction and labels: the hops are described by the steps of
+ * the traversal, the last step being repeated for the hops beyond the number of steps. Without any step,
+ * every hop follows all the edges in both directions. The traversal stops after a given number of hops, the
+ * number of steps by default.
+ * <p>
+ * The traversal only relies on {@link IVertex#getVertices(Direction, String...)} so it can be used with any
+ * graph. The vertices reached are numbered in a hash table of their identifiers, the frontier of the breadth
+ * first traversal and the stack of the depth first traversal only hold these numbers. The vertices are
+ * deduplicated per hop: each hop following one of the steps has its own set of reached vertices, so that a
+ * vertex reached by a hop can be reached again and expanded with the step of a later hop, while the vertices
+ * met again within a hop are discarded at once. The hops beyond the number of steps repeat the last step and
+ * share a single set, each vertex is thus visited at most once by them and the traversal always ends.
+ * </p>
+ * <p>
+ * With a fork/join pool, the breadth first traversal expands the vertices of large frontiers in parallel
+ * then merges their adjacent vertices in the order of the frontier, so that the vertices are visited in the
+ * same order as in a sequential traversal. The graph must support reads from several threads at once.
+ * </p>
+ * <p>
+ * For example, the products liked by the friends of the friends of a person:
+ * </p>
+ * 
+ * <pre>
+ * List&lt;IVertex&gt; products = new Traversal().step(Direction.OUT, "knows").step(Direction.OUT, "knows")
+ * 		.step(Direction.OUT, "likes").frontier(person);
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class Traversal {
+	/**
+	 * The number of vertices of a frontier under which it is expanded sequentially.
+	 */
+	private static final int SPLIT_THRESHOLD = 256;
+
+	/**
+	 * The step followed when the traversal has no step.
+	 */
+	private static final Step ANY_STEP = new Step(Direction.BOTH, new String[0]);
+
+	/**
+	 * The steps of the traversal.
+	 */
+	private final List<Step> steps = new ArrayList<Step>();
+
+	/**
+	 * The maximum number of hops or -1 to use the number of steps.
+	 */
+	private int depth = -1;
+
+	/**
+	 * The pool expanding the frontiers in parallel or <code>null</code>.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * Adds a hop following the edges of the given direction and labels.
+	 * 
+	 * @param direction
+	 *            The direction of the edges to follow
+	 * @param labels
+	 *            The labels of the edges to follow, all the edges are followed if there is no label
+	 * @return The traversal
+	 */
+	public Traversal step(Direction direction, String... labels) {
+		if (direction == null) {
+			throw new IllegalArgumentException("The direction can not be null");
+		}
+		this.steps.add(new Step(direction, labels.clone()));
+		return this;
+	}
+
+	/**
+	 * Sets the maximum number of hops of the traversal, the last step being repeated for the hops beyond the
+	 * number of steps. Use {@link Integer#MAX_VALUE} to walk until no new vertex can be reached.
+	 * 
+	 * @param maxDepth
+	 *            The maximum number of hops
+	 * @return The traversal
+	 */
+	public Traversal depth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("The depth can not be negative: " + maxDepth);
+		}
+		this.depth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Expands the frontiers of the breadth first traversals in parallel with the given pool.
+	 * 
+	 * @param forkJoinPool
+	 *            The pool or <code>null</code> to expand the frontiers sequentially
+	 * @return The traversal
+	 */
+	public Traversal parallel(ForkJoinPool forkJoinPool) {
+		this.pool = forkJoinPool;
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of hops of the traversal.
+	 * 
+	 * @return The maximum number of hops of the traversal
+	 */
+	private int maxDepth() {
+		int maxDepth = this.depth;
+		if (maxDepth < 0 && this.steps.isEmpty()) {
+			maxDepth = Integer.MAX_VALUE;
+		} else if (maxDepth < 0) {
+			maxDepth = this.steps.size();
+		}
+		return maxDepth;
+	}
+
+	/**
+	 * Creates the sets of the vertices reached by each hop following one of the steps and by the hops
+	 * repeating the last step.
+	 * 
+	 * @return The sets of the vertices reached, indexed by {@link #level(int)}
+	 */
+	private BitSet[] createLevels() {
+		BitSet[] levels = new BitSet[this.steps.size() + 1];
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = new BitSet();
+		}
+		return levels;
+	}
+
+	/**
+	 * Returns the index of the set of the vertices reached by the given hop.
+	 * 
+	 * @param hop
+	 *            The hop, starting at 0
+	 * @return The index of the set of the vertices reached by the hop
+	 */
+	private int level(int hop) {
+		return Math.min(hop, this.steps.size());
+	}
+
+	/**
+	 * Returns the step followed by the given hop.
+	 * 
+	 * @param hop
+	 *            The hop, starting at 0
+	 * @return The step followed by the hop
+	 */
+	private Step step(int hop) {
+		Step step = ANY_STEP;
+		if (!this.steps.isEmpty()) {
+			step = this.steps.get(Math.min(hop, this.steps.size() - 1));
+		}
+		return step;
+	}
+
+	/**
+	 * Walks the graph in breadth first order: all the vertices at a given number of hops are visited before
+	 * the vertices further away. A vertex is visited at most once per hop, and at most once by all the hops
+	 * beyond the number of steps, with the smallest number of hops.
+	 * 
+	 * @param visitor
+	 *            The visitor of the vertices
+	 * @param starts
+	 *            The start vertices
+	 */
+	public void breadthFirst(ITraversalVisitor visitor, IVertex... starts) {
+		VertexIndex index = new VertexIndex();
+		BitSet[] levels = this.createLevels();
+		IntList frontier = new IntList();
+		IntList next = new IntList();
+		for (IVertex start : starts) {
+			Traversal.reach(index, levels[0], start, visitor, 0, frontier);
+		}
+		int maxDepth = this.maxDepth();
+		int hop = 0;
+		while (!frontier.isEmpty() && hop < maxDepth) {
+			Step step = this.step(hop);
+			BitSet reached = levels[this.level(hop + 1)];
+			if (this.pool != null && frontier.size() >= SPLIT_THRESHOLD) {
+				this.expandInParallel(index, reached, frontier, step, visitor, hop + 1, next);
+			} else {
+				for (int i = 0; i < frontier.size(); i++) {
+					try (ICloseableIterable<IVertex> adjacents = step.adjacents(index.get(frontier.get(i)))) {
+						for (IVertex adjacent : adjacents) {
+							Traversal.reach(index, reached, adjacent, visitor, hop + 1, next);
+						}
+					}
+				}
+			}
+			IntList swap = frontier;
+			frontier = next;
+			next = swap;
+			next.clear();
+			hop++;
+		}
+	}
+
+	/**
+	 * Expands the vertices of the frontier in parallel and reaches their adjacent vertices in the order of
+	 * the frontier.
+	 * 
+	 * @param index
+	 *            The index of the vertices met
+	 * @param reached
+	 *            The vertices already reached by the hop of the adjacent vertices
+	 * @param frontier
+	 *            The frontier
+	 * @param step
+	 *            The step to follow
+	 * @param visitor
+	 *            The visitor of the vertices
+	 * @param hop
+	 *            The number of hops of the adjacent vertices
+	 * @param next
+	 *            The next frontier
+	 */
+	private void expandInParallel(VertexIndex index, BitSet reached, IntList frontier, Step step,
+			ITraversalVisitor visitor, int hop, IntList next) {
+		IVertex[] sources = new IVertex[frontier.size()];
+		for (int i = 0; i < sources.length; i++) {
+			sources[i] = index.get(frontier.get(i));
+		}
+		IVertex[][] adjacents = new IVertex[sources.length][];
+		this.pool.invoke(new ExpandTask(index, reached, step, sources, adjacents, 0, sources.length));
+		for (IVertex[] vertices : adjacents) {
+			for (IVertex adjacent : vertices) {
+				Traversal.reach(index, reached, adjacent, visitor, hop, next);
+			}
+		}
+	}
+
+	/**
+	 * Reaches the given vertex: it is visited and added to the next frontier if it has not been reached yet
+	 * by its hop.
+	 * 
+	 * @param index
+	 *            The index of the vertices met
+	 * @param reached
+	 *            The vertices already reached by the hop of the vertex
+	 * @param vertex
+	 *            The vertex
+	 * @param visitor
+	 *            The visitor of the vertices
+	 * @param hop
+	 *            The number of hops of the vertex
+	 * @param next
+	 *            The next frontier
+	 */
+	private static void reach(VertexIndex index, BitSet reached, IVertex vertex, ITraversalVisitor visitor,
+			int hop, IntList next) {
+		int position = index.add(vertex);
+		if (!reached.get(position)) {
+			reached.set(position);
+			if (visitor.visit(vertex, hop)) {
+				next.add(position);
+			}
+		}
+	}
+
+	/**
+	 * Walks the graph in depth first order: the traversal goes as far as possible along each branch before
+	 * backtracking. The adjacent vertices of a vertex are traversed in the order in which the graph returns
+	 * them. A vertex is visited at most once per hop, and at most once by all the hops beyond the number of
+	 * steps, with the number of hops of the first branch reaching it.
+	 * 
+	 * @param visitor
+	 *            The visitor of the vertices
+	 * @param starts
+	 *            The start vertices
+	 */
+	public void depthFirst(ITraversalVisitor visitor, IVertex... starts) {
+		VertexIndex index = new VertexIndex();
+		BitSet[] levels = this.createLevels();
+		IntList stack = new IntList();
+		IntList depths = new IntList();
+		IntList children = new IntList();
+		for (int i = starts.length - 1; i >= 0; i--) {
+			stack.add(index.add(starts[i]));
+			depths.add(0);
+		}
+		int maxDepth = this.maxDepth();
+		while (!stack.isEmpty()) {
+			int position = stack.removeLast();
+			int hop = depths.removeLast();
+			BitSet visited = levels[this.level(hop)];
+			if (!visited.get(position)) {
+				visited.set(position);
+				IVertex vertex = index.get(position);
+				if (visitor.visit(vertex, hop) && hop < maxDepth) {
+					BitSet visitedChildren = levels[this.level(hop + 1)];
+					try (ICloseableIterable<IVertex> adjacents = this.step(hop).adjacents(vertex)) {
+						for (IVertex adjacent : adjacents) {
+							int child = index.add(adjacent);
+							if (!visitedChildren.get(child)) {
+								children.add(child);
+							}
+						}
+					}
+					while (!children.isEmpty()) {
+						stack.add(children.removeLast());
+						depths.add(hop + 1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the vertices reached within the maximum number of hops from the start vertices, the start
+	 * vertices excluded even if a later hop reaches them again, in breadth first order. A vertex reached by
+	 * several hops is only returned once.
+	 * 
+	 * @param starts
+	 *            The start vertices
+	 * @return The vertices reached from the start vertices
+	 */
+	public List<IVertex> neighbourhood(IVertex... starts) {
+		final List<IVertex> vertices = new ArrayList<IVertex>();
+		final VertexIndex returned = new VertexIndex();
+		for (IVertex start : starts) {
+			returned.add(start);
+		}
+		this.breadthFirst(new ITraversalVisitor() {
+			@Override
+			public boolean visit(IVertex vertex, int hop) {
+				int size = returned.size();
+				if (returned.add(vertex) == size) {
+					vertices.add(vertex);
+				}
+				return true;
+			}
+		}, starts);
+		return vertices;
+	}
+
+	/**
+	 * Returns the vertices reached after exactly the maximum number of hops from the start vertices, in
+	 * breadth first order. Without step, these are the vertices whose shortest distance to the start
+	 * vertices is the maximum number of hops.
+	 * 
+	 * @param starts
+	 *            The start vertices
+	 * @return The vertices at the maximum number of hops of the start vertices
+	 */
+	public List<IVertex> frontier(IVertex... starts) {
+		final List<IVertex> vertices = new ArrayList<IVertex>();
+		final int maxDepth = this.maxDepth();
+		this.breadthFirst(new ITraversalVisitor() {
+			@Override
+			public boolean visit(IVertex vertex, int hop) {
+				if (hop == maxDepth) {
+					vertices.add(vertex);
+				}
+				return true;
+			}
+		}, starts);
+		return vertices;
+	}
+
+	/**
+	 * A hop of the traversal.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Step {
+		/**
+		 * The direction of the edges to follow.
+		 */
+		private final Direction direction;
+
+		/**
+		 * The labels of the edges to follow.
+		 */
+		private final String[] labels;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param direction
+		 *            The direction of the edges to follow
+		 * @param labels
+		 *            The labels of the edges to follow
+		 */
+		Step(Direction direction, String[] labels) {
+			this.direction = direction;
+			this.labels = labels;
+		}
+
+		/**
+		 * Returns the vertices reached from the given vertex by this step.
+		 * 
+		 * @param vertex
+		 *            The vertex
+		 * @return The vertices reached from the vertex
+		 */
+		ICloseableIterable<IVertex> adjacents(IVertex vertex) {
+			return vertex.getVertices(this.direction, this.labels);
+		}
+	}
+
+	/**
+	 * A fork/join task collecting the adjacent vertices of a range of the frontier which have not been
+	 * reached yet by their hop. The index of the vertices met and the set of the vertices reached are only
+	 * read while the tasks run.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class ExpandTask extends RecursiveAction {
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The number of vertices under which a task is not split anymore.
+		 */
+		private static final int TASK_THRESHOLD = 32;
+
+		/**
+		 * The index of the vertices met.
+		 */
+		private final transient VertexIndex index;
+
+		/**
+		 * The vertices already reached by the hop of the adjacent vertices.
+		 */
+		private final transient BitSet reached;
+
+		/**
+		 * The step to follow.
+		 */
+		private final transient Step step;
+
+		/**
+		 * The vertices of the frontier.
+		 */
+		private final transient IVertex[] sources;
+
+		/**
+		 * The adjacent vertices of each vertex of the frontier.
+		 */
+		private final transient IVertex[][] adjacents;
+
+		/**
+		 * The start of the range, inclusive.
+		 */
+		private final int start;
+
+		/**
+		 * The end of the range, exclusive.
+		 */
+		private final int end;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param index
+		 *            The index of the vertices met
+		 * @param reached
+		 *            The vertices already reached by the hop of the adjacent vertices
+		 * @param step
+		 *            The step to follow
+		 * @param sources
+		 *            The vertices of the frontier
+		 * @param adjacents
+		 *            The adjacent vertices of each vertex of the frontier
+		 * @param start
+		 *            The start of the range, inclusive
+		 * @param end
+		 *            The end of the range, exclusive
+		 */
+		ExpandTask(VertexIndex index, BitSet reached, Step step, IVertex[] sources, IVertex[][] adjacents,
+				int start, int end) {
+			this.index = index;
+			this.reached = reached;
+			this.step = step;
+			this.sources = sources;
+			this.adjacents = adjacents;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (this.end - this.start <= TASK_THRESHOLD) {
+				List<IVertex> vertices = new ArrayList<IVertex>();
+				for (int i = this.start; i < this.end; i++) {
+					try (ICloseableIterable<IVertex> iterable = this.step.adjacents(this.sources[i])) {
+						for (IVertex adjacent : iterable) {
+							int position = this.index.indexOf(adjacent);
+							if (position == VertexIndex.MISSING || !this.reached.get(position)) {
+								vertices.add(adjacent);
+							}
+						}
+					}
+					this.adjacents[i] = vertices.toArray(new IVertex[vertices.size()]);
+					vertices.clear();
+				}
+			} else {
+				int middle = (this.start + this.end) >>> 1;
+				ExpandTask first = new ExpandTask(this.index, this.reached, this.step, this.sources,
+						this.adjacents, this.start, middle);
+				ExpandTask second = new ExpandTask(this.index, this.reached, this.step, this.sources,
+						this.adjacents, middle, this.end);
+				RecursiveAction.invokeAll(first, second);
+			}
+		}
+	}
+}
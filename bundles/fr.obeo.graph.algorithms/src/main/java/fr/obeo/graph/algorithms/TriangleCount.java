@@ -0,0 +1,137 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.Direction;
+
+/**
+ * Counts the triangles of the graph, ignoring the direction of the edges, the loops and the parallel edges.
+ * The value of each vertex is the number of triangles it belongs to. Each triangle is found once, by its
+ * vertex with the smallest number which intersects the sorted neighbours of its neighbours, then the two
+ * other vertices of the triangle are notified by a message.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class TriangleCount implements IVertexProgram {
+	/**
+	 * The number of vertices in a triangle.
+	 */
+	private static final int TRIANGLE_SIZE = 3;
+
+	/**
+	 * Returns the total number of triangles of the graph from the result of a run of this program.
+	 * 
+	 * @param result
+	 *            The result of a run of this program
+	 * @return The number of triangles of the graph
+	 */
+	public static long getTotal(ComputeResult result) {
+		long total = 0;
+		for (int i = 0; i < result.size(); i++) {
+			total += (long)result.getValue(i);
+		}
+		return total / TRIANGLE_SIZE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#getDirection()
+	 */
+	@Override
+	public Direction getDirection() {
+		return Direction.BOTH;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#getCombiner()
+	 */
+	@Override
+	public Combiner getCombiner() {
+		return Combiner.SUM;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.algorithms.IVertexProgram#compute(fr.obeo.graph.algorithms.IVertexContext)
+	 */
+	@Override
+	public void compute(IVertexContext context) {
+		if (context.getSuperstep() == 0) {
+			int vertex = context.getVertexNumber();
+			int degree = context.getDegree();
+			long count = 0;
+			int previous = vertex;
+			for (int i = 0; i < degree; i++) {
+				int first = context.getNeighbour(i);
+				if (first > previous) {
+					count += this.close(context, i, first);
+					previous = first;
+				}
+			}
+			context.setValue(count);
+		} else {
+			context.setValue(context.getValue() + context.getMessage());
+		}
+		context.voteToHalt();
+	}
+
+	/**
+	 * Finds the triangles made of the vertex of the given context, of the given neighbour and of a greater
+	 * neighbour, notifying the two neighbours of each triangle.
+	 * 
+	 * @param context
+	 *            The context of the vertex
+	 * @param position
+	 *            The position of the first neighbour
+	 * @param first
+	 *            The number of the first neighbour
+	 * @return The number of triangles found
+	 */
+	private long close(IVertexContext context, int position, int first) {
+		long count = 0;
+		int previous = first;
+		for (int i = position + 1; i < context.getDegree(); i++) {
+			int second = context.getNeighbour(i);
+			if (second > previous) {
+				if (context.isNeighbour(first, second)) {
+					count++;
+					context.sendMessage(first, 1);
+					context.sendMessage(second, 1);
+				}
+				previous = second;
+			}
+		}
+		return count;
+	}
+}
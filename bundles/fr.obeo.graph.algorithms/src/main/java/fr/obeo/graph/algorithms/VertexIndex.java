@@ -0,0 +1,198 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.algorithms;
+
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.Arrays;
+
+/**
+ * Numbers the vertices met by an algorithm with dense indexes, in the order in which they are added. The
+ * algorithms keep their state in primitive arrays addressed by these indexes instead of maps keyed by
+ * vertex. The vertices are identified by their identifier, in an open addressing hash table.
+ * <p>
+ * The index is not thread safe, but it can be read by several threads as long as it is not modified.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class VertexIndex {
+	/**
+	 * The value returned when a vertex is not indexed.
+	 */
+	static final int MISSING = -1;
+
+	/**
+	 * The initial capacity of the table, it must be a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The constant used to spread the hash codes of the identifiers.
+	 */
+	private static final int HASH_SPREAD = 0x9E3779B9;
+
+	/**
+	 * The shift used to fold the high bits of the hash codes on the low ones.
+	 */
+	private static final int HASH_SHIFT = 16;
+
+	/**
+	 * The identifiers of the vertices in the table, <code>null</code> denotes a free bucket.
+	 */
+	private Object[] keys = new Object[INITIAL_CAPACITY];
+
+	/**
+	 * The index of the vertex in each bucket of the table.
+	 */
+	private int[] values = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The mask used to compute the bucket of an identifier.
+	 */
+	private int mask = INITIAL_CAPACITY - 1;
+
+	/**
+	 * The vertices by index.
+	 */
+	private IVertex[] vertices = new IVertex[INITIAL_CAPACITY];
+
+	/**
+	 * The number of vertices in the index.
+	 */
+	private int size;
+
+	/**
+	 * Returns the index of the given vertex or {@link #MISSING}.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The index of the vertex or {@link #MISSING}
+	 */
+	int indexOf(IVertex vertex) {
+		int bucket = this.bucket(((IElement)vertex).getId());
+		int index = MISSING;
+		if (this.keys[bucket] != null) {
+			index = this.values[bucket];
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index of the given vertex, adding it with the next index if it is not indexed yet. The
+	 * vertex has been added if the index returned is the previous size of the index.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The index of the vertex
+	 */
+	int add(IVertex vertex) {
+		Object id = ((IElement)vertex).getId();
+		int bucket = this.bucket(id);
+		int index;
+		if (this.keys[bucket] != null) {
+			index = this.values[bucket];
+		} else {
+			index = this.size;
+			this.keys[bucket] = id;
+			this.values[bucket] = index;
+			if (index == this.vertices.length) {
+				this.vertices = Arrays.copyOf(this.vertices, index * 2);
+			}
+			this.vertices[index] = vertex;
+			this.size++;
+			if (this.size * 2 > this.keys.length) {
+				this.rehash(this.keys.length * 2);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the vertex of the given index.
+	 * 
+	 * @param index
+	 *            The index
+	 * @return The vertex of the index
+	 */
+	IVertex get(int index) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		return this.vertices[index];
+	}
+
+	/**
+	 * Returns the number of vertices in the index.
+	 * 
+	 * @return The number of vertices in the index
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the bucket holding the given identifier or the free bucket where it should be inserted.
+	 * 
+	 * @param id
+	 *            The identifier
+	 * @return The bucket of the identifier
+	 */
+	private int bucket(Object id) {
+		int hash = id.hashCode() * HASH_SPREAD;
+		int bucket = (hash ^ (hash >>> HASH_SHIFT)) & this.mask;
+		while (this.keys[bucket] != null && !this.keys[bucket].equals(id)) {
+			bucket = (bucket + 1) & this.mask;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Moves all the identifiers in a new table of the given capacity.
+	 * 
+	 * @param capacity
+	 *            The new capacity, a power of two
+	 */
+	private void rehash(int capacity) {
+		Object[] oldKeys = this.keys;
+		int[] oldValues = this.values;
+		this.keys = new Object[capacity];
+		this.values = new int[capacity];
+		this.mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int bucket = this.bucket(oldKeys[i]);
+				this.keys[bucket] = oldKeys[i];
+				this.values[bucket] = oldValues[i];
+			}
+		}
+	}
+}
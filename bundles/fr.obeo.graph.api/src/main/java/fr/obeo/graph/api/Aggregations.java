@@ -0,0 +1,166 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * The aggregations of the queries computed by iterating their results, used by the graphs which can not
+ * answer them from their indexes or statistics. The results are closed once they have been read.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class Aggregations {
+	/**
+	 * The constructor.
+	 */
+	private Aggregations() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Returns the vertices or the edges returned by the given query.
+	 * 
+	 * @param query
+	 *            The query
+	 * @param elementClass
+	 *            The class of the elements, {@link IVertex} or {@link IEdge}
+	 * @return The vertices or the edges returned by the query
+	 */
+	public static ICloseableIterable<?> elements(IQuery query, Class<?> elementClass) {
+		ICloseableIterable<?> elements;
+		if (IVertex.class.equals(elementClass)) {
+			elements = query.vertices();
+		} else if (IEdge.class.equals(elementClass)) {
+			elements = query.edges();
+		} else {
+			throw new IllegalArgumentException("The element class must be IVertex or IEdge: " + elementClass);
+		}
+		return elements;
+	}
+
+	/**
+	 * Returns the number of the given elements.
+	 * 
+	 * @param elements
+	 *            The elements
+	 * @return The number of elements
+	 */
+	public static long count(ICloseableIterable<?> elements) {
+		long count = 0;
+		try (ICloseableIterable<?> iterable = elements) {
+			Iterator<?> iterator = iterable.iterator();
+			while (iterator.hasNext()) {
+				iterator.next();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Aggregates the numeric values of the given property of the given elements.
+	 * 
+	 * @param elements
+	 *            The vertices or the edges
+	 * @param key
+	 *            The key of the property
+	 * @return The aggregate of the values of the property
+	 */
+	public static NumericAggregate aggregate(ICloseableIterable<?> elements, String key) {
+		NumericAggregate aggregate = new NumericAggregate();
+		try (ICloseableIterable<?> iterable = elements) {
+			for (Object element : iterable) {
+				aggregate.add(((IElement)element).getProperty(key));
+			}
+		}
+		return aggregate;
+	}
+
+	/**
+	 * Returns the number of the given elements by value of the given property, the elements which do not
+	 * have the property are not counted.
+	 * 
+	 * @param elements
+	 *            The vertices or the edges
+	 * @param key
+	 *            The key of the property
+	 * @return The number of elements by value of the property
+	 */
+	public static Map<Object, Long> countBy(ICloseableIterable<?> elements, String key) {
+		Map<Object, Long> counts = new HashMap<Object, Long>();
+		try (ICloseableIterable<?> iterable = elements) {
+			for (Object element : iterable) {
+				increment(counts, ((IElement)element).getProperty(key));
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the number of the given edges by label.
+	 * 
+	 * @param edges
+	 *            The edges
+	 * @return The number of edges by label
+	 */
+	public static Map<String, Long> countByLabel(ICloseableIterable<IEdge> edges) {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		try (ICloseableIterable<IEdge> iterable = edges) {
+			for (IEdge edge : iterable) {
+				increment(counts, edge.getLabel());
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Increments the count of the given value, unless it is <code>null</code>.
+	 * 
+	 * @param <T>
+	 *            The kind of value
+	 * @param counts
+	 *            The counts by value
+	 * @param value
+	 *            The value or <code>null</code>
+	 */
+	public static <T> void increment(Map<T, Long> counts, T value) {
+		if (value != null) {
+			Long count = counts.get(value);
+			if (count == null) {
+				counts.put(value, Long.valueOf(1));
+			} else {
+				counts.put(value, Long.valueOf(count.longValue() + 1));
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * Compare is a standard set of comparison predicates. Unlike other implementations of {@link IPredicate},
+ * these predicates are recognized by the graphs which can use them to answer a query from an index instead of
+ * evaluating them on each element.
+ * <p>
+ * The ordered comparisons are <code>false</code> if one of the arguments is <code>null</code> or if the
+ * arguments are not of the same class, otherwise the first argument must be {@link Comparable}. The values of
+ * different classes are never ordered, even numbers: an {@link Integer} is neither less than nor greater
+ * than a {@link Long}, in the same way as it is never equal to a {@link Long}. This is also the semantics of
+ * the graphs answering these comparisons from a sorted index or with a compiled filter, so that a query
+ * returns the same elements whether it is answered from an index or by a scan.
+ * </p>
+ * 
+ * @author Marko A. Rodriguez (http://markorodriguez.com)
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public enum Compare implements IPredicate {
+
+	/**
+	 * The first argument is equal to the second one.
+	 */
+	EQUAL,
+
+	/**
+	 * The first argument is not equal to the second one.
+	 */
+	NOT_EQUAL,
+
+	/**
+	 * The first argument is strictly greater than the second one.
+	 */
+	GREATER_THAN,
+
+	/**
+	 * The first argument is greater than or equal to the second one.
+	 */
+	GREATER_THAN_EQUAL,
+
+	/**
+	 * The first argument is strictly less than the second one.
+	 */
+	LESS_THAN,
+
+	/**
+	 * The first argument is less than or equal to the second one.
+	 */
+	LESS_THAN_EQUAL;
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IPredicate#evaluate(java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public boolean evaluate(final Object first, final Object second) {
+		boolean result;
+		switch (this) {
+			case EQUAL:
+				result = Compare.areEqual(first, second);
+				break;
+			case NOT_EQUAL:
+				result = !Compare.areEqual(first, second);
+				break;
+			case GREATER_THAN:
+				result = Compare.areOrdered(first, second) && Compare.compare(first, second) > 0;
+				break;
+			case GREATER_THAN_EQUAL:
+				result = Compare.areOrdered(first, second) && Compare.compare(first, second) >= 0;
+				break;
+			case LESS_THAN:
+				result = Compare.areOrdered(first, second) && Compare.compare(first, second) < 0;
+				break;
+			case LESS_THAN_EQUAL:
+				result = Compare.areOrdered(first, second) && Compare.compare(first, second) <= 0;
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(this));
+		}
+		return result;
+	}
+
+	/**
+	 * Indicates if the given values are equal.
+	 * 
+	 * @param first
+	 *            The first value
+	 * @param second
+	 *            The second value
+	 * @return <code>true</code> if both values are <code>null</code> or equal
+	 */
+	private static boolean areEqual(Object first, Object second) {
+		boolean equal;
+		if (first == null) {
+			equal = second == null;
+		} else {
+			equal = first.equals(second);
+		}
+		return equal;
+	}
+
+	/**
+	 * Indicates if the given values can be ordered.
+	 * 
+	 * @param first
+	 *            The first value
+	 * @param second
+	 *            The second value
+	 * @return <code>true</code> if both values are not <code>null</code> and of the same class
+	 */
+	private static boolean areOrdered(Object first, Object second) {
+		return first != null && second != null && first.getClass() == second.getClass();
+	}
+
+	/**
+	 * Compares the given values.
+	 * 
+	 * @param first
+	 *            The first value, it must be {@link Comparable} and of the same class as the second one
+	 * @param second
+	 *            The second value
+	 * @return A negative integer, zero or a positive integer if the first value is less than, equal to or
+	 *         greater than the second one
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes" })
+	private static int compare(Object first, Object second) {
+		return ((Comparable)first).compareTo(second);
+	}
+}
@@ -0,0 +1,171 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * The operations of a graph whose latency and scans are reported to an {@link IGraphMonitor}. The
+ * iterations are measured from the opening of their iterator until it is exhausted or closed.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public enum GraphOperation {
+
+	/**
+	 * The addition of a vertex to a graph.
+	 */
+	ADD_VERTEX("IGraph.addVertex"),
+
+	/**
+	 * The lookup of a vertex by identifier.
+	 */
+	GET_VERTEX("IGraph.getVertex"),
+
+	/**
+	 * The removal of a vertex.
+	 */
+	REMOVE_VERTEX("IGraph.removeVertex"),
+
+	/**
+	 * The iteration over the vertices of a graph, optionally filtered by a property.
+	 */
+	GET_VERTICES("IGraph.getVertices"),
+
+	/**
+	 * The addition of an edge to a graph.
+	 */
+	ADD_EDGE("IGraph.addEdge"),
+
+	/**
+	 * The lookup of an edge by identifier.
+	 */
+	GET_EDGE("IGraph.getEdge"),
+
+	/**
+	 * The removal of an edge.
+	 */
+	REMOVE_EDGE("IGraph.removeEdge"),
+
+	/**
+	 * The iteration over the edges of a graph, optionally filtered by a property.
+	 */
+	GET_EDGES("IGraph.getEdges"),
+
+	/**
+	 * The iteration over the vertices returned by a graph query.
+	 */
+	GRAPH_QUERY_VERTICES("IGraphQuery.vertices"),
+
+	/**
+	 * The iteration over the edges returned by a graph query.
+	 */
+	GRAPH_QUERY_EDGES("IGraphQuery.edges"),
+
+	/**
+	 * The aggregation of the elements returned by a graph query: their count, the minimum, maximum or sum of
+	 * a property, or their number by value or by label.
+	 */
+	GRAPH_QUERY_AGGREGATE("IGraphQuery.aggregate"),
+
+	/**
+	 * The iteration over the incident edges of a vertex.
+	 */
+	GET_ADJACENT_EDGES("IVertex.getEdges"),
+
+	/**
+	 * The iteration over the adjacent vertices of a vertex.
+	 */
+	GET_ADJACENT_VERTICES("IVertex.getVertices"),
+
+	/**
+	 * The iteration over the vertices returned by a vertex query.
+	 */
+	VERTEX_QUERY_VERTICES("IVertexQuery.vertices"),
+
+	/**
+	 * The iteration over the edges returned by a vertex query.
+	 */
+	VERTEX_QUERY_EDGES("IVertexQuery.edges"),
+
+	/**
+	 * The count of the edges returned by a vertex query.
+	 */
+	VERTEX_QUERY_COUNT("IVertexQuery.count"),
+
+	/**
+	 * The aggregation of the edges returned by a vertex query: the minimum, maximum or sum of a property, or
+	 * their number by value or by label.
+	 */
+	VERTEX_QUERY_AGGREGATE("IVertexQuery.aggregate"),
+
+	/**
+	 * The identifiers of the vertices returned by a vertex query.
+	 */
+	VERTEX_QUERY_IDS("IVertexQuery.vertexIds"),
+
+	/**
+	 * The read of a property of an element.
+	 */
+	GET_PROPERTY("IElement.getProperty"),
+
+	/**
+	 * The write of a property of an element.
+	 */
+	SET_PROPERTY("IElement.setProperty"),
+
+	/**
+	 * The removal of a property of an element.
+	 */
+	REMOVE_PROPERTY("IElement.removeProperty");
+
+	/**
+	 * The name of the operation, the interface and the method performing it.
+	 */
+	private final String name;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param name
+	 *            The name of the operation, the interface and the method performing it
+	 */
+	GraphOperation(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of the operation, the interface and the method performing it, for example
+	 * "IVertexQuery.count".
+	 * 
+	 * @return The name of the operation
+	 */
+	public String getName() {
+		return this.name;
+	}
+}
@@ -0,0 +1,113 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A bulk loader adds a large number of vertices, edges and properties to a graph at once. The elements are
+ * identified by their external identifiers only, no vertex or edge object is created, and the graph defers
+ * the maintenance of its indexes and of its internal structures until the load is committed.
+ * <p>
+ * Until the load is committed, the elements loaded are visible in the graph but its indexes may not be used
+ * to answer the queries. A graph supports a single bulk load at a time, the loader must thus always be
+ * closed, for example with a try-with-resources statement:
+ * </p>
+ * 
+ * <pre>
+ * try (IBulkLoader loader = graph.createBulkLoader()) {
+ * 	loader.addVertex(&quot;a&quot;);
+ * 	loader.addVertex(&quot;b&quot;);
+ * 	loader.setVertexProperty(&quot;b&quot;, &quot;name&quot;, &quot;B&quot;);
+ * 	loader.addEdge(null, &quot;a&quot;, &quot;b&quot;, &quot;knows&quot;);
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IBulkLoader extends AutoCloseable {
+	/**
+	 * Add a new vertex to the graph.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex or <code>null</code> to let the graph generate one
+	 * @return The identifier of the vertex
+	 */
+	Object addVertex(Object id);
+
+	/**
+	 * Add a new edge between two vertices of the graph.
+	 * 
+	 * @param id
+	 *            The identifier of the edge or <code>null</code> to let the graph generate one
+	 * @param outVertexId
+	 *            The identifier of the vertex on the tail of the edge
+	 * @param inVertexId
+	 *            The identifier of the vertex on the head of the edge
+	 * @param label
+	 *            The label of the edge
+	 * @return The identifier of the edge
+	 */
+	Object addEdge(Object id, Object outVertexId, Object inVertexId, String label);
+
+	/**
+	 * Set a property of a vertex of the graph.
+	 * 
+	 * @param vertexId
+	 *            The identifier of the vertex
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setVertexProperty(Object vertexId, String key, Object value);
+
+	/**
+	 * Set a property of an edge of the graph.
+	 * 
+	 * @param edgeId
+	 *            The identifier of the edge
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setEdgeProperty(Object edgeId, String key, Object value);
+
+	/**
+	 * Commit the load: the indexes and the internal structures of the graph are brought up to date with the
+	 * elements loaded. The loader can not be used anymore afterwards.
+	 */
+	void commit();
+
+	/**
+	 * Commit the load if it has not been committed yet.
+	 */
+	@Override
+	void close();
+}
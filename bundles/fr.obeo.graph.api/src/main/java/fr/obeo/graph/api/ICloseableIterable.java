@@ -0,0 +1,69 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * The results of a graph, of a vertex or of a query. The results are never materialized: each
+ * {@link #iterator()} evaluates them lazily, one element after the other, and the work needed to find an
+ * element is only done when the element is requested. The limit of a query thus stops the iteration of the
+ * underlying elements as soon as it has been reached.
+ * <p>
+ * The iterators can be closed individually or all at once by closing the iterable, for example with a
+ * try-with-resources statement around a loop which may stop before the end of the results:
+ * </p>
+ * 
+ * <pre>
+ * try (ICloseableIterable&lt;IVertex&gt; vertices = graph.getVertices()) {
+ * 	for (IVertex vertex : vertices) {
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ * 
+ * @param <T>
+ *            The kind of element returned
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ICloseableIterable<T> extends Iterable<T>, AutoCloseable {
+	/**
+	 * Return a new lazy iterator over the results.
+	 * 
+	 * @return A new lazy iterator over the results
+	 */
+	@Override
+	ICloseableIterator<T> iterator();
+
+	/**
+	 * Close all the iterators returned by {@link #iterator()} which are not closed yet. The iterable can
+	 * still be iterated again afterwards.
+	 */
+	@Override
+	void close();
+}
@@ -82,7 +82,7 @@ public interface IGraph {
 	 * 
 	 * @return An iterable reference to all vertices in the graph
 	 */
-	Iterable<IVertex> getVertices();
+	ICloseableIterable<IVertex> getVertices();
 
 	/**
 	 * Return an iterable to all the vertices in the graph that have a particular key/value property. If this
@@ -96,7 +96,7 @@ public interface IGraph {
 	 *            The value of the vertex
 	 * @return An iterable of vertices with provided key and value
 	 */
-	Iterable<IVertex> getVertices(String key, Object value);
+	ICloseableIterable<IVertex> getVertices(String key, Object value);
 
 	/**
 	 * Add an edge to the graph. The added edges requires a recommended identifier, a tail vertex, an head
@@ -139,7 +139,7 @@ public interface IGraph {
 	 * 
 	 * @return An iterable reference to all edges in the graph
 	 */
-	Iterable<IEdge> getEdges();
+	ICloseableIterable<IEdge> getEdges();
 
 	/**
 	 * Return an iterable to all the edges in the graph that have a particular key/value property. If this is
@@ -153,7 +153,7 @@ public interface IGraph {
 	 *            The value of the edge
 	 * @return An iterable of edges with provided key and value
 	 */
-	Iterable<IEdge> getEdges(String key, Object value);
+	ICloseableIterable<IEdge> getEdges(String key, Object value);
 
 	/**
 	 * Generate a query object that can be used to fine tune which edges/vertices are retrieved from the
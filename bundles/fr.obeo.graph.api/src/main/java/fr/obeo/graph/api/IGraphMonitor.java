@@ -0,0 +1,78 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A monitor receives the measures of the operations of a graph: the latency of the operations, the number of
+ * elements scanned and returned by the queries and the hits and misses of the caches and indexes. The graphs
+ * report to the monitor given to {@link IMonitorableGraph#setMonitor(IGraphMonitor)}, and the decorators
+ * measuring the graphs they wrap report to theirs.
+ * <p>
+ * The methods of a monitor are called by the threads performing the operations, they must be thread safe and
+ * they should return quickly.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IGraphMonitor {
+	/**
+	 * Records the latency of an operation.
+	 * 
+	 * @param operation
+	 *            The operation
+	 * @param nanos
+	 *            The duration of the operation in nanoseconds
+	 */
+	void recordLatency(GraphOperation operation, long nanos);
+
+	/**
+	 * Records the number of elements read by an execution of a query and the number of elements it returned.
+	 * The scanned elements include the candidates rejected by the filters of the query.
+	 * 
+	 * @param operation
+	 *            The operation executing the query
+	 * @param scanned
+	 *            The number of elements read
+	 * @param returned
+	 *            The number of elements returned
+	 */
+	void recordScan(GraphOperation operation, long scanned, long returned);
+
+	/**
+	 * Records a lookup in a cache or an index, for example "CachedGraph.vertices" or "MemoryGraph.keyIndex".
+	 * An index lookup hits when the index answers a filter of a query instead of a scan.
+	 * 
+	 * @param name
+	 *            The name of the cache or of the index
+	 * @param hit
+	 *            <code>true</code> if the lookup found the value, <code>false</code> otherwise
+	 */
+	void recordLookup(String name, boolean hit);
+}
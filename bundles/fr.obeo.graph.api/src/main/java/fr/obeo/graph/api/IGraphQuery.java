@@ -30,8 +30,14 @@
  ********************************************************************************/
 package fr.obeo.graph.api;
 
+import java.util.Map;
+
 /**
  * Graph specific operations used to filter the graph.
+ * <p>
+ * The counts and the other aggregations of a query return their result without returning the elements,
+ * the graphs may thus answer them from their indexes and statistics instead of reading the elements.
+ * </p>
  * 
  * @author Matthias Broecheler (me@matthiasb.com)
  * @author Marko A. Rodriguez (http://markorodriguez.com)
@@ -95,4 +101,69 @@ public interface IGraphQuery extends IQuery {
 	 */
 	@Override
 	IGraphQuery limit(int limit);
+
+	/**
+	 * Execute the query and return the number of vertices or edges accepted by its filters, without
+	 * returning them.
+	 * 
+	 * @param elementClass
+	 *            the class of the elements to count, {@link IVertex} or {@link IEdge}
+	 * @return the number of elements accepted
+	 */
+	long count(Class<?> elementClass);
+
+	/**
+	 * Execute the query and return the minimum of the numeric values of the provided property of the vertices
+	 * or edges accepted by its filters (see {@link NumericAggregate}).
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param elementClass
+	 *            the class of the elements, {@link IVertex} or {@link IEdge}
+	 * @return the minimum of the values or <code>null</code> if no element has a numeric value
+	 */
+	Number min(String key, Class<?> elementClass);
+
+	/**
+	 * Execute the query and return the maximum of the numeric values of the provided property of the vertices
+	 * or edges accepted by its filters (see {@link NumericAggregate}).
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param elementClass
+	 *            the class of the elements, {@link IVertex} or {@link IEdge}
+	 * @return the maximum of the values or <code>null</code> if no element has a numeric value
+	 */
+	Number max(String key, Class<?> elementClass);
+
+	/**
+	 * Execute the query and return the sum of the numeric values of the provided property of the vertices or
+	 * edges accepted by its filters (see {@link NumericAggregate}).
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param elementClass
+	 *            the class of the elements, {@link IVertex} or {@link IEdge}
+	 * @return the sum of the values, 0 if no element has a numeric value
+	 */
+	Number sum(String key, Class<?> elementClass);
+
+	/**
+	 * Execute the query and return the number of vertices or edges accepted by its filters by value of the
+	 * provided property. The elements which do not have the property are not counted.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @param elementClass
+	 *            the class of the elements, {@link IVertex} or {@link IEdge}
+	 * @return the number of elements by value of the property
+	 */
+	Map<Object, Long> countBy(String key, Class<?> elementClass);
+
+	/**
+	 * Execute the query and return the number of edges accepted by its filters by label.
+	 * 
+	 * @return the number of edges by label
+	 */
+	Map<String, Long> countByLabel();
 }
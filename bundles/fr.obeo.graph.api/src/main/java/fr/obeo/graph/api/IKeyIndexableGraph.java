@@ -0,0 +1,99 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, TinkerPop [http://tinkerpop.com] and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Tinkerpop and others - initial API and implementation
+ *     Obeo - migration for OSGi, code cleaning
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+import java.util.Set;
+
+/**
+ * A KeyIndexableGraph is a graph that supports the indexing of the properties of its elements by key. Once a
+ * key is indexed, {@link IGraph#getVertices(String, Object)} and {@link IGraph#getEdges(String, Object)}
+ * answer from the index instead of scanning all the elements, and the index is kept up to date when the
+ * properties are modified with {@link IElement#setProperty(String, Object)} and
+ * {@link IElement#removeProperty(String)} or when the elements are removed.
+ * <p>
+ * Keys indexed with a {@link KeyIndexType#SORTED} index can also answer the range lookups of the queries,
+ * i.e. {@link IQuery#interval(String, Comparable, Comparable)} and the ordered {@link Compare} predicates.
+ * </p>
+ * <p>
+ * The element class given to the methods of this interface is either {@link IVertex}.class or
+ * {@link IEdge}.class, any other class is rejected with an {@link IllegalArgumentException}.
+ * </p>
+ * 
+ * @author Marko A. Rodriguez (http://markorodriguez.com)
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IKeyIndexableGraph extends IGraph {
+	/**
+	 * Index the property with the provided key for the provided element class with a
+	 * {@link KeyIndexType#HASH} index. The existing elements are indexed immediately. Creating an index
+	 * which already exists has no effect.
+	 * 
+	 * @param key
+	 *            The key of the property to index
+	 * @param elementClass
+	 *            The element class whose properties are indexed
+	 */
+	void createKeyIndex(String key, Class<?> elementClass);
+
+	/**
+	 * Index the property with the provided key for the provided element class with an index of the provided
+	 * type. The existing elements are indexed immediately. Creating an index which already exists with the
+	 * same type has no effect, an index which exists with another type is replaced.
+	 * 
+	 * @param key
+	 *            The key of the property to index
+	 * @param elementClass
+	 *            The element class whose properties are indexed
+	 * @param type
+	 *            The type of the index
+	 */
+	void createKeyIndex(String key, Class<?> elementClass, KeyIndexType type);
+
+	/**
+	 * Remove the index of the property with the provided key for the provided element class. Dropping an
+	 * index which does not exist has no effect.
+	 * 
+	 * @param key
+	 *            The key of the indexed property
+	 * @param elementClass
+	 *            The element class whose properties are indexed
+	 */
+	void dropKeyIndex(String key, Class<?> elementClass);
+
+	/**
+	 * Return all the keys indexed for the provided element class.
+	 * 
+	 * @param elementClass
+	 *            The element class whose properties are indexed
+	 * @return The keys indexed for the element class
+	 */
+	Set<String> getIndexedKeys(Class<?> elementClass);
+}
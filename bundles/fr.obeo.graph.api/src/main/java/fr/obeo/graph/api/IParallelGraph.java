@@ -0,0 +1,75 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+import java.util.List;
+
+/**
+ * A ParallelGraph is a graph whose elements can be read by several threads at once. Its elements can be
+ * split into disjoint partitions following its internal storage, each partition being iterated by its own
+ * thread, and its queries can process their results in parallel with a fork/join pool.
+ * <p>
+ * The graph must not be modified while it is read in parallel unless its implementation states that it
+ * supports concurrent modifications.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IParallelGraph extends IGraph {
+	/**
+	 * Split the vertices of the graph into at most the provided number of disjoint partitions of similar
+	 * size, following the internal storage of the graph. Each partition can be iterated by a different
+	 * thread and all the partitions together contain all the vertices of the graph.
+	 * 
+	 * @param count
+	 *            The maximum number of partitions, at least 1
+	 * @return The partitions of the vertices
+	 */
+	List<ICloseableIterable<IVertex>> getVertexPartitions(int count);
+
+	/**
+	 * Split the edges of the graph into at most the provided number of disjoint partitions of similar size,
+	 * following the internal storage of the graph. Each partition can be iterated by a different thread and
+	 * all the partitions together contain all the edges of the graph.
+	 * 
+	 * @param count
+	 *            The maximum number of partitions, at least 1
+	 * @return The partitions of the edges
+	 */
+	List<ICloseableIterable<IEdge>> getEdgePartitions(int count);
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#query()
+	 */
+	@Override
+	IParallelGraphQuery query();
+}
@@ -0,0 +1,127 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A graph query whose results can also be processed in parallel. The results are split along the internal
+ * storage of the graph and processed by the tasks of a fork/join pool, the limit of the query is honored
+ * across all the tasks.
+ * <p>
+ * The parallel operations only read the graph: the graph must not be modified while they run unless its
+ * implementation states that it supports concurrent modifications.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IParallelGraphQuery extends IGraphQuery {
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#has(java.lang.String)
+	 */
+	@Override
+	IParallelGraphQuery has(String key);
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	IParallelGraphQuery hasNot(String key);
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	IParallelGraphQuery has(String key, Object value);
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	IParallelGraphQuery hasNot(String key, Object value);
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate,
+	 *      java.lang.Object)
+	 */
+	@Override
+	IParallelGraphQuery has(String key, IPredicate predicate, Object value);
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#interval(java.lang.String, java.lang.Comparable,
+	 *      java.lang.Comparable)
+	 */
+	@Override
+	IParallelGraphQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue);
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#limit(int)
+	 */
+	@Override
+	IParallelGraphQuery limit(int limit);
+
+	/**
+	 * Execute the query and apply the provided procedure to each matching vertex, in parallel. The method
+	 * returns once the procedure has been applied to all the matching vertices. The order in which the
+	 * vertices are processed is not specified.
+	 * 
+	 * @param pool
+	 *            The fork/join pool running the tasks
+	 * @param procedure
+	 *            The thread safe procedure to apply to each matching vertex
+	 */
+	void forEachVertex(ForkJoinPool pool, IElementProcedure<? super IVertex> procedure);
+
+	/**
+	 * Execute the query and apply the provided procedure to each matching edge, in parallel. The method
+	 * returns once the procedure has been applied to all the matching edges. The order in which the edges
+	 * are processed is not specified.
+	 * 
+	 * @param pool
+	 *            The fork/join pool running the tasks
+	 * @param procedure
+	 *            The thread safe procedure to apply to each matching edge
+	 */
+	void forEachEdge(ForkJoinPool pool, IElementProcedure<? super IEdge> procedure);
+}
@@ -117,16 +117,29 @@ public interface IQuery {
 	IQuery limit(int limit);
 
 	/**
-	 * Execute the query and return the matching edges.
+	 * Execute the query and return the matching edges. The edges are evaluated lazily, the query does not do
+	 * any work for the edges which are not read and it stops as soon as its limit has been reached.
 	 * 
 	 * @return the unfiltered incident edges
 	 */
-	Iterable<IEdge> edges();
+	ICloseableIterable<IEdge> edges();
 
 	/**
-	 * Execute the query and return the vertices on the other end of the matching edges.
+	 * Execute the query and return the vertices on the other end of the matching edges. The vertices are
+	 * evaluated lazily, the query does not do any work for the vertices which are not read and it stops as
+	 * soon as its limit has been reached.
 	 * 
 	 * @return the unfiltered adjacent vertices
 	 */
-	Iterable<IVertex> vertices();
+	ICloseableIterable<IVertex> vertices();
+
+	/**
+	 * Describe the plans that {@link #edges()} and {@link #vertices()} would use to execute the query in the
+	 * current state of the graph: the access path to the candidate elements, the order in which the filters
+	 * are checked and the limit. The format of the description is implementation specific and only meant to
+	 * be read by humans.
+	 * 
+	 * @return the description of the plans of the query
+	 */
+	String explain();
 }
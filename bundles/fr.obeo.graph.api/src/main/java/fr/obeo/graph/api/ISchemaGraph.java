@@ -0,0 +1,90 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+import java.util.Set;
+
+/**
+ * A SchemaGraph is a graph whose property keys can be declared with a primitive {@link PropertyType}. The
+ * values of a declared key are stored unboxed, without any per element map, and can be read and written
+ * without boxing with the typed accessors of {@link ITypedElement}, which the elements of the graph
+ * implement. The other keys keep accepting any value.
+ * <p>
+ * Once a key is declared, {@link IElement#setProperty(String, Object)} only accepts the values of the class
+ * of its type, i.e. an {@link Integer} for {@link PropertyType#INT}, and rejects the others with an
+ * {@link IllegalArgumentException}. {@link IElement#getProperty(String)} keeps returning the values as
+ * objects.
+ * </p>
+ * <p>
+ * The element class given to the methods of this interface is either {@link IVertex}.class or
+ * {@link IEdge}.class, any other class is rejected with an {@link IllegalArgumentException}.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ISchemaGraph extends IGraph {
+	/**
+	 * Declare the property with the provided key for the provided element class with the provided type. The
+	 * existing values of the property are converted immediately, they must all be of the class of the type.
+	 * Declaring a key which is already declared with the same type has no effect.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param elementClass
+	 *            The element class whose properties are declared
+	 * @param type
+	 *            The type of the property
+	 * @throws IllegalArgumentException
+	 *             If the key is already declared with another type or if an existing value of the property
+	 *             is not of the class of the type
+	 */
+	void declareProperty(String key, Class<?> elementClass, PropertyType type);
+
+	/**
+	 * Return the type with which the property with the provided key is declared for the provided element
+	 * class.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param elementClass
+	 *            The element class whose properties are declared
+	 * @return The type of the property or <code>null</code> if the key is not declared
+	 */
+	PropertyType getPropertyType(String key, Class<?> elementClass);
+
+	/**
+	 * Return all the keys declared for the provided element class.
+	 * 
+	 * @param elementClass
+	 *            The element class whose properties are declared
+	 * @return The keys declared for the element class
+	 */
+	Set<String> getDeclaredKeys(Class<?> elementClass);
+}
@@ -0,0 +1,70 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A SymbolElement is an element of a {@link ISymbolGraph} whose properties can be accessed with the symbols
+ * of their keys. The symbols must have been resolved by the graph of the element, the other symbols are
+ * rejected with an {@link IllegalArgumentException}.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ISymbolElement extends IElement {
+	/**
+	 * Return the value of the property with the provided key.
+	 * 
+	 * @param key
+	 *            The symbol of the key of the property
+	 * @return The value of the property or <code>null</code>
+	 * @see IElement#getProperty(String)
+	 */
+	Object getProperty(ISymbol key);
+
+	/**
+	 * Assign a value to the property with the provided key.
+	 * 
+	 * @param key
+	 *            The symbol of the key of the property
+	 * @param value
+	 *            The value of the property
+	 * @see IElement#setProperty(String, Object)
+	 */
+	void setProperty(ISymbol key, Object value);
+
+	/**
+	 * Un-assign the property with the provided key.
+	 * 
+	 * @param key
+	 *            The symbol of the key of the property
+	 * @return The value of the property prior to removal
+	 * @see IElement#removeProperty(String)
+	 */
+	Object removeProperty(ISymbol key);
+}
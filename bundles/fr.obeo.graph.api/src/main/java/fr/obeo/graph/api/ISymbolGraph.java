@@ -0,0 +1,60 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A SymbolGraph is a graph with a table of symbols mapping the labels of its edges and the keys of its
+ * properties to small integers. Its vertices and edges implement {@link ISymbolVertex} and
+ * {@link ISymbolEdge}, whose methods accept the symbols resolved by {@link #getSymbol(String)} instead of
+ * strings. The labels and the keys share the same table, a symbol can thus be used as both.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ISymbolGraph extends IGraph {
+	/**
+	 * Return the symbol of the provided label or property key, adding it to the table of symbols if
+	 * necessary.
+	 * 
+	 * @param name
+	 *            The label or the property key
+	 * @return The symbol of the name
+	 */
+	ISymbol getSymbol(String name);
+
+	/**
+	 * Return the symbol of the provided label or property key if it is in the table of symbols. No edge has a
+	 * label and no element has a property which is not in the table.
+	 * 
+	 * @param name
+	 *            The label or the property key
+	 * @return The symbol of the name or <code>null</code> if it is not in the table
+	 */
+	ISymbol findSymbol(String name);
+}
@@ -0,0 +1,64 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A SymbolVertex is a vertex of a {@link ISymbolGraph} whose edges can be selected with the symbols of their
+ * labels. The symbols are given as an array rather than as variable arguments so that an array resolved once
+ * can be reused for all the vertices.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ISymbolVertex extends IVertex, ISymbolElement {
+	/**
+	 * Return the edges incident to the vertex according to the provided direction and edge labels.
+	 * 
+	 * @param direction
+	 *            The direction of the edges to retrieve
+	 * @param labels
+	 *            The symbols of the labels of the edges to retrieve, all the edges if the array is empty
+	 * @return The edges incident to the vertex
+	 * @see IVertex#getEdges(Direction, String...)
+	 */
+	ICloseableIterable<IEdge> getEdges(Direction direction, ISymbol[] labels);
+
+	/**
+	 * Return the vertices adjacent to the vertex according to the provided direction and edge labels.
+	 * 
+	 * @param direction
+	 *            The direction of the edges of the adjacent vertices
+	 * @param labels
+	 *            The symbols of the labels of the edges of the adjacent vertices, all the edges if the array
+	 *            is empty
+	 * @return The vertices adjacent to the vertex
+	 * @see IVertex#getVertices(Direction, String...)
+	 */
+	ICloseableIterable<IVertex> getVertices(Direction direction, ISymbol[] labels);
+}
@@ -0,0 +1,77 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A transaction of an {@link ITransactionalGraph}. The transaction is a view of the graph: the elements, the
+ * iterables and the queries it returns read the snapshot of the graph taken when the transaction began plus
+ * the modifications of the transaction, and the modifications done through them belong to the transaction.
+ * <p>
+ * A transaction is used by a single thread at a time. Once committed or rolled back, the transaction and the
+ * elements it has returned can not be used anymore. Shutting a transaction down with {@link #shutdown()}
+ * rolls it back if it is still active, the graph itself is not shut down.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ITransaction extends IGraph, AutoCloseable {
+	/**
+	 * Commit the modifications of the transaction, they become visible to the transactions which begin
+	 * afterwards.
+	 * 
+	 * @throws TransactionConflictException
+	 *             If another transaction has committed a conflicting modification since this transaction
+	 *             began, the transaction is then rolled back
+	 * @throws IllegalStateException
+	 *             If the transaction is not active anymore
+	 */
+	void commit();
+
+	/**
+	 * Discard the modifications of the transaction.
+	 * 
+	 * @throws IllegalStateException
+	 *             If the transaction is not active anymore
+	 */
+	void rollback();
+
+	/**
+	 * Indicates if the transaction can still be used, that is if it has not been committed or rolled back.
+	 * 
+	 * @return <code>true</code> if the transaction is active, <code>false</code> otherwise
+	 */
+	boolean isActive();
+
+	/**
+	 * Roll the transaction back if it is still active.
+	 */
+	@Override
+	void close();
+}
@@ -0,0 +1,61 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A TransactionalGraph is a graph whose modifications can be grouped in transactions. A transaction reads a
+ * consistent snapshot of the graph, taken when it begins, plus its own modifications, and its modifications
+ * are only visible to the other transactions once it is committed, all at once.
+ * <p>
+ * The operations called directly on the graph, outside of any transaction, behave as if each of them was a
+ * transaction of its own committed immediately: the reads see the last committed state of the graph and each
+ * modification is visible as soon as it returns.
+ * </p>
+ * 
+ * <pre>
+ * try (ITransaction transaction = graph.begin()) {
+ * 	IVertex a = transaction.addVertex(&quot;a&quot;);
+ * 	IVertex b = transaction.getVertex(&quot;b&quot;);
+ * 	a.addEdge(&quot;knows&quot;, b);
+ * 	transaction.commit();
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ITransactionalGraph extends IGraph {
+	/**
+	 * Begin a new transaction on the last committed state of the graph. Several transactions can be in
+	 * progress at the same time, in the same thread or in different threads.
+	 * 
+	 * @return The transaction
+	 */
+	ITransaction begin();
+}
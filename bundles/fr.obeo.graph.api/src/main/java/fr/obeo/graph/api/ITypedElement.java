@@ -0,0 +1,129 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * A TypedElement is an element whose primitive properties can be read and written without boxing. The
+ * accessors work with any key but they only avoid the boxing for the keys declared with the matching
+ * {@link PropertyType} on a {@link ISchemaGraph}.
+ * <p>
+ * The getters throw an {@link IllegalStateException} if the element does not have the property and an
+ * {@link IllegalArgumentException} if the value of the property is not of the requested type. The setters
+ * throw an {@link IllegalArgumentException} if the key is declared with another type.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface ITypedElement extends IElement {
+	/**
+	 * Indicate if the element has a property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @return <code>true</code> if the element has the property, <code>false</code> otherwise
+	 */
+	boolean hasProperty(String key);
+
+	/**
+	 * Return the value of the int property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	int getInt(String key);
+
+	/**
+	 * Return the value of the long property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	long getLong(String key);
+
+	/**
+	 * Return the value of the double property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	double getDouble(String key);
+
+	/**
+	 * Return the value of the boolean property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	boolean getBoolean(String key);
+
+	/**
+	 * Assign an int value to the property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setInt(String key, int value);
+
+	/**
+	 * Assign a long value to the property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setLong(String key, long value);
+
+	/**
+	 * Assign a double value to the property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setDouble(String key, double value);
+
+	/**
+	 * Assign a boolean value to the property with the provided key.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setBoolean(String key, boolean value);
+}
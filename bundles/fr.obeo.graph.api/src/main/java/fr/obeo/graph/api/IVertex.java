@@ -52,7 +52,7 @@ public interface IVertex {
 	 *            The labels of the edges to retrieve
 	 * @return An iterable of incident edges
 	 */
-	Iterable<IEdge> getEdges(Direction direction, String... labels);
+	ICloseableIterable<IEdge> getEdges(Direction direction, String... labels);
 
 	/**
 	 * Return the vertices adjacent to the vertex according to the provided direction and edge labels. This
@@ -65,7 +65,7 @@ public interface IVertex {
 	 *            The labels of the edges of the adjacent vertices
 	 * @return An iterable of adjacent vertices
 	 */
-	Iterable<IVertex> getVertices(Direction direction, String... labels);
+	ICloseableIterable<IVertex> getVertices(Direction direction, String... labels);
 
 	/**
 	 * Generate a query object that can be used to fine tune which edges/vertices are retrieved that are
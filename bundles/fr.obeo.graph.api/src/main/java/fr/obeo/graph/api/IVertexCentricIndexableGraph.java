@@ -0,0 +1,73 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+import java.util.Set;
+
+/**
+ * A VertexCentricIndexableGraph is a graph that supports the indexing of the edges incident to each vertex by
+ * direction, label and value of a property key. Once a key is indexed, the vertex queries filtering on that
+ * key with {@link IQuery#has(String, Object)}, {@link IQuery#interval(String, Comparable, Comparable)} or an
+ * ordered {@link Compare} predicate only read the matching edges of the vertex instead of all its incident
+ * edges. It is mostly useful for the vertices with a very high degree.
+ * <p>
+ * The index is kept up to date when the properties of the edges are modified with
+ * {@link IElement#setProperty(String, Object)} and {@link IElement#removeProperty(String)} or when the edges
+ * are removed.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IVertexCentricIndexableGraph extends IGraph {
+	/**
+	 * Index the edges incident to each vertex by the value of the property with the provided key. The
+	 * existing edges are indexed immediately. Creating an index which already exists has no effect.
+	 * 
+	 * @param key
+	 *            The key of the property of the edges to index
+	 */
+	void createVertexCentricIndex(String key);
+
+	/**
+	 * Remove the vertex-centric index of the property with the provided key. Dropping an index which does not
+	 * exist has no effect.
+	 * 
+	 * @param key
+	 *            The key of the indexed property
+	 */
+	void dropVertexCentricIndex(String key);
+
+	/**
+	 * Return all the keys of the edge properties with a vertex-centric index.
+	 * 
+	 * @return The keys of the edge properties with a vertex-centric index
+	 */
+	Set<String> getVertexCentricIndexedKeys();
+}
@@ -30,9 +30,15 @@
  ********************************************************************************/
 package fr.obeo.graph.api;
 
+import java.util.Map;
+
 /**
  * A VertexQuery object defines a collection of filters and modifiers that are used to intelligently select
  * edges from a vertex.
+ * <p>
+ * The counts and the other aggregations of a query return their result without returning the elements,
+ * the graphs may thus answer them from their indexes and statistics instead of reading the elements.
+ * </p>
  * 
  * @author Matthias Brocheler (http://matthiasb.com)
  * @author Marko A. Rodriguez (http://markorodriguez.com)
@@ -66,6 +72,53 @@ public interface IVertexQuery extends IQuery {
 	 */
 	long count();
 
+	/**
+	 * Execute the query and return the minimum of the numeric values of the provided property of the edges
+	 * that are unfiltered (see {@link NumericAggregate}).
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @return the minimum of the values or <code>null</code> if no edge has a numeric value
+	 */
+	Number min(String key);
+
+	/**
+	 * Execute the query and return the maximum of the numeric values of the provided property of the edges
+	 * that are unfiltered (see {@link NumericAggregate}).
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @return the maximum of the values or <code>null</code> if no edge has a numeric value
+	 */
+	Number max(String key);
+
+	/**
+	 * Execute the query and return the sum of the numeric values of the provided property of the edges that
+	 * are unfiltered (see {@link NumericAggregate}).
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @return the sum of the values, 0 if no edge has a numeric value
+	 */
+	Number sum(String key);
+
+	/**
+	 * Execute the query and return the number of edges that are unfiltered by value of the provided property.
+	 * The edges which do not have the property are not counted.
+	 * 
+	 * @param key
+	 *            the key of the property
+	 * @return the number of edges by value of the property
+	 */
+	Map<Object, Long> countBy(String key);
+
+	/**
+	 * Execute the query and return the number of edges that are unfiltered by label.
+	 * 
+	 * @return the number of edges by label
+	 */
+	Map<String, Long> countByLabel();
+
 	/**
 	 * Return the raw ids of the vertices on the other end of the edges.
 	 * 
@@ -0,0 +1,268 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+import java.math.BigInteger;
+
+/**
+ * The count, minimum, maximum and sum of numeric values, as computed by the aggregations of the queries. The
+ * values which are not {@link Number} are ignored. The results are {@link Long} as long as all the values are
+ * integral numbers (Long, Integer, Short or Byte), {@link Double} otherwise. The sum of integral values which
+ * does not fit in a long is an exact {@link BigInteger}.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class NumericAggregate {
+	/**
+	 * The number of values.
+	 */
+	private long count;
+
+	/**
+	 * Indicates if all the values are integral.
+	 */
+	private boolean integral = true;
+
+	/**
+	 * The minimum of the integral values.
+	 */
+	private long longMin = Long.MAX_VALUE;
+
+	/**
+	 * The maximum of the integral values.
+	 */
+	private long longMax = Long.MIN_VALUE;
+
+	/**
+	 * The sum of the integral values, while it fits in a long.
+	 */
+	private long longSum;
+
+	/**
+	 * The sum of the integral values once it has overflowed a long, <code>null</code> before.
+	 */
+	private BigInteger bigSum;
+
+	/**
+	 * The minimum of all the values as doubles.
+	 */
+	private double doubleMin = Double.POSITIVE_INFINITY;
+
+	/**
+	 * The maximum of all the values as doubles.
+	 */
+	private double doubleMax = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * The sum of all the values as doubles.
+	 */
+	private double doubleSum;
+
+	/**
+	 * Adds the given value if it is a number.
+	 * 
+	 * @param value
+	 *            The value or <code>null</code>
+	 */
+	public void add(Object value) {
+		this.add(value, 1);
+	}
+
+	/**
+	 * Adds the given value the given number of times if it is a number.
+	 * 
+	 * @param value
+	 *            The value or <code>null</code>
+	 * @param occurrences
+	 *            The number of occurrences of the value
+	 */
+	public void add(Object value, long occurrences) {
+		if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			this.addLong(((Number)value).longValue(), occurrences);
+		} else if (value instanceof Number) {
+			this.addDouble(((Number)value).doubleValue(), occurrences);
+		}
+	}
+
+	/**
+	 * Adds the given integral value.
+	 * 
+	 * @param value
+	 *            The value
+	 */
+	public void addLong(long value) {
+		this.addLong(value, 1);
+	}
+
+	/**
+	 * Adds the given integral value the given number of times.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param occurrences
+	 *            The number of occurrences of the value
+	 */
+	public void addLong(long value, long occurrences) {
+		if (occurrences > 0) {
+			this.count += occurrences;
+			this.longMin = Math.min(this.longMin, value);
+			this.longMax = Math.max(this.longMax, value);
+			this.addToSum(value, occurrences);
+			this.doubleMin = Math.min(this.doubleMin, value);
+			this.doubleMax = Math.max(this.doubleMax, value);
+			this.doubleSum += (double)value * occurrences;
+		}
+	}
+
+	/**
+	 * Adds the given integral value the given number of times to the sum of the integral values, switching to
+	 * a {@link BigInteger} sum the first time the sum or the product of the value would overflow a long.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param occurrences
+	 *            The number of occurrences of the value, strictly positive
+	 */
+	private void addToSum(long value, long occurrences) {
+		if (this.bigSum == null) {
+			long product = value * occurrences;
+			long sum = this.longSum + product;
+			boolean productOverflow = product / occurrences != value;
+			boolean sumOverflow = ((this.longSum ^ sum) & (product ^ sum)) < 0;
+			if (productOverflow || sumOverflow) {
+				this.bigSum = BigInteger.valueOf(this.longSum);
+			} else {
+				this.longSum = sum;
+			}
+		}
+		if (this.bigSum != null) {
+			BigInteger product = BigInteger.valueOf(value).multiply(BigInteger.valueOf(occurrences));
+			this.bigSum = this.bigSum.add(product);
+		}
+	}
+
+	/**
+	 * Adds the given floating point value.
+	 * 
+	 * @param value
+	 *            The value
+	 */
+	public void addDouble(double value) {
+		this.addDouble(value, 1);
+	}
+
+	/**
+	 * Adds the given floating point value the given number of times.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param occurrences
+	 *            The number of occurrences of the value
+	 */
+	public void addDouble(double value, long occurrences) {
+		if (occurrences > 0) {
+			this.integral = false;
+			this.count += occurrences;
+			this.doubleMin = Math.min(this.doubleMin, value);
+			this.doubleMax = Math.max(this.doubleMax, value);
+			this.doubleSum += value * occurrences;
+		}
+	}
+
+	/**
+	 * Returns the number of values added.
+	 * 
+	 * @return The number of values added
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the minimum of the values added.
+	 * 
+	 * @return The minimum of the values or <code>null</code> if no value has been added
+	 */
+	public Number getMin() {
+		Number min = null;
+		if (this.count > 0 && this.integral) {
+			min = Long.valueOf(this.longMin);
+		} else if (this.count > 0) {
+			min = Double.valueOf(this.doubleMin);
+		}
+		return min;
+	}
+
+	/**
+	 * Returns the maximum of the values added.
+	 * 
+	 * @return The maximum of the values or <code>null</code> if no value has been added
+	 */
+	public Number getMax() {
+		Number max = null;
+		if (this.count > 0 && this.integral) {
+			max = Long.valueOf(this.longMax);
+		} else if (this.count > 0) {
+			max = Double.valueOf(this.doubleMax);
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the sum of the values added.
+	 * 
+	 * @return The sum of the values, 0 if no value has been added
+	 */
+	public Number getSum() {
+		Number sum;
+		if (this.integral && this.bigSum != null && this.bigSum.bitLength() < Long.SIZE) {
+			sum = Long.valueOf(this.bigSum.longValue());
+		} else if (this.integral && this.bigSum != null) {
+			sum = this.bigSum;
+		} else if (this.integral) {
+			sum = Long.valueOf(this.longSum);
+		} else {
+			sum = Double.valueOf(this.doubleSum);
+		}
+		return sum;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "count=" + this.count + ", min=" + this.getMin() + ", max=" + this.getMax() + ", sum="
+				+ this.getSum();
+	}
+}
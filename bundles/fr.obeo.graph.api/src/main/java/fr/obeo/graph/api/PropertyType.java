@@ -0,0 +1,88 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api;
+
+/**
+ * The primitive types with which a property key can be declared on a {@link ISchemaGraph}.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public enum PropertyType {
+
+	/**
+	 * A 32 bits integer, the values of the property are {@link Integer}.
+	 */
+	INT(Integer.class),
+
+	/**
+	 * A 64 bits integer, the values of the property are {@link Long}.
+	 */
+	LONG(Long.class),
+
+	/**
+	 * A double precision floating point number, the values of the property are {@link Double}.
+	 */
+	DOUBLE(Double.class),
+
+	/**
+	 * A boolean, the values of the property are {@link Boolean}.
+	 */
+	BOOLEAN(Boolean.class),
+
+	/**
+	 * A string encoded with a dictionary, the values of the property are {@link String}. It suits the
+	 * properties with a small number of distinct values.
+	 */
+	STRING(String.class);
+
+	/**
+	 * The class of the values of the properties of this type.
+	 */
+	private final Class<?> valueClass;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param valueClass
+	 *            The class of the values of the properties of this type
+	 */
+	PropertyType(Class<?> valueClass) {
+		this.valueClass = valueClass;
+	}
+
+	/**
+	 * Return the class of the values of the properties of this type.
+	 * 
+	 * @return The class of the values
+	 */
+	public Class<?> getValueClass() {
+		return this.valueClass;
+	}
+}
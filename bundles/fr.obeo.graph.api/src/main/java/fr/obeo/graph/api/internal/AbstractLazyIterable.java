@@ -0,0 +1,91 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api.internal;
+
+import fr.obeo.graph.api.ICloseableIterable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Base class of the results of the graphs. Each iterator plans and evaluates the results from scratch,
+ * lazily, so that the results reflect the state of the graph when the iteration starts and are never
+ * materialized. The iterable remembers the iterators which are still open in order to close them when it is
+ * closed.
+ * 
+ * @param <T>
+ *            The kind of element returned
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public abstract class AbstractLazyIterable<T> implements ICloseableIterable<T> {
+	/**
+	 * The iterators returned which may still be open.
+	 */
+	private final List<AbstractLazyIterator<T>> iterators = new ArrayList<AbstractLazyIterator<T>>();
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ICloseableIterable#iterator()
+	 */
+	@Override
+	public AbstractLazyIterator<T> iterator() {
+		Iterator<AbstractLazyIterator<T>> openIterators = this.iterators.iterator();
+		while (openIterators.hasNext()) {
+			if (openIterators.next().isClosed()) {
+				openIterators.remove();
+			}
+		}
+		AbstractLazyIterator<T> iterator = this.open();
+		this.iterators.add(iterator);
+		return iterator;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ICloseableIterable#close()
+	 */
+	@Override
+	public void close() {
+		for (AbstractLazyIterator<T> iterator : this.iterators) {
+			iterator.close();
+		}
+		this.iterators.clear();
+	}
+
+	/**
+	 * Plans the evaluation of the results and returns the lazy iterator evaluating them.
+	 * 
+	 * @return The lazy iterator evaluating the results
+	 */
+	protected abstract AbstractLazyIterator<T> open();
+}
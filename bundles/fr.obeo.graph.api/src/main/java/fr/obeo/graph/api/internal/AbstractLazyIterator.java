@@ -0,0 +1,146 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api.internal;
+
+import fr.obeo.graph.api.ICloseableIterator;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Base class of the iterators of the graphs. The next element is only computed when it is requested and the
+ * iteration stops as soon as the limit has been reached or the iterator has been closed, so that no work is
+ * done for the elements that will never be read.
+ * 
+ * @param <T>
+ *            The kind of element returned
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public abstract class AbstractLazyIterator<T> implements ICloseableIterator<T> {
+	/**
+	 * The maximum number of elements to return.
+	 */
+	private final long limit;
+
+	/**
+	 * The number of elements returned.
+	 */
+	private long count;
+
+	/**
+	 * The next element or <code>null</code> if it has not been computed yet.
+	 */
+	private T nextElement;
+
+	/**
+	 * Indicates that there are no more elements, either because the iterator is exhausted or because it has
+	 * been closed.
+	 */
+	private boolean done;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param limit
+	 *            The maximum number of elements to return
+	 */
+	protected AbstractLazyIterator(long limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() {
+		if (this.nextElement == null && !this.done) {
+			if (this.count < this.limit) {
+				this.nextElement = this.computeNext();
+			}
+			this.done = this.nextElement == null;
+		}
+		return !this.done;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public T next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T element = this.nextElement;
+		this.nextElement = null;
+		this.count++;
+		return element;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ICloseableIterator#close()
+	 */
+	@Override
+	public void close() {
+		this.done = true;
+		this.nextElement = null;
+	}
+
+	/**
+	 * Indicates if the iterator is closed, either explicitly or because it is exhausted.
+	 * 
+	 * @return <code>true</code> if the iterator does not have any element anymore, <code>false</code>
+	 *         otherwise
+	 */
+	boolean isClosed() {
+		return this.done;
+	}
+
+	/**
+	 * Computes the next element.
+	 * 
+	 * @return The next element or <code>null</code> if there are no more elements
+	 */
+	protected abstract T computeNext();
+}
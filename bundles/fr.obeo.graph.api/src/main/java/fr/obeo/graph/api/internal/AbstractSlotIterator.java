@@ -0,0 +1,85 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api.internal;
+
+/**
+ * Base class of the iterators over the elements read by a slot cursor. The cursor is only advanced when the
+ * next element is requested, the slots which do not hold an accepted element are skipped.
+ * 
+ * @param <T>
+ *            The kind of element returned
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public abstract class AbstractSlotIterator<T> extends AbstractLazyIterator<T> {
+	/**
+	 * The cursor over the slots of the candidates.
+	 */
+	private final ISlotCursor cursor;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param cursor
+	 *            The cursor over the slots of the candidates
+	 * @param limit
+	 *            The maximum number of elements to return
+	 */
+	protected AbstractSlotIterator(ISlotCursor cursor, long limit) {
+		super(limit);
+		this.cursor = cursor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.internal.AbstractLazyIterator#computeNext()
+	 */
+	@Override
+	protected T computeNext() {
+		T element = null;
+		int slot = this.cursor.next();
+		while (element == null && slot != ISlotCursor.END) {
+			element = this.read(slot);
+			if (element == null) {
+				slot = this.cursor.next();
+			}
+		}
+		return element;
+	}
+
+	/**
+	 * Reads the element of the given slot.
+	 * 
+	 * @param slot
+	 *            The slot of a candidate
+	 * @return The element of the slot or <code>null</code> if the slot does not hold an accepted element
+	 */
+	protected abstract T read(int slot);
+}
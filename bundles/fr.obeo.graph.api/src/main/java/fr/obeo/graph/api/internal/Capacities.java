@@ -0,0 +1,67 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api.internal;
+
+/**
+ * Utility class used to compute the capacity of the growable tables of the graphs.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class Capacities {
+	/**
+	 * The maximum capacity of an array.
+	 */
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	/**
+	 * The constructor.
+	 */
+	private Capacities() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Computes the new capacity of a table which has to hold at least the given number of values. Tables
+	 * grow by half of their current capacity in order to amortize the cost of the copy.
+	 * 
+	 * @param capacity
+	 *            The current capacity of the table
+	 * @param minimum
+	 *            The minimum capacity needed
+	 * @return The new capacity of the table
+	 */
+	public static int grow(int capacity, int minimum) {
+		if (minimum < 0 || minimum > MAX_CAPACITY) {
+			throw new OutOfMemoryError("Graph table capacity exceeded: " + minimum);
+		}
+		long grown = (long)capacity + (capacity >> 1) + 1;
+		return (int)Math.min(MAX_CAPACITY, Math.max(grown, minimum));
+	}
+}
@@ -0,0 +1,769 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api.internal;
+
+import fr.obeo.graph.api.Compare;
+
+/**
+ * A {@link PropertyFilter} compiled into an evaluator specialised for its kind and for the type of its value.
+ * The kind of the filter is resolved once instead of being switched on for every element and the integral
+ * and floating point values are compared as primitives instead of through {@link Comparable#compareTo} and
+ * {@link Object#equals(Object)}, the values of a typed column of a graph are even tested without being boxed.
+ * Each evaluator is a small final class so that the JIT can inline the call made for each element. Since the
+ * values of different classes are neither equal nor ordered, a property whose type is not the one of the
+ * value of an equality or of the bounds of a range is rejected without being compared, the results are thus
+ * always the same as {@link PropertyFilter#evaluate(Object)}.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public abstract class CompiledFilter {
+	/**
+	 * Tests the value of the property of an element.
+	 * 
+	 * @param property
+	 *            The value of the property or <code>null</code> if the element does not have it
+	 * @return <code>true</code> if the element is accepted by the filter, <code>false</code> otherwise
+	 */
+	public abstract boolean test(Object property);
+
+	/**
+	 * Tests the value of an int property, read from a typed column without boxing.
+	 * 
+	 * @param property
+	 *            The value of the property
+	 * @return <code>true</code> if the element is accepted by the filter, <code>false</code> otherwise
+	 */
+	public boolean testInt(int property) {
+		return this.test(Integer.valueOf(property));
+	}
+
+	/**
+	 * Tests the value of a long property, read from a typed column without boxing.
+	 * 
+	 * @param property
+	 *            The value of the property
+	 * @return <code>true</code> if the element is accepted by the filter, <code>false</code> otherwise
+	 */
+	public boolean testLong(long property) {
+		return this.test(Long.valueOf(property));
+	}
+
+	/**
+	 * Tests the value of a double property, read from a typed column without boxing.
+	 * 
+	 * @param property
+	 *            The value of the property
+	 * @return <code>true</code> if the element is accepted by the filter, <code>false</code> otherwise
+	 */
+	public boolean testDouble(double property) {
+		return this.test(Double.valueOf(property));
+	}
+
+	/**
+	 * Compiles the given filter.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @return The evaluator of the filter
+	 */
+	static CompiledFilter compile(PropertyFilter filter) {
+		CompiledFilter compiled;
+		switch (filter.getKind()) {
+			case HAS:
+				compiled = new Presence(true);
+				break;
+			case HAS_NOT:
+				compiled = new Presence(false);
+				break;
+			case EQUAL:
+				compiled = CompiledFilter.equality(filter, false);
+				break;
+			case NOT_EQUAL:
+				compiled = CompiledFilter.equality(filter, true);
+				break;
+			case PREDICATE:
+				compiled = CompiledFilter.predicate(filter);
+				break;
+			case INTERVAL:
+				compiled = CompiledFilter.interval(filter);
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(filter.getKind()));
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles an equality filter.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @param negated
+	 *            <code>true</code> if the filter accepts the elements whose property is not equal to its
+	 *            value
+	 * @return The evaluator of the filter
+	 */
+	private static CompiledFilter equality(PropertyFilter filter, boolean negated) {
+		Object value = filter.getValue();
+		CompiledFilter compiled;
+		if (value == null) {
+			compiled = new Presence(negated);
+		} else if (CompiledFilter.isIntegral(value)) {
+			compiled = new IntegralEquality(value.getClass(), ((Number)value).longValue(), negated);
+		} else if (value instanceof Double) {
+			compiled = new DoubleEquality(((Double)value).doubleValue(), negated);
+		} else {
+			compiled = new Equality(value, negated);
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles a predicate filter. The comparisons of {@link Compare} are turned into equalities and
+	 * half-bounded ranges, any other predicate is evaluated as is.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @return The evaluator of the filter
+	 */
+	private static CompiledFilter predicate(PropertyFilter filter) {
+		CompiledFilter compiled = null;
+		if (filter.getPredicate() instanceof Compare) {
+			Object value = filter.getValue();
+			switch ((Compare)filter.getPredicate()) {
+				case EQUAL:
+					compiled = CompiledFilter.equality(filter, false);
+					break;
+				case NOT_EQUAL:
+					compiled = CompiledFilter.equality(filter, true);
+					break;
+				case GREATER_THAN:
+					compiled = CompiledFilter.range(value, false, null, false);
+					break;
+				case GREATER_THAN_EQUAL:
+					compiled = CompiledFilter.range(value, true, null, false);
+					break;
+				case LESS_THAN:
+					compiled = CompiledFilter.range(null, false, value, false);
+					break;
+				case LESS_THAN_EQUAL:
+					compiled = CompiledFilter.range(null, false, value, true);
+					break;
+				default:
+					throw new IllegalStateException(String.valueOf(filter.getPredicate()));
+			}
+		}
+		if (compiled == null) {
+			compiled = new Generic(filter);
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles an interval filter.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @return The evaluator of the filter
+	 */
+	private static CompiledFilter interval(PropertyFilter filter) {
+		Object start = filter.getValue();
+		Object end = filter.getEndValue();
+		CompiledFilter compiled = null;
+		if (start != null && end != null && start.getClass() == end.getClass()) {
+			compiled = CompiledFilter.range(start, true, end, false);
+		}
+		if (compiled == null) {
+			compiled = new Generic(filter);
+		}
+		return compiled;
+	}
+
+	/**
+	 * Compiles a range of integral or floating point values.
+	 * 
+	 * @param lower
+	 *            The lower bound or <code>null</code> if the range is not bounded below
+	 * @param lowerInclusive
+	 *            <code>true</code> if the lower bound is part of the range
+	 * @param upper
+	 *            The upper bound or <code>null</code> if the range is not bounded above
+	 * @param upperInclusive
+	 *            <code>true</code> if the upper bound is part of the range
+	 * @return The evaluator of the range or <code>null</code> if the bounds are neither integral nor floating
+	 *         point values
+	 */
+	private static CompiledFilter range(Object lower, boolean lowerInclusive, Object upper,
+			boolean upperInclusive) {
+		Object bound = lower;
+		if (bound == null) {
+			bound = upper;
+		}
+		CompiledFilter compiled = null;
+		if (CompiledFilter.isIntegral(bound)) {
+			long min = Long.MIN_VALUE;
+			boolean minInclusive = true;
+			if (lower != null) {
+				min = ((Number)lower).longValue();
+				minInclusive = lowerInclusive;
+			}
+			long max = Long.MAX_VALUE;
+			boolean maxInclusive = true;
+			if (upper != null) {
+				max = ((Number)upper).longValue();
+				maxInclusive = upperInclusive;
+			}
+			compiled = new IntegralRange(bound.getClass(), min, minInclusive, max, maxInclusive);
+		} else if (bound instanceof Double) {
+			// NaN is the greatest value for Double#compare, the inclusive end of an unbounded range
+			double min = Double.NEGATIVE_INFINITY;
+			boolean minInclusive = true;
+			if (lower != null) {
+				min = ((Double)lower).doubleValue();
+				minInclusive = lowerInclusive;
+			}
+			double max = Double.NaN;
+			boolean maxInclusive = true;
+			if (upper != null) {
+				max = ((Double)upper).doubleValue();
+				maxInclusive = upperInclusive;
+			}
+			compiled = new DoubleRange(min, minInclusive, max, maxInclusive);
+		}
+		return compiled;
+	}
+
+	/**
+	 * Indicates if the given value is an integral number whose {@link Comparable#compareTo} and
+	 * {@link Object#equals(Object)} only consider the value as a <code>long</code>.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return <code>true</code> if the value is a {@link Long}, an {@link Integer}, a {@link Short} or a
+	 *         {@link Byte}
+	 */
+	private static boolean isIntegral(Object value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte;
+	}
+
+	/**
+	 * The evaluator of the filters on the existence of a property.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Presence extends CompiledFilter {
+		/**
+		 * <code>true</code> if the property must exist, <code>false</code> if it must not.
+		 */
+		private final boolean present;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param present
+		 *            <code>true</code> if the property must exist, <code>false</code> if it must not
+		 */
+		Presence(boolean present) {
+			this.present = present;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#test(java.lang.Object)
+		 */
+		@Override
+		public boolean test(Object property) {
+			return (property != null) == this.present;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testInt(int)
+		 */
+		@Override
+		public boolean testInt(int property) {
+			return this.present;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testLong(long)
+		 */
+		@Override
+		public boolean testLong(long property) {
+			return this.present;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testDouble(double)
+		 */
+		@Override
+		public boolean testDouble(double property) {
+			return this.present;
+		}
+	}
+
+	/**
+	 * The evaluator of the equalities with an integral value.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class IntegralEquality extends CompiledFilter {
+		/**
+		 * The type of the value, the properties of another type are never equal to it.
+		 */
+		private final Class<?> type;
+
+		/**
+		 * The value.
+		 */
+		private final long value;
+
+		/**
+		 * <code>true</code> if the filter accepts the properties which are not equal to the value.
+		 */
+		private final boolean negated;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param type
+		 *            The type of the value
+		 * @param value
+		 *            The value
+		 * @param negated
+		 *            <code>true</code> if the filter accepts the properties which are not equal to the value
+		 */
+		IntegralEquality(Class<?> type, long value, boolean negated) {
+			this.type = type;
+			this.value = value;
+			this.negated = negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#test(java.lang.Object)
+		 */
+		@Override
+		public boolean test(Object property) {
+			boolean equal = property != null && property.getClass() == this.type
+					&& ((Number)property).longValue() == this.value;
+			return equal != this.negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testInt(int)
+		 */
+		@Override
+		public boolean testInt(int property) {
+			return (this.type == Integer.class && property == this.value) != this.negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testLong(long)
+		 */
+		@Override
+		public boolean testLong(long property) {
+			return (this.type == Long.class && property == this.value) != this.negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testDouble(double)
+		 */
+		@Override
+		public boolean testDouble(double property) {
+			return this.negated;
+		}
+	}
+
+	/**
+	 * The evaluator of the equalities with a {@link Double} value.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class DoubleEquality extends CompiledFilter {
+		/**
+		 * The bits of the value, compared like {@link Double#equals(Object)} does.
+		 */
+		private final long bits;
+
+		/**
+		 * <code>true</code> if the filter accepts the properties which are not equal to the value.
+		 */
+		private final boolean negated;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param value
+		 *            The value
+		 * @param negated
+		 *            <code>true</code> if the filter accepts the properties which are not equal to the value
+		 */
+		DoubleEquality(double value, boolean negated) {
+			this.bits = Double.doubleToLongBits(value);
+			this.negated = negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#test(java.lang.Object)
+		 */
+		@Override
+		public boolean test(Object property) {
+			boolean equal = property instanceof Double
+					&& Double.doubleToLongBits(((Double)property).doubleValue()) == this.bits;
+			return equal != this.negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testInt(int)
+		 */
+		@Override
+		public boolean testInt(int property) {
+			return this.negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testLong(long)
+		 */
+		@Override
+		public boolean testLong(long property) {
+			return this.negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testDouble(double)
+		 */
+		@Override
+		public boolean testDouble(double property) {
+			return (Double.doubleToLongBits(property) == this.bits) != this.negated;
+		}
+	}
+
+	/**
+	 * The evaluator of the equalities with any other value.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Equality extends CompiledFilter {
+		/**
+		 * The value.
+		 */
+		private final Object value;
+
+		/**
+		 * <code>true</code> if the filter accepts the properties which are not equal to the value.
+		 */
+		private final boolean negated;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param value
+		 *            The value, it can not be <code>null</code>
+		 * @param negated
+		 *            <code>true</code> if the filter accepts the properties which are not equal to the value
+		 */
+		Equality(Object value, boolean negated) {
+			this.value = value;
+			this.negated = negated;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#test(java.lang.Object)
+		 */
+		@Override
+		public boolean test(Object property) {
+			return this.value.equals(property) != this.negated;
+		}
+	}
+
+	/**
+	 * The evaluator of the ranges of integral values.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class IntegralRange extends CompiledFilter {
+		/**
+		 * The type of the bounds, the properties of another type are never within the range.
+		 */
+		private final Class<?> type;
+
+		/**
+		 * The lower bound.
+		 */
+		private final long lower;
+
+		/**
+		 * <code>true</code> if the lower bound is part of the range.
+		 */
+		private final boolean lowerInclusive;
+
+		/**
+		 * The upper bound.
+		 */
+		private final long upper;
+
+		/**
+		 * <code>true</code> if the upper bound is part of the range.
+		 */
+		private final boolean upperInclusive;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param type
+		 *            The type of the bounds
+		 * @param lower
+		 *            The lower bound
+		 * @param lowerInclusive
+		 *            <code>true</code> if the lower bound is part of the range
+		 * @param upper
+		 *            The upper bound
+		 * @param upperInclusive
+		 *            <code>true</code> if the upper bound is part of the range
+		 */
+		IntegralRange(Class<?> type, long lower, boolean lowerInclusive, long upper, boolean upperInclusive) {
+			this.type = type;
+			this.lower = lower;
+			this.lowerInclusive = lowerInclusive;
+			this.upper = upper;
+			this.upperInclusive = upperInclusive;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#test(java.lang.Object)
+		 */
+		@Override
+		public boolean test(Object property) {
+			return property != null && property.getClass() == this.type
+					&& this.contains(((Number)property).longValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testInt(int)
+		 */
+		@Override
+		public boolean testInt(int property) {
+			return this.type == Integer.class && this.contains(property);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testLong(long)
+		 */
+		@Override
+		public boolean testLong(long property) {
+			return this.type == Long.class && this.contains(property);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testDouble(double)
+		 */
+		@Override
+		public boolean testDouble(double property) {
+			return false;
+		}
+
+		/**
+		 * Indicates if the given value is within the range.
+		 * 
+		 * @param value
+		 *            The value
+		 * @return <code>true</code> if the value is within the range, <code>false</code> otherwise
+		 */
+		private boolean contains(long value) {
+			return (value > this.lower || this.lowerInclusive && value == this.lower)
+					&& (value < this.upper || this.upperInclusive && value == this.upper);
+		}
+	}
+
+	/**
+	 * The evaluator of the ranges of {@link Double} values, ordered like {@link Double#compareTo(Double)}.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class DoubleRange extends CompiledFilter {
+		/**
+		 * The lower bound.
+		 */
+		private final double lower;
+
+		/**
+		 * <code>true</code> if the lower bound is part of the range.
+		 */
+		private final boolean lowerInclusive;
+
+		/**
+		 * The upper bound.
+		 */
+		private final double upper;
+
+		/**
+		 * <code>true</code> if the upper bound is part of the range.
+		 */
+		private final boolean upperInclusive;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param lower
+		 *            The lower bound
+		 * @param lowerInclusive
+		 *            <code>true</code> if the lower bound is part of the range
+		 * @param upper
+		 *            The upper bound
+		 * @param upperInclusive
+		 *            <code>true</code> if the upper bound is part of the range
+		 */
+		DoubleRange(double lower, boolean lowerInclusive, double upper, boolean upperInclusive) {
+			this.lower = lower;
+			this.lowerInclusive = lowerInclusive;
+			this.upper = upper;
+			this.upperInclusive = upperInclusive;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#test(java.lang.Object)
+		 */
+		@Override
+		public boolean test(Object property) {
+			return property instanceof Double && this.contains(((Double)property).doubleValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testInt(int)
+		 */
+		@Override
+		public boolean testInt(int property) {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testLong(long)
+		 */
+		@Override
+		public boolean testLong(long property) {
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#testDouble(double)
+		 */
+		@Override
+		public boolean testDouble(double property) {
+			return this.contains(property);
+		}
+
+		/**
+		 * Indicates if the given value is within the range.
+		 * 
+		 * @param value
+		 *            The value
+		 * @return <code>true</code> if the value is within the range, <code>false</code> otherwise
+		 */
+		private boolean contains(double value) {
+			int fromLower = Double.compare(value, this.lower);
+			int fromUpper = Double.compare(value, this.upper);
+			return (fromLower > 0 || this.lowerInclusive && fromLower == 0)
+					&& (fromUpper < 0 || this.upperInclusive && fromUpper == 0);
+		}
+	}
+
+	/**
+	 * The evaluator of the filters which can not be specialised.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Generic extends CompiledFilter {
+		/**
+		 * The filter.
+		 */
+		private final PropertyFilter filter;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param filter
+		 *            The filter
+		 */
+		Generic(PropertyFilter filter) {
+			this.filter = filter;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.CompiledFilter#test(java.lang.Object)
+		 */
+		@Override
+		public boolean test(Object property) {
+			return this.filter.evaluate(property);
+		}
+	}
+}
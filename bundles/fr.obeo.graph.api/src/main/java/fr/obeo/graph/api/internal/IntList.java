@@ -0,0 +1,181 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api.internal;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive integers used to avoid boxing in the internal tables of the graphs and in the
+ * frontiers and the stacks of the algorithms.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class IntList {
+	/**
+	 * The default capacity of the list.
+	 */
+	private static final int DEFAULT_CAPACITY = 8;
+
+	/**
+	 * The values of the list.
+	 */
+	private int[] data;
+
+	/**
+	 * The number of values in the list.
+	 */
+	private int size;
+
+	/**
+	 * The constructor.
+	 */
+	public IntList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param capacity
+	 *            The initial capacity of the list
+	 */
+	public IntList(int capacity) {
+		this.data = new int[Math.max(1, capacity)];
+	}
+
+	/**
+	 * Appends the given value at the end of the list.
+	 * 
+	 * @param value
+	 *            The value
+	 */
+	public void add(int value) {
+		if (this.size == this.data.length) {
+			this.data = Arrays.copyOf(this.data, Capacities.grow(this.data.length, this.size + 1));
+		}
+		this.data[this.size] = value;
+		this.size++;
+	}
+
+	/**
+	 * Returns the value at the given position.
+	 * 
+	 * @param position
+	 *            The position
+	 * @return The value at the given position
+	 */
+	public int get(int position) {
+		if (position >= this.size) {
+			throw new IndexOutOfBoundsException(String.valueOf(position));
+		}
+		return this.data[position];
+	}
+
+	/**
+	 * Removes and returns the last value of the list.
+	 * 
+	 * @return The last value of the list
+	 */
+	public int removeLast() {
+		if (this.size == 0) {
+			throw new IndexOutOfBoundsException(String.valueOf(this.size));
+		}
+		this.size--;
+		return this.data[this.size];
+	}
+
+	/**
+	 * Removes the first occurrence of the given value by swapping it with the last value of the list. The
+	 * order of the values is thus not preserved.
+	 * 
+	 * @param value
+	 *            The value to remove
+	 * @return <code>true</code> if the value has been found, <code>false</code> otherwise
+	 */
+	public boolean removeValue(int value) {
+		int position = this.indexOf(value);
+		if (position >= 0) {
+			this.size--;
+			this.data[position] = this.data[this.size];
+		}
+		return position >= 0;
+	}
+
+	/**
+	 * Returns the position of the first occurrence of the given value or -1 if it cannot be found.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The position of the value or -1
+	 */
+	public int indexOf(int value) {
+		int position = -1;
+		for (int i = 0; i < this.size && position < 0; i++) {
+			if (this.data[i] == value) {
+				position = i;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the number of values in the list.
+	 * 
+	 * @return The number of values in the list
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Indicates if the list is empty.
+	 * 
+	 * @return <code>true</code> if the list is empty, <code>false</code> otherwise
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes all the values of the list.
+	 */
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Returns a copy of the values of the list.
+	 * 
+	 * @return A copy of the values of the list
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(this.data, this.size);
+	}
+}
@@ -0,0 +1,360 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.api.internal;
+
+import fr.obeo.graph.api.IPredicate;
+
+/**
+ * A filter on the value of a property accumulated by a query of a graph.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class PropertyFilter {
+	/**
+	 * The kind of the filters.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	public enum Kind {
+		/**
+		 * The property must exist.
+		 */
+		HAS,
+
+		/**
+		 * The property must not exist.
+		 */
+		HAS_NOT,
+
+		/**
+		 * The property must be equal to the value.
+		 */
+		EQUAL,
+
+		/**
+		 * The property must not be equal to the value.
+		 */
+		NOT_EQUAL,
+
+		/**
+		 * The predicate must hold for the property and the value.
+		 */
+		PREDICATE,
+
+		/**
+		 * The property must be within the interval.
+		 */
+		INTERVAL;
+	}
+
+	/**
+	 * The kind of the filter.
+	 */
+	private final Kind kind;
+
+	/**
+	 * The key of the property.
+	 */
+	private final String key;
+
+	/**
+	 * The predicate of the filter, only used by {@link Kind#PREDICATE}.
+	 */
+	private final IPredicate predicate;
+
+	/**
+	 * The value of the filter or the inclusive start of the interval.
+	 */
+	private final Object value;
+
+	/**
+	 * The exclusive end of the interval.
+	 */
+	private final Object endValue;
+
+	/**
+	 * The evaluator specialised for the kind and the value of the filter.
+	 */
+	private final CompiledFilter compiled;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param kind
+	 *            The kind of the filter
+	 * @param key
+	 *            The key of the property
+	 * @param predicate
+	 *            The predicate of the filter
+	 * @param value
+	 *            The value of the filter or the inclusive start of the interval
+	 * @param endValue
+	 *            The exclusive end of the interval
+	 */
+	private PropertyFilter(Kind kind, String key, IPredicate predicate, Object value, Object endValue) {
+		this.kind = kind;
+		this.key = key;
+		this.predicate = predicate;
+		this.value = value;
+		this.endValue = endValue;
+		this.compiled = CompiledFilter.compile(this);
+	}
+
+	/**
+	 * Creates a filter of the given kind.
+	 * 
+	 * @param kind
+	 *            The kind of the filter
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the filter
+	 * @return The new filter
+	 */
+	public static PropertyFilter create(Kind kind, String key, Object value) {
+		return new PropertyFilter(kind, key, null, value, null);
+	}
+
+	/**
+	 * Creates a predicate filter.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param predicate
+	 *            The predicate
+	 * @param value
+	 *            The value given to the predicate
+	 * @return The new filter
+	 */
+	public static PropertyFilter predicate(String key, IPredicate predicate, Object value) {
+		if (predicate == null) {
+			throw new IllegalArgumentException("The predicate can not be null");
+		}
+		return new PropertyFilter(Kind.PREDICATE, key, predicate, value, null);
+	}
+
+	/**
+	 * Creates an interval filter.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param startValue
+	 *            The inclusive start of the interval
+	 * @param endValue
+	 *            The exclusive end of the interval
+	 * @return The new filter
+	 */
+	public static PropertyFilter interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		return new PropertyFilter(Kind.INTERVAL, key, null, startValue, endValue);
+	}
+
+	/**
+	 * Returns the kind of the filter.
+	 * 
+	 * @return The kind of the filter
+	 */
+	public Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * Returns the key of the property.
+	 * 
+	 * @return The key of the property
+	 */
+	public String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Returns the predicate of the filter.
+	 * 
+	 * @return The predicate of the filter or <code>null</code>
+	 */
+	public IPredicate getPredicate() {
+		return this.predicate;
+	}
+
+	/**
+	 * Returns the value of the filter or the inclusive start of the interval.
+	 * 
+	 * @return The value of the filter
+	 */
+	public Object getValue() {
+		return this.value;
+	}
+
+	/**
+	 * Returns the exclusive end of the interval.
+	 * 
+	 * @return The exclusive end of the interval
+	 */
+	public Object getEndValue() {
+		return this.endValue;
+	}
+
+	/**
+	 * Returns the evaluator specialised for the kind and the value of the filter.
+	 * 
+	 * @return The evaluator of the filter
+	 */
+	public CompiledFilter compiled() {
+		return this.compiled;
+	}
+
+	/**
+	 * Tests the value of the property of an element with the evaluator compiled for the filter.
+	 * 
+	 * @param property
+	 *            The value of the property or <code>null</code> if the element does not have it
+	 * @return <code>true</code> if the element is accepted by the filter, <code>false</code> otherwise
+	 */
+	public boolean test(Object property) {
+		return this.compiled.test(property);
+	}
+
+	/**
+	 * Evaluates the filter on the value of the property of an element without any specialisation, this is
+	 * the reference {@link CompiledFilter} falls back to.
+	 * 
+	 * @param property
+	 *            The value of the property or <code>null</code> if the element does not have it
+	 * @return <code>true</code> if the element is accepted by the filter, <code>false</code> otherwise
+	 */
+	boolean evaluate(Object property) {
+		boolean result;
+		switch (this.kind) {
+			case HAS:
+				result = property != null;
+				break;
+			case HAS_NOT:
+				result = property == null;
+				break;
+			case EQUAL:
+				result = PropertyFilter.areEqual(property, this.value);
+				break;
+			case NOT_EQUAL:
+				result = !PropertyFilter.areEqual(property, this.value);
+				break;
+			case PREDICATE:
+				result = this.predicate.evaluate(property, this.value);
+				break;
+			case INTERVAL:
+				result = PropertyFilter.areOrdered(property, this.value)
+						&& PropertyFilter.areOrdered(property, this.endValue)
+						&& PropertyFilter.compare(property, this.value) >= 0
+						&& PropertyFilter.compare(property, this.endValue) < 0;
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(this.kind));
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		String description;
+		switch (this.kind) {
+			case HAS:
+				description = "has(" + this.key + ")";
+				break;
+			case HAS_NOT:
+				description = "hasNot(" + this.key + ")";
+				break;
+			case EQUAL:
+				description = this.key + " = " + this.value;
+				break;
+			case NOT_EQUAL:
+				description = this.key + " != " + this.value;
+				break;
+			case PREDICATE:
+				description = this.key + " " + this.predicate + " " + this.value;
+				break;
+			case INTERVAL:
+				description = this.key + " in [" + this.value + ", " + this.endValue + ")";
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(this.kind));
+		}
+		return description;
+	}
+
+	/**
+	 * Indicates if the given values are equal.
+	 * 
+	 * @param first
+	 *            The first value
+	 * @param second
+	 *            The second value
+	 * @return <code>true</code> if both values are <code>null</code> or equal
+	 */
+	static boolean areEqual(Object first, Object second) {
+		boolean equal;
+		if (first == null) {
+			equal = second == null;
+		} else {
+			equal = first.equals(second);
+		}
+		return equal;
+	}
+
+	/**
+	 * Indicates if the given values can be ordered, like {@link fr.obeo.graph.api.Compare} does.
+	 * 
+	 * @param first
+	 *            The first value
+	 * @param second
+	 *            The second value
+	 * @return <code>true</code> if both values are not <code>null</code> and of the same class
+	 */
+	static boolean areOrdered(Object first, Object second) {
+		return first != null && second != null && first.getClass() == second.getClass();
+	}
+
+	/**
+	 * Compares the given values.
+	 * 
+	 * @param first
+	 *            The first value, it must be {@link Comparable} and of the same class as the second one
+	 * @param second
+	 *            The second value
+	 * @return A negative integer, zero or a positive integer if the first value is less than, equal to or
+	 *         greater than the second one
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes" })
+	public static int compare(Object first, Object second) {
+		return ((Comparable)first).compareTo(second);
+	}
+}
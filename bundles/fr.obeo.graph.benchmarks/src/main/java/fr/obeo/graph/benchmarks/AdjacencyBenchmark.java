@@ -0,0 +1,129 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.benchmarks;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the iteration of the edges and of the adjacent vertices of a random vertex with
+ * {@link IVertex#getEdges(Direction, String...)} and {@link IVertex#getVertices(Direction, String...)}, for
+ * each direction, with and without a label. With the power law distribution, the in edges of the hubs
+ * dominate the results.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AdjacencyBenchmark {
+	/**
+	 * The direction of the edges.
+	 */
+	@Param({"OUT", "IN", "BOTH", })
+	public Direction direction;
+
+	/**
+	 * The label of the edges, all the labels if empty.
+	 */
+	@Param({"", "knows", })
+	public String label;
+
+	/**
+	 * The position of the next random identifier of the thread.
+	 */
+	private int position;
+
+	/**
+	 * Reads the incident edges of a random vertex.
+	 * 
+	 * @param state
+	 *            The graph
+	 * @param blackhole
+	 *            Consumes the edges
+	 */
+	@Benchmark
+	public void getEdges(GraphState state, Blackhole blackhole) {
+		this.position++;
+		IVertex vertex = state.getGraph().getVertex(state.getVertexId(this.position));
+		try (ICloseableIterable<IEdge> edges = vertex.getEdges(this.direction, this.labels())) {
+			for (IEdge edge : edges) {
+				blackhole.consume(edge);
+			}
+		}
+	}
+
+	/**
+	 * Reads the adjacent vertices of a random vertex.
+	 * 
+	 * @param state
+	 *            The graph
+	 * @param blackhole
+	 *            Consumes the vertices
+	 */
+	@Benchmark
+	public void getVertices(GraphState state, Blackhole blackhole) {
+		this.position++;
+		IVertex vertex = state.getGraph().getVertex(state.getVertexId(this.position));
+		try (ICloseableIterable<IVertex> vertices = vertex.getVertices(this.direction, this.labels())) {
+			for (IVertex adjacent : vertices) {
+				blackhole.consume(adjacent);
+			}
+		}
+	}
+
+	/**
+	 * Returns the labels of the edges to read.
+	 * 
+	 * @return The labels of the edges to read
+	 */
+	private String[] labels() {
+		String[] labels;
+		if (this.label.isEmpty()) {
+			labels = new String[0];
+		} else {
+			labels = new String[] {this.label, };
+		}
+		return labels;
+	}
+}
@@ -0,0 +1,200 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.benchmarks;
+
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.mapped.MappedGraph;
+import fr.obeo.graph.memory.MemoryGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Creates the graphs measured by the benchmarks. A factory is selected by the parameter
+ * <code>graphFactory</code> of the benchmarks: {@link #MEMORY} creates a {@link MemoryGraph},
+ * {@link #MAPPED} creates a {@link MappedGraph} in a new temporary directory deleted once the graph is
+ * disposed, and any other value is the qualified name of an implementation of {@link IGraph} with a public
+ * constructor without parameters.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public abstract class GraphFactory {
+	/**
+	 * The name of the factory of the in-memory graph.
+	 */
+	public static final String MEMORY = "memory";
+
+	/**
+	 * The name of the factory of the memory mapped graph.
+	 */
+	public static final String MAPPED = "mapped";
+
+	/**
+	 * Returns the factory with the given name.
+	 * 
+	 * @param name
+	 *            {@link #MEMORY}, {@link #MAPPED} or the qualified name of the class of the graph, with a
+	 *            public constructor without parameters
+	 * @return The factory
+	 */
+	public static GraphFactory forName(String name) {
+		GraphFactory factory;
+		if (MEMORY.equals(name)) {
+			factory = new MemoryGraphFactory();
+		} else if (MAPPED.equals(name)) {
+			factory = new MappedGraphFactory();
+		} else {
+			factory = new ReflectiveGraphFactory(name);
+		}
+		return factory;
+	}
+
+	/**
+	 * Creates an empty graph.
+	 * 
+	 * @return The new graph
+	 * @throws IllegalArgumentException
+	 *             If the graph cannot be created
+	 */
+	public abstract IGraph create() throws IllegalArgumentException;
+
+	/**
+	 * Shuts down a graph created by this factory and releases its resources.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	public void dispose(IGraph graph) {
+		graph.shutdown();
+	}
+
+	/**
+	 * Creates the in-memory graphs.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static class MemoryGraphFactory extends GraphFactory {
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.benchmarks.GraphFactory#create()
+		 */
+		@Override
+		public IGraph create() {
+			return new MemoryGraph();
+		}
+	}
+
+	/**
+	 * Creates the memory mapped graphs, each one in a new temporary directory.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static class MappedGraphFactory extends GraphFactory {
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.benchmarks.GraphFactory#create()
+		 */
+		@Override
+		public IGraph create() throws IllegalArgumentException {
+			IGraph graph;
+			try {
+				graph = new MappedGraph(Files.createTempDirectory("graph-benchmarks").toFile());
+			} catch (IOException e) {
+				throw new IllegalArgumentException(MAPPED, e);
+			}
+			return graph;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.benchmarks.GraphFactory#dispose(fr.obeo.graph.api.IGraph)
+		 */
+		@Override
+		public void dispose(IGraph graph) {
+			super.dispose(graph);
+			File directory = ((MappedGraph)graph).getDirectory();
+			File[] files = directory.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Creates the graphs of a class with a public constructor without parameters.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static class ReflectiveGraphFactory extends GraphFactory {
+		/**
+		 * The qualified name of the class of the graphs.
+		 */
+		private final String className;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param className
+		 *            The qualified name of the class of the graphs
+		 */
+		ReflectiveGraphFactory(String className) {
+			this.className = className;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.benchmarks.GraphFactory#create()
+		 */
+		@Override
+		public IGraph create() throws IllegalArgumentException {
+			IGraph graph;
+			try {
+				graph = (IGraph)Class.forName(this.className).newInstance();
+			} catch (ClassNotFoundException e) {
+				throw new IllegalArgumentException(this.className, e);
+			} catch (InstantiationException e) {
+				throw new IllegalArgumentException(this.className, e);
+			} catch (IllegalAccessException e) {
+				throw new IllegalArgumentException(this.className, e);
+			} catch (ClassCastException e) {
+				throw new IllegalArgumentException(this.className, e);
+			}
+			return graph;
+		}
+	}
+}
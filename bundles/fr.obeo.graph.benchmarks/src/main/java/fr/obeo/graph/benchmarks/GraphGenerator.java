@@ -0,0 +1,216 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.benchmarks;
+
+import fr.obeo.graph.api.IBulkLoadableGraph;
+import fr.obeo.graph.api.IBulkLoader;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic graphs with a known shape for the benchmarks. The vertices are identified by the
+ * integers from 0 to the number of vertices excluded, the edges by the longs from 0 to the number of edges
+ * excluded. Each vertex holds an integer property {@link #AGE} and each edge a label picked among
+ * {@link #LABELS}, an integer property {@link #WEIGHT} and a long property {@link #TIME}.
+ * <p>
+ * The same seed always generates the same graph, so that the results of different implementations or of
+ * different versions can be compared.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class GraphGenerator {
+	/**
+	 * The labels of the edges.
+	 */
+	public static final String[] LABELS = {"knows", "likes", "follows", };
+
+	/**
+	 * The key of the integer property of the vertices, between 0 and {@link #MAX_AGE} excluded.
+	 */
+	public static final String AGE = "age";
+
+	/**
+	 * The key of the integer property of the edges, between 0 and {@link #MAX_WEIGHT} excluded.
+	 */
+	public static final String WEIGHT = "weight";
+
+	/**
+	 * The key of the long property of the edges, the position of the edge in the generation order.
+	 */
+	public static final String TIME = "time";
+
+	/**
+	 * The exclusive upper bound of the values of {@link #AGE}.
+	 */
+	public static final int MAX_AGE = 100;
+
+	/**
+	 * The exclusive upper bound of the values of {@link #WEIGHT}.
+	 */
+	public static final int MAX_WEIGHT = 1000;
+
+	/**
+	 * The constructor.
+	 */
+	private GraphGenerator() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Fills the given empty graph.
+	 * 
+	 * @param graph
+	 *            The empty graph
+	 * @param distribution
+	 *            The distribution of the degrees of the vertices
+	 * @param vertices
+	 *            The number of vertices
+	 * @param degree
+	 *            The average number of outgoing edges per vertex
+	 * @param seed
+	 *            The seed of the random generator
+	 */
+	public static void generate(IGraph graph, Distribution distribution, int vertices, int degree,
+			long seed) {
+		Random random = new Random(seed);
+		int edges = vertices * degree;
+		int[] out = new int[edges];
+		int[] in = new int[edges];
+		if (Distribution.UNIFORM.equals(distribution)) {
+			for (int i = 0; i < edges; i++) {
+				out[i] = random.nextInt(vertices);
+				in[i] = random.nextInt(vertices);
+			}
+		} else {
+			// Preferential attachment: picking a random end of a previous edge picks a vertex with a
+			// probability proportional to its degree
+			for (int i = 0; i < edges; i++) {
+				out[i] = random.nextInt(vertices);
+				if (i == 0 || random.nextInt(degree + 1) == 0) {
+					in[i] = random.nextInt(vertices);
+				} else {
+					int previous = random.nextInt(i);
+					if (random.nextBoolean()) {
+						in[i] = out[previous];
+					} else {
+						in[i] = in[previous];
+					}
+				}
+			}
+		}
+
+		if (graph instanceof IBulkLoadableGraph) {
+			GraphGenerator.bulkLoad((IBulkLoadableGraph)graph, vertices, out, in, random);
+		} else {
+			GraphGenerator.load(graph, vertices, out, in, random);
+		}
+	}
+
+	/**
+	 * Loads the elements with the bulk loader of the graph.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertices
+	 *            The number of vertices
+	 * @param out
+	 *            The out vertex of each edge
+	 * @param in
+	 *            The in vertex of each edge
+	 * @param random
+	 *            The random generator
+	 */
+	private static void bulkLoad(IBulkLoadableGraph graph, int vertices, int[] out, int[] in, Random random) {
+		try (IBulkLoader loader = graph.createBulkLoader()) {
+			for (int i = 0; i < vertices; i++) {
+				Object id = loader.addVertex(Integer.valueOf(i));
+				loader.setVertexProperty(id, AGE, Integer.valueOf(random.nextInt(MAX_AGE)));
+			}
+			for (int i = 0; i < out.length; i++) {
+				String label = LABELS[random.nextInt(LABELS.length)];
+				Object id = loader.addEdge(Long.valueOf(i), Integer.valueOf(out[i]), Integer.valueOf(in[i]),
+						label);
+				loader.setEdgeProperty(id, WEIGHT, Integer.valueOf(random.nextInt(MAX_WEIGHT)));
+				loader.setEdgeProperty(id, TIME, Long.valueOf(i));
+			}
+		}
+	}
+
+	/**
+	 * Loads the elements one after the other.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertices
+	 *            The number of vertices
+	 * @param out
+	 *            The out vertex of each edge
+	 * @param in
+	 *            The in vertex of each edge
+	 * @param random
+	 *            The random generator
+	 */
+	private static void load(IGraph graph, int vertices, int[] out, int[] in, Random random) {
+		IVertex[] created = new IVertex[vertices];
+		for (int i = 0; i < vertices; i++) {
+			created[i] = graph.addVertex(Integer.valueOf(i));
+			((IElement)created[i]).setProperty(AGE, Integer.valueOf(random.nextInt(MAX_AGE)));
+		}
+		for (int i = 0; i < out.length; i++) {
+			String label = LABELS[random.nextInt(LABELS.length)];
+			IEdge edge = graph.addEdge(Long.valueOf(i), created[out[i]], created[in[i]], label);
+			((IElement)edge).setProperty(WEIGHT, Integer.valueOf(random.nextInt(MAX_WEIGHT)));
+			((IElement)edge).setProperty(TIME, Long.valueOf(i));
+		}
+	}
+
+	/**
+	 * The distribution of the degrees of the vertices.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	public enum Distribution {
+		/**
+		 * Both ends of each edge are picked uniformly, the degrees follow a binomial distribution.
+		 */
+		UNIFORM,
+
+		/**
+		 * The in vertex of each edge is picked by preferential attachment, the in degrees follow a power law
+		 * with a few hubs connected to a large part of the graph.
+		 */
+		POWER_LAW,
+	}
+}
@@ -0,0 +1,191 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.benchmarks;
+
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IKeyIndexableGraph;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexCentricIndexableGraph;
+import fr.obeo.graph.api.KeyIndexType;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The generated graph shared by all the threads of a read-only benchmark. The implementation of
+ * {@link IGraph} to measure is created by the {@link GraphFactory} named by the parameter
+ * <code>graphFactory</code>, {@link GraphFactory#MEMORY}, {@link GraphFactory#MAPPED} or the qualified name
+ * of a class with a public constructor without parameters. For example, to measure the memory mapped graph:
+ * 
+ * <pre>
+ * java -jar benchmarks.jar -p graphFactory=mapped
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+	/**
+	 * The seed of the generated graphs.
+	 */
+	public static final long SEED = 42L;
+
+	/**
+	 * The number of random identifiers read in a loop by the benchmarks, a power of two.
+	 */
+	private static final int RANDOM_IDS = 1 << 16;
+
+	/**
+	 * The name of the factory of the graph to measure.
+	 */
+	@Param({GraphFactory.MEMORY, })
+	public String graphFactory;
+
+	/**
+	 * The distribution of the degrees of the vertices.
+	 */
+	@Param({"UNIFORM", "POWER_LAW", })
+	public GraphGenerator.Distribution distribution;
+
+	/**
+	 * The number of vertices.
+	 */
+	@Param({"100000", })
+	public int vertices;
+
+	/**
+	 * The average number of outgoing edges per vertex.
+	 */
+	@Param({"10", })
+	public int degree;
+
+	/**
+	 * Indicates if the properties {@link GraphGenerator#AGE} of the vertices and
+	 * {@link GraphGenerator#WEIGHT} of the edges are indexed when the graph is an {@link IKeyIndexableGraph},
+	 * and if the edges incident to each vertex are indexed by {@link GraphGenerator#WEIGHT} when the graph is
+	 * an {@link IVertexCentricIndexableGraph}.
+	 */
+	@Param({"true", "false", })
+	public boolean indexed;
+
+	/**
+	 * The factory of the graph.
+	 */
+	private GraphFactory factory;
+
+	/**
+	 * The graph.
+	 */
+	private IGraph graph;
+
+	/**
+	 * Random identifiers of vertices.
+	 */
+	private Object[] vertexIds;
+
+	/**
+	 * Random identifiers of edges.
+	 */
+	private Object[] edgeIds;
+
+	/**
+	 * Creates and fills the graph.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.factory = GraphFactory.forName(this.graphFactory);
+		this.graph = this.factory.create();
+		if (this.indexed && this.graph instanceof IKeyIndexableGraph) {
+			IKeyIndexableGraph indexableGraph = (IKeyIndexableGraph)this.graph;
+			indexableGraph.createKeyIndex(GraphGenerator.AGE, IVertex.class, KeyIndexType.SORTED);
+			indexableGraph.createKeyIndex(GraphGenerator.WEIGHT, IEdge.class,
+					KeyIndexType.SORTED);
+		}
+		if (this.indexed && this.graph instanceof IVertexCentricIndexableGraph) {
+			((IVertexCentricIndexableGraph)this.graph).createVertexCentricIndex(GraphGenerator.WEIGHT);
+		}
+		GraphGenerator.generate(this.graph, this.distribution, this.vertices, this.degree, SEED);
+
+		Random random = new Random(SEED);
+		this.vertexIds = new Object[RANDOM_IDS];
+		this.edgeIds = new Object[RANDOM_IDS];
+		long edges = (long)this.vertices * this.degree;
+		for (int i = 0; i < RANDOM_IDS; i++) {
+			this.vertexIds[i] = Integer.valueOf(random.nextInt(this.vertices));
+			this.edgeIds[i] = Long.valueOf((long)(random.nextDouble() * edges));
+		}
+	}
+
+	/**
+	 * Shuts the graph down and releases its resources.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.factory.dispose(this.graph);
+	}
+
+	/**
+	 * Returns the graph.
+	 * 
+	 * @return The graph
+	 */
+	public IGraph getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * Returns the identifier of a random vertex.
+	 * 
+	 * @param position
+	 *            The position of the identifier, wrapped around the number of random identifiers
+	 * @return The identifier of a random vertex
+	 */
+	public Object getVertexId(int position) {
+		return this.vertexIds[position & (RANDOM_IDS - 1)];
+	}
+
+	/**
+	 * Returns the identifier of a random edge.
+	 * 
+	 * @param position
+	 *            The position of the identifier, wrapped around the number of random identifiers
+	 * @return The identifier of a random edge
+	 */
+	public Object getEdgeId(int position) {
+		return this.edgeIds[position & (RANDOM_IDS - 1)];
+	}
+}
@@ -0,0 +1,141 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.benchmarks;
+
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the throughput of {@link IGraph#addVertex(Object)} and
+ * {@link IGraph#addEdge(Object, IVertex, IVertex, String)} with identifiers generated by the graph. Each
+ * thread fills its own graph, which is recreated for each iteration.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MutationBenchmark {
+	/**
+	 * The number of vertices created before each iteration to be connected by the new edges, a power of two.
+	 */
+	private static final int ANCHORS = 1 << 10;
+
+	/**
+	 * The multiplier spreading the in vertices of the new edges over the anchors, an odd number.
+	 */
+	private static final int SPREAD = 31;
+
+	/**
+	 * The name of the {@link GraphFactory} of the graph to measure.
+	 */
+	@Param({GraphFactory.MEMORY, })
+	public String graphFactory;
+
+	/**
+	 * The factory of the graph.
+	 */
+	private GraphFactory factory;
+
+	/**
+	 * The graph.
+	 */
+	private IGraph graph;
+
+	/**
+	 * The vertices connected by the new edges.
+	 */
+	private IVertex[] anchors;
+
+	/**
+	 * The number of edges added during the iteration.
+	 */
+	private int edges;
+
+	/**
+	 * Creates an empty graph with the anchors.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		this.factory = GraphFactory.forName(this.graphFactory);
+		this.graph = this.factory.create();
+		this.anchors = new IVertex[ANCHORS];
+		for (int i = 0; i < ANCHORS; i++) {
+			this.anchors[i] = this.graph.addVertex(null);
+		}
+		this.edges = 0;
+	}
+
+	/**
+	 * Shuts the graph down and releases its resources.
+	 */
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		this.factory.dispose(this.graph);
+	}
+
+	/**
+	 * Adds a vertex.
+	 * 
+	 * @return The new vertex
+	 */
+	@Benchmark
+	public IVertex addVertex() {
+		return this.graph.addVertex(null);
+	}
+
+	/**
+	 * Adds an edge between two anchors.
+	 * 
+	 * @return The new edge
+	 */
+	@Benchmark
+	public IEdge addEdge() {
+		this.edges++;
+		IVertex outVertex = this.anchors[this.edges & (ANCHORS - 1)];
+		IVertex inVertex = this.anchors[(this.edges * SPREAD) & (ANCHORS - 1)];
+		String label = GraphGenerator.LABELS[(this.edges & Integer.MAX_VALUE) % GraphGenerator.LABELS.length];
+		return this.graph.addEdge(null, outVertex, inVertex, label);
+	}
+}
@@ -0,0 +1,176 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.benchmarks;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the graph queries and the vertex queries filtering with <code>has</code>, <code>interval</code>
+ * and <code>limit</code>. The selectivity of the filters is known from the
+ * {@link GraphGenerator}: an equality on {@link GraphGenerator#AGE} matches 1% of the vertices and an
+ * interval of ten values 10% of them.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+	/**
+	 * The limit of the limited queries.
+	 */
+	private static final int LIMIT = 10;
+
+	/**
+	 * The width of the intervals of ages.
+	 */
+	private static final int AGE_INTERVAL = 10;
+
+	/**
+	 * The width of the intervals of weights.
+	 */
+	private static final int WEIGHT_INTERVAL = GraphGenerator.MAX_WEIGHT / 10;
+
+	/**
+	 * The position of the next random value of the thread.
+	 */
+	private int position;
+
+	/**
+	 * Reads the vertices with a given age.
+	 * 
+	 * @param state
+	 *            The graph
+	 * @param blackhole
+	 *            Consumes the vertices
+	 */
+	@Benchmark
+	public void has(GraphState state, Blackhole blackhole) {
+		Integer age = Integer.valueOf(this.nextAge(GraphGenerator.MAX_AGE));
+		QueryBenchmark.consume(state.getGraph().query().has(GraphGenerator.AGE, age).vertices(), blackhole);
+	}
+
+	/**
+	 * Reads the vertices in an interval of ages.
+	 * 
+	 * @param state
+	 *            The graph
+	 * @param blackhole
+	 *            Consumes the vertices
+	 */
+	@Benchmark
+	public void interval(GraphState state, Blackhole blackhole) {
+		int age = this.nextAge(GraphGenerator.MAX_AGE - AGE_INTERVAL);
+		Integer startAge = Integer.valueOf(age);
+		Integer endAge = Integer.valueOf(age + AGE_INTERVAL);
+		QueryBenchmark.consume(state.getGraph().query().interval(GraphGenerator.AGE, startAge, endAge)
+				.vertices(), blackhole);
+	}
+
+	/**
+	 * Reads the first vertices with a given age.
+	 * 
+	 * @param state
+	 *            The graph
+	 * @param blackhole
+	 *            Consumes the vertices
+	 */
+	@Benchmark
+	public void hasLimit(GraphState state, Blackhole blackhole) {
+		Integer age = Integer.valueOf(this.nextAge(GraphGenerator.MAX_AGE));
+		QueryBenchmark.consume(state.getGraph().query().has(GraphGenerator.AGE, age).limit(LIMIT).vertices(),
+				blackhole);
+	}
+
+	/**
+	 * Reads the first outgoing edges of a random vertex with a given label in an interval of weights.
+	 * 
+	 * @param state
+	 *            The graph
+	 * @param blackhole
+	 *            Consumes the edges
+	 */
+	@Benchmark
+	public void vertexQuery(GraphState state, Blackhole blackhole) {
+		this.position++;
+		IVertex vertex = state.getGraph().getVertex(state.getVertexId(this.position));
+		int weight = (this.position & Integer.MAX_VALUE) % (GraphGenerator.MAX_WEIGHT - WEIGHT_INTERVAL);
+		Integer startWeight = Integer.valueOf(weight);
+		Integer endWeight = Integer.valueOf(weight + WEIGHT_INTERVAL);
+		try (ICloseableIterable<IEdge> edges = vertex.query().direction(Direction.BOTH)
+				.labels(GraphGenerator.LABELS[0]).interval(GraphGenerator.WEIGHT, startWeight, endWeight)
+				.limit(LIMIT).edges()) {
+			for (IEdge edge : edges) {
+				blackhole.consume(edge);
+			}
+		}
+	}
+
+	/**
+	 * Returns the next value to look for.
+	 * 
+	 * @param bound
+	 *            The exclusive upper bound of the value
+	 * @return The next value to look for
+	 */
+	private int nextAge(int bound) {
+		this.position++;
+		return (this.position & Integer.MAX_VALUE) % bound;
+	}
+
+	/**
+	 * Consumes the vertices of a query and closes them.
+	 * 
+	 * @param vertices
+	 *            The vertices
+	 * @param blackhole
+	 *            Consumes the vertices
+	 */
+	private static void consume(ICloseableIterable<IVertex> vertices, Blackhole blackhole) {
+		try (ICloseableIterable<IVertex> iterable = vertices) {
+			for (IVertex vertex : iterable) {
+				blackhole.consume(vertex);
+			}
+		}
+	}
+}
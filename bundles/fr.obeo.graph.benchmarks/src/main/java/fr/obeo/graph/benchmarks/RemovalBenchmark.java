@@ -0,0 +1,134 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.benchmarks;
+
+import fr.obeo.graph.api.IGraph;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link IGraph#removeVertex(fr.obeo.graph.api.IVertex)}, which also removes all the edges incident
+ * to the vertex. Removals destroy the graph, so each iteration generates a new graph and removes a batch of
+ * {@link #BATCH} vertices from it in the order of their identifiers. The result is the time of the whole
+ * batch.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = RemovalBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = RemovalBenchmark.BATCH)
+public class RemovalBenchmark {
+	/**
+	 * The number of vertices removed by each iteration.
+	 */
+	static final int BATCH = 1000;
+
+	/**
+	 * The name of the {@link GraphFactory} of the graph to measure.
+	 */
+	@Param({GraphFactory.MEMORY, })
+	public String graphFactory;
+
+	/**
+	 * The distribution of the degrees of the vertices.
+	 */
+	@Param({"UNIFORM", "POWER_LAW", })
+	public GraphGenerator.Distribution distribution;
+
+	/**
+	 * The number of vertices, at least {@link #BATCH}.
+	 */
+	@Param({"100000", })
+	public int vertices;
+
+	/**
+	 * The average number of outgoing edges per vertex.
+	 */
+	@Param({"10", })
+	public int degree;
+
+	/**
+	 * The factory of the graph.
+	 */
+	private GraphFactory factory;
+
+	/**
+	 * The graph.
+	 */
+	private IGraph graph;
+
+	/**
+	 * The identifier of the next vertex to remove.
+	 */
+	private int next;
+
+	/**
+	 * Generates a new graph.
+	 */
+	@Setup(Level.Iteration)
+	public void setUp() {
+		this.factory = GraphFactory.forName(this.graphFactory);
+		this.graph = this.factory.create();
+		GraphGenerator.generate(this.graph, this.distribution, this.vertices, this.degree, GraphState.SEED);
+		this.next = 0;
+	}
+
+	/**
+	 * Shuts the graph down and releases its resources.
+	 */
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		this.factory.dispose(this.graph);
+	}
+
+	/**
+	 * Removes the next vertex and its incident edges.
+	 */
+	@Benchmark
+	public void removeVertex() {
+		this.graph.removeVertex(this.graph.getVertex(Integer.valueOf(this.next)));
+		this.next++;
+	}
+}
@@ -0,0 +1,175 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+import fr.obeo.graph.api.IElement;
+
+import java.util.Set;
+
+/**
+ * Base class of the elements of a {@link CachedGraph}. An element wraps an element of the wrapped graph and
+ * reads its properties through the property cache of the graph. Two wrappers of the same element are equal.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractCachedElement implements IElement {
+	/**
+	 * The graph.
+	 */
+	protected final CachedGraph graph;
+
+	/**
+	 * The element of the wrapped graph.
+	 */
+	protected final IElement element;
+
+	/**
+	 * The identifier of the element, kept since the wrapped graph may forget it once the element is removed.
+	 */
+	private final Object id;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param element
+	 *            The element of the wrapped graph
+	 */
+	AbstractCachedElement(CachedGraph graph, IElement element) {
+		this.graph = graph;
+		this.element = element;
+		this.id = element.getId();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String key) {
+		return this.graph.getProperty(this, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getPropertyKeys()
+	 */
+	@Override
+	public Set<String> getPropertyKeys() {
+		return this.element.getPropertyKeys();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#setProperty(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void setProperty(String key, Object value) {
+		try {
+			this.element.setProperty(key, value);
+		} finally {
+			this.graph.invalidateProperties(this);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#removeProperty(java.lang.String)
+	 */
+	@Override
+	public Object removeProperty(String key) {
+		Object value;
+		try {
+			value = this.element.removeProperty(key);
+		} finally {
+			this.graph.invalidateProperties(this);
+		}
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getId()
+	 */
+	@Override
+	public Object getId() {
+		return this.id;
+	}
+
+	/**
+	 * Returns the element of the wrapped graph.
+	 * 
+	 * @return The element of the wrapped graph
+	 */
+	IElement getBaseElement() {
+		return this.element;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.id.hashCode();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		boolean equal = false;
+		if (obj != null && this.getClass().equals(obj.getClass())) {
+			AbstractCachedElement cachedElement = (AbstractCachedElement)obj;
+			equal = this.graph == cachedElement.graph && this.id.equals(cachedElement.id);
+		}
+		return equal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return this.element.toString();
+	}
+}
@@ -0,0 +1,110 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.ICloseableIterator;
+
+import java.util.NoSuchElementException;
+
+/**
+ * The results read from a cache, held in an array which is never modified.
+ * 
+ * @param <T>
+ *            The kind of element returned
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ArrayIterable<T> implements ICloseableIterable<T> {
+	/**
+	 * The elements.
+	 */
+	private final Object[] elements;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param elements
+	 *            The elements, all of the kind returned
+	 */
+	ArrayIterable(Object[] elements) {
+		this.elements = elements;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ICloseableIterable#iterator()
+	 */
+	@Override
+	public ICloseableIterator<T> iterator() {
+		return new ICloseableIterator<T>() {
+			/**
+			 * The position of the next element.
+			 */
+			private int position;
+
+			@Override
+			public boolean hasNext() {
+				return this.position < ArrayIterable.this.elements.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public T next() {
+				if (!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T next = (T)ArrayIterable.this.elements[this.position];
+				this.position++;
+				return next;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				this.position = ArrayIterable.this.elements.length;
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ICloseableIterable#close()
+	 */
+	@Override
+	public void close() {
+		// the iterators do not hold any resource
+	}
+}
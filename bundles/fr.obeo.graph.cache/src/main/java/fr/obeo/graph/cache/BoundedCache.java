@@ -0,0 +1,504 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache bounded by the total weight of its entries, evicting them with the W-TinyLFU policy. The new
+ * entries enter a small window evicted in LRU order, which absorbs the bursts of accesses. An entry leaving
+ * the window is only admitted in the main space if it has been accessed more often recently than the entry
+ * it would evict, the frequencies being estimated by a {@link FrequencySketch}. The main space is a
+ * segmented LRU: the entries admitted are on probation until they are accessed again, then protected.
+ * <p>
+ * All the operations are synchronized on the cache.
+ * </p>
+ * 
+ * @param <K>
+ *            The type of the keys
+ * @param <V>
+ *            The type of the values
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class BoundedCache<K, V> {
+	/**
+	 * The share of the maximum weight given to the window, in percents.
+	 */
+	private static final int WINDOW_PERCENT = 1;
+
+	/**
+	 * The share of the main space given to the protected entries, in percents.
+	 */
+	private static final int PROTECTED_PERCENT = 80;
+
+	/**
+	 * One hundred percents.
+	 */
+	private static final int PERCENT = 100;
+
+	/**
+	 * The queue of the entries of the window.
+	 */
+	private static final int WINDOW = 0;
+
+	/**
+	 * The queue of the entries of the main space on probation.
+	 */
+	private static final int PROBATION = 1;
+
+	/**
+	 * The queue of the protected entries of the main space.
+	 */
+	private static final int PROTECTED = 2;
+
+	/**
+	 * The entries by key.
+	 */
+	private final Map<K, Node<K, V>> nodes = new HashMap<K, Node<K, V>>();
+
+	/**
+	 * The queues of the entries, from the least recently used to the most recently used.
+	 */
+	private final Queue<K, V>[] queues;
+
+	/**
+	 * The frequencies of the recent accesses.
+	 */
+	private final FrequencySketch sketch;
+
+	/**
+	 * The maximum total weight of the entries.
+	 */
+	private final long maximumWeight;
+
+	/**
+	 * The maximum weight of the window.
+	 */
+	private final long windowMaximum;
+
+	/**
+	 * The maximum weight of the protected entries.
+	 */
+	private final long protectedMaximum;
+
+	/**
+	 * The number of lookups which have found an entry.
+	 */
+	private long hitCount;
+
+	/**
+	 * The number of lookups which have not found an entry.
+	 */
+	private long missCount;
+
+	/**
+	 * The number of entries evicted or refused by the admission policy.
+	 */
+	private long evictionCount;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param maximumWeight
+	 *            The maximum total weight of the entries
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes" })
+	BoundedCache(long maximumWeight) {
+		if (maximumWeight < 0) {
+			throw new IllegalArgumentException("The maximum weight can not be negative: " + maximumWeight);
+		}
+		this.maximumWeight = maximumWeight;
+		this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / PERCENT);
+		this.protectedMaximum = (maximumWeight - this.windowMaximum) * PROTECTED_PERCENT / PERCENT;
+		this.queues = new Queue[] {new Queue<K, V>(), new Queue<K, V>(), new Queue<K, V>() };
+		this.sketch = new FrequencySketch(maximumWeight);
+	}
+
+	/**
+	 * Returns the value cached for the given key or <code>null</code>. The lookup is not counted in the
+	 * statistics of the cache, the caller records it with {@link #record(boolean)} once it knows whether the
+	 * value holds what it was looking for.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The value cached for the key or <code>null</code>
+	 */
+	synchronized V get(K key) {
+		this.sketch.increment(key);
+		Node<K, V> node = this.nodes.get(key);
+		V value = null;
+		if (node != null) {
+			this.onAccess(node);
+			value = node.value;
+		}
+		return value;
+	}
+
+	/**
+	 * Records a lookup in the statistics of the cache.
+	 * 
+	 * @param hit
+	 *            Whether the lookup has found what it was looking for
+	 */
+	synchronized void record(boolean hit) {
+		if (hit) {
+			this.hitCount++;
+		} else {
+			this.missCount++;
+		}
+	}
+
+	/**
+	 * Caches the given value for the given key, replacing the value previously cached. A value heavier than
+	 * the maximum weight of the cache is not cached.
+	 * 
+	 * @param key
+	 *            The key
+	 * @param value
+	 *            The value
+	 * @param weight
+	 *            The weight of the value, at least 1
+	 */
+	synchronized void put(K key, V value, int weight) {
+		Node<K, V> node = this.nodes.get(key);
+		if (weight > this.maximumWeight) {
+			if (node != null) {
+				this.unlink(node);
+			}
+		} else if (node != null) {
+			this.queues[node.queue].weight += weight - node.weight;
+			node.value = value;
+			node.weight = weight;
+			this.onAccess(node);
+			this.evict();
+		} else {
+			node = new Node<K, V>(key, value, weight);
+			this.nodes.put(key, node);
+			this.queues[WINDOW].addLast(node);
+			this.evict();
+		}
+	}
+
+	/**
+	 * Removes the value cached for the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 */
+	synchronized void invalidate(K key) {
+		Node<K, V> node = this.nodes.get(key);
+		if (node != null) {
+			this.unlink(node);
+		}
+	}
+
+	/**
+	 * Removes all the values cached.
+	 */
+	synchronized void invalidateAll() {
+		this.nodes.clear();
+		for (Queue<K, V> queue : this.queues) {
+			queue.clear();
+		}
+	}
+
+	/**
+	 * Returns a snapshot of the statistics of the cache.
+	 * 
+	 * @return The statistics of the cache
+	 */
+	synchronized CacheStatistics statistics() {
+		long weight = 0;
+		for (Queue<K, V> queue : this.queues) {
+			weight += queue.weight;
+		}
+		return new CacheStatistics(this.hitCount, this.missCount, this.evictionCount, this.nodes.size(),
+				weight);
+	}
+
+	/**
+	 * Moves the given entry after an access: an entry of the window or a protected entry becomes the most
+	 * recently used of its queue, an entry on probation is protected.
+	 * 
+	 * @param node
+	 *            The entry accessed
+	 */
+	private void onAccess(Node<K, V> node) {
+		Queue<K, V> queue = this.queues[node.queue];
+		queue.remove(node);
+		if (node.queue == PROBATION) {
+			node.queue = PROTECTED;
+			queue = this.queues[PROTECTED];
+		}
+		queue.addLast(node);
+		Queue<K, V> protectedQueue = this.queues[PROTECTED];
+		while (protectedQueue.weight > this.protectedMaximum && protectedQueue.first() != null) {
+			Node<K, V> demoted = protectedQueue.first();
+			protectedQueue.remove(demoted);
+			demoted.queue = PROBATION;
+			this.queues[PROBATION].addLast(demoted);
+		}
+	}
+
+	/**
+	 * Moves the entries exceeding the window to the main space if the admission policy accepts them, then
+	 * evicts the least recently used entries until the cache fits in its maximum weight.
+	 */
+	private void evict() {
+		Queue<K, V> window = this.queues[WINDOW];
+		List<Node<K, V>> candidates = new ArrayList<Node<K, V>>();
+		while (window.weight > this.windowMaximum && window.first() != null) {
+			Node<K, V> candidate = window.first();
+			window.remove(candidate);
+			candidates.add(candidate);
+		}
+		for (Node<K, V> candidate : candidates) {
+			this.admit(candidate);
+		}
+		Node<K, V> victim = this.victim();
+		while (this.totalWeight() > this.maximumWeight && victim != null) {
+			this.unlink(victim);
+			this.evictionCount++;
+			victim = this.victim();
+		}
+	}
+
+	/**
+	 * Admits the given entry leaving the window on probation in the main space, evicting the entries of the
+	 * main space less frequently used than the entry to make room for it, or refuses it.
+	 * 
+	 * @param candidate
+	 *            The entry leaving the window
+	 */
+	private void admit(Node<K, V> candidate) {
+		int frequency = this.sketch.frequency(candidate.key);
+		Node<K, V> victim = this.mainVictim();
+		while (this.totalWeight() + candidate.weight > this.maximumWeight && victim != null
+				&& this.sketch.frequency(victim.key) < frequency) {
+			this.unlink(victim);
+			this.evictionCount++;
+			victim = this.mainVictim();
+		}
+		if (this.totalWeight() + candidate.weight > this.maximumWeight) {
+			this.nodes.remove(candidate.key);
+			this.evictionCount++;
+		} else {
+			candidate.queue = PROBATION;
+			this.queues[PROBATION].addLast(candidate);
+		}
+	}
+
+	/**
+	 * Returns the least recently used entry of the main space, on probation first, or <code>null</code>.
+	 * 
+	 * @return The next victim of the main space or <code>null</code>
+	 */
+	private Node<K, V> mainVictim() {
+		Node<K, V> victim = this.queues[PROBATION].first();
+		if (victim == null) {
+			victim = this.queues[PROTECTED].first();
+		}
+		return victim;
+	}
+
+	/**
+	 * Returns the next entry to evict: the least recently used entry of the main space, on probation first,
+	 * or of the window, or <code>null</code> if the cache is empty.
+	 * 
+	 * @return The next entry to evict or <code>null</code>
+	 */
+	private Node<K, V> victim() {
+		Node<K, V> victim = this.mainVictim();
+		if (victim == null) {
+			victim = this.queues[WINDOW].first();
+		}
+		return victim;
+	}
+
+	/**
+	 * Returns the total weight of the entries.
+	 * 
+	 * @return The total weight of the entries
+	 */
+	private long totalWeight() {
+		return this.queues[WINDOW].weight + this.queues[PROBATION].weight + this.queues[PROTECTED].weight;
+	}
+
+	/**
+	 * Removes the given entry from the cache.
+	 * 
+	 * @param node
+	 *            The entry
+	 */
+	private void unlink(Node<K, V> node) {
+		this.queues[node.queue].remove(node);
+		this.nodes.remove(node.key);
+	}
+
+	/**
+	 * An entry of the cache, linked in the queue of its segment.
+	 * 
+	 * @param <K>
+	 *            The type of the key
+	 * @param <V>
+	 *            The type of the value
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Node<K, V> {
+		/**
+		 * The key.
+		 */
+		private final K key;
+
+		/**
+		 * The value.
+		 */
+		private V value;
+
+		/**
+		 * The weight of the value.
+		 */
+		private int weight;
+
+		/**
+		 * The queue of the entry.
+		 */
+		private int queue = WINDOW;
+
+		/**
+		 * The previous entry of the queue.
+		 */
+		private Node<K, V> previous;
+
+		/**
+		 * The next entry of the queue.
+		 */
+		private Node<K, V> next;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param key
+		 *            The key
+		 * @param value
+		 *            The value
+		 * @param weight
+		 *            The weight of the value
+		 */
+		Node(K key, V value, int weight) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * A queue of entries ordered from the least recently used to the most recently used, as a circular doubly
+	 * linked list around a sentinel.
+	 * 
+	 * @param <K>
+	 *            The type of the keys
+	 * @param <V>
+	 *            The type of the values
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Queue<K, V> {
+		/**
+		 * The sentinel of the list.
+		 */
+		private final Node<K, V> head = new Node<K, V>(null, null, 0);
+
+		/**
+		 * The total weight of the entries of the queue.
+		 */
+		private long weight;
+
+		/**
+		 * The constructor.
+		 */
+		Queue() {
+			this.head.previous = this.head;
+			this.head.next = this.head;
+		}
+
+		/**
+		 * Returns the least recently used entry or <code>null</code> if the queue is empty.
+		 * 
+		 * @return The least recently used entry or <code>null</code>
+		 */
+		Node<K, V> first() {
+			Node<K, V> first = null;
+			if (this.head.next != this.head) {
+				first = this.head.next;
+			}
+			return first;
+		}
+
+		/**
+		 * Appends the given entry as the most recently used one.
+		 * 
+		 * @param node
+		 *            The entry
+		 */
+		void addLast(Node<K, V> node) {
+			node.previous = this.head.previous;
+			node.next = this.head;
+			this.head.previous.next = node;
+			this.head.previous = node;
+			this.weight += node.weight;
+		}
+
+		/**
+		 * Removes the given entry of the queue.
+		 * 
+		 * @param node
+		 *            The entry
+		 */
+		void remove(Node<K, V> node) {
+			node.previous.next = node.next;
+			node.next.previous = node.previous;
+			node.previous = null;
+			node.next = null;
+			this.weight -= node.weight;
+		}
+
+		/**
+		 * Removes all the entries of the queue.
+		 */
+		void clear() {
+			this.head.previous = this.head;
+			this.head.next = this.head;
+			this.weight = 0;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+/**
+ * A snapshot of the statistics of one of the caches of a {@link CachedGraph}.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class CacheStatistics {
+	/**
+	 * The number of lookups which have found an entry.
+	 */
+	private final long hitCount;
+
+	/**
+	 * The number of lookups which have not found an entry.
+	 */
+	private final long missCount;
+
+	/**
+	 * The number of entries evicted or refused by the admission policy.
+	 */
+	private final long evictionCount;
+
+	/**
+	 * The number of entries.
+	 */
+	private final int size;
+
+	/**
+	 * The total weight of the entries.
+	 */
+	private final long weight;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param hitCount
+	 *            The number of lookups which have found an entry
+	 * @param missCount
+	 *            The number of lookups which have not found an entry
+	 * @param evictionCount
+	 *            The number of entries evicted or refused by the admission policy
+	 * @param size
+	 *            The number of entries
+	 * @param weight
+	 *            The total weight of the entries
+	 */
+	CacheStatistics(long hitCount, long missCount, long evictionCount, int size, long weight) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.size = size;
+		this.weight = weight;
+	}
+
+	/**
+	 * Returns the number of lookups which have found an entry.
+	 * 
+	 * @return The number of hits
+	 */
+	public long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups which have not found an entry.
+	 * 
+	 * @return The number of misses
+	 */
+	public long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Returns the ratio of the lookups which have found an entry, 1 if there has not been any lookup.
+	 * 
+	 * @return The hit rate, between 0 and 1
+	 */
+	public double getHitRate() {
+		long requestCount = this.hitCount + this.missCount;
+		double hitRate = 1;
+		if (requestCount > 0) {
+			hitRate = (double)this.hitCount / requestCount;
+		}
+		return hitRate;
+	}
+
+	/**
+	 * Returns the number of entries evicted or refused by the admission policy.
+	 * 
+	 * @return The number of evictions
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return The number of entries
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the total weight of the entries.
+	 * 
+	 * @return The total weight of the entries
+	 */
+	public long getWeight() {
+		return this.weight;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "hits=" + this.hitCount + ", misses=" + this.missCount + ", evictions=" + this.evictionCount
+				+ ", size=" + this.size + ", weight=" + this.weight;
+	}
+}
@@ -0,0 +1,99 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * An edge of a {@link CachedGraph}. Its vertices are read through the element cache of the graph.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class CachedEdge extends AbstractCachedElement implements IEdge {
+	/**
+	 * The edge of the wrapped graph.
+	 */
+	private final IEdge edge;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param edge
+	 *            The edge of the wrapped graph
+	 */
+	CachedEdge(CachedGraph graph, IEdge edge) {
+		super(graph, (IElement)edge);
+		this.edge = edge;
+	}
+
+	/**
+	 * Returns the edge of the wrapped graph.
+	 * 
+	 * @return The edge of the wrapped graph
+	 */
+	IEdge getBaseEdge() {
+		return this.edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getVertex(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertex getVertex(Direction direction) {
+		return this.graph.wrap(this.edge.getVertex(direction));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getLabel()
+	 */
+	@Override
+	public String getLabel() {
+		return this.edge.getLabel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.graph.removeEdge(this);
+	}
+}
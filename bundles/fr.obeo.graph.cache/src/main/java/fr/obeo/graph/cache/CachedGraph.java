@@ -0,0 +1,749 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IGraphMonitor;
+import fr.obeo.graph.api.IGraphQuery;
+import fr.obeo.graph.api.IMonitorableGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A graph caching the reads of another graph, for graphs backed by a slow store. The graph keeps four
+ * bounded caches: the vertices and the edges by identifier, the incident edges and the adjacent vertices of
+ * the vertices by direction and labels, and the properties of the elements. The caches are bounded by the
+ * number of elements and by the number of adjacent elements and properties they hold, and they evict their
+ * entries with the W-TinyLFU policy which keeps the frequently read entries even when large scans go through
+ * the graph.
+ * <p>
+ * The elements returned by the graph wrap the elements of the wrapped graph and all the modifications must be
+ * made through them: adding or removing an edge invalidates the adjacency of its vertices, removing a
+ * vertex invalidates the adjacency of its neighbours and modifying a property invalidates the properties of
+ * its element. The queries and the iterations over all the elements are not cached.
+ * </p>
+ * <p>
+ * The lookups in the caches are reported to the monitor of the graph as "CachedGraph.vertices",
+ * "CachedGraph.edges", "CachedGraph.adjacency" and "CachedGraph.properties".
+ * </p>
+ * <p>
+ * The caches are thread safe. A value read from the wrapped graph while it is modified by another thread may
+ * be cached after the invalidation caused by the modification, the graph should thus not be read and
+ * modified concurrently.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class CachedGraph implements IMonitorableGraph {
+	/**
+	 * The value cached for a property that the element does not have.
+	 */
+	private static final Object NO_VALUE = new Object();
+
+	/**
+	 * The name of the cache of the vertices reported to the monitor.
+	 */
+	private static final String VERTICES = "CachedGraph.vertices";
+
+	/**
+	 * The name of the cache of the edges reported to the monitor.
+	 */
+	private static final String EDGES = "CachedGraph.edges";
+
+	/**
+	 * The name of the cache of the adjacency reported to the monitor.
+	 */
+	private static final String ADJACENCY = "CachedGraph.adjacency";
+
+	/**
+	 * The name of the cache of the properties reported to the monitor.
+	 */
+	private static final String PROPERTIES = "CachedGraph.properties";
+
+	/**
+	 * The wrapped graph.
+	 */
+	private final IGraph graph;
+
+	/**
+	 * The vertices by identifier.
+	 */
+	private final BoundedCache<Object, CachedVertex> vertices;
+
+	/**
+	 * The edges by identifier.
+	 */
+	private final BoundedCache<Object, CachedEdge> edges;
+
+	/**
+	 * The incident edges and adjacent vertices of each vertex, weighted by their number.
+	 */
+	private final BoundedCache<CachedVertex, Map<AdjacencyKey, Object[]>> adjacency;
+
+	/**
+	 * The properties read of each element, weighted by their number.
+	 */
+	private final BoundedCache<AbstractCachedElement, Map<String, Object>> properties;
+
+	/**
+	 * The monitor of the graph, <code>null</code> if the graph is not monitored.
+	 */
+	private volatile IGraphMonitor monitor;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The wrapped graph
+	 * @param maximumElements
+	 *            The maximum number of vertices and the maximum number of edges cached by identifier
+	 * @param maximumAdjacency
+	 *            The maximum number of incident edges and adjacent vertices cached
+	 * @param maximumProperties
+	 *            The maximum number of properties cached
+	 */
+	public CachedGraph(IGraph graph, long maximumElements, long maximumAdjacency, long maximumProperties) {
+		this.graph = graph;
+		this.vertices = new BoundedCache<Object, CachedVertex>(maximumElements);
+		this.edges = new BoundedCache<Object, CachedEdge>(maximumElements);
+		this.adjacency = new BoundedCache<CachedVertex, Map<AdjacencyKey, Object[]>>(maximumAdjacency);
+		this.properties = new BoundedCache<AbstractCachedElement, Map<String, Object>>(maximumProperties);
+	}
+
+	/**
+	 * Returns the wrapped graph.
+	 * 
+	 * @return The wrapped graph
+	 */
+	public IGraph getBaseGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * Returns the statistics of the cache of the vertices by identifier.
+	 * 
+	 * @return The statistics of the cache of the vertices
+	 */
+	public CacheStatistics getVertexCacheStatistics() {
+		return this.vertices.statistics();
+	}
+
+	/**
+	 * Returns the statistics of the cache of the edges by identifier.
+	 * 
+	 * @return The statistics of the cache of the edges
+	 */
+	public CacheStatistics getEdgeCacheStatistics() {
+		return this.edges.statistics();
+	}
+
+	/**
+	 * Returns the statistics of the cache of the incident edges and adjacent vertices.
+	 * 
+	 * @return The statistics of the cache of the adjacency
+	 */
+	public CacheStatistics getAdjacencyCacheStatistics() {
+		return this.adjacency.statistics();
+	}
+
+	/**
+	 * Returns the statistics of the cache of the properties.
+	 * 
+	 * @return The statistics of the cache of the properties
+	 */
+	public CacheStatistics getPropertyCacheStatistics() {
+		return this.properties.statistics();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IMonitorableGraph#setMonitor(fr.obeo.graph.api.IGraphMonitor)
+	 */
+	@Override
+	public void setMonitor(IGraphMonitor newMonitor) {
+		this.monitor = newMonitor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IMonitorableGraph#getMonitor()
+	 */
+	@Override
+	public IGraphMonitor getMonitor() {
+		return this.monitor;
+	}
+
+	/**
+	 * Removes all the cached values.
+	 */
+	public void invalidateAll() {
+		this.vertices.invalidateAll();
+		this.edges.invalidateAll();
+		this.adjacency.invalidateAll();
+		this.properties.invalidateAll();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex addVertex(Object id) {
+		CachedVertex vertex = this.wrap(this.graph.addVertex(id));
+		this.vertices.put(vertex.getId(), vertex, 1);
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex getVertex(Object id) {
+		CachedVertex vertex = null;
+		if (id != null) {
+			vertex = this.vertices.get(id);
+			this.record(this.vertices, VERTICES, vertex != null);
+		}
+		if (vertex == null) {
+			vertex = this.wrap(this.graph.getVertex(id));
+			if (vertex != null) {
+				this.vertices.put(id, vertex, 1);
+			}
+		}
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeVertex(fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public void removeVertex(IVertex vertex) {
+		CachedVertex cachedVertex = this.unwrap(vertex);
+		List<CachedEdge> incidentEdges = new ArrayList<CachedEdge>();
+		List<CachedVertex> neighbours = new ArrayList<CachedVertex>();
+		try (ICloseableIterable<IEdge> baseEdges = cachedVertex.getBaseVertex().getEdges(Direction.BOTH)) {
+			for (IEdge edge : baseEdges) {
+				incidentEdges.add(this.wrap(edge));
+				neighbours.add(this.wrap(edge.getVertex(Direction.OUT)));
+				neighbours.add(this.wrap(edge.getVertex(Direction.IN)));
+			}
+		}
+		try {
+			this.graph.removeVertex(cachedVertex.getBaseVertex());
+		} finally {
+			for (int i = 0; i < incidentEdges.size(); i++) {
+				this.invalidateEdge(incidentEdges.get(i), neighbours.get(2 * i), neighbours.get(2 * i + 1));
+			}
+			this.vertices.invalidate(cachedVertex.getId());
+			this.adjacency.invalidate(cachedVertex);
+			this.properties.invalidate(cachedVertex);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices() {
+		return this.wrapVertices(this.graph.getVertices());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(String key, Object value) {
+		return this.wrapVertices(this.graph.getVertices(key, value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addEdge(java.lang.Object, fr.obeo.graph.api.IVertex,
+	 *      fr.obeo.graph.api.IVertex, java.lang.String)
+	 */
+	@Override
+	public IEdge addEdge(Object id, IVertex outVertex, IVertex inVertex, String label) {
+		CachedVertex out = this.unwrap(outVertex);
+		CachedVertex in = this.unwrap(inVertex);
+		CachedEdge edge;
+		try {
+			edge = this.wrap(this.graph.addEdge(id, out.getBaseVertex(), in.getBaseVertex(), label));
+		} finally {
+			this.adjacency.invalidate(out);
+			this.adjacency.invalidate(in);
+		}
+		this.edges.put(edge.getId(), edge, 1);
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdge(java.lang.Object)
+	 */
+	@Override
+	public IEdge getEdge(Object id) {
+		CachedEdge edge = null;
+		if (id != null) {
+			edge = this.edges.get(id);
+			this.record(this.edges, EDGES, edge != null);
+		}
+		if (edge == null) {
+			edge = this.wrap(this.graph.getEdge(id));
+			if (edge != null) {
+				this.edges.put(id, edge, 1);
+			}
+		}
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeEdge(fr.obeo.graph.api.IEdge)
+	 */
+	@Override
+	public void removeEdge(IEdge edge) {
+		if (!(edge instanceof CachedEdge) || ((CachedEdge)edge).graph != this) {
+			throw new IllegalArgumentException("The edge does not belong to this graph: " + edge);
+		}
+		CachedEdge cachedEdge = (CachedEdge)edge;
+		IEdge baseEdge = cachedEdge.getBaseEdge();
+		CachedVertex out = this.wrap(baseEdge.getVertex(Direction.OUT));
+		CachedVertex in = this.wrap(baseEdge.getVertex(Direction.IN));
+		try {
+			this.graph.removeEdge(baseEdge);
+		} finally {
+			this.invalidateEdge(cachedEdge, out, in);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges() {
+		return this.wrapEdges(this.graph.getEdges());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(String key, Object value) {
+		return this.wrapEdges(this.graph.getEdges(key, value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#query()
+	 */
+	@Override
+	public IGraphQuery query() {
+		return new CachedGraphQuery(this, this.graph.query());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		this.invalidateAll();
+		this.graph.shutdown();
+	}
+
+	/**
+	 * Returns the value of a property of the given element, read from the property cache.
+	 * 
+	 * @param element
+	 *            The element
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property or <code>null</code>
+	 */
+	Object getProperty(AbstractCachedElement element, String key) {
+		Map<String, Object> cached = this.properties.get(element);
+		Object value = null;
+		if (cached != null) {
+			value = cached.get(key);
+		}
+		this.record(this.properties, PROPERTIES, value != null);
+		if (value == null) {
+			value = element.getBaseElement().getProperty(key);
+			Map<String, Object> updated;
+			if (cached == null) {
+				updated = new HashMap<String, Object>();
+			} else {
+				updated = new HashMap<String, Object>(cached);
+			}
+			if (value == null) {
+				updated.put(key, NO_VALUE);
+			} else {
+				updated.put(key, value);
+			}
+			this.properties.put(element, updated, updated.size());
+		} else if (value == NO_VALUE) {
+			value = null;
+		}
+		return value;
+	}
+
+	/**
+	 * Removes the cached properties of the given element.
+	 * 
+	 * @param element
+	 *            The element
+	 */
+	void invalidateProperties(AbstractCachedElement element) {
+		this.properties.invalidate(element);
+	}
+
+	/**
+	 * Returns the incident edges of the given vertex, read from the adjacency cache.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @param direction
+	 *            The direction of the edges
+	 * @param labels
+	 *            The labels of the edges
+	 * @return The incident edges of the vertex
+	 */
+	ICloseableIterable<IEdge> getAdjacentEdges(CachedVertex vertex, Direction direction, String... labels) {
+		AdjacencyKey key = new AdjacencyKey(true, direction, labels);
+		Object[] adjacentEdges = this.getAdjacency(vertex, key);
+		if (adjacentEdges == null) {
+			List<Object> wrappers = new ArrayList<Object>();
+			try (ICloseableIterable<IEdge> baseEdges = vertex.getBaseVertex().getEdges(direction, labels)) {
+				for (IEdge edge : baseEdges) {
+					wrappers.add(this.wrap(edge));
+				}
+			}
+			adjacentEdges = wrappers.toArray();
+			this.putAdjacency(vertex, key, adjacentEdges);
+		}
+		return new ArrayIterable<IEdge>(adjacentEdges);
+	}
+
+	/**
+	 * Returns the adjacent vertices of the given vertex, read from the adjacency cache.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @param direction
+	 *            The direction of the edges
+	 * @param labels
+	 *            The labels of the edges
+	 * @return The adjacent vertices of the vertex
+	 */
+	ICloseableIterable<IVertex> getAdjacentVertices(CachedVertex vertex, Direction direction,
+			String... labels) {
+		AdjacencyKey key = new AdjacencyKey(false, direction, labels);
+		Object[] adjacentVertices = this.getAdjacency(vertex, key);
+		if (adjacentVertices == null) {
+			List<Object> wrappers = new ArrayList<Object>();
+			IVertex baseVertex = vertex.getBaseVertex();
+			try (ICloseableIterable<IVertex> baseVertices = baseVertex.getVertices(direction, labels)) {
+				for (IVertex adjacentVertex : baseVertices) {
+					wrappers.add(this.wrap(adjacentVertex));
+				}
+			}
+			adjacentVertices = wrappers.toArray();
+			this.putAdjacency(vertex, key, adjacentVertices);
+		}
+		return new ArrayIterable<IVertex>(adjacentVertices);
+	}
+
+	/**
+	 * Returns the cached adjacent elements of the given vertex for the given key or <code>null</code>.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @param key
+	 *            The direction, the labels and the kind of the adjacent elements
+	 * @return The cached adjacent elements or <code>null</code>
+	 */
+	private Object[] getAdjacency(CachedVertex vertex, AdjacencyKey key) {
+		Map<AdjacencyKey, Object[]> cached = this.adjacency.get(vertex);
+		Object[] elements = null;
+		if (cached != null) {
+			elements = cached.get(key);
+		}
+		this.record(this.adjacency, ADJACENCY, elements != null);
+		return elements;
+	}
+
+	/**
+	 * Caches the adjacent elements of the given vertex for the given key.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @param key
+	 *            The direction, the labels and the kind of the adjacent elements
+	 * @param elements
+	 *            The adjacent elements
+	 */
+	private void putAdjacency(CachedVertex vertex, AdjacencyKey key, Object[] elements) {
+		Map<AdjacencyKey, Object[]> cached = this.adjacency.get(vertex);
+		Map<AdjacencyKey, Object[]> updated;
+		if (cached == null) {
+			updated = new HashMap<AdjacencyKey, Object[]>();
+		} else {
+			updated = new HashMap<AdjacencyKey, Object[]>(cached);
+		}
+		updated.put(key, elements);
+		long weight = 0;
+		for (Object[] value : updated.values()) {
+			weight += value.length + 1;
+		}
+		this.adjacency.put(vertex, updated, (int)Math.min(Integer.MAX_VALUE, weight));
+	}
+
+	/**
+	 * Records a lookup in the given cache and reports it to the monitor of the graph.
+	 * 
+	 * @param cache
+	 *            The cache
+	 * @param name
+	 *            The name of the cache reported to the monitor
+	 * @param hit
+	 *            <code>true</code> if the lookup found the value, <code>false</code> otherwise
+	 */
+	private void record(BoundedCache<?, ?> cache, String name, boolean hit) {
+		cache.record(hit);
+		IGraphMonitor currentMonitor = this.monitor;
+		if (currentMonitor != null) {
+			currentMonitor.recordLookup(name, hit);
+		}
+	}
+
+	/**
+	 * Removes the cached values depending on the given edge.
+	 * 
+	 * @param edge
+	 *            The edge
+	 * @param out
+	 *            The outgoing vertex of the edge
+	 * @param in
+	 *            The incoming vertex of the edge
+	 */
+	private void invalidateEdge(CachedEdge edge, CachedVertex out, CachedVertex in) {
+		this.edges.invalidate(edge.getId());
+		this.properties.invalidate(edge);
+		this.adjacency.invalidate(out);
+		this.adjacency.invalidate(in);
+	}
+
+	/**
+	 * Wraps the given vertex of the wrapped graph.
+	 * 
+	 * @param vertex
+	 *            The vertex of the wrapped graph or <code>null</code>
+	 * @return The wrapper of the vertex or <code>null</code>
+	 */
+	CachedVertex wrap(IVertex vertex) {
+		CachedVertex cachedVertex = null;
+		if (vertex != null) {
+			cachedVertex = new CachedVertex(this, vertex);
+		}
+		return cachedVertex;
+	}
+
+	/**
+	 * Wraps the given edge of the wrapped graph.
+	 * 
+	 * @param edge
+	 *            The edge of the wrapped graph or <code>null</code>
+	 * @return The wrapper of the edge or <code>null</code>
+	 */
+	CachedEdge wrap(IEdge edge) {
+		CachedEdge cachedEdge = null;
+		if (edge != null) {
+			cachedEdge = new CachedEdge(this, edge);
+		}
+		return cachedEdge;
+	}
+
+	/**
+	 * Wraps the vertices of the given results of the wrapped graph.
+	 * 
+	 * @param iterable
+	 *            The results of the wrapped graph
+	 * @return The wrapped results
+	 */
+	ICloseableIterable<IVertex> wrapVertices(ICloseableIterable<IVertex> iterable) {
+		return new WrappedIterable<IVertex>(iterable) {
+			@Override
+			protected IVertex wrap(IVertex element) {
+				return CachedGraph.this.wrap(element);
+			}
+		};
+	}
+
+	/**
+	 * Wraps the edges of the given results of the wrapped graph.
+	 * 
+	 * @param iterable
+	 *            The results of the wrapped graph
+	 * @return The wrapped results
+	 */
+	ICloseableIterable<IEdge> wrapEdges(ICloseableIterable<IEdge> iterable) {
+		return new WrappedIterable<IEdge>(iterable) {
+			@Override
+			protected IEdge wrap(IEdge element) {
+				return CachedGraph.this.wrap(element);
+			}
+		};
+	}
+
+	/**
+	 * Returns the given vertex as a vertex of this graph.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The vertex of this graph
+	 */
+	private CachedVertex unwrap(IVertex vertex) {
+		if (!(vertex instanceof CachedVertex) || ((CachedVertex)vertex).graph != this) {
+			throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertex);
+		}
+		return (CachedVertex)vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "cachedgraph[" + this.graph + "]";
+	}
+
+	/**
+	 * The key of the adjacent elements of a vertex in the adjacency cache.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class AdjacencyKey {
+		/**
+		 * Whether the adjacent elements are the incident edges or the adjacent vertices.
+		 */
+		private final boolean edges;
+
+		/**
+		 * The direction of the edges.
+		 */
+		private final Direction direction;
+
+		/**
+		 * The sorted labels of the edges.
+		 */
+		private final List<String> labels;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param edges
+		 *            Whether the adjacent elements are the incident edges or the adjacent vertices
+		 * @param direction
+		 *            The direction of the edges
+		 * @param labels
+		 *            The labels of the edges
+		 */
+		AdjacencyKey(boolean edges, Direction direction, String... labels) {
+			this.edges = edges;
+			this.direction = direction;
+			String[] sortedLabels = labels.clone();
+			Arrays.sort(sortedLabels);
+			this.labels = Collections.unmodifiableList(Arrays.asList(sortedLabels));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int hash = this.labels.hashCode();
+			hash = prime * hash + this.direction.hashCode();
+			if (this.edges) {
+				hash = prime * hash + 1;
+			}
+			return hash;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			boolean equal = false;
+			if (obj instanceof AdjacencyKey) {
+				AdjacencyKey key = (AdjacencyKey)obj;
+				equal = this.edges == key.edges && this.direction == key.direction
+						&& this.labels.equals(key.labels);
+			}
+			return equal;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+
+/**
+ * A vertex of a {@link CachedGraph}. Its incident edges and adjacent vertices are read through the adjacency
+ * cache of the graph.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class CachedVertex extends AbstractCachedElement implements IVertex {
+	/**
+	 * The vertex of the wrapped graph.
+	 */
+	private final IVertex vertex;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertex
+	 *            The vertex of the wrapped graph
+	 */
+	CachedVertex(CachedGraph graph, IVertex vertex) {
+		super(graph, (IElement)vertex);
+		this.vertex = vertex;
+	}
+
+	/**
+	 * Returns the vertex of the wrapped graph.
+	 * 
+	 * @return The vertex of the wrapped graph
+	 */
+	IVertex getBaseVertex() {
+		return this.vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getEdges(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(Direction direction, String... labels) {
+		return this.graph.getAdjacentEdges(this, direction, labels);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getVertices(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(Direction direction, String... labels) {
+		return this.graph.getAdjacentVertices(this, direction, labels);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#query()
+	 */
+	@Override
+	public IVertexQuery query() {
+		return new CachedVertexQuery(this.graph, this.vertex.query());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#addEdge(java.lang.String, fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public IEdge addEdge(String label, IVertex inVertex) {
+		return this.graph.addEdge(null, this, inVertex, label);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.graph.removeVertex(this);
+	}
+}
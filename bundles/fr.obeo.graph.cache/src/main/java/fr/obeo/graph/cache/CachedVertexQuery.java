@@ -0,0 +1,269 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+
+import java.util.Map;
+
+/**
+ * A query of the edges of a vertex of the caching graph, evaluated by the wrapped graph. The results are
+ * wrapped but not cached.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class CachedVertexQuery implements IVertexQuery {
+	/**
+	 * The caching graph.
+	 */
+	private final CachedGraph graph;
+
+	/**
+	 * The query of the wrapped graph.
+	 */
+	private final IVertexQuery query;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The caching graph
+	 * @param query
+	 *            The query of the wrapped graph
+	 */
+	CachedVertexQuery(CachedGraph graph, IVertexQuery query) {
+		this.graph = graph;
+		this.query = query;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#direction(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertexQuery direction(Direction direction) {
+		this.query.direction(direction);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#labels(java.lang.String[])
+	 */
+	@Override
+	public IVertexQuery labels(String... labels) {
+		this.query.labels(labels);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#count()
+	 */
+	@Override
+	public long count() {
+		return this.query.count();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#vertexIds()
+	 */
+	@Override
+	public Object vertexIds() {
+		return this.query.vertexIds();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#min(java.lang.String)
+	 */
+	@Override
+	public Number min(String key) {
+		return this.query.min(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#max(java.lang.String)
+	 */
+	@Override
+	public Number max(String key) {
+		return this.query.max(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#sum(java.lang.String)
+	 */
+	@Override
+	public Number sum(String key) {
+		return this.query.sum(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countBy(java.lang.String)
+	 */
+	@Override
+	public Map<Object, Long> countBy(String key) {
+		return this.query.countBy(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countByLabel()
+	 */
+	@Override
+	public Map<String, Long> countByLabel() {
+		return this.query.countByLabel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#has(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery has(String key) {
+		this.query.has(key);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key) {
+		this.query.hasNot(key);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, Object value) {
+		this.query.has(key, value);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key, Object value) {
+		this.query.hasNot(key, value);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, IPredicate predicate, Object value) {
+		this.query.has(key, predicate, value);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#interval(java.lang.String, java.lang.Comparable, java.lang.Comparable)
+	 */
+	@Override
+	public IVertexQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		this.query.interval(key, startValue, endValue);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#limit(int)
+	 */
+	@Override
+	public IVertexQuery limit(int limit) {
+		this.query.limit(limit);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#edges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> edges() {
+		return this.graph.wrapEdges(this.query.edges());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#vertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> vertices() {
+		return this.graph.wrapVertices(this.query.vertices());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		return this.query.explain();
+	}
+}
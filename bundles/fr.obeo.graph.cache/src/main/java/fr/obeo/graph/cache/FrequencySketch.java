@@ -0,0 +1,210 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.cache;
+
+/**
+ * An approximate count of the recent accesses to the keys of a cache, used by the TinyLFU admission policy of
+ * {@link BoundedCache}. The sketch is a count-min sketch of four rows of 4-bit counters packed sixteen per
+ * long: each key increments one counter per row and its frequency is the smallest of its counters. Once the
+ * number of increments reaches ten times the size of the table, all the counters are halved so that the
+ * frequencies favour the recent accesses.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class FrequencySketch {
+	/**
+	 * The seeds of the hash functions of the rows.
+	 */
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+		0xcbf29ce484222325L, };
+
+	/**
+	 * The mask clearing the high bit of each counter after a shift.
+	 */
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	/**
+	 * The largest value of a counter.
+	 */
+	private static final int MAX_COUNT = 15;
+
+	/**
+	 * The number of bits of a counter.
+	 */
+	private static final int COUNTER_BITS = 4;
+
+	/**
+	 * The number of rows of the sketch.
+	 */
+	private static final int ROWS = 4;
+
+	/**
+	 * The smallest size of the table.
+	 */
+	private static final int MIN_SIZE = 16;
+
+	/**
+	 * The largest size of the table.
+	 */
+	private static final int MAX_SIZE = 1 << 26;
+
+	/**
+	 * The number of increments between two resets, per long of the table.
+	 */
+	private static final int SAMPLE_FACTOR = 10;
+
+	/**
+	 * The shift used to fold the high bits of the hash codes on the low ones.
+	 */
+	private static final int HASH_SHIFT = 32;
+
+	/**
+	 * The constant used to spread the hash codes of the keys.
+	 */
+	private static final int HASH_SPREAD = 0x9E3779B9;
+
+	/**
+	 * The counters.
+	 */
+	private final long[] table;
+
+	/**
+	 * The mask used to compute the position of a counter in the table.
+	 */
+	private final int mask;
+
+	/**
+	 * The number of increments after which the counters are halved.
+	 */
+	private final int sampleSize;
+
+	/**
+	 * The number of increments since the last reset.
+	 */
+	private int size;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param capacity
+	 *            The expected number of keys in the cache
+	 */
+	FrequencySketch(long capacity) {
+		int length = MIN_SIZE;
+		while (length < capacity && length < MAX_SIZE) {
+			length <<= 1;
+		}
+		this.table = new long[length];
+		this.mask = length - 1;
+		this.sampleSize = length * SAMPLE_FACTOR;
+	}
+
+	/**
+	 * Returns the estimated number of recent accesses to the given key, between 0 and 15.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The estimated frequency of the key
+	 */
+	int frequency(Object key) {
+		int hash = FrequencySketch.spread(key.hashCode());
+		int start = (hash & (ROWS - 1)) * ROWS;
+		int frequency = MAX_COUNT;
+		for (int i = 0; i < ROWS; i++) {
+			int index = this.indexOf(hash, i);
+			int count = (int)((this.table[index] >>> ((start + i) * COUNTER_BITS)) & MAX_COUNT);
+			frequency = Math.min(frequency, count);
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records an access to the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 */
+	void increment(Object key) {
+		int hash = FrequencySketch.spread(key.hashCode());
+		int start = (hash & (ROWS - 1)) * ROWS;
+		boolean added = false;
+		for (int i = 0; i < ROWS; i++) {
+			int index = this.indexOf(hash, i);
+			int shift = (start + i) * COUNTER_BITS;
+			if (((this.table[index] >>> shift) & MAX_COUNT) != MAX_COUNT) {
+				this.table[index] += 1L << shift;
+				added = true;
+			}
+		}
+		if (added) {
+			this.size++;
+			if (this.size == this.sampleSize) {
+				this.reset();
+			}
+		}
+	}
+
+	/**
+	 * Halves all the counters.
+	 */
+	private void reset() {
+		for (int i = 0; i < this.table.length; i++) {
+			this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+		}
+		this.size = this.size / 2;
+	}
+
+	/**
+	 * Returns the position in the table of the counter of the given row for the given hash.
+	 * 
+	 * @param hash
+	 *            The spread hash code of the key
+	 * @param row
+	 *            The row
+	 * @return The position of the counter in the table
+	 */
+	private int indexOf(int hash, int row) {
+		long value = (hash + SEEDS[row]) * SEEDS[row];
+		value += value >>> HASH_SHIFT;
+		return (int)value & this.mask;
+	}
+
+	/**
+	 * Spreads the bits of the given hash code.
+	 * 
+	 * @param hashCode
+	 *            The hash code
+	 * @return The spread hash code
+	 */
+	private static int spread(int hashCode) {
+		int hash = hashCode * HASH_SPREAD;
+		return hash ^ (hash >>> (HASH_SHIFT / 2));
+	}
+}
@@ -0,0 +1,143 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import fr.obeo.graph.api.IGraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The base class of the streaming readers of the interchange formats. The readers parse their input
+ * incrementally and only keep the element being read in memory, the elements are added to the graph as soon
+ * as they have been read:
+ * <ul>
+ * <li>with the bulk loader of the graph if it is an {@link fr.obeo.graph.api.IBulkLoadableGraph},</li>
+ * <li>through transactions committed every {@link #setBatchSize(int) batch size} elements if it is an
+ * {@link fr.obeo.graph.api.ITransactionalGraph},</li>
+ * <li>with the graph API otherwise.</li>
+ * </ul>
+ * <p>
+ * The identifiers of the vertices in the input are mapped to the identifiers of the vertices in the graph,
+ * only the ones which differ being kept. The map is held in memory up to the
+ * {@link #setIdMapMemoryLimit(int) given number of entries} and then spilled to a temporary file. The
+ * vertices must be read before the edges referencing them, as the writers of this bundle do.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public abstract class AbstractGraphReader {
+	/**
+	 * The default number of elements added per transaction.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 10000;
+
+	/**
+	 * The default maximum number of vertex identifiers held in memory.
+	 */
+	public static final int DEFAULT_ID_MAP_MEMORY_LIMIT = 1 << 20;
+
+	/**
+	 * The input.
+	 */
+	protected final InputStream input;
+
+	/**
+	 * The number of elements added per transaction.
+	 */
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	/**
+	 * The maximum number of vertex identifiers held in memory.
+	 */
+	private int idMapMemoryLimit = DEFAULT_ID_MAP_MEMORY_LIMIT;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param input
+	 *            The input, which is not closed by the reader and should be buffered
+	 */
+	AbstractGraphReader(InputStream input) {
+		this.input = input;
+	}
+
+	/**
+	 * Sets the number of elements added per transaction to a transactional graph.
+	 * 
+	 * @param size
+	 *            The number of elements added per transaction
+	 */
+	public void setBatchSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("The size of the batches must be positive: " + size);
+		}
+		this.batchSize = size;
+	}
+
+	/**
+	 * Sets the maximum number of vertex identifiers held in memory before they are spilled to the disk.
+	 * 
+	 * @param limit
+	 *            The maximum number of vertex identifiers held in memory
+	 */
+	public void setIdMapMemoryLimit(int limit) {
+		if (limit < 0) {
+			throw new IllegalArgumentException("The memory limit of the identifiers can not be negative: "
+					+ limit);
+		}
+		this.idMapMemoryLimit = limit;
+	}
+
+	/**
+	 * Reads the input and adds its elements to the given graph.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @throws IOException
+	 *             If the input can not be read or is invalid
+	 */
+	public void loadInto(IGraph graph) throws IOException {
+		try (ElementSink sink = ElementSink.create(graph, this.batchSize, this.idMapMemoryLimit)) {
+			this.read(sink);
+			sink.finish();
+		}
+	}
+
+	/**
+	 * Reads the input and gives its elements to the given sink.
+	 * 
+	 * @param sink
+	 *            The sink
+	 * @throws IOException
+	 *             If the input can not be read or is invalid
+	 */
+	abstract void read(ElementSink sink) throws IOException;
+}
@@ -0,0 +1,392 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import fr.obeo.graph.api.IBulkLoadableGraph;
+import fr.obeo.graph.api.IBulkLoader;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.ITransaction;
+import fr.obeo.graph.api.ITransactionalGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Receives the elements read by the importers and adds them to a graph. The bulk loader of the graph is used
+ * if it has one, a transactional graph is fed through transactions committed every given number of elements,
+ * and any other graph is fed directly with the graph API.
+ * <p>
+ * The vertices of the files are designated by their identifiers in the files, which are mapped to the
+ * identifiers of the vertices in the graph by a {@link VertexIdMap}. The importers thus only keep the
+ * element being read in memory.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class ElementSink implements Closeable {
+	/**
+	 * The identifiers of the vertices in the graph by identifier in the file.
+	 */
+	private final VertexIdMap vertexIds;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param idMapMemoryLimit
+	 *            The maximum number of vertex identifiers held in memory
+	 */
+	protected ElementSink(int idMapMemoryLimit) {
+		this.vertexIds = new VertexIdMap(idMapMemoryLimit);
+	}
+
+	/**
+	 * Creates a sink adding the elements to the given graph.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param batchSize
+	 *            The number of elements added per transaction to a transactional graph
+	 * @param idMapMemoryLimit
+	 *            The maximum number of vertex identifiers held in memory
+	 * @return The sink
+	 */
+	static ElementSink create(IGraph graph, int batchSize, int idMapMemoryLimit) {
+		ElementSink sink;
+		if (graph instanceof IBulkLoadableGraph) {
+			sink = new BulkSink(((IBulkLoadableGraph)graph).createBulkLoader(), idMapMemoryLimit);
+		} else {
+			sink = new GraphSink(graph, batchSize, idMapMemoryLimit);
+		}
+		return sink;
+	}
+
+	/**
+	 * Adds a vertex.
+	 * 
+	 * @param fileId
+	 *            The identifier of the vertex in the file
+	 * @param properties
+	 *            The properties of the vertex
+	 * @throws IOException
+	 *             If the identifier of the vertex can not be mapped
+	 */
+	void addVertex(Object fileId, Map<String, Object> properties) throws IOException {
+		this.vertexIds.put(fileId, this.createVertex(fileId, properties));
+	}
+
+	/**
+	 * Adds an edge.
+	 * 
+	 * @param fileId
+	 *            The identifier of the edge in the file, <code>null</code> to let the graph generate one
+	 * @param outFileId
+	 *            The identifier in the file of the vertex on the tail of the edge
+	 * @param inFileId
+	 *            The identifier in the file of the vertex on the head of the edge
+	 * @param label
+	 *            The label of the edge
+	 * @param properties
+	 *            The properties of the edge
+	 * @throws IOException
+	 *             If a vertex of the edge is unknown
+	 */
+	void addEdge(Object fileId, Object outFileId, Object inFileId, String label,
+			Map<String, Object> properties) throws IOException {
+		Object outVertexId = this.vertexIds.get(outFileId);
+		Object inVertexId = this.vertexIds.get(inFileId);
+		this.createEdge(fileId, outVertexId, inVertexId, label, properties);
+	}
+
+	/**
+	 * Makes all the elements added visible in the graph.
+	 */
+	abstract void finish();
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.vertexIds.close();
+	}
+
+	/**
+	 * Creates a vertex in the graph.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex in the file
+	 * @param properties
+	 *            The properties of the vertex
+	 * @return The identifier of the vertex in the graph
+	 */
+	protected abstract Object createVertex(Object id, Map<String, Object> properties);
+
+	/**
+	 * Creates an edge in the graph.
+	 * 
+	 * @param id
+	 *            The identifier of the edge in the file, <code>null</code> to let the graph generate one
+	 * @param outVertexId
+	 *            The identifier in the graph of the vertex on the tail of the edge
+	 * @param inVertexId
+	 *            The identifier in the graph of the vertex on the head of the edge
+	 * @param label
+	 *            The label of the edge
+	 * @param properties
+	 *            The properties of the edge
+	 * @throws IOException
+	 *             If a vertex of the edge is unknown
+	 */
+	protected abstract void createEdge(Object id, Object outVertexId, Object inVertexId, String label,
+			Map<String, Object> properties) throws IOException;
+
+	/**
+	 * The sink of a graph with a bulk loader.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class BulkSink extends ElementSink {
+		/**
+		 * The bulk loader.
+		 */
+		private final IBulkLoader loader;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param loader
+		 *            The bulk loader
+		 * @param idMapMemoryLimit
+		 *            The maximum number of vertex identifiers held in memory
+		 */
+		BulkSink(IBulkLoader loader, int idMapMemoryLimit) {
+			super(idMapMemoryLimit);
+			this.loader = loader;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#createVertex(java.lang.Object, java.util.Map)
+		 */
+		@Override
+		protected Object createVertex(Object id, Map<String, Object> properties) {
+			Object vertexId = this.loader.addVertex(id);
+			for (Map.Entry<String, Object> property : properties.entrySet()) {
+				this.loader.setVertexProperty(vertexId, property.getKey(), property.getValue());
+			}
+			return vertexId;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#createEdge(java.lang.Object, java.lang.Object, java.lang.Object,
+		 *      java.lang.String, java.util.Map)
+		 */
+		@Override
+		protected void createEdge(Object id, Object outVertexId, Object inVertexId, String label,
+				Map<String, Object> properties) {
+			Object edgeId = this.loader.addEdge(id, outVertexId, inVertexId, label);
+			for (Map.Entry<String, Object> property : properties.entrySet()) {
+				this.loader.setEdgeProperty(edgeId, property.getKey(), property.getValue());
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#finish()
+		 */
+		@Override
+		void finish() {
+			this.loader.commit();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				this.loader.close();
+			} finally {
+				super.close();
+			}
+		}
+	}
+
+	/**
+	 * The sink of a graph fed with the graph API, through transactions if the graph is transactional.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class GraphSink extends ElementSink {
+		/**
+		 * The graph.
+		 */
+		private final IGraph graph;
+
+		/**
+		 * The number of elements added per transaction.
+		 */
+		private final int batchSize;
+
+		/**
+		 * The current transaction, <code>null</code> if there is none.
+		 */
+		private ITransaction transaction;
+
+		/**
+		 * The number of elements added in the current transaction.
+		 */
+		private int pending;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param graph
+		 *            The graph
+		 * @param batchSize
+		 *            The number of elements added per transaction to a transactional graph
+		 * @param idMapMemoryLimit
+		 *            The maximum number of vertex identifiers held in memory
+		 */
+		GraphSink(IGraph graph, int batchSize, int idMapMemoryLimit) {
+			super(idMapMemoryLimit);
+			this.graph = graph;
+			this.batchSize = batchSize;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#createVertex(java.lang.Object, java.util.Map)
+		 */
+		@Override
+		protected Object createVertex(Object id, Map<String, Object> properties) {
+			IElement vertex = (IElement)this.target().addVertex(id);
+			for (Map.Entry<String, Object> property : properties.entrySet()) {
+				vertex.setProperty(property.getKey(), property.getValue());
+			}
+			Object vertexId = vertex.getId();
+			this.endElement();
+			return vertexId;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#createEdge(java.lang.Object, java.lang.Object, java.lang.Object,
+		 *      java.lang.String, java.util.Map)
+		 */
+		@Override
+		protected void createEdge(Object id, Object outVertexId, Object inVertexId, String label,
+				Map<String, Object> properties) throws IOException {
+			IGraph target = this.target();
+			IVertex outVertex = target.getVertex(outVertexId);
+			IVertex inVertex = target.getVertex(inVertexId);
+			if (outVertex == null || inVertex == null) {
+				throw new IOException("The edge " + id + " references an unknown vertex: "
+						+ (outVertex == null ? outVertexId : inVertexId));
+			}
+			IEdge edge = target.addEdge(id, outVertex, inVertex, label);
+			for (Map.Entry<String, Object> property : properties.entrySet()) {
+				((IElement)edge).setProperty(property.getKey(), property.getValue());
+			}
+			this.endElement();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#finish()
+		 */
+		@Override
+		void finish() {
+			if (this.transaction != null) {
+				this.transaction.commit();
+				this.transaction = null;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.io.ElementSink#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				if (this.transaction != null) {
+					this.transaction.close();
+				}
+			} finally {
+				super.close();
+			}
+		}
+
+		/**
+		 * Returns the graph receiving the elements, the current transaction for a transactional graph.
+		 * 
+		 * @return The graph receiving the elements
+		 */
+		private IGraph target() {
+			IGraph target = this.graph;
+			if (this.graph instanceof ITransactionalGraph) {
+				if (this.transaction == null) {
+					this.transaction = ((ITransactionalGraph)this.graph).begin();
+				}
+				target = this.transaction;
+			}
+			return target;
+		}
+
+		/**
+		 * Ends the addition of an element, committing the current transaction if it is full.
+		 */
+		private void endElement() {
+			this.pending++;
+			if (this.transaction != null && this.pending >= this.batchSize) {
+				this.transaction.commit();
+				this.transaction = null;
+				this.pending = 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,386 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads a graph in the GraphML format with a streaming XML parser, so that the size of the documents is not
+ * limited by the memory available. The keys are read first, then each vertex and each edge is added to the
+ * graph as soon as its element has been read, with the typed values of its properties and the default values
+ * of the keys it does not have.
+ * <p>
+ * The label of an edge is read from its <code>label</code> attribute, the edges without label get the label
+ * <code>_default</code>. The nested graphs, the hyperedges and the ports are ignored.
+ * </p>
+ * 
+ * <pre>
+ * try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+ * 	new GraphMLReader(input).loadInto(graph);
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class GraphMLReader extends AbstractGraphReader {
+	/**
+	 * The constructor.
+	 * 
+	 * @param input
+	 *            The input, which is not closed by the reader and should be buffered
+	 */
+	public GraphMLReader(InputStream input) {
+		super(input);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.AbstractGraphReader#read(fr.obeo.graph.io.ElementSink)
+	 */
+	@Override
+	void read(ElementSink sink) throws IOException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		try {
+			XMLStreamReader reader = factory.createXMLStreamReader(this.input);
+			try {
+				new DocumentReader(reader, sink).read();
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Invalid GraphML document", e);
+		}
+	}
+
+	/**
+	 * The declaration of a key.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Key {
+		/**
+		 * The identifier of the key in the document.
+		 */
+		private final String id;
+
+		/**
+		 * The name of the properties.
+		 */
+		private final String name;
+
+		/**
+		 * The type of the values.
+		 */
+		private final String type;
+
+		/**
+		 * The default value, <code>null</code> if there is none.
+		 */
+		private Object defaultValue;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param id
+		 *            The identifier of the key in the document
+		 * @param name
+		 *            The name of the properties
+		 * @param type
+		 *            The type of the values
+		 */
+		Key(String id, String name, String type) {
+			this.id = id;
+			this.name = name;
+			this.type = type;
+		}
+
+		/**
+		 * Converts the text of a property to a value of the type of the key.
+		 * 
+		 * @param text
+		 *            The text
+		 * @return The value
+		 * @throws IOException
+		 *             If the text is not a valid value
+		 */
+		Object parse(String text) throws IOException {
+			Object value;
+			try {
+				value = GraphMLTokens.parse(this.type, text);
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid value of the GraphML key " + this.id + ": " + text, e);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * The state of the reading of a document.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class DocumentReader {
+		/**
+		 * The XML reader.
+		 */
+		private final XMLStreamReader reader;
+
+		/**
+		 * The sink of the elements.
+		 */
+		private final ElementSink sink;
+
+		/**
+		 * The keys by identifier.
+		 */
+		private final Map<String, Key> keys = new HashMap<String, Key>();
+
+		/**
+		 * The keys of the vertices with a default value.
+		 */
+		private final List<Key> vertexDefaults = new ArrayList<Key>();
+
+		/**
+		 * The keys of the edges with a default value.
+		 */
+		private final List<Key> edgeDefaults = new ArrayList<Key>();
+
+		/**
+		 * The depth of the nested graphs, zero outside of the graphs.
+		 */
+		private int graphDepth;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param reader
+		 *            The XML reader
+		 * @param sink
+		 *            The sink of the elements
+		 */
+		DocumentReader(XMLStreamReader reader, ElementSink sink) {
+			this.reader = reader;
+			this.sink = sink;
+		}
+
+		/**
+		 * Reads the document.
+		 * 
+		 * @throws XMLStreamException
+		 *             If the document is not a valid XML document
+		 * @throws IOException
+		 *             If the document is not a valid GraphML document
+		 */
+		void read() throws XMLStreamException, IOException {
+			while (this.reader.hasNext()) {
+				int event = this.reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = this.reader.getLocalName();
+					if (GraphMLTokens.KEY.equals(name)) {
+						this.readKey();
+					} else if (GraphMLTokens.GRAPH.equals(name)) {
+						this.graphDepth++;
+					} else if (this.graphDepth > 1) {
+						this.skipElement();
+					} else if (GraphMLTokens.NODE.equals(name)) {
+						this.readNode();
+					} else if (GraphMLTokens.EDGE.equals(name)) {
+						this.readEdge();
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT
+						&& GraphMLTokens.GRAPH.equals(this.reader.getLocalName())) {
+					this.graphDepth--;
+				}
+			}
+		}
+
+		/**
+		 * Reads the declaration of a key.
+		 * 
+		 * @throws XMLStreamException
+		 *             If the document is not a valid XML document
+		 * @throws IOException
+		 *             If the declaration is not valid
+		 */
+		private void readKey() throws XMLStreamException, IOException {
+			String id = this.required(GraphMLTokens.ID, GraphMLTokens.KEY);
+			String kind = this.optional(GraphMLTokens.FOR, GraphMLTokens.ALL);
+			String name = this.optional(GraphMLTokens.ATTR_NAME, id);
+			String type = this.optional(GraphMLTokens.ATTR_TYPE, GraphMLTokens.STRING);
+			Key key = new Key(id, name, type);
+			this.keys.put(id, key);
+			while (this.reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				if (GraphMLTokens.DEFAULT.equals(this.reader.getLocalName())) {
+					key.defaultValue = key.parse(this.reader.getElementText());
+				} else {
+					this.skipElement();
+				}
+			}
+			if (key.defaultValue != null) {
+				if (!GraphMLTokens.EDGE.equals(kind)) {
+					this.vertexDefaults.add(key);
+				}
+				if (!GraphMLTokens.NODE.equals(kind)) {
+					this.edgeDefaults.add(key);
+				}
+			}
+		}
+
+		/**
+		 * Reads a vertex.
+		 * 
+		 * @throws XMLStreamException
+		 *             If the document is not a valid XML document
+		 * @throws IOException
+		 *             If the vertex is not valid or can not be added
+		 */
+		private void readNode() throws XMLStreamException, IOException {
+			String id = this.required(GraphMLTokens.ID, GraphMLTokens.NODE);
+			this.sink.addVertex(id, this.readData(this.vertexDefaults));
+		}
+
+		/**
+		 * Reads an edge.
+		 * 
+		 * @throws XMLStreamException
+		 *             If the document is not a valid XML document
+		 * @throws IOException
+		 *             If the edge is not valid or can not be added
+		 */
+		private void readEdge() throws XMLStreamException, IOException {
+			String id = this.reader.getAttributeValue(null, GraphMLTokens.ID);
+			String source = this.required(GraphMLTokens.SOURCE, GraphMLTokens.EDGE);
+			String target = this.required(GraphMLTokens.TARGET, GraphMLTokens.EDGE);
+			String label = this.optional(GraphMLTokens.LABEL, GraphMLTokens.DEFAULT_LABEL);
+			this.sink.addEdge(id, source, target, label, this.readData(this.edgeDefaults));
+		}
+
+		/**
+		 * Reads the properties of the current element up to its end.
+		 * 
+		 * @param defaults
+		 *            The keys of the kind of the element with a default value
+		 * @return The properties by name
+		 * @throws XMLStreamException
+		 *             If the document is not a valid XML document
+		 * @throws IOException
+		 *             If a property is not valid
+		 */
+		private Map<String, Object> readData(List<Key> defaults) throws XMLStreamException, IOException {
+			Map<String, Object> properties = new HashMap<String, Object>();
+			while (this.reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				if (GraphMLTokens.DATA.equals(this.reader.getLocalName())) {
+					String keyId = this.required(GraphMLTokens.KEY, GraphMLTokens.DATA);
+					Key key = this.keys.get(keyId);
+					if (key == null) {
+						throw new IOException("Undeclared GraphML key: " + keyId);
+					}
+					properties.put(key.name, key.parse(this.reader.getElementText()));
+				} else {
+					this.skipElement();
+				}
+			}
+			for (Key key : defaults) {
+				if (!properties.containsKey(key.name)) {
+					properties.put(key.name, key.defaultValue);
+				}
+			}
+			return properties;
+		}
+
+		/**
+		 * Skips the current element and its content.
+		 * 
+		 * @throws XMLStreamException
+		 *             If the document is not a valid XML document
+		 */
+		private void skipElement() throws XMLStreamException {
+			int depth = 1;
+			while (depth > 0) {
+				int event = this.reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+				}
+			}
+		}
+
+		/**
+		 * Returns the value of a required attribute of the current element.
+		 * 
+		 * @param attribute
+		 *            The name of the attribute
+		 * @param element
+		 *            The name of the element
+		 * @return The value of the attribute
+		 * @throws IOException
+		 *             If the element does not have the attribute
+		 */
+		private String required(String attribute, String element) throws IOException {
+			String value = this.reader.getAttributeValue(null, attribute);
+			if (value == null) {
+				throw new IOException("The GraphML " + element + " has no " + attribute + " at line "
+						+ this.reader.getLocation().getLineNumber());
+			}
+			return value;
+		}
+
+		/**
+		 * Returns the value of an optional attribute of the current element.
+		 * 
+		 * @param attribute
+		 *            The name of the attribute
+		 * @param defaultValue
+		 *            The value of the attribute if the element does not have it
+		 * @return The value of the attribute
+		 */
+		private String optional(String attribute, String defaultValue) {
+			String value = this.reader.getAttributeValue(null, attribute);
+			if (value == null) {
+				value = defaultValue;
+			}
+			return value;
+		}
+	}
+}
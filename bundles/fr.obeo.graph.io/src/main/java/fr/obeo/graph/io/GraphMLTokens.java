@@ -0,0 +1,223 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+/**
+ * The elements, attributes and types of the GraphML format.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class GraphMLTokens {
+	/**
+	 * The namespace of GraphML.
+	 */
+	static final String NAMESPACE = "http://graphml.graphdrawing.org/xmlns";
+
+	/**
+	 * The root element.
+	 */
+	static final String GRAPHML = "graphml";
+
+	/**
+	 * The element declaring a key.
+	 */
+	static final String KEY = "key";
+
+	/**
+	 * The default value of a key.
+	 */
+	static final String DEFAULT = "default";
+
+	/**
+	 * The element of the graph.
+	 */
+	static final String GRAPH = "graph";
+
+	/**
+	 * The element of a vertex.
+	 */
+	static final String NODE = "node";
+
+	/**
+	 * The element of an edge.
+	 */
+	static final String EDGE = "edge";
+
+	/**
+	 * The element of a property.
+	 */
+	static final String DATA = "data";
+
+	/**
+	 * The attribute of the identifiers.
+	 */
+	static final String ID = "id";
+
+	/**
+	 * The attribute of the kind of elements of a key.
+	 */
+	static final String FOR = "for";
+
+	/**
+	 * The kind of the keys of all the elements.
+	 */
+	static final String ALL = "all";
+
+	/**
+	 * The attribute of the name of a key.
+	 */
+	static final String ATTR_NAME = "attr.name";
+
+	/**
+	 * The attribute of the type of a key.
+	 */
+	static final String ATTR_TYPE = "attr.type";
+
+	/**
+	 * The attribute of the default direction of the edges.
+	 */
+	static final String EDGEDEFAULT = "edgedefault";
+
+	/**
+	 * The directed edges.
+	 */
+	static final String DIRECTED = "directed";
+
+	/**
+	 * The attribute of the outgoing vertex of an edge.
+	 */
+	static final String SOURCE = "source";
+
+	/**
+	 * The attribute of the incoming vertex of an edge.
+	 */
+	static final String TARGET = "target";
+
+	/**
+	 * The attribute of the label of an edge.
+	 */
+	static final String LABEL = "label";
+
+	/**
+	 * The label of the edges without label.
+	 */
+	static final String DEFAULT_LABEL = "_default";
+
+	/**
+	 * The type of the strings.
+	 */
+	static final String STRING = "string";
+
+	/**
+	 * The type of the booleans.
+	 */
+	static final String BOOLEAN = "boolean";
+
+	/**
+	 * The type of the integers.
+	 */
+	static final String INT = "int";
+
+	/**
+	 * The type of the longs.
+	 */
+	static final String LONG = "long";
+
+	/**
+	 * The type of the floats.
+	 */
+	static final String FLOAT = "float";
+
+	/**
+	 * The type of the doubles.
+	 */
+	static final String DOUBLE = "double";
+
+	/**
+	 * The constructor.
+	 */
+	private GraphMLTokens() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Returns the GraphML type of a value, the values which are not primitives being written as strings.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The type of the value
+	 */
+	static String typeOf(Object value) {
+		String type;
+		if (value instanceof Boolean) {
+			type = BOOLEAN;
+		} else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			type = INT;
+		} else if (value instanceof Long) {
+			type = LONG;
+		} else if (value instanceof Float) {
+			type = FLOAT;
+		} else if (value instanceof Double) {
+			type = DOUBLE;
+		} else {
+			type = STRING;
+		}
+		return type;
+	}
+
+	/**
+	 * Converts the text of a property to a value of the given type.
+	 * 
+	 * @param type
+	 *            The type
+	 * @param text
+	 *            The text
+	 * @return The value
+	 * @throws NumberFormatException
+	 *             If the text is not a valid number
+	 */
+	static Object parse(String type, String text) throws NumberFormatException {
+		Object value;
+		if (BOOLEAN.equals(type)) {
+			value = Boolean.valueOf(text.trim());
+		} else if (INT.equals(type)) {
+			value = Integer.valueOf(text.trim());
+		} else if (LONG.equals(type)) {
+			value = Long.valueOf(text.trim());
+		} else if (FLOAT.equals(type)) {
+			value = Float.valueOf(text.trim());
+		} else if (DOUBLE.equals(type)) {
+			value = Double.valueOf(text.trim());
+		} else {
+			value = text;
+		}
+		return value;
+	}
+}
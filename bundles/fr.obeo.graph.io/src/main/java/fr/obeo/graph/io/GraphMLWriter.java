@@ -0,0 +1,257 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a graph in the GraphML format with a streaming XML writer. The graph is read twice: a first time to
+ * declare the keys of the properties and their types, as GraphML requires them before the elements, and a
+ * second time to write the vertices then the edges directly to the output. Only the keys are kept in memory.
+ * <p>
+ * The identifiers of the elements are written as strings. A key used with values of different types is
+ * declared as a string key.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class GraphMLWriter {
+	/**
+	 * The encoding of the documents.
+	 */
+	private static final String ENCODING = "UTF-8";
+
+	/**
+	 * The stream.
+	 */
+	private final OutputStream output;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param output
+	 *            The stream, which is not closed by the writer
+	 */
+	public GraphMLWriter(OutputStream output) {
+		this.output = output;
+	}
+
+	/**
+	 * Writes the given graph. The graph must not be modified while it is written.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @throws IOException
+	 *             If the document can not be written
+	 */
+	public void write(IGraph graph) throws IOException {
+		Map<String, String> vertexTypes = new TreeMap<String, String>();
+		try (ICloseableIterable<IVertex> vertices = graph.getVertices()) {
+			for (IVertex vertex : vertices) {
+				GraphMLWriter.collectTypes((IElement)vertex, vertexTypes);
+			}
+		}
+		Map<String, String> edgeTypes = new TreeMap<String, String>();
+		try (ICloseableIterable<IEdge> edges = graph.getEdges()) {
+			for (IEdge edge : edges) {
+				GraphMLWriter.collectTypes((IElement)edge, edgeTypes);
+			}
+		}
+		Set<String> used = new HashSet<String>();
+		Map<String, String> vertexKeys = GraphMLWriter.keyIds(vertexTypes.keySet(), GraphMLTokens.NODE, used);
+		Map<String, String> edgeKeys = GraphMLWriter.keyIds(edgeTypes.keySet(), GraphMLTokens.EDGE, used);
+
+		try {
+			XMLOutputFactory factory = XMLOutputFactory.newInstance();
+			XMLStreamWriter writer = factory.createXMLStreamWriter(this.output, ENCODING);
+			writer.writeStartDocument(ENCODING, "1.0");
+			writer.writeCharacters("\n");
+			writer.writeStartElement(GraphMLTokens.GRAPHML);
+			writer.writeDefaultNamespace(GraphMLTokens.NAMESPACE);
+			GraphMLWriter.writeKeys(writer, GraphMLTokens.NODE, vertexKeys, vertexTypes);
+			GraphMLWriter.writeKeys(writer, GraphMLTokens.EDGE, edgeKeys, edgeTypes);
+			writer.writeCharacters("\n");
+			writer.writeStartElement(GraphMLTokens.GRAPH);
+			writer.writeAttribute(GraphMLTokens.ID, "G");
+			writer.writeAttribute(GraphMLTokens.EDGEDEFAULT, GraphMLTokens.DIRECTED);
+			try (ICloseableIterable<IVertex> vertices = graph.getVertices()) {
+				for (IVertex vertex : vertices) {
+					IElement element = (IElement)vertex;
+					writer.writeCharacters("\n");
+					writer.writeStartElement(GraphMLTokens.NODE);
+					writer.writeAttribute(GraphMLTokens.ID, String.valueOf(element.getId()));
+					GraphMLWriter.writeData(writer, element, vertexKeys);
+					writer.writeEndElement();
+				}
+			}
+			try (ICloseableIterable<IEdge> edges = graph.getEdges()) {
+				for (IEdge edge : edges) {
+					IElement element = (IElement)edge;
+					writer.writeCharacters("\n");
+					writer.writeStartElement(GraphMLTokens.EDGE);
+					writer.writeAttribute(GraphMLTokens.ID, String.valueOf(element.getId()));
+					writer.writeAttribute(GraphMLTokens.SOURCE, GraphMLWriter.idOf(edge, Direction.OUT));
+					writer.writeAttribute(GraphMLTokens.TARGET, GraphMLWriter.idOf(edge, Direction.IN));
+					writer.writeAttribute(GraphMLTokens.LABEL, edge.getLabel());
+					GraphMLWriter.writeData(writer, element, edgeKeys);
+					writer.writeEndElement();
+				}
+			}
+			writer.writeCharacters("\n");
+			writer.writeEndElement();
+			writer.writeCharacters("\n");
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new IOException("The GraphML document can not be written", e);
+		}
+		this.output.flush();
+	}
+
+	/**
+	 * Collects the types of the properties of an element.
+	 * 
+	 * @param element
+	 *            The element
+	 * @param types
+	 *            The types of the properties by key
+	 */
+	private static void collectTypes(IElement element, Map<String, String> types) {
+		for (String key : element.getPropertyKeys()) {
+			String type = GraphMLTokens.typeOf(element.getProperty(key));
+			String previous = types.put(key, type);
+			if (previous != null && !previous.equals(type)) {
+				types.put(key, GraphMLTokens.STRING);
+			}
+		}
+	}
+
+	/**
+	 * Computes the identifiers of the keys of a kind of elements, the name of the keys unless it is already
+	 * used by the keys of the other kind.
+	 * 
+	 * @param names
+	 *            The names of the keys
+	 * @param kind
+	 *            The kind of elements
+	 * @param usedIds
+	 *            The identifiers already used
+	 * @return The identifiers of the keys by name
+	 */
+	private static Map<String, String> keyIds(Set<String> names, String kind, Set<String> usedIds) {
+		Map<String, String> ids = new TreeMap<String, String>();
+		for (String name : names) {
+			String id = name;
+			for (int i = 1; !usedIds.add(id); i++) {
+				id = kind + "." + name + (i > 1 ? "." + i : "");
+			}
+			ids.put(name, id);
+		}
+		return ids;
+	}
+
+	/**
+	 * Writes the declarations of the keys of a kind of elements.
+	 * 
+	 * @param writer
+	 *            The writer
+	 * @param kind
+	 *            The kind of elements
+	 * @param ids
+	 *            The identifiers of the keys by name
+	 * @param types
+	 *            The types of the keys by name
+	 * @throws XMLStreamException
+	 *             If the declarations can not be written
+	 */
+	private static void writeKeys(XMLStreamWriter writer, String kind, Map<String, String> ids,
+			Map<String, String> types) throws XMLStreamException {
+		for (Map.Entry<String, String> key : ids.entrySet()) {
+			writer.writeCharacters("\n");
+			writer.writeEmptyElement(GraphMLTokens.KEY);
+			writer.writeAttribute(GraphMLTokens.ID, key.getValue());
+			writer.writeAttribute(GraphMLTokens.FOR, kind);
+			writer.writeAttribute(GraphMLTokens.ATTR_NAME, key.getKey());
+			writer.writeAttribute(GraphMLTokens.ATTR_TYPE, types.get(key.getKey()));
+		}
+	}
+
+	/**
+	 * Writes the properties of an element.
+	 * 
+	 * @param writer
+	 *            The writer
+	 * @param element
+	 *            The element
+	 * @param ids
+	 *            The identifiers of the keys by name
+	 * @throws XMLStreamException
+	 *             If the properties can not be written
+	 */
+	private static void writeData(XMLStreamWriter writer, IElement element, Map<String, String> ids)
+			throws XMLStreamException {
+		for (String key : element.getPropertyKeys()) {
+			writer.writeStartElement(GraphMLTokens.DATA);
+			writer.writeAttribute(GraphMLTokens.KEY, ids.get(key));
+			writer.writeCharacters(String.valueOf(element.getProperty(key)));
+			writer.writeEndElement();
+		}
+	}
+
+	/**
+	 * Returns the identifier of a vertex of an edge as a string.
+	 * 
+	 * @param edge
+	 *            The edge
+	 * @param direction
+	 *            The direction of the vertex
+	 * @return The identifier of the vertex
+	 */
+	private static String idOf(IEdge edge, Direction direction) {
+		return String.valueOf(((IElement)edge.getVertex(direction)).getId());
+	}
+}
@@ -0,0 +1,194 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a graph in the GraphSON format with a streaming JSON parser, so that the size of the documents is not
+ * limited by the memory available: the arrays of the vertices and of the edges are read one element at a
+ * time, each element being added to the graph as soon as it has been read.
+ * <p>
+ * The values are read according to the mode of the document, the {@link GraphSONMode#EXTENDED extended}
+ * mode restoring the exact type of each value. The mode must be declared before the elements.
+ * </p>
+ * 
+ * <pre>
+ * try (InputStream input = new FileInputStream(file)) {
+ * 	new GraphSONReader(input).loadInto(graph);
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class GraphSONReader extends AbstractGraphReader {
+	/**
+	 * The constructor.
+	 * 
+	 * @param input
+	 *            The input, which is not closed by the reader
+	 */
+	public GraphSONReader(InputStream input) {
+		super(input);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.AbstractGraphReader#read(fr.obeo.graph.io.ElementSink)
+	 */
+	@Override
+	void read(ElementSink sink) throws IOException {
+		JsonReader json = new JsonReader(new BufferedReader(new InputStreamReader(this.input,
+				SnapshotOutput.UTF_8)));
+		GraphSONMode mode = GraphSONMode.NORMAL;
+		json.beginObject();
+		while (json.hasNext()) {
+			String name = json.nextName();
+			if (GraphSONTokens.MODE.equals(name)) {
+				mode = GraphSONReader.readMode(json.nextValue());
+			} else if (GraphSONTokens.VERTICES.equals(name)) {
+				json.beginArray();
+				while (json.hasNext()) {
+					Map<String, Object> vertex = GraphSONReader.readElement(json, mode);
+					Object id = vertex.remove(GraphSONTokens.ID);
+					if (id == null) {
+						throw new IOException("A GraphSON vertex has no identifier: " + vertex);
+					}
+					sink.addVertex(id, vertex);
+				}
+				json.endArray();
+			} else if (GraphSONTokens.EDGES.equals(name)) {
+				json.beginArray();
+				while (json.hasNext()) {
+					Map<String, Object> edge = GraphSONReader.readElement(json, mode);
+					Object id = edge.remove(GraphSONTokens.ID);
+					Object outId = edge.remove(GraphSONTokens.OUT_V);
+					Object inId = edge.remove(GraphSONTokens.IN_V);
+					Object label = edge.remove(GraphSONTokens.LABEL);
+					if (outId == null || inId == null || !(label instanceof String)) {
+						throw new IOException("A GraphSON edge must have an " + GraphSONTokens.OUT_V + ", an "
+								+ GraphSONTokens.IN_V + " and a " + GraphSONTokens.LABEL + ": " + id);
+					}
+					sink.addEdge(id, outId, inId, (String)label, edge);
+				}
+				json.endArray();
+			} else {
+				json.skipValue();
+			}
+		}
+		json.endObject();
+	}
+
+	/**
+	 * Reads the mode of a document.
+	 * 
+	 * @param value
+	 *            The value of the mode
+	 * @return The mode
+	 * @throws IOException
+	 *             If the mode is not supported
+	 */
+	private static GraphSONMode readMode(Object value) throws IOException {
+		GraphSONMode mode = null;
+		for (GraphSONMode candidate : GraphSONMode.values()) {
+			if (candidate.name().equals(value)) {
+				mode = candidate;
+			}
+		}
+		if (mode == null) {
+			throw new IOException("Unsupported GraphSON mode: " + value);
+		}
+		return mode;
+	}
+
+	/**
+	 * Reads an element and converts its values according to the mode.
+	 * 
+	 * @param json
+	 *            The JSON reader
+	 * @param mode
+	 *            The mode of the document
+	 * @return The identifier, the reserved keys and the properties of the element
+	 * @throws IOException
+	 *             If the element is not valid
+	 */
+	private static Map<String, Object> readElement(JsonReader json, GraphSONMode mode) throws IOException {
+		Object read = json.nextValue();
+		if (!(read instanceof Map<?, ?>)) {
+			throw new IOException("GraphSON element expected: " + read);
+		}
+		Map<String, Object> element = new HashMap<String, Object>();
+		for (Map.Entry<?, ?> entry : ((Map<?, ?>)read).entrySet()) {
+			String key = (String)entry.getKey();
+			Object value = entry.getValue();
+			if (value != null && !GraphSONTokens.TYPE.equals(key)) {
+				if (!GraphSONTokens.LABEL.equals(key)) {
+					value = GraphSONReader.convert(value, mode);
+				}
+				element.put(key, value);
+			}
+		}
+		return element;
+	}
+
+	/**
+	 * Converts a value read according to the mode.
+	 * 
+	 * @param value
+	 *            The value read
+	 * @param mode
+	 *            The mode of the document
+	 * @return The value
+	 * @throws IOException
+	 *             If the value is not valid
+	 */
+	private static Object convert(Object value, GraphSONMode mode) throws IOException {
+		Object result;
+		try {
+			if (mode == GraphSONMode.EXTENDED && value instanceof Map<?, ?>
+					&& ((Map<?, ?>)value).containsKey(GraphSONTokens.VALUE_TYPE)) {
+				result = GraphSONTokens.fromExtended(value);
+			} else {
+				result = GraphSONTokens.fromNormal(value);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid GraphSON value: " + value, e);
+		} catch (ClassCastException e) {
+			throw new IOException("Invalid GraphSON value: " + value, e);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,260 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The reserved keys and the types of the GraphSON format.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class GraphSONTokens {
+	/**
+	 * The mode of the document.
+	 */
+	static final String MODE = "mode";
+
+	/**
+	 * The array of the vertices.
+	 */
+	static final String VERTICES = "vertices";
+
+	/**
+	 * The array of the edges.
+	 */
+	static final String EDGES = "edges";
+
+	/**
+	 * The identifier of an element.
+	 */
+	static final String ID = "_id";
+
+	/**
+	 * The kind of an element.
+	 */
+	static final String TYPE = "_type";
+
+	/**
+	 * The kind of the vertices.
+	 */
+	static final String VERTEX = "vertex";
+
+	/**
+	 * The kind of the edges.
+	 */
+	static final String EDGE = "edge";
+
+	/**
+	 * The outgoing vertex of an edge.
+	 */
+	static final String OUT_V = "_outV";
+
+	/**
+	 * The incoming vertex of an edge.
+	 */
+	static final String IN_V = "_inV";
+
+	/**
+	 * The label of an edge.
+	 */
+	static final String LABEL = "_label";
+
+	/**
+	 * The type of a value in the extended mode.
+	 */
+	static final String VALUE_TYPE = "type";
+
+	/**
+	 * The value of a value in the extended mode.
+	 */
+	static final String VALUE = "value";
+
+	/**
+	 * The type of the strings.
+	 */
+	static final String STRING = "string";
+
+	/**
+	 * The type of the booleans.
+	 */
+	static final String BOOLEAN = "boolean";
+
+	/**
+	 * The type of the integers.
+	 */
+	static final String INTEGER = "integer";
+
+	/**
+	 * The type of the longs.
+	 */
+	static final String LONG = "long";
+
+	/**
+	 * The type of the shorts.
+	 */
+	static final String SHORT = "short";
+
+	/**
+	 * The type of the bytes.
+	 */
+	static final String BYTE = "byte";
+
+	/**
+	 * The type of the floats.
+	 */
+	static final String FLOAT = "float";
+
+	/**
+	 * The type of the doubles.
+	 */
+	static final String DOUBLE = "double";
+
+	/**
+	 * The type of the lists.
+	 */
+	static final String LIST = "list";
+
+	/**
+	 * The type of the maps.
+	 */
+	static final String MAP = "map";
+
+	/**
+	 * The type of the other values, written as strings.
+	 */
+	static final String UNKNOWN = "unknown";
+
+	/**
+	 * The constructor.
+	 */
+	private GraphSONTokens() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Converts a value read from a document in the normal mode, the integers which fit in an
+	 * <code>int</code> being read as integers.
+	 * 
+	 * @param value
+	 *            The value read
+	 * @return The value
+	 */
+	static Object fromNormal(Object value) {
+		Object result = value;
+		if (value instanceof Long && ((Long)value).longValue() == ((Long)value).intValue()) {
+			result = Integer.valueOf(((Long)value).intValue());
+		} else if (value instanceof List<?>) {
+			List<Object> values = new ArrayList<Object>();
+			for (Object element : (List<?>)value) {
+				values.add(GraphSONTokens.fromNormal(element));
+			}
+			result = values;
+		} else if (value instanceof Map<?, ?>) {
+			Map<Object, Object> values = new LinkedHashMap<Object, Object>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				values.put(entry.getKey(), GraphSONTokens.fromNormal(entry.getValue()));
+			}
+			result = values;
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a value read from a document in the extended mode, an object holding the type and the value.
+	 * 
+	 * @param typed
+	 *            The object read
+	 * @return The value
+	 * @throws IllegalArgumentException
+	 *             If the object is not a typed value
+	 */
+	static Object fromExtended(Object typed) throws IllegalArgumentException {
+		if (!(typed instanceof Map<?, ?>)) {
+			throw new IllegalArgumentException("Typed value expected: " + typed);
+		}
+		Object type = ((Map<?, ?>)typed).get(VALUE_TYPE);
+		Object value = ((Map<?, ?>)typed).get(VALUE);
+		if (value == null) {
+			throw new IllegalArgumentException("Typed value without value: " + typed);
+		}
+		Object result;
+		if (BOOLEAN.equals(type) || STRING.equals(type) || UNKNOWN.equals(type)) {
+			result = value;
+		} else if (INTEGER.equals(type)) {
+			result = Integer.valueOf(((Number)value).intValue());
+		} else if (LONG.equals(type)) {
+			result = Long.valueOf(((Number)value).longValue());
+		} else if (SHORT.equals(type)) {
+			result = Short.valueOf(((Number)value).shortValue());
+		} else if (BYTE.equals(type)) {
+			result = Byte.valueOf(((Number)value).byteValue());
+		} else if (FLOAT.equals(type)) {
+			result = Float.valueOf(GraphSONTokens.toDouble(value).floatValue());
+		} else if (DOUBLE.equals(type)) {
+			result = GraphSONTokens.toDouble(value);
+		} else if (LIST.equals(type)) {
+			List<Object> values = new ArrayList<Object>();
+			for (Object element : (List<?>)value) {
+				values.add(GraphSONTokens.fromExtended(element));
+			}
+			result = values;
+		} else if (MAP.equals(type)) {
+			Map<Object, Object> values = new LinkedHashMap<Object, Object>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				values.put(entry.getKey(), GraphSONTokens.fromExtended(entry.getValue()));
+			}
+			result = values;
+		} else {
+			throw new IllegalArgumentException("Unknown GraphSON type: " + type);
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a number, or the string of a number which is not finite, to a double.
+	 * 
+	 * @param value
+	 *            The number
+	 * @return The double
+	 */
+	private static Double toDouble(Object value) {
+		Double result;
+		if (value instanceof String) {
+			result = Double.valueOf((String)value);
+		} else {
+			result = Double.valueOf(((Number)value).doubleValue());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,259 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a graph in the GraphSON format. The vertices then the edges of the graph are streamed directly to
+ * the output, one JSON object per line, without keeping them in memory.
+ * 
+ * <pre>
+ * try (OutputStream output = new FileOutputStream(file)) {
+ * 	new GraphSONWriter(output, GraphSONMode.EXTENDED).write(graph);
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class GraphSONWriter {
+	/**
+	 * The stream.
+	 */
+	private final OutputStream output;
+
+	/**
+	 * The mode.
+	 */
+	private final GraphSONMode mode;
+
+	/**
+	 * The constructor of a writer in the normal mode.
+	 * 
+	 * @param output
+	 *            The stream, which is not closed by the writer
+	 */
+	public GraphSONWriter(OutputStream output) {
+		this(output, GraphSONMode.NORMAL);
+	}
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param output
+	 *            The stream, which is not closed by the writer
+	 * @param mode
+	 *            The mode
+	 */
+	public GraphSONWriter(OutputStream output, GraphSONMode mode) {
+		if (mode == null) {
+			throw new IllegalArgumentException("The GraphSON mode can not be null");
+		}
+		this.output = output;
+		this.mode = mode;
+	}
+
+	/**
+	 * Writes the given graph. The graph must not be modified while it is written.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @throws IOException
+	 *             If the document can not be written
+	 */
+	public void write(IGraph graph) throws IOException {
+		JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(this.output,
+				SnapshotOutput.UTF_8)));
+		json.beginObject();
+		json.name(GraphSONTokens.MODE);
+		json.value(this.mode.name());
+		json.name(GraphSONTokens.VERTICES);
+		json.beginArray();
+		try (ICloseableIterable<IVertex> vertices = graph.getVertices()) {
+			for (IVertex vertex : vertices) {
+				json.newLine();
+				json.beginObject();
+				this.writeElement(json, (IElement)vertex, GraphSONTokens.VERTEX);
+				json.endObject();
+			}
+		}
+		json.endArray();
+		json.name(GraphSONTokens.EDGES);
+		json.beginArray();
+		try (ICloseableIterable<IEdge> edges = graph.getEdges()) {
+			for (IEdge edge : edges) {
+				json.newLine();
+				json.beginObject();
+				this.writeElement(json, (IElement)edge, GraphSONTokens.EDGE);
+				json.name(GraphSONTokens.OUT_V);
+				this.writeValue(json, ((IElement)edge.getVertex(Direction.OUT)).getId());
+				json.name(GraphSONTokens.IN_V);
+				this.writeValue(json, ((IElement)edge.getVertex(Direction.IN)).getId());
+				json.name(GraphSONTokens.LABEL);
+				json.value(edge.getLabel());
+				json.endObject();
+			}
+		}
+		json.endArray();
+		json.endObject();
+		json.newLine();
+		json.flush();
+	}
+
+	/**
+	 * Writes the properties, the identifier and the kind of an element.
+	 * 
+	 * @param json
+	 *            The JSON writer
+	 * @param element
+	 *            The element
+	 * @param type
+	 *            The kind of the element
+	 * @throws IOException
+	 *             If the element can not be written
+	 */
+	private void writeElement(JsonWriter json, IElement element, String type) throws IOException {
+		for (String key : element.getPropertyKeys()) {
+			json.name(key);
+			this.writeValue(json, element.getProperty(key));
+		}
+		json.name(GraphSONTokens.ID);
+		this.writeValue(json, element.getId());
+		json.name(GraphSONTokens.TYPE);
+		json.value(type);
+	}
+
+	/**
+	 * Writes a value according to the mode.
+	 * 
+	 * @param json
+	 *            The JSON writer
+	 * @param value
+	 *            The value
+	 * @throws IOException
+	 *             If the value can not be written
+	 */
+	private void writeValue(JsonWriter json, Object value) throws IOException {
+		if (this.mode == GraphSONMode.EXTENDED) {
+			json.beginObject();
+			json.name(GraphSONTokens.VALUE_TYPE);
+			json.value(GraphSONWriter.typeOf(value));
+			json.name(GraphSONTokens.VALUE);
+			this.writeRawValue(json, value);
+			json.endObject();
+		} else {
+			this.writeRawValue(json, value);
+		}
+	}
+
+	/**
+	 * Writes the JSON representation of a value, the elements of the lists and the maps being written
+	 * according to the mode.
+	 * 
+	 * @param json
+	 *            The JSON writer
+	 * @param value
+	 *            The value
+	 * @throws IOException
+	 *             If the value can not be written
+	 */
+	private void writeRawValue(JsonWriter json, Object value) throws IOException {
+		if (value instanceof Boolean) {
+			json.value(((Boolean)value).booleanValue());
+		} else if (value instanceof Float || value instanceof Double) {
+			json.value(((Number)value).doubleValue());
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short
+				|| value instanceof Byte) {
+			json.value(((Number)value).longValue());
+		} else if (value instanceof List<?>) {
+			json.beginArray();
+			for (Object element : (List<?>)value) {
+				this.writeValue(json, element);
+			}
+			json.endArray();
+		} else if (value instanceof Map<?, ?>) {
+			json.beginObject();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				json.name(String.valueOf(entry.getKey()));
+				this.writeValue(json, entry.getValue());
+			}
+			json.endObject();
+		} else {
+			json.value(String.valueOf(value));
+		}
+	}
+
+	/**
+	 * Returns the GraphSON type of a value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The type of the value
+	 */
+	private static String typeOf(Object value) {
+		String type;
+		if (value instanceof String) {
+			type = GraphSONTokens.STRING;
+		} else if (value instanceof Boolean) {
+			type = GraphSONTokens.BOOLEAN;
+		} else if (value instanceof Integer) {
+			type = GraphSONTokens.INTEGER;
+		} else if (value instanceof Long) {
+			type = GraphSONTokens.LONG;
+		} else if (value instanceof Short) {
+			type = GraphSONTokens.SHORT;
+		} else if (value instanceof Byte) {
+			type = GraphSONTokens.BYTE;
+		} else if (value instanceof Float) {
+			type = GraphSONTokens.FLOAT;
+		} else if (value instanceof Double) {
+			type = GraphSONTokens.DOUBLE;
+		} else if (value instanceof List<?>) {
+			type = GraphSONTokens.LIST;
+		} else if (value instanceof Map<?, ?>) {
+			type = GraphSONTokens.MAP;
+		} else {
+			type = GraphSONTokens.UNKNOWN;
+		}
+		return type;
+	}
+}
@@ -0,0 +1,263 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import fr.obeo.graph.api.IBulkLoadableGraph;
+import fr.obeo.graph.api.IBulkLoader;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.Arrays;
+
+/**
+ * Loads the content of a snapshot in a graph. The bulk loader of the graph is used if it has one, the
+ * elements being then designated by their identifiers, otherwise the elements are created with the graph API.
+ * <p>
+ * The loader keeps the vertices, or their identifiers, by index in the snapshot to resolve the adjacency of
+ * the edges, and the elements of the current block to resolve the properties of the block.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class GraphSnapshotLoader implements IGraphSnapshotVisitor, AutoCloseable {
+	/**
+	 * The initial capacity of the array of the vertices.
+	 */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The maximum number of vertices of a snapshot which can be loaded.
+	 */
+	private static final int MAX_VERTICES = Integer.MAX_VALUE - 8;
+
+	/**
+	 * The graph.
+	 */
+	private final IGraph graph;
+
+	/**
+	 * The bulk loader of the graph, <code>null</code> if the graph can not be bulk loaded.
+	 */
+	private final IBulkLoader bulkLoader;
+
+	/**
+	 * The vertices by index, or their identifiers if the graph is bulk loaded.
+	 */
+	private Object[] vertices = new Object[INITIAL_CAPACITY];
+
+	/**
+	 * The elements of the current block, or their identifiers if the graph is bulk loaded.
+	 */
+	private Object[] block = new Object[0];
+
+	/**
+	 * The index of the first element of the current block.
+	 */
+	private long blockStart;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	GraphSnapshotLoader(IGraph graph) {
+		this.graph = graph;
+		if (graph instanceof IBulkLoadableGraph) {
+			this.bulkLoader = ((IBulkLoadableGraph)graph).createBulkLoader();
+		} else {
+			this.bulkLoader = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitBlock(fr.obeo.graph.io.ElementKind, long, int)
+	 */
+	@Override
+	public boolean visitBlock(ElementKind kind, long firstIndex, int size) {
+		this.blockStart = firstIndex;
+		if (this.block.length < size) {
+			this.block = new Object[size];
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitVertex(long, java.lang.Object)
+	 */
+	@Override
+	public void visitVertex(long index, Object id) {
+		if (index >= MAX_VERTICES) {
+			throw new IllegalStateException("The snapshot has too many vertices to be loaded: " + index);
+		}
+		Object vertex;
+		if (this.bulkLoader != null) {
+			vertex = this.bulkLoader.addVertex(id);
+		} else {
+			vertex = this.graph.addVertex(id);
+		}
+		if (index >= this.vertices.length) {
+			long capacity = Math.min(Math.max(index + 1, this.vertices.length * 2L), MAX_VERTICES);
+			this.vertices = Arrays.copyOf(this.vertices, (int)capacity);
+		}
+		this.vertices[(int)index] = vertex;
+		this.block[(int)(index - this.blockStart)] = vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitEdge(long, long, long, java.lang.String,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public void visitEdge(long index, long outIndex, long inIndex, String label, Object id) {
+		Object outVertex = this.vertex(outIndex);
+		Object inVertex = this.vertex(inIndex);
+		Object edge;
+		if (this.bulkLoader != null) {
+			edge = this.bulkLoader.addEdge(id, outVertex, inVertex, label);
+		} else {
+			edge = this.graph.addEdge(id, (IVertex)outVertex, (IVertex)inVertex, label);
+		}
+		this.block[(int)(index - this.blockStart)] = edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitBooleanProperty(fr.obeo.graph.io.ElementKind, long,
+	 *      java.lang.String, boolean)
+	 */
+	@Override
+	public void visitBooleanProperty(ElementKind kind, long index, String key, boolean value) {
+		this.visitProperty(kind, index, key, Boolean.valueOf(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitIntProperty(fr.obeo.graph.io.ElementKind, long,
+	 *      java.lang.String, int)
+	 */
+	@Override
+	public void visitIntProperty(ElementKind kind, long index, String key, int value) {
+		this.visitProperty(kind, index, key, Integer.valueOf(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitLongProperty(fr.obeo.graph.io.ElementKind, long,
+	 *      java.lang.String, long)
+	 */
+	@Override
+	public void visitLongProperty(ElementKind kind, long index, String key, long value) {
+		this.visitProperty(kind, index, key, Long.valueOf(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitDoubleProperty(fr.obeo.graph.io.ElementKind, long,
+	 *      java.lang.String, double)
+	 */
+	@Override
+	public void visitDoubleProperty(ElementKind kind, long index, String key, double value) {
+		this.visitProperty(kind, index, key, Double.valueOf(value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitProperty(fr.obeo.graph.io.ElementKind, long,
+	 *      java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void visitProperty(ElementKind kind, long index, String key, Object value) {
+		Object element = this.block[(int)(index - this.blockStart)];
+		if (this.bulkLoader == null) {
+			((IElement)element).setProperty(key, value);
+		} else if (kind == ElementKind.VERTEX) {
+			this.bulkLoader.setVertexProperty(element, key, value);
+		} else {
+			this.bulkLoader.setEdgeProperty(element, key, value);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.io.IGraphSnapshotVisitor#visitEnd(long, long)
+	 */
+	@Override
+	public void visitEnd(long vertexCount, long edgeCount) {
+		this.vertices = new Object[0];
+		this.block = new Object[0];
+		if (this.bulkLoader != null) {
+			this.bulkLoader.commit();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		if (this.bulkLoader != null) {
+			this.bulkLoader.close();
+		}
+	}
+
+	/**
+	 * Returns the vertex with the given index.
+	 * 
+	 * @param index
+	 *            The index of the vertex
+	 * @return The vertex, or its identifier if the graph is bulk loaded
+	 */
+	private Object vertex(long index) {
+		Object vertex = null;
+		if (index >= 0 && index < this.vertices.length) {
+			vertex = this.vertices[(int)index];
+		}
+		if (vertex == null) {
+			throw new IllegalStateException("The snapshot is corrupted, unknown vertex: " + index);
+		}
+		return vertex;
+	}
+}
@@ -0,0 +1,339 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import fr.obeo.graph.api.IGraph;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a snapshot written by {@link GraphSnapshotWriter}.
+ * <p>
+ * The reader decodes the snapshot directly from a buffer or from a file mapped in memory, and reports its
+ * content to a {@link IGraphSnapshotVisitor}: the vertices and the edges are designated by their index in the
+ * snapshot, the labels and the property keys are shared by all the elements and the primitive property
+ * values are not boxed, so that a snapshot can be walked without creating an object per element. The blocks
+ * of elements which are not needed by the visitor are skipped without being decoded.
+ * </p>
+ * <p>
+ * The snapshot can also be loaded in any graph with {@link #loadInto(IGraph)}, with a bulk load if the graph
+ * supports it:
+ * </p>
+ * 
+ * <pre>
+ * try (GraphSnapshotReader reader = new GraphSnapshotReader(file)) {
+ * 	reader.loadInto(graph);
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class GraphSnapshotReader implements Closeable {
+	/**
+	 * The file read, <code>null</code> if the snapshot is read from a buffer.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The input.
+	 */
+	private final SnapshotInput input;
+
+	/**
+	 * The version of the format of the snapshot.
+	 */
+	private final int version;
+
+	/**
+	 * The maximum number of elements per block.
+	 */
+	private final int blockSize;
+
+	/**
+	 * The position of the first block.
+	 */
+	private final long start;
+
+	/**
+	 * The constructor of a reader of a snapshot held in a buffer, from its position to its limit. The
+	 * buffer can be a mapped buffer, it is read without being copied.
+	 * 
+	 * @param buffer
+	 *            The buffer
+	 * @throws IOException
+	 *             If the buffer does not start with a snapshot
+	 */
+	public GraphSnapshotReader(ByteBuffer buffer) throws IOException {
+		this.channel = null;
+		this.input = new SnapshotInput(buffer);
+		this.version = this.readHeader();
+		this.blockSize = this.input.readVarInt();
+		this.start = this.input.position();
+	}
+
+	/**
+	 * The constructor of a reader of a snapshot held in a file. The file is mapped in memory while it is
+	 * read, it is closed by {@link #close()}.
+	 * 
+	 * @param file
+	 *            The file
+	 * @throws IOException
+	 *             If the file can not be read or does not start with a snapshot
+	 */
+	public GraphSnapshotReader(File file) throws IOException {
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.input = new SnapshotInput(this.channel);
+		boolean opened = false;
+		try {
+			this.version = this.readHeader();
+			this.blockSize = this.input.readVarInt();
+			this.start = this.input.position();
+			opened = true;
+		} finally {
+			if (!opened) {
+				this.channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the version of the format of the snapshot.
+	 * 
+	 * @return The version of the format of the snapshot
+	 */
+	public int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns the maximum number of elements per block of the snapshot.
+	 * 
+	 * @return The maximum number of elements per block
+	 */
+	public int getBlockSize() {
+		return this.blockSize;
+	}
+
+	/**
+	 * Walks the whole snapshot with the given visitor. The snapshot can be walked several times.
+	 * 
+	 * @param visitor
+	 *            The visitor
+	 * @throws IOException
+	 *             If the snapshot can not be read or is corrupted
+	 */
+	public void accept(IGraphSnapshotVisitor visitor) throws IOException {
+		this.input.seek(this.start);
+		List<String> dictionary = new ArrayList<String>();
+		long vertexCount = 0;
+		long edgeCount = 0;
+		boolean end = false;
+		while (!end) {
+			byte kind = this.input.readByte();
+			for (int i = this.input.readVarInt(); i > 0; i--) {
+				dictionary.add(this.input.readString());
+			}
+			long length = this.input.readVarLong();
+			long bodyEnd = this.input.position() + length;
+			if (kind == SnapshotFormat.VERTEX_BLOCK) {
+				vertexCount += this.readBlock(visitor, ElementKind.VERTEX, vertexCount, dictionary, bodyEnd);
+			} else if (kind == SnapshotFormat.EDGE_BLOCK) {
+				edgeCount += this.readBlock(visitor, ElementKind.EDGE, edgeCount, dictionary, bodyEnd);
+			} else if (kind == SnapshotFormat.END_BLOCK) {
+				if (this.input.readVarLong() != vertexCount || this.input.readVarLong() != edgeCount) {
+					throw new IOException("The snapshot is corrupted, its number of elements does not match");
+				}
+				visitor.visitEnd(vertexCount, edgeCount);
+				end = true;
+			} else {
+				throw new IOException("The snapshot is corrupted, unknown block kind: " + kind);
+			}
+			if (this.input.position() != bodyEnd) {
+				throw new IOException("The snapshot is corrupted, invalid block length at " + bodyEnd);
+			}
+		}
+	}
+
+	/**
+	 * Loads the snapshot in the given graph. The identifiers of the elements are given to the graph, which
+	 * may keep them or generate its own ones. If the graph is an
+	 * {@link fr.obeo.graph.api.IBulkLoadableGraph}, the snapshot is loaded with its bulk loader.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @throws IOException
+	 *             If the snapshot can not be read or is corrupted
+	 */
+	public void loadInto(IGraph graph) throws IOException {
+		try (GraphSnapshotLoader loader = new GraphSnapshotLoader(graph)) {
+			this.accept(loader);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.channel != null) {
+			this.channel.close();
+		}
+	}
+
+	/**
+	 * Reads the magic number and the version of the snapshot.
+	 * 
+	 * @return The version of the snapshot
+	 * @throws IOException
+	 *             If the input does not start with a supported snapshot
+	 */
+	private int readHeader() throws IOException {
+		if (this.input.readInt() != SnapshotFormat.MAGIC) {
+			throw new IOException("The input is not a graph snapshot");
+		}
+		int snapshotVersion = this.input.readVarInt();
+		if (snapshotVersion > SnapshotFormat.VERSION) {
+			throw new IOException("Unsupported snapshot version: " + snapshotVersion);
+		}
+		return snapshotVersion;
+	}
+
+	/**
+	 * Reads the body of a block of elements.
+	 * 
+	 * @param visitor
+	 *            The visitor
+	 * @param kind
+	 *            The kind of the elements of the block
+	 * @param firstIndex
+	 *            The index of the first element of the block
+	 * @param dictionary
+	 *            The dictionary
+	 * @param bodyEnd
+	 *            The position of the end of the body of the block
+	 * @return The number of elements of the block
+	 * @throws IOException
+	 *             If the block can not be read or is corrupted
+	 */
+	private int readBlock(IGraphSnapshotVisitor visitor, ElementKind kind, long firstIndex,
+			List<String> dictionary, long bodyEnd) throws IOException {
+		int size = this.input.readVarInt();
+		if (visitor.visitBlock(kind, firstIndex, size)) {
+			if (kind == ElementKind.VERTEX) {
+				for (int i = 0; i < size; i++) {
+					visitor.visitVertex(firstIndex + i, this.input.readTaggedValue());
+				}
+			} else {
+				long outIndex = 0;
+				for (int i = 0; i < size; i++) {
+					outIndex += this.input.readVarLong();
+					long inIndex = outIndex + this.input.readZigZag();
+					String label = GraphSnapshotReader.lookup(dictionary, this.input.readVarInt());
+					visitor.visitEdge(firstIndex + i, outIndex, inIndex, label, this.input.readTaggedValue());
+				}
+			}
+			for (int i = this.input.readVarInt(); i > 0; i--) {
+				this.readColumn(visitor, kind, firstIndex, dictionary);
+			}
+		} else {
+			this.input.seek(bodyEnd);
+		}
+		return size;
+	}
+
+	/**
+	 * Reads a property column of a block.
+	 * 
+	 * @param visitor
+	 *            The visitor
+	 * @param kind
+	 *            The kind of the elements of the block
+	 * @param firstIndex
+	 *            The index of the first element of the block
+	 * @param dictionary
+	 *            The dictionary
+	 * @throws IOException
+	 *             If the column can not be read or is corrupted
+	 */
+	private void readColumn(IGraphSnapshotVisitor visitor, ElementKind kind, long firstIndex,
+			List<String> dictionary) throws IOException {
+		String key = GraphSnapshotReader.lookup(dictionary, this.input.readVarInt());
+		byte tag = this.input.readByte();
+		long index = firstIndex - 1;
+		for (int i = this.input.readVarInt(); i > 0; i--) {
+			index += this.input.readVarLong() + 1;
+			switch (tag) {
+				case SnapshotFormat.BOOLEAN:
+					visitor.visitBooleanProperty(kind, index, key, this.input.readByte() != 0);
+					break;
+				case SnapshotFormat.INTEGER:
+					visitor.visitIntProperty(kind, index, key, (int)this.input.readZigZag());
+					break;
+				case SnapshotFormat.LONG:
+					visitor.visitLongProperty(kind, index, key, this.input.readZigZag());
+					break;
+				case SnapshotFormat.DOUBLE:
+					double value = Double.longBitsToDouble(this.input.readLong());
+					visitor.visitDoubleProperty(kind, index, key, value);
+					break;
+				default:
+					visitor.visitProperty(kind, index, key, this.input.readValue(tag));
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Returns a string of the dictionary.
+	 * 
+	 * @param dictionary
+	 *            The dictionary
+	 * @param index
+	 *            The index of the string
+	 * @return The string
+	 * @throws IOException
+	 *             If the index is not in the dictionary
+	 */
+	private static String lookup(List<String> dictionary, int index) throws IOException {
+		if (index >= dictionary.size()) {
+			throw new IOException("The snapshot is corrupted, unknown dictionary entry: " + index);
+		}
+		return dictionary.get(index);
+	}
+}
@@ -0,0 +1,401 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElement;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IVertex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a graph in the binary snapshot format described in {@link SnapshotFormat}.
+ * <p>
+ * The graph is read with the generic graph API and written block by block: only the block being written and
+ * the index of each vertex in the snapshot are kept in memory, the index being needed to encode the
+ * adjacency of the edges. The labels and the property keys are written once in the dictionary of the
+ * snapshot, the adjacency is encoded with variable length integers and the properties of each block are
+ * grouped in typed columns.
+ * </p>
+ * 
+ * <pre>
+ * try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+ * 	new GraphSnapshotWriter(output).write(graph);
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class GraphSnapshotWriter {
+	/**
+	 * The number of bits of the key in the identifiers of the columns.
+	 */
+	private static final int COLUMN_TAG_BITS = 8;
+
+	/**
+	 * The stream.
+	 */
+	private final OutputStream output;
+
+	/**
+	 * The maximum number of elements per block.
+	 */
+	private final int blockSize;
+
+	/**
+	 * The index of the strings of the dictionary.
+	 */
+	private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+	/**
+	 * The strings added to the dictionary since the last block written.
+	 */
+	private final List<String> dictionaryAdditions = new ArrayList<String>();
+
+	/**
+	 * The records of the elements of the current block.
+	 */
+	private final SnapshotOutput records = new SnapshotOutput();
+
+	/**
+	 * The property columns of the current block, by key and tag.
+	 */
+	private final Map<Integer, Column> columns = new LinkedHashMap<Integer, Column>();
+
+	/**
+	 * The body of the block being written.
+	 */
+	private final SnapshotOutput body = new SnapshotOutput();
+
+	/**
+	 * The number of elements of the current block.
+	 */
+	private int blockCount;
+
+	/**
+	 * The index of the outgoing vertex of the previous edge of the current block.
+	 */
+	private long previousOutIndex;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param output
+	 *            The stream, which is not closed by the writer
+	 */
+	public GraphSnapshotWriter(OutputStream output) {
+		this(output, SnapshotFormat.DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param output
+	 *            The stream, which is not closed by the writer
+	 * @param blockSize
+	 *            The maximum number of elements per block
+	 */
+	public GraphSnapshotWriter(OutputStream output, int blockSize) {
+		if (blockSize < 1) {
+			throw new IllegalArgumentException("The size of the blocks must be positive: " + blockSize);
+		}
+		this.output = output;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Writes the given graph. The graph must not be modified while it is written.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @throws IOException
+	 *             If the snapshot can not be written
+	 */
+	public void write(IGraph graph) throws IOException {
+		this.dictionary.clear();
+		this.dictionaryAdditions.clear();
+		SnapshotOutput header = new SnapshotOutput();
+		header.writeInt(SnapshotFormat.MAGIC);
+		header.writeVarLong(SnapshotFormat.VERSION);
+		header.writeVarLong(this.blockSize);
+		header.writeTo(this.output);
+
+		Map<Object, Long> indexes = new HashMap<Object, Long>();
+		try (ICloseableIterable<IVertex> vertices = graph.getVertices()) {
+			for (IVertex vertex : vertices) {
+				IElement element = (IElement)vertex;
+				indexes.put(element.getId(), Long.valueOf(indexes.size()));
+				this.records.writeTaggedValue(element.getId());
+				this.addProperties(element);
+				this.endElement(SnapshotFormat.VERTEX_BLOCK);
+			}
+		}
+		this.writeBlock(SnapshotFormat.VERTEX_BLOCK);
+
+		long edgeCount = 0;
+		try (ICloseableIterable<IVertex> vertices = graph.getVertices()) {
+			for (IVertex vertex : vertices) {
+				long outIndex = this.indexOf(indexes, vertex);
+				try (ICloseableIterable<IEdge> edges = vertex.getEdges(Direction.OUT)) {
+					for (IEdge edge : edges) {
+						this.writeEdge(edge, outIndex, this.indexOf(indexes, edge.getVertex(Direction.IN)));
+						edgeCount++;
+					}
+				}
+			}
+		}
+		this.writeBlock(SnapshotFormat.EDGE_BLOCK);
+
+		this.body.reset();
+		this.body.writeVarLong(indexes.size());
+		this.body.writeVarLong(edgeCount);
+		this.writeFrame(SnapshotFormat.END_BLOCK);
+		this.output.flush();
+	}
+
+	/**
+	 * Adds an edge to the current block. The outgoing vertex of an edge is encoded as the gap from the one of
+	 * the previous edge of the block, the edges being grouped by outgoing vertex, and the incoming vertex as
+	 * its difference with the outgoing one.
+	 * 
+	 * @param edge
+	 *            The edge
+	 * @param outIndex
+	 *            The index of the outgoing vertex
+	 * @param inIndex
+	 *            The index of the incoming vertex
+	 * @throws IOException
+	 *             If the block can not be written
+	 */
+	private void writeEdge(IEdge edge, long outIndex, long inIndex) throws IOException {
+		if (this.blockCount == 0) {
+			this.records.writeVarLong(outIndex);
+		} else {
+			this.records.writeVarLong(outIndex - this.previousOutIndex);
+		}
+		this.previousOutIndex = outIndex;
+		this.records.writeZigZag(inIndex - outIndex);
+		this.records.writeVarLong(this.stringIndex(edge.getLabel()));
+		IElement element = (IElement)edge;
+		this.records.writeTaggedValue(element.getId());
+		this.addProperties(element);
+		this.endElement(SnapshotFormat.EDGE_BLOCK);
+	}
+
+	/**
+	 * Returns the index of the given vertex in the snapshot.
+	 * 
+	 * @param indexes
+	 *            The indexes of the vertices by identifier
+	 * @param vertex
+	 *            The vertex
+	 * @return The index of the vertex
+	 */
+	private long indexOf(Map<Object, Long> indexes, IVertex vertex) {
+		Long index = indexes.get(((IElement)vertex).getId());
+		if (index == null) {
+			throw new IllegalStateException("The graph has been modified while it was written: " + vertex);
+		}
+		return index.longValue();
+	}
+
+	/**
+	 * Adds the properties of an element to the columns of the current block.
+	 * 
+	 * @param element
+	 *            The element
+	 */
+	private void addProperties(IElement element) {
+		for (String key : element.getPropertyKeys()) {
+			Object value = element.getProperty(key);
+			byte tag = SnapshotFormat.tagOf(value);
+			int keyIndex = this.stringIndex(key);
+			Integer columnId = Integer.valueOf(keyIndex << COLUMN_TAG_BITS | tag);
+			Column column = this.columns.get(columnId);
+			if (column == null) {
+				column = new Column(keyIndex, tag);
+				this.columns.put(columnId, column);
+			}
+			column.add(this.blockCount, value);
+		}
+	}
+
+	/**
+	 * Ends the record of an element, writing the current block if it is full.
+	 * 
+	 * @param kind
+	 *            The kind of the block
+	 * @throws IOException
+	 *             If the block can not be written
+	 */
+	private void endElement(byte kind) throws IOException {
+		this.blockCount++;
+		if (this.blockCount == this.blockSize) {
+			this.writeBlock(kind);
+		}
+	}
+
+	/**
+	 * Returns the index of a string in the dictionary, adding it if needed.
+	 * 
+	 * @param value
+	 *            The string
+	 * @return The index of the string
+	 */
+	private int stringIndex(String value) {
+		Integer index = this.dictionary.get(value);
+		if (index == null) {
+			index = Integer.valueOf(this.dictionary.size());
+			this.dictionary.put(value, index);
+			this.dictionaryAdditions.add(value);
+		}
+		return index.intValue();
+	}
+
+	/**
+	 * Writes the current block if it is not empty.
+	 * 
+	 * @param kind
+	 *            The kind of the block
+	 * @throws IOException
+	 *             If the block can not be written
+	 */
+	private void writeBlock(byte kind) throws IOException {
+		if (this.blockCount > 0) {
+			this.body.reset();
+			this.body.writeVarLong(this.blockCount);
+			this.body.writeBytes(this.records);
+			this.body.writeVarLong(this.columns.size());
+			for (Column column : this.columns.values()) {
+				this.body.writeVarLong(column.keyIndex);
+				this.body.writeByte(column.tag);
+				this.body.writeVarLong(column.count);
+				this.body.writeBytes(column.values);
+			}
+			this.writeFrame(kind);
+
+			this.dictionaryAdditions.clear();
+			this.records.reset();
+			this.columns.clear();
+			this.blockCount = 0;
+		}
+	}
+
+	/**
+	 * Writes the kind of a block, the strings added to the dictionary, the length of the body of the block
+	 * and its body. The strings added to the dictionary come before the length so that the readers skipping
+	 * the body of the block still know the dictionary.
+	 * 
+	 * @param kind
+	 *            The kind of the block
+	 * @throws IOException
+	 *             If the block can not be written
+	 */
+	private void writeFrame(byte kind) throws IOException {
+		SnapshotOutput frame = new SnapshotOutput();
+		frame.writeByte(kind);
+		frame.writeVarLong(this.dictionaryAdditions.size());
+		for (String value : this.dictionaryAdditions) {
+			frame.writeString(value);
+		}
+		frame.writeVarLong(this.body.size());
+		frame.writeTo(this.output);
+		this.body.writeTo(this.output);
+	}
+
+	/**
+	 * The values of a property column of a block.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Column {
+		/**
+		 * The index of the key in the dictionary.
+		 */
+		private final int keyIndex;
+
+		/**
+		 * The tag of the type of the values.
+		 */
+		private final byte tag;
+
+		/**
+		 * The gaps between the elements and the values.
+		 */
+		private final SnapshotOutput values = new SnapshotOutput();
+
+		/**
+		 * The number of values.
+		 */
+		private int count;
+
+		/**
+		 * The index in the block of the last element having a value.
+		 */
+		private int lastIndex = -1;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param keyIndex
+		 *            The index of the key in the dictionary
+		 * @param tag
+		 *            The tag of the type of the values
+		 */
+		Column(int keyIndex, byte tag) {
+			this.keyIndex = keyIndex;
+			this.tag = tag;
+		}
+
+		/**
+		 * Adds a value.
+		 * 
+		 * @param index
+		 *            The index of the element in the block
+		 * @param value
+		 *            The value
+		 */
+		void add(int index, Object value) {
+			this.values.writeVarLong(index - this.lastIndex - 1);
+			this.values.writeValue(this.tag, value);
+			this.lastIndex = index;
+			this.count++;
+		}
+	}
+}
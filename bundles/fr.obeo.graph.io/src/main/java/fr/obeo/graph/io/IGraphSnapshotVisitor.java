@@ -0,0 +1,166 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+/**
+ * The visitor of the content of a snapshot, called by
+ * {@link GraphSnapshotReader#accept(IGraphSnapshotVisitor)} while the snapshot is decoded. The vertices and
+ * the edges are designated by their index in the snapshot, no object is created for them and the values of
+ * the primitive properties are not boxed.
+ * <p>
+ * The snapshot is made of blocks of elements of the same kind, each block being announced by
+ * {@link #visitBlock(ElementKind, long, int)} and followed by the properties of its elements. All the blocks
+ * of vertices come before the blocks of edges, the edges being grouped by outgoing vertex.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public interface IGraphSnapshotVisitor {
+	/**
+	 * Visit the start of a block of elements.
+	 * 
+	 * @param kind
+	 *            The kind of the elements of the block
+	 * @param firstIndex
+	 *            The index of the first element of the block
+	 * @param size
+	 *            The number of elements of the block
+	 * @return <code>true</code> to visit the elements of the block, <code>false</code> to skip the block
+	 *         without decoding it
+	 */
+	boolean visitBlock(ElementKind kind, long firstIndex, int size);
+
+	/**
+	 * Visit a vertex.
+	 * 
+	 * @param index
+	 *            The index of the vertex
+	 * @param id
+	 *            The identifier of the vertex
+	 */
+	void visitVertex(long index, Object id);
+
+	/**
+	 * Visit an edge.
+	 * 
+	 * @param index
+	 *            The index of the edge
+	 * @param outIndex
+	 *            The index of the vertex on the tail of the edge
+	 * @param inIndex
+	 *            The index of the vertex on the head of the edge
+	 * @param label
+	 *            The label of the edge, shared by all the edges with this label
+	 * @param id
+	 *            The identifier of the edge
+	 */
+	void visitEdge(long index, long outIndex, long inIndex, String label, Object id);
+
+	/**
+	 * Visit a boolean property.
+	 * 
+	 * @param kind
+	 *            The kind of the element
+	 * @param index
+	 *            The index of the element
+	 * @param key
+	 *            The key of the property, shared by all the properties with this key
+	 * @param value
+	 *            The value of the property
+	 */
+	void visitBooleanProperty(ElementKind kind, long index, String key, boolean value);
+
+	/**
+	 * Visit an <code>int</code> property.
+	 * 
+	 * @param kind
+	 *            The kind of the element
+	 * @param index
+	 *            The index of the element
+	 * @param key
+	 *            The key of the property, shared by all the properties with this key
+	 * @param value
+	 *            The value of the property
+	 */
+	void visitIntProperty(ElementKind kind, long index, String key, int value);
+
+	/**
+	 * Visit a <code>long</code> property.
+	 * 
+	 * @param kind
+	 *            The kind of the element
+	 * @param index
+	 *            The index of the element
+	 * @param key
+	 *            The key of the property, shared by all the properties with this key
+	 * @param value
+	 *            The value of the property
+	 */
+	void visitLongProperty(ElementKind kind, long index, String key, long value);
+
+	/**
+	 * Visit a <code>double</code> property.
+	 * 
+	 * @param kind
+	 *            The kind of the element
+	 * @param index
+	 *            The index of the element
+	 * @param key
+	 *            The key of the property, shared by all the properties with this key
+	 * @param value
+	 *            The value of the property
+	 */
+	void visitDoubleProperty(ElementKind kind, long index, String key, double value);
+
+	/**
+	 * Visit a property whose value is neither a boolean, an <code>int</code>, a <code>long</code> nor a
+	 * <code>double</code>.
+	 * 
+	 * @param kind
+	 *            The kind of the element
+	 * @param index
+	 *            The index of the element
+	 * @param key
+	 *            The key of the property, shared by all the properties with this key
+	 * @param value
+	 *            The value of the property
+	 */
+	void visitProperty(ElementKind kind, long index, String key, Object value);
+
+	/**
+	 * Visit the end of the snapshot.
+	 * 
+	 * @param vertexCount
+	 *            The number of vertices of the snapshot
+	 * @param edgeCount
+	 *            The number of edges of the snapshot
+	 */
+	void visitEnd(long vertexCount, long edgeCount);
+}
@@ -0,0 +1,394 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal streaming JSON reader. The caller walks the structure of the document member after member, only
+ * the values explicitly read with {@link #nextValue()} are materialized, so that large arrays can be read
+ * one value at a time.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class JsonReader {
+	/**
+	 * The radix of the escaped characters.
+	 */
+	private static final int HEX_RADIX = 16;
+
+	/**
+	 * The number of hexadecimal digits of an escaped character.
+	 */
+	private static final int HEX_DIGITS = 4;
+
+	/**
+	 * The value of {@link #peeked} when no character has been peeked.
+	 */
+	private static final int NONE = -2;
+
+	/**
+	 * The reader.
+	 */
+	private final Reader reader;
+
+	/**
+	 * The next character, read but not consumed yet, or {@link #NONE}.
+	 */
+	private int peeked = NONE;
+
+	/**
+	 * The buffer of the strings and numbers.
+	 */
+	private final StringBuilder buffer = new StringBuilder();
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param reader
+	 *            The reader, which should be buffered
+	 */
+	JsonReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Consumes the beginning of an object.
+	 * 
+	 * @throws IOException
+	 *             If the next value is not an object
+	 */
+	void beginObject() throws IOException {
+		this.expect('{');
+	}
+
+	/**
+	 * Consumes the end of the current object.
+	 * 
+	 * @throws IOException
+	 *             If the current object does not end here
+	 */
+	void endObject() throws IOException {
+		this.expect('}');
+	}
+
+	/**
+	 * Consumes the beginning of an array.
+	 * 
+	 * @throws IOException
+	 *             If the next value is not an array
+	 */
+	void beginArray() throws IOException {
+		this.expect('[');
+	}
+
+	/**
+	 * Consumes the end of the current array.
+	 * 
+	 * @throws IOException
+	 *             If the current array does not end here
+	 */
+	void endArray() throws IOException {
+		this.expect(']');
+	}
+
+	/**
+	 * Indicates if the current object or array has another member, consuming the separator before it.
+	 * 
+	 * @return <code>true</code> if there is another member, <code>false</code> otherwise
+	 * @throws IOException
+	 *             If the document can not be read
+	 */
+	boolean hasNext() throws IOException {
+		int c = this.peek();
+		if (c == ',') {
+			this.peeked = NONE;
+			c = this.peek();
+		}
+		return c != '}' && c != ']';
+	}
+
+	/**
+	 * Reads the name of the next member of the current object.
+	 * 
+	 * @return The name
+	 * @throws IOException
+	 *             If the next member has no name
+	 */
+	String nextName() throws IOException {
+		this.expect('"');
+		String name = this.readString();
+		this.expect(':');
+		return name;
+	}
+
+	/**
+	 * Reads the next value: a {@link String}, a {@link Long} for the integers, a {@link Double} for the other
+	 * numbers, a {@link Boolean}, <code>null</code>, a {@link Map} for the objects or a {@link List} for the
+	 * arrays.
+	 * 
+	 * @return The value
+	 * @throws IOException
+	 *             If the value can not be read
+	 */
+	Object nextValue() throws IOException {
+		Object value;
+		int c = this.peek();
+		if (c == '{') {
+			Map<String, Object> members = new LinkedHashMap<String, Object>();
+			this.beginObject();
+			while (this.hasNext()) {
+				String name = this.nextName();
+				members.put(name, this.nextValue());
+			}
+			this.endObject();
+			value = members;
+		} else if (c == '[') {
+			List<Object> values = new ArrayList<Object>();
+			this.beginArray();
+			while (this.hasNext()) {
+				values.add(this.nextValue());
+			}
+			this.endArray();
+			value = values;
+		} else if (c == '"') {
+			this.peeked = NONE;
+			value = this.readString();
+		} else {
+			value = this.readLiteral();
+		}
+		return value;
+	}
+
+	/**
+	 * Skips the next value.
+	 * 
+	 * @throws IOException
+	 *             If the value can not be read
+	 */
+	void skipValue() throws IOException {
+		int c = this.peek();
+		if (c == '{') {
+			this.beginObject();
+			while (this.hasNext()) {
+				this.nextName();
+				this.skipValue();
+			}
+			this.endObject();
+		} else if (c == '[') {
+			this.beginArray();
+			while (this.hasNext()) {
+				this.skipValue();
+			}
+			this.endArray();
+		} else {
+			this.nextValue();
+		}
+	}
+
+	/**
+	 * Returns the next character which is not a white space, without consuming it.
+	 * 
+	 * @return The next character
+	 * @throws IOException
+	 *             If the document ends
+	 */
+	private int peek() throws IOException {
+		while (this.peeked == NONE || Character.isWhitespace(this.peeked)) {
+			this.peeked = this.reader.read();
+			if (this.peeked < 0) {
+				throw new EOFException("The JSON document is truncated");
+			}
+		}
+		return this.peeked;
+	}
+
+	/**
+	 * Consumes the given character.
+	 * 
+	 * @param expected
+	 *            The character
+	 * @throws IOException
+	 *             If the next character is another one
+	 */
+	private void expect(char expected) throws IOException {
+		int c = this.peek();
+		if (c != expected) {
+			throw new IOException("Invalid JSON document, '" + expected + "' expected instead of '" + (char)c
+					+ "'");
+		}
+		this.peeked = NONE;
+	}
+
+	/**
+	 * Reads a string after its opening quote.
+	 * 
+	 * @return The string
+	 * @throws IOException
+	 *             If the string can not be read
+	 */
+	private String readString() throws IOException {
+		this.buffer.setLength(0);
+		int c = this.read();
+		while (c != '"') {
+			if (c == '\\') {
+				c = this.read();
+				switch (c) {
+					case 'b':
+						this.buffer.append('\b');
+						break;
+					case 'f':
+						this.buffer.append('\f');
+						break;
+					case 'n':
+						this.buffer.append('\n');
+						break;
+					case 'r':
+						this.buffer.append('\r');
+						break;
+					case 't':
+						this.buffer.append('\t');
+						break;
+					case 'u':
+						int code = 0;
+						for (int i = 0; i < HEX_DIGITS; i++) {
+							int digit = Character.digit(this.read(), HEX_RADIX);
+							if (digit < 0) {
+								throw new IOException("Invalid JSON document, invalid unicode escape");
+							}
+							code = code * HEX_RADIX + digit;
+						}
+						this.buffer.append((char)code);
+						break;
+					default:
+						this.buffer.append((char)c);
+						break;
+				}
+			} else {
+				this.buffer.append((char)c);
+			}
+			c = this.read();
+		}
+		return this.buffer.toString();
+	}
+
+	/**
+	 * Reads a number, a boolean or <code>null</code>.
+	 * 
+	 * @return The value
+	 * @throws IOException
+	 *             If the value can not be read
+	 */
+	private Object readLiteral() throws IOException {
+		this.buffer.setLength(0);
+		int c = this.peek();
+		while (c >= 0 && c != ',' && c != '}' && c != ']' && !Character.isWhitespace(c)) {
+			this.buffer.append((char)c);
+			c = this.reader.read();
+		}
+		this.peeked = c;
+		if (c < 0) {
+			this.peeked = NONE;
+		}
+		String literal = this.buffer.toString();
+		Object value;
+		if ("true".equals(literal)) {
+			value = Boolean.TRUE;
+		} else if ("false".equals(literal)) {
+			value = Boolean.FALSE;
+		} else if ("null".equals(literal)) {
+			value = null;
+		} else {
+			value = JsonReader.parseNumber(literal);
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a number.
+	 * 
+	 * @param literal
+	 *            The number
+	 * @return A {@link Long} for the integers which fit in a long, a {@link Double} otherwise
+	 * @throws IOException
+	 *             If the literal is not a number
+	 */
+	private static Object parseNumber(String literal) throws IOException {
+		Object value;
+		try {
+			if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+				value = JsonReader.parseInteger(literal);
+			} else {
+				value = Double.valueOf(literal);
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid JSON document, unexpected value: " + literal, e);
+		}
+		return value;
+	}
+
+	/**
+	 * Parses an integer.
+	 * 
+	 * @param literal
+	 *            The integer
+	 * @return A {@link Long} if the integer fits in a long, a {@link Double} otherwise
+	 */
+	private static Object parseInteger(String literal) {
+		Object value;
+		try {
+			value = Long.valueOf(literal);
+		} catch (NumberFormatException e) {
+			value = Double.valueOf(literal);
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the next character.
+	 * 
+	 * @return The next character
+	 * @throws IOException
+	 *             If the document ends
+	 */
+	private int read() throws IOException {
+		int c = this.reader.read();
+		if (c < 0) {
+			throw new EOFException("The JSON document is truncated");
+		}
+		return c;
+	}
+}
@@ -0,0 +1,317 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A minimal streaming JSON writer, the values are written as soon as they are given and only the nesting of
+ * the objects and arrays being written is kept in memory.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class JsonWriter {
+	/**
+	 * The initial depth of the nesting.
+	 */
+	private static final int INITIAL_DEPTH = 8;
+
+	/**
+	 * The first character which does not need to be escaped.
+	 */
+	private static final char FIRST_PRINTABLE = ' ';
+
+	/**
+	 * The radix of the escaped characters.
+	 */
+	private static final int HEX_RADIX = 16;
+
+	/**
+	 * The number of hexadecimal digits of an escaped character.
+	 */
+	private static final int HEX_DIGITS = 4;
+
+	/**
+	 * The writer.
+	 */
+	private final Writer writer;
+
+	/**
+	 * Indicates, for each nesting level, if a value has already been written in the object or array.
+	 */
+	private boolean[] nonEmpty = new boolean[INITIAL_DEPTH];
+
+	/**
+	 * The current nesting level.
+	 */
+	private int depth;
+
+	/**
+	 * Indicates if a name has just been written.
+	 */
+	private boolean afterName;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param writer
+	 *            The writer
+	 */
+	JsonWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 * Begins an object.
+	 * 
+	 * @throws IOException
+	 *             If the object can not be written
+	 */
+	void beginObject() throws IOException {
+		this.open('{');
+	}
+
+	/**
+	 * Ends the current object.
+	 * 
+	 * @throws IOException
+	 *             If the object can not be written
+	 */
+	void endObject() throws IOException {
+		this.close('}');
+	}
+
+	/**
+	 * Begins an array.
+	 * 
+	 * @throws IOException
+	 *             If the array can not be written
+	 */
+	void beginArray() throws IOException {
+		this.open('[');
+	}
+
+	/**
+	 * Ends the current array.
+	 * 
+	 * @throws IOException
+	 *             If the array can not be written
+	 */
+	void endArray() throws IOException {
+		this.close(']');
+	}
+
+	/**
+	 * Writes the name of the next member of the current object.
+	 * 
+	 * @param name
+	 *            The name
+	 * @throws IOException
+	 *             If the name can not be written
+	 */
+	void name(String name) throws IOException {
+		this.beforeValue();
+		this.writeString(name);
+		this.writer.write(':');
+		this.afterName = true;
+	}
+
+	/**
+	 * Writes a string.
+	 * 
+	 * @param value
+	 *            The string
+	 * @throws IOException
+	 *             If the string can not be written
+	 */
+	void value(String value) throws IOException {
+		this.beforeValue();
+		this.writeString(value);
+	}
+
+	/**
+	 * Writes an integer.
+	 * 
+	 * @param value
+	 *            The integer
+	 * @throws IOException
+	 *             If the integer can not be written
+	 */
+	void value(long value) throws IOException {
+		this.beforeValue();
+		this.writer.write(Long.toString(value));
+	}
+
+	/**
+	 * Writes a floating point number, the infinite values and NaN being written as strings since JSON does
+	 * not support them.
+	 * 
+	 * @param value
+	 *            The number
+	 * @throws IOException
+	 *             If the number can not be written
+	 */
+	void value(double value) throws IOException {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			this.value(Double.toString(value));
+		} else {
+			this.beforeValue();
+			this.writer.write(Double.toString(value));
+		}
+	}
+
+	/**
+	 * Writes a boolean.
+	 * 
+	 * @param value
+	 *            The boolean
+	 * @throws IOException
+	 *             If the boolean can not be written
+	 */
+	void value(boolean value) throws IOException {
+		this.beforeValue();
+		this.writer.write(Boolean.toString(value));
+	}
+
+	/**
+	 * Writes a line separator between two values of the top level arrays, to keep the files readable.
+	 * 
+	 * @throws IOException
+	 *             If the separator can not be written
+	 */
+	void newLine() throws IOException {
+		this.writer.write('\n');
+	}
+
+	/**
+	 * Flushes the writer.
+	 * 
+	 * @throws IOException
+	 *             If the writer can not be flushed
+	 */
+	void flush() throws IOException {
+		this.writer.flush();
+	}
+
+	/**
+	 * Begins an object or an array.
+	 * 
+	 * @param bracket
+	 *            The opening bracket
+	 * @throws IOException
+	 *             If the bracket can not be written
+	 */
+	private void open(char bracket) throws IOException {
+		this.beforeValue();
+		this.writer.write(bracket);
+		this.depth++;
+		if (this.depth == this.nonEmpty.length) {
+			this.nonEmpty = Arrays.copyOf(this.nonEmpty, this.nonEmpty.length * 2);
+		}
+		this.nonEmpty[this.depth] = false;
+	}
+
+	/**
+	 * Ends an object or an array.
+	 * 
+	 * @param bracket
+	 *            The closing bracket
+	 * @throws IOException
+	 *             If the bracket can not be written
+	 */
+	private void close(char bracket) throws IOException {
+		this.writer.write(bracket);
+		this.depth--;
+	}
+
+	/**
+	 * Writes the separator needed before a value or a name.
+	 * 
+	 * @throws IOException
+	 *             If the separator can not be written
+	 */
+	private void beforeValue() throws IOException {
+		if (this.afterName) {
+			this.afterName = false;
+		} else {
+			if (this.nonEmpty[this.depth]) {
+				this.writer.write(',');
+			}
+			this.nonEmpty[this.depth] = true;
+		}
+	}
+
+	/**
+	 * Writes a quoted and escaped string.
+	 * 
+	 * @param value
+	 *            The string
+	 * @throws IOException
+	 *             If the string can not be written
+	 */
+	private void writeString(String value) throws IOException {
+		this.writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"':
+					this.writer.write("\\\"");
+					break;
+				case '\\':
+					this.writer.write("\\\\");
+					break;
+				case '\n':
+					this.writer.write("\\n");
+					break;
+				case '\r':
+					this.writer.write("\\r");
+					break;
+				case '\t':
+					this.writer.write("\\t");
+					break;
+				default:
+					if (c < FIRST_PRINTABLE) {
+						String hex = Integer.toString(c, HEX_RADIX);
+						this.writer.write("\\u");
+						for (int j = hex.length(); j < HEX_DIGITS; j++) {
+							this.writer.write('0');
+						}
+						this.writer.write(hex);
+					} else {
+						this.writer.write(c);
+					}
+					break;
+			}
+		}
+		this.writer.write('"');
+	}
+}
@@ -0,0 +1,183 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.Serializable;
+
+/**
+ * The constants of the binary snapshot format of the graphs.
+ * <p>
+ * A snapshot starts with a header made of the {@link #MAGIC magic number}, the {@link #VERSION version} of
+ * the format and the maximum number of elements per block, followed by a sequence of blocks. Each block
+ * starts with its kind, the strings added to the dictionary of the snapshot by the block and the length of
+ * its body, so that a reader can skip the body without decoding it. The labels and the property keys are
+ * thus written once and then referenced by their index in the dictionary. The body of a block holds:
+ * </p>
+ * <ul>
+ * <li>the number of elements of the block,</li>
+ * <li>the records of the elements of the block: the tagged identifier of each vertex, or the adjacency of
+ * each edge, encoded with variable length integers as the gap between its outgoing vertex and the one of the
+ * previous edge, the difference between its incoming and its outgoing vertices, the label and the tagged
+ * identifier,</li>
+ * <li>the property columns of the block, one per key and type of value: the key, the tag of the type, the
+ * number of values then for each value the gap from the index of the previous element having a value and the
+ * value itself, encoded according to the type of the column.</li>
+ * </ul>
+ * <p>
+ * The vertices are written before the edges, the edges being grouped by outgoing vertex, and the snapshot
+ * ends with a block holding the number of vertices and of edges. The vertices and the edges are designated by
+ * their index in the snapshot, the index of an element being its rank among the elements of its kind.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class SnapshotFormat {
+	/**
+	 * The magic number starting the snapshots, "OGS" followed by a zero.
+	 */
+	static final int MAGIC = 0x4f475300;
+
+	/**
+	 * The version of the format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * The default maximum number of elements per block.
+	 */
+	static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+	/**
+	 * The kind of the blocks of vertices.
+	 */
+	static final byte VERTEX_BLOCK = 1;
+
+	/**
+	 * The kind of the blocks of edges.
+	 */
+	static final byte EDGE_BLOCK = 2;
+
+	/**
+	 * The kind of the last block.
+	 */
+	static final byte END_BLOCK = 3;
+
+	/**
+	 * The tag of the strings.
+	 */
+	static final byte STRING = 1;
+
+	/**
+	 * The tag of the integers.
+	 */
+	static final byte INTEGER = 2;
+
+	/**
+	 * The tag of the longs.
+	 */
+	static final byte LONG = 3;
+
+	/**
+	 * The tag of the doubles.
+	 */
+	static final byte DOUBLE = 4;
+
+	/**
+	 * The tag of the floats.
+	 */
+	static final byte FLOAT = 5;
+
+	/**
+	 * The tag of the booleans.
+	 */
+	static final byte BOOLEAN = 6;
+
+	/**
+	 * The tag of the shorts.
+	 */
+	static final byte SHORT = 7;
+
+	/**
+	 * The tag of the bytes.
+	 */
+	static final byte BYTE = 8;
+
+	/**
+	 * The tag of the characters.
+	 */
+	static final byte CHARACTER = 9;
+
+	/**
+	 * The tag of the values encoded with the Java serialization.
+	 */
+	static final byte SERIALIZED = 10;
+
+	/**
+	 * The constructor.
+	 */
+	private SnapshotFormat() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Returns the tag of the type of the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The tag of the type of the value
+	 */
+	static byte tagOf(Object value) {
+		byte tag;
+		if (value instanceof String) {
+			tag = STRING;
+		} else if (value instanceof Integer) {
+			tag = INTEGER;
+		} else if (value instanceof Long) {
+			tag = LONG;
+		} else if (value instanceof Double) {
+			tag = DOUBLE;
+		} else if (value instanceof Float) {
+			tag = FLOAT;
+		} else if (value instanceof Boolean) {
+			tag = BOOLEAN;
+		} else if (value instanceof Short) {
+			tag = SHORT;
+		} else if (value instanceof Byte) {
+			tag = BYTE;
+		} else if (value instanceof Character) {
+			tag = CHARACTER;
+		} else if (value instanceof Serializable) {
+			tag = SERIALIZED;
+		} else {
+			throw new IllegalArgumentException("The value can not be serialized: " + value);
+		}
+		return tag;
+	}
+}
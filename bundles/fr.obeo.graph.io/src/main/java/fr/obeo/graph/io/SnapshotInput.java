@@ -0,0 +1,382 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Reads the content of a snapshot directly from a buffer or from a file mapped in memory, without copying
+ * it. A file is mapped through a window sliding along the snapshot while it is read, so that the snapshots
+ * can be larger than the 2 GB limit of a single mapped buffer and only the pages being read are loaded by
+ * the operating system.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class SnapshotInput {
+	/**
+	 * The size of the window mapped on the files.
+	 */
+	private static final int WINDOW_SIZE = 64 << 20;
+
+	/**
+	 * The number of bits decoded from each byte of a variable length integer.
+	 */
+	private static final int VARINT_BITS = 7;
+
+	/**
+	 * The mask of the bits decoded from each byte of a variable length integer.
+	 */
+	private static final int VARINT_MASK = 0x7f;
+
+	/**
+	 * The flag of the bytes of a variable length integer followed by another byte.
+	 */
+	private static final int VARINT_MORE = 0x80;
+
+	/**
+	 * The number of bytes of an <code>int</code>.
+	 */
+	private static final int INT_BYTES = 4;
+
+	/**
+	 * The number of bytes of a <code>long</code>.
+	 */
+	private static final int LONG_BYTES = 8;
+
+	/**
+	 * An empty buffer.
+	 */
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	/**
+	 * The file read, <code>null</code> if the snapshot is read from a buffer.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The buffer read.
+	 */
+	private ByteBuffer window;
+
+	/**
+	 * The position of the start of the buffer in the snapshot.
+	 */
+	private long windowStart;
+
+	/**
+	 * The constructor of an input reading a buffer, from its position to its limit.
+	 * 
+	 * @param buffer
+	 *            The buffer
+	 */
+	SnapshotInput(ByteBuffer buffer) {
+		this.channel = null;
+		this.window = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * The constructor of an input reading a file.
+	 * 
+	 * @param channel
+	 *            The file
+	 */
+	SnapshotInput(FileChannel channel) {
+		this.channel = channel;
+		this.window = EMPTY;
+	}
+
+	/**
+	 * Returns the position of the next byte to read in the snapshot.
+	 * 
+	 * @return The position of the next byte to read
+	 */
+	long position() {
+		return this.windowStart + this.window.position();
+	}
+
+	/**
+	 * Moves to the given position in the snapshot.
+	 * 
+	 * @param position
+	 *            The position of the next byte to read
+	 * @throws IOException
+	 *             If the position is after the end of the snapshot
+	 */
+	void seek(long position) throws IOException {
+		this.skip(position - this.position());
+	}
+
+	/**
+	 * Skips the given number of bytes.
+	 * 
+	 * @param length
+	 *            The number of bytes to skip, negative to move backward
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	void skip(long length) throws IOException {
+		if (length >= -this.window.position() && length <= this.window.remaining()) {
+			this.window.position(this.window.position() + (int)length);
+		} else if (this.channel != null && this.position() + length >= 0
+				&& this.position() + length <= this.channel.size()) {
+			this.windowStart = this.position() + length;
+			this.window = EMPTY;
+		} else {
+			throw new EOFException("The snapshot is truncated");
+		}
+	}
+
+	/**
+	 * Reads a byte.
+	 * 
+	 * @return The byte
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	byte readByte() throws IOException {
+		this.ensure(1);
+		return this.window.get();
+	}
+
+	/**
+	 * Reads bytes.
+	 * 
+	 * @param bytes
+	 *            The array receiving the bytes, filled entirely
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	void readBytes(byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			this.ensure(1);
+			int length = Math.min(bytes.length - offset, this.window.remaining());
+			this.window.get(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	/**
+	 * Reads a positive integer with a variable length.
+	 * 
+	 * @return The integer
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	long readVarLong() throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b = VARINT_MORE;
+		while ((b & VARINT_MORE) != 0) {
+			if (shift >= Long.SIZE) {
+				throw new IOException("The snapshot is corrupted, invalid integer at " + this.position());
+			}
+			b = this.readByte();
+			value |= (long)(b & VARINT_MASK) << shift;
+			shift += VARINT_BITS;
+		}
+		return value;
+	}
+
+	/**
+	 * Reads a positive integer with a variable length which must fit in an <code>int</code>.
+	 * 
+	 * @return The integer
+	 * @throws IOException
+	 *             If the snapshot ends before or if the integer is too large
+	 */
+	int readVarInt() throws IOException {
+		long value = this.readVarLong();
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new IOException("The snapshot is corrupted, integer out of range: " + value);
+		}
+		return (int)value;
+	}
+
+	/**
+	 * Reads a signed integer with a variable length.
+	 * 
+	 * @return The integer
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	long readZigZag() throws IOException {
+		long value = this.readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads an <code>int</code> with a fixed length.
+	 * 
+	 * @return The integer
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	int readInt() throws IOException {
+		this.ensure(INT_BYTES);
+		return this.window.getInt();
+	}
+
+	/**
+	 * Reads a <code>long</code> with a fixed length.
+	 * 
+	 * @return The integer
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	long readLong() throws IOException {
+		this.ensure(LONG_BYTES);
+		return this.window.getLong();
+	}
+
+	/**
+	 * Reads a string.
+	 * 
+	 * @return The string
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	String readString() throws IOException {
+		byte[] bytes = new byte[this.readVarInt()];
+		this.readBytes(bytes);
+		return new String(bytes, SnapshotOutput.UTF_8);
+	}
+
+	/**
+	 * Reads a value, its tag followed by its content.
+	 * 
+	 * @return The value
+	 * @throws IOException
+	 *             If the snapshot ends before or if the value can not be decoded
+	 */
+	Object readTaggedValue() throws IOException {
+		return this.readValue(this.readByte());
+	}
+
+	/**
+	 * Reads the content of a value.
+	 * 
+	 * @param tag
+	 *            The tag of the type of the value
+	 * @return The value
+	 * @throws IOException
+	 *             If the snapshot ends before or if the value can not be decoded
+	 */
+	Object readValue(byte tag) throws IOException {
+		Object value;
+		switch (tag) {
+			case SnapshotFormat.STRING:
+				value = this.readString();
+				break;
+			case SnapshotFormat.INTEGER:
+				value = Integer.valueOf((int)this.readZigZag());
+				break;
+			case SnapshotFormat.LONG:
+				value = Long.valueOf(this.readZigZag());
+				break;
+			case SnapshotFormat.DOUBLE:
+				value = Double.valueOf(Double.longBitsToDouble(this.readLong()));
+				break;
+			case SnapshotFormat.FLOAT:
+				value = Float.valueOf(Float.intBitsToFloat(this.readInt()));
+				break;
+			case SnapshotFormat.BOOLEAN:
+				value = Boolean.valueOf(this.readByte() != 0);
+				break;
+			case SnapshotFormat.SHORT:
+				value = Short.valueOf((short)this.readZigZag());
+				break;
+			case SnapshotFormat.BYTE:
+				value = Byte.valueOf(this.readByte());
+				break;
+			case SnapshotFormat.CHARACTER:
+				value = Character.valueOf((char)this.readVarLong());
+				break;
+			case SnapshotFormat.SERIALIZED:
+				byte[] bytes = new byte[this.readVarInt()];
+				this.readBytes(bytes);
+				value = SnapshotInput.deserialize(bytes);
+				break;
+			default:
+				throw new IOException("The snapshot is corrupted, unknown value tag: " + tag);
+		}
+		return value;
+	}
+
+	/**
+	 * Decodes a value encoded with the Java serialization.
+	 * 
+	 * @param bytes
+	 *            The bytes of the serialized value
+	 * @return The value
+	 * @throws IOException
+	 *             If the value can not be decoded
+	 */
+	private static Object deserialize(byte[] bytes) throws IOException {
+		Object value;
+		try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			value = objects.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("The value can not be deserialized", e);
+		}
+		return value;
+	}
+
+	/**
+	 * Ensures that the given number of bytes can be read from the buffer, sliding the window on the file if
+	 * needed.
+	 * 
+	 * @param length
+	 *            The number of bytes to read
+	 * @throws IOException
+	 *             If the snapshot ends before
+	 */
+	private void ensure(int length) throws IOException {
+		if (this.window.remaining() < length) {
+			if (this.channel == null) {
+				throw new EOFException("The snapshot is truncated");
+			}
+			long start = this.position();
+			long size = Math.min(WINDOW_SIZE, this.channel.size() - start);
+			if (size < length) {
+				throw new EOFException("The snapshot is truncated");
+			}
+			this.window = this.channel.map(MapMode.READ_ONLY, start, size);
+			this.windowStart = start;
+		}
+	}
+}
@@ -0,0 +1,317 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A growable buffer of bytes encoding the content of a block of a snapshot. The integers are encoded with a
+ * variable length, seven bits per byte starting with the least significant ones, the signed ones being
+ * zigzag encoded first so that the small negative values stay short.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class SnapshotOutput {
+	/**
+	 * The charset of the strings.
+	 */
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The initial capacity of the buffers.
+	 */
+	private static final int INITIAL_CAPACITY = 256;
+
+	/**
+	 * The number of bits encoded in each byte of a variable length integer.
+	 */
+	private static final int VARINT_BITS = 7;
+
+	/**
+	 * The mask of the bits encoded in each byte of a variable length integer.
+	 */
+	private static final int VARINT_MASK = 0x7f;
+
+	/**
+	 * The flag of the bytes of a variable length integer followed by another byte.
+	 */
+	private static final int VARINT_MORE = 0x80;
+
+	/**
+	 * The number of bits in a byte.
+	 */
+	private static final int BYTE_BITS = 8;
+
+	/**
+	 * The number of bytes of an <code>int</code>.
+	 */
+	private static final int INT_BYTES = 4;
+
+	/**
+	 * The number of bytes of a <code>long</code>.
+	 */
+	private static final int LONG_BYTES = 8;
+
+	/**
+	 * The bytes.
+	 */
+	private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * The number of bytes written.
+	 */
+	private int size;
+
+	/**
+	 * Returns the number of bytes written.
+	 * 
+	 * @return The number of bytes written
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Discards the bytes written.
+	 */
+	void reset() {
+		this.size = 0;
+	}
+
+	/**
+	 * Returns a copy of the bytes written.
+	 * 
+	 * @return A copy of the bytes written
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(this.bytes, this.size);
+	}
+
+	/**
+	 * Writes the bytes written to the given stream.
+	 * 
+	 * @param output
+	 *            The stream
+	 * @throws IOException
+	 *             If the bytes can not be written
+	 */
+	void writeTo(OutputStream output) throws IOException {
+		output.write(this.bytes, 0, this.size);
+	}
+
+	/**
+	 * Writes a byte.
+	 * 
+	 * @param value
+	 *            The byte
+	 */
+	void writeByte(int value) {
+		this.ensureCapacity(1);
+		this.bytes[this.size] = (byte)value;
+		this.size++;
+	}
+
+	/**
+	 * Writes bytes.
+	 * 
+	 * @param values
+	 *            The bytes
+	 */
+	void writeBytes(byte[] values) {
+		this.ensureCapacity(values.length);
+		System.arraycopy(values, 0, this.bytes, this.size, values.length);
+		this.size += values.length;
+	}
+
+	/**
+	 * Writes the bytes of another buffer.
+	 * 
+	 * @param output
+	 *            The other buffer
+	 */
+	void writeBytes(SnapshotOutput output) {
+		this.ensureCapacity(output.size);
+		System.arraycopy(output.bytes, 0, this.bytes, this.size, output.size);
+		this.size += output.size;
+	}
+
+	/**
+	 * Writes a positive integer with a variable length.
+	 * 
+	 * @param value
+	 *            The integer, considered as unsigned
+	 */
+	void writeVarLong(long value) {
+		long remaining = value;
+		while ((remaining & ~VARINT_MASK) != 0) {
+			this.writeByte((int)(remaining & VARINT_MASK) | VARINT_MORE);
+			remaining >>>= VARINT_BITS;
+		}
+		this.writeByte((int)remaining);
+	}
+
+	/**
+	 * Writes a signed integer with a variable length.
+	 * 
+	 * @param value
+	 *            The integer
+	 */
+	void writeZigZag(long value) {
+		this.writeVarLong((value << 1) ^ (value >> (Long.SIZE - 1)));
+	}
+
+	/**
+	 * Writes an <code>int</code> with a fixed length, the most significant byte first.
+	 * 
+	 * @param value
+	 *            The integer
+	 */
+	void writeInt(int value) {
+		for (int i = INT_BYTES - 1; i >= 0; i--) {
+			this.writeByte(value >>> (i * BYTE_BITS));
+		}
+	}
+
+	/**
+	 * Writes a <code>long</code> with a fixed length, the most significant byte first.
+	 * 
+	 * @param value
+	 *            The integer
+	 */
+	void writeLong(long value) {
+		for (int i = LONG_BYTES - 1; i >= 0; i--) {
+			this.writeByte((int)(value >>> (i * BYTE_BITS)));
+		}
+	}
+
+	/**
+	 * Writes a string, its length in bytes followed by its UTF-8 encoding.
+	 * 
+	 * @param value
+	 *            The string
+	 */
+	void writeString(String value) {
+		byte[] encoded = value.getBytes(UTF_8);
+		this.writeVarLong(encoded.length);
+		this.writeBytes(encoded);
+	}
+
+	/**
+	 * Writes a value, its tag followed by its content.
+	 * 
+	 * @param value
+	 *            The value
+	 */
+	void writeTaggedValue(Object value) {
+		byte tag = SnapshotFormat.tagOf(value);
+		this.writeByte(tag);
+		this.writeValue(tag, value);
+	}
+
+	/**
+	 * Writes the content of a value.
+	 * 
+	 * @param tag
+	 *            The tag of the type of the value
+	 * @param value
+	 *            The value
+	 */
+	void writeValue(byte tag, Object value) {
+		switch (tag) {
+			case SnapshotFormat.STRING:
+				this.writeString((String)value);
+				break;
+			case SnapshotFormat.INTEGER:
+				this.writeZigZag(((Integer)value).intValue());
+				break;
+			case SnapshotFormat.LONG:
+				this.writeZigZag(((Long)value).longValue());
+				break;
+			case SnapshotFormat.DOUBLE:
+				this.writeLong(Double.doubleToRawLongBits(((Double)value).doubleValue()));
+				break;
+			case SnapshotFormat.FLOAT:
+				this.writeInt(Float.floatToRawIntBits(((Float)value).floatValue()));
+				break;
+			case SnapshotFormat.BOOLEAN:
+				this.writeByte(((Boolean)value).booleanValue() ? 1 : 0);
+				break;
+			case SnapshotFormat.SHORT:
+				this.writeZigZag(((Short)value).shortValue());
+				break;
+			case SnapshotFormat.BYTE:
+				this.writeByte(((Byte)value).byteValue());
+				break;
+			case SnapshotFormat.CHARACTER:
+				this.writeVarLong(((Character)value).charValue());
+				break;
+			default:
+				byte[] serialized = SnapshotOutput.serialize(value);
+				this.writeVarLong(serialized.length);
+				this.writeBytes(serialized);
+				break;
+		}
+	}
+
+	/**
+	 * Encodes the given value with the Java serialization.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The bytes of the serialized value
+	 */
+	private static byte[] serialize(Object value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(value);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The value can not be serialized: " + value, e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Ensures that the given number of bytes can be written.
+	 * 
+	 * @param length
+	 *            The number of bytes to write
+	 */
+	private void ensureCapacity(int length) {
+		if (this.size + length > this.bytes.length) {
+			int capacity = Math.max(this.bytes.length * 2, this.size + length);
+			this.bytes = Arrays.copyOf(this.bytes, capacity);
+		}
+	}
+}
@@ -0,0 +1,596 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps the identifiers of the vertices in an imported file to the identifiers of the vertices created in the
+ * graph, which may generate its own identifiers. Only the identifiers which differ are stored, an identifier
+ * which is not in the map is its own mapping.
+ * <p>
+ * The map is held in memory until it reaches the given number of entries, then it spills all its entries to a
+ * temporary hash table on disk: an append-only file of records holding the encoded identifiers, and a table
+ * file of open-addressing slots holding the hash of each identifier and the position of its record. The
+ * last identifiers read from the disk are cached in memory.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class VertexIdMap implements Closeable {
+	/**
+	 * The size of a slot of the table: the hash of the identifier and the position of its record plus one,
+	 * zero for an empty slot.
+	 */
+	private static final int SLOT_SIZE = 16;
+
+	/**
+	 * The offset of the position of the record in a slot.
+	 */
+	private static final int POSITION_OFFSET = 8;
+
+	/**
+	 * The number of bytes of the header of a record: the length of the encoded identifier in the file and
+	 * the length of the encoded identifier in the graph.
+	 */
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	/**
+	 * The offset of the length of the encoded identifier in the graph in the header of a record.
+	 */
+	private static final int VALUE_LENGTH_OFFSET = 4;
+
+	/**
+	 * The initial number of slots of the table.
+	 */
+	private static final int INITIAL_SLOTS = 1 << 16;
+
+	/**
+	 * The size of the buffer of the records not written yet.
+	 */
+	private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * The number of slots read at once while the table is rehashed.
+	 */
+	private static final int REHASH_CHUNK = 4096;
+
+	/**
+	 * The maximum number of identifiers read from the disk cached in memory.
+	 */
+	private static final int CACHE_SIZE = 1 << 16;
+
+	/**
+	 * The load factor of the cache.
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * The offset basis of the FNV-1a hash.
+	 */
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	/**
+	 * The prime of the FNV-1a hash.
+	 */
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * The mask of the bits of a byte.
+	 */
+	private static final int BYTE_MASK = 0xff;
+
+	/**
+	 * The maximum number of entries held in memory.
+	 */
+	private final int memoryLimit;
+
+	/**
+	 * The entries held in memory, <code>null</code> once they have been spilled.
+	 */
+	private Map<Object, Object> memory = new HashMap<Object, Object>();
+
+	/**
+	 * The identifiers recently read from the disk.
+	 */
+	private Map<Object, Object> cache;
+
+	/**
+	 * The file of the records.
+	 */
+	private File dataFile;
+
+	/**
+	 * The records.
+	 */
+	private FileChannel data;
+
+	/**
+	 * The records not written yet.
+	 */
+	private final SnapshotOutput pending = new SnapshotOutput();
+
+	/**
+	 * The size of the records written.
+	 */
+	private long dataSize;
+
+	/**
+	 * The file of the table.
+	 */
+	private File tableFile;
+
+	/**
+	 * The table.
+	 */
+	private FileChannel table;
+
+	/**
+	 * The number of slots of the table.
+	 */
+	private long slots;
+
+	/**
+	 * The number of entries of the table.
+	 */
+	private long count;
+
+	/**
+	 * A buffer for the slots.
+	 */
+	private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param memoryLimit
+	 *            The maximum number of entries held in memory
+	 */
+	VertexIdMap(int memoryLimit) {
+		this.memoryLimit = memoryLimit;
+	}
+
+	/**
+	 * Maps the identifier of a vertex in the file to the identifier of the vertex in the graph.
+	 * 
+	 * @param fileId
+	 *            The identifier in the file
+	 * @param graphId
+	 *            The identifier in the graph
+	 * @throws IOException
+	 *             If the map can not be written on the disk
+	 */
+	void put(Object fileId, Object graphId) throws IOException {
+		if (!fileId.equals(graphId)) {
+			if (this.memory != null) {
+				this.memory.put(fileId, graphId);
+				if (this.memory.size() > this.memoryLimit) {
+					this.spill();
+				}
+			} else {
+				this.putOnDisk(fileId, graphId);
+			}
+		}
+	}
+
+	/**
+	 * Returns the identifier in the graph of the vertex with the given identifier in the file.
+	 * 
+	 * @param fileId
+	 *            The identifier in the file
+	 * @return The identifier in the graph
+	 * @throws IOException
+	 *             If the map can not be read from the disk
+	 */
+	Object get(Object fileId) throws IOException {
+		Object graphId;
+		if (this.memory != null) {
+			graphId = this.memory.get(fileId);
+		} else {
+			graphId = this.cache.get(fileId);
+			if (graphId == null) {
+				graphId = this.getOnDisk(fileId);
+				if (graphId != null) {
+					this.cache.put(fileId, graphId);
+				}
+			}
+		}
+		if (graphId == null) {
+			graphId = fileId;
+		}
+		return graphId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		this.memory = null;
+		this.cache = null;
+		try {
+			if (this.data != null) {
+				this.data.close();
+			}
+			if (this.table != null) {
+				this.table.close();
+			}
+		} finally {
+			VertexIdMap.delete(this.dataFile);
+			VertexIdMap.delete(this.tableFile);
+		}
+	}
+
+	/**
+	 * Moves the entries held in memory to the disk.
+	 * 
+	 * @throws IOException
+	 *             If the entries can not be written
+	 */
+	private void spill() throws IOException {
+		this.dataFile = File.createTempFile("vertex-ids", ".data");
+		this.data = VertexIdMap.open(this.dataFile);
+		this.slots = INITIAL_SLOTS;
+		while (this.slots < this.memory.size() * 2L) {
+			this.slots *= 2;
+		}
+		this.tableFile = File.createTempFile("vertex-ids", ".table");
+		this.table = this.createTable(this.tableFile, this.slots);
+		Map<Object, Object> entries = this.memory;
+		this.memory = null;
+		this.cache = new LinkedHashMap<Object, Object>(CACHE_SIZE, LOAD_FACTOR, true) {
+			/**
+			 * The serial version UID.
+			 */
+			private static final long serialVersionUID = 1L;
+
+			/**
+			 * {@inheritDoc}
+			 * 
+			 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+			 */
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+				return this.size() > CACHE_SIZE;
+			}
+		};
+		for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+			this.putOnDisk(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Adds an entry to the table on the disk.
+	 * 
+	 * @param fileId
+	 *            The identifier in the file
+	 * @param graphId
+	 *            The identifier in the graph
+	 * @throws IOException
+	 *             If the entry can not be written
+	 */
+	private void putOnDisk(Object fileId, Object graphId) throws IOException {
+		if ((this.count + 1) * 2 > this.slots) {
+			this.rehash();
+		}
+		SnapshotOutput key = new SnapshotOutput();
+		key.writeTaggedValue(fileId);
+		byte[] keyBytes = key.toByteArray();
+		long hash = VertexIdMap.hash(keyBytes);
+		long index = this.find(hash, keyBytes);
+		long position = this.dataSize + this.pending.size();
+		SnapshotOutput value = new SnapshotOutput();
+		value.writeTaggedValue(graphId);
+		this.pending.writeInt(keyBytes.length);
+		this.pending.writeInt(value.size());
+		this.pending.writeBytes(keyBytes);
+		this.pending.writeBytes(value);
+		if (this.pending.size() >= WRITE_BUFFER_SIZE) {
+			this.flush();
+		}
+		if (index < 0) {
+			index = -index - 1;
+			this.count++;
+		}
+		this.writeSlot(this.table, index, hash, position + 1);
+		this.cache.remove(fileId);
+	}
+
+	/**
+	 * Returns the identifier in the graph mapped to an identifier in the file on the disk.
+	 * 
+	 * @param fileId
+	 *            The identifier in the file
+	 * @return The identifier in the graph or <code>null</code> if it is not mapped
+	 * @throws IOException
+	 *             If the table can not be read
+	 */
+	private Object getOnDisk(Object fileId) throws IOException {
+		Object graphId = null;
+		SnapshotOutput key = new SnapshotOutput();
+		key.writeTaggedValue(fileId);
+		byte[] keyBytes = key.toByteArray();
+		long index = this.find(VertexIdMap.hash(keyBytes), keyBytes);
+		if (index >= 0) {
+			this.readSlot(this.table, index);
+			ByteBuffer record = this.readRecord(this.slot.getLong(POSITION_OFFSET) - 1);
+			record.position(RECORD_HEADER_SIZE + keyBytes.length);
+			graphId = new SnapshotInput(record).readTaggedValue();
+		}
+		return graphId;
+	}
+
+	/**
+	 * Finds the slot of an identifier.
+	 * 
+	 * @param hash
+	 *            The hash of the encoded identifier
+	 * @param keyBytes
+	 *            The encoded identifier
+	 * @return The index of the slot of the identifier, or minus one minus the index of the empty slot where
+	 *         it should be inserted
+	 * @throws IOException
+	 *             If the table can not be read
+	 */
+	private long find(long hash, byte[] keyBytes) throws IOException {
+		long mask = this.slots - 1;
+		long index = hash & mask;
+		Long found = null;
+		while (found == null) {
+			this.readSlot(this.table, index);
+			long position = this.slot.getLong(POSITION_OFFSET);
+			if (position == 0) {
+				found = Long.valueOf(-index - 1);
+			} else if (this.slot.getLong(0) == hash && this.matches(position - 1, keyBytes)) {
+				found = Long.valueOf(index);
+			} else {
+				index = (index + 1) & mask;
+			}
+		}
+		return found.longValue();
+	}
+
+	/**
+	 * Indicates if the record at the given position holds the given identifier.
+	 * 
+	 * @param position
+	 *            The position of the record
+	 * @param keyBytes
+	 *            The encoded identifier
+	 * @return <code>true</code> if the record holds the identifier, <code>false</code> otherwise
+	 * @throws IOException
+	 *             If the record can not be read
+	 */
+	private boolean matches(long position, byte[] keyBytes) throws IOException {
+		ByteBuffer record = this.readRecord(position);
+		boolean matches = record.getInt(0) == keyBytes.length;
+		for (int i = 0; matches && i < keyBytes.length; i++) {
+			matches = record.get(RECORD_HEADER_SIZE + i) == keyBytes[i];
+		}
+		return matches;
+	}
+
+	/**
+	 * Reads a record.
+	 * 
+	 * @param position
+	 *            The position of the record
+	 * @return The record
+	 * @throws IOException
+	 *             If the record can not be read
+	 */
+	private ByteBuffer readRecord(long position) throws IOException {
+		if (position >= this.dataSize) {
+			this.flush();
+		}
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		VertexIdMap.readFully(this.data, header, position);
+		int length = RECORD_HEADER_SIZE + header.getInt(0) + header.getInt(VALUE_LENGTH_OFFSET);
+		ByteBuffer record = ByteBuffer.allocate(length);
+		VertexIdMap.readFully(this.data, record, position);
+		record.flip();
+		return record;
+	}
+
+	/**
+	 * Writes the records not written yet.
+	 * 
+	 * @throws IOException
+	 *             If the records can not be written
+	 */
+	private void flush() throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(this.pending.toByteArray());
+		while (buffer.hasRemaining()) {
+			this.dataSize += this.data.write(buffer, this.dataSize);
+		}
+		this.pending.reset();
+	}
+
+	/**
+	 * Doubles the number of slots of the table.
+	 * 
+	 * @throws IOException
+	 *             If the table can not be rehashed
+	 */
+	private void rehash() throws IOException {
+		long newSlots = this.slots * 2;
+		File newFile = File.createTempFile("vertex-ids", ".table");
+		FileChannel newTable = this.createTable(newFile, newSlots);
+		ByteBuffer chunk = ByteBuffer.allocate(REHASH_CHUNK * SLOT_SIZE);
+		for (long start = 0; start < this.slots; start += REHASH_CHUNK) {
+			chunk.clear();
+			VertexIdMap.readFully(this.table, chunk, start * SLOT_SIZE);
+			for (int i = 0; i < REHASH_CHUNK; i++) {
+				long hash = chunk.getLong(i * SLOT_SIZE);
+				long position = chunk.getLong(i * SLOT_SIZE + POSITION_OFFSET);
+				if (position != 0) {
+					long index = hash & (newSlots - 1);
+					this.readSlot(newTable, index);
+					while (this.slot.getLong(POSITION_OFFSET) != 0) {
+						index = (index + 1) & (newSlots - 1);
+						this.readSlot(newTable, index);
+					}
+					this.writeSlot(newTable, index, hash, position);
+				}
+			}
+		}
+		this.table.close();
+		VertexIdMap.delete(this.tableFile);
+		this.table = newTable;
+		this.tableFile = newFile;
+		this.slots = newSlots;
+	}
+
+	/**
+	 * Creates an empty table.
+	 * 
+	 * @param file
+	 *            The file of the table
+	 * @param slotCount
+	 *            The number of slots of the table, a multiple of the size of the chunks of the rehash
+	 * @return The table
+	 * @throws IOException
+	 *             If the table can not be created
+	 */
+	private FileChannel createTable(File file, long slotCount) throws IOException {
+		FileChannel channel = VertexIdMap.open(file);
+		ByteBuffer last = ByteBuffer.allocate(1);
+		channel.write(last, slotCount * SLOT_SIZE - 1);
+		return channel;
+	}
+
+	/**
+	 * Reads a slot of a table in {@link #slot}.
+	 * 
+	 * @param channel
+	 *            The table
+	 * @param index
+	 *            The index of the slot
+	 * @throws IOException
+	 *             If the slot can not be read
+	 */
+	private void readSlot(FileChannel channel, long index) throws IOException {
+		this.slot.clear();
+		VertexIdMap.readFully(channel, this.slot, index * SLOT_SIZE);
+	}
+
+	/**
+	 * Writes a slot of a table.
+	 * 
+	 * @param channel
+	 *            The table
+	 * @param index
+	 *            The index of the slot
+	 * @param hash
+	 *            The hash of the identifier
+	 * @param position
+	 *            The position of the record plus one
+	 * @throws IOException
+	 *             If the slot can not be written
+	 */
+	private void writeSlot(FileChannel channel, long index, long hash, long position) throws IOException {
+		this.slot.clear();
+		this.slot.putLong(hash).putLong(position).flip();
+		while (this.slot.hasRemaining()) {
+			channel.write(this.slot, index * SLOT_SIZE + this.slot.position());
+		}
+	}
+
+	/**
+	 * Opens a temporary file for reading and writing.
+	 * 
+	 * @param file
+	 *            The file
+	 * @return The channel of the file
+	 * @throws IOException
+	 *             If the file can not be opened
+	 */
+	private static FileChannel open(File file) throws IOException {
+		return FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Fills a buffer from a file.
+	 * 
+	 * @param channel
+	 *            The file
+	 * @param buffer
+	 *            The buffer
+	 * @param position
+	 *            The position of the first byte to read
+	 * @throws IOException
+	 *             If the file ends before
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("The temporary file of the vertex identifiers is truncated");
+			}
+		}
+	}
+
+	/**
+	 * Computes the FNV-1a hash of an encoded identifier.
+	 * 
+	 * @param bytes
+	 *            The encoded identifier
+	 * @return The hash
+	 */
+	private static long hash(byte[] bytes) {
+		long hash = FNV_OFFSET;
+		for (byte b : bytes) {
+			hash ^= b & BYTE_MASK;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Deletes a temporary file.
+	 * 
+	 * @param file
+	 *            The file, may be <code>null</code>
+	 */
+	private static void delete(File file) {
+		if (file != null && !file.delete()) {
+			file.deleteOnExit();
+		}
+	}
+}
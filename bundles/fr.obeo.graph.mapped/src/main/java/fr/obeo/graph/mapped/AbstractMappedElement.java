@@ -0,0 +1,178 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import fr.obeo.graph.api.IElement;
+
+import java.util.Set;
+
+/**
+ * Base class of the vertices and edges of the memory-mapped graph. Elements are lightweight views over the
+ * records of the graph: they only hold the graph, the slot of the element and the generation of the slot,
+ * they are created on demand and two views of the same element are equal.
+ * <p>
+ * The slots of the removed elements are reused by the elements added later. The generation of a slot is
+ * stored in the header of its record and incremented each time its element is removed, the views of a
+ * removed element thus throw an {@link IllegalStateException} instead of reaching the element which reuses
+ * its slot.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractMappedElement implements IElement {
+	/**
+	 * The graph.
+	 */
+	protected final MappedGraph graph;
+
+	/**
+	 * The slot of the element in the records of the graph.
+	 */
+	protected final int slot;
+
+	/**
+	 * The generation of the slot when the view has been created.
+	 */
+	protected final int generation;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param slot
+	 *            The slot of the element in the records of the graph
+	 * @param generation
+	 *            The current generation of the slot
+	 */
+	AbstractMappedElement(MappedGraph graph, int slot, int generation) {
+		this.graph = graph;
+		this.slot = slot;
+		this.generation = generation;
+	}
+
+	/**
+	 * Indicates if the element has not been removed from the graph.
+	 * 
+	 * @return <code>true</code> if the element is still in the graph, <code>false</code> otherwise
+	 */
+	abstract boolean isAlive();
+
+	/**
+	 * Checks that the element has not been removed from the graph.
+	 */
+	void checkAlive() {
+		if (!this.isAlive()) {
+			throw new IllegalStateException("The element has been removed from the graph");
+		}
+	}
+
+	/**
+	 * Returns the properties of the elements of the same kind.
+	 * 
+	 * @return The properties of the elements of the same kind
+	 */
+	protected abstract PropertyColumns getProperties();
+
+	/**
+	 * Returns the slot of the element in the records of the graph.
+	 * 
+	 * @return The slot of the element
+	 */
+	int getSlot() {
+		return this.slot;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String key) {
+		return this.graph.getProperty(this, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getPropertyKeys()
+	 */
+	@Override
+	public Set<String> getPropertyKeys() {
+		return this.graph.getPropertyKeys(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#setProperty(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void setProperty(String key, Object value) {
+		this.graph.setProperty(this, key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#removeProperty(java.lang.String)
+	 */
+	@Override
+	public Object removeProperty(String key) {
+		return this.graph.removeProperty(this, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.slot;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		boolean equal = false;
+		if (obj != null && this.getClass().equals(obj.getClass())) {
+			AbstractMappedElement element = (AbstractMappedElement)obj;
+			equal = this.graph == element.graph && this.slot == element.slot
+					&& this.generation == element.generation;
+		}
+		return equal;
+	}
+}
@@ -0,0 +1,113 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class of the queries of the memory-mapped graph, it accumulates the property filters and the limit
+ * of the query.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractMappedQuery {
+	/**
+	 * The graph.
+	 */
+	protected final MappedGraph graph;
+
+	/**
+	 * The property filters.
+	 */
+	protected final List<PropertyFilter> filters = new ArrayList<PropertyFilter>();
+
+	/**
+	 * The maximum number of elements to return.
+	 */
+	protected long limit = Long.MAX_VALUE;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	AbstractMappedQuery(MappedGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Adds the given filter to the query.
+	 * 
+	 * @param filter
+	 *            The filter
+	 */
+	protected void addFilter(PropertyFilter filter) {
+		PropertyColumns.validate(filter.getKey());
+		this.filters.add(filter);
+	}
+
+	/**
+	 * Sets the maximum number of elements to return.
+	 * 
+	 * @param max
+	 *            The maximum number of elements to return
+	 */
+	protected void setLimit(int max) {
+		if (max < 0) {
+			throw new IllegalArgumentException("The limit of a query can not be negative: " + max);
+		}
+		this.limit = max;
+	}
+
+	/**
+	 * Describes the evaluation of the query.
+	 * 
+	 * @param elements
+	 *            The kind of elements returned
+	 * @param access
+	 *            The description of the access to the candidate elements
+	 * @return The description of the evaluation of the query
+	 */
+	protected String explain(String elements, String access) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(elements).append(": ").append(access);
+		for (PropertyFilter filter : this.filters) {
+			builder.append("\n  filter ").append(filter);
+		}
+		if (this.limit != Long.MAX_VALUE) {
+			builder.append("\n  limit ").append(this.limit);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,97 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * An exclusive lock on the directory of a graph, held on a lock file of the directory from the opening of the
+ * graph until it is closed. Two graphs opened on the same directory would replay and append to the same log
+ * and records, so the lock is taken before anything is read and a second graph fails to open, whether it
+ * lives in this virtual machine or in another process.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class DirectoryLock {
+	/**
+	 * The lock file.
+	 */
+	private final RandomAccessFile randomAccessFile;
+
+	/**
+	 * The lock held on the lock file.
+	 */
+	private final FileLock lock;
+
+	/**
+	 * The constructor, it creates the lock file if needed and locks it.
+	 * 
+	 * @param file
+	 *            The lock file
+	 * @throws IOException
+	 *             If the lock file cannot be opened or if it is already locked by another graph
+	 */
+	DirectoryLock(File file) throws IOException {
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		FileLock fileLock = null;
+		try {
+			fileLock = this.randomAccessFile.getChannel().tryLock();
+		} catch (OverlappingFileLockException e) {
+			// The lock is held by another graph of this virtual machine
+		} finally {
+			if (fileLock == null) {
+				this.randomAccessFile.close();
+			}
+		}
+		if (fileLock == null) {
+			throw new IOException("The directory of the graph is already opened by another graph: "
+					+ file.getParentFile());
+		}
+		this.lock = fileLock;
+	}
+
+	/**
+	 * Releases the lock and closes the lock file.
+	 * 
+	 * @throws IOException
+	 *             If the lock cannot be released
+	 */
+	void close() throws IOException {
+		try {
+			this.lock.release();
+		} finally {
+			this.randomAccessFile.close();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.internal.ISlotCursor;
+
+import java.util.Arrays;
+
+/**
+ * A cursor over the edges of a vertex with some labels, following the list of the outgoing edges and then
+ * the list of the incoming edges of the vertex, depending on the requested direction. The labels are
+ * compared as integers of the label dictionary. A loop is returned once per direction.
+ * <p>
+ * The link to the next edge is read before an edge is returned, so the returned edge can be removed. The
+ * cursor stops if it reaches an edge which has been removed meanwhile.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class EdgeListCursor implements ISlotCursor {
+	/**
+	 * The graph.
+	 */
+	private final MappedGraph graph;
+
+	/**
+	 * The slot of the vertex.
+	 */
+	private final int vertex;
+
+	/**
+	 * The direction of the edges.
+	 */
+	private final Direction direction;
+
+	/**
+	 * The sorted integers of the labels to read or <code>null</code> to read all the labels.
+	 */
+	private final int[] labels;
+
+	/**
+	 * Indicates if the list being read is the list of the outgoing edges.
+	 */
+	private boolean outgoing;
+
+	/**
+	 * The slot of the next edge to read in the current list.
+	 */
+	private int nextEdge;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param direction
+	 *            The direction of the edges
+	 * @param labels
+	 *            The labels of the edges, empty for all the labels
+	 */
+	EdgeListCursor(MappedGraph graph, int vertex, Direction direction, String... labels) {
+		this.graph = graph;
+		this.vertex = vertex;
+		this.direction = direction;
+		if (labels.length == 0) {
+			this.labels = null;
+		} else {
+			int[] ids = new int[labels.length];
+			for (int i = 0; i < labels.length; i++) {
+				ids[i] = graph.getLabels().lookup(labels[i]);
+			}
+			Arrays.sort(ids);
+			this.labels = ids;
+		}
+		RecordStore vertices = graph.getVertexRecords();
+		this.outgoing = !Direction.IN.equals(direction);
+		if (this.outgoing) {
+			this.nextEdge = vertices.getInt(vertex, MappedGraph.FIRST_OUT);
+		} else {
+			this.nextEdge = vertices.getInt(vertex, MappedGraph.FIRST_IN);
+		}
+		this.switchIfExhausted();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.internal.ISlotCursor#next()
+	 */
+	@Override
+	public int next() {
+		RecordStore edges = this.graph.getEdgeRecords();
+		int found = END;
+		while (found == END && this.nextEdge != RecordStore.NONE) {
+			int edge = this.nextEdge;
+			if (edges.isLive(edge)) {
+				if (this.outgoing) {
+					this.nextEdge = edges.getInt(edge, MappedGraph.NEXT_OUT);
+				} else {
+					this.nextEdge = edges.getInt(edge, MappedGraph.NEXT_IN);
+				}
+				if (this.labels == null
+						|| Arrays.binarySearch(this.labels, edges.getInt(edge, MappedGraph.LABEL)) >= 0) {
+					found = edge;
+				}
+			} else {
+				this.nextEdge = RecordStore.NONE;
+			}
+			this.switchIfExhausted();
+		}
+		return found;
+	}
+
+	/**
+	 * Switches to the list of the incoming edges once the list of the outgoing edges has been read, if both
+	 * directions are requested.
+	 */
+	private void switchIfExhausted() {
+		if (this.nextEdge == RecordStore.NONE && this.outgoing && Direction.BOTH.equals(this.direction)) {
+			this.outgoing = false;
+			this.nextEdge = this.graph.getVertexRecords().getInt(this.vertex, MappedGraph.FIRST_IN);
+		}
+	}
+}
@@ -0,0 +1,481 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A persistent hash table from the identifiers of the elements to their slots, stored in a
+ * {@link MappedFile} with open addressing and linear probing. Each bucket holds the hash of the encoded
+ * identifier and the slot of the element plus one, zero for an empty bucket and {@link #DELETED} for a
+ * removed entry. The identifiers themselves are not duplicated in the table: they are compared with the
+ * encoded identifier stored in the record of the element.
+ * <p>
+ * The table must be rehashed in a new file, named after the next generation of the table, once half of its
+ * buckets are used. The new file is written directly, outside of the write-ahead log, and only marked
+ * complete once filled and forced, so that an interrupted rehash is discarded when the table is opened again.
+ * The current generation must thus not have any modification waiting for a checkpoint when it is rehashed.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class IdIndex {
+	/**
+	 * The magic number of the tables.
+	 */
+	private static final long MAGIC = 0x4f47524849445831L;
+
+	/**
+	 * The size of the header of the file.
+	 */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * The position of the magic number in the header.
+	 */
+	private static final int MAGIC_POSITION = 0;
+
+	/**
+	 * The position of the number of buckets in the header.
+	 */
+	private static final int CAPACITY_POSITION = 8;
+
+	/**
+	 * The position of the number of entries in the header.
+	 */
+	private static final int SIZE_POSITION = 12;
+
+	/**
+	 * The position of the number of buckets which are not empty in the header.
+	 */
+	private static final int USED_POSITION = 16;
+
+	/**
+	 * The position of the flag marking the file as complete in the header.
+	 */
+	private static final int COMPLETE_POSITION = 20;
+
+	/**
+	 * The size of a bucket.
+	 */
+	private static final int BUCKET_SIZE = 8;
+
+	/**
+	 * The offset of the slot in a bucket.
+	 */
+	private static final int SLOT_OFFSET = 4;
+
+	/**
+	 * The value of the slot of a bucket whose entry has been removed.
+	 */
+	private static final int DELETED = -1;
+
+	/**
+	 * The initial number of buckets, a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	/**
+	 * The maximum number of buckets, a power of two.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * The multiplier spreading the bits of the hashes, the golden ratio in fixed point.
+	 */
+	private static final int GOLDEN_RATIO = 0x9e3779b9;
+
+	/**
+	 * Half the number of bits of an <code>int</code>.
+	 */
+	private static final int HALF_BITS = 16;
+
+	/**
+	 * The suffix of the files of the tables.
+	 */
+	private static final String SUFFIX = ".idx";
+
+	/**
+	 * The directory of the table.
+	 */
+	private final File directory;
+
+	/**
+	 * The name of the table.
+	 */
+	private final String name;
+
+	/**
+	 * The records of the elements.
+	 */
+	private final RecordStore records;
+
+	/**
+	 * The offset of the offset of the identifier in the records of the elements.
+	 */
+	private final int idOffset;
+
+	/**
+	 * The heap of the encoded identifiers.
+	 */
+	private final ValueHeap heap;
+
+	/**
+	 * The log recording the modifications of the table.
+	 */
+	private final WriteAheadLog log;
+
+	/**
+	 * The generation of the current file.
+	 */
+	private int generation;
+
+	/**
+	 * The current file.
+	 */
+	private MappedFile file;
+
+	/**
+	 * The number of buckets minus one.
+	 */
+	private int mask;
+
+	/**
+	 * The constructor, it opens the last complete generation of the table, deleting the other ones, or
+	 * creates an empty table.
+	 * 
+	 * @param directory
+	 *            The directory of the table
+	 * @param name
+	 *            The name of the table
+	 * @param records
+	 *            The records of the elements
+	 * @param idOffset
+	 *            The offset of the offset of the identifier in the records of the elements
+	 * @param heap
+	 *            The heap of the encoded identifiers
+	 * @param log
+	 *            The log recording the modifications of the table
+	 * @throws IOException
+	 *             If the table cannot be opened or created
+	 */
+	IdIndex(File directory, String name, RecordStore records, int idOffset, ValueHeap heap, WriteAheadLog log)
+			throws IOException {
+		this.directory = directory;
+		this.name = name;
+		this.records = records;
+		this.idOffset = idOffset;
+		this.heap = heap;
+		this.log = log;
+
+		Pattern pattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)" + Pattern.quote(SUFFIX));
+		File[] files = directory.listFiles();
+		int found = -1;
+		for (int i = 0; files != null && i < files.length; i++) {
+			Matcher matcher = pattern.matcher(files[i].getName());
+			if (matcher.matches() && IdIndex.isComplete(files[i])) {
+				found = Math.max(found, Integer.parseInt(matcher.group(1)));
+			}
+		}
+		for (int i = 0; files != null && i < files.length; i++) {
+			Matcher matcher = pattern.matcher(files[i].getName());
+			if (matcher.matches() && Integer.parseInt(matcher.group(1)) != found) {
+				IdIndex.delete(files[i]);
+			}
+		}
+		if (found == -1) {
+			this.generation = 0;
+			this.file = this.create(this.generation, INITIAL_CAPACITY);
+			this.file.putInt(COMPLETE_POSITION, 1);
+		} else {
+			this.generation = found;
+			this.file = new MappedFile(this.fileOf(found));
+		}
+		this.mask = this.file.getInt(CAPACITY_POSITION) - 1;
+		this.file.attach(log);
+	}
+
+	/**
+	 * Returns the slot of the element with the given identifier.
+	 * 
+	 * @param id
+	 *            The encoded identifier
+	 * @param hash
+	 *            The hash of the encoded identifier
+	 * @return The slot of the element or {@link RecordStore#NONE} if there is no such element
+	 */
+	int get(byte[] id, int hash) {
+		int slot = RecordStore.NONE;
+		long bucket = this.find(id, hash);
+		if (bucket != -1) {
+			slot = this.file.getInt(bucket + SLOT_OFFSET) - 1;
+		}
+		return slot;
+	}
+
+	/**
+	 * Indicates if the table must be rehashed before adding an identifier.
+	 * 
+	 * @return <code>true</code> if adding an identifier would use more than half of the buckets,
+	 *         <code>false</code> otherwise
+	 */
+	boolean needsRehash() {
+		return this.file.getInt(USED_POSITION) + 1 > (this.mask + 1) >> 1;
+	}
+
+	/**
+	 * Adds the slot of an element whose identifier is not in the table yet. The table must have been rehashed
+	 * first if {@link #needsRehash()}.
+	 * 
+	 * @param hash
+	 *            The hash of the encoded identifier
+	 * @param slot
+	 *            The slot of the element
+	 */
+	void put(int hash, int slot) {
+		IdIndex.insert(this.file, this.mask, hash, slot);
+		this.file.putInt(SIZE_POSITION, this.file.getInt(SIZE_POSITION) + 1);
+	}
+
+	/**
+	 * Removes the identifier of an element.
+	 * 
+	 * @param id
+	 *            The encoded identifier
+	 * @param hash
+	 *            The hash of the encoded identifier
+	 */
+	void remove(byte[] id, int hash) {
+		long bucket = this.find(id, hash);
+		if (bucket != -1) {
+			this.file.putInt(bucket + SLOT_OFFSET, DELETED);
+			this.file.putInt(SIZE_POSITION, this.file.getInt(SIZE_POSITION) - 1);
+		}
+	}
+
+	/**
+	 * Writes the modified pages of the table to the disk and closes it.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be closed
+	 */
+	void close() throws IOException {
+		this.file.close();
+	}
+
+	/**
+	 * Returns the position of the bucket of the given identifier.
+	 * 
+	 * @param id
+	 *            The encoded identifier
+	 * @param hash
+	 *            The hash of the encoded identifier
+	 * @return The position of the bucket or <code>-1</code> if the identifier is not in the table
+	 */
+	private long find(byte[] id, int hash) {
+		long found = -1;
+		int index = IdIndex.mix(hash) & this.mask;
+		long bucket = IdIndex.position(index);
+		int value = this.file.getInt(bucket + SLOT_OFFSET);
+		while (found == -1 && value != 0) {
+			if (value != DELETED && this.file.getInt(bucket) == hash
+					&& this.heap.matches(this.records.getLong(value - 1, this.idOffset), id)) {
+				found = bucket;
+			} else {
+				index = (index + 1) & this.mask;
+				bucket = IdIndex.position(index);
+				value = this.file.getInt(bucket + SLOT_OFFSET);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Copies the entries of the table in the next generation of the table, doubling its capacity unless most
+	 * of the used buckets are removed entries, and deletes the current generation. The current generation
+	 * must not have any modification waiting for a checkpoint.
+	 * 
+	 * @throws IOException
+	 *             If the next generation cannot be created
+	 */
+	void rehash() throws IOException {
+		int capacity = this.mask + 1;
+		int size = this.file.getInt(SIZE_POSITION);
+		int newCapacity = capacity;
+		if (size >= capacity >> 2) {
+			if (capacity == MAXIMUM_CAPACITY) {
+				throw new IllegalStateException("Too many elements in the table " + this.name);
+			}
+			newCapacity = capacity << 1;
+		}
+		int newMask = newCapacity - 1;
+		MappedFile newFile = this.create(this.generation + 1, newCapacity);
+		for (int index = 0; index < capacity; index++) {
+			long bucket = IdIndex.position(index);
+			int value = this.file.getInt(bucket + SLOT_OFFSET);
+			if (value > 0) {
+				IdIndex.insert(newFile, newMask, this.file.getInt(bucket), value - 1);
+			}
+		}
+		newFile.putInt(SIZE_POSITION, size);
+		newFile.force();
+		newFile.putInt(COMPLETE_POSITION, 1);
+		newFile.force();
+
+		this.file.close();
+		IdIndex.delete(this.fileOf(this.generation));
+		this.generation++;
+		this.file = newFile;
+		this.mask = newMask;
+		this.file.attach(this.log);
+	}
+
+	/**
+	 * Creates an empty generation of the table, not marked complete yet.
+	 * 
+	 * @param newGeneration
+	 *            The generation
+	 * @param capacity
+	 *            The number of buckets, a power of two
+	 * @return The file of the generation
+	 * @throws IOException
+	 *             If the file cannot be created
+	 */
+	private MappedFile create(int newGeneration, int capacity) throws IOException {
+		File newFile = this.fileOf(newGeneration);
+		IdIndex.delete(newFile);
+		MappedFile mappedFile = new MappedFile(newFile);
+		mappedFile.ensureCapacity(IdIndex.position(capacity));
+		mappedFile.putLong(MAGIC_POSITION, MAGIC);
+		mappedFile.putInt(CAPACITY_POSITION, capacity);
+		return mappedFile;
+	}
+
+	/**
+	 * Returns the file of the given generation of the table.
+	 * 
+	 * @param fileGeneration
+	 *            The generation
+	 * @return The file of the generation
+	 */
+	private File fileOf(int fileGeneration) {
+		return new File(this.directory, this.name + "-" + fileGeneration + SUFFIX);
+	}
+
+	/**
+	 * Stores an entry in the first bucket available for its hash and counts the bucket as used.
+	 * 
+	 * @param file
+	 *            The file of the table
+	 * @param mask
+	 *            The number of buckets minus one
+	 * @param hash
+	 *            The hash of the encoded identifier
+	 * @param slot
+	 *            The slot of the element
+	 */
+	private static void insert(MappedFile file, int mask, int hash, int slot) {
+		int index = IdIndex.mix(hash) & mask;
+		long bucket = IdIndex.position(index);
+		int value = file.getInt(bucket + SLOT_OFFSET);
+		while (value > 0) {
+			index = (index + 1) & mask;
+			bucket = IdIndex.position(index);
+			value = file.getInt(bucket + SLOT_OFFSET);
+		}
+		if (value == 0) {
+			file.putInt(USED_POSITION, file.getInt(USED_POSITION) + 1);
+		}
+		file.putInt(bucket, hash);
+		file.putInt(bucket + SLOT_OFFSET, slot + 1);
+	}
+
+	/**
+	 * Returns the position of a bucket.
+	 * 
+	 * @param index
+	 *            The index of the bucket
+	 * @return The position of the bucket in the file
+	 */
+	private static long position(int index) {
+		return HEADER_SIZE + (long)index * BUCKET_SIZE;
+	}
+
+	/**
+	 * Spreads the bits of a hash so that the low bits used to pick a bucket depend on all the bits.
+	 * 
+	 * @param hash
+	 *            The hash
+	 * @return The spread hash
+	 */
+	private static int mix(int hash) {
+		int h = hash * GOLDEN_RATIO;
+		return h ^ (h >>> HALF_BITS);
+	}
+
+	/**
+	 * Indicates if the given file holds a complete generation of a table.
+	 * 
+	 * @param file
+	 *            The file
+	 * @return <code>true</code> if the file holds a complete generation, <code>false</code> otherwise
+	 */
+	private static boolean isComplete(File file) {
+		boolean complete = false;
+		if (file.length() >= HEADER_SIZE) {
+			try {
+				MappedFile mappedFile = new MappedFile(file);
+				complete = mappedFile.getLong(MAGIC_POSITION) == MAGIC
+						&& mappedFile.getInt(COMPLETE_POSITION) == 1;
+				mappedFile.close();
+			} catch (IOException e) {
+				complete = false;
+			}
+		}
+		return complete;
+	}
+
+	/**
+	 * Deletes the given file if it exists.
+	 * 
+	 * @param file
+	 *            The file
+	 * @throws IOException
+	 *             If the file exists and cannot be deleted
+	 */
+	private static void delete(File file) throws IOException {
+		if (file.exists() && !file.delete()) {
+			throw new IOException("The file can not be deleted: " + file);
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent dictionary mapping the edge labels and the property keys of the graph to small integers, the
+ * integers being the slots of the records of the strings. The records only hold the offset of the string in
+ * the {@link ValueHeap}. The strings are few, they are loaded in memory when the dictionary is opened.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MappedDictionary {
+	/**
+	 * The integer returned for the strings which have never been registered.
+	 */
+	static final int MISSING = -1;
+
+	/**
+	 * The magic number of the dictionaries.
+	 */
+	private static final long MAGIC = 0x4f47524844494331L;
+
+	/**
+	 * The size of the records.
+	 */
+	private static final int RECORD_SIZE = 16;
+
+	/**
+	 * The offset of the offset of the string in the records.
+	 */
+	private static final int STRING_OFFSET = 8;
+
+	/**
+	 * The records of the strings.
+	 */
+	private final RecordStore records;
+
+	/**
+	 * The heap of the strings.
+	 */
+	private final ValueHeap heap;
+
+	/**
+	 * The strings, indexed by their integer.
+	 */
+	private final List<String> strings = new ArrayList<String>();
+
+	/**
+	 * The integer of each string.
+	 */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	/**
+	 * The constructor, it opens the dictionary or creates it if the file is empty.
+	 * 
+	 * @param file
+	 *            The file of the records
+	 * @param heap
+	 *            The heap of the strings
+	 * @param log
+	 *            The log recording the modifications of the dictionary
+	 * @throws IOException
+	 *             If the dictionary cannot be opened
+	 */
+	MappedDictionary(File file, ValueHeap heap, WriteAheadLog log) throws IOException {
+		this.records = new RecordStore(file, MAGIC, RECORD_SIZE, log);
+		this.heap = heap;
+		int slots = this.records.getSlots();
+		for (int slot = 0; slot < slots; slot++) {
+			String string = (String)ValueCodec.decode(heap.read(this.records.getLong(slot, STRING_OFFSET)));
+			this.strings.add(string);
+			this.ids.put(string, Integer.valueOf(slot));
+		}
+	}
+
+	/**
+	 * Returns the integer associated to the given string, registering the string if necessary.
+	 * 
+	 * @param string
+	 *            The string
+	 * @return The integer associated to the string
+	 * @throws IOException
+	 *             If the string cannot be stored
+	 */
+	int intern(String string) throws IOException {
+		Integer id = this.ids.get(string);
+		if (id == null) {
+			long offset = this.heap.append(ValueCodec.encode(string));
+			int slot = this.records.allocate();
+			this.records.putLong(slot, STRING_OFFSET, offset);
+			id = Integer.valueOf(slot);
+			this.strings.add(string);
+			this.ids.put(string, id);
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Returns the integer associated to the given string without registering it.
+	 * 
+	 * @param string
+	 *            The string
+	 * @return The integer associated to the string or {@link #MISSING} if the string has never been
+	 *         registered
+	 */
+	int lookup(String string) {
+		Integer id = this.ids.get(string);
+		int result = MISSING;
+		if (id != null) {
+			result = id.intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the string associated to the given integer.
+	 * 
+	 * @param id
+	 *            The integer
+	 * @return The string associated to the integer
+	 */
+	String get(int id) {
+		return this.strings.get(id);
+	}
+
+	/**
+	 * Returns the number of strings in the dictionary.
+	 * 
+	 * @return The number of strings
+	 */
+	int size() {
+		return this.strings.size();
+	}
+
+	/**
+	 * Writes the modified pages of the dictionary to the disk and closes it.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be closed
+	 */
+	void close() throws IOException {
+		this.records.close();
+	}
+}
@@ -0,0 +1,136 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * An edge of the memory-mapped graph.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MappedEdge extends AbstractMappedElement implements IEdge {
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param slot
+	 *            The slot of the edge
+	 */
+	MappedEdge(MappedGraph graph, int slot) {
+		super(graph, slot, graph.getEdgeGeneration(slot));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.mapped.AbstractMappedElement#isAlive()
+	 */
+	@Override
+	boolean isAlive() {
+		return this.graph.isEdgeAlive(this.slot)
+				&& this.graph.getEdgeGeneration(this.slot) == this.generation;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.mapped.AbstractMappedElement#getProperties()
+	 */
+	@Override
+	protected PropertyColumns getProperties() {
+		return this.graph.getEdgeProperties();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getVertex(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertex getVertex(Direction direction) throws IllegalArgumentException {
+		this.checkAlive();
+		if (Direction.BOTH.equals(direction) || direction == null) {
+			throw new IllegalArgumentException("The direction of the vertex must be IN or OUT");
+		}
+		return new MappedVertex(this.graph, this.graph.getEdgeVertex(this.slot, direction));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getLabel()
+	 */
+	@Override
+	public String getLabel() {
+		this.checkAlive();
+		return this.graph.getEdgeLabel(this.slot);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.graph.removeEdge(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getId()
+	 */
+	@Override
+	public Object getId() {
+		this.checkAlive();
+		return this.graph.getEdgeId(this.slot);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		String description = "e[removed]";
+		if (this.isAlive()) {
+			Object outId = this.graph.getVertexId(this.graph.getEdgeVertex(this.slot, Direction.OUT));
+			Object inId = this.graph.getVertexId(this.graph.getEdgeVertex(this.slot, Direction.IN));
+			description = "e[" + this.getId() + "][" + outId + "-" + this.getLabel() + "->" + inId + "]";
+		}
+		return description;
+	}
+}
@@ -0,0 +1,462 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file mapped in memory by segments of fixed size, so that files larger than the 2 GB limit of a single
+ * {@link MappedByteBuffer} can be read and written at a <code>long</code> position. The content is read and
+ * written directly in the page cache of the operating system: nothing is copied in the heap and the pages
+ * are only loaded when they are first accessed.
+ * <p>
+ * The file grows by whole segments when {@link #ensureCapacity(long)} is called, the new segments are filled
+ * with zeros. The <code>int</code> and <code>long</code> values must be aligned on their size so that they
+ * never cross the boundary of two segments, the byte arrays may cross it.
+ * </p>
+ * <p>
+ * Once the file is attached to a {@link WriteAheadLog}, it is only modified by the mutations of the log: each
+ * modification is recorded in the log and written in a private copy of the page in the heap, which is read
+ * instead of the mapped page until the next checkpoint writes it in the mapped page. The mapped pages thus
+ * never hold a modification which is not in the log yet.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MappedFile {
+	/**
+	 * The logarithm in base 2 of the size of the segments.
+	 */
+	private static final int SEGMENT_SHIFT = 26;
+
+	/**
+	 * The size of the segments.
+	 */
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+	/**
+	 * The mask of the position of a byte in its segment.
+	 */
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+	/**
+	 * The logarithm in base 2 of the size of the private pages.
+	 */
+	private static final int PAGE_SHIFT = 12;
+
+	/**
+	 * The size of the private pages.
+	 */
+	private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+	/**
+	 * The mask of the position of a byte in its page.
+	 */
+	private static final long PAGE_MASK = PAGE_SIZE - 1;
+
+	/**
+	 * The number of pages in a segment.
+	 */
+	private static final int PAGES_PER_SEGMENT = 1 << (SEGMENT_SHIFT - PAGE_SHIFT);
+
+	/**
+	 * The size of an <code>int</code>.
+	 */
+	private static final int INT_SIZE = 4;
+
+	/**
+	 * The size of a <code>long</code>.
+	 */
+	private static final int LONG_SIZE = 8;
+
+	/**
+	 * The file.
+	 */
+	private final File file;
+
+	/**
+	 * The open file.
+	 */
+	private final RandomAccessFile randomAccessFile;
+
+	/**
+	 * The channel of the file.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The mapped segments.
+	 */
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+
+	/**
+	 * The private pages of each segment, <code>null</code> for the segments without private pages.
+	 */
+	private final List<byte[][]> pages = new ArrayList<byte[][]>();
+
+	/**
+	 * The number of private pages.
+	 */
+	private int pageCount;
+
+	/**
+	 * The log recording the modifications or <code>null</code> if the file is modified directly.
+	 */
+	private WriteAheadLog log;
+
+	/**
+	 * The buffer holding the bytes of a primitive value recorded in the log.
+	 */
+	private final ByteBuffer scratch = ByteBuffer.allocate(LONG_SIZE);
+
+	/**
+	 * The constructor, it opens or creates the file and maps its existing segments.
+	 * 
+	 * @param file
+	 *            The file
+	 * @throws IOException
+	 *             If the file cannot be opened or mapped
+	 */
+	MappedFile(File file) throws IOException {
+		this.file = file;
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		this.channel = this.randomAccessFile.getChannel();
+		this.ensureCapacity(this.channel.size());
+	}
+
+	/**
+	 * Returns the file.
+	 * 
+	 * @return The file
+	 */
+	File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Attaches the file to the given log, its next modifications are recorded in the log and written in
+	 * private pages. The current content must be on the disk.
+	 * 
+	 * @param writeAheadLog
+	 *            The log
+	 */
+	void attach(WriteAheadLog writeAheadLog) {
+		this.log = writeAheadLog;
+		writeAheadLog.attach(this);
+	}
+
+	/**
+	 * Returns the number of bytes which can be accessed without growing the file.
+	 * 
+	 * @return The number of bytes which can be accessed
+	 */
+	long capacity() {
+		return this.segments.size() * SEGMENT_SIZE;
+	}
+
+	/**
+	 * Grows the file by whole segments until the given number of bytes can be accessed.
+	 * 
+	 * @param size
+	 *            The number of bytes to access
+	 * @throws IOException
+	 *             If the file cannot be grown or mapped
+	 */
+	void ensureCapacity(long size) throws IOException {
+		while (this.capacity() < size) {
+			long position = this.capacity();
+			this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_SIZE));
+			this.pages.add(null);
+		}
+	}
+
+	/**
+	 * Reads an <code>int</code>.
+	 * 
+	 * @param position
+	 *            The position of the value, a multiple of 4
+	 * @return The value
+	 */
+	int getInt(long position) {
+		int value;
+		byte[] page = this.page(position);
+		if (page == null) {
+			value = this.segment(position).getInt((int)(position & SEGMENT_MASK));
+		} else {
+			value = ByteBuffer.wrap(page).getInt((int)(position & PAGE_MASK));
+		}
+		return value;
+	}
+
+	/**
+	 * Writes an <code>int</code>.
+	 * 
+	 * @param position
+	 *            The position of the value, a multiple of 4
+	 * @param value
+	 *            The value
+	 */
+	void putInt(long position, int value) {
+		if (this.log == null) {
+			this.segment(position).putInt((int)(position & SEGMENT_MASK), value);
+		} else {
+			ByteBuffer.wrap(this.privatePage(position)).putInt((int)(position & PAGE_MASK), value);
+			this.scratch.putInt(0, value);
+			this.log.write(this, position, this.scratch.array(), 0, INT_SIZE);
+		}
+	}
+
+	/**
+	 * Reads a <code>long</code>.
+	 * 
+	 * @param position
+	 *            The position of the value, a multiple of 8
+	 * @return The value
+	 */
+	long getLong(long position) {
+		long value;
+		byte[] page = this.page(position);
+		if (page == null) {
+			value = this.segment(position).getLong((int)(position & SEGMENT_MASK));
+		} else {
+			value = ByteBuffer.wrap(page).getLong((int)(position & PAGE_MASK));
+		}
+		return value;
+	}
+
+	/**
+	 * Writes a <code>long</code>.
+	 * 
+	 * @param position
+	 *            The position of the value, a multiple of 8
+	 * @param value
+	 *            The value
+	 */
+	void putLong(long position, long value) {
+		if (this.log == null) {
+			this.segment(position).putLong((int)(position & SEGMENT_MASK), value);
+		} else {
+			ByteBuffer.wrap(this.privatePage(position)).putLong((int)(position & PAGE_MASK), value);
+			this.scratch.putLong(0, value);
+			this.log.write(this, position, this.scratch.array(), 0, LONG_SIZE);
+		}
+	}
+
+	/**
+	 * Reads a byte.
+	 * 
+	 * @param position
+	 *            The position of the byte
+	 * @return The byte
+	 */
+	byte getByte(long position) {
+		byte value;
+		byte[] page = this.page(position);
+		if (page == null) {
+			value = this.segment(position).get((int)(position & SEGMENT_MASK));
+		} else {
+			value = page[(int)(position & PAGE_MASK)];
+		}
+		return value;
+	}
+
+	/**
+	 * Reads bytes.
+	 * 
+	 * @param position
+	 *            The position of the first byte
+	 * @param bytes
+	 *            The array receiving the bytes, it is filled entirely
+	 */
+	void get(long position, byte[] bytes) {
+		long current = position;
+		int offset = 0;
+		while (offset < bytes.length) {
+			int index = (int)(current & PAGE_MASK);
+			int length = Math.min(bytes.length - offset, PAGE_SIZE - index);
+			byte[] page = this.page(current);
+			if (page == null) {
+				ByteBuffer view = this.segment(current).duplicate();
+				view.position((int)(current & SEGMENT_MASK));
+				view.get(bytes, offset, length);
+			} else {
+				System.arraycopy(page, index, bytes, offset, length);
+			}
+			offset += length;
+			current += length;
+		}
+	}
+
+	/**
+	 * Writes bytes.
+	 * 
+	 * @param position
+	 *            The position of the first byte
+	 * @param bytes
+	 *            The bytes, they are written entirely
+	 */
+	void put(long position, byte[] bytes) {
+		long current = position;
+		int offset = 0;
+		while (offset < bytes.length) {
+			int index = (int)(current & PAGE_MASK);
+			int length = Math.min(bytes.length - offset, PAGE_SIZE - index);
+			if (this.log == null) {
+				ByteBuffer view = this.segment(current).duplicate();
+				view.position((int)(current & SEGMENT_MASK));
+				view.put(bytes, offset, length);
+			} else {
+				System.arraycopy(bytes, offset, this.privatePage(current), index, length);
+			}
+			offset += length;
+			current += length;
+		}
+		if (this.log != null) {
+			this.log.write(this, position, bytes, 0, bytes.length);
+		}
+	}
+
+	/**
+	 * Writes the private pages in the mapped pages, discards them and writes the modified mapped pages of the
+	 * file to the disk.
+	 */
+	void writePages() {
+		for (int segmentIndex = 0; this.pageCount > 0 && segmentIndex < this.pages.size(); segmentIndex++) {
+			byte[][] segmentPages = this.pages.get(segmentIndex);
+			if (segmentPages != null) {
+				ByteBuffer view = this.segments.get(segmentIndex).duplicate();
+				for (int pageIndex = 0; pageIndex < segmentPages.length; pageIndex++) {
+					if (segmentPages[pageIndex] != null) {
+						view.position(pageIndex << PAGE_SHIFT);
+						view.put(segmentPages[pageIndex]);
+					}
+				}
+				this.pages.set(segmentIndex, null);
+			}
+		}
+		this.pageCount = 0;
+		this.force();
+	}
+
+	/**
+	 * Writes the modified mapped pages of the file to the disk. The private pages are not written.
+	 */
+	void force() {
+		for (MappedByteBuffer segment : this.segments) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Writes the modified mapped pages of the file to the disk, discards the private pages, detaches the file
+	 * from its log and closes it. The segments stay mapped until they are garbage collected, the file must
+	 * not be accessed anymore.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be closed
+	 */
+	void close() throws IOException {
+		this.force();
+		if (this.log != null) {
+			this.log.detach(this);
+			this.log = null;
+		}
+		this.pages.clear();
+		this.pageCount = 0;
+		this.segments.clear();
+		this.randomAccessFile.close();
+	}
+
+	/**
+	 * Returns the segment containing the given position.
+	 * 
+	 * @param position
+	 *            The position
+	 * @return The segment containing the position
+	 */
+	private MappedByteBuffer segment(long position) {
+		return this.segments.get((int)(position >>> SEGMENT_SHIFT));
+	}
+
+	/**
+	 * Returns the private page containing the given position.
+	 * 
+	 * @param position
+	 *            The position
+	 * @return The private page containing the position or <code>null</code> if it has not been modified since
+	 *         the last checkpoint
+	 */
+	private byte[] page(long position) {
+		byte[] page = null;
+		if (this.pageCount > 0) {
+			byte[][] segmentPages = this.pages.get((int)(position >>> SEGMENT_SHIFT));
+			if (segmentPages != null) {
+				page = segmentPages[(int)((position & SEGMENT_MASK) >>> PAGE_SHIFT)];
+			}
+		}
+		return page;
+	}
+
+	/**
+	 * Returns the private page containing the given position, copying it from the mapped page if it has not
+	 * been modified since the last checkpoint.
+	 * 
+	 * @param position
+	 *            The position
+	 * @return The private page containing the position
+	 */
+	private byte[] privatePage(long position) {
+		int segmentIndex = (int)(position >>> SEGMENT_SHIFT);
+		byte[][] segmentPages = this.pages.get(segmentIndex);
+		if (segmentPages == null) {
+			segmentPages = new byte[PAGES_PER_SEGMENT][];
+			this.pages.set(segmentIndex, segmentPages);
+		}
+		int pageIndex = (int)((position & SEGMENT_MASK) >>> PAGE_SHIFT);
+		byte[] page = segmentPages[pageIndex];
+		if (page == null) {
+			page = new byte[PAGE_SIZE];
+			ByteBuffer view = this.segments.get(segmentIndex).duplicate();
+			view.position(pageIndex << PAGE_SHIFT);
+			view.get(page);
+			segmentPages[pageIndex] = page;
+			this.pageCount++;
+			this.log.pageCopied(PAGE_SIZE);
+		}
+		return page;
+	}
+}
@@ -0,0 +1,1159 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IGraphQuery;
+import fr.obeo.graph.api.IVertex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A persistent implementation of the graph API stored in memory-mapped files.
+ * <p>
+ * The graph lives in a directory holding a table of vertex records, a table of edge records, one column file
+ * per property key and per kind of element, a heap of the encoded identifiers and values, the dictionaries
+ * of the labels and of the property keys and the persistent hash tables of the identifiers. All these files
+ * are mapped in memory with NIO: opening a graph maps the files instead of reading them, the operating
+ * system loads their pages when they are first accessed and keeps them in its page cache. The heap of the
+ * virtual machine only holds the dictionaries, whatever the size of the graph.
+ * </p>
+ * <p>
+ * Vertices and edges are identified internally by the slot of their record. A vertex record holds the heads
+ * of the lists of its outgoing and incoming edges, an edge record holds its vertices, its label and its links
+ * in the lists of both vertices, so that the edges of a vertex are read by following the links without any
+ * lookup and that an edge is unlinked in constant time. The slots of the removed elements are reused, the
+ * header of each record holding the generation of its slot so that the handles of a removed element throw
+ * an {@link IllegalStateException} instead of reaching the element reusing its slot.
+ * </p>
+ * <p>
+ * The mutations are durable: each mutation is appended to a {@link WriteAheadLog} as a single entry and the
+ * methods modifying the graph only return once the entry is on the disk. The log is forced with group commit,
+ * the mutations of concurrent threads sharing the same force, so that the throughput of the durable mutations
+ * grows with the number of threads modifying the graph. The modified pages are kept in the heap until a
+ * checkpoint writes them in the mapped files, forces the files and empties the log. A checkpoint is done
+ * when the log or the modified pages grow too large, periodically, on {@link #checkpoint()} and on
+ * {@link #shutdown()}. When a graph which has not been shut down is opened again, the mutations of the log
+ * are written again in the files, so that an acknowledged mutation is never lost and a mutation is never
+ * partially applied. The space of the values which are replaced by a value of another size or removed is not
+ * reclaimed.
+ * </p>
+ * <p>
+ * A directory is opened by a single graph at a time: the graph locks the file <code>graph.lock</code> of
+ * its directory until it is shut down, and opening a directory already opened by another graph, in this
+ * virtual machine or in another process, fails.
+ * </p>
+ * <p>
+ * The identifiers and the property values must be strings, boxed primitives or {@link java.io.Serializable}
+ * values. The identifiers are looked up by their encoding, so a serializable identifier must always be
+ * serialized in the same bytes. The storage errors are reported as {@link IllegalStateException}.
+ * </p>
+ * <p>
+ * This implementation is thread safe: the mutations hold the write lock of the graph, except while waiting
+ * for their entry to be on the disk, and the reads hold its read lock. If a mutation fails after having
+ * modified the graph, the graph is shut down without a checkpoint and must be opened again to recover its
+ * last consistent state. The iterators are weakly consistent: they never fail if the graph is modified during
+ * the iteration but they may or may not reflect the modification, and the iteration of the edges of a vertex
+ * stops early if the next edge is removed meanwhile.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class MappedGraph implements IGraph {
+	/**
+	 * The offset of the slot of the first outgoing edge in the vertex records.
+	 */
+	static final int FIRST_OUT = 4;
+
+	/**
+	 * The offset of the slot of the first incoming edge in the vertex records.
+	 */
+	static final int FIRST_IN = 8;
+
+	/**
+	 * The offset of the offset of the identifier in the vertex records.
+	 */
+	static final int VERTEX_ID = 16;
+
+	/**
+	 * The offset of the slot of the out vertex in the edge records.
+	 */
+	static final int OUT_VERTEX = 4;
+
+	/**
+	 * The offset of the slot of the in vertex in the edge records.
+	 */
+	static final int IN_VERTEX = 8;
+
+	/**
+	 * The offset of the label in the edge records.
+	 */
+	static final int LABEL = 12;
+
+	/**
+	 * The offset of the slot of the next outgoing edge of the out vertex in the edge records.
+	 */
+	static final int NEXT_OUT = 16;
+
+	/**
+	 * The offset of the slot of the next incoming edge of the in vertex in the edge records.
+	 */
+	static final int NEXT_IN = 20;
+
+	/**
+	 * The offset of the slot of the previous outgoing edge of the out vertex in the edge records.
+	 */
+	static final int PREVIOUS_OUT = 24;
+
+	/**
+	 * The offset of the slot of the previous incoming edge of the in vertex in the edge records.
+	 */
+	static final int PREVIOUS_IN = 28;
+
+	/**
+	 * The offset of the offset of the identifier in the edge records.
+	 */
+	static final int EDGE_ID = 32;
+
+	/**
+	 * The size of the vertex records.
+	 */
+	private static final int VERTEX_RECORD_SIZE = 24;
+
+	/**
+	 * The size of the edge records.
+	 */
+	private static final int EDGE_RECORD_SIZE = 40;
+
+	/**
+	 * The magic number of the table of the vertices.
+	 */
+	private static final long VERTEX_MAGIC = 0x4f47524856545831L;
+
+	/**
+	 * The magic number of the table of the edges.
+	 */
+	private static final long EDGE_MAGIC = 0x4f47524845444731L;
+
+	/**
+	 * The message of the exception thrown for null identifiers.
+	 */
+	private static final String NULL_ID = "Element identifiers can not be null";
+
+	/**
+	 * The directory of the graph.
+	 */
+	private final File directory;
+
+	/**
+	 * The lock on the directory of the graph, held until the graph is closed.
+	 */
+	private final DirectoryLock directoryLock;
+
+	/**
+	 * The lock of the graph, held for writing by the mutations and for reading by the reads.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * The write-ahead log of the mutations.
+	 */
+	private final WriteAheadLog log;
+
+	/**
+	 * The heap of the identifiers and of the values.
+	 */
+	private final ValueHeap heap;
+
+	/**
+	 * The dictionary of the labels of the edges.
+	 */
+	private final MappedDictionary labels;
+
+	/**
+	 * The dictionary of the property keys.
+	 */
+	private final MappedDictionary keys;
+
+	/**
+	 * The records of the vertices.
+	 */
+	private final RecordStore vertices;
+
+	/**
+	 * The records of the edges.
+	 */
+	private final RecordStore edges;
+
+	/**
+	 * The slot of each vertex identifier.
+	 */
+	private final IdIndex vertexIndex;
+
+	/**
+	 * The slot of each edge identifier.
+	 */
+	private final IdIndex edgeIndex;
+
+	/**
+	 * The properties of the vertices.
+	 */
+	private final PropertyColumns vertexProperties;
+
+	/**
+	 * The properties of the edges.
+	 */
+	private final PropertyColumns edgeProperties;
+
+	/**
+	 * Indicates if the graph has been shut down.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * The constructor, it opens the graph stored in the given directory or creates an empty graph if the
+	 * directory is empty or does not exist. If the graph has not been shut down, the mutations of its log are
+	 * written again in its files first. The directory is locked until the graph is shut down.
+	 * 
+	 * @param directory
+	 *            The directory of the graph
+	 * @throws IOException
+	 *             If the files of the graph cannot be opened or recovered, or if the directory is already
+	 *             opened by another graph
+	 */
+	public MappedGraph(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("The directory of the graph can not be created: " + directory);
+		}
+		this.directory = directory;
+		this.directoryLock = new DirectoryLock(new File(directory, "graph.lock"));
+		boolean opened = false;
+		try {
+			File logFile = new File(directory, "mutations.log");
+			WriteAheadLog.replay(logFile);
+			this.log = new WriteAheadLog(logFile);
+			this.heap = new ValueHeap(new File(directory, "values.heap"), this.log);
+			this.labels = new MappedDictionary(new File(directory, "labels.dict"), this.heap, this.log);
+			this.keys = new MappedDictionary(new File(directory, "keys.dict"), this.heap, this.log);
+			this.vertices = new RecordStore(new File(directory, "vertices.rec"), VERTEX_MAGIC,
+					VERTEX_RECORD_SIZE, this.log);
+			this.edges = new RecordStore(new File(directory, "edges.rec"), EDGE_MAGIC, EDGE_RECORD_SIZE,
+					this.log);
+			this.vertexIndex = new IdIndex(directory, "vertices", this.vertices, VERTEX_ID, this.heap,
+					this.log);
+			this.edgeIndex = new IdIndex(directory, "edges", this.edges, EDGE_ID, this.heap, this.log);
+			this.vertexProperties = new PropertyColumns(directory, "vertices", this.heap, this.keys,
+					this.log);
+			this.edgeProperties = new PropertyColumns(directory, "edges", this.heap, this.keys, this.log);
+			this.log.checkpoint();
+			opened = true;
+		} finally {
+			if (!opened) {
+				this.directoryLock.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the directory of the graph.
+	 * 
+	 * @return The directory of the graph
+	 */
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex addVertex(Object id) {
+		this.beginWrite(this.vertexIndex);
+		boolean completed = false;
+		int slot;
+		try {
+			byte[] bytes = this.newId(id, this.vertices, this.vertexIndex, "Vertex");
+			slot = this.vertices.allocate();
+			this.vertices.putInt(slot, FIRST_OUT, RecordStore.NONE);
+			this.vertices.putInt(slot, FIRST_IN, RecordStore.NONE);
+			this.vertices.putLong(slot, VERTEX_ID, this.heap.append(bytes));
+			this.vertexIndex.put(ValueCodec.hash(bytes), slot);
+			completed = true;
+		} catch (IOException e) {
+			throw MappedGraph.storageFailure(e);
+		} finally {
+			this.endWrite(completed);
+		}
+		return new MappedVertex(this, slot);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex getVertex(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IVertex vertex = null;
+		byte[] bytes = ValueCodec.encode(id);
+		this.beginRead();
+		try {
+			int slot = this.vertexIndex.get(bytes, ValueCodec.hash(bytes));
+			if (slot != RecordStore.NONE) {
+				vertex = new MappedVertex(this, slot);
+			}
+		} finally {
+			this.endRead();
+		}
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeVertex(fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public void removeVertex(IVertex vertex) {
+		this.beginWrite(null);
+		boolean completed = false;
+		try {
+			int slot = this.vertexSlot(vertex);
+			int edge = this.vertices.getInt(slot, FIRST_OUT);
+			while (edge != RecordStore.NONE) {
+				this.removeEdgeSlot(edge);
+				edge = this.vertices.getInt(slot, FIRST_OUT);
+			}
+			edge = this.vertices.getInt(slot, FIRST_IN);
+			while (edge != RecordStore.NONE) {
+				this.removeEdgeSlot(edge);
+				edge = this.vertices.getInt(slot, FIRST_IN);
+			}
+			byte[] bytes = this.heap.read(this.vertices.getLong(slot, VERTEX_ID));
+			this.vertexIndex.remove(bytes, ValueCodec.hash(bytes));
+			this.vertexProperties.clear(slot);
+			this.vertices.free(slot);
+			completed = true;
+		} finally {
+			this.endWrite(completed);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices() {
+		return this.query().vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(String key, Object value) {
+		return this.query().has(key, value).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addEdge(java.lang.Object, fr.obeo.graph.api.IVertex,
+	 *      fr.obeo.graph.api.IVertex, java.lang.String)
+	 */
+	@Override
+	public IEdge addEdge(Object id, IVertex outVertex, IVertex inVertex, String label) {
+		if (label == null) {
+			throw new IllegalArgumentException("Edge label can not be null");
+		}
+		this.beginWrite(this.edgeIndex);
+		boolean completed = false;
+		int slot;
+		try {
+			int outSlot = this.vertexSlot(outVertex);
+			int inSlot = this.vertexSlot(inVertex);
+			byte[] bytes = this.newId(id, this.edges, this.edgeIndex, "Edge");
+			slot = this.edges.allocate();
+			this.edges.putInt(slot, OUT_VERTEX, outSlot);
+			this.edges.putInt(slot, IN_VERTEX, inSlot);
+			this.edges.putInt(slot, LABEL, this.labels.intern(label));
+			this.edges.putLong(slot, EDGE_ID, this.heap.append(bytes));
+			this.link(slot, outSlot, FIRST_OUT, NEXT_OUT, PREVIOUS_OUT);
+			this.link(slot, inSlot, FIRST_IN, NEXT_IN, PREVIOUS_IN);
+			this.edgeIndex.put(ValueCodec.hash(bytes), slot);
+			completed = true;
+		} catch (IOException e) {
+			throw MappedGraph.storageFailure(e);
+		} finally {
+			this.endWrite(completed);
+		}
+		return new MappedEdge(this, slot);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdge(java.lang.Object)
+	 */
+	@Override
+	public IEdge getEdge(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IEdge edge = null;
+		byte[] bytes = ValueCodec.encode(id);
+		this.beginRead();
+		try {
+			int slot = this.edgeIndex.get(bytes, ValueCodec.hash(bytes));
+			if (slot != RecordStore.NONE) {
+				edge = new MappedEdge(this, slot);
+			}
+		} finally {
+			this.endRead();
+		}
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeEdge(fr.obeo.graph.api.IEdge)
+	 */
+	@Override
+	public void removeEdge(IEdge edge) {
+		if (!(edge instanceof MappedEdge) || ((MappedEdge)edge).graph != this) {
+			throw new IllegalArgumentException("The edge does not belong to this graph: " + edge);
+		}
+		MappedEdge mappedEdge = (MappedEdge)edge;
+		this.beginWrite(null);
+		boolean completed = false;
+		try {
+			mappedEdge.checkAlive();
+			this.removeEdgeSlot(mappedEdge.getSlot());
+			completed = true;
+		} finally {
+			this.endWrite(completed);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges() {
+		return this.query().edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(String key, Object value) {
+		return this.query().has(key, value).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#query()
+	 */
+	@Override
+	public IGraphQuery query() {
+		this.checkOpen();
+		return new MappedGraphQuery(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		this.lock.writeLock().lock();
+		try {
+			if (!this.closed) {
+				this.doCheckpoint();
+				this.closed = true;
+				this.closeFiles();
+			}
+		} catch (IOException e) {
+			throw MappedGraph.storageFailure(e);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Writes all the modified pages of the graph in its files, forces them to the disk and empties the log of
+	 * the mutations, without closing the graph.
+	 */
+	public void checkpoint() {
+		this.lock.writeLock().lock();
+		try {
+			this.checkOpen();
+			this.doCheckpoint();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of vertices of the graph.
+	 * 
+	 * @return The number of vertices of the graph
+	 */
+	public long countVertices() {
+		long count;
+		this.beginRead();
+		try {
+			count = this.vertices.getCount();
+		} finally {
+			this.endRead();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of edges of the graph.
+	 * 
+	 * @return The number of edges of the graph
+	 */
+	public long countEdges() {
+		long count;
+		this.beginRead();
+		try {
+			count = this.edges.getCount();
+		} finally {
+			this.endRead();
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		String description = "mappedgraph[" + this.directory + "]";
+		this.lock.readLock().lock();
+		try {
+			if (!this.closed) {
+				description = "mappedgraph[" + this.directory + " vertices:" + this.vertices.getCount()
+						+ " edges:" + this.edges.getCount() + "]";
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		return description;
+	}
+
+	/**
+	 * Returns the properties of the vertices.
+	 * 
+	 * @return The properties of the vertices
+	 */
+	PropertyColumns getVertexProperties() {
+		return this.vertexProperties;
+	}
+
+	/**
+	 * Returns the properties of the edges.
+	 * 
+	 * @return The properties of the edges
+	 */
+	PropertyColumns getEdgeProperties() {
+		return this.edgeProperties;
+	}
+
+	/**
+	 * Returns the dictionary of the labels.
+	 * 
+	 * @return The dictionary of the labels
+	 */
+	MappedDictionary getLabels() {
+		return this.labels;
+	}
+
+	/**
+	 * Returns the dictionary of the property keys.
+	 * 
+	 * @return The dictionary of the property keys
+	 */
+	MappedDictionary getKeys() {
+		return this.keys;
+	}
+
+	/**
+	 * Returns the records of the vertices.
+	 * 
+	 * @return The records of the vertices
+	 */
+	RecordStore getVertexRecords() {
+		return this.vertices;
+	}
+
+	/**
+	 * Returns the records of the edges.
+	 * 
+	 * @return The records of the edges
+	 */
+	RecordStore getEdgeRecords() {
+		return this.edges;
+	}
+
+	/**
+	 * Indicates if the given vertex slot holds a vertex.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return <code>true</code> if the slot holds a vertex, <code>false</code> otherwise
+	 */
+	boolean isVertexAlive(int slot) {
+		return this.vertices.isLive(slot);
+	}
+
+	/**
+	 * Indicates if the given edge slot holds an edge.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return <code>true</code> if the slot holds an edge, <code>false</code> otherwise
+	 */
+	boolean isEdgeAlive(int slot) {
+		return this.edges.isLive(slot);
+	}
+
+	/**
+	 * Returns the generation of the given vertex slot, i.e. the number of vertices removed from it.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return The generation of the slot
+	 */
+	int getVertexGeneration(int slot) {
+		return this.vertices.getGeneration(slot);
+	}
+
+	/**
+	 * Returns the generation of the given edge slot, i.e. the number of edges removed from it.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return The generation of the slot
+	 */
+	int getEdgeGeneration(int slot) {
+		return this.edges.getGeneration(slot);
+	}
+
+	/**
+	 * Returns the identifier of the given vertex.
+	 * 
+	 * @param slot
+	 *            The slot of the vertex
+	 * @return The identifier of the vertex
+	 */
+	Object getVertexId(int slot) {
+		byte[] bytes;
+		this.beginRead();
+		try {
+			bytes = this.heap.read(this.vertices.getLong(slot, VERTEX_ID));
+		} finally {
+			this.endRead();
+		}
+		return ValueCodec.decode(bytes);
+	}
+
+	/**
+	 * Returns the identifier of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @return The identifier of the edge
+	 */
+	Object getEdgeId(int slot) {
+		byte[] bytes;
+		this.beginRead();
+		try {
+			bytes = this.heap.read(this.edges.getLong(slot, EDGE_ID));
+		} finally {
+			this.endRead();
+		}
+		return ValueCodec.decode(bytes);
+	}
+
+	/**
+	 * Returns the label of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @return The label of the edge
+	 */
+	String getEdgeLabel(int slot) {
+		String label;
+		this.beginRead();
+		try {
+			label = this.labels.get(this.edges.getInt(slot, LABEL));
+		} finally {
+			this.endRead();
+		}
+		return label;
+	}
+
+	/**
+	 * Returns the slot of the out or in vertex of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @param direction
+	 *            Either {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The slot of the vertex
+	 */
+	int getEdgeVertex(int slot, Direction direction) {
+		int vertex;
+		this.beginRead();
+		try {
+			if (Direction.OUT.equals(direction)) {
+				vertex = this.edges.getInt(slot, OUT_VERTEX);
+			} else {
+				vertex = this.edges.getInt(slot, IN_VERTEX);
+			}
+		} finally {
+			this.endRead();
+		}
+		return vertex;
+	}
+
+	/**
+	 * Returns the slot of the vertex at the other end of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @param vertex
+	 *            The slot of one of the vertices of the edge
+	 * @return The slot of the other vertex of the edge, the vertex itself for a loop
+	 */
+	int getOtherVertex(int slot, int vertex) {
+		int other = this.edges.getInt(slot, OUT_VERTEX);
+		if (other == vertex) {
+			other = this.edges.getInt(slot, IN_VERTEX);
+		}
+		return other;
+	}
+
+	/**
+	 * Returns the value of a property of an element.
+	 * 
+	 * @param element
+	 *            The element, checked to be still in the graph
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property or <code>null</code> if the element does not have it
+	 */
+	Object getProperty(AbstractMappedElement element, String key) {
+		Object value;
+		this.beginRead();
+		try {
+			element.checkAlive();
+			value = element.getProperties().get(element.getSlot(), key);
+		} finally {
+			this.endRead();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the keys of the properties of an element.
+	 * 
+	 * @param element
+	 *            The element, checked to be still in the graph
+	 * @return The keys of the properties of the element
+	 */
+	Set<String> getPropertyKeys(AbstractMappedElement element) {
+		Set<String> keySet;
+		this.beginRead();
+		try {
+			element.checkAlive();
+			keySet = element.getProperties().keys(element.getSlot());
+		} finally {
+			this.endRead();
+		}
+		return keySet;
+	}
+
+	/**
+	 * Sets the value of a property of an element.
+	 * 
+	 * @param element
+	 *            The element, checked to be still in the graph
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setProperty(AbstractMappedElement element, String key, Object value) {
+		this.beginWrite(null);
+		boolean completed = false;
+		try {
+			element.checkAlive();
+			element.getProperties().put(element.getSlot(), key, value);
+			completed = true;
+		} catch (IOException e) {
+			throw MappedGraph.storageFailure(e);
+		} finally {
+			this.endWrite(completed);
+		}
+	}
+
+	/**
+	 * Removes a property of an element.
+	 * 
+	 * @param element
+	 *            The element, checked to be still in the graph
+	 * @param key
+	 *            The key of the property
+	 * @return The old value of the property or <code>null</code> if the element did not have it
+	 */
+	Object removeProperty(AbstractMappedElement element, String key) {
+		Object value;
+		this.beginWrite(null);
+		boolean completed = false;
+		try {
+			element.checkAlive();
+			value = element.getProperties().remove(element.getSlot(), key);
+			completed = true;
+		} finally {
+			this.endWrite(completed);
+		}
+		return value;
+	}
+
+	/**
+	 * Checks that the graph has not been shut down.
+	 */
+	void checkOpen() {
+		if (this.closed) {
+			throw new IllegalStateException("The graph has been shut down: " + this.directory);
+		}
+	}
+
+	/**
+	 * Acquires the read lock of the graph, checking that the graph has not been shut down. It must be
+	 * released with {@link #endRead()}.
+	 */
+	void beginRead() {
+		this.lock.readLock().lock();
+		boolean open = false;
+		try {
+			this.checkOpen();
+			open = true;
+		} finally {
+			if (!open) {
+				this.lock.readLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Releases the read lock of the graph.
+	 */
+	void endRead() {
+		this.lock.readLock().unlock();
+	}
+
+	/**
+	 * Acquires the write lock of the graph, checking that the graph has not been shut down, and starts a
+	 * mutation in the log. It must be ended with {@link #endWrite(boolean)}.
+	 * 
+	 * @param index
+	 *            The table of identifiers in which the mutation adds an identifier, rehashed first if
+	 *            necessary, or <code>null</code> if the mutation does not add any identifier
+	 */
+	private void beginWrite(IdIndex index) {
+		this.lock.writeLock().lock();
+		boolean begun = false;
+		try {
+			this.checkOpen();
+			if (index != null && index.needsRehash()) {
+				this.doCheckpoint();
+				index.rehash();
+			}
+			this.log.begin();
+			begun = true;
+		} catch (IOException e) {
+			this.fail();
+			throw MappedGraph.storageFailure(e);
+		} finally {
+			if (!begun) {
+				this.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Ends the current mutation and releases the write lock of the graph. A completed mutation is appended to
+	 * the log and this method waits until it is on the disk, then does a checkpoint if necessary. A mutation
+	 * which has failed after having modified the graph shuts the graph down without a checkpoint.
+	 * 
+	 * @param completed
+	 *            Indicates if the mutation has completed normally
+	 */
+	private void endWrite(boolean completed) {
+		long sequence = 0;
+		try {
+			if (completed) {
+				sequence = this.log.commit();
+			} else if (this.log.rollback()) {
+				this.fail();
+			}
+		} catch (IOException e) {
+			this.fail();
+			throw MappedGraph.storageFailure(e);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+		if (sequence != 0) {
+			try {
+				this.log.awaitDurable(sequence);
+			} catch (IOException e) {
+				throw MappedGraph.storageFailure(e);
+			}
+			if (this.log.needsCheckpoint()) {
+				this.lock.writeLock().lock();
+				try {
+					if (!this.closed && this.log.needsCheckpoint()) {
+						this.doCheckpoint();
+					}
+				} finally {
+					this.lock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Does a checkpoint while holding the write lock, shutting the graph down without a checkpoint if it
+	 * fails.
+	 */
+	private void doCheckpoint() {
+		try {
+			this.log.checkpoint();
+		} catch (IOException e) {
+			this.fail();
+			throw MappedGraph.storageFailure(e);
+		}
+	}
+
+	/**
+	 * Shuts the graph down without a checkpoint after a failure, while holding the write lock. The modified
+	 * pages are discarded and the mutations of the log will be written again in the files when the graph is
+	 * opened again.
+	 */
+	private void fail() {
+		if (!this.closed) {
+			this.closed = true;
+			try {
+				this.closeFiles();
+			} catch (IOException e) {
+				// The graph is already failing, the original failure is reported instead
+			}
+		}
+	}
+
+	/**
+	 * Closes the log and all the files of the graph and releases the lock on its directory.
+	 * 
+	 * @throws IOException
+	 *             If a file cannot be closed
+	 */
+	private void closeFiles() throws IOException {
+		try {
+			this.vertexProperties.close();
+			this.edgeProperties.close();
+			this.vertexIndex.close();
+			this.edgeIndex.close();
+			this.vertices.close();
+			this.edges.close();
+			this.labels.close();
+			this.keys.close();
+			this.heap.close();
+			this.log.close();
+		} finally {
+			this.directoryLock.close();
+		}
+	}
+
+	/**
+	 * Wraps a storage error.
+	 * 
+	 * @param exception
+	 *            The storage error
+	 * @return The exception to throw
+	 */
+	static IllegalStateException storageFailure(IOException exception) {
+		return new IllegalStateException("The graph can not be stored: " + exception.getMessage(), exception);
+	}
+
+	/**
+	 * Encodes the identifier of a new element, generating it if necessary.
+	 * 
+	 * @param id
+	 *            The identifier of the element or <code>null</code> to generate one
+	 * @param records
+	 *            The records of the elements of the same kind, their counter holds the next identifier to
+	 *            generate
+	 * @param index
+	 *            The slot of each identifier of the elements of the same kind
+	 * @param kind
+	 *            The kind of element for the error messages
+	 * @return The encoded identifier
+	 */
+	private byte[] newId(Object id, RecordStore records, IdIndex index, String kind) {
+		byte[] bytes;
+		if (id == null) {
+			long nextId = records.getCounter();
+			bytes = ValueCodec.encode(Long.valueOf(nextId));
+			while (index.get(bytes, ValueCodec.hash(bytes)) != RecordStore.NONE) {
+				nextId++;
+				bytes = ValueCodec.encode(Long.valueOf(nextId));
+			}
+			records.setCounter(nextId + 1);
+		} else {
+			bytes = ValueCodec.encode(id);
+			if (index.get(bytes, ValueCodec.hash(bytes)) != RecordStore.NONE) {
+				throw new IllegalArgumentException(kind + " with id already exists: " + id);
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Links a new edge at the head of a list of edges of a vertex.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param first
+	 *            The offset of the head of the list in the vertex record
+	 * @param next
+	 *            The offset of the next edge in the edge record
+	 * @param previous
+	 *            The offset of the previous edge in the edge record
+	 */
+	private void link(int slot, int vertex, int first, int next, int previous) {
+		int head = this.vertices.getInt(vertex, first);
+		this.edges.putInt(slot, next, head);
+		this.edges.putInt(slot, previous, RecordStore.NONE);
+		if (head != RecordStore.NONE) {
+			this.edges.putInt(head, previous, slot);
+		}
+		this.vertices.putInt(vertex, first, slot);
+	}
+
+	/**
+	 * Unlinks an edge from a list of edges of a vertex.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param first
+	 *            The offset of the head of the list in the vertex record
+	 * @param next
+	 *            The offset of the next edge in the edge record
+	 * @param previous
+	 *            The offset of the previous edge in the edge record
+	 */
+	private void unlink(int slot, int vertex, int first, int next, int previous) {
+		int nextSlot = this.edges.getInt(slot, next);
+		int previousSlot = this.edges.getInt(slot, previous);
+		if (previousSlot == RecordStore.NONE) {
+			this.vertices.putInt(vertex, first, nextSlot);
+		} else {
+			this.edges.putInt(previousSlot, next, nextSlot);
+		}
+		if (nextSlot != RecordStore.NONE) {
+			this.edges.putInt(nextSlot, previous, previousSlot);
+		}
+	}
+
+	/**
+	 * Removes the given live edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 */
+	private void removeEdgeSlot(int slot) {
+		this.unlink(slot, this.edges.getInt(slot, OUT_VERTEX), FIRST_OUT, NEXT_OUT, PREVIOUS_OUT);
+		this.unlink(slot, this.edges.getInt(slot, IN_VERTEX), FIRST_IN, NEXT_IN, PREVIOUS_IN);
+		byte[] bytes = this.heap.read(this.edges.getLong(slot, EDGE_ID));
+		this.edgeIndex.remove(bytes, ValueCodec.hash(bytes));
+		this.edgeProperties.clear(slot);
+		this.edges.free(slot);
+	}
+
+	/**
+	 * Returns the slot of the given vertex, checking that it is a live vertex of this graph.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The slot of the vertex
+	 */
+	private int vertexSlot(IVertex vertex) {
+		if (!(vertex instanceof MappedVertex) || ((MappedVertex)vertex).graph != this) {
+			throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertex);
+		}
+		MappedVertex mappedVertex = (MappedVertex)vertex;
+		mappedVertex.checkAlive();
+		return mappedVertex.getSlot();
+	}
+}
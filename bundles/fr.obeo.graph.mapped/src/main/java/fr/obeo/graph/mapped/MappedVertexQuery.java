@@ -0,0 +1,353 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import fr.obeo.graph.api.Aggregations;
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query over the edges incident to a vertex of the memory-mapped graph. It follows the lists of edges of
+ * the vertex for the requested directions, comparing the labels as integers, and only reads the columns of
+ * the filtered keys.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MappedVertexQuery extends AbstractMappedQuery implements IVertexQuery {
+	/**
+	 * The slot of the vertex.
+	 */
+	private final int vertex;
+
+	/**
+	 * The direction of the edges.
+	 */
+	private Direction direction = Direction.BOTH;
+
+	/**
+	 * The labels of the edges, empty for all the labels.
+	 */
+	private String[] labels = new String[0];
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertex
+	 *            The slot of the vertex
+	 */
+	MappedVertexQuery(MappedGraph graph, int vertex) {
+		super(graph);
+		this.vertex = vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#direction(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertexQuery direction(Direction newDirection) {
+		if (newDirection == null) {
+			throw new IllegalArgumentException("The direction can not be null");
+		}
+		this.direction = newDirection;
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#labels(java.lang.String[])
+	 */
+	@Override
+	public IVertexQuery labels(String... newLabels) {
+		if (newLabels == null) {
+			this.labels = new String[0];
+		} else {
+			this.labels = newLabels.clone();
+		}
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#count()
+	 */
+	@Override
+	public long count() {
+		long count = 0;
+		this.graph.beginRead();
+		try {
+			ISlotCursor cursor = this.createCursor();
+			PropertyMatcher matcher = new PropertyMatcher(this.filters, this.graph.getKeys());
+			PropertyColumns properties = this.graph.getEdgeProperties();
+			int slot = cursor.next();
+			while (slot != ISlotCursor.END && count < this.limit) {
+				if (matcher.matches(properties, slot)) {
+					count++;
+				}
+				slot = cursor.next();
+			}
+		} finally {
+			this.graph.endRead();
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#vertexIds()
+	 */
+	@Override
+	public Object vertexIds() {
+		List<Object> ids = new ArrayList<Object>();
+		this.graph.beginRead();
+		try {
+			ISlotCursor cursor = this.createCursor();
+			PropertyMatcher matcher = new PropertyMatcher(this.filters, this.graph.getKeys());
+			PropertyColumns properties = this.graph.getEdgeProperties();
+			int slot = cursor.next();
+			while (slot != ISlotCursor.END && ids.size() < this.limit) {
+				if (matcher.matches(properties, slot)) {
+					ids.add(this.graph.getVertexId(this.graph.getOtherVertex(slot, this.vertex)));
+				}
+				slot = cursor.next();
+			}
+		} finally {
+			this.graph.endRead();
+		}
+		return ids;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery has(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS_NOT, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.NOT_EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, IPredicate predicate, Object value) {
+		this.addFilter(PropertyFilter.predicate(key, predicate, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#interval(java.lang.String, java.lang.Comparable,
+	 *      java.lang.Comparable)
+	 */
+	@Override
+	public IVertexQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		this.addFilter(PropertyFilter.interval(key, startValue, endValue));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#limit(int)
+	 */
+	@Override
+	public IVertexQuery limit(int max) {
+		this.setLimit(max);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#edges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> edges() {
+		return new AbstractMappedIterable<IEdge>(this.graph) {
+			@Override
+			protected AbstractLazyIterator<IEdge> open() {
+				MappedVertexQuery query = MappedVertexQuery.this;
+				PropertyMatcher matcher = new PropertyMatcher(query.filters, query.graph.getKeys());
+				return new EdgeIterator(query.graph, query.createCursor(), matcher, query.limit);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#vertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> vertices() {
+		return new AbstractMappedIterable<IVertex>(this.graph) {
+			@Override
+			protected AbstractLazyIterator<IVertex> open() {
+				MappedVertexQuery query = MappedVertexQuery.this;
+				PropertyMatcher matcher = new PropertyMatcher(query.filters, query.graph.getKeys());
+				ISlotCursor cursor = query.createCursor();
+				return new AdjacentVertexIterator(query.graph, query.vertex, cursor, matcher, query.limit);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#min(java.lang.String)
+	 */
+	@Override
+	public Number min(String key) {
+		return Aggregations.aggregate(this.edges(), key).getMin();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#max(java.lang.String)
+	 */
+	@Override
+	public Number max(String key) {
+		return Aggregations.aggregate(this.edges(), key).getMax();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#sum(java.lang.String)
+	 */
+	@Override
+	public Number sum(String key) {
+		return Aggregations.aggregate(this.edges(), key).getSum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countBy(java.lang.String)
+	 */
+	@Override
+	public Map<Object, Long> countBy(String key) {
+		return Aggregations.countBy(this.edges(), key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countByLabel()
+	 */
+	@Override
+	public Map<String, Long> countByLabel() {
+		return Aggregations.countByLabel(this.edges());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		StringBuilder access = new StringBuilder();
+		access.append(this.direction).append(" edge lists of v[");
+		access.append(this.graph.getVertexId(this.vertex)).append(']');
+		if (this.labels.length > 0) {
+			access.append(" with labels ").append(Arrays.toString(this.labels));
+		}
+		return this.explain("edges", access.toString());
+	}
+
+	/**
+	 * Creates the cursor over the edges of the vertex for the direction and the labels of the query.
+	 * 
+	 * @return The cursor over the edges of the vertex
+	 */
+	private ISlotCursor createCursor() {
+		return new EdgeListCursor(this.graph, this.vertex, this.direction, this.labels);
+	}
+}
@@ -0,0 +1,339 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The properties of the vertices or of the edges of the graph, stored in one column per property key. A
+ * column is a {@link MappedFile} holding, for each slot, the offset of the value of the property in the
+ * {@link ValueHeap} or zero if the element does not have the property. The columns are created lazily, the
+ * first time a property with their key is set, and only grow up to the highest slot having the property.
+ * <p>
+ * Reading a property only touches one <code>long</code> of the column and the value itself, and scanning the
+ * elements on the value of a property only reads its column.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class PropertyColumns {
+	/**
+	 * The size of an entry of a column.
+	 */
+	private static final int ENTRY_SIZE = 8;
+
+	/**
+	 * The suffix of the files of the columns.
+	 */
+	private static final String SUFFIX = ".col";
+
+	/**
+	 * The directory of the columns.
+	 */
+	private final File directory;
+
+	/**
+	 * The prefix of the names of the files of the columns.
+	 */
+	private final String prefix;
+
+	/**
+	 * The heap of the values.
+	 */
+	private final ValueHeap heap;
+
+	/**
+	 * The dictionary of the property keys.
+	 */
+	private final MappedDictionary keys;
+
+	/**
+	 * The column of each key, indexed by the integer of the key, <code>null</code> if no element has ever had
+	 * the property.
+	 */
+	private final List<MappedFile> columns = new ArrayList<MappedFile>();
+
+	/**
+	 * The log recording the modifications of the columns.
+	 */
+	private final WriteAheadLog log;
+
+	/**
+	 * The constructor, it opens the existing columns.
+	 * 
+	 * @param directory
+	 *            The directory of the columns
+	 * @param prefix
+	 *            The prefix of the names of the files of the columns
+	 * @param heap
+	 *            The heap of the values
+	 * @param keys
+	 *            The dictionary of the property keys
+	 * @param log
+	 *            The log recording the modifications of the columns
+	 * @throws IOException
+	 *             If a column cannot be opened
+	 */
+	PropertyColumns(File directory, String prefix, ValueHeap heap, MappedDictionary keys, WriteAheadLog log)
+			throws IOException {
+		this.directory = directory;
+		this.prefix = prefix;
+		this.heap = heap;
+		this.keys = keys;
+		this.log = log;
+		for (int keyId = 0; keyId < keys.size(); keyId++) {
+			File file = this.fileOf(keyId);
+			if (file.exists()) {
+				MappedFile column = new MappedFile(file);
+				column.attach(log);
+				this.columns.add(column);
+			} else {
+				this.columns.add(null);
+			}
+		}
+	}
+
+	/**
+	 * Validates a property key.
+	 * 
+	 * @param key
+	 *            The key
+	 * @throws IllegalArgumentException
+	 *             If the key is <code>null</code> or empty
+	 */
+	static void validate(String key) throws IllegalArgumentException {
+		if (key == null || key.length() == 0) {
+			throw new IllegalArgumentException("Property key can not be null or empty");
+		}
+	}
+
+	/**
+	 * Returns the value of a property of an element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property or <code>null</code> if the element does not have it
+	 */
+	Object get(int slot, String key) {
+		PropertyColumns.validate(key);
+		return this.get(slot, this.keys.lookup(key));
+	}
+
+	/**
+	 * Returns the value of a property of an element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key of the property, it may be {@link MappedDictionary#MISSING}
+	 * @return The value of the property or <code>null</code> if the element does not have it
+	 */
+	Object get(int slot, int keyId) {
+		Object value = null;
+		long offset = this.offset(slot, keyId);
+		if (offset != 0) {
+			value = ValueCodec.decode(this.heap.read(offset));
+		}
+		return value;
+	}
+
+	/**
+	 * Indicates if a property of an element has the given encoded value, without decoding it.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key of the property, it may be {@link MappedDictionary#MISSING}
+	 * @param bytes
+	 *            The encoded value
+	 * @return <code>true</code> if the element has the property with this value, <code>false</code> otherwise
+	 */
+	boolean matches(int slot, int keyId, byte[] bytes) {
+		long offset = this.offset(slot, keyId);
+		return offset != 0 && this.heap.matches(offset, bytes);
+	}
+
+	/**
+	 * Sets the value of a property of an element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @throws IOException
+	 *             If the value cannot be stored
+	 */
+	void put(int slot, String key, Object value) throws IOException {
+		PropertyColumns.validate(key);
+		if (value == null) {
+			throw new IllegalArgumentException("Property value can not be null");
+		}
+		byte[] bytes = ValueCodec.encode(value);
+		int keyId = this.keys.intern(key);
+		MappedFile column = this.column(keyId);
+		long position = (long)slot * ENTRY_SIZE;
+		column.ensureCapacity(position + ENTRY_SIZE);
+		long offset = column.getLong(position);
+		if (offset == 0) {
+			offset = this.heap.append(bytes);
+		} else {
+			offset = this.heap.replace(offset, bytes);
+		}
+		column.putLong(position, offset);
+	}
+
+	/**
+	 * Removes a property of an element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The old value of the property or <code>null</code> if the element did not have it
+	 */
+	Object remove(int slot, String key) {
+		PropertyColumns.validate(key);
+		int keyId = this.keys.lookup(key);
+		Object value = this.get(slot, keyId);
+		if (value != null) {
+			this.columns.get(keyId).putLong((long)slot * ENTRY_SIZE, 0L);
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the keys of the properties of an element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @return The keys of the properties of the element
+	 */
+	Set<String> keys(int slot) {
+		Set<String> result = new LinkedHashSet<String>();
+		for (int keyId = 0; keyId < this.columns.size(); keyId++) {
+			if (this.offset(slot, keyId) != 0) {
+				result.add(this.keys.get(keyId));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all the properties of an element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 */
+	void clear(int slot) {
+		for (int keyId = 0; keyId < this.columns.size(); keyId++) {
+			if (this.offset(slot, keyId) != 0) {
+				this.columns.get(keyId).putLong((long)slot * ENTRY_SIZE, 0L);
+			}
+		}
+	}
+
+	/**
+	 * Writes the modified pages of the columns to the disk and closes them.
+	 * 
+	 * @throws IOException
+	 *             If a file cannot be closed
+	 */
+	void close() throws IOException {
+		for (MappedFile column : this.columns) {
+			if (column != null) {
+				column.close();
+			}
+		}
+		this.columns.clear();
+	}
+
+	/**
+	 * Returns the offset of the value of a property of an element in the heap.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key of the property, it may be {@link MappedDictionary#MISSING}
+	 * @return The offset of the value or zero if the element does not have the property
+	 */
+	private long offset(int slot, int keyId) {
+		long offset = 0;
+		if (keyId >= 0 && keyId < this.columns.size()) {
+			MappedFile column = this.columns.get(keyId);
+			long position = (long)slot * ENTRY_SIZE;
+			if (column != null && position < column.capacity()) {
+				offset = column.getLong(position);
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Returns the column of a key, creating it if necessary.
+	 * 
+	 * @param keyId
+	 *            The integer of the key
+	 * @return The column of the key
+	 * @throws IOException
+	 *             If the column cannot be created
+	 */
+	private MappedFile column(int keyId) throws IOException {
+		while (this.columns.size() <= keyId) {
+			this.columns.add(null);
+		}
+		MappedFile column = this.columns.get(keyId);
+		if (column == null) {
+			column = new MappedFile(this.fileOf(keyId));
+			column.attach(this.log);
+			this.columns.set(keyId, column);
+		}
+		return column;
+	}
+
+	/**
+	 * Returns the file of the column of a key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key
+	 * @return The file of the column
+	 */
+	private File fileOf(int keyId) {
+		return new File(this.directory, this.prefix + "-" + keyId + SUFFIX);
+	}
+}
@@ -0,0 +1,100 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.List;
+
+/**
+ * The filters of a query bound to a graph: the keys of the properties are resolved once to the integers of
+ * the key dictionary and the values of the equality filters are encoded once, so that they are compared with
+ * the stored values without decoding them when their encoding is canonical.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class PropertyMatcher {
+	/**
+	 * The filters.
+	 */
+	private final PropertyFilter[] filters;
+
+	/**
+	 * The integer of the key of each filter.
+	 */
+	private final int[] keyIds;
+
+	/**
+	 * The encoded value of each equality filter with a canonical encoding, <code>null</code> for the other
+	 * filters.
+	 */
+	private final byte[][] encodedValues;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param filters
+	 *            The filters
+	 * @param keys
+	 *            The dictionary of the property keys
+	 */
+	PropertyMatcher(List<PropertyFilter> filters, MappedDictionary keys) {
+		this.filters = filters.toArray(new PropertyFilter[filters.size()]);
+		this.keyIds = new int[this.filters.length];
+		this.encodedValues = new byte[this.filters.length][];
+		for (int i = 0; i < this.filters.length; i++) {
+			this.keyIds[i] = keys.lookup(this.filters[i].getKey());
+			if (PropertyFilter.Kind.EQUAL.equals(this.filters[i].getKind())) {
+				this.encodedValues[i] = ValueCodec.encodeCanonical(this.filters[i].getValue());
+			}
+		}
+	}
+
+	/**
+	 * Indicates if the given element is accepted by all the filters.
+	 * 
+	 * @param properties
+	 *            The properties of the elements
+	 * @param slot
+	 *            The slot of the element
+	 * @return <code>true</code> if the element is accepted by all the filters, <code>false</code> otherwise
+	 */
+	boolean matches(PropertyColumns properties, int slot) {
+		boolean matches = true;
+		for (int i = 0; i < this.filters.length && matches; i++) {
+			if (this.encodedValues[i] != null) {
+				matches = properties.matches(slot, this.keyIds[i], this.encodedValues[i]);
+			} else {
+				matches = this.filters[i].test(properties.get(slot, this.keyIds[i]));
+			}
+		}
+		return matches;
+	}
+}
@@ -0,0 +1,335 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A table of records of fixed size stored in a {@link MappedFile}, each record being identified by its slot.
+ * The first <code>int</code> of each record is its header: its lowest bit is its state, {@link #FREE} or
+ * {@link #LIVE}, and the other bits are the generation of its slot. The slots of the freed records are
+ * chained in a free list, through their second <code>int</code>, and reused by the next allocations. The
+ * generation of a slot is incremented each time its record is freed, so that the owner of the table can
+ * detect the handles of a freed record which would otherwise reach the record reusing its slot.
+ * <p>
+ * The file starts with a header holding the size of the records, the number of slots used so far, the head
+ * of the free list, the number of live records and a counter left to the owner of the table.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class RecordStore {
+	/**
+	 * The state of a free record.
+	 */
+	static final int FREE = 0;
+
+	/**
+	 * The state of a live record.
+	 */
+	static final int LIVE = 1;
+
+	/**
+	 * The slot returned when there is no record.
+	 */
+	static final int NONE = -1;
+
+	/**
+	 * The mask of the state in the header of a record.
+	 */
+	private static final int STATE_MASK = 1;
+
+	/**
+	 * The number of bits of the state in the header of a record, below the generation of the slot.
+	 */
+	private static final int GENERATION_SHIFT = 1;
+
+	/**
+	 * The offset of the header in a record.
+	 */
+	private static final int RECORD_HEADER_OFFSET = 0;
+
+	/**
+	 * The size of the header of the file.
+	 */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * The position of the magic number identifying the kind of table in the header.
+	 */
+	private static final int MAGIC_POSITION = 0;
+
+	/**
+	 * The position of the size of the records in the header.
+	 */
+	private static final int RECORD_SIZE_POSITION = 8;
+
+	/**
+	 * The position of the number of slots used so far in the header.
+	 */
+	private static final int SLOTS_POSITION = 12;
+
+	/**
+	 * The position of the head of the free list in the header.
+	 */
+	private static final int FREE_HEAD_POSITION = 16;
+
+	/**
+	 * The position of the number of live records in the header.
+	 */
+	private static final int COUNT_POSITION = 20;
+
+	/**
+	 * The position of the counter of the owner in the header.
+	 */
+	private static final int COUNTER_POSITION = 24;
+
+	/**
+	 * The offset of the next free slot in a free record.
+	 */
+	private static final int NEXT_FREE_OFFSET = 4;
+
+	/**
+	 * The file.
+	 */
+	private final MappedFile file;
+
+	/**
+	 * The size of the records, a multiple of 8.
+	 */
+	private final int recordSize;
+
+	/**
+	 * The constructor, it opens the table or creates it if the file is empty.
+	 * 
+	 * @param file
+	 *            The file of the table
+	 * @param magic
+	 *            The magic number identifying the kind of table
+	 * @param recordSize
+	 *            The size of the records, a multiple of 8
+	 * @param log
+	 *            The log recording the modifications of the table
+	 * @throws IOException
+	 *             If the file cannot be mapped or holds another kind of table
+	 */
+	RecordStore(File file, long magic, int recordSize, WriteAheadLog log) throws IOException {
+		this.file = new MappedFile(file);
+		this.recordSize = recordSize;
+		this.file.ensureCapacity(HEADER_SIZE);
+		long storedMagic = this.file.getLong(MAGIC_POSITION);
+		if (storedMagic == 0) {
+			this.file.putLong(MAGIC_POSITION, magic);
+			this.file.putInt(RECORD_SIZE_POSITION, recordSize);
+			this.file.putInt(FREE_HEAD_POSITION, NONE);
+		} else if (storedMagic != magic || this.file.getInt(RECORD_SIZE_POSITION) != recordSize) {
+			this.file.close();
+			throw new IOException("The file does not hold the expected table: " + file);
+		}
+		this.file.attach(log);
+	}
+
+	/**
+	 * Returns the number of slots used so far, the live records are all below this number.
+	 * 
+	 * @return The number of slots used so far
+	 */
+	int getSlots() {
+		return this.file.getInt(SLOTS_POSITION);
+	}
+
+	/**
+	 * Returns the number of live records.
+	 * 
+	 * @return The number of live records
+	 */
+	int getCount() {
+		return this.file.getInt(COUNT_POSITION);
+	}
+
+	/**
+	 * Returns the counter of the owner of the table.
+	 * 
+	 * @return The counter
+	 */
+	long getCounter() {
+		return this.file.getLong(COUNTER_POSITION);
+	}
+
+	/**
+	 * Sets the counter of the owner of the table.
+	 * 
+	 * @param counter
+	 *            The counter
+	 */
+	void setCounter(long counter) {
+		this.file.putLong(COUNTER_POSITION, counter);
+	}
+
+	/**
+	 * Indicates if the given slot holds a live record.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return <code>true</code> if the slot is used and holds a live record, <code>false</code> otherwise
+	 */
+	boolean isLive(int slot) {
+		return slot >= 0 && slot < this.getSlots()
+				&& (this.getInt(slot, RECORD_HEADER_OFFSET) & STATE_MASK) == LIVE;
+	}
+
+	/**
+	 * Returns the generation of the given slot, i.e. the number of records freed from it.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return The generation of the slot
+	 */
+	int getGeneration(int slot) {
+		return this.getInt(slot, RECORD_HEADER_OFFSET) >>> GENERATION_SHIFT;
+	}
+
+	/**
+	 * Allocates a live record, reusing a free slot if possible. The fields of the record are all zero, its
+	 * header keeps the generation of the slot.
+	 * 
+	 * @return The slot of the record
+	 * @throws IOException
+	 *             If the file cannot be grown
+	 */
+	int allocate() throws IOException {
+		int slot = this.file.getInt(FREE_HEAD_POSITION);
+		int header = FREE;
+		if (slot == NONE) {
+			slot = this.getSlots();
+			this.file.ensureCapacity(this.position(slot + 1));
+			this.file.putInt(SLOTS_POSITION, slot + 1);
+		} else {
+			this.file.putInt(FREE_HEAD_POSITION, this.getInt(slot, NEXT_FREE_OFFSET));
+			header = this.getInt(slot, RECORD_HEADER_OFFSET);
+			for (int offset = 0; offset < this.recordSize; offset += 8) {
+				this.putLong(slot, offset, 0L);
+			}
+		}
+		this.putInt(slot, RECORD_HEADER_OFFSET, header | LIVE);
+		this.file.putInt(COUNT_POSITION, this.getCount() + 1);
+		return slot;
+	}
+
+	/**
+	 * Frees the given live record, increments the generation of its slot and adds the slot to the free list.
+	 * 
+	 * @param slot
+	 *            The slot of the record
+	 */
+	void free(int slot) {
+		int generation = this.getGeneration(slot) + 1;
+		this.putInt(slot, RECORD_HEADER_OFFSET, generation << GENERATION_SHIFT | FREE);
+		this.putInt(slot, NEXT_FREE_OFFSET, this.file.getInt(FREE_HEAD_POSITION));
+		this.file.putInt(FREE_HEAD_POSITION, slot);
+		this.file.putInt(COUNT_POSITION, this.getCount() - 1);
+	}
+
+	/**
+	 * Reads an <code>int</code> field of a record.
+	 * 
+	 * @param slot
+	 *            The slot of the record
+	 * @param offset
+	 *            The offset of the field in the record, a multiple of 4
+	 * @return The value of the field
+	 */
+	int getInt(int slot, int offset) {
+		return this.file.getInt(this.position(slot) + offset);
+	}
+
+	/**
+	 * Writes an <code>int</code> field of a record.
+	 * 
+	 * @param slot
+	 *            The slot of the record
+	 * @param offset
+	 *            The offset of the field in the record, a multiple of 4
+	 * @param value
+	 *            The value of the field
+	 */
+	void putInt(int slot, int offset, int value) {
+		this.file.putInt(this.position(slot) + offset, value);
+	}
+
+	/**
+	 * Reads a <code>long</code> field of a record.
+	 * 
+	 * @param slot
+	 *            The slot of the record
+	 * @param offset
+	 *            The offset of the field in the record, a multiple of 8
+	 * @return The value of the field
+	 */
+	long getLong(int slot, int offset) {
+		return this.file.getLong(this.position(slot) + offset);
+	}
+
+	/**
+	 * Writes a <code>long</code> field of a record.
+	 * 
+	 * @param slot
+	 *            The slot of the record
+	 * @param offset
+	 *            The offset of the field in the record, a multiple of 8
+	 * @param value
+	 *            The value of the field
+	 */
+	void putLong(int slot, int offset, long value) {
+		this.file.putLong(this.position(slot) + offset, value);
+	}
+
+	/**
+	 * Writes the modified pages of the table to the disk and closes it.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be closed
+	 */
+	void close() throws IOException {
+		this.file.close();
+	}
+
+	/**
+	 * Returns the position of a record in the file.
+	 * 
+	 * @param slot
+	 *            The slot of the record
+	 * @return The position of the record
+	 */
+	private long position(int slot) {
+		return HEADER_SIZE + (long)slot * this.recordSize;
+	}
+}
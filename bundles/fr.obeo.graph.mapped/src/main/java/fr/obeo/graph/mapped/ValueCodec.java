@@ -0,0 +1,308 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Encodes the identifiers and the property values in bytes. The strings and the boxed primitives have a
+ * compact encoding made of a tag byte followed by their content, the other values must be
+ * {@link Serializable} and are encoded with the Java serialization.
+ * <p>
+ * Two equal strings or boxed primitives always have the same encoding, the encodings can thus be compared
+ * and hashed instead of the values themselves (see {@link #encodeCanonical(Object)}).
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ValueCodec {
+	/**
+	 * The tag of the strings.
+	 */
+	private static final byte STRING = 1;
+
+	/**
+	 * The tag of the integers.
+	 */
+	private static final byte INTEGER = 2;
+
+	/**
+	 * The tag of the longs.
+	 */
+	private static final byte LONG = 3;
+
+	/**
+	 * The tag of the doubles.
+	 */
+	private static final byte DOUBLE = 4;
+
+	/**
+	 * The tag of the floats.
+	 */
+	private static final byte FLOAT = 5;
+
+	/**
+	 * The tag of the booleans.
+	 */
+	private static final byte BOOLEAN = 6;
+
+	/**
+	 * The tag of the shorts.
+	 */
+	private static final byte SHORT = 7;
+
+	/**
+	 * The tag of the bytes.
+	 */
+	private static final byte BYTE = 8;
+
+	/**
+	 * The tag of the characters.
+	 */
+	private static final byte CHARACTER = 9;
+
+	/**
+	 * The tag of the values encoded with the Java serialization.
+	 */
+	private static final byte SERIALIZED = 10;
+
+	/**
+	 * The charset of the strings.
+	 */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The size of the tag.
+	 */
+	private static final int TAG_SIZE = 1;
+
+	/**
+	 * The offset basis of the FNV-1a hash.
+	 */
+	private static final int FNV_OFFSET = 0x811c9dc5;
+
+	/**
+	 * The prime of the FNV-1a hash.
+	 */
+	private static final int FNV_PRIME = 0x01000193;
+
+	/**
+	 * The mask of the bits of a byte.
+	 */
+	private static final int BYTE_MASK = 0xff;
+
+	/**
+	 * The constructor.
+	 */
+	private ValueCodec() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Encodes the given value.
+	 * 
+	 * @param value
+	 *            The value, it can not be <code>null</code>
+	 * @return The bytes of the value
+	 * @throws IllegalArgumentException
+	 *             If the value can not be encoded
+	 */
+	static byte[] encode(Object value) throws IllegalArgumentException {
+		ByteBuffer buffer;
+		if (value instanceof String) {
+			byte[] bytes = ((String)value).getBytes(UTF_8);
+			buffer = ByteBuffer.allocate(TAG_SIZE + bytes.length).put(STRING).put(bytes);
+		} else if (value instanceof Integer) {
+			buffer = ByteBuffer.allocate(TAG_SIZE + Integer.SIZE / Byte.SIZE).put(INTEGER)
+					.putInt(((Integer)value).intValue());
+		} else if (value instanceof Long) {
+			buffer = ByteBuffer.allocate(TAG_SIZE + Long.SIZE / Byte.SIZE).put(LONG)
+					.putLong(((Long)value).longValue());
+		} else if (value instanceof Double) {
+			buffer = ByteBuffer.allocate(TAG_SIZE + Double.SIZE / Byte.SIZE).put(DOUBLE)
+					.putDouble(((Double)value).doubleValue());
+		} else if (value instanceof Float) {
+			buffer = ByteBuffer.allocate(TAG_SIZE + Float.SIZE / Byte.SIZE).put(FLOAT)
+					.putFloat(((Float)value).floatValue());
+		} else if (value instanceof Boolean) {
+			byte content = 0;
+			if (((Boolean)value).booleanValue()) {
+				content = 1;
+			}
+			buffer = ByteBuffer.allocate(TAG_SIZE + 1).put(BOOLEAN).put(content);
+		} else if (value instanceof Short) {
+			buffer = ByteBuffer.allocate(TAG_SIZE + Short.SIZE / Byte.SIZE).put(SHORT)
+					.putShort(((Short)value).shortValue());
+		} else if (value instanceof Byte) {
+			buffer = ByteBuffer.allocate(TAG_SIZE + 1).put(BYTE).put(((Byte)value).byteValue());
+		} else if (value instanceof Character) {
+			buffer = ByteBuffer.allocate(TAG_SIZE + Character.SIZE / Byte.SIZE).put(CHARACTER)
+					.putChar(((Character)value).charValue());
+		} else if (value instanceof Serializable) {
+			buffer = ByteBuffer.wrap(ValueCodec.serialize((Serializable)value));
+		} else {
+			throw new IllegalArgumentException("The value can not be stored, it is not serializable: "
+					+ value);
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Encodes the given value if its encoding is canonical, that is if all the values equal to it have the
+	 * same encoding. It is the case of the strings and of the boxed primitives, not of the values encoded
+	 * with the Java serialization.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The bytes of the value or <code>null</code> if the value is <code>null</code> or does not have
+	 *         a canonical encoding
+	 */
+	static byte[] encodeCanonical(Object value) {
+		byte[] bytes = null;
+		if (value instanceof String || value instanceof Number || value instanceof Boolean
+				|| value instanceof Character) {
+			bytes = ValueCodec.encode(value);
+			if (bytes[0] == SERIALIZED) {
+				bytes = null;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Decodes a value.
+	 * 
+	 * @param bytes
+	 *            The bytes of the value
+	 * @return The value
+	 * @throws IllegalStateException
+	 *             If the bytes are not the encoding of a value
+	 */
+	static Object decode(byte[] bytes) throws IllegalStateException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes, TAG_SIZE, bytes.length - TAG_SIZE);
+		Object value;
+		switch (bytes[0]) {
+			case STRING:
+				value = new String(bytes, TAG_SIZE, bytes.length - TAG_SIZE, UTF_8);
+				break;
+			case INTEGER:
+				value = Integer.valueOf(buffer.getInt());
+				break;
+			case LONG:
+				value = Long.valueOf(buffer.getLong());
+				break;
+			case DOUBLE:
+				value = Double.valueOf(buffer.getDouble());
+				break;
+			case FLOAT:
+				value = Float.valueOf(buffer.getFloat());
+				break;
+			case BOOLEAN:
+				value = Boolean.valueOf(buffer.get() != 0);
+				break;
+			case SHORT:
+				value = Short.valueOf(buffer.getShort());
+				break;
+			case BYTE:
+				value = Byte.valueOf(buffer.get());
+				break;
+			case CHARACTER:
+				value = Character.valueOf(buffer.getChar());
+				break;
+			case SERIALIZED:
+				value = ValueCodec.deserialize(bytes);
+				break;
+			default:
+				throw new IllegalStateException("Unknown value tag: " + bytes[0]);
+		}
+		return value;
+	}
+
+	/**
+	 * Computes the hash of an encoded value. Unlike {@link Object#hashCode()}, it is the same in every
+	 * virtual machine so that it can be stored.
+	 * 
+	 * @param bytes
+	 *            The bytes of the value
+	 * @return The hash of the value
+	 */
+	static int hash(byte[] bytes) {
+		int hash = FNV_OFFSET;
+		for (byte b : bytes) {
+			hash = (hash ^ (b & BYTE_MASK)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Encodes a value with the Java serialization.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The tag followed by the serialized value
+	 */
+	private static byte[] serialize(Serializable value) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(SERIALIZED);
+		try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+			output.writeObject(value);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("The value can not be serialized: " + value, e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a value encoded with the Java serialization.
+	 * 
+	 * @param bytes
+	 *            The tag followed by the serialized value
+	 * @return The value
+	 */
+	private static Object deserialize(byte[] bytes) {
+		ByteArrayInputStream input = new ByteArrayInputStream(bytes, TAG_SIZE, bytes.length - TAG_SIZE);
+		Object value;
+		try (ObjectInputStream objects = new ObjectInputStream(input)) {
+			value = objects.readObject();
+		} catch (IOException e) {
+			throw new IllegalStateException("The value can not be deserialized", e);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("The value can not be deserialized", e);
+		}
+		return value;
+	}
+}
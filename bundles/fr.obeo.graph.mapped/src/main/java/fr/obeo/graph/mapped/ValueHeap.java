@@ -0,0 +1,187 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An append-only heap of encoded values stored in a {@link MappedFile}. Each value is stored as its length
+ * followed by its bytes and is identified by its offset in the file, which is never zero. The values are
+ * aligned on 4 bytes.
+ * <p>
+ * A value can be overwritten in place by a value with an encoding of the same length, which is the case of
+ * all the values of the same primitive type. Otherwise the new value is appended and the space of the old one
+ * is not reclaimed.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ValueHeap {
+	/**
+	 * The magic number of the heaps.
+	 */
+	private static final long MAGIC = 0x4f47524856414c31L;
+
+	/**
+	 * The size of the header of the file.
+	 */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * The position of the magic number in the header.
+	 */
+	private static final int MAGIC_POSITION = 0;
+
+	/**
+	 * The position of the end of the heap in the header.
+	 */
+	private static final int END_POSITION = 8;
+
+	/**
+	 * The size of the length of a value.
+	 */
+	private static final int LENGTH_SIZE = 4;
+
+	/**
+	 * The mask aligning the values on 4 bytes.
+	 */
+	private static final long ALIGNMENT_MASK = ~3L;
+
+	/**
+	 * The file.
+	 */
+	private final MappedFile file;
+
+	/**
+	 * The constructor, it opens the heap or creates it if the file is empty.
+	 * 
+	 * @param file
+	 *            The file of the heap
+	 * @param log
+	 *            The log recording the modifications of the heap
+	 * @throws IOException
+	 *             If the file cannot be mapped or does not hold a heap
+	 */
+	ValueHeap(File file, WriteAheadLog log) throws IOException {
+		this.file = new MappedFile(file);
+		this.file.ensureCapacity(HEADER_SIZE);
+		long magic = this.file.getLong(MAGIC_POSITION);
+		if (magic == 0) {
+			this.file.putLong(MAGIC_POSITION, MAGIC);
+			this.file.putLong(END_POSITION, HEADER_SIZE);
+		} else if (magic != MAGIC) {
+			this.file.close();
+			throw new IOException("The file does not hold a value heap: " + file);
+		}
+		this.file.attach(log);
+	}
+
+	/**
+	 * Appends a value.
+	 * 
+	 * @param bytes
+	 *            The encoded value
+	 * @return The offset of the value
+	 * @throws IOException
+	 *             If the file cannot be grown
+	 */
+	long append(byte[] bytes) throws IOException {
+		long offset = this.file.getLong(END_POSITION);
+		long end = (offset + LENGTH_SIZE + bytes.length + LENGTH_SIZE - 1) & ALIGNMENT_MASK;
+		this.file.ensureCapacity(end);
+		this.file.putInt(offset, bytes.length);
+		this.file.put(offset + LENGTH_SIZE, bytes);
+		this.file.putLong(END_POSITION, end);
+		return offset;
+	}
+
+	/**
+	 * Stores a value in place of another one if their encodings have the same length, appends it otherwise.
+	 * 
+	 * @param offset
+	 *            The offset of the old value
+	 * @param bytes
+	 *            The new encoded value
+	 * @return The offset of the new value
+	 * @throws IOException
+	 *             If the file cannot be grown
+	 */
+	long replace(long offset, byte[] bytes) throws IOException {
+		long newOffset = offset;
+		if (this.file.getInt(offset) == bytes.length) {
+			this.file.put(offset + LENGTH_SIZE, bytes);
+		} else {
+			newOffset = this.append(bytes);
+		}
+		return newOffset;
+	}
+
+	/**
+	 * Reads a value.
+	 * 
+	 * @param offset
+	 *            The offset of the value
+	 * @return The encoded value
+	 */
+	byte[] read(long offset) {
+		byte[] bytes = new byte[this.file.getInt(offset)];
+		this.file.get(offset + LENGTH_SIZE, bytes);
+		return bytes;
+	}
+
+	/**
+	 * Indicates if the value at the given offset has the given encoding, without copying it.
+	 * 
+	 * @param offset
+	 *            The offset of the value
+	 * @param bytes
+	 *            The encoded value to compare with
+	 * @return <code>true</code> if the value has the given encoding, <code>false</code> otherwise
+	 */
+	boolean matches(long offset, byte[] bytes) {
+		boolean matches = this.file.getInt(offset) == bytes.length;
+		long position = offset + LENGTH_SIZE;
+		for (int i = 0; i < bytes.length && matches; i++) {
+			matches = this.file.getByte(position + i) == bytes[i];
+		}
+		return matches;
+	}
+
+	/**
+	 * Writes the modified pages of the heap to the disk and closes it.
+	 * 
+	 * @throws IOException
+	 *             If the file cannot be closed
+	 */
+	void close() throws IOException {
+		this.file.close();
+	}
+}
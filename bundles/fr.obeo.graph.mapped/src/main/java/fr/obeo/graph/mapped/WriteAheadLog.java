@@ -0,0 +1,565 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.mapped;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * The append-only write-ahead log of the mutations of a graph stored in {@link MappedFile}s.
+ * <p>
+ * Once a file is attached to the log, its modifications are not written in its mapped pages anymore but in
+ * private copies of the pages kept in the heap, and they are recorded in the log. Each mutation of the graph
+ * is appended to the log as a single entry holding the new bytes of all the ranges it has modified, protected
+ * by a checksum, so that a mutation is either entirely in the log or not at all. The mapped pages, which the
+ * operating system may write back to the disk at any time, only receive the modified pages during a
+ * checkpoint, once the log holding them is on the disk.
+ * </p>
+ * <p>
+ * The log is forced to the disk with group commit: a mutation appends its entry while the graph is locked
+ * and then waits for its entry to be on the disk without holding the lock. The first waiting thread forces
+ * the log for all the entries appended so far while the other ones wait, so that the mutations appended
+ * meanwhile share the next force instead of paying one each.
+ * </p>
+ * <p>
+ * A checkpoint copies the private pages in the mapped pages, forces all the files and empties the log. When
+ * the graph is opened again after a crash, the complete entries of the log are written again in the files,
+ * which brings them in the state of the last mutation on the disk.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class WriteAheadLog {
+	/**
+	 * The operation declaring the identifier used in the entries of the log for a file.
+	 */
+	private static final byte FILE = 1;
+
+	/**
+	 * The operation writing bytes in a file.
+	 */
+	private static final byte WRITE = 2;
+
+	/**
+	 * The size of the header of an entry: its length and its checksum.
+	 */
+	private static final int ENTRY_HEADER_SIZE = 8;
+
+	/**
+	 * The initial size of the buffer of an entry.
+	 */
+	private static final int BUFFER_SIZE = 1024;
+
+	/**
+	 * The size of the log above which a checkpoint should be done.
+	 */
+	private static final long CHECKPOINT_LOG_SIZE = 64L << 20;
+
+	/**
+	 * The size of the private pages above which a checkpoint should be done.
+	 */
+	private static final long CHECKPOINT_PAGES_SIZE = 32L << 20;
+
+	/**
+	 * The delay, in milliseconds, after which a checkpoint should be done if the log is not empty.
+	 */
+	private static final long CHECKPOINT_INTERVAL = 60000L;
+
+	/**
+	 * The file of the log.
+	 */
+	private final File file;
+
+	/**
+	 * The open file of the log.
+	 */
+	private final RandomAccessFile randomAccessFile;
+
+	/**
+	 * The channel of the log.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The attached files.
+	 */
+	private final Set<MappedFile> files = new LinkedHashSet<MappedFile>();
+
+	/**
+	 * The identifier of each attached file declared in the log since the last checkpoint.
+	 */
+	private final Map<MappedFile, Integer> declared = new HashMap<MappedFile, Integer>();
+
+	/**
+	 * The content of the entry of the current mutation.
+	 */
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(BUFFER_SIZE);
+
+	/**
+	 * The output writing in the entry of the current mutation.
+	 */
+	private final DataOutputStream entry = new DataOutputStream(this.buffer);
+
+	/**
+	 * The checksum of the entries.
+	 */
+	private final CRC32 checksum = new CRC32();
+
+	/**
+	 * Indicates if a mutation is in progress.
+	 */
+	private boolean active;
+
+	/**
+	 * The identifier of the next file declared in the log.
+	 */
+	private int nextId;
+
+	/**
+	 * The identifier of the first file declared by the current mutation.
+	 */
+	private int declaredBefore;
+
+	/**
+	 * The size of the private pages of the attached files.
+	 */
+	private long pagesSize;
+
+	/**
+	 * The time of the last checkpoint.
+	 */
+	private long lastCheckpoint;
+
+	/**
+	 * The sequence number of the end of the last entry appended, it grows with the size of each entry and is
+	 * never reset.
+	 */
+	private long written;
+
+	/**
+	 * The sequence number up to which the entries are on the disk.
+	 */
+	private long durable;
+
+	/**
+	 * The sequence number of the end of the log at the last checkpoint.
+	 */
+	private long checkpointed;
+
+	/**
+	 * Indicates if a thread is forcing the log.
+	 */
+	private boolean forcing;
+
+	/**
+	 * The constructor, it opens the log and empties it.
+	 * 
+	 * @param file
+	 *            The file of the log
+	 * @throws IOException
+	 *             If the log cannot be opened
+	 */
+	WriteAheadLog(File file) throws IOException {
+		this.file = file;
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		this.channel = this.randomAccessFile.getChannel();
+		this.channel.truncate(0);
+		this.channel.force(true);
+		this.lastCheckpoint = System.currentTimeMillis();
+	}
+
+	/**
+	 * Writes again the complete entries of the given log in the files of its directory and forces them. The
+	 * replay stops at the first entry which is incomplete or corrupted, which can only be the last one.
+	 * 
+	 * @param file
+	 *            The file of the log
+	 * @return The number of entries replayed
+	 * @throws IOException
+	 *             If the log cannot be read or the files cannot be written
+	 */
+	static int replay(File file) throws IOException {
+		int count = 0;
+		if (file.isFile()) {
+			Map<Integer, MappedFile> targets = new HashMap<Integer, MappedFile>();
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				long remaining = file.length();
+				byte[] payload = WriteAheadLog.readEntry(input, remaining);
+				while (payload != null) {
+					WriteAheadLog.apply(file.getParentFile(), payload, targets);
+					count++;
+					remaining -= ENTRY_HEADER_SIZE + payload.length;
+					payload = WriteAheadLog.readEntry(input, remaining);
+				}
+			} finally {
+				input.close();
+				for (MappedFile target : targets.values()) {
+					target.close();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the file of the log.
+	 * 
+	 * @return The file of the log
+	 */
+	File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Attaches a file to the log, its next modifications are recorded in the log.
+	 * 
+	 * @param mappedFile
+	 *            The file
+	 */
+	void attach(MappedFile mappedFile) {
+		this.files.add(mappedFile);
+	}
+
+	/**
+	 * Detaches a file from the log, its private pages must have been written by a checkpoint or discarded.
+	 * 
+	 * @param mappedFile
+	 *            The file
+	 */
+	void detach(MappedFile mappedFile) {
+		this.files.remove(mappedFile);
+		this.declared.remove(mappedFile);
+	}
+
+	/**
+	 * Starts a mutation. Only one mutation can be in progress at a time.
+	 */
+	void begin() {
+		if (this.active) {
+			throw new IllegalStateException("A mutation is already in progress");
+		}
+		this.active = true;
+		this.buffer.reset();
+		this.declaredBefore = this.nextId;
+	}
+
+	/**
+	 * Records the modification of a range of bytes of an attached file by the current mutation.
+	 * 
+	 * @param mappedFile
+	 *            The file
+	 * @param position
+	 *            The position of the first byte modified
+	 * @param bytes
+	 *            The array holding the new bytes
+	 * @param offset
+	 *            The offset of the new bytes in the array
+	 * @param length
+	 *            The number of bytes modified
+	 */
+	void write(MappedFile mappedFile, long position, byte[] bytes, int offset, int length) {
+		if (!this.active) {
+			throw new IllegalStateException("The file can only be modified by a mutation: "
+					+ mappedFile.getFile());
+		}
+		try {
+			Integer id = this.declared.get(mappedFile);
+			if (id == null) {
+				id = Integer.valueOf(this.nextId);
+				this.nextId++;
+				this.declared.put(mappedFile, id);
+				this.entry.writeByte(FILE);
+				this.entry.writeInt(id.intValue());
+				this.entry.writeUTF(mappedFile.getFile().getName());
+			}
+			this.entry.writeByte(WRITE);
+			this.entry.writeInt(id.intValue());
+			this.entry.writeLong(position);
+			this.entry.writeInt(length);
+			this.entry.write(bytes, offset, length);
+		} catch (IOException e) {
+			// A DataOutputStream writing in a ByteArrayOutputStream never fails
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Counts a new private page of an attached file.
+	 * 
+	 * @param size
+	 *            The size of the page
+	 */
+	void pageCopied(int size) {
+		this.pagesSize += size;
+	}
+
+	/**
+	 * Ends the current mutation and appends its entry to the log, without waiting for the entry to be on the
+	 * disk.
+	 * 
+	 * @return The sequence number to wait for with {@link #awaitDurable(long)} before acknowledging the
+	 *         mutation
+	 * @throws IOException
+	 *             If the entry cannot be appended, the private pages modified by the mutation are not in the
+	 *             log anymore and must be discarded
+	 */
+	long commit() throws IOException {
+		this.active = false;
+		long sequence;
+		if (this.buffer.size() == 0) {
+			sequence = 0;
+		} else {
+			byte[] payload = this.buffer.toByteArray();
+			this.checksum.reset();
+			this.checksum.update(payload, 0, payload.length);
+			ByteBuffer bytes = ByteBuffer.allocate(ENTRY_HEADER_SIZE + payload.length);
+			bytes.putInt(payload.length);
+			bytes.putInt((int)this.checksum.getValue());
+			bytes.put(payload);
+			bytes.flip();
+			while (bytes.hasRemaining()) {
+				this.channel.write(bytes);
+			}
+			synchronized (this) {
+				this.written += bytes.limit();
+				sequence = this.written;
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * Ends the current mutation without appending its entry to the log.
+	 * 
+	 * @return <code>true</code> if the mutation had modified files, whose private pages must then be
+	 *         discarded, <code>false</code> otherwise
+	 */
+	boolean rollback() {
+		this.active = false;
+		boolean modified = this.buffer.size() > 0;
+		this.nextId = this.declaredBefore;
+		Iterator<Integer> ids = this.declared.values().iterator();
+		while (ids.hasNext()) {
+			if (ids.next().intValue() >= this.declaredBefore) {
+				ids.remove();
+			}
+		}
+		this.buffer.reset();
+		return modified;
+	}
+
+	/**
+	 * Waits until the log is on the disk up to the given sequence number. If no other thread is forcing the
+	 * log, the calling thread forces it for all the entries appended so far, otherwise it waits for the force
+	 * in progress and checks again.
+	 * 
+	 * @param sequence
+	 *            The sequence number returned by {@link #commit()}
+	 * @throws IOException
+	 *             If the log cannot be forced
+	 */
+	void awaitDurable(long sequence) throws IOException {
+		boolean interrupted = false;
+		boolean leader = false;
+		long target = 0;
+		synchronized (this) {
+			while (this.durable < sequence && this.forcing) {
+				try {
+					this.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (this.durable < sequence) {
+				this.forcing = true;
+				leader = true;
+				target = this.written;
+			}
+		}
+		if (leader) {
+			boolean forced = false;
+			try {
+				this.channel.force(false);
+				forced = true;
+			} finally {
+				synchronized (this) {
+					this.forcing = false;
+					if (forced) {
+						this.durable = target;
+					}
+					this.notifyAll();
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Indicates if a checkpoint should be done, because the log or the private pages are too large or
+	 * because the last checkpoint is too old.
+	 * 
+	 * @return <code>true</code> if a checkpoint should be done, <code>false</code> otherwise
+	 */
+	synchronized boolean needsCheckpoint() {
+		long logSize = this.written - this.checkpointed;
+		return logSize > CHECKPOINT_LOG_SIZE || this.pagesSize > CHECKPOINT_PAGES_SIZE || logSize > 0
+				&& System.currentTimeMillis() - this.lastCheckpoint > CHECKPOINT_INTERVAL;
+	}
+
+	/**
+	 * Makes the log durable, writes the private pages of the attached files in their mapped pages, forces
+	 * the files and empties the log. No mutation can be in progress.
+	 * 
+	 * @throws IOException
+	 *             If the log or the files cannot be forced
+	 */
+	void checkpoint() throws IOException {
+		long sequence;
+		synchronized (this) {
+			sequence = this.written;
+		}
+		this.awaitDurable(sequence);
+		List<MappedFile> attached = new ArrayList<MappedFile>(this.files);
+		for (MappedFile mappedFile : attached) {
+			mappedFile.writePages();
+		}
+		synchronized (this) {
+			this.channel.truncate(0);
+			this.channel.force(true);
+			this.checkpointed = this.written;
+			this.pagesSize = 0;
+			this.lastCheckpoint = System.currentTimeMillis();
+		}
+		this.declared.clear();
+		this.nextId = 0;
+	}
+
+	/**
+	 * Closes the log without doing a checkpoint.
+	 * 
+	 * @throws IOException
+	 *             If the log cannot be closed
+	 */
+	void close() throws IOException {
+		this.randomAccessFile.close();
+	}
+
+	/**
+	 * Reads the next entry of a log.
+	 * 
+	 * @param input
+	 *            The input reading the log
+	 * @param remaining
+	 *            The number of bytes remaining in the log
+	 * @return The content of the entry or <code>null</code> if there is no complete and valid entry
+	 * @throws IOException
+	 *             If the log cannot be read
+	 */
+	private static byte[] readEntry(DataInputStream input, long remaining) throws IOException {
+		byte[] payload = null;
+		if (remaining >= ENTRY_HEADER_SIZE) {
+			int length = input.readInt();
+			int expected = input.readInt();
+			if (length >= 0 && length <= remaining - ENTRY_HEADER_SIZE) {
+				byte[] bytes = new byte[length];
+				input.readFully(bytes);
+				CRC32 checksum = new CRC32();
+				checksum.update(bytes, 0, bytes.length);
+				if ((int)checksum.getValue() == expected) {
+					payload = bytes;
+				}
+			}
+		}
+		return payload;
+	}
+
+	/**
+	 * Writes the modifications of an entry in the files.
+	 * 
+	 * @param directory
+	 *            The directory of the files
+	 * @param payload
+	 *            The content of the entry
+	 * @param targets
+	 *            The files opened so far by their identifier in the log
+	 * @throws IOException
+	 *             If the entry is malformed or the files cannot be written
+	 */
+	private static void apply(File directory, byte[] payload, Map<Integer, MappedFile> targets)
+			throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+		while (input.available() > 0) {
+			byte operation = input.readByte();
+			int id = input.readInt();
+			if (operation == FILE) {
+				File target = new File(directory, input.readUTF());
+				MappedFile previous = targets.get(Integer.valueOf(id));
+				if (previous == null || !previous.getFile().equals(target)) {
+					if (previous != null) {
+						previous.close();
+					}
+					targets.put(Integer.valueOf(id), new MappedFile(target));
+				}
+			} else if (operation == WRITE) {
+				MappedFile target = targets.get(Integer.valueOf(id));
+				long position = input.readLong();
+				byte[] bytes = new byte[input.readInt()];
+				input.readFully(bytes);
+				if (target == null) {
+					throw new IOException("The log writes in an undeclared file: " + id);
+				}
+				target.ensureCapacity(position + bytes.length);
+				target.put(position, bytes);
+			} else {
+				throw new IOException("The log holds an unknown operation: " + operation);
+			}
+		}
+	}
+}
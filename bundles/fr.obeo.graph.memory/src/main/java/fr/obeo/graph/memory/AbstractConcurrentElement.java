@@ -0,0 +1,184 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.IElement;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Base class of the vertices and edges of the concurrent graph. The elements are the records of the graph
+ * themselves, there is a single object per element, and their properties are stored in a concurrent map.
+ * <p>
+ * The removal of an element is a flag set once with a compare-and-set, the removed elements stay readable
+ * but can not be modified anymore.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractConcurrentElement implements IElement {
+	/**
+	 * The initial capacity of the properties.
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * The graph.
+	 */
+	protected final ConcurrentGraph graph;
+
+	/**
+	 * The identifier of the element.
+	 */
+	protected final Object id;
+
+	/**
+	 * The properties of the element.
+	 */
+	private final ConcurrentMap<String, Object> properties = new ConcurrentHashMap<String, Object>(
+			INITIAL_CAPACITY);
+
+	/**
+	 * Indicates if the element has been removed.
+	 */
+	private final AtomicBoolean removed = new AtomicBoolean();
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param id
+	 *            The identifier of the element
+	 */
+	AbstractConcurrentElement(ConcurrentGraph graph, Object id) {
+		this.graph = graph;
+		this.id = id;
+	}
+
+	/**
+	 * Flags the element as removed.
+	 * 
+	 * @return <code>true</code> if the element has been flagged by this call, <code>false</code> if it was
+	 *         already removed
+	 */
+	boolean markRemoved() {
+		return this.removed.compareAndSet(false, true);
+	}
+
+	/**
+	 * Indicates if the element has been removed.
+	 * 
+	 * @return <code>true</code> if the element has been removed, <code>false</code> otherwise
+	 */
+	boolean isRemoved() {
+		return this.removed.get();
+	}
+
+	/**
+	 * Returns the properties of the element.
+	 * 
+	 * @return The properties of the element
+	 */
+	ConcurrentMap<String, Object> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getId()
+	 */
+	@Override
+	public Object getId() {
+		return this.id;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String key) {
+		PropertyStore.validate(key);
+		return this.properties.get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getPropertyKeys()
+	 */
+	@Override
+	public Set<String> getPropertyKeys() {
+		return new HashSet<String>(this.properties.keySet());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#setProperty(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void setProperty(String key, Object value) {
+		PropertyStore.validate(key);
+		if (value == null) {
+			throw new IllegalArgumentException("Property value can not be null");
+		}
+		this.checkAlive();
+		this.properties.put(key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#removeProperty(java.lang.String)
+	 */
+	@Override
+	public Object removeProperty(String key) {
+		PropertyStore.validate(key);
+		this.checkAlive();
+		return this.properties.remove(key);
+	}
+
+	/**
+	 * Checks that the element has not been removed.
+	 */
+	protected void checkAlive() {
+		if (this.removed.get()) {
+			throw new IllegalStateException("The element has been removed: " + this);
+		}
+	}
+}
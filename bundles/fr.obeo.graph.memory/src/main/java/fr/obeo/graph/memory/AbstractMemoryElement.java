@@ -0,0 +1,317 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.ISymbol;
+import fr.obeo.graph.api.ISymbolElement;
+import fr.obeo.graph.api.ITypedElement;
+
+import java.util.Set;
+
+/**
+ * Base class of the vertices and edges of the in-memory graph. Elements are lightweight views over the
+ * tables of the graph: they only hold the graph, the slot of the element and the generation of the slot,
+ * they are created on demand and two views of the same element are equal.
+ * <p>
+ * The slots of the removed elements are reused by the elements added once the graph has been compacted. The
+ * generation of a slot is incremented each time its element is removed, the views of a removed element thus
+ * throw an {@link IllegalStateException} instead of reaching the element which reuses its slot.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractMemoryElement implements ITypedElement, ISymbolElement {
+	/**
+	 * The graph.
+	 */
+	protected final MemoryGraph graph;
+
+	/**
+	 * The slot of the element in the tables of the graph.
+	 */
+	protected final int slot;
+
+	/**
+	 * The generation of the slot when the view has been created.
+	 */
+	protected final int generation;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param slot
+	 *            The slot of the element in the tables of the graph
+	 * @param generation
+	 *            The current generation of the slot
+	 */
+	AbstractMemoryElement(MemoryGraph graph, int slot, int generation) {
+		this.graph = graph;
+		this.slot = slot;
+		this.generation = generation;
+	}
+
+	/**
+	 * Indicates if the element has not been removed from the graph.
+	 * 
+	 * @return <code>true</code> if the element is still in the graph, <code>false</code> otherwise
+	 */
+	abstract boolean isAlive();
+
+	/**
+	 * Checks that the element has not been removed from the graph.
+	 */
+	void checkAlive() {
+		if (!this.isAlive()) {
+			throw new IllegalStateException("The element has been removed from the graph");
+		}
+	}
+
+	/**
+	 * Returns the properties of the elements of the same kind.
+	 * 
+	 * @return The properties of the elements of the same kind
+	 */
+	protected abstract PropertyStore getStore();
+
+	/**
+	 * Returns the slot of the element in the tables of the graph.
+	 * 
+	 * @return The slot of the element
+	 */
+	int getSlot() {
+		return this.slot;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String key) {
+		this.checkAlive();
+		return this.getStore().get(this.slot, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getPropertyKeys()
+	 */
+	@Override
+	public Set<String> getPropertyKeys() {
+		this.checkAlive();
+		return this.getStore().keys(this.slot);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#setProperty(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void setProperty(String key, Object value) {
+		this.checkAlive();
+		this.getStore().put(this.slot, key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#removeProperty(java.lang.String)
+	 */
+	@Override
+	public Object removeProperty(String key) {
+		this.checkAlive();
+		return this.getStore().remove(this.slot, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISymbolElement#getProperty(fr.obeo.graph.api.ISymbol)
+	 */
+	@Override
+	public Object getProperty(ISymbol key) {
+		this.checkAlive();
+		return this.getStore().get(this.slot, this.graph.symbolId(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISymbolElement#setProperty(fr.obeo.graph.api.ISymbol, java.lang.Object)
+	 */
+	@Override
+	public void setProperty(ISymbol key, Object value) {
+		this.checkAlive();
+		int keyId = this.graph.symbolId(key);
+		PropertyStore.validate(key.getName());
+		this.getStore().put(this.slot, keyId, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISymbolElement#removeProperty(fr.obeo.graph.api.ISymbol)
+	 */
+	@Override
+	public Object removeProperty(ISymbol key) {
+		this.checkAlive();
+		return this.getStore().remove(this.slot, this.graph.symbolId(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#hasProperty(java.lang.String)
+	 */
+	@Override
+	public boolean hasProperty(String key) {
+		this.checkAlive();
+		return this.getStore().has(this.slot, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#getInt(java.lang.String)
+	 */
+	@Override
+	public int getInt(String key) {
+		this.checkAlive();
+		return this.getStore().getInt(this.slot, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#getLong(java.lang.String)
+	 */
+	@Override
+	public long getLong(String key) {
+		this.checkAlive();
+		return this.getStore().getLong(this.slot, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#getDouble(java.lang.String)
+	 */
+	@Override
+	public double getDouble(String key) {
+		this.checkAlive();
+		return this.getStore().getDouble(this.slot, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#getBoolean(java.lang.String)
+	 */
+	@Override
+	public boolean getBoolean(String key) {
+		this.checkAlive();
+		return this.getStore().getBoolean(this.slot, key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#setInt(java.lang.String, int)
+	 */
+	@Override
+	public void setInt(String key, int value) {
+		this.checkAlive();
+		this.getStore().setInt(this.slot, key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#setLong(java.lang.String, long)
+	 */
+	@Override
+	public void setLong(String key, long value) {
+		this.checkAlive();
+		this.getStore().setLong(this.slot, key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#setDouble(java.lang.String, double)
+	 */
+	@Override
+	public void setDouble(String key, double value) {
+		this.checkAlive();
+		this.getStore().setDouble(this.slot, key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITypedElement#setBoolean(java.lang.String, boolean)
+	 */
+	@Override
+	public void setBoolean(String key, boolean value) {
+		this.checkAlive();
+		this.getStore().setBoolean(this.slot, key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.slot;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		boolean equal = false;
+		if (obj != null && this.getClass().equals(obj.getClass())) {
+			AbstractMemoryElement element = (AbstractMemoryElement)obj;
+			equal = this.graph == element.graph && this.slot == element.slot
+					&& this.generation == element.generation;
+		}
+		return equal;
+	}
+}
@@ -0,0 +1,224 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.GraphOperation;
+import fr.obeo.graph.api.IGraphMonitor;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class of the queries of the in-memory graph, it accumulates the property filters and the limit of the
+ * query. While the graph has a monitor, the executions of the queries report the number of candidates they
+ * scan and whether an index answers their filters.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractMemoryQuery {
+	/**
+	 * The graph.
+	 */
+	protected final MemoryGraph graph;
+
+	/**
+	 * The property filters.
+	 */
+	protected final List<PropertyFilter> filters = new ArrayList<PropertyFilter>();
+
+	/**
+	 * The maximum number of elements to return.
+	 */
+	protected long limit = Long.MAX_VALUE;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	AbstractMemoryQuery(MemoryGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Adds the given filter to the query.
+	 * 
+	 * @param filter
+	 *            The filter
+	 */
+	protected void addFilter(PropertyFilter filter) {
+		PropertyStore.validate(filter.getKey());
+		this.filters.add(filter);
+	}
+
+	/**
+	 * Sets the maximum number of elements to return.
+	 * 
+	 * @param max
+	 *            The maximum number of elements to return
+	 */
+	protected void setLimit(int max) {
+		if (max < 0) {
+			throw new IllegalArgumentException("The limit of a query can not be negative: " + max);
+		}
+		this.limit = max;
+	}
+
+	/**
+	 * Opens a cursor over the candidates of the given plan, counting them if the graph is monitored.
+	 * 
+	 * @param plan
+	 *            The plan
+	 * @return A cursor over the candidates of the plan
+	 */
+	protected ISlotCursor open(QueryPlan plan) {
+		ISlotCursor cursor = plan.getAccess().open();
+		if (this.graph.getMonitor() != null) {
+			cursor = new CountingCursor(cursor);
+		}
+		return cursor;
+	}
+
+	/**
+	 * Returns an iterator reporting the scan of the given iterator if its cursor has been opened by
+	 * {@link #open(QueryPlan)} for a monitored graph, the given iterator otherwise.
+	 * 
+	 * @param <T>
+	 *            The kind of element
+	 * @param operation
+	 *            The operation executing the query
+	 * @param index
+	 *            The name of the indexes which may answer the filters of the plan
+	 * @param plan
+	 *            The plan
+	 * @param cursor
+	 *            The cursor over the candidates of the plan
+	 * @param iterator
+	 *            The iterator reading the cursor
+	 * @return The iterator to return
+	 */
+	protected <T> AbstractLazyIterator<T> monitor(GraphOperation operation, String index, QueryPlan plan,
+			ISlotCursor cursor, AbstractLazyIterator<T> iterator) {
+		AbstractLazyIterator<T> monitoredIterator = iterator;
+		IGraphMonitor monitor = this.graph.getMonitor();
+		if (monitor != null && cursor instanceof CountingCursor) {
+			this.recordLookup(monitor, index, plan);
+			CountingCursor countingCursor = (CountingCursor)cursor;
+			monitoredIterator = new MonitoredIterator<T>(monitor, operation, countingCursor, iterator);
+		}
+		return monitoredIterator;
+	}
+
+	/**
+	 * Applies the given procedure to the slots of the elements accepted by the given plan, up to its limit,
+	 * without creating the elements. The scan is reported to the monitor of the graph, if any.
+	 * 
+	 * @param plan
+	 *            The plan
+	 * @param vertices
+	 *            <code>true</code> if the plan reads vertices, <code>false</code> if it reads edges
+	 * @param operation
+	 *            The operation executing the query
+	 * @param index
+	 *            The name of the indexes which may answer the filters of the plan
+	 * @param procedure
+	 *            The procedure to apply to the accepted slots
+	 * @return The number of accepted elements
+	 */
+	protected long scan(QueryPlan plan, boolean vertices, GraphOperation operation, String index,
+			ISlotProcedure procedure) {
+		PropertyStore store;
+		if (vertices) {
+			store = this.graph.getVertexStore();
+		} else {
+			store = this.graph.getEdgeStore();
+		}
+		ISlotCursor cursor = plan.getAccess().open();
+		PropertyMatcher matcher = plan.createMatcher(this.graph.getSymbols());
+		long scanned = 0;
+		long accepted = 0;
+		int slot = cursor.next();
+		while (slot != ISlotCursor.END && accepted < plan.getLimit()) {
+			scanned++;
+			boolean alive = vertices && this.graph.isVertexAlive(slot) || !vertices
+					&& this.graph.isEdgeAlive(slot);
+			if (alive && matcher.matches(store, slot)) {
+				procedure.apply(slot);
+				accepted++;
+			}
+			slot = cursor.next();
+		}
+		this.recordScan(operation, index, plan, scanned, accepted);
+		return accepted;
+	}
+
+	/**
+	 * Reports the execution of the given plan to the monitor of the graph, if any.
+	 * 
+	 * @param operation
+	 *            The operation executing the query
+	 * @param index
+	 *            The name of the indexes which may answer the filters of the plan
+	 * @param plan
+	 *            The plan
+	 * @param scanned
+	 *            The number of candidates read, zero if the query has been answered without reading any
+	 * @param returned
+	 *            The number of elements accepted
+	 */
+	protected void recordScan(GraphOperation operation, String index, QueryPlan plan, long scanned,
+			long returned) {
+		IGraphMonitor monitor = this.graph.getMonitor();
+		if (monitor != null) {
+			this.recordLookup(monitor, index, plan);
+			monitor.recordScan(operation, scanned, returned);
+		}
+	}
+
+	/**
+	 * Records whether an index answers the filters of the given plan, if it has filters.
+	 * 
+	 * @param monitor
+	 *            The monitor
+	 * @param index
+	 *            The name of the indexes which may answer the filters of the plan
+	 * @param plan
+	 *            The plan
+	 */
+	protected void recordLookup(IGraphMonitor monitor, String index, QueryPlan plan) {
+		if (plan.hasFilters()) {
+			monitor.recordLookup(index, plan.usesIndex());
+		}
+	}
+}
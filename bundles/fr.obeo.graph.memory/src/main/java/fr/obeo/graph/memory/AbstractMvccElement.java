@@ -0,0 +1,187 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.IElement;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Base class of the vertices and edges of the multi-version graph. Elements are lightweight views which only
+ * hold their graph or transaction and their identifier, each read looks the element up in the current
+ * snapshot of the view and each modification is applied to the view.
+ * <p>
+ * Reading or modifying an element which has been removed from the view throws an
+ * {@link IllegalStateException}.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractMvccElement implements IElement {
+	/**
+	 * The graph or the transaction of the element.
+	 */
+	protected final AbstractMvccGraph scope;
+
+	/**
+	 * The identifier of the element.
+	 */
+	protected final Object id;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param scope
+	 *            The graph or the transaction of the element
+	 * @param id
+	 *            The identifier of the element
+	 */
+	AbstractMvccElement(AbstractMvccGraph scope, Object id) {
+		this.scope = scope;
+		this.id = id;
+	}
+
+	/**
+	 * Returns the properties of the element in the current snapshot of the view.
+	 * 
+	 * @return The properties of the element
+	 */
+	protected abstract PersistentMap<String, Object> getProperties();
+
+	/**
+	 * Returns the kind of the modifications of the properties of the element.
+	 * 
+	 * @return The kind of the modifications of the properties
+	 */
+	protected abstract MvccMutation.Kind getPropertyMutation();
+
+	/**
+	 * Returns the graph or the transaction of the element.
+	 * 
+	 * @return The graph or the transaction of the element
+	 */
+	AbstractMvccGraph getScope() {
+		return this.scope;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getId()
+	 */
+	@Override
+	public Object getId() {
+		return this.id;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String key) {
+		PropertyStore.validate(key);
+		return this.getProperties().get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getPropertyKeys()
+	 */
+	@Override
+	public Set<String> getPropertyKeys() {
+		PersistentMap<String, Object> properties = this.getProperties();
+		Set<String> keys = new HashSet<String>(properties.size() * 2);
+		Iterator<String> iterator = properties.keys();
+		while (iterator.hasNext()) {
+			keys.add(iterator.next());
+		}
+		return keys;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#setProperty(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void setProperty(String key, Object value) {
+		PropertyStore.validate(key);
+		if (value == null) {
+			throw new IllegalArgumentException("Property value can not be null");
+		}
+		this.getProperties();
+		this.scope.apply(MvccMutation.setProperty(this.getPropertyMutation(), this.id, key, value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#removeProperty(java.lang.String)
+	 */
+	@Override
+	public Object removeProperty(String key) {
+		PropertyStore.validate(key);
+		Object previous = this.getProperties().get(key);
+		if (previous != null) {
+			this.scope.apply(MvccMutation.setProperty(this.getPropertyMutation(), this.id, key, null));
+		}
+		return previous;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.id.hashCode();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		boolean equal = false;
+		if (obj != null && this.getClass().equals(obj.getClass())) {
+			AbstractMvccElement element = (AbstractMvccElement)obj;
+			equal = this.scope == element.scope && this.id.equals(element.id);
+		}
+		return equal;
+	}
+}
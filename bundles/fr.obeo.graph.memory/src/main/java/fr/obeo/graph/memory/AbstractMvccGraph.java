@@ -0,0 +1,247 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IGraphQuery;
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * Base class of the multi-version graph and of its transactions. Both are views of a {@link GraphSnapshot}:
+ * the reads are answered by the current snapshot of the view and the modifications are applied as
+ * {@link MvccMutation}s, the subclasses decide which snapshot is read and how the modifications are
+ * published.
+ * <p>
+ * The elements returned by a view only belong to this view, they read its current snapshot each time they
+ * are used.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractMvccGraph implements IGraph {
+	/**
+	 * The message of the exception thrown for null identifiers.
+	 */
+	private static final String NULL_ID = "Element identifiers can not be null";
+
+	/**
+	 * Returns the current snapshot of the view.
+	 * 
+	 * @return The current snapshot of the view
+	 */
+	protected abstract GraphSnapshot view();
+
+	/**
+	 * Applies the given modification to the view.
+	 * 
+	 * @param mutation
+	 *            The modification
+	 */
+	protected abstract void apply(MvccMutation mutation);
+
+	/**
+	 * Generates an identifier which is not used yet.
+	 * 
+	 * @return A new identifier
+	 */
+	protected abstract Object generateId();
+
+	/**
+	 * Returns the pool of the labels of the edges, shared by the graph and its transactions.
+	 * 
+	 * @return The pool of the labels of the edges
+	 */
+	protected abstract StringPool getLabels();
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex addVertex(Object id) {
+		Object vertexId = id;
+		if (vertexId == null) {
+			vertexId = this.generateId();
+		}
+		this.apply(MvccMutation.create(MvccMutation.Kind.ADD_VERTEX, vertexId));
+		return new MvccVertex(this, vertexId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex getVertex(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IVertex vertex = null;
+		if (this.view().getVertex(id) != null) {
+			vertex = new MvccVertex(this, id);
+		}
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeVertex(fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public void removeVertex(IVertex vertex) {
+		Object id = this.vertexId(vertex);
+		if (this.view().getVertex(id) != null) {
+			this.apply(MvccMutation.create(MvccMutation.Kind.REMOVE_VERTEX, id));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices() {
+		return this.query().vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(String key, Object value) {
+		return this.query().has(key, value).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addEdge(java.lang.Object, fr.obeo.graph.api.IVertex,
+	 *      fr.obeo.graph.api.IVertex, java.lang.String)
+	 */
+	@Override
+	public IEdge addEdge(Object id, IVertex outVertex, IVertex inVertex, String label) {
+		if (label == null) {
+			throw new IllegalArgumentException("Edge label can not be null");
+		}
+		Object outId = this.vertexId(outVertex);
+		Object inId = this.vertexId(inVertex);
+		Object edgeId = id;
+		if (edgeId == null) {
+			edgeId = this.generateId();
+		}
+		this.apply(MvccMutation.addEdge(edgeId, outId, inId, this.getLabels().intern(label)));
+		return new MvccEdge(this, edgeId);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdge(java.lang.Object)
+	 */
+	@Override
+	public IEdge getEdge(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IEdge edge = null;
+		if (this.view().getEdge(id) != null) {
+			edge = new MvccEdge(this, id);
+		}
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeEdge(fr.obeo.graph.api.IEdge)
+	 */
+	@Override
+	public void removeEdge(IEdge edge) {
+		if (!(edge instanceof MvccEdge) || ((MvccEdge)edge).getScope() != this) {
+			throw new IllegalArgumentException("The edge does not belong to this graph: " + edge);
+		}
+		Object id = ((MvccEdge)edge).getId();
+		if (this.view().getEdge(id) != null) {
+			this.apply(MvccMutation.create(MvccMutation.Kind.REMOVE_EDGE, id));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges() {
+		return this.query().edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(String key, Object value) {
+		return this.query().has(key, value).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#query()
+	 */
+	@Override
+	public IGraphQuery query() {
+		return new MvccGraphQuery(this);
+	}
+
+	/**
+	 * Returns the identifier of a vertex of this view.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The identifier of the vertex
+	 */
+	private Object vertexId(IVertex vertex) {
+		if (!(vertex instanceof MvccVertex) || ((MvccVertex)vertex).getScope() != this) {
+			throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertex);
+		}
+		return ((MvccVertex)vertex).getId();
+	}
+}
@@ -0,0 +1,222 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.IElement;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Base class of the vertices and edges of the striped graph. The elements are the records of the graph
+ * themselves, their mutable state is guarded by the lock of their stripe: the stripe of the identifier of a
+ * vertex, the stripe of the out vertex of an edge.
+ * <p>
+ * The removed elements stay readable but can not be modified anymore.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AbstractStripedElement implements IElement {
+	/**
+	 * The graph.
+	 */
+	protected final StripedGraph graph;
+
+	/**
+	 * The identifier of the element.
+	 */
+	protected final Object id;
+
+	/**
+	 * The index of the stripe of the element.
+	 */
+	protected final int stripe;
+
+	/**
+	 * The properties of the element.
+	 */
+	private final Map<String, Object> properties = new HashMap<String, Object>();
+
+	/**
+	 * Indicates if the element has been removed.
+	 */
+	private volatile boolean removed;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param id
+	 *            The identifier of the element
+	 * @param stripe
+	 *            The index of the stripe of the element
+	 */
+	AbstractStripedElement(StripedGraph graph, Object id, int stripe) {
+		this.graph = graph;
+		this.id = id;
+		this.stripe = stripe;
+	}
+
+	/**
+	 * Returns the index of the stripe of the element.
+	 * 
+	 * @return The index of the stripe of the element
+	 */
+	int getStripe() {
+		return this.stripe;
+	}
+
+	/**
+	 * Returns the properties of the element, the lock of its stripe must be held.
+	 * 
+	 * @return The properties of the element
+	 */
+	Map<String, Object> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * Flags the element as removed, the lock of its stripe must be held.
+	 */
+	void markRemoved() {
+		this.removed = true;
+	}
+
+	/**
+	 * Indicates if the element has been removed.
+	 * 
+	 * @return <code>true</code> if the element has been removed, <code>false</code> otherwise
+	 */
+	boolean isRemoved() {
+		return this.removed;
+	}
+
+	/**
+	 * Checks that the element has not been removed.
+	 */
+	void checkAlive() {
+		if (this.removed) {
+			throw new IllegalStateException("The element has been removed: " + this);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getId()
+	 */
+	@Override
+	public Object getId() {
+		return this.id;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getProperty(java.lang.String)
+	 */
+	@Override
+	public Object getProperty(String key) {
+		PropertyStore.validate(key);
+		Object value;
+		Lock lock = this.graph.getStripe(this.stripe).getLock().readLock();
+		lock.lock();
+		try {
+			value = this.properties.get(key);
+		} finally {
+			lock.unlock();
+		}
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getPropertyKeys()
+	 */
+	@Override
+	public Set<String> getPropertyKeys() {
+		Set<String> keys;
+		Lock lock = this.graph.getStripe(this.stripe).getLock().readLock();
+		lock.lock();
+		try {
+			keys = new HashSet<String>(this.properties.keySet());
+		} finally {
+			lock.unlock();
+		}
+		return keys;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#setProperty(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public void setProperty(String key, Object value) {
+		PropertyStore.validate(key);
+		if (value == null) {
+			throw new IllegalArgumentException("Property value can not be null");
+		}
+		Lock lock = this.graph.getStripe(this.stripe).getLock().writeLock();
+		lock.lock();
+		try {
+			this.checkAlive();
+			this.properties.put(key, value);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#removeProperty(java.lang.String)
+	 */
+	@Override
+	public Object removeProperty(String key) {
+		PropertyStore.validate(key);
+		Object previous;
+		Lock lock = this.graph.getStripe(this.stripe).getLock().writeLock();
+		lock.lock();
+		try {
+			this.checkAlive();
+			previous = this.properties.remove(key);
+		} finally {
+			lock.unlock();
+		}
+		return previous;
+	}
+}
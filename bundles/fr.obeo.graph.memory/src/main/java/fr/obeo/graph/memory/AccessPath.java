@@ -0,0 +1,544 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The way a query plan reads its candidate elements: a scan of all the slots, a lookup or a range scan in a
+ * key index, a read of the adjacency of a vertex or of its buckets in a vertex-centric index. An access
+ * path knows the estimated number of candidates it returns so that the planner can pick the cheapest one.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class AccessPath {
+	/**
+	 * The value returned by {@link #count()} when the number of elements can not be computed from the access
+	 * path.
+	 */
+	static final long UNKNOWN = -1;
+
+	/**
+	 * The filter answered by the access path, <code>null</code> if it does not answer any filter.
+	 */
+	private final PropertyFilter filter;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param filter
+	 *            The filter answered by the access path, <code>null</code> if it does not answer any filter
+	 */
+	AccessPath(PropertyFilter filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Returns the filter answered by the access path. The candidates of the access path must still be checked
+	 * against this filter since the cursors of the indexes are only weakly consistent.
+	 * 
+	 * @return The filter answered by the access path, <code>null</code> if it does not answer any filter
+	 */
+	PropertyFilter getFilter() {
+		return this.filter;
+	}
+
+	/**
+	 * Returns the estimated number of candidates returned by the access path.
+	 * 
+	 * @return The estimated number of candidates returned by the access path
+	 */
+	abstract long estimate();
+
+	/**
+	 * Indicates if the access path scans all the slots, the slots can then be split in ranges.
+	 * 
+	 * @return <code>true</code> if the access path scans all the slots, <code>false</code> otherwise
+	 */
+	boolean isScan() {
+		return false;
+	}
+
+	/**
+	 * Returns the exact number of elements accepted by the filter answered by the access path, computed
+	 * without reading the elements.
+	 * 
+	 * @return The exact number of elements accepted by the filter or {@link #UNKNOWN}
+	 */
+	long count() {
+		return UNKNOWN;
+	}
+
+	/**
+	 * Opens a new cursor over the candidates.
+	 * 
+	 * @return A new cursor over the candidates
+	 */
+	abstract ISlotCursor open();
+
+	/**
+	 * Creates an access path returning no element, used when the limit of a query is zero.
+	 * 
+	 * @return An access path returning no element
+	 */
+	static AccessPath empty() {
+		return new AccessPath(null) {
+			@Override
+			long estimate() {
+				return 0;
+			}
+
+			@Override
+			ISlotCursor open() {
+				return KeyIndex.EMPTY;
+			}
+
+			@Override
+			public String toString() {
+				return "empty";
+			}
+		};
+	}
+
+	/**
+	 * Creates an access path scanning all the vertex slots or all the edge slots of the graph.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertices
+	 *            <code>true</code> to scan the vertex slots, <code>false</code> to scan the edge slots
+	 * @return An access path scanning all the slots
+	 */
+	static AccessPath scan(final MemoryGraph graph, final boolean vertices) {
+		return new AccessPath(null) {
+			@Override
+			long estimate() {
+				long estimate;
+				if (vertices) {
+					estimate = graph.countVertices();
+				} else {
+					estimate = graph.countEdges();
+				}
+				return estimate;
+			}
+
+			@Override
+			boolean isScan() {
+				return true;
+			}
+
+			@Override
+			ISlotCursor open() {
+				return new SlotRangeCursor(graph, vertices);
+			}
+
+			@Override
+			public String toString() {
+				String slots = "edge";
+				if (vertices) {
+					slots = "vertex";
+				}
+				return "scan of all the " + slots + " slots";
+			}
+		};
+	}
+
+	/**
+	 * Creates an access path looking up the value of an equality filter in a key index.
+	 * 
+	 * @param index
+	 *            The index of the key of the filter
+	 * @param filter
+	 *            The equality filter
+	 * @return An access path looking up the value in the index
+	 */
+	static AccessPath lookup(final KeyIndex index, PropertyFilter filter) {
+		final Object value = filter.getValue();
+		final long estimate = index.count(value);
+		return new AccessPath(filter) {
+			@Override
+			long estimate() {
+				return estimate;
+			}
+
+			@Override
+			long count() {
+				long count = UNKNOWN;
+				if (!index.isSorted()) {
+					count = estimate;
+				}
+				return count;
+			}
+
+			@Override
+			ISlotCursor open() {
+				return index.get(value);
+			}
+
+			@Override
+			public String toString() {
+				return "lookup of " + this.getFilter() + " in the " + index.getType() + " index of "
+						+ index.getKey();
+			}
+		};
+	}
+
+	/**
+	 * Creates an access path reading the given range of a sorted key index. The range is read lazily and its
+	 * size is only estimated from its first values, so that planning a query does not read the whole range.
+	 * The exact size is computed when the plan is asked for it.
+	 * 
+	 * @param index
+	 *            The sorted index of the key of the filter
+	 * @param filter
+	 *            The interval or ordered comparison filter
+	 * @param range
+	 *            The range of the values accepted by the filter
+	 * @return An access path reading the range of the index
+	 */
+	static AccessPath range(final KeyIndex index, PropertyFilter filter, final ValueRange range) {
+		final long estimate = index.estimate(range);
+		return new AccessPath(filter) {
+			@Override
+			long estimate() {
+				return estimate;
+			}
+
+			@Override
+			long count() {
+				return index.count(range);
+			}
+
+			@Override
+			ISlotCursor open() {
+				return index.get(range);
+			}
+
+			@Override
+			public String toString() {
+				return "range scan of " + this.getFilter() + " in the " + index.getType() + " index of "
+						+ index.getKey();
+			}
+		};
+	}
+
+	/**
+	 * An access path reading the edges incident to a vertex from the adjacency of the graph.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	static final class IncidentEdges extends AccessPath {
+		/**
+		 * The graph.
+		 */
+		private final MemoryGraph graph;
+
+		/**
+		 * The slot of the vertex.
+		 */
+		private final int vertex;
+
+		/**
+		 * The direction of the edges.
+		 */
+		private final Direction direction;
+
+		/**
+		 * The labels of the edges, empty for all the labels.
+		 */
+		private final String[] labels;
+
+		/**
+		 * The sorted integers of the labels or <code>null</code> for all the labels.
+		 */
+		private final int[] labelIds;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param graph
+		 *            The graph
+		 * @param vertex
+		 *            The slot of the vertex
+		 * @param direction
+		 *            The direction of the edges
+		 * @param labels
+		 *            The labels of the edges, empty for all the labels
+		 */
+		IncidentEdges(MemoryGraph graph, int vertex, Direction direction, String[] labels) {
+			this(graph, vertex, direction, labels, graph.getSymbols().lookupAll(labels));
+		}
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param graph
+		 *            The graph
+		 * @param vertex
+		 *            The slot of the vertex
+		 * @param direction
+		 *            The direction of the edges
+		 * @param labels
+		 *            The labels of the edges, empty for all the labels
+		 * @param labelIds
+		 *            The sorted integers of the labels or <code>null</code> for all the labels
+		 */
+		IncidentEdges(MemoryGraph graph, int vertex, Direction direction, String[] labels, int[] labelIds) {
+			super(null);
+			this.graph = graph;
+			this.vertex = vertex;
+			this.direction = direction;
+			this.labels = labels;
+			this.labelIds = labelIds;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.AccessPath#estimate()
+		 */
+		@Override
+		long estimate() {
+			long estimate = 0;
+			int[] edgeLabels = this.graph.getEdgeLabels();
+			for (Direction properDirection : this.getDirections()) {
+				Adjacency adjacency = this.graph.getAdjacency(properDirection);
+				estimate = estimate + adjacency.degree(this.vertex, this.labelIds, edgeLabels);
+			}
+			return estimate;
+		}
+
+		/**
+		 * Creates the access path reading the incident edges answering the given filter from the given
+		 * vertex-centric index.
+		 * 
+		 * @param index
+		 *            The vertex-centric index of the key of the filter
+		 * @param filter
+		 *            The filter
+		 * @return The access path reading the vertex-centric index or <code>null</code> if the index can not
+		 *         answer the filter
+		 */
+		AccessPath withIndex(VertexCentricIndex index, PropertyFilter filter) {
+			AccessPath access = null;
+			ValueRange range = ValueRange.of(filter);
+			if (QueryPlanner.isEquality(filter) || range != null) {
+				int[] labelsToRead = this.labelIds;
+				if (labelsToRead == null) {
+					labelsToRead = new int[this.graph.getSymbols().size()];
+					for (int i = 0; i < labelsToRead.length; i++) {
+						labelsToRead[i] = i;
+					}
+				}
+				List<KeyIndex> buckets = new ArrayList<KeyIndex>();
+				for (Direction properDirection : this.getDirections()) {
+					for (int label : labelsToRead) {
+						KeyIndex bucket = index.getBucket(this.vertex, properDirection, label);
+						if (bucket != null) {
+							buckets.add(bucket);
+						}
+					}
+				}
+				access = new VertexCentricEdges(filter, this.toString(), index.getKey(), buckets, range);
+			}
+			return access;
+		}
+
+		/**
+		 * Returns the proper directions of the edges to read.
+		 * 
+		 * @return The proper directions of the edges to read
+		 */
+		private Direction[] getDirections() {
+			Direction[] directions = Direction.PROPER_DIRECTIONS;
+			if (!Direction.BOTH.equals(this.direction)) {
+				directions = new Direction[] {this.direction, };
+			}
+			return directions;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.AccessPath#open()
+		 */
+		@Override
+		EdgeCursor open() {
+			return new EdgeCursor(this.graph, this.vertex, this.direction, this.labelIds);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			String description = "adjacency of " + new MemoryVertex(this.graph, this.vertex)
+					+ " in direction " + this.direction;
+			if (this.labels.length > 0) {
+				description = description + " with the labels " + Arrays.toString(this.labels);
+			}
+			return description;
+		}
+	}
+
+	/**
+	 * An access path reading the edges incident to a vertex from the buckets of a vertex-centric index. An
+	 * equality reads the slots of its value in each bucket, an interval or an ordered comparison reads its
+	 * range in each bucket. The number of edges read by an equality is counted exactly from the buckets, the
+	 * number of edges read by a range is only estimated from its first values in each bucket so that a
+	 * limited read of a large range does not cost the whole range. Since the buckets are sorted indexes,
+	 * only the count of a range, computed when the plan is asked for it, is exactly the number of edges
+	 * accepted by its filter.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class VertexCentricEdges extends AccessPath {
+		/**
+		 * The description of the incident edges.
+		 */
+		private final String incidentEdges;
+
+		/**
+		 * The key of the vertex-centric index.
+		 */
+		private final String key;
+
+		/**
+		 * The buckets of the vertex for the directions and the labels of the query.
+		 */
+		private final List<KeyIndex> buckets;
+
+		/**
+		 * The range of an interval or an ordered comparison, <code>null</code> for an equality.
+		 */
+		private final ValueRange range;
+
+		/**
+		 * The estimated number of edges read from the buckets.
+		 */
+		private final long estimate;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param filter
+		 *            The filter answered by the access path
+		 * @param incidentEdges
+		 *            The description of the incident edges
+		 * @param key
+		 *            The key of the vertex-centric index
+		 * @param buckets
+		 *            The buckets of the vertex for the directions and the labels of the query
+		 * @param range
+		 *            The range of an interval or an ordered comparison, <code>null</code> for an equality
+		 */
+		VertexCentricEdges(PropertyFilter filter, String incidentEdges, String key, List<KeyIndex> buckets,
+				ValueRange range) {
+			super(filter);
+			this.incidentEdges = incidentEdges;
+			this.key = key;
+			this.buckets = buckets;
+			this.range = range;
+			long total = 0;
+			for (KeyIndex bucket : buckets) {
+				if (range == null) {
+					total = total + bucket.count(filter.getValue());
+				} else {
+					total = total + bucket.estimate(range);
+				}
+			}
+			this.estimate = total;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.AccessPath#estimate()
+		 */
+		@Override
+		long estimate() {
+			return this.estimate;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.AccessPath#count()
+		 */
+		@Override
+		long count() {
+			long exact = UNKNOWN;
+			if (this.range != null) {
+				exact = 0;
+				for (KeyIndex bucket : this.buckets) {
+					exact = exact + bucket.count(this.range);
+				}
+			}
+			return exact;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.AccessPath#open()
+		 */
+		@Override
+		ISlotCursor open() {
+			ISlotCursor[] cursors = new ISlotCursor[this.buckets.size()];
+			for (int i = 0; i < cursors.length; i++) {
+				if (this.range == null) {
+					cursors[i] = this.buckets.get(i).get(this.getFilter().getValue());
+				} else {
+					cursors[i] = this.buckets.get(i).get(this.range);
+				}
+			}
+			return new ConcatenatedCursor(cursors);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return this.incidentEdges + " read from the vertex-centric index of " + this.key + " for "
+					+ this.getFilter();
+		}
+	}
+}
@@ -0,0 +1,349 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.internal.Capacities;
+
+import java.util.Arrays;
+
+/**
+ * The adjacency of all the vertices of a graph for a single direction.
+ * <p>
+ * The adjacency is stored in compressed sparse row form: the edges of each vertex are stored contiguously in
+ * a single array, sorted by label, and an offset array gives the segment of each vertex. The edges of a
+ * given label are thus found with a binary search in the segment of the vertex.
+ * </p>
+ * <p>
+ * Since the compressed form cannot be updated in place, the edges added after the last {@link #rebuild
+ * rebuild} are kept in per-vertex linked lists threaded through a primitive array indexed by edge slot.
+ * Removed edges are left in place and skipped by the readers until the next rebuild.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class Adjacency {
+	/**
+	 * The marker of the end of a pending list.
+	 */
+	static final int NONE = -1;
+
+	/**
+	 * The initial capacity of the pending tables.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The offset of the segment of each compressed vertex, the segment of the vertex <code>v</code> starts at
+	 * <code>offsets[v]</code> and ends at <code>offsets[v + 1]</code>.
+	 */
+	private int[] offsets = new int[1];
+
+	/**
+	 * The slots of the compressed edges.
+	 */
+	private int[] edges = new int[0];
+
+	/**
+	 * The number of vertices covered by the compressed form.
+	 */
+	private int compressedVertices;
+
+	/**
+	 * The first pending edge of each vertex.
+	 */
+	private int[] pendingHeads = Adjacency.newPendingTable(INITIAL_CAPACITY);
+
+	/**
+	 * The next pending edge of the same vertex, for each edge slot.
+	 */
+	private int[] pendingNext = Adjacency.newPendingTable(INITIAL_CAPACITY);
+
+	/**
+	 * The number of pending edges.
+	 */
+	private int pendingCount;
+
+	/**
+	 * The number of rebuilds of the compressed form.
+	 */
+	private int generation;
+
+	/**
+	 * Records a new edge of the given vertex.
+	 * 
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param edge
+	 *            The slot of the edge
+	 */
+	void append(int vertex, int edge) {
+		if (vertex >= this.pendingHeads.length) {
+			this.pendingHeads = Adjacency.grow(this.pendingHeads, vertex + 1);
+		}
+		if (edge >= this.pendingNext.length) {
+			this.pendingNext = Adjacency.grow(this.pendingNext, edge + 1);
+		}
+		this.pendingNext[edge] = this.pendingHeads[vertex];
+		this.pendingHeads[vertex] = edge;
+		this.pendingCount++;
+	}
+
+	/**
+	 * Returns the offsets of the compressed form. The compressed arrays are never modified once built, a
+	 * rebuild allocates new ones, so that readers can safely keep them while the graph is modified.
+	 * 
+	 * @return The offsets of the compressed form
+	 */
+	int[] getOffsets() {
+		return this.offsets;
+	}
+
+	/**
+	 * Returns the edges of the compressed form.
+	 * 
+	 * @return The edges of the compressed form
+	 */
+	int[] getEdges() {
+		return this.edges;
+	}
+
+	/**
+	 * Returns the number of vertices covered by the compressed form.
+	 * 
+	 * @return The number of vertices covered by the compressed form
+	 */
+	int getCompressedVertices() {
+		return this.compressedVertices;
+	}
+
+	/**
+	 * Returns the number of rebuilds of the compressed form. Readers walking the pending lists use it to
+	 * detect that the lists have been merged in the compressed form in the meantime.
+	 * 
+	 * @return The number of rebuilds of the compressed form
+	 */
+	int getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Returns the first position of the given segment of the compressed edges whose edge has a label greater
+	 * than or equal to the given label.
+	 * 
+	 * @param edges
+	 *            The compressed edges
+	 * @param start
+	 *            The start of the segment
+	 * @param end
+	 *            The end of the segment
+	 * @param label
+	 *            The label
+	 * @param labels
+	 *            The label of each edge slot
+	 * @return The first position whose edge has a label greater than or equal to the given one
+	 */
+	static int lowerBound(int[] edges, int start, int end, int label, int[] labels) {
+		int low = start;
+		int high = end;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (labels[edges[middle]] < label) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the first pending edge of the given vertex.
+	 * 
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @return The first pending edge of the vertex or {@link #NONE}
+	 */
+	int firstPending(int vertex) {
+		int first = NONE;
+		if (vertex < this.pendingHeads.length) {
+			first = this.pendingHeads[vertex];
+		}
+		return first;
+	}
+
+	/**
+	 * Returns the pending edge following the given one for the same vertex.
+	 * 
+	 * @param edge
+	 *            The slot of a pending edge
+	 * @return The next pending edge or {@link #NONE}
+	 */
+	int nextPending(int edge) {
+		return this.pendingNext[edge];
+	}
+
+	/**
+	 * Computes an upper bound of the number of edges of the given vertex with the given labels. The
+	 * compressed segment of the vertex is measured with binary searches and its pending list is walked, the
+	 * edges removed since the last rebuild are counted.
+	 * 
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param labels
+	 *            The sorted labels of the edges or <code>null</code> for all the labels
+	 * @param edgeLabels
+	 *            The label of each edge slot
+	 * @return An upper bound of the number of edges of the vertex with the labels
+	 */
+	int degree(int vertex, int[] labels, int[] edgeLabels) {
+		int degree = 0;
+		if (vertex < this.compressedVertices) {
+			int start = this.offsets[vertex];
+			int end = this.offsets[vertex + 1];
+			if (labels == null) {
+				degree = end - start;
+			} else {
+				for (int label : labels) {
+					int first = Adjacency.lowerBound(this.edges, start, end, label, edgeLabels);
+					int last = Adjacency.lowerBound(this.edges, first, end, label + 1, edgeLabels);
+					degree = degree + last - first;
+				}
+			}
+		}
+		for (int edge = this.firstPending(vertex); edge != NONE; edge = this.pendingNext[edge]) {
+			if (labels == null || Arrays.binarySearch(labels, edgeLabels[edge]) >= 0) {
+				degree++;
+			}
+		}
+		return degree;
+	}
+
+	/**
+	 * Returns the number of edges added since the last rebuild.
+	 * 
+	 * @return The number of edges added since the last rebuild
+	 */
+	int getPendingCount() {
+		return this.pendingCount;
+	}
+
+	/**
+	 * Rebuilds the compressed form from the edge tables of the graph, merging the pending edges and dropping
+	 * the removed ones. The edges are first bucketed by label and then distributed by vertex, both with a
+	 * counting sort, so that the rebuild is linear in the number of vertices, edges and labels.
+	 * 
+	 * @param vertexSlots
+	 *            The number of vertex slots of the graph
+	 * @param edgeSlots
+	 *            The number of edge slots of the graph
+	 * @param endpoints
+	 *            The vertex owning each edge slot for this direction
+	 * @param labels
+	 *            The label of each edge slot
+	 * @param alive
+	 *            The identifier of each edge slot, <code>null</code> for the free slots
+	 * @param labelCount
+	 *            The number of labels
+	 */
+	void rebuild(int vertexSlots, int edgeSlots, int[] endpoints, int[] labels, Object[] alive,
+			int labelCount) {
+		int[] labelStarts = new int[labelCount + 1];
+		int[] newOffsets = new int[vertexSlots + 1];
+		int liveCount = 0;
+		for (int edge = 0; edge < edgeSlots; edge++) {
+			if (alive[edge] != null) {
+				labelStarts[labels[edge] + 1]++;
+				newOffsets[endpoints[edge] + 1]++;
+				liveCount++;
+			}
+		}
+		Adjacency.accumulate(labelStarts);
+		Adjacency.accumulate(newOffsets);
+
+		int[] byLabel = new int[liveCount];
+		for (int edge = 0; edge < edgeSlots; edge++) {
+			if (alive[edge] != null) {
+				byLabel[labelStarts[labels[edge]]++] = edge;
+			}
+		}
+		int[] cursors = Arrays.copyOf(newOffsets, vertexSlots);
+		int[] newEdges = new int[liveCount];
+		for (int edge : byLabel) {
+			newEdges[cursors[endpoints[edge]]++] = edge;
+		}
+
+		this.offsets = newOffsets;
+		this.edges = newEdges;
+		this.compressedVertices = vertexSlots;
+		this.generation++;
+		Arrays.fill(this.pendingHeads, NONE);
+		this.pendingCount = 0;
+	}
+
+	/**
+	 * Transforms the given counts into the offsets of their buckets.
+	 * 
+	 * @param counts
+	 *            The count of each bucket shifted by one position
+	 */
+	private static void accumulate(int[] counts) {
+		for (int i = 1; i < counts.length; i++) {
+			counts[i] += counts[i - 1];
+		}
+	}
+
+	/**
+	 * Creates a pending table of the given capacity.
+	 * 
+	 * @param capacity
+	 *            The capacity
+	 * @return The new table filled with {@link #NONE}
+	 */
+	private static int[] newPendingTable(int capacity) {
+		int[] table = new int[capacity];
+		Arrays.fill(table, NONE);
+		return table;
+	}
+
+	/**
+	 * Grows the given pending table.
+	 * 
+	 * @param table
+	 *            The table
+	 * @param minimum
+	 *            The minimum capacity
+	 * @return The new table
+	 */
+	private static int[] grow(int[] table, int minimum) {
+		int[] grown = Arrays.copyOf(table, Capacities.grow(table.length, minimum));
+		Arrays.fill(grown, table.length, grown.length, NONE);
+		return grown;
+	}
+}
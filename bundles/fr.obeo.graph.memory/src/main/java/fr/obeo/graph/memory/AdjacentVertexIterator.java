@@ -0,0 +1,92 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.internal.AbstractSlotIterator;
+import fr.obeo.graph.api.internal.ISlotCursor;
+
+/**
+ * Iterator over the vertices at the other end of the edges incident to a vertex accepted by a matcher.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class AdjacentVertexIterator extends AbstractSlotIterator<IVertex> {
+	/**
+	 * The graph.
+	 */
+	private final MemoryGraph graph;
+
+	/**
+	 * The slot of the vertex.
+	 */
+	private final int vertex;
+
+	/**
+	 * The matcher of the edges.
+	 */
+	private final PropertyMatcher matcher;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param cursor
+	 *            The cursor over the incident edges
+	 * @param matcher
+	 *            The matcher of the edges
+	 * @param limit
+	 *            The maximum number of vertices to return
+	 */
+	AdjacentVertexIterator(MemoryGraph graph, int vertex, ISlotCursor cursor, PropertyMatcher matcher,
+			long limit) {
+		super(cursor, limit);
+		this.graph = graph;
+		this.vertex = vertex;
+		this.matcher = matcher;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.internal.AbstractSlotIterator#read(int)
+	 */
+	@Override
+	protected IVertex read(int slot) {
+		IVertex adjacent = null;
+		if (this.matcher.matches(this.graph.getEdgeStore(), slot)) {
+			adjacent = new MemoryVertex(this.graph, this.graph.getOtherVertex(slot, this.vertex));
+		}
+		return adjacent;
+	}
+}
@@ -0,0 +1,230 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The edges of a vertex of the concurrent graph in one direction, in an append-only list supporting
+ * lock-free appends and wait-free reads.
+ * <p>
+ * The edges are stored in chunks whose size doubles from one chunk to the next, so that the list grows
+ * without ever copying or moving an edge. An append reserves its index by incrementing the published length
+ * with a compare-and-set, installs the chunk of the index with a compare-and-set if it does not exist yet,
+ * and then writes the edge. A reader takes the published length once and reads the indexes below it, it
+ * skips the indexes which have been reserved but not written yet: an edge whose append has returned before
+ * the read began is always seen.
+ * </p>
+ * <p>
+ * The removed edges stay in the list as tombstones, flagged on the edge itself, and are skipped by the
+ * readers. Once there are more tombstones than live edges, the list is sealed: the appends fail from then on
+ * and a compacted copy of the list, without the tombstones, replaces it in the vertex.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ConcurrentAdjacency {
+	/**
+	 * The number of bits of the size of the first chunk.
+	 */
+	private static final int FIRST_CHUNK_BITS = 3;
+
+	/**
+	 * The size of the first chunk.
+	 */
+	private static final int FIRST_CHUNK = 1 << FIRST_CHUNK_BITS;
+
+	/**
+	 * The maximum number of chunks.
+	 */
+	private static final int MAX_CHUNKS = Integer.SIZE - 1 - FIRST_CHUNK_BITS;
+
+	/**
+	 * The maximum number of edges.
+	 */
+	private static final int MAX_SIZE = Integer.MAX_VALUE - FIRST_CHUNK;
+
+	/**
+	 * The bit of the published length set once the list is sealed.
+	 */
+	private static final int SEALED = Integer.MIN_VALUE;
+
+	/**
+	 * The minimum number of tombstones before a compaction.
+	 */
+	private static final int MINIMUM_COMPACTION = 16;
+
+	/**
+	 * The chunks of edges.
+	 */
+	private final AtomicReferenceArray<AtomicReferenceArray<ConcurrentEdge>> chunks =
+			new AtomicReferenceArray<AtomicReferenceArray<ConcurrentEdge>>(MAX_CHUNKS);
+
+	/**
+	 * The number of reserved indexes, with the {@link #SEALED} bit once the list is sealed.
+	 */
+	private final AtomicInteger length = new AtomicInteger();
+
+	/**
+	 * The number of edges removed since the creation of the list.
+	 */
+	private final AtomicInteger tombstones = new AtomicInteger();
+
+	/**
+	 * Appends an edge.
+	 * 
+	 * @param edge
+	 *            The edge
+	 * @return <code>true</code> if the edge has been appended, <code>false</code> if the list is sealed
+	 */
+	boolean append(ConcurrentEdge edge) {
+		int index = this.length.get();
+		while (index >= 0 && index < MAX_SIZE && !this.length.compareAndSet(index, index + 1)) {
+			index = this.length.get();
+		}
+		if (index >= MAX_SIZE) {
+			throw new IllegalStateException("Too many edges for a vertex: " + index);
+		}
+		boolean appended = index >= 0;
+		if (appended) {
+			int chunk = ConcurrentAdjacency.chunk(index);
+			AtomicReferenceArray<ConcurrentEdge> edges = this.chunks.get(chunk);
+			if (edges == null) {
+				this.chunks.compareAndSet(chunk, null, new AtomicReferenceArray<ConcurrentEdge>(
+						FIRST_CHUNK << chunk));
+				edges = this.chunks.get(chunk);
+			}
+			edges.set(ConcurrentAdjacency.offset(index, chunk), edge);
+		}
+		return appended;
+	}
+
+	/**
+	 * Returns the number of reserved indexes. The edges of some of them may not have been written yet.
+	 * 
+	 * @return The number of reserved indexes
+	 */
+	int size() {
+		return this.length.get() & ~SEALED;
+	}
+
+	/**
+	 * Returns the edge at the given index.
+	 * 
+	 * @param index
+	 *            The index, lower than {@link #size()}
+	 * @return The edge, removed or not, or <code>null</code> if it has not been written yet
+	 */
+	ConcurrentEdge get(int index) {
+		ConcurrentEdge edge = null;
+		int chunk = ConcurrentAdjacency.chunk(index);
+		AtomicReferenceArray<ConcurrentEdge> edges = this.chunks.get(chunk);
+		if (edges != null) {
+			edge = edges.get(ConcurrentAdjacency.offset(index, chunk));
+		}
+		return edge;
+	}
+
+	/**
+	 * Counts the removal of one of the edges and seals the list if it should be compacted.
+	 * 
+	 * @return <code>true</code> if the list has been sealed and should be replaced by its compacted copy,
+	 *         <code>false</code> otherwise
+	 */
+	boolean tombstone() {
+		int removed = this.tombstones.incrementAndGet();
+		boolean sealed = false;
+		if (removed >= MINIMUM_COMPACTION && removed * 2 > this.size()) {
+			int current = this.length.get();
+			while (current >= 0 && !this.length.compareAndSet(current, current | SEALED)) {
+				current = this.length.get();
+			}
+			sealed = current >= 0;
+		}
+		return sealed;
+	}
+
+	/**
+	 * Indicates if the list is sealed.
+	 * 
+	 * @return <code>true</code> if the appends fail, <code>false</code> otherwise
+	 */
+	boolean isSealed() {
+		return this.length.get() < 0;
+	}
+
+	/**
+	 * Creates a copy of the sealed list without its tombstones. The copy waits for the appends which have
+	 * reserved their index before the list was sealed to write their edge, which only takes a few
+	 * instructions.
+	 * 
+	 * @return The compacted copy
+	 */
+	ConcurrentAdjacency compact() {
+		ConcurrentAdjacency copy = new ConcurrentAdjacency();
+		int size = this.size();
+		for (int i = 0; i < size; i++) {
+			ConcurrentEdge edge = this.get(i);
+			while (edge == null) {
+				Thread.yield();
+				edge = this.get(i);
+			}
+			if (!edge.isRemoved()) {
+				copy.append(edge);
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the chunk of an index.
+	 * 
+	 * @param index
+	 *            The index
+	 * @return The chunk of the index
+	 */
+	private static int chunk(int index) {
+		return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(index + FIRST_CHUNK) - FIRST_CHUNK_BITS;
+	}
+
+	/**
+	 * Returns the offset of an index in its chunk.
+	 * 
+	 * @param index
+	 *            The index
+	 * @param chunk
+	 *            The chunk of the index
+	 * @return The offset of the index in the chunk
+	 */
+	private static int offset(int index, int chunk) {
+		return index + FIRST_CHUNK - (FIRST_CHUNK << chunk);
+	}
+}
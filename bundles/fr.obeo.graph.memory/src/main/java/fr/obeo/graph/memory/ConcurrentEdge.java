@@ -0,0 +1,153 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * An edge of the concurrent graph.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ConcurrentEdge extends AbstractConcurrentElement implements IEdge {
+	/**
+	 * The out vertex.
+	 */
+	private final ConcurrentVertex outVertex;
+
+	/**
+	 * The in vertex.
+	 */
+	private final ConcurrentVertex inVertex;
+
+	/**
+	 * The label of the edge.
+	 */
+	private final String label;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param id
+	 *            The identifier of the edge
+	 * @param outVertex
+	 *            The out vertex
+	 * @param inVertex
+	 *            The in vertex
+	 * @param label
+	 *            The label of the edge
+	 */
+	ConcurrentEdge(ConcurrentGraph graph, Object id, ConcurrentVertex outVertex, ConcurrentVertex inVertex,
+			String label) {
+		super(graph, id);
+		this.outVertex = outVertex;
+		this.inVertex = inVertex;
+		this.label = label;
+	}
+
+	/**
+	 * Returns the vertex of the edge in the given direction.
+	 * 
+	 * @param direction
+	 *            The direction, {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The vertex
+	 */
+	ConcurrentVertex getEndpoint(Direction direction) {
+		ConcurrentVertex vertex = this.inVertex;
+		if (direction == Direction.OUT) {
+			vertex = this.outVertex;
+		}
+		return vertex;
+	}
+
+	/**
+	 * Returns the vertex at the other end of the edge.
+	 * 
+	 * @param vertex
+	 *            One of the vertices of the edge
+	 * @return The other vertex, the same one for a loop
+	 */
+	ConcurrentVertex getOtherVertex(ConcurrentVertex vertex) {
+		ConcurrentVertex other = this.outVertex;
+		if (this.outVertex == vertex) {
+			other = this.inVertex;
+		}
+		return other;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getVertex(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertex getVertex(Direction direction) throws IllegalArgumentException {
+		if (Direction.BOTH.equals(direction) || direction == null) {
+			throw new IllegalArgumentException("The direction of the vertex must be IN or OUT");
+		}
+		return this.getEndpoint(direction);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getLabel()
+	 */
+	@Override
+	public String getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.graph.removeEdge(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		Object outId = this.outVertex.getId();
+		Object inId = this.inVertex.getId();
+		return "e[" + this.id + "][" + outId + "-" + this.label + "->" + inId + "]";
+	}
+}
@@ -0,0 +1,356 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IGraphQuery;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread safe in-memory implementation of the graph API for concurrent ingestion.
+ * <p>
+ * The vertices and the edges are records indexed by identifier in concurrent maps. Each vertex holds the
+ * lists of its outgoing and incoming edges in a {@link ConcurrentAdjacency}: the edges are appended without
+ * any lock and the lists are read without waiting, so that threads adding edges to the same vertex, even a
+ * vertex with millions of edges, never block each other nor the threads iterating over its edges. The
+ * properties of the elements are stored in concurrent maps.
+ * </p>
+ * <p>
+ * The removal of an element is logical: the element is flagged as removed and the removed edges stay in the
+ * lists of their vertices as tombstones skipped by the readers. A list is compacted once it contains more
+ * tombstones than live edges, by the thread whose removal crosses the threshold, the appends which happen
+ * meanwhile help the compaction instead of waiting for it.
+ * </p>
+ * <p>
+ * The iterators are weakly consistent: they never fail nor block, they return the elements which existed
+ * when the iteration began and have not been removed since, and may or may not return the elements added
+ * during the iteration.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class ConcurrentGraph implements IGraph {
+	/**
+	 * The message of the exception thrown for null identifiers.
+	 */
+	private static final String NULL_ID = "Element identifiers can not be null";
+
+	/**
+	 * The vertices, by identifier.
+	 */
+	private final ConcurrentMap<Object, ConcurrentVertex> vertices =
+			new ConcurrentHashMap<Object, ConcurrentVertex>();
+
+	/**
+	 * The edges, by identifier.
+	 */
+	private final ConcurrentMap<Object, ConcurrentEdge> edges =
+			new ConcurrentHashMap<Object, ConcurrentEdge>();
+
+	/**
+	 * The next identifier to generate.
+	 */
+	private final AtomicLong nextId = new AtomicLong();
+
+	/**
+	 * The pool of the labels of the edges.
+	 */
+	private final StringPool labels = new StringPool();
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex addVertex(Object id) {
+		ConcurrentVertex vertex;
+		if (id == null) {
+			vertex = new ConcurrentVertex(this, Long.valueOf(this.nextId.getAndIncrement()));
+			while (this.vertices.putIfAbsent(vertex.getId(), vertex) != null) {
+				vertex = new ConcurrentVertex(this, Long.valueOf(this.nextId.getAndIncrement()));
+			}
+		} else {
+			vertex = new ConcurrentVertex(this, id);
+			if (this.vertices.putIfAbsent(id, vertex) != null) {
+				throw new IllegalArgumentException("Vertex with id already exists: " + id);
+			}
+		}
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex getVertex(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		return this.vertices.get(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeVertex(fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public void removeVertex(IVertex vertex) {
+		ConcurrentVertex concurrentVertex = this.vertex(vertex);
+		if (concurrentVertex.markRemoved()) {
+			this.vertices.remove(concurrentVertex.getId(), concurrentVertex);
+			for (Direction direction : new Direction[] {Direction.OUT, Direction.IN }) {
+				ConcurrentAdjacency adjacency = concurrentVertex.getAdjacency(direction);
+				int size = adjacency.size();
+				for (int i = 0; i < size; i++) {
+					ConcurrentEdge edge = adjacency.get(i);
+					if (edge != null) {
+						this.removeEdgeRecord(edge);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices() {
+		return this.query().vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(String key, Object value) {
+		return this.query().has(key, value).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The edge is registered in the lists of its vertices before the removal of the vertices is checked,
+	 * while the removal of a vertex flags the vertex before reading its lists: an edge added concurrently
+	 * with the removal of one of its vertices is thus either removed with the vertex or never added.
+	 * </p>
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addEdge(java.lang.Object, fr.obeo.graph.api.IVertex,
+	 *      fr.obeo.graph.api.IVertex, java.lang.String)
+	 */
+	@Override
+	public IEdge addEdge(Object id, IVertex outVertex, IVertex inVertex, String label) {
+		if (label == null) {
+			throw new IllegalArgumentException("Edge label can not be null");
+		}
+		ConcurrentVertex out = this.vertex(outVertex);
+		ConcurrentVertex in = this.vertex(inVertex);
+		out.checkAlive();
+		in.checkAlive();
+		String pooledLabel = this.labels.intern(label);
+		ConcurrentEdge edge;
+		if (id == null) {
+			edge = new ConcurrentEdge(this, Long.valueOf(this.nextId.getAndIncrement()), out, in,
+					pooledLabel);
+			while (this.edges.putIfAbsent(edge.getId(), edge) != null) {
+				edge = new ConcurrentEdge(this, Long.valueOf(this.nextId.getAndIncrement()), out, in,
+						pooledLabel);
+			}
+		} else {
+			edge = new ConcurrentEdge(this, id, out, in, pooledLabel);
+			if (this.edges.putIfAbsent(id, edge) != null) {
+				throw new IllegalArgumentException("Edge with id already exists: " + id);
+			}
+		}
+		out.append(Direction.OUT, edge);
+		in.append(Direction.IN, edge);
+		if (out.isRemoved() || in.isRemoved()) {
+			this.removeEdgeRecord(edge);
+			out.checkAlive();
+			in.checkAlive();
+		}
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdge(java.lang.Object)
+	 */
+	@Override
+	public IEdge getEdge(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		return this.edges.get(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeEdge(fr.obeo.graph.api.IEdge)
+	 */
+	@Override
+	public void removeEdge(IEdge edge) {
+		if (!(edge instanceof ConcurrentEdge) || ((ConcurrentEdge)edge).graph != this) {
+			throw new IllegalArgumentException("The edge does not belong to this graph: " + edge);
+		}
+		this.removeEdgeRecord((ConcurrentEdge)edge);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges() {
+		return this.query().edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(String key, Object value) {
+		return this.query().has(key, value).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#query()
+	 */
+	@Override
+	public IGraphQuery query() {
+		return new ConcurrentGraphQuery(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		// Nothing to release, the graph only lives in memory
+	}
+
+	/**
+	 * Returns the number of vertices of the graph.
+	 * 
+	 * @return The number of vertices of the graph
+	 */
+	public long countVertices() {
+		return this.vertices.size();
+	}
+
+	/**
+	 * Returns the number of edges of the graph.
+	 * 
+	 * @return The number of edges of the graph
+	 */
+	public long countEdges() {
+		return this.edges.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "concurrentgraph[vertices:" + this.vertices.size() + " edges:" + this.edges.size() + "]";
+	}
+
+	/**
+	 * Returns the vertices of the graph, by identifier.
+	 * 
+	 * @return The vertices of the graph
+	 */
+	ConcurrentMap<Object, ConcurrentVertex> getVertexMap() {
+		return this.vertices;
+	}
+
+	/**
+	 * Returns the edges of the graph, by identifier.
+	 * 
+	 * @return The edges of the graph
+	 */
+	ConcurrentMap<Object, ConcurrentEdge> getEdgeMap() {
+		return this.edges;
+	}
+
+	/**
+	 * Removes an edge, unless it has already been removed.
+	 * 
+	 * @param edge
+	 *            The edge
+	 */
+	private void removeEdgeRecord(ConcurrentEdge edge) {
+		if (edge.markRemoved()) {
+			this.edges.remove(edge.getId(), edge);
+			edge.getEndpoint(Direction.OUT).tombstone(Direction.OUT);
+			edge.getEndpoint(Direction.IN).tombstone(Direction.IN);
+		}
+	}
+
+	/**
+	 * Returns the given vertex as a vertex of this graph.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The vertex of this graph
+	 */
+	private ConcurrentVertex vertex(IVertex vertex) {
+		if (!(vertex instanceof ConcurrentVertex) || ((ConcurrentVertex)vertex).graph != this) {
+			throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertex);
+		}
+		return (ConcurrentVertex)vertex;
+	}
+}
@@ -0,0 +1,274 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Aggregations;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraphQuery;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.internal.AbstractLazyIterable;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A query over all the elements of the concurrent graph. Each execution scans the concurrent maps of the
+ * graph, without blocking the writers nor waiting for them.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ConcurrentGraphQuery extends AbstractConcurrentQuery implements IGraphQuery {
+	/**
+	 * The graph.
+	 */
+	private final ConcurrentGraph graph;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	ConcurrentGraphQuery(ConcurrentGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#has(java.lang.String)
+	 */
+	@Override
+	public IGraphQuery has(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	public IGraphQuery hasNot(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS_NOT, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IGraphQuery has(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IGraphQuery hasNot(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.NOT_EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public IGraphQuery has(String key, IPredicate predicate, Object value) {
+		this.addFilter(PropertyFilter.predicate(key, predicate, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#interval(java.lang.String, java.lang.Comparable,
+	 *      java.lang.Comparable)
+	 */
+	@Override
+	public IGraphQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		this.addFilter(PropertyFilter.interval(key, startValue, endValue));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#limit(int)
+	 */
+	@Override
+	public IGraphQuery limit(int max) {
+		this.setLimit(max);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#edges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> edges() {
+		return new AbstractLazyIterable<IEdge>() {
+			@Override
+			protected AbstractLazyIterator<IEdge> open() {
+				final ConcurrentGraphQuery query = ConcurrentGraphQuery.this;
+				final Iterator<ConcurrentEdge> edges = query.graph.getEdgeMap().values().iterator();
+				return new AbstractLazyIterator<IEdge>(query.limit) {
+					@Override
+					protected IEdge computeNext() {
+						IEdge next = null;
+						while (next == null && edges.hasNext()) {
+							ConcurrentEdge edge = edges.next();
+							if (query.matches(edge)) {
+								next = edge;
+							}
+						}
+						return next;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#vertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> vertices() {
+		return new AbstractLazyIterable<IVertex>() {
+			@Override
+			protected AbstractLazyIterator<IVertex> open() {
+				final ConcurrentGraphQuery query = ConcurrentGraphQuery.this;
+				final Iterator<ConcurrentVertex> vertices = query.graph.getVertexMap().values().iterator();
+				return new AbstractLazyIterator<IVertex>(query.limit) {
+					@Override
+					protected IVertex computeNext() {
+						IVertex next = null;
+						while (next == null && vertices.hasNext()) {
+							ConcurrentVertex vertex = vertices.next();
+							if (query.matches(vertex)) {
+								next = vertex;
+							}
+						}
+						return next;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#count(java.lang.Class)
+	 */
+	@Override
+	public long count(Class<?> elementClass) {
+		return Aggregations.count(Aggregations.elements(this, elementClass));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#min(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Number min(String key, Class<?> elementClass) {
+		return Aggregations.aggregate(Aggregations.elements(this, elementClass), key).getMin();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#max(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Number max(String key, Class<?> elementClass) {
+		return Aggregations.aggregate(Aggregations.elements(this, elementClass), key).getMax();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#sum(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Number sum(String key, Class<?> elementClass) {
+		return Aggregations.aggregate(Aggregations.elements(this, elementClass), key).getSum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#countBy(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Map<Object, Long> countBy(String key, Class<?> elementClass) {
+		return Aggregations.countBy(Aggregations.elements(this, elementClass), key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#countByLabel()
+	 */
+	@Override
+	public Map<String, Long> countByLabel() {
+		return Aggregations.countByLabel(this.edges());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		return this.describe("vertices", "scan", this.graph.countVertices()) + "\n"
+				+ this.describe("edges", "scan", this.graph.countEdges());
+	}
+}
@@ -0,0 +1,188 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A vertex of the concurrent graph. The vertex holds the lists of its outgoing and incoming edges, see
+ * {@link ConcurrentAdjacency}, and replaces them by their compacted copy once they are sealed.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ConcurrentVertex extends AbstractConcurrentElement implements IVertex {
+	/**
+	 * The outgoing edges.
+	 */
+	private final AtomicReference<ConcurrentAdjacency> outEdges = new AtomicReference<ConcurrentAdjacency>(
+			new ConcurrentAdjacency());
+
+	/**
+	 * The incoming edges.
+	 */
+	private final AtomicReference<ConcurrentAdjacency> inEdges = new AtomicReference<ConcurrentAdjacency>(
+			new ConcurrentAdjacency());
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param id
+	 *            The identifier of the vertex
+	 */
+	ConcurrentVertex(ConcurrentGraph graph, Object id) {
+		super(graph, id);
+	}
+
+	/**
+	 * Returns the current list of the edges in the given direction.
+	 * 
+	 * @param direction
+	 *            The direction, {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The current list of the edges
+	 */
+	ConcurrentAdjacency getAdjacency(Direction direction) {
+		return this.reference(direction).get();
+	}
+
+	/**
+	 * Appends an edge to the list of the edges in the given direction. If the list is sealed, the append
+	 * helps replacing it by its compacted copy and is retried on the copy.
+	 * 
+	 * @param direction
+	 *            The direction, {@link Direction#OUT} or {@link Direction#IN}
+	 * @param edge
+	 *            The edge
+	 */
+	void append(Direction direction, ConcurrentEdge edge) {
+		AtomicReference<ConcurrentAdjacency> reference = this.reference(direction);
+		ConcurrentAdjacency adjacency = reference.get();
+		while (!adjacency.append(edge)) {
+			reference.compareAndSet(adjacency, adjacency.compact());
+			adjacency = reference.get();
+		}
+	}
+
+	/**
+	 * Counts the removal of an edge of the list in the given direction and compacts the list if needed.
+	 * 
+	 * @param direction
+	 *            The direction, {@link Direction#OUT} or {@link Direction#IN}
+	 */
+	void tombstone(Direction direction) {
+		AtomicReference<ConcurrentAdjacency> reference = this.reference(direction);
+		ConcurrentAdjacency adjacency = reference.get();
+		if (adjacency.tombstone()) {
+			reference.compareAndSet(adjacency, adjacency.compact());
+		}
+	}
+
+	/**
+	 * Returns the reference of the list of the edges in the given direction.
+	 * 
+	 * @param direction
+	 *            The direction, {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The reference of the list of the edges
+	 */
+	private AtomicReference<ConcurrentAdjacency> reference(Direction direction) {
+		AtomicReference<ConcurrentAdjacency> reference = this.inEdges;
+		if (direction == Direction.OUT) {
+			reference = this.outEdges;
+		}
+		return reference;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getEdges(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(Direction direction, String... labels) {
+		return this.query().direction(direction).labels(labels).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getVertices(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(Direction direction, String... labels) {
+		return this.query().direction(direction).labels(labels).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#query()
+	 */
+	@Override
+	public IVertexQuery query() {
+		return new ConcurrentVertexQuery(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#addEdge(java.lang.String, fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public IEdge addEdge(String label, IVertex inVertex) {
+		return this.graph.addEdge(null, this, inVertex, label);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.graph.removeVertex(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "v[" + this.id + "]";
+	}
+}
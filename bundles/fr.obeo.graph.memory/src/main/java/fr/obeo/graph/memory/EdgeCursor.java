@@ -0,0 +1,242 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.internal.ISlotCursor;
+
+/**
+ * A primitive cursor over the slots of the edges incident to a vertex, for some directions and labels. For
+ * each direction, the cursor first reads the compressed segment of the vertex (one binary-searched range per
+ * label) and then its pending list. Removed edges are skipped.
+ * <p>
+ * The cursor is weakly consistent: it never fails if the graph is modified while it is used, but it may or
+ * may not return the edges added in the meantime.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class EdgeCursor implements ISlotCursor {
+	/**
+	 * The graph.
+	 */
+	private final MemoryGraph graph;
+
+	/**
+	 * The slot of the vertex.
+	 */
+	private final int vertex;
+
+	/**
+	 * The proper directions to read.
+	 */
+	private final Direction[] directions;
+
+	/**
+	 * The sorted labels to read or <code>null</code> to read all the labels.
+	 */
+	private final int[] labels;
+
+	/**
+	 * The index of the direction being read.
+	 */
+	private int directionIndex = -1;
+
+	/**
+	 * The adjacency of the direction being read.
+	 */
+	private Adjacency adjacency;
+
+	/**
+	 * The compressed edges of the direction being read.
+	 */
+	private int[] compressed;
+
+	/**
+	 * The compressed offsets of the direction being read.
+	 */
+	private int[] offsets;
+
+	/**
+	 * The number of vertices of the compressed form of the direction being read.
+	 */
+	private int compressedVertices;
+
+	/**
+	 * The index of the next label range to read in the compressed segment, equal to the number of ranges
+	 * once the pending list is being read.
+	 */
+	private int rangeIndex;
+
+	/**
+	 * The next position to read in the current range.
+	 */
+	private int position;
+
+	/**
+	 * The end of the current range.
+	 */
+	private int end;
+
+	/**
+	 * The next pending edge to read.
+	 */
+	private int pending = Adjacency.NONE;
+
+	/**
+	 * The generation of the adjacency when the cursor has started to read the direction.
+	 */
+	private int generation;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param direction
+	 *            The direction of the edges
+	 * @param labels
+	 *            The sorted labels of the edges or <code>null</code> for all the labels
+	 */
+	EdgeCursor(MemoryGraph graph, int vertex, Direction direction, int[] labels) {
+		this.graph = graph;
+		this.vertex = vertex;
+		this.labels = labels;
+		if (Direction.BOTH.equals(direction)) {
+			this.directions = Direction.PROPER_DIRECTIONS;
+		} else {
+			this.directions = new Direction[] {direction, };
+		}
+		this.nextDirection();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.internal.ISlotCursor#next()
+	 */
+	@Override
+	public int next() {
+		int edge = END;
+		while (edge == END && this.adjacency != null) {
+			if (this.position < this.end) {
+				edge = this.compressed[this.position];
+				this.position++;
+			} else if (this.rangeIndex < this.rangeCount()) {
+				this.nextRange();
+			} else if (this.pending != Adjacency.NONE && this.generation == this.adjacency.getGeneration()) {
+				edge = this.pending;
+				this.pending = this.adjacency.nextPending(edge);
+				if (!this.matchesLabel(edge)) {
+					edge = END;
+				}
+			} else {
+				this.nextDirection();
+			}
+			if (edge != END && !this.graph.isEdgeAlive(edge)) {
+				edge = END;
+			}
+		}
+		return edge;
+	}
+
+	/**
+	 * Moves the cursor to the next direction.
+	 */
+	private void nextDirection() {
+		this.directionIndex++;
+		this.adjacency = null;
+		if (this.directionIndex < this.directions.length) {
+			this.adjacency = this.graph.getAdjacency(this.directions[this.directionIndex]);
+			this.generation = this.adjacency.getGeneration();
+			this.compressed = this.adjacency.getEdges();
+			this.offsets = this.adjacency.getOffsets();
+			this.compressedVertices = this.adjacency.getCompressedVertices();
+			this.rangeIndex = 0;
+			this.position = 0;
+			this.end = 0;
+			this.pending = this.adjacency.firstPending(this.vertex);
+		}
+	}
+
+	/**
+	 * Moves the cursor to the next label range of the compressed segment.
+	 */
+	private void nextRange() {
+		int start = 0;
+		int stop = 0;
+		if (this.vertex < this.compressedVertices) {
+			start = this.offsets[this.vertex];
+			stop = this.offsets[this.vertex + 1];
+		}
+		if (this.labels != null && start < stop) {
+			int[] edgeLabels = this.graph.getEdgeLabels();
+			int label = this.labels[this.rangeIndex];
+			start = Adjacency.lowerBound(this.compressed, start, stop, label, edgeLabels);
+			stop = Adjacency.lowerBound(this.compressed, start, stop, label + 1, edgeLabels);
+		}
+		this.position = start;
+		this.end = stop;
+		this.rangeIndex++;
+	}
+
+	/**
+	 * Returns the number of ranges to read in the compressed segment.
+	 * 
+	 * @return The number of ranges to read in the compressed segment
+	 */
+	private int rangeCount() {
+		int count = 1;
+		if (this.labels != null) {
+			count = this.labels.length;
+		}
+		return count;
+	}
+
+	/**
+	 * Indicates if the given edge has one of the labels read by the cursor.
+	 * 
+	 * @param edge
+	 *            The slot of the edge
+	 * @return <code>true</code> if the edge has one of the labels, <code>false</code> otherwise
+	 */
+	private boolean matchesLabel(int edge) {
+		boolean matches = this.labels == null;
+		if (!matches) {
+			int label = this.graph.getEdgeLabels()[edge];
+			for (int i = 0; i < this.labels.length && !matches; i++) {
+				matches = this.labels[i] == label;
+			}
+		}
+		return matches;
+	}
+}
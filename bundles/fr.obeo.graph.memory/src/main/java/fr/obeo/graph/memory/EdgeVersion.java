@@ -0,0 +1,175 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+
+/**
+ * An immutable version of an edge of the multi-version graph, with the number of the commit which last
+ * created the edge or modified its properties.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class EdgeVersion {
+	/**
+	 * The identifier of the edge.
+	 */
+	private final Object id;
+
+	/**
+	 * The identifier of the out vertex.
+	 */
+	private final Object outId;
+
+	/**
+	 * The identifier of the in vertex.
+	 */
+	private final Object inId;
+
+	/**
+	 * The label of the edge.
+	 */
+	private final String label;
+
+	/**
+	 * The properties of the edge.
+	 */
+	private final PersistentMap<String, Object> properties;
+
+	/**
+	 * The number of the commit which last created the edge or modified its properties.
+	 */
+	private final long version;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @param outId
+	 *            The identifier of the out vertex
+	 * @param inId
+	 *            The identifier of the in vertex
+	 * @param label
+	 *            The label of the edge
+	 * @param properties
+	 *            The properties of the edge
+	 * @param version
+	 *            The number of the commit which last created the edge or modified its properties
+	 */
+	EdgeVersion(Object id, Object outId, Object inId, String label, PersistentMap<String, Object> properties,
+			long version) {
+		this.id = id;
+		this.outId = outId;
+		this.inId = inId;
+		this.label = label;
+		this.properties = properties;
+		this.version = version;
+	}
+
+	/**
+	 * Returns the identifier of the edge.
+	 * 
+	 * @return The identifier of the edge
+	 */
+	Object getId() {
+		return this.id;
+	}
+
+	/**
+	 * Returns the identifier of the vertex of the edge in the given direction.
+	 * 
+	 * @param direction
+	 *            The direction, {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The identifier of the vertex
+	 */
+	Object getVertexId(Direction direction) {
+		Object vertexId = this.inId;
+		if (direction == Direction.OUT) {
+			vertexId = this.outId;
+		}
+		return vertexId;
+	}
+
+	/**
+	 * Returns the identifier of the vertex at the other end of the edge.
+	 * 
+	 * @param vertexId
+	 *            The identifier of one of the vertices of the edge
+	 * @return The identifier of the other vertex, the same one for a loop
+	 */
+	Object getOtherVertexId(Object vertexId) {
+		Object other = this.outId;
+		if (this.outId.equals(vertexId)) {
+			other = this.inId;
+		}
+		return other;
+	}
+
+	/**
+	 * Returns the label of the edge.
+	 * 
+	 * @return The label of the edge
+	 */
+	String getLabel() {
+		return this.label;
+	}
+
+	/**
+	 * Returns the properties of the edge.
+	 * 
+	 * @return The properties of the edge
+	 */
+	PersistentMap<String, Object> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * Returns the number of the commit which last created the edge or modified its properties.
+	 * 
+	 * @return The number of the commit
+	 */
+	long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns a version of the edge with the given properties.
+	 * 
+	 * @param newProperties
+	 *            The properties of the edge
+	 * @param newVersion
+	 *            The number of the commit modifying the properties
+	 * @return The new version of the edge
+	 */
+	EdgeVersion withProperties(PersistentMap<String, Object> newProperties, long newVersion) {
+		return new EdgeVersion(this.id, this.outId, this.inId, this.label, newProperties, newVersion);
+	}
+}
@@ -0,0 +1,340 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+
+import java.util.Iterator;
+
+/**
+ * An immutable state of the multi-version graph. The vertices and the edges are stored in persistent maps
+ * by identifier, each modification returns a new snapshot which shares everything but the modified path of
+ * the maps with the previous one, so that the snapshots already published stay valid and can be read by any
+ * number of threads without synchronization.
+ * <p>
+ * The modifications are given the number of the commit they belong to, which becomes the version of the new
+ * snapshot and of the modified vertices and edges. The preconditions of the modifications are checked and
+ * reported with {@link IllegalArgumentException}.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class GraphSnapshot {
+	/**
+	 * The empty snapshot.
+	 */
+	static final GraphSnapshot EMPTY = new GraphSnapshot(0, PersistentMap.<Object, VertexVersion> empty(),
+			PersistentMap.<Object, EdgeVersion> empty());
+
+	/**
+	 * The number of the last commit of the snapshot.
+	 */
+	private final long version;
+
+	/**
+	 * The vertices, by identifier.
+	 */
+	private final PersistentMap<Object, VertexVersion> vertices;
+
+	/**
+	 * The edges, by identifier.
+	 */
+	private final PersistentMap<Object, EdgeVersion> edges;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param version
+	 *            The number of the last commit of the snapshot
+	 * @param vertices
+	 *            The vertices, by identifier
+	 * @param edges
+	 *            The edges, by identifier
+	 */
+	private GraphSnapshot(long version, PersistentMap<Object, VertexVersion> vertices,
+			PersistentMap<Object, EdgeVersion> edges) {
+		this.version = version;
+		this.vertices = vertices;
+		this.edges = edges;
+	}
+
+	/**
+	 * Returns the number of the last commit of the snapshot.
+	 * 
+	 * @return The number of the last commit of the snapshot
+	 */
+	long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns the vertex with the given identifier.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @return The vertex or <code>null</code> if the snapshot does not contain it
+	 */
+	VertexVersion getVertex(Object id) {
+		return this.vertices.get(id);
+	}
+
+	/**
+	 * Returns the edge with the given identifier.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @return The edge or <code>null</code> if the snapshot does not contain it
+	 */
+	EdgeVersion getEdge(Object id) {
+		return this.edges.get(id);
+	}
+
+	/**
+	 * Returns an iterator over the vertices, in no particular order.
+	 * 
+	 * @return An iterator over the vertices
+	 */
+	Iterator<VertexVersion> vertices() {
+		return this.vertices.values();
+	}
+
+	/**
+	 * Returns an iterator over the edges, in no particular order.
+	 * 
+	 * @return An iterator over the edges
+	 */
+	Iterator<EdgeVersion> edges() {
+		return this.edges.values();
+	}
+
+	/**
+	 * Returns the number of vertices.
+	 * 
+	 * @return The number of vertices
+	 */
+	int countVertices() {
+		return this.vertices.size();
+	}
+
+	/**
+	 * Returns the number of edges.
+	 * 
+	 * @return The number of edges
+	 */
+	int countEdges() {
+		return this.edges.size();
+	}
+
+	/**
+	 * Returns a snapshot with a new vertex.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @param commit
+	 *            The number of the commit
+	 * @return The new snapshot
+	 */
+	GraphSnapshot addVertex(Object id, long commit) {
+		if (this.vertices.containsKey(id)) {
+			throw new IllegalArgumentException("Vertex with id already exists: " + id);
+		}
+		return new GraphSnapshot(commit, this.vertices.put(id, new VertexVersion(id, commit)), this.edges);
+	}
+
+	/**
+	 * Returns a snapshot without the given vertex and its incident edges.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @param commit
+	 *            The number of the commit
+	 * @return The new snapshot
+	 */
+	GraphSnapshot removeVertex(Object id, long commit) {
+		VertexVersion vertex = this.existingVertex(id);
+		GraphSnapshot snapshot = this;
+		Iterator<Object> outEdges = vertex.getEdges(Direction.OUT).keys();
+		while (outEdges.hasNext()) {
+			snapshot = snapshot.removeEdge(outEdges.next(), commit);
+		}
+		Iterator<Object> inEdges = vertex.getEdges(Direction.IN).keys();
+		while (inEdges.hasNext()) {
+			Object edgeId = inEdges.next();
+			if (snapshot.edges.containsKey(edgeId)) {
+				snapshot = snapshot.removeEdge(edgeId, commit);
+			}
+		}
+		return new GraphSnapshot(commit, snapshot.vertices.remove(id), snapshot.edges);
+	}
+
+	/**
+	 * Returns a snapshot with a new edge.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @param outId
+	 *            The identifier of the out vertex
+	 * @param inId
+	 *            The identifier of the in vertex
+	 * @param label
+	 *            The label of the edge
+	 * @param commit
+	 *            The number of the commit
+	 * @return The new snapshot
+	 */
+	GraphSnapshot addEdge(Object id, Object outId, Object inId, String label, long commit) {
+		if (this.edges.containsKey(id)) {
+			throw new IllegalArgumentException("Edge with id already exists: " + id);
+		}
+		this.existingVertex(inId);
+		VertexVersion out = this.existingVertex(outId);
+		PersistentMap<Object, String> outEdges = out.getEdges(Direction.OUT).put(id, label);
+		PersistentMap<Object, VertexVersion> newVertices = this.vertices.put(outId,
+				out.withEdges(Direction.OUT, outEdges, commit));
+		VertexVersion in = newVertices.get(inId);
+		PersistentMap<Object, String> inEdges = in.getEdges(Direction.IN).put(id, label);
+		newVertices = newVertices.put(inId, in.withEdges(Direction.IN, inEdges, commit));
+		PersistentMap<String, Object> properties = PersistentMap.empty();
+		EdgeVersion edge = new EdgeVersion(id, outId, inId, label, properties, commit);
+		return new GraphSnapshot(commit, newVertices, this.edges.put(id, edge));
+	}
+
+	/**
+	 * Returns a snapshot without the given edge.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @param commit
+	 *            The number of the commit
+	 * @return The new snapshot
+	 */
+	GraphSnapshot removeEdge(Object id, long commit) {
+		EdgeVersion edge = this.existingEdge(id);
+		PersistentMap<Object, VertexVersion> newVertices = this.vertices;
+		for (Direction direction : new Direction[] {Direction.OUT, Direction.IN }) {
+			VertexVersion vertex = newVertices.get(edge.getVertexId(direction));
+			PersistentMap<Object, String> vertexEdges = vertex.getEdges(direction).remove(id);
+			newVertices = newVertices.put(vertex.getId(), vertex.withEdges(direction, vertexEdges, commit));
+		}
+		return new GraphSnapshot(commit, newVertices, this.edges.remove(id));
+	}
+
+	/**
+	 * Returns a snapshot where a property of a vertex is set or removed.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property or <code>null</code> to remove it
+	 * @param commit
+	 *            The number of the commit
+	 * @return The new snapshot
+	 */
+	GraphSnapshot setVertexProperty(Object id, String key, Object value, long commit) {
+		VertexVersion vertex = this.existingVertex(id);
+		PersistentMap<String, Object> properties = GraphSnapshot.set(vertex.getProperties(), key, value);
+		VertexVersion newVertex = vertex.withProperties(properties, commit);
+		return new GraphSnapshot(commit, this.vertices.put(id, newVertex), this.edges);
+	}
+
+	/**
+	 * Returns a snapshot where a property of an edge is set or removed.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property or <code>null</code> to remove it
+	 * @param commit
+	 *            The number of the commit
+	 * @return The new snapshot
+	 */
+	GraphSnapshot setEdgeProperty(Object id, String key, Object value, long commit) {
+		EdgeVersion edge = this.existingEdge(id);
+		PersistentMap<String, Object> properties = GraphSnapshot.set(edge.getProperties(), key, value);
+		EdgeVersion newEdge = edge.withProperties(properties, commit);
+		return new GraphSnapshot(commit, this.vertices, this.edges.put(id, newEdge));
+	}
+
+	/**
+	 * Returns the properties with the given property set or removed.
+	 * 
+	 * @param properties
+	 *            The properties
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property or <code>null</code> to remove it
+	 * @return The new properties
+	 */
+	private static PersistentMap<String, Object> set(PersistentMap<String, Object> properties, String key,
+			Object value) {
+		PersistentMap<String, Object> newProperties;
+		if (value == null) {
+			newProperties = properties.remove(key);
+		} else {
+			newProperties = properties.put(key, value);
+		}
+		return newProperties;
+	}
+
+	/**
+	 * Returns the vertex with the given identifier, which must exist.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @return The vertex
+	 */
+	private VertexVersion existingVertex(Object id) {
+		VertexVersion vertex = this.vertices.get(id);
+		if (vertex == null) {
+			throw new IllegalArgumentException("The vertex does not exist: " + id);
+		}
+		return vertex;
+	}
+
+	/**
+	 * Returns the edge with the given identifier, which must exist.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @return The edge
+	 */
+	private EdgeVersion existingEdge(Object id) {
+		EdgeVersion edge = this.edges.get(id);
+		if (edge == null) {
+			throw new IllegalArgumentException("The edge does not exist: " + id);
+		}
+		return edge;
+	}
+}
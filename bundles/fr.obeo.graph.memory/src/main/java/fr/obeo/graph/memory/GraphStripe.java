@@ -0,0 +1,89 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A stripe of the striped graph: the vertices whose identifiers hash to the stripe and their outgoing edges,
+ * guarded by the lock of the stripe. The lock also guards the properties and the incident edges of the
+ * vertices of the stripe and the properties of its edges.
+ * <p>
+ * The maps of the stripe are only modified under its write lock but they are concurrent maps, so that the
+ * readers can iterate over them without holding the lock: their iterators are weakly consistent.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class GraphStripe {
+	/**
+	 * The lock of the stripe.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * The vertices of the stripe, by identifier.
+	 */
+	private final Map<Object, StripedVertex> vertices = new ConcurrentHashMap<Object, StripedVertex>();
+
+	/**
+	 * The outgoing edges of the vertices of the stripe, by identifier.
+	 */
+	private final Map<Object, StripedEdge> edges = new ConcurrentHashMap<Object, StripedEdge>();
+
+	/**
+	 * Returns the lock of the stripe.
+	 * 
+	 * @return The lock of the stripe
+	 */
+	ReentrantReadWriteLock getLock() {
+		return this.lock;
+	}
+
+	/**
+	 * Returns the vertices of the stripe, by identifier.
+	 * 
+	 * @return The vertices of the stripe
+	 */
+	Map<Object, StripedVertex> getVertices() {
+		return this.vertices;
+	}
+
+	/**
+	 * Returns the outgoing edges of the vertices of the stripe, by identifier.
+	 * 
+	 * @return The edges of the stripe
+	 */
+	Map<Object, StripedEdge> getEdges() {
+		return this.edges;
+	}
+}
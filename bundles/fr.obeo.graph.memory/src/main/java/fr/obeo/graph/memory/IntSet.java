@@ -0,0 +1,236 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.internal.ISlotCursor;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash set of non negative primitive integers, used to hold the slots of the elements
+ * sharing the same indexed value.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class IntSet {
+	/**
+	 * The marker of a free bucket.
+	 */
+	private static final int FREE = -1;
+
+	/**
+	 * The initial capacity of the set, it must be a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * The constant used to spread the values.
+	 */
+	private static final int HASH_SPREAD = 0x9E3779B9;
+
+	/**
+	 * The shift used to fold the high bits of the hash codes on the low ones.
+	 */
+	private static final int HASH_SHIFT = 16;
+
+	/**
+	 * The buckets of the set.
+	 */
+	private int[] table;
+
+	/**
+	 * The mask used to compute the bucket of a value.
+	 */
+	private int mask;
+
+	/**
+	 * The number of values in the set.
+	 */
+	private int size;
+
+	/**
+	 * The constructor.
+	 */
+	IntSet() {
+		this.table = IntSet.newTable(INITIAL_CAPACITY);
+		this.mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Adds the given value to the set.
+	 * 
+	 * @param value
+	 *            The value, it must not be negative
+	 * @return <code>true</code> if the value has been added, <code>false</code> if it was already present
+	 */
+	boolean add(int value) {
+		int bucket = this.bucket(value);
+		while (this.table[bucket] != FREE && this.table[bucket] != value) {
+			bucket = (bucket + 1) & this.mask;
+		}
+		boolean added = this.table[bucket] == FREE;
+		if (added) {
+			this.table[bucket] = value;
+			this.size++;
+			if (this.size * 2 > this.table.length) {
+				this.rehash(this.table.length * 2);
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Indicates if the set contains the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return <code>true</code> if the set contains the value, <code>false</code> otherwise
+	 */
+	boolean contains(int value) {
+		int bucket = this.bucket(value);
+		while (this.table[bucket] != FREE && this.table[bucket] != value) {
+			bucket = (bucket + 1) & this.mask;
+		}
+		return this.table[bucket] == value;
+	}
+
+	/**
+	 * Removes the given value from the set.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return <code>true</code> if the value has been removed, <code>false</code> if it was not present
+	 */
+	boolean remove(int value) {
+		int bucket = this.bucket(value);
+		while (this.table[bucket] != FREE && this.table[bucket] != value) {
+			bucket = (bucket + 1) & this.mask;
+		}
+		boolean removed = this.table[bucket] == value;
+		if (removed) {
+			int gap = bucket;
+			int current = (gap + 1) & this.mask;
+			while (this.table[current] != FREE) {
+				int ideal = this.bucket(this.table[current]);
+				if (((current - ideal) & this.mask) >= ((current - gap) & this.mask)) {
+					this.table[gap] = this.table[current];
+					gap = current;
+				}
+				current = (current + 1) & this.mask;
+			}
+			this.table[gap] = FREE;
+			this.size--;
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the number of values in the set.
+	 * 
+	 * @return The number of values in the set
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a cursor over the values of the set. The cursor reads the buckets of the set as they were when
+	 * it has been created.
+	 * 
+	 * @return A cursor over the values of the set
+	 */
+	ISlotCursor cursor() {
+		final int[] buckets = this.table;
+		return new ISlotCursor() {
+			/**
+			 * The next bucket to read.
+			 */
+			private int position;
+
+			@Override
+			public int next() {
+				int value = END;
+				while (value == END && this.position < buckets.length) {
+					if (buckets[this.position] != FREE) {
+						value = buckets[this.position];
+					}
+					this.position++;
+				}
+				return value;
+			}
+		};
+	}
+
+	/**
+	 * Returns the ideal bucket of the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The ideal bucket of the value
+	 */
+	private int bucket(int value) {
+		int hash = value * HASH_SPREAD;
+		return (hash ^ (hash >>> HASH_SHIFT)) & this.mask;
+	}
+
+	/**
+	 * Moves all the values of the set in a new table of the given capacity.
+	 * 
+	 * @param capacity
+	 *            The new capacity, a power of two
+	 */
+	private void rehash(int capacity) {
+		int[] old = this.table;
+		this.table = IntSet.newTable(capacity);
+		this.mask = capacity - 1;
+		for (int value : old) {
+			if (value != FREE) {
+				int bucket = this.bucket(value);
+				while (this.table[bucket] != FREE) {
+					bucket = (bucket + 1) & this.mask;
+				}
+				this.table[bucket] = value;
+			}
+		}
+	}
+
+	/**
+	 * Creates a table of free buckets.
+	 * 
+	 * @param capacity
+	 *            The capacity of the table
+	 * @return The new table
+	 */
+	private static int[] newTable(int capacity) {
+		int[] newTable = new int[capacity];
+		Arrays.fill(newTable, FREE);
+		return newTable;
+	}
+}
@@ -0,0 +1,499 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.KeyIndexType;
+import fr.obeo.graph.api.NumericAggregate;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * An index of the values of a property key, mapping each value to the slots of the elements holding it.
+ * <p>
+ * A hash index stores all the values in a hash map. A sorted index stores the {@link Comparable} values in a
+ * tree map, which answers the range lookups, and the other values in a hash map. The tree map orders the
+ * values by class first and then by their natural order, and a range lookup only returns the values of the
+ * class of its bounds. Range lookups are read lazily, one value after the other, so that a query stopped by
+ * its limit only reads the beginning of the range. Since the natural order of a class may be inconsistent
+ * with its equality, the slots returned by a sorted index are candidates which must still be checked
+ * against the filters of the query.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class KeyIndex {
+	/**
+	 * A cursor over no slot.
+	 */
+	static final ISlotCursor EMPTY = new ISlotCursor() {
+		@Override
+		public int next() {
+			return END;
+		}
+	};
+
+	/**
+	 * The maximum number of values of a range read to estimate its number of elements.
+	 */
+	private static final int SAMPLED_VALUES = 64;
+
+	/**
+	 * The ratio of the elements of the index assumed to hold a value in a range which can neither be read
+	 * entirely nor extrapolated from its bounds.
+	 */
+	private static final double UNBOUNDED_RANGE_RATIO = 1.0 / 3;
+
+	/**
+	 * The order of the values of a sorted index: by class name, then by natural order.
+	 */
+	private static final Comparator<Object> VALUE_ORDER = new Comparator<Object>() {
+		@Override
+		public int compare(Object first, Object second) {
+			int result;
+			if (first.getClass() == second.getClass()) {
+				result = PropertyFilter.compare(first, second);
+			} else {
+				result = first.getClass().getName().compareTo(second.getClass().getName());
+			}
+			return result;
+		}
+	};
+
+	/**
+	 * The key of the indexed property.
+	 */
+	private final String key;
+
+	/**
+	 * The type of the index.
+	 */
+	private final KeyIndexType type;
+
+	/**
+	 * The slots of the elements holding each value which is not stored in the sorted entries.
+	 */
+	private final Map<Object, IntSet> entries = new HashMap<Object, IntSet>();
+
+	/**
+	 * The slots of the elements holding each {@link Comparable} value, <code>null</code> for a hash index.
+	 */
+	private final NavigableMap<Object, IntSet> sortedEntries;
+
+	/**
+	 * The number of slots of the index.
+	 */
+	private int size;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param key
+	 *            The key of the indexed property
+	 * @param type
+	 *            The type of the index
+	 */
+	KeyIndex(String key, KeyIndexType type) {
+		this.key = key;
+		this.type = type;
+		if (KeyIndexType.SORTED.equals(type)) {
+			this.sortedEntries = new TreeMap<Object, IntSet>(VALUE_ORDER);
+		} else {
+			this.sortedEntries = null;
+		}
+	}
+
+	/**
+	 * Returns the key of the indexed property.
+	 * 
+	 * @return The key of the indexed property
+	 */
+	String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Returns the type of the index.
+	 * 
+	 * @return The type of the index
+	 */
+	KeyIndexType getType() {
+		return this.type;
+	}
+
+	/**
+	 * Indicates if the index is sorted and can thus answer the range lookups.
+	 * 
+	 * @return <code>true</code> if the index is sorted, <code>false</code> otherwise
+	 */
+	boolean isSorted() {
+		return this.sortedEntries != null;
+	}
+
+	/**
+	 * Returns the number of slots of the index, i.e. the number of elements holding the key.
+	 * 
+	 * @return The number of slots of the index
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Records that the given element holds the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param slot
+	 *            The slot of the element
+	 */
+	void add(Object value, int slot) {
+		Map<Object, IntSet> map = this.mapOf(value);
+		IntSet slots = map.get(value);
+		if (slots == null) {
+			slots = new IntSet();
+			map.put(value, slots);
+		}
+		if (slots.add(slot)) {
+			this.size++;
+		}
+	}
+
+	/**
+	 * Records that the given element does not hold the given value anymore.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param slot
+	 *            The slot of the element
+	 */
+	void remove(Object value, int slot) {
+		Map<Object, IntSet> map = this.mapOf(value);
+		IntSet slots = map.get(value);
+		if (slots != null && slots.remove(slot)) {
+			this.size--;
+			if (slots.size() == 0) {
+				map.remove(value);
+			}
+		}
+	}
+
+	/**
+	 * Returns a cursor over the slots of the elements holding the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return A cursor over the slots of the elements holding the value
+	 */
+	ISlotCursor get(Object value) {
+		ISlotCursor cursor = EMPTY;
+		IntSet slots = this.mapOf(value).get(value);
+		if (slots != null) {
+			cursor = slots.cursor();
+		}
+		return cursor;
+	}
+
+	/**
+	 * Returns the number of elements holding the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The number of elements holding the value
+	 */
+	int count(Object value) {
+		int count = 0;
+		IntSet slots = this.mapOf(value).get(value);
+		if (slots != null) {
+			count = slots.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns a lazy cursor over the slots of the elements holding a value in the given range. The index must
+	 * be sorted.
+	 * 
+	 * @param range
+	 *            The range
+	 * @return A cursor over the slots of the elements holding a value in the range
+	 */
+	ISlotCursor get(ValueRange range) {
+		ISlotCursor cursor = EMPTY;
+		NavigableMap<Object, IntSet> view = this.view(range);
+		if (view != null) {
+			cursor = new RangeCursor(view, range.getValueClass());
+		}
+		return cursor;
+	}
+
+	/**
+	 * Returns the number of elements holding a value in the given range. The index must be sorted.
+	 * 
+	 * @param range
+	 *            The range
+	 * @return The number of elements holding a value in the range
+	 */
+	long count(ValueRange range) {
+		long count = 0;
+		NavigableMap<Object, IntSet> view = this.view(range);
+		if (view != null) {
+			Class<?> valueClass = range.getValueClass();
+			Iterator<Map.Entry<Object, IntSet>> iterator = view.entrySet().iterator();
+			boolean sameClass = true;
+			while (sameClass && iterator.hasNext()) {
+				Map.Entry<Object, IntSet> entry = iterator.next();
+				sameClass = entry.getKey().getClass() == valueClass;
+				if (sameClass) {
+					count = count + entry.getValue().size();
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Adds each indexed value to the given aggregate as many times as there are elements holding it.
+	 * 
+	 * @param aggregate
+	 *            The aggregate
+	 */
+	void aggregate(NumericAggregate aggregate) {
+		for (Map.Entry<Object, IntSet> entry : this.entries.entrySet()) {
+			aggregate.add(entry.getKey(), entry.getValue().size());
+		}
+		if (this.sortedEntries != null) {
+			for (Map.Entry<Object, IntSet> entry : this.sortedEntries.entrySet()) {
+				aggregate.add(entry.getKey(), entry.getValue().size());
+			}
+		}
+	}
+
+	/**
+	 * Puts the number of elements holding each indexed value in the given map. Since a sorted index merges
+	 * the values which are equal according to their natural order, only a hash index gives the exact number
+	 * of elements holding each value.
+	 * 
+	 * @param counts
+	 *            The map of the number of elements holding each value
+	 */
+	void countValues(Map<Object, Long> counts) {
+		for (Map.Entry<Object, IntSet> entry : this.entries.entrySet()) {
+			counts.put(entry.getKey(), Long.valueOf(entry.getValue().size()));
+		}
+		if (this.sortedEntries != null) {
+			for (Map.Entry<Object, IntSet> entry : this.sortedEntries.entrySet()) {
+				counts.put(entry.getKey(), Long.valueOf(entry.getValue().size()));
+			}
+		}
+	}
+
+	/**
+	 * Estimates the number of elements holding a value in the given range, in a time which does not depend
+	 * on the size of the range. The index must be sorted. Only the first values of the range are read: the
+	 * estimate is exact if the range has no more values, otherwise it is extrapolated from the density of
+	 * the values read when the range is bounded by two numbers, or from the size of the index.
+	 * 
+	 * @param range
+	 *            The range
+	 * @return The estimated number of elements holding a value in the range
+	 */
+	long estimate(ValueRange range) {
+		long estimate = 0;
+		NavigableMap<Object, IntSet> view = this.view(range);
+		if (view != null) {
+			Class<?> valueClass = range.getValueClass();
+			Iterator<Map.Entry<Object, IntSet>> iterator = view.entrySet().iterator();
+			Object last = null;
+			int values = 0;
+			boolean sameClass = true;
+			while (sameClass && values < SAMPLED_VALUES && iterator.hasNext()) {
+				Map.Entry<Object, IntSet> entry = iterator.next();
+				sameClass = entry.getKey().getClass() == valueClass;
+				if (sameClass) {
+					estimate = estimate + entry.getValue().size();
+					last = entry.getKey();
+					values++;
+				}
+			}
+			if (sameClass && iterator.hasNext()) {
+				estimate = this.extrapolate(range, last, estimate);
+			}
+		}
+		return estimate;
+	}
+
+	/**
+	 * Extrapolates the number of elements holding a value in the given range from the number of elements
+	 * holding its first values.
+	 * 
+	 * @param range
+	 *            The range
+	 * @param last
+	 *            The last value read
+	 * @param sampled
+	 *            The number of elements holding the values read
+	 * @return The estimated number of elements holding a value in the range
+	 */
+	private long extrapolate(ValueRange range, Object last, long sampled) {
+		double estimate = this.size * UNBOUNDED_RANGE_RATIO;
+		Object lower = range.getLower();
+		Object upper = range.getUpper();
+		if (lower instanceof Number && upper instanceof Number && last instanceof Number) {
+			double lowerValue = ((Number)lower).doubleValue();
+			double sampledWidth = ((Number)last).doubleValue() - lowerValue;
+			if (sampledWidth > 0) {
+				double width = ((Number)upper).doubleValue() - lowerValue;
+				estimate = sampled * (width / sampledWidth);
+			}
+		}
+		return Math.max(sampled, (long)Math.min(this.size, estimate));
+	}
+
+	/**
+	 * Returns the view of the sorted entries covering the given range. A range without lower bound is read
+	 * in descending order so that, in both cases, the values of the class of the range come first.
+	 * 
+	 * @param range
+	 *            The range
+	 * @return The view of the sorted entries covering the range or <code>null</code> if the range is empty
+	 */
+	private NavigableMap<Object, IntSet> view(ValueRange range) {
+		NavigableMap<Object, IntSet> view = null;
+		Object lower = range.getLower();
+		Object upper = range.getUpper();
+		if (lower != null && upper != null) {
+			int order = VALUE_ORDER.compare(lower, upper);
+			if (order < 0 || order == 0 && range.isLowerInclusive() && range.isUpperInclusive()) {
+				view = this.sortedEntries.subMap(lower, range.isLowerInclusive(), upper,
+						range.isUpperInclusive());
+			}
+		} else if (lower != null) {
+			view = this.sortedEntries.tailMap(lower, range.isLowerInclusive());
+		} else {
+			view = this.sortedEntries.headMap(upper, range.isUpperInclusive()).descendingMap();
+		}
+		return view;
+	}
+
+	/**
+	 * Returns the map holding the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return The map holding the value
+	 */
+	private Map<Object, IntSet> mapOf(Object value) {
+		Map<Object, IntSet> map = this.entries;
+		if (this.sortedEntries != null && value instanceof Comparable<?>) {
+			map = this.sortedEntries;
+		}
+		return map;
+	}
+
+	/**
+	 * A lazy cursor over the slots of the values of a view of the sorted entries. The next value is looked up
+	 * in the tree after the previous one each time the slots of a value are exhausted, so the cursor never
+	 * fails if the index is modified while it is used.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class RangeCursor implements ISlotCursor {
+		/**
+		 * The view of the sorted entries.
+		 */
+		private final NavigableMap<Object, IntSet> view;
+
+		/**
+		 * The class of the values to read, the cursor stops at the first value of another class.
+		 */
+		private final Class<?> valueClass;
+
+		/**
+		 * The last value read or <code>null</code> if no value has been read yet.
+		 */
+		private Object value;
+
+		/**
+		 * The cursor over the slots of the last value read.
+		 */
+		private ISlotCursor current = EMPTY;
+
+		/**
+		 * Indicates that all the values have been read.
+		 */
+		private boolean done;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param view
+		 *            The view of the sorted entries
+		 * @param valueClass
+		 *            The class of the values to read
+		 */
+		RangeCursor(NavigableMap<Object, IntSet> view, Class<?> valueClass) {
+			this.view = view;
+			this.valueClass = valueClass;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.api.internal.ISlotCursor#next()
+		 */
+		@Override
+		public int next() {
+			int slot = this.current.next();
+			while (slot == END && !this.done) {
+				Map.Entry<Object, IntSet> entry;
+				if (this.value == null) {
+					entry = this.view.firstEntry();
+				} else {
+					entry = this.view.higherEntry(this.value);
+				}
+				if (entry == null || entry.getKey().getClass() != this.valueClass) {
+					this.done = true;
+				} else {
+					this.value = entry.getKey();
+					this.current = entry.getValue().cursor();
+					slot = this.current.next();
+				}
+			}
+			return slot;
+		}
+	}
+}
@@ -0,0 +1,219 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.IBulkLoader;
+
+/**
+ * The bulk loader of the in-memory graph. The elements are added directly to the tables of the graph, by
+ * slot, without creating any vertex or edge object. The slots of the last vertex and of the last edge used
+ * are remembered so that the usual streams of elements, where the properties of an element follow the
+ * element and where the edges are grouped by out vertex, resolve most identifiers without any lookup.
+ * <p>
+ * While the load is in progress, the graph does not maintain its indexes and does not rebuild its
+ * adjacency. Both are brought up to date once, when the load is committed.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MemoryBulkLoader implements IBulkLoader {
+	/**
+	 * The graph.
+	 */
+	private final MemoryGraph graph;
+
+	/**
+	 * The identifier of the last vertex used.
+	 */
+	private Object lastVertexId;
+
+	/**
+	 * The slot of the last vertex used.
+	 */
+	private int lastVertexSlot;
+
+	/**
+	 * The identifier of the last out vertex of an edge.
+	 */
+	private Object lastOutVertexId;
+
+	/**
+	 * The slot of the last out vertex of an edge.
+	 */
+	private int lastOutVertexSlot;
+
+	/**
+	 * The identifier of the last edge used.
+	 */
+	private Object lastEdgeId;
+
+	/**
+	 * The slot of the last edge used.
+	 */
+	private int lastEdgeSlot;
+
+	/**
+	 * Indicates if the load has been committed.
+	 */
+	private boolean committed;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	MemoryBulkLoader(MemoryGraph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IBulkLoader#addVertex(java.lang.Object)
+	 */
+	@Override
+	public Object addVertex(Object id) {
+		this.checkInProgress();
+		int slot = this.graph.addVertexSlot(id);
+		this.lastVertexId = this.graph.getVertexId(slot);
+		this.lastVertexSlot = slot;
+		return this.lastVertexId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IBulkLoader#addEdge(java.lang.Object, java.lang.Object, java.lang.Object,
+	 *      java.lang.String)
+	 */
+	@Override
+	public Object addEdge(Object id, Object outVertexId, Object inVertexId, String label) {
+		this.checkInProgress();
+		if (outVertexId == null || !outVertexId.equals(this.lastOutVertexId)) {
+			this.lastOutVertexSlot = this.vertexSlot(outVertexId);
+			this.lastOutVertexId = outVertexId;
+		}
+		int slot = this.graph.addEdgeSlot(id, this.lastOutVertexSlot, this.vertexSlot(inVertexId), label);
+		this.lastEdgeId = this.graph.getEdgeId(slot);
+		this.lastEdgeSlot = slot;
+		return this.lastEdgeId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IBulkLoader#setVertexProperty(java.lang.Object, java.lang.String,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public void setVertexProperty(Object vertexId, String key, Object value) {
+		this.checkInProgress();
+		this.graph.getVertexStore().put(this.vertexSlot(vertexId), key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IBulkLoader#setEdgeProperty(java.lang.Object, java.lang.String,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public void setEdgeProperty(Object edgeId, String key, Object value) {
+		this.checkInProgress();
+		if (edgeId == null || !edgeId.equals(this.lastEdgeId)) {
+			int slot = ObjectIntMap.MISSING;
+			if (edgeId != null) {
+				slot = this.graph.findEdgeSlot(edgeId);
+			}
+			if (slot == ObjectIntMap.MISSING) {
+				throw new IllegalArgumentException("The edge does not belong to this graph: " + edgeId);
+			}
+			this.lastEdgeId = edgeId;
+			this.lastEdgeSlot = slot;
+		}
+		this.graph.getEdgeStore().put(this.lastEdgeSlot, key, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IBulkLoader#commit()
+	 */
+	@Override
+	public void commit() {
+		this.checkInProgress();
+		this.committed = true;
+		this.graph.endBulkLoad();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IBulkLoader#close()
+	 */
+	@Override
+	public void close() {
+		if (!this.committed) {
+			this.commit();
+		}
+	}
+
+	/**
+	 * Returns the slot of the vertex with the given identifier.
+	 * 
+	 * @param vertexId
+	 *            The identifier of the vertex
+	 * @return The slot of the vertex
+	 */
+	private int vertexSlot(Object vertexId) {
+		if (vertexId == null || !vertexId.equals(this.lastVertexId)) {
+			int slot = ObjectIntMap.MISSING;
+			if (vertexId != null) {
+				slot = this.graph.findVertexSlot(vertexId);
+			}
+			if (slot == ObjectIntMap.MISSING) {
+				throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertexId);
+			}
+			this.lastVertexId = vertexId;
+			this.lastVertexSlot = slot;
+		}
+		return this.lastVertexSlot;
+	}
+
+	/**
+	 * Checks that the load has not been committed yet.
+	 */
+	private void checkInProgress() {
+		if (this.committed) {
+			throw new IllegalStateException("The bulk load has already been committed");
+		}
+	}
+}
@@ -0,0 +1,1222 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.IBulkLoadableGraph;
+import fr.obeo.graph.api.IBulkLoader;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraphMonitor;
+import fr.obeo.graph.api.IKeyIndexableGraph;
+import fr.obeo.graph.api.IMonitorableGraph;
+import fr.obeo.graph.api.IParallelGraph;
+import fr.obeo.graph.api.IParallelGraphQuery;
+import fr.obeo.graph.api.ISchemaGraph;
+import fr.obeo.graph.api.ISymbol;
+import fr.obeo.graph.api.ISymbolGraph;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexCentricIndexableGraph;
+import fr.obeo.graph.api.KeyIndexType;
+import fr.obeo.graph.api.PropertyType;
+import fr.obeo.graph.api.internal.AbstractLazyIterable;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.Capacities;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.IntList;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory implementation of the graph API built on primitive tables.
+ * <p>
+ * Vertices and edges are identified internally by an integer slot. The identifiers, the endpoints and the
+ * labels of the elements are stored in arrays indexed by slot, labels and property keys are stored as
+ * integers of a dictionary, and the adjacency of the vertices is stored in compressed sparse row form, one
+ * per direction, sorted by label (see {@link Adjacency}). The {@link IVertex} and {@link IEdge} returned by
+ * the graph are lightweight views created on demand, the graph itself does not hold any object per element
+ * besides its identifier and its properties.
+ * </p>
+ * <p>
+ * The compressed adjacency is rebuilt automatically once enough edges have been added or removed since the
+ * last rebuild, the cost of a rebuild is thus amortized over the modifications. It can also be rebuilt
+ * explicitly with {@link #compact()}, for example after a bulk load. The slots of the removed elements are
+ * reused after a rebuild.
+ * </p>
+ * <p>
+ * The properties of the vertices and of the edges can be indexed by key with
+ * {@link #createKeyIndex(String, Class, KeyIndexType)}. The indexes are maintained on each modification of
+ * a property. Hash indexes answer the equality lookups of {@link #getVertices(String, Object)},
+ * {@link #getEdges(String, Object)} and of the graph queries, sorted indexes also answer the intervals and
+ * the ordered {@link fr.obeo.graph.api.Compare} predicates of the graph queries as range scans.
+ * </p>
+ * <p>
+ * The edges incident to each vertex can also be indexed by direction, label and value of a property with
+ * {@link #createVertexCentricIndex(String)}. The vertex queries filtering on an indexed key then only read
+ * the matching edges of the vertex, which matters for the vertices with millions of edges.
+ * </p>
+ * <p>
+ * The property keys declared with {@link #declareProperty(String, Class, PropertyType)} are stored in
+ * primitive arrays indexed by slot instead of the property map of each element. Their values are not boxed
+ * when they are read or written with the typed accessors of {@link fr.obeo.graph.api.ITypedElement}, which
+ * the vertices and the edges implement, nor when they are filtered by the queries.
+ * </p>
+ * <p>
+ * The labels of the edges and the property keys share a table of symbols and are stored as integers. The
+ * symbols resolved once with {@link #getSymbol(String)} can be given to the vertices and the edges, which
+ * implement {@link fr.obeo.graph.api.ISymbolVertex} and {@link fr.obeo.graph.api.ISymbolEdge}, so that the
+ * loops over many elements never look up the strings.
+ * </p>
+ * <p>
+ * Large graphs are loaded faster with {@link #createBulkLoader()}: the loader resolves the identifiers of the
+ * vertices without creating any vertex or edge object, the indexes are rebuilt in a single pass once the
+ * load is committed and the adjacency is compacted once instead of being rebuilt as the edges are added.
+ * </p>
+ * <p>
+ * The elements can be read by several threads at once, either by iterating the partitions of
+ * {@link #getVertexPartitions(int)} and {@link #getEdgePartitions(int)}, which follow the ranges of slots,
+ * or with the parallel operations of the graph queries, as long as the graph is not modified meanwhile.
+ * </p>
+ * <p>
+ * Once a monitor is set with {@link #setMonitor(IGraphMonitor)}, each execution of a query reports the
+ * number of candidates it scanned and of elements it returned, and whether a key index or a vertex-centric
+ * index answered its filters. The parallel operations of the graph queries are not reported.
+ * </p>
+ * <p>
+ * This implementation is not thread safe. Its iterators are weakly consistent: they never fail if the graph
+ * is modified during the iteration but they may or may not reflect the modification.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class MemoryGraph implements IKeyIndexableGraph, IVertexCentricIndexableGraph, IParallelGraph,
+		IBulkLoadableGraph, ISchemaGraph, ISymbolGraph, IMonitorableGraph {
+	/**
+	 * The initial capacity of the tables.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The minimum number of edges added or removed since the last rebuild before a rebuild of the compressed
+	 * adjacency is triggered.
+	 */
+	private static final int MINIMUM_REBUILD = 1024;
+
+	/**
+	 * The message of the exception thrown for null identifiers.
+	 */
+	private static final String NULL_ID = "Element identifiers can not be null";
+
+	/**
+	 * The table of symbols, holding both the labels of the edges and the property keys.
+	 */
+	private final StringDictionary symbols = new StringDictionary();
+
+	/**
+	 * The properties of the vertices.
+	 */
+	private final PropertyStore vertexStore = new PropertyStore(this.symbols);
+
+	/**
+	 * The properties of the edges.
+	 */
+	private final PropertyStore edgeStore = new PropertyStore(this.symbols);
+
+	/**
+	 * The handle of each symbol, created when it is first requested.
+	 */
+	private Symbol[] handles = new Symbol[0];
+
+	/**
+	 * The slot of each vertex identifier.
+	 */
+	private final ObjectIntMap vertexIndex = new ObjectIntMap();
+
+	/**
+	 * The slot of each edge identifier.
+	 */
+	private final ObjectIntMap edgeIndex = new ObjectIntMap();
+
+	/**
+	 * The free vertex slots which can be reused.
+	 */
+	private final IntList freeVertices = new IntList();
+
+	/**
+	 * The free edge slots which can be reused.
+	 */
+	private final IntList freeEdges = new IntList();
+
+	/**
+	 * The outgoing adjacency of the vertices.
+	 */
+	private final Adjacency outAdjacency = new Adjacency();
+
+	/**
+	 * The incoming adjacency of the vertices.
+	 */
+	private final Adjacency inAdjacency = new Adjacency();
+
+	/**
+	 * The identifier of each vertex slot, <code>null</code> for the free slots.
+	 */
+	private Object[] vertexIds = new Object[INITIAL_CAPACITY];
+
+	/**
+	 * The generation of each vertex slot, incremented each time its vertex is removed so that the handles of
+	 * a removed vertex can not reach the vertex which reuses its slot.
+	 */
+	private int[] vertexGenerations = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The number of vertex slots used so far.
+	 */
+	private int vertexSlots;
+
+	/**
+	 * The number of vertices.
+	 */
+	private int vertexCount;
+
+	/**
+	 * The identifier of each edge slot, <code>null</code> for the free slots.
+	 */
+	private Object[] edgeIds = new Object[INITIAL_CAPACITY];
+
+	/**
+	 * The generation of each edge slot, incremented each time its edge is removed so that the handles of a
+	 * removed edge can not reach the edge which reuses its slot.
+	 */
+	private int[] edgeGenerations = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The slot of the out vertex of each edge slot.
+	 */
+	private int[] edgeOut = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The slot of the in vertex of each edge slot.
+	 */
+	private int[] edgeIn = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The label of each edge slot.
+	 */
+	private int[] edgeLabels = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The number of edges of each label integer, used to count the edges by label without reading them.
+	 */
+	private int[] labelCounts = new int[0];
+
+	/**
+	 * The number of edge slots used so far.
+	 */
+	private int edgeSlots;
+
+	/**
+	 * The number of edges.
+	 */
+	private int edgeCount;
+
+	/**
+	 * The number of edges removed since the last rebuild of the compressed adjacency.
+	 */
+	private int removedEdges;
+
+	/**
+	 * The next identifier to generate.
+	 */
+	private long nextId;
+
+	/**
+	 * Indicates if a bulk load is in progress.
+	 */
+	private boolean bulkLoading;
+
+	/**
+	 * The monitor of the graph, <code>null</code> if the graph is not monitored.
+	 */
+	private volatile IGraphMonitor monitor;
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex addVertex(Object id) {
+		return new MemoryVertex(this, this.addVertexSlot(id));
+	}
+
+	/**
+	 * Adds a new vertex.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex or <code>null</code> to generate one
+	 * @return The slot of the vertex
+	 */
+	int addVertexSlot(Object id) {
+		Object vertexId = id;
+		if (vertexId == null) {
+			vertexId = this.generateId(this.vertexIndex);
+		} else if (this.vertexIndex.get(vertexId) != ObjectIntMap.MISSING) {
+			throw new IllegalArgumentException("Vertex with id already exists: " + vertexId);
+		}
+		int slot = this.allocateVertex();
+		this.vertexIds[slot] = vertexId;
+		this.vertexIndex.put(vertexId, slot);
+		this.vertexCount++;
+		return slot;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex getVertex(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IVertex vertex = null;
+		int slot = this.vertexIndex.get(id);
+		if (slot != ObjectIntMap.MISSING) {
+			vertex = new MemoryVertex(this, slot);
+		}
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeVertex(fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public void removeVertex(IVertex vertex) {
+		int slot = this.vertexSlot(vertex);
+		EdgeCursor cursor = new EdgeCursor(this, slot, Direction.BOTH, null);
+		int edge = cursor.next();
+		while (edge != ISlotCursor.END) {
+			this.removeEdgeSlot(edge);
+			edge = cursor.next();
+		}
+		this.vertexIndex.remove(this.vertexIds[slot]);
+		this.vertexIds[slot] = null;
+		this.vertexGenerations[slot]++;
+		this.vertexStore.clear(slot);
+		this.vertexCount--;
+		this.rebuildIfNeeded();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices() {
+		return this.query().vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(String key, Object value) {
+		return this.query().has(key, value).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addEdge(java.lang.Object, fr.obeo.graph.api.IVertex,
+	 *      fr.obeo.graph.api.IVertex, java.lang.String)
+	 */
+	@Override
+	public IEdge addEdge(Object id, IVertex outVertex, IVertex inVertex, String label) {
+		int slot = this.addEdgeSlot(id, this.vertexSlot(outVertex), this.vertexSlot(inVertex), label);
+		this.rebuildIfNeeded();
+		return new MemoryEdge(this, slot);
+	}
+
+	/**
+	 * Adds a new edge to the pending lists of the adjacency, without rebuilding it.
+	 * 
+	 * @param id
+	 *            The identifier of the edge or <code>null</code> to generate one
+	 * @param outSlot
+	 *            The slot of the out vertex
+	 * @param inSlot
+	 *            The slot of the in vertex
+	 * @param label
+	 *            The label of the edge
+	 * @return The slot of the edge
+	 */
+	int addEdgeSlot(Object id, int outSlot, int inSlot, String label) {
+		if (label == null) {
+			throw new IllegalArgumentException("Edge label can not be null");
+		}
+		Object edgeId = id;
+		if (edgeId == null) {
+			edgeId = this.generateId(this.edgeIndex);
+		} else if (this.edgeIndex.get(edgeId) != ObjectIntMap.MISSING) {
+			throw new IllegalArgumentException("Edge with id already exists: " + edgeId);
+		}
+		int slot = this.allocateEdge();
+		this.edgeIds[slot] = edgeId;
+		this.edgeOut[slot] = outSlot;
+		this.edgeIn[slot] = inSlot;
+		int labelId = this.symbols.intern(label);
+		this.edgeLabels[slot] = labelId;
+		if (labelId >= this.labelCounts.length) {
+			this.labelCounts = Arrays.copyOf(this.labelCounts, Capacities.grow(this.labelCounts.length,
+					labelId + 1));
+		}
+		this.labelCounts[labelId]++;
+		this.edgeIndex.put(edgeId, slot);
+		this.outAdjacency.append(outSlot, slot);
+		this.inAdjacency.append(inSlot, slot);
+		this.edgeCount++;
+		return slot;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdge(java.lang.Object)
+	 */
+	@Override
+	public IEdge getEdge(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IEdge edge = null;
+		int slot = this.edgeIndex.get(id);
+		if (slot != ObjectIntMap.MISSING) {
+			edge = new MemoryEdge(this, slot);
+		}
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeEdge(fr.obeo.graph.api.IEdge)
+	 */
+	@Override
+	public void removeEdge(IEdge edge) {
+		if (!(edge instanceof MemoryEdge) || ((MemoryEdge)edge).graph != this) {
+			throw new IllegalArgumentException("The edge does not belong to this graph: " + edge);
+		}
+		MemoryEdge memoryEdge = (MemoryEdge)edge;
+		memoryEdge.checkAlive();
+		this.removeEdgeSlot(memoryEdge.getSlot());
+		this.rebuildIfNeeded();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges() {
+		return this.query().edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(String key, Object value) {
+		return this.query().has(key, value).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraph#query()
+	 */
+	@Override
+	public IParallelGraphQuery query() {
+		return new MemoryGraphQuery(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraph#getVertexPartitions(int)
+	 */
+	@Override
+	public List<ICloseableIterable<IVertex>> getVertexPartitions(int count) {
+		List<ICloseableIterable<IVertex>> partitions = new ArrayList<ICloseableIterable<IVertex>>();
+		int[] bounds = MemoryGraph.partition(this.vertexSlots, count);
+		for (int i = 0; i < bounds.length - 1; i++) {
+			final int start = bounds[i];
+			final int end = bounds[i + 1];
+			partitions.add(new AbstractLazyIterable<IVertex>() {
+				@Override
+				protected AbstractLazyIterator<IVertex> open() {
+					MemoryGraph graph = MemoryGraph.this;
+					ISlotCursor cursor = new SlotRangeCursor(graph, true, start, end);
+					return new VertexIterator(graph, cursor, graph.acceptAll(), Long.MAX_VALUE);
+				}
+			});
+		}
+		return partitions;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraph#getEdgePartitions(int)
+	 */
+	@Override
+	public List<ICloseableIterable<IEdge>> getEdgePartitions(int count) {
+		List<ICloseableIterable<IEdge>> partitions = new ArrayList<ICloseableIterable<IEdge>>();
+		int[] bounds = MemoryGraph.partition(this.edgeSlots, count);
+		for (int i = 0; i < bounds.length - 1; i++) {
+			final int start = bounds[i];
+			final int end = bounds[i + 1];
+			partitions.add(new AbstractLazyIterable<IEdge>() {
+				@Override
+				protected AbstractLazyIterator<IEdge> open() {
+					MemoryGraph graph = MemoryGraph.this;
+					ISlotCursor cursor = new SlotRangeCursor(graph, false, start, end);
+					return new EdgeIterator(graph, cursor, graph.acceptAll(), Long.MAX_VALUE);
+				}
+			});
+		}
+		return partitions;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		// Nothing to release, the graph only lives in memory
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IKeyIndexableGraph#createKeyIndex(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public void createKeyIndex(String key, Class<?> elementClass) {
+		PropertyStore store = this.getStore(elementClass);
+		if (!store.isIndexed(key)) {
+			store.createIndex(key, KeyIndexType.HASH);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IKeyIndexableGraph#createKeyIndex(java.lang.String, java.lang.Class,
+	 *      fr.obeo.graph.api.KeyIndexType)
+	 */
+	@Override
+	public void createKeyIndex(String key, Class<?> elementClass, KeyIndexType type) {
+		if (type == null) {
+			throw new IllegalArgumentException("The type of the index can not be null");
+		}
+		this.getStore(elementClass).createIndex(key, type);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IKeyIndexableGraph#dropKeyIndex(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public void dropKeyIndex(String key, Class<?> elementClass) {
+		this.getStore(elementClass).dropIndex(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IKeyIndexableGraph#getIndexedKeys(java.lang.Class)
+	 */
+	@Override
+	public Set<String> getIndexedKeys(Class<?> elementClass) {
+		return this.getStore(elementClass).getIndexedKeys();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexCentricIndexableGraph#createVertexCentricIndex(java.lang.String)
+	 */
+	@Override
+	public void createVertexCentricIndex(String key) {
+		this.edgeStore.createVertexCentricIndex(new VertexCentricIndex(this, key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexCentricIndexableGraph#dropVertexCentricIndex(java.lang.String)
+	 */
+	@Override
+	public void dropVertexCentricIndex(String key) {
+		this.edgeStore.dropVertexCentricIndex(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexCentricIndexableGraph#getVertexCentricIndexedKeys()
+	 */
+	@Override
+	public Set<String> getVertexCentricIndexedKeys() {
+		return this.edgeStore.getVertexCentricIndexedKeys();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISchemaGraph#declareProperty(java.lang.String, java.lang.Class,
+	 *      fr.obeo.graph.api.PropertyType)
+	 */
+	@Override
+	public void declareProperty(String key, Class<?> elementClass, PropertyType type) {
+		this.getStore(elementClass).declare(key, type);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISchemaGraph#getPropertyType(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public PropertyType getPropertyType(String key, Class<?> elementClass) {
+		return this.getStore(elementClass).getType(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISchemaGraph#getDeclaredKeys(java.lang.Class)
+	 */
+	@Override
+	public Set<String> getDeclaredKeys(Class<?> elementClass) {
+		return this.getStore(elementClass).getDeclaredKeys();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISymbolGraph#getSymbol(java.lang.String)
+	 */
+	@Override
+	public ISymbol getSymbol(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("The name of a symbol can not be null");
+		}
+		return this.symbol(this.symbols.intern(name));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISymbolGraph#findSymbol(java.lang.String)
+	 */
+	@Override
+	public ISymbol findSymbol(String name) {
+		ISymbol symbol = null;
+		int id = ObjectIntMap.MISSING;
+		if (name != null) {
+			id = this.symbols.lookup(name);
+		}
+		if (id != ObjectIntMap.MISSING) {
+			symbol = this.symbol(id);
+		}
+		return symbol;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IBulkLoadableGraph#createBulkLoader()
+	 */
+	@Override
+	public IBulkLoader createBulkLoader() {
+		if (this.bulkLoading) {
+			throw new IllegalStateException("A bulk load is already in progress");
+		}
+		this.bulkLoading = true;
+		this.vertexStore.suspendIndexes();
+		this.edgeStore.suspendIndexes();
+		return new MemoryBulkLoader(this);
+	}
+
+	/**
+	 * Ends the bulk load in progress: the indexes are rebuilt and the adjacency is compacted.
+	 */
+	void endBulkLoad() {
+		this.vertexStore.resumeIndexes();
+		this.edgeStore.resumeIndexes();
+		this.bulkLoading = false;
+		this.compact();
+	}
+
+	/**
+	 * Rebuilds the compressed adjacency of the graph, merging the edges added and dropping the edges removed
+	 * since the last rebuild. The slots of the removed elements become reusable.
+	 */
+	public void compact() {
+		int labelCount = this.symbols.size();
+		this.outAdjacency.rebuild(this.vertexSlots, this.edgeSlots, this.edgeOut, this.edgeLabels,
+				this.edgeIds, labelCount);
+		this.inAdjacency.rebuild(this.vertexSlots, this.edgeSlots, this.edgeIn, this.edgeLabels, this.edgeIds,
+				labelCount);
+		this.removedEdges = 0;
+
+		this.freeVertices.clear();
+		for (int slot = this.vertexSlots - 1; slot >= 0; slot--) {
+			if (this.vertexIds[slot] == null) {
+				this.freeVertices.add(slot);
+			}
+		}
+		this.freeEdges.clear();
+		for (int slot = this.edgeSlots - 1; slot >= 0; slot--) {
+			if (this.edgeIds[slot] == null) {
+				this.freeEdges.add(slot);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IMonitorableGraph#setMonitor(fr.obeo.graph.api.IGraphMonitor)
+	 */
+	@Override
+	public void setMonitor(IGraphMonitor newMonitor) {
+		this.monitor = newMonitor;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IMonitorableGraph#getMonitor()
+	 */
+	@Override
+	public IGraphMonitor getMonitor() {
+		return this.monitor;
+	}
+
+	/**
+	 * Returns the number of vertices of the graph.
+	 * 
+	 * @return The number of vertices of the graph
+	 */
+	public long countVertices() {
+		return this.vertexCount;
+	}
+
+	/**
+	 * Returns the number of edges of the graph.
+	 * 
+	 * @return The number of edges of the graph
+	 */
+	public long countEdges() {
+		return this.edgeCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "memorygraph[vertices:" + this.vertexCount + " edges:" + this.edgeCount + "]";
+	}
+
+	/**
+	 * Returns the properties of the vertices.
+	 * 
+	 * @return The properties of the vertices
+	 */
+	PropertyStore getVertexStore() {
+		return this.vertexStore;
+	}
+
+	/**
+	 * Returns the properties of the edges.
+	 * 
+	 * @return The properties of the edges
+	 */
+	PropertyStore getEdgeStore() {
+		return this.edgeStore;
+	}
+
+	/**
+	 * Returns the table of symbols, holding both the labels and the property keys.
+	 * 
+	 * @return The table of symbols
+	 */
+	StringDictionary getSymbols() {
+		return this.symbols;
+	}
+
+	/**
+	 * Returns the handle of the given symbol.
+	 * 
+	 * @param id
+	 *            The integer of the symbol
+	 * @return The handle of the symbol
+	 */
+	Symbol symbol(int id) {
+		if (id >= this.handles.length) {
+			this.handles = Arrays.copyOf(this.handles, Capacities.grow(this.handles.length, id + 1));
+		}
+		Symbol handle = this.handles[id];
+		if (handle == null) {
+			handle = new Symbol(this, this.symbols.get(id), id);
+			this.handles[id] = handle;
+		}
+		return handle;
+	}
+
+	/**
+	 * Returns the integer of the given symbol, checking that it has been resolved by this graph.
+	 * 
+	 * @param symbol
+	 *            The symbol
+	 * @return The integer of the symbol
+	 */
+	int symbolId(ISymbol symbol) {
+		if (!(symbol instanceof Symbol) || ((Symbol)symbol).getGraph() != this) {
+			throw new IllegalArgumentException("The symbol does not belong to this graph: " + symbol);
+		}
+		return symbol.getId();
+	}
+
+	/**
+	 * Returns the sorted integers of the given symbols without duplicates.
+	 * 
+	 * @param labels
+	 *            The symbols
+	 * @return The sorted integers of the symbols or <code>null</code> if no symbol has been given
+	 */
+	int[] symbolIds(ISymbol[] labels) {
+		int[] ids = null;
+		if (labels != null && labels.length > 0) {
+			IntList found = new IntList(labels.length);
+			for (ISymbol label : labels) {
+				int id = this.symbolId(label);
+				if (found.indexOf(id) < 0) {
+					found.add(id);
+				}
+			}
+			ids = found.toArray();
+			Arrays.sort(ids);
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the adjacency of the given proper direction.
+	 * 
+	 * @param direction
+	 *            The direction, either {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The adjacency of the direction
+	 */
+	Adjacency getAdjacency(Direction direction) {
+		Adjacency adjacency = this.inAdjacency;
+		if (Direction.OUT.equals(direction)) {
+			adjacency = this.outAdjacency;
+		}
+		return adjacency;
+	}
+
+	/**
+	 * Returns the label of each edge slot.
+	 * 
+	 * @return The label of each edge slot
+	 */
+	int[] getEdgeLabels() {
+		return this.edgeLabels;
+	}
+
+	/**
+	 * Returns the number of vertex slots used so far.
+	 * 
+	 * @return The number of vertex slots used so far
+	 */
+	int getVertexSlots() {
+		return this.vertexSlots;
+	}
+
+	/**
+	 * Returns the number of edge slots used so far.
+	 * 
+	 * @return The number of edge slots used so far
+	 */
+	int getEdgeSlots() {
+		return this.edgeSlots;
+	}
+
+	/**
+	 * Indicates if the given vertex slot holds a vertex.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return <code>true</code> if the slot holds a vertex, <code>false</code> otherwise
+	 */
+	boolean isVertexAlive(int slot) {
+		return this.vertexIds[slot] != null;
+	}
+
+	/**
+	 * Returns the generation of the given vertex slot, i.e. the number of vertices removed from it.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return The generation of the slot
+	 */
+	int getVertexGeneration(int slot) {
+		return this.vertexGenerations[slot];
+	}
+
+	/**
+	 * Returns the generation of the given edge slot, i.e. the number of edges removed from it.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return The generation of the slot
+	 */
+	int getEdgeGeneration(int slot) {
+		return this.edgeGenerations[slot];
+	}
+
+	/**
+	 * Indicates if the given edge slot holds an edge.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return <code>true</code> if the slot holds an edge, <code>false</code> otherwise
+	 */
+	boolean isEdgeAlive(int slot) {
+		return this.edgeIds[slot] != null;
+	}
+
+	/**
+	 * Returns the slot of the vertex with the given identifier.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @return The slot of the vertex or {@link ObjectIntMap#MISSING} if there is no such vertex
+	 */
+	int findVertexSlot(Object id) {
+		return this.vertexIndex.get(id);
+	}
+
+	/**
+	 * Returns the slot of the edge with the given identifier.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @return The slot of the edge or {@link ObjectIntMap#MISSING} if there is no such edge
+	 */
+	int findEdgeSlot(Object id) {
+		return this.edgeIndex.get(id);
+	}
+
+	/**
+	 * Returns the identifier of the given vertex.
+	 * 
+	 * @param slot
+	 *            The slot of the vertex
+	 * @return The identifier of the vertex
+	 */
+	Object getVertexId(int slot) {
+		return this.vertexIds[slot];
+	}
+
+	/**
+	 * Returns the identifier of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @return The identifier of the edge
+	 */
+	Object getEdgeId(int slot) {
+		return this.edgeIds[slot];
+	}
+
+	/**
+	 * Returns the integer of the label of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @return The integer of the label of the edge in the table of symbols
+	 */
+	int getEdgeLabelId(int slot) {
+		return this.edgeLabels[slot];
+	}
+
+	/**
+	 * Returns the number of edges of each label having at least one edge.
+	 * 
+	 * @return The number of edges of each label
+	 */
+	Map<String, Long> countEdgesByLabel() {
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (int labelId = 0; labelId < this.labelCounts.length; labelId++) {
+			if (this.labelCounts[labelId] > 0) {
+				counts.put(this.symbols.get(labelId), Long.valueOf(this.labelCounts[labelId]));
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the label of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @return The label of the edge
+	 */
+	String getEdgeLabel(int slot) {
+		return this.symbols.get(this.edgeLabels[slot]);
+	}
+
+	/**
+	 * Returns the slot of the out or in vertex of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @param direction
+	 *            Either {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The slot of the vertex
+	 */
+	int getEdgeVertex(int slot, Direction direction) {
+		int vertex = this.edgeIn[slot];
+		if (Direction.OUT.equals(direction)) {
+			vertex = this.edgeOut[slot];
+		}
+		return vertex;
+	}
+
+	/**
+	 * Splits the given number of slots in at most the given number of ranges of similar size. The last range
+	 * is open so that the elements added after the partitioning are part of it.
+	 * 
+	 * @param slots
+	 *            The number of slots
+	 * @param count
+	 *            The maximum number of ranges
+	 * @return The bounds of the ranges, the range <code>i</code> going from <code>bounds[i]</code> inclusive
+	 *         to <code>bounds[i + 1]</code> exclusive
+	 */
+	private static int[] partition(int slots, int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("The number of partitions must be at least 1: " + count);
+		}
+		int ranges = Math.max(1, Math.min(count, slots));
+		int[] bounds = new int[ranges + 1];
+		for (int i = 1; i < ranges; i++) {
+			bounds[i] = (int)((long)slots * i / ranges);
+		}
+		bounds[ranges] = Integer.MAX_VALUE;
+		return bounds;
+	}
+
+	/**
+	 * Creates a matcher accepting all the elements.
+	 * 
+	 * @return A matcher accepting all the elements
+	 */
+	private PropertyMatcher acceptAll() {
+		return new PropertyMatcher(Collections.<PropertyFilter> emptyList(), this.symbols);
+	}
+
+	/**
+	 * Returns the slot of the vertex at the other end of the given edge.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 * @param vertex
+	 *            The slot of one of the vertices of the edge
+	 * @return The slot of the other vertex of the edge, the vertex itself for a loop
+	 */
+	int getOtherVertex(int slot, int vertex) {
+		int other = this.edgeOut[slot];
+		if (other == vertex) {
+			other = this.edgeIn[slot];
+		}
+		return other;
+	}
+
+	/**
+	 * Returns the slot of the given vertex, checking that it is a live vertex of this graph.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The slot of the vertex
+	 */
+	private int vertexSlot(IVertex vertex) {
+		if (!(vertex instanceof MemoryVertex) || ((MemoryVertex)vertex).graph != this) {
+			throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertex);
+		}
+		MemoryVertex memoryVertex = (MemoryVertex)vertex;
+		memoryVertex.checkAlive();
+		return memoryVertex.getSlot();
+	}
+
+	/**
+	 * Returns the properties of the elements of the given class.
+	 * 
+	 * @param elementClass
+	 *            {@link IVertex}.class or {@link IEdge}.class
+	 * @return The properties of the elements of the class
+	 */
+	private PropertyStore getStore(Class<?> elementClass) {
+		PropertyStore store;
+		if (IVertex.class.equals(elementClass)) {
+			store = this.vertexStore;
+		} else if (IEdge.class.equals(elementClass)) {
+			store = this.edgeStore;
+		} else {
+			throw new IllegalArgumentException("The element class must be IVertex or IEdge: " + elementClass);
+		}
+		return store;
+	}
+
+	/**
+	 * Removes the given edge without rebuilding the compressed adjacency.
+	 * 
+	 * @param slot
+	 *            The slot of the edge
+	 */
+	private void removeEdgeSlot(int slot) {
+		this.edgeIndex.remove(this.edgeIds[slot]);
+		this.edgeIds[slot] = null;
+		this.edgeGenerations[slot]++;
+		this.edgeStore.clear(slot);
+		this.labelCounts[this.edgeLabels[slot]]--;
+		this.edgeCount--;
+		this.removedEdges++;
+	}
+
+	/**
+	 * Rebuilds the compressed adjacency if the number of edges added or removed since the last rebuild
+	 * represents a significant part of the graph, unless a bulk load is in progress.
+	 */
+	private void rebuildIfNeeded() {
+		long modified = (long)this.outAdjacency.getPendingCount() + this.removedEdges;
+		if (!this.bulkLoading && modified > MINIMUM_REBUILD && modified > this.edgeCount >> 1) {
+			this.compact();
+		}
+	}
+
+	/**
+	 * Returns a free vertex slot, growing the vertex tables if necessary.
+	 * 
+	 * @return A free vertex slot
+	 */
+	private int allocateVertex() {
+		int slot;
+		if (this.freeVertices.isEmpty()) {
+			slot = this.vertexSlots;
+			if (slot == this.vertexIds.length) {
+				int capacity = Capacities.grow(this.vertexIds.length, slot + 1);
+				this.vertexIds = Arrays.copyOf(this.vertexIds, capacity);
+				this.vertexGenerations = Arrays.copyOf(this.vertexGenerations, capacity);
+			}
+			this.vertexSlots++;
+		} else {
+			slot = this.freeVertices.removeLast();
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns a free edge slot, growing the edge tables if necessary.
+	 * 
+	 * @return A free edge slot
+	 */
+	private int allocateEdge() {
+		int slot;
+		if (this.freeEdges.isEmpty()) {
+			slot = this.edgeSlots;
+			if (slot == this.edgeIds.length) {
+				int capacity = Capacities.grow(this.edgeIds.length, slot + 1);
+				this.edgeIds = Arrays.copyOf(this.edgeIds, capacity);
+				this.edgeGenerations = Arrays.copyOf(this.edgeGenerations, capacity);
+				this.edgeOut = Arrays.copyOf(this.edgeOut, capacity);
+				this.edgeIn = Arrays.copyOf(this.edgeIn, capacity);
+				this.edgeLabels = Arrays.copyOf(this.edgeLabels, capacity);
+			}
+			this.edgeSlots++;
+		} else {
+			slot = this.freeEdges.removeLast();
+		}
+		return slot;
+	}
+
+	/**
+	 * Generates an identifier which is not used yet.
+	 * 
+	 * @param index
+	 *            The index of the identifiers in use
+	 * @return A new identifier
+	 */
+	private Object generateId(ObjectIntMap index) {
+		Long id = Long.valueOf(this.nextId);
+		this.nextId++;
+		while (index.get(id) != ObjectIntMap.MISSING) {
+			id = Long.valueOf(this.nextId);
+			this.nextId++;
+		}
+		return id;
+	}
+}
@@ -0,0 +1,439 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Aggregations;
+import fr.obeo.graph.api.GraphOperation;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElementProcedure;
+import fr.obeo.graph.api.IParallelGraphQuery;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.NumericAggregate;
+import fr.obeo.graph.api.internal.AbstractLazyIterable;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A query over all the elements of the in-memory graph. Each execution is planned by the
+ * {@link QueryPlanner} for the current state of the graph, so that the filters on the indexed keys are
+ * answered by the key indexes. The results can be iterated lazily or processed in parallel by a fork/join
+ * pool, the scans being split in ranges of slots.
+ * <p>
+ * The counts and the aggregations never create the elements. Without filter nor limit, they are answered by
+ * the counters of the graph, the typed columns or the hash indexes of the keys, otherwise they read the
+ * properties of the accepted slots.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MemoryGraphQuery extends AbstractMemoryQuery implements IParallelGraphQuery {
+	/**
+	 * The name of the key indexes reported to the monitor of the graph.
+	 */
+	private static final String KEY_INDEX = "MemoryGraph.keyIndex";
+
+	/**
+	 * The operation reported to the monitor of the graph by the counts and the aggregations.
+	 */
+	private static final GraphOperation AGGREGATE = GraphOperation.GRAPH_QUERY_AGGREGATE;
+
+	/**
+	 * The procedure ignoring the slots, used to count the elements.
+	 */
+	private static final ISlotProcedure IGNORE = new ISlotProcedure() {
+		@Override
+		public void apply(int slot) {
+			// nothing to do, the scan counts the slots
+		}
+	};
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 */
+	MemoryGraphQuery(MemoryGraph graph) {
+		super(graph);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#has(java.lang.String)
+	 */
+	@Override
+	public IParallelGraphQuery has(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	public IParallelGraphQuery hasNot(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS_NOT, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IParallelGraphQuery has(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IParallelGraphQuery hasNot(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.NOT_EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public IParallelGraphQuery has(String key, IPredicate predicate, Object value) {
+		this.addFilter(PropertyFilter.predicate(key, predicate, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#interval(java.lang.String, java.lang.Comparable,
+	 *      java.lang.Comparable)
+	 */
+	@Override
+	public IParallelGraphQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		this.addFilter(PropertyFilter.interval(key, startValue, endValue));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#limit(int)
+	 */
+	@Override
+	public IParallelGraphQuery limit(int max) {
+		this.setLimit(max);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#edges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> edges() {
+		return new AbstractLazyIterable<IEdge>() {
+			@Override
+			protected AbstractLazyIterator<IEdge> open() {
+				MemoryGraphQuery query = MemoryGraphQuery.this;
+				QueryPlan plan = QueryPlanner.plan(query.graph, false, query.filters, query.limit);
+				PropertyMatcher matcher = plan.createMatcher(query.graph.getSymbols());
+				ISlotCursor cursor = query.open(plan);
+				AbstractLazyIterator<IEdge> iterator = new EdgeIterator(query.graph, cursor, matcher,
+						plan.getLimit());
+				return query.monitor(GraphOperation.GRAPH_QUERY_EDGES, KEY_INDEX, plan, cursor, iterator);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#vertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> vertices() {
+		return new AbstractLazyIterable<IVertex>() {
+			@Override
+			protected AbstractLazyIterator<IVertex> open() {
+				MemoryGraphQuery query = MemoryGraphQuery.this;
+				QueryPlan plan = QueryPlanner.plan(query.graph, true, query.filters, query.limit);
+				PropertyMatcher matcher = plan.createMatcher(query.graph.getSymbols());
+				ISlotCursor cursor = query.open(plan);
+				AbstractLazyIterator<IVertex> iterator = new VertexIterator(query.graph, cursor, matcher,
+						plan.getLimit());
+				return query.monitor(GraphOperation.GRAPH_QUERY_VERTICES, KEY_INDEX, plan, cursor, iterator);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#forEachVertex(java.util.concurrent.ForkJoinPool,
+	 *      fr.obeo.graph.api.IElementProcedure)
+	 */
+	@Override
+	public void forEachVertex(ForkJoinPool pool, IElementProcedure<? super IVertex> procedure) {
+		QueryPlan plan = QueryPlanner.plan(this.graph, true, this.filters, this.limit);
+		pool.invoke(ParallelSlotTask.vertices(this.graph, plan, procedure));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IParallelGraphQuery#forEachEdge(java.util.concurrent.ForkJoinPool,
+	 *      fr.obeo.graph.api.IElementProcedure)
+	 */
+	@Override
+	public void forEachEdge(ForkJoinPool pool, IElementProcedure<? super IEdge> procedure) {
+		QueryPlan plan = QueryPlanner.plan(this.graph, false, this.filters, this.limit);
+		pool.invoke(ParallelSlotTask.edges(this.graph, plan, procedure));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#count(java.lang.Class)
+	 */
+	@Override
+	public long count(Class<?> elementClass) {
+		boolean vertices = MemoryGraphQuery.isVertexClass(elementClass);
+		QueryPlan plan = QueryPlanner.plan(this.graph, vertices, this.filters, this.limit);
+		long count = plan.count();
+		if (count == AccessPath.UNKNOWN && !plan.hasFilters()) {
+			if (vertices) {
+				count = Math.min(this.graph.countVertices(), plan.getLimit());
+			} else {
+				count = Math.min(this.graph.countEdges(), plan.getLimit());
+			}
+			this.recordScan(AGGREGATE, KEY_INDEX, plan, 0, count);
+		} else if (count == AccessPath.UNKNOWN) {
+			count = this.scan(plan, vertices, AGGREGATE, KEY_INDEX, IGNORE);
+		} else {
+			this.recordScan(AGGREGATE, KEY_INDEX, plan, 0, count);
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#min(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Number min(String key, Class<?> elementClass) {
+		return this.aggregate(key, elementClass).getMin();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#max(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Number max(String key, Class<?> elementClass) {
+		return this.aggregate(key, elementClass).getMax();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#sum(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Number sum(String key, Class<?> elementClass) {
+		return this.aggregate(key, elementClass).getSum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#countBy(java.lang.String, java.lang.Class)
+	 */
+	@Override
+	public Map<Object, Long> countBy(String key, Class<?> elementClass) {
+		PropertyStore.validate(key);
+		boolean vertices = MemoryGraphQuery.isVertexClass(elementClass);
+		QueryPlan plan = QueryPlanner.plan(this.graph, vertices, this.filters, this.limit);
+		final PropertyStore store = this.store(vertices);
+		final int keyId = store.getKeys().lookup(key);
+		final Map<Object, Long> counts = new HashMap<Object, Long>();
+		if (keyId != ObjectIntMap.MISSING) {
+			KeyIndex index = store.getIndex(keyId);
+			if (this.isUnrestricted(plan) && index != null && !index.isSorted()) {
+				index.countValues(counts);
+				this.recordScan(AGGREGATE, KEY_INDEX, plan, 0, index.size());
+			} else {
+				this.scan(plan, vertices, AGGREGATE, KEY_INDEX, new ISlotProcedure() {
+					@Override
+					public void apply(int slot) {
+						Aggregations.increment(counts, store.get(slot, keyId));
+					}
+				});
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphQuery#countByLabel()
+	 */
+	@Override
+	public Map<String, Long> countByLabel() {
+		QueryPlan plan = QueryPlanner.plan(this.graph, false, this.filters, this.limit);
+		final Map<String, Long> counts;
+		if (this.isUnrestricted(plan)) {
+			counts = this.graph.countEdgesByLabel();
+			this.recordScan(AGGREGATE, KEY_INDEX, plan, 0, this.graph.countEdges());
+		} else {
+			counts = new HashMap<String, Long>();
+			final MemoryGraph memoryGraph = this.graph;
+			this.scan(plan, false, AGGREGATE, KEY_INDEX, new ISlotProcedure() {
+				@Override
+				public void apply(int slot) {
+					Aggregations.increment(counts, memoryGraph.getEdgeLabel(slot));
+				}
+			});
+		}
+		return counts;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		return QueryPlanner.plan(this.graph, true, this.filters, this.limit) + "\n"
+				+ QueryPlanner.plan(this.graph, false, this.filters, this.limit);
+	}
+
+	/**
+	 * Aggregates the numeric values of the given key of the elements of the query. Without filter nor limit,
+	 * the values are read from the column of the key if it is declared or from its index if it is indexed.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param elementClass
+	 *            The class of the elements, {@link IVertex} or {@link IEdge}
+	 * @return The aggregate of the values
+	 */
+	private NumericAggregate aggregate(String key, Class<?> elementClass) {
+		PropertyStore.validate(key);
+		boolean vertices = MemoryGraphQuery.isVertexClass(elementClass);
+		QueryPlan plan = QueryPlanner.plan(this.graph, vertices, this.filters, this.limit);
+		final PropertyStore store = this.store(vertices);
+		final int keyId = store.getKeys().lookup(key);
+		final NumericAggregate aggregate = new NumericAggregate();
+		if (keyId != ObjectIntMap.MISSING) {
+			PropertyColumn column = store.column(keyId);
+			KeyIndex index = store.getIndex(keyId);
+			if (this.isUnrestricted(plan) && column != null) {
+				column.aggregate(aggregate);
+				this.recordScan(AGGREGATE, KEY_INDEX, plan, 0, aggregate.getCount());
+			} else if (this.isUnrestricted(plan) && index != null) {
+				index.aggregate(aggregate);
+				this.recordScan(AGGREGATE, KEY_INDEX, plan, 0, aggregate.getCount());
+			} else {
+				this.scan(plan, vertices, AGGREGATE, KEY_INDEX, new ISlotProcedure() {
+					@Override
+					public void apply(int slot) {
+						store.aggregate(slot, keyId, aggregate);
+					}
+				});
+			}
+		}
+		return aggregate;
+	}
+
+	/**
+	 * Indicates if the given plan has neither filter nor limit, in which case it accepts all the elements.
+	 * 
+	 * @param plan
+	 *            The plan
+	 * @return <code>true</code> if the plan accepts all the elements, <code>false</code> otherwise
+	 */
+	private boolean isUnrestricted(QueryPlan plan) {
+		return !plan.hasFilters() && plan.getLimit() == Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the properties of the vertices or of the edges.
+	 * 
+	 * @param vertices
+	 *            <code>true</code> for the properties of the vertices, <code>false</code> for the edges
+	 * @return The properties of the vertices or of the edges
+	 */
+	private PropertyStore store(boolean vertices) {
+		PropertyStore store;
+		if (vertices) {
+			store = this.graph.getVertexStore();
+		} else {
+			store = this.graph.getEdgeStore();
+		}
+		return store;
+	}
+
+	/**
+	 * Indicates if the given class of elements is the class of the vertices or the class of the edges.
+	 * 
+	 * @param elementClass
+	 *            The class of the elements
+	 * @return <code>true</code> for {@link IVertex}, <code>false</code> for {@link IEdge}
+	 */
+	private static boolean isVertexClass(Class<?> elementClass) {
+		if (elementClass != IVertex.class && elementClass != IEdge.class) {
+			throw new IllegalArgumentException("The element class must be IVertex or IEdge: " + elementClass);
+		}
+		return elementClass == IVertex.class;
+	}
+}
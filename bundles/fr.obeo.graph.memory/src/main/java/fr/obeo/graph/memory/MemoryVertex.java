@@ -0,0 +1,180 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.ISymbol;
+import fr.obeo.graph.api.ISymbolVertex;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+
+/**
+ * A vertex of the in-memory graph.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MemoryVertex extends AbstractMemoryElement implements ISymbolVertex {
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param slot
+	 *            The slot of the vertex
+	 */
+	MemoryVertex(MemoryGraph graph, int slot) {
+		super(graph, slot, graph.getVertexGeneration(slot));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMemoryElement#isAlive()
+	 */
+	@Override
+	boolean isAlive() {
+		return this.graph.isVertexAlive(this.slot)
+				&& this.graph.getVertexGeneration(this.slot) == this.generation;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMemoryElement#getStore()
+	 */
+	@Override
+	protected PropertyStore getStore() {
+		return this.graph.getVertexStore();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getEdges(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(Direction direction, String... labels) {
+		this.checkAlive();
+		return this.query().direction(direction).labels(labels).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getVertices(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(Direction direction, String... labels) {
+		this.checkAlive();
+		return this.query().direction(direction).labels(labels).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISymbolVertex#getEdges(fr.obeo.graph.api.Direction, fr.obeo.graph.api.ISymbol[])
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(Direction direction, ISymbol[] labels) {
+		this.checkAlive();
+		return new MemoryVertexQuery(this.graph, this.slot).labels(labels).direction(direction).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ISymbolVertex#getVertices(fr.obeo.graph.api.Direction,
+	 *      fr.obeo.graph.api.ISymbol[])
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(Direction direction, ISymbol[] labels) {
+		this.checkAlive();
+		return new MemoryVertexQuery(this.graph, this.slot).labels(labels).direction(direction).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#query()
+	 */
+	@Override
+	public IVertexQuery query() {
+		this.checkAlive();
+		return new MemoryVertexQuery(this.graph, this.slot);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#addEdge(java.lang.String, fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public IEdge addEdge(String label, IVertex inVertex) {
+		this.checkAlive();
+		return this.graph.addEdge(null, this, inVertex, label);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.graph.removeVertex(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#getId()
+	 */
+	@Override
+	public Object getId() {
+		this.checkAlive();
+		return this.graph.getVertexId(this.slot);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		String description = "v[removed]";
+		if (this.isAlive()) {
+			description = "v[" + this.getId() + "]";
+		}
+		return description;
+	}
+}
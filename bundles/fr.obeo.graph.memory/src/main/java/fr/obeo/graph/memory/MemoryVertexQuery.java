@@ -0,0 +1,475 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Aggregations;
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.GraphOperation;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraphMonitor;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.ISymbol;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+import fr.obeo.graph.api.NumericAggregate;
+import fr.obeo.graph.api.internal.AbstractLazyIterable;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query over the edges incident to a vertex of the in-memory graph. The labels are resolved to their
+ * integer once per execution and the compressed adjacency of the vertex is only read for the requested
+ * directions and labels, unless the {@link QueryPlanner} chooses to read the vertex-centric index of one of
+ * the filtered keys. The filters are checked in the order chosen by the planner and {@link #count()} is
+ * answered from the indexes, without reading the edges, when they answer the query exactly. The
+ * aggregations read the properties and the labels of the accepted edges without creating them.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MemoryVertexQuery extends AbstractMemoryQuery implements IVertexQuery {
+	/**
+	 * The name of the vertex centric indexes reported to the monitor of the graph.
+	 */
+	private static final String VERTEX_CENTRIC_INDEX = "MemoryGraph.vertexCentricIndex";
+
+	/**
+	 * The slot of the vertex.
+	 */
+	private final int vertex;
+
+	/**
+	 * The direction of the edges.
+	 */
+	private Direction direction = Direction.BOTH;
+
+	/**
+	 * The labels of the edges, empty for all the labels.
+	 */
+	private String[] labels = new String[0];
+
+	/**
+	 * The sorted integers of the labels when they have been given as symbols, <code>null</code> if the
+	 * labels are resolved when the query is executed.
+	 */
+	private int[] labelIds;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertex
+	 *            The slot of the vertex
+	 */
+	MemoryVertexQuery(MemoryGraph graph, int vertex) {
+		super(graph);
+		this.vertex = vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#direction(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertexQuery direction(Direction newDirection) {
+		if (newDirection == null) {
+			throw new IllegalArgumentException("The direction can not be null");
+		}
+		this.direction = newDirection;
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#labels(java.lang.String[])
+	 */
+	@Override
+	public IVertexQuery labels(String... newLabels) {
+		if (newLabels == null) {
+			this.labels = new String[0];
+		} else {
+			this.labels = newLabels.clone();
+		}
+		this.labelIds = null;
+		return this;
+	}
+
+	/**
+	 * Filters the edges by the labels represented by the given symbols, which are already resolved.
+	 * 
+	 * @param newLabels
+	 *            The symbols of the labels, all the labels if there is none
+	 * @return The query
+	 */
+	MemoryVertexQuery labels(ISymbol[] newLabels) {
+		this.labelIds = this.graph.symbolIds(newLabels);
+		if (this.labelIds == null) {
+			this.labels = new String[0];
+		} else {
+			this.labels = new String[this.labelIds.length];
+			for (int i = 0; i < this.labelIds.length; i++) {
+				this.labels[i] = this.graph.getSymbols().get(this.labelIds[i]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#count()
+	 */
+	@Override
+	public long count() {
+		QueryPlan plan = this.plan(this.createAccess());
+		long count = plan.count();
+		long scanned = 0;
+		if (count == AccessPath.UNKNOWN) {
+			count = 0;
+			ISlotCursor cursor = plan.getAccess().open();
+			PropertyMatcher matcher = plan.createMatcher(this.graph.getSymbols());
+			PropertyStore store = this.graph.getEdgeStore();
+			int slot = cursor.next();
+			while (slot != ISlotCursor.END && count < plan.getLimit()) {
+				scanned++;
+				if (matcher.matches(store, slot)) {
+					count++;
+				}
+				slot = cursor.next();
+			}
+		}
+		IGraphMonitor monitor = this.graph.getMonitor();
+		if (monitor != null) {
+			this.recordLookup(monitor, VERTEX_CENTRIC_INDEX, plan);
+			monitor.recordScan(GraphOperation.VERTEX_QUERY_COUNT, scanned, count);
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#vertexIds()
+	 */
+	@Override
+	public Object vertexIds() {
+		List<Object> ids = new ArrayList<Object>();
+		QueryPlan plan = this.plan(this.createAccess());
+		ISlotCursor cursor = plan.getAccess().open();
+		PropertyMatcher matcher = plan.createMatcher(this.graph.getSymbols());
+		PropertyStore store = this.graph.getEdgeStore();
+		long scanned = 0;
+		int slot = cursor.next();
+		while (slot != ISlotCursor.END && ids.size() < plan.getLimit()) {
+			scanned++;
+			if (matcher.matches(store, slot)) {
+				int other = this.graph.getOtherVertex(slot, this.vertex);
+				ids.add(this.graph.getVertexId(other));
+			}
+			slot = cursor.next();
+		}
+		IGraphMonitor monitor = this.graph.getMonitor();
+		if (monitor != null) {
+			this.recordLookup(monitor, VERTEX_CENTRIC_INDEX, plan);
+			monitor.recordScan(GraphOperation.VERTEX_QUERY_IDS, scanned, ids.size());
+		}
+		return ids;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#min(java.lang.String)
+	 */
+	@Override
+	public Number min(String key) {
+		return this.aggregate(key).getMin();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#max(java.lang.String)
+	 */
+	@Override
+	public Number max(String key) {
+		return this.aggregate(key).getMax();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#sum(java.lang.String)
+	 */
+	@Override
+	public Number sum(String key) {
+		return this.aggregate(key).getSum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countBy(java.lang.String)
+	 */
+	@Override
+	public Map<Object, Long> countBy(String key) {
+		PropertyStore.validate(key);
+		final PropertyStore store = this.graph.getEdgeStore();
+		final int keyId = store.getKeys().lookup(key);
+		final Map<Object, Long> counts = new HashMap<Object, Long>();
+		if (keyId != ObjectIntMap.MISSING) {
+			QueryPlan plan = this.plan(this.createAccess());
+			this.scan(plan, false, GraphOperation.VERTEX_QUERY_AGGREGATE, VERTEX_CENTRIC_INDEX,
+					new ISlotProcedure() {
+						@Override
+						public void apply(int slot) {
+							Aggregations.increment(counts, store.get(slot, keyId));
+						}
+					});
+		}
+		return counts;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countByLabel()
+	 */
+	@Override
+	public Map<String, Long> countByLabel() {
+		final Map<String, Long> counts = new HashMap<String, Long>();
+		final MemoryGraph memoryGraph = this.graph;
+		QueryPlan plan = this.plan(this.createAccess());
+		this.scan(plan, false, GraphOperation.VERTEX_QUERY_AGGREGATE, VERTEX_CENTRIC_INDEX,
+				new ISlotProcedure() {
+					@Override
+					public void apply(int slot) {
+						Aggregations.increment(counts, memoryGraph.getEdgeLabel(slot));
+					}
+				});
+		return counts;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery has(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS_NOT, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.NOT_EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, IPredicate predicate, Object value) {
+		this.addFilter(PropertyFilter.predicate(key, predicate, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#interval(java.lang.String, java.lang.Comparable,
+	 *      java.lang.Comparable)
+	 */
+	@Override
+	public IVertexQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		this.addFilter(PropertyFilter.interval(key, startValue, endValue));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#limit(int)
+	 */
+	@Override
+	public IVertexQuery limit(int max) {
+		this.setLimit(max);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#edges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> edges() {
+		return new AbstractLazyIterable<IEdge>() {
+			@Override
+			protected AbstractLazyIterator<IEdge> open() {
+				MemoryVertexQuery query = MemoryVertexQuery.this;
+				QueryPlan plan = query.plan(query.createAccess());
+				PropertyMatcher matcher = plan.createMatcher(query.graph.getSymbols());
+				ISlotCursor cursor = query.open(plan);
+				AbstractLazyIterator<IEdge> iterator = new EdgeIterator(query.graph, cursor, matcher,
+						plan.getLimit());
+				return query.monitor(GraphOperation.VERTEX_QUERY_EDGES, VERTEX_CENTRIC_INDEX, plan, cursor,
+						iterator);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#vertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> vertices() {
+		return new AbstractLazyIterable<IVertex>() {
+			@Override
+			protected AbstractLazyIterator<IVertex> open() {
+				MemoryVertexQuery query = MemoryVertexQuery.this;
+				QueryPlan plan = query.plan(query.createAccess());
+				PropertyMatcher matcher = plan.createMatcher(query.graph.getSymbols());
+				ISlotCursor cursor = query.open(plan);
+				long limit = plan.getLimit();
+				AbstractLazyIterator<IVertex> iterator = new AdjacentVertexIterator(query.graph, query.vertex,
+						cursor, matcher, limit);
+				return query.monitor(GraphOperation.VERTEX_QUERY_VERTICES, VERTEX_CENTRIC_INDEX, plan, cursor,
+						iterator);
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		return this.plan(this.createAccess()).toString();
+	}
+
+	/**
+	 * Creates the access path to the edges of the vertex for the direction and the labels of the query.
+	 * 
+	 * @return The access path to the edges of the vertex
+	 */
+	private AccessPath.IncidentEdges createAccess() {
+		AccessPath.IncidentEdges access;
+		if (this.labelIds == null) {
+			access = new AccessPath.IncidentEdges(this.graph, this.vertex, this.direction, this.labels);
+		} else {
+			access = new AccessPath.IncidentEdges(this.graph, this.vertex, this.direction, this.labels,
+					this.labelIds);
+		}
+		return access;
+	}
+
+	/**
+	 * Aggregates the numeric values of the given key of the edges of the query, the values of a declared key
+	 * being read from its column without being boxed.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @return The aggregate of the values
+	 */
+	private NumericAggregate aggregate(String key) {
+		PropertyStore.validate(key);
+		final PropertyStore store = this.graph.getEdgeStore();
+		final int keyId = store.getKeys().lookup(key);
+		final NumericAggregate aggregate = new NumericAggregate();
+		if (keyId != ObjectIntMap.MISSING) {
+			QueryPlan plan = this.plan(this.createAccess());
+			this.scan(plan, false, GraphOperation.VERTEX_QUERY_AGGREGATE, VERTEX_CENTRIC_INDEX,
+					new ISlotProcedure() {
+						@Override
+						public void apply(int slot) {
+							store.aggregate(slot, keyId, aggregate);
+						}
+					});
+		}
+		return aggregate;
+	}
+
+	/**
+	 * Plans the execution of the query for the current state of the graph.
+	 * 
+	 * @param access
+	 *            The access path to all the edges of the vertex
+	 * @return The plan of the query
+	 */
+	private QueryPlan plan(AccessPath.IncidentEdges access) {
+		return QueryPlanner.plan(this.graph, access, this.filters, this.limit);
+	}
+}
@@ -0,0 +1,134 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.GraphOperation;
+import fr.obeo.graph.api.IGraphMonitor;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+
+/**
+ * An iterator reporting to a monitor the number of candidates scanned and of elements returned by another
+ * iterator, once it is exhausted or closed.
+ * 
+ * @param <T>
+ *            The kind of element
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MonitoredIterator<T> extends AbstractLazyIterator<T> {
+	/**
+	 * The monitor.
+	 */
+	private final IGraphMonitor monitor;
+
+	/**
+	 * The operation executing the query.
+	 */
+	private final GraphOperation operation;
+
+	/**
+	 * The cursor over the candidates read by the iterator.
+	 */
+	private final CountingCursor cursor;
+
+	/**
+	 * The iterator.
+	 */
+	private final AbstractLazyIterator<T> iterator;
+
+	/**
+	 * The number of elements returned.
+	 */
+	private long returned;
+
+	/**
+	 * Indicates if the scan has been reported.
+	 */
+	private boolean reported;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param monitor
+	 *            The monitor
+	 * @param operation
+	 *            The operation executing the query
+	 * @param cursor
+	 *            The cursor over the candidates read by the iterator
+	 * @param iterator
+	 *            The iterator
+	 */
+	MonitoredIterator(IGraphMonitor monitor, GraphOperation operation, CountingCursor cursor,
+			AbstractLazyIterator<T> iterator) {
+		super(Long.MAX_VALUE);
+		this.monitor = monitor;
+		this.operation = operation;
+		this.cursor = cursor;
+		this.iterator = iterator;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.internal.AbstractLazyIterator#computeNext()
+	 */
+	@Override
+	protected T computeNext() {
+		T element = null;
+		if (this.iterator.hasNext()) {
+			element = this.iterator.next();
+			this.returned++;
+		} else {
+			this.report();
+		}
+		return element;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.internal.AbstractLazyIterator#close()
+	 */
+	@Override
+	public void close() {
+		this.report();
+		this.iterator.close();
+		super.close();
+	}
+
+	/**
+	 * Reports the scan to the monitor the first time it is called.
+	 */
+	private void report() {
+		if (!this.reported) {
+			this.reported = true;
+			this.monitor.recordScan(this.operation, this.cursor.getCount(), this.returned);
+		}
+	}
+}
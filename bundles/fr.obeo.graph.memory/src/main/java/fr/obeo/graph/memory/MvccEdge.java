@@ -0,0 +1,135 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * An edge of the multi-version graph.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MvccEdge extends AbstractMvccElement implements IEdge {
+	/**
+	 * The constructor.
+	 * 
+	 * @param scope
+	 *            The graph or the transaction of the edge
+	 * @param id
+	 *            The identifier of the edge
+	 */
+	MvccEdge(AbstractMvccGraph scope, Object id) {
+		super(scope, id);
+	}
+
+	/**
+	 * Returns the edge in the current snapshot of its view.
+	 * 
+	 * @return The current version of the edge
+	 */
+	private EdgeVersion getVersion() {
+		EdgeVersion version = this.scope.view().getEdge(this.id);
+		if (version == null) {
+			throw new IllegalStateException("The edge has been removed: " + this.id);
+		}
+		return version;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccElement#getProperties()
+	 */
+	@Override
+	protected PersistentMap<String, Object> getProperties() {
+		return this.getVersion().getProperties();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccElement#getPropertyMutation()
+	 */
+	@Override
+	protected MvccMutation.Kind getPropertyMutation() {
+		return MvccMutation.Kind.SET_EDGE_PROPERTY;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getVertex(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertex getVertex(Direction direction) throws IllegalArgumentException {
+		if (Direction.BOTH.equals(direction) || direction == null) {
+			throw new IllegalArgumentException("The direction of the vertex must be IN or OUT");
+		}
+		return new MvccVertex(this.scope, this.getVersion().getVertexId(direction));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IEdge#getLabel()
+	 */
+	@Override
+	public String getLabel() {
+		return this.getVersion().getLabel();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.scope.removeEdge(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		String description = "e[" + this.id + "]";
+		EdgeVersion version = this.scope.view().getEdge(this.id);
+		if (version != null) {
+			description += "[" + version.getVertexId(Direction.OUT) + "-" + version.getLabel() + "->"
+					+ version.getVertexId(Direction.IN) + "]";
+		}
+		return description;
+	}
+}
@@ -0,0 +1,222 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.ITransaction;
+import fr.obeo.graph.api.ITransactionalGraph;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-memory implementation of the graph API with multi-version concurrency control.
+ * <p>
+ * The state of the graph is an immutable {@link GraphSnapshot} built on persistent maps: each commit creates
+ * a new snapshot sharing all the unmodified vertices and edges with the previous one and publishes it with a
+ * single volatile write. Readers never take any lock, they read the last published snapshot and a query
+ * keeps reading the snapshot it started on until its end, so that long scans never block the writers and
+ * the writers never block the readers. The old snapshots are reclaimed by the garbage collector once the
+ * last reader has released them.
+ * </p>
+ * <p>
+ * The modifications of a transaction are applied to a private snapshot derived from the snapshot it began
+ * on. When the transaction commits, its private snapshot is published as is if nothing has been committed
+ * since it began. Otherwise its modifications are validated against the last committed snapshot, the first
+ * committer wins: a transaction conflicts if it creates an element created meanwhile, modifies or removes an
+ * element modified or removed meanwhile, removes a vertex whose edges have changed meanwhile or creates an
+ * edge between vertices removed meanwhile. The modifications are then applied again on the last committed
+ * snapshot. Only the commits are serialized and they only hold the lock to validate and publish.
+ * </p>
+ * <p>
+ * The operations called directly on the graph are committed immediately, as transactions of their own which
+ * never conflict. This implementation is thread safe.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class MvccGraph extends AbstractMvccGraph implements ITransactionalGraph {
+	/**
+	 * The lock serializing the commits.
+	 */
+	private final Object commitLock = new Object();
+
+	/**
+	 * The next identifier to generate.
+	 */
+	private final AtomicLong nextId = new AtomicLong();
+
+	/**
+	 * The pool of the labels of the edges.
+	 */
+	private final StringPool labels = new StringPool();
+
+	/**
+	 * The last committed snapshot.
+	 */
+	private volatile GraphSnapshot current = GraphSnapshot.EMPTY;
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITransactionalGraph#begin()
+	 */
+	@Override
+	public ITransaction begin() {
+		return new MvccTransaction(this, this.current);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#view()
+	 */
+	@Override
+	protected GraphSnapshot view() {
+		return this.current;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#apply(fr.obeo.graph.memory.MvccMutation)
+	 */
+	@Override
+	protected void apply(MvccMutation mutation) {
+		synchronized (this.commitLock) {
+			GraphSnapshot latest = this.current;
+			this.current = mutation.applyTo(latest, latest.getVersion() + 1);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#generateId()
+	 */
+	@Override
+	protected Object generateId() {
+		return this.generateId(this.current);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#getLabels()
+	 */
+	@Override
+	protected StringPool getLabels() {
+		return this.labels;
+	}
+
+	/**
+	 * Generates an identifier which is neither used in the last committed snapshot nor in the given one.
+	 * 
+	 * @param snapshot
+	 *            The snapshot of a transaction
+	 * @return A new identifier
+	 */
+	Object generateId(GraphSnapshot snapshot) {
+		Long id = Long.valueOf(this.nextId.getAndIncrement());
+		while (MvccGraph.isUsed(this.current, id) || MvccGraph.isUsed(snapshot, id)) {
+			id = Long.valueOf(this.nextId.getAndIncrement());
+		}
+		return id;
+	}
+
+	/**
+	 * Commits the given transaction.
+	 * 
+	 * @param transaction
+	 *            The transaction
+	 */
+	void commit(MvccTransaction transaction) {
+		synchronized (this.commitLock) {
+			GraphSnapshot latest = this.current;
+			if (latest == transaction.getStart()) {
+				this.current = transaction.getWorking();
+			} else {
+				transaction.validate(latest);
+				this.current = transaction.replay(latest, latest.getVersion() + 1);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		// Nothing to release, the graph only lives in memory
+	}
+
+	/**
+	 * Returns the number of vertices of the graph.
+	 * 
+	 * @return The number of vertices of the graph
+	 */
+	public long countVertices() {
+		return this.current.countVertices();
+	}
+
+	/**
+	 * Returns the number of edges of the graph.
+	 * 
+	 * @return The number of edges of the graph
+	 */
+	public long countEdges() {
+		return this.current.countEdges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		GraphSnapshot snapshot = this.current;
+		return "mvccgraph[vertices:" + snapshot.countVertices() + " edges:" + snapshot.countEdges()
+				+ " version:" + snapshot.getVersion() + "]";
+	}
+
+	/**
+	 * Indicates if an identifier is used by a vertex or an edge of the given snapshot.
+	 * 
+	 * @param snapshot
+	 *            The snapshot
+	 * @param id
+	 *            The identifier
+	 * @return <code>true</code> if the identifier is used, <code>false</code> otherwise
+	 */
+	private static boolean isUsed(GraphSnapshot snapshot, Object id) {
+		return snapshot.getVertex(id) != null || snapshot.getEdge(id) != null;
+	}
+}
@@ -0,0 +1,232 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+/**
+ * A modification of the multi-version graph. The transactions log their modifications so that they can be
+ * applied again on the last committed snapshot when another transaction has committed in the meantime.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MvccMutation {
+	/**
+	 * The kinds of modifications.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	enum Kind {
+		/**
+		 * The creation of a vertex.
+		 */
+		ADD_VERTEX,
+
+		/**
+		 * The removal of a vertex and of its incident edges.
+		 */
+		REMOVE_VERTEX,
+
+		/**
+		 * The creation of an edge.
+		 */
+		ADD_EDGE,
+
+		/**
+		 * The removal of an edge.
+		 */
+		REMOVE_EDGE,
+
+		/**
+		 * The modification or the removal of a property of a vertex.
+		 */
+		SET_VERTEX_PROPERTY,
+
+		/**
+		 * The modification or the removal of a property of an edge.
+		 */
+		SET_EDGE_PROPERTY;
+	}
+
+	/**
+	 * The kind of modification.
+	 */
+	private final Kind kind;
+
+	/**
+	 * The identifier of the modified element.
+	 */
+	private final Object id;
+
+	/**
+	 * The identifier of the out vertex of a new edge.
+	 */
+	private final Object outId;
+
+	/**
+	 * The identifier of the in vertex of a new edge.
+	 */
+	private final Object inId;
+
+	/**
+	 * The label of a new edge or the key of a property.
+	 */
+	private final String name;
+
+	/**
+	 * The value of a property or <code>null</code> to remove it.
+	 */
+	private final Object value;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param kind
+	 *            The kind of modification
+	 * @param id
+	 *            The identifier of the modified element
+	 * @param outId
+	 *            The identifier of the out vertex of a new edge
+	 * @param inId
+	 *            The identifier of the in vertex of a new edge
+	 * @param name
+	 *            The label of a new edge or the key of a property
+	 * @param value
+	 *            The value of a property or <code>null</code> to remove it
+	 */
+	private MvccMutation(Kind kind, Object id, Object outId, Object inId, String name, Object value) {
+		this.kind = kind;
+		this.id = id;
+		this.outId = outId;
+		this.inId = inId;
+		this.name = name;
+		this.value = value;
+	}
+
+	/**
+	 * Creates the modification of an element without any other parameter.
+	 * 
+	 * @param kind
+	 *            The kind of modification, {@link Kind#ADD_VERTEX}, {@link Kind#REMOVE_VERTEX} or
+	 *            {@link Kind#REMOVE_EDGE}
+	 * @param id
+	 *            The identifier of the element
+	 * @return The modification
+	 */
+	static MvccMutation create(Kind kind, Object id) {
+		return new MvccMutation(kind, id, null, null, null, null);
+	}
+
+	/**
+	 * Creates the creation of an edge.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 * @param outId
+	 *            The identifier of the out vertex
+	 * @param inId
+	 *            The identifier of the in vertex
+	 * @param label
+	 *            The label of the edge
+	 * @return The modification
+	 */
+	static MvccMutation addEdge(Object id, Object outId, Object inId, String label) {
+		return new MvccMutation(Kind.ADD_EDGE, id, outId, inId, label, null);
+	}
+
+	/**
+	 * Creates the modification of a property.
+	 * 
+	 * @param kind
+	 *            The kind of modification, {@link Kind#SET_VERTEX_PROPERTY} or {@link Kind#SET_EDGE_PROPERTY}
+	 * @param id
+	 *            The identifier of the element
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property or <code>null</code> to remove it
+	 * @return The modification
+	 */
+	static MvccMutation setProperty(Kind kind, Object id, String key, Object value) {
+		return new MvccMutation(kind, id, null, null, key, value);
+	}
+
+	/**
+	 * Returns the kind of modification.
+	 * 
+	 * @return The kind of modification
+	 */
+	Kind getKind() {
+		return this.kind;
+	}
+
+	/**
+	 * Returns the identifier of the modified element.
+	 * 
+	 * @return The identifier of the modified element
+	 */
+	Object getId() {
+		return this.id;
+	}
+
+	/**
+	 * Applies the modification on the given snapshot.
+	 * 
+	 * @param snapshot
+	 *            The snapshot
+	 * @param commit
+	 *            The number of the commit of the modification
+	 * @return The new snapshot
+	 */
+	GraphSnapshot applyTo(GraphSnapshot snapshot, long commit) {
+		GraphSnapshot result;
+		switch (this.kind) {
+			case ADD_VERTEX:
+				result = snapshot.addVertex(this.id, commit);
+				break;
+			case REMOVE_VERTEX:
+				result = snapshot.removeVertex(this.id, commit);
+				break;
+			case ADD_EDGE:
+				result = snapshot.addEdge(this.id, this.outId, this.inId, this.name, commit);
+				break;
+			case REMOVE_EDGE:
+				result = snapshot.removeEdge(this.id, commit);
+				break;
+			case SET_VERTEX_PROPERTY:
+				result = snapshot.setVertexProperty(this.id, this.name, this.value, commit);
+				break;
+			case SET_EDGE_PROPERTY:
+				result = snapshot.setEdgeProperty(this.id, this.name, this.value, commit);
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(this.kind));
+		}
+		return result;
+	}
+}
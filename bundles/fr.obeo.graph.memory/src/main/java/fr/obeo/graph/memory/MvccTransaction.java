@@ -0,0 +1,413 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ITransaction;
+import fr.obeo.graph.api.TransactionConflictException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A transaction of the multi-version graph. The transaction reads the snapshot of the graph it began on, its
+ * modifications are applied to a private snapshot derived from it and logged.
+ * <p>
+ * The first time the transaction modifies an element, it records the version of the element in the
+ * snapshot it began on. On commit, an element whose version in the last committed snapshot differs from the
+ * recorded one has been created, modified or removed by another transaction meanwhile and the transaction
+ * conflicts. The removal of a vertex also records the version of its edges, so that an edge added to or
+ * removed from the vertex meanwhile is a conflict as well.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MvccTransaction extends AbstractMvccGraph implements ITransaction {
+	/**
+	 * The version recorded for the elements which do not exist.
+	 */
+	private static final long ABSENT = -1L;
+
+	/**
+	 * The graph.
+	 */
+	private final MvccGraph graph;
+
+	/**
+	 * The snapshot the transaction began on.
+	 */
+	private final GraphSnapshot start;
+
+	/**
+	 * The modifications of the transaction.
+	 */
+	private final List<MvccMutation> mutations = new ArrayList<MvccMutation>();
+
+	/**
+	 * The versions of the modified vertices in the snapshot the transaction began on, by identifier.
+	 */
+	private final Map<Object, Long> vertexVersions = new HashMap<Object, Long>();
+
+	/**
+	 * The versions of the edges of the removed vertices in the snapshot the transaction began on, by
+	 * identifier of the vertex.
+	 */
+	private final Map<Object, Long> adjacencyVersions = new HashMap<Object, Long>();
+
+	/**
+	 * The versions of the modified edges in the snapshot the transaction began on, by identifier.
+	 */
+	private final Map<Object, Long> edgeVersions = new HashMap<Object, Long>();
+
+	/**
+	 * The snapshot with the modifications of the transaction.
+	 */
+	private GraphSnapshot working;
+
+	/**
+	 * Indicates if the transaction has neither been committed nor rolled back.
+	 */
+	private boolean active = true;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param start
+	 *            The snapshot the transaction begins on
+	 */
+	MvccTransaction(MvccGraph graph, GraphSnapshot start) {
+		this.graph = graph;
+		this.start = start;
+		this.working = start;
+	}
+
+	/**
+	 * Returns the snapshot the transaction began on.
+	 * 
+	 * @return The snapshot the transaction began on
+	 */
+	GraphSnapshot getStart() {
+		return this.start;
+	}
+
+	/**
+	 * Returns the snapshot with the modifications of the transaction.
+	 * 
+	 * @return The snapshot with the modifications of the transaction
+	 */
+	GraphSnapshot getWorking() {
+		return this.working;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#view()
+	 */
+	@Override
+	protected GraphSnapshot view() {
+		this.checkActive();
+		return this.working;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#apply(fr.obeo.graph.memory.MvccMutation)
+	 */
+	@Override
+	protected void apply(MvccMutation mutation) {
+		this.checkActive();
+		GraphSnapshot next = mutation.applyTo(this.working, this.start.getVersion() + 1);
+		this.record(mutation);
+		this.mutations.add(mutation);
+		this.working = next;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#generateId()
+	 */
+	@Override
+	protected Object generateId() {
+		this.checkActive();
+		return this.graph.generateId(this.working);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.memory.AbstractMvccGraph#getLabels()
+	 */
+	@Override
+	protected StringPool getLabels() {
+		return this.graph.getLabels();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITransaction#commit()
+	 */
+	@Override
+	public void commit() {
+		this.checkActive();
+		this.active = false;
+		try {
+			if (!this.mutations.isEmpty()) {
+				this.graph.commit(this);
+			}
+		} finally {
+			this.release();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITransaction#rollback()
+	 */
+	@Override
+	public void rollback() {
+		this.checkActive();
+		this.active = false;
+		this.release();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITransaction#isActive()
+	 */
+	@Override
+	public boolean isActive() {
+		return this.active;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ITransaction#close()
+	 */
+	@Override
+	public void close() {
+		if (this.active) {
+			this.rollback();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		this.close();
+	}
+
+	/**
+	 * Checks that the modifications of the transaction do not conflict with the ones committed since it
+	 * began.
+	 * 
+	 * @param latest
+	 *            The last committed snapshot
+	 * @throws TransactionConflictException
+	 *             If the transaction conflicts
+	 */
+	void validate(GraphSnapshot latest) {
+		for (Map.Entry<Object, Long> entry : this.vertexVersions.entrySet()) {
+			VertexVersion vertex = latest.getVertex(entry.getKey());
+			long version = ABSENT;
+			if (vertex != null) {
+				version = vertex.getVersion();
+			}
+			MvccTransaction.check(version, entry, "vertex");
+		}
+		for (Map.Entry<Object, Long> entry : this.adjacencyVersions.entrySet()) {
+			VertexVersion vertex = latest.getVertex(entry.getKey());
+			long version = ABSENT;
+			if (vertex != null) {
+				version = vertex.getAdjacencyVersion();
+			}
+			MvccTransaction.check(version, entry, "edges of the vertex");
+		}
+		for (Map.Entry<Object, Long> entry : this.edgeVersions.entrySet()) {
+			EdgeVersion edge = latest.getEdge(entry.getKey());
+			long version = ABSENT;
+			if (edge != null) {
+				version = edge.getVersion();
+			}
+			MvccTransaction.check(version, entry, "edge");
+		}
+	}
+
+	/**
+	 * Applies the modifications of the transaction on the given snapshot.
+	 * 
+	 * @param latest
+	 *            The last committed snapshot
+	 * @param commit
+	 *            The number of the commit
+	 * @return The snapshot with the modifications of the transaction
+	 * @throws TransactionConflictException
+	 *             If a modification can not be applied anymore, for example an edge whose vertex has been
+	 *             removed meanwhile
+	 */
+	GraphSnapshot replay(GraphSnapshot latest, long commit) {
+		GraphSnapshot snapshot = latest;
+		try {
+			for (MvccMutation mutation : this.mutations) {
+				snapshot = mutation.applyTo(snapshot, commit);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new TransactionConflictException(e.getMessage());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Records the versions of the elements modified by the given modification in the snapshot the
+	 * transaction began on.
+	 * 
+	 * @param mutation
+	 *            The modification, not applied yet
+	 */
+	private void record(MvccMutation mutation) {
+		Object id = mutation.getId();
+		switch (mutation.getKind()) {
+			case ADD_VERTEX:
+			case SET_VERTEX_PROPERTY:
+				this.recordVertex(id);
+				break;
+			case REMOVE_VERTEX:
+				this.recordVertex(id);
+				VertexVersion vertex = this.working.getVertex(id);
+				for (Direction direction : new Direction[] {Direction.OUT, Direction.IN }) {
+					Iterator<Object> edges = vertex.getEdges(direction).keys();
+					while (edges.hasNext()) {
+						this.recordEdge(edges.next());
+					}
+				}
+				if (!this.adjacencyVersions.containsKey(id)) {
+					VertexVersion startVertex = this.start.getVertex(id);
+					long version = ABSENT;
+					if (startVertex != null) {
+						version = startVertex.getAdjacencyVersion();
+					}
+					this.adjacencyVersions.put(id, Long.valueOf(version));
+				}
+				break;
+			case ADD_EDGE:
+			case REMOVE_EDGE:
+			case SET_EDGE_PROPERTY:
+				this.recordEdge(id);
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(mutation.getKind()));
+		}
+	}
+
+	/**
+	 * Records the version of a vertex in the snapshot the transaction began on, unless it is already known.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 */
+	private void recordVertex(Object id) {
+		if (!this.vertexVersions.containsKey(id)) {
+			VertexVersion vertex = this.start.getVertex(id);
+			long version = ABSENT;
+			if (vertex != null) {
+				version = vertex.getVersion();
+			}
+			this.vertexVersions.put(id, Long.valueOf(version));
+		}
+	}
+
+	/**
+	 * Records the version of an edge in the snapshot the transaction began on, unless it is already known.
+	 * 
+	 * @param id
+	 *            The identifier of the edge
+	 */
+	private void recordEdge(Object id) {
+		if (!this.edgeVersions.containsKey(id)) {
+			EdgeVersion edge = this.start.getEdge(id);
+			long version = ABSENT;
+			if (edge != null) {
+				version = edge.getVersion();
+			}
+			this.edgeVersions.put(id, Long.valueOf(version));
+		}
+	}
+
+	/**
+	 * Checks that the version of an element in the last committed snapshot is the recorded one.
+	 * 
+	 * @param version
+	 *            The version of the element in the last committed snapshot
+	 * @param recorded
+	 *            The identifier of the element and its recorded version
+	 * @param element
+	 *            The description of the element
+	 * @throws TransactionConflictException
+	 *             If the versions differ
+	 */
+	private static void check(long version, Map.Entry<Object, Long> recorded, String element) {
+		if (version != recorded.getValue().longValue()) {
+			throw new TransactionConflictException("Concurrent modification of the " + element + " "
+					+ recorded.getKey());
+		}
+	}
+
+	/**
+	 * Checks that the transaction is still active.
+	 */
+	private void checkActive() {
+		if (!this.active) {
+			throw new IllegalStateException("The transaction is not active anymore");
+		}
+	}
+
+	/**
+	 * Releases the snapshots and the log of the transaction.
+	 */
+	private void release() {
+		this.working = this.start;
+		this.mutations.clear();
+	}
+}
@@ -0,0 +1,422 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Aggregations;
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+import fr.obeo.graph.api.internal.AbstractLazyIterable;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query over the edges incident to a vertex of the multi-version graph. Each execution reads the
+ * identifiers of the edges of the vertex in the snapshot of the view current when it starts, only for the
+ * requested directions, and looks the edges up in the same snapshot.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class MvccVertexQuery extends AbstractMvccQuery implements IVertexQuery {
+	/**
+	 * The vertex.
+	 */
+	private final MvccVertex vertex;
+
+	/**
+	 * The direction of the edges.
+	 */
+	private Direction direction = Direction.BOTH;
+
+	/**
+	 * The labels of the edges, empty for all the labels.
+	 */
+	private List<String> labels = Collections.emptyList();
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 */
+	MvccVertexQuery(MvccVertex vertex) {
+		super(vertex.getScope());
+		this.vertex = vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#direction(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertexQuery direction(Direction newDirection) {
+		if (newDirection == null) {
+			throw new IllegalArgumentException("The direction can not be null");
+		}
+		this.direction = newDirection;
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#labels(java.lang.String[])
+	 */
+	@Override
+	public IVertexQuery labels(String... newLabels) {
+		if (newLabels == null) {
+			this.labels = Collections.emptyList();
+		} else {
+			this.labels = new ArrayList<String>(Arrays.asList(newLabels));
+		}
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#count()
+	 */
+	@Override
+	public long count() {
+		long count = 0;
+		IncidentEdges edges = new IncidentEdges(this.scope.view());
+		while (count < this.limit && edges.next() != null) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#vertexIds()
+	 */
+	@Override
+	public Object vertexIds() {
+		List<Object> ids = new ArrayList<Object>();
+		IncidentEdges edges = new IncidentEdges(this.scope.view());
+		EdgeVersion edge = edges.next();
+		while (edge != null && ids.size() < this.limit) {
+			ids.add(edge.getOtherVertexId(this.vertex.getId()));
+			edge = edges.next();
+		}
+		return ids;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery has(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS_NOT, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.NOT_EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, IPredicate predicate, Object value) {
+		this.addFilter(PropertyFilter.predicate(key, predicate, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#interval(java.lang.String, java.lang.Comparable,
+	 *      java.lang.Comparable)
+	 */
+	@Override
+	public IVertexQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		this.addFilter(PropertyFilter.interval(key, startValue, endValue));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#limit(int)
+	 */
+	@Override
+	public IVertexQuery limit(int max) {
+		this.setLimit(max);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#edges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> edges() {
+		return new AbstractLazyIterable<IEdge>() {
+			@Override
+			protected AbstractLazyIterator<IEdge> open() {
+				final MvccVertexQuery query = MvccVertexQuery.this;
+				final IncidentEdges edges = query.new IncidentEdges(query.scope.view());
+				return new AbstractLazyIterator<IEdge>(query.limit) {
+					@Override
+					protected IEdge computeNext() {
+						IEdge next = null;
+						EdgeVersion edge = edges.next();
+						if (edge != null) {
+							next = new MvccEdge(query.scope, edge.getId());
+						}
+						return next;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#vertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> vertices() {
+		return new AbstractLazyIterable<IVertex>() {
+			@Override
+			protected AbstractLazyIterator<IVertex> open() {
+				final MvccVertexQuery query = MvccVertexQuery.this;
+				final IncidentEdges edges = query.new IncidentEdges(query.scope.view());
+				return new AbstractLazyIterator<IVertex>(query.limit) {
+					@Override
+					protected IVertex computeNext() {
+						IVertex next = null;
+						EdgeVersion edge = edges.next();
+						if (edge != null) {
+							next = new MvccVertex(query.scope, edge.getOtherVertexId(query.vertex.getId()));
+						}
+						return next;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#min(java.lang.String)
+	 */
+	@Override
+	public Number min(String key) {
+		return Aggregations.aggregate(this.edges(), key).getMin();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#max(java.lang.String)
+	 */
+	@Override
+	public Number max(String key) {
+		return Aggregations.aggregate(this.edges(), key).getMax();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#sum(java.lang.String)
+	 */
+	@Override
+	public Number sum(String key) {
+		return Aggregations.aggregate(this.edges(), key).getSum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countBy(java.lang.String)
+	 */
+	@Override
+	public Map<Object, Long> countBy(String key) {
+		return Aggregations.countBy(this.edges(), key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countByLabel()
+	 */
+	@Override
+	public Map<String, Long> countByLabel() {
+		return Aggregations.countByLabel(this.edges());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		GraphSnapshot snapshot = this.scope.view();
+		VertexVersion version = this.vertex.getVersion(snapshot);
+		long candidates = 0;
+		StringBuilder access = new StringBuilder();
+		access.append("edges of ").append(this.vertex).append(' ').append(this.direction);
+		if (!this.labels.isEmpty()) {
+			access.append(' ').append(this.labels);
+		}
+		access.append(" in snapshot ").append(snapshot.getVersion());
+		if (this.direction != Direction.IN) {
+			candidates += version.getEdges(Direction.OUT).size();
+		}
+		if (this.direction != Direction.OUT) {
+			candidates += version.getEdges(Direction.IN).size();
+		}
+		return this.describe("edges", access.toString(), candidates);
+	}
+
+	/**
+	 * The edges of the vertex matching the direction, the labels and the filters of the query in a snapshot.
+	 * The outgoing edges come first, a loop is thus returned twice for {@link Direction#BOTH}.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private final class IncidentEdges {
+		/**
+		 * The snapshot.
+		 */
+		private final GraphSnapshot snapshot;
+
+		/**
+		 * The identifiers of the outgoing edges, empty if they are not requested.
+		 */
+		private final Iterator<Object> outEdges;
+
+		/**
+		 * The identifiers of the incoming edges, empty if they are not requested.
+		 */
+		private final Iterator<Object> inEdges;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param snapshot
+		 *            The snapshot
+		 */
+		IncidentEdges(GraphSnapshot snapshot) {
+			MvccVertexQuery query = MvccVertexQuery.this;
+			VertexVersion version = query.vertex.getVersion(snapshot);
+			this.snapshot = snapshot;
+			Iterator<Object> empty = Collections.emptyIterator();
+			if (query.direction == Direction.IN) {
+				this.outEdges = empty;
+			} else {
+				this.outEdges = version.getEdges(Direction.OUT).keys();
+			}
+			if (query.direction == Direction.OUT) {
+				this.inEdges = empty;
+			} else {
+				this.inEdges = version.getEdges(Direction.IN).keys();
+			}
+		}
+
+		/**
+		 * Returns the next matching edge.
+		 * 
+		 * @return The next matching edge or <code>null</code> if there are no more edges
+		 */
+		EdgeVersion next() {
+			EdgeVersion next = null;
+			MvccVertexQuery query = MvccVertexQuery.this;
+			while (next == null && (this.outEdges.hasNext() || this.inEdges.hasNext())) {
+				Object id;
+				if (this.outEdges.hasNext()) {
+					id = this.outEdges.next();
+				} else {
+					id = this.inEdges.next();
+				}
+				EdgeVersion edge = this.snapshot.getEdge(id);
+				if ((query.labels.isEmpty() || query.labels.contains(edge.getLabel()))
+						&& query.matches(edge.getProperties())) {
+					next = edge;
+				}
+			}
+			return next;
+		}
+	}
+}
@@ -0,0 +1,244 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+/**
+ * An open addressing hash map from objects to primitive integers. It is used to resolve the identifiers and
+ * the strings of the graph to their internal slot without boxing the slot.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ObjectIntMap {
+	/**
+	 * The value returned when a key cannot be found.
+	 */
+	static final int MISSING = -1;
+
+	/**
+	 * The initial capacity of the map, it must be a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The constant used to spread the hash codes of the keys.
+	 */
+	private static final int HASH_SPREAD = 0x9E3779B9;
+
+	/**
+	 * The shift used to fold the high bits of the hash codes on the low ones.
+	 */
+	private static final int HASH_SHIFT = 16;
+
+	/**
+	 * The keys of the map, <code>null</code> denotes a free bucket.
+	 */
+	private Object[] keys;
+
+	/**
+	 * The values of the map.
+	 */
+	private int[] values;
+
+	/**
+	 * The mask used to compute the bucket of a key.
+	 */
+	private int mask;
+
+	/**
+	 * The number of entries in the map.
+	 */
+	private int size;
+
+	/**
+	 * The constructor.
+	 */
+	ObjectIntMap() {
+		this.keys = new Object[INITIAL_CAPACITY];
+		this.values = new int[INITIAL_CAPACITY];
+		this.mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Returns the value associated to the given key or {@link #MISSING}.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The value associated to the given key or {@link #MISSING}
+	 */
+	int get(Object key) {
+		int value = MISSING;
+		if (key != null) {
+			int bucket = this.find(key);
+			if (bucket >= 0) {
+				value = this.values[bucket];
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Associates the given value to the given key.
+	 * 
+	 * @param key
+	 *            The key, it cannot be <code>null</code>
+	 * @param value
+	 *            The value
+	 */
+	void put(Object key, int value) {
+		int bucket = this.bucket(key);
+		while (this.keys[bucket] != null && !this.keys[bucket].equals(key)) {
+			bucket = (bucket + 1) & this.mask;
+		}
+		if (this.keys[bucket] == null) {
+			this.keys[bucket] = key;
+			this.size++;
+		}
+		this.values[bucket] = value;
+		if (this.size * 2 > this.keys.length) {
+			this.rehash(this.keys.length * 2);
+		}
+	}
+
+	/**
+	 * Removes the given key from the map.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The value previously associated to the key or {@link #MISSING}
+	 */
+	int remove(Object key) {
+		int value = MISSING;
+		int bucket = -1;
+		if (key != null) {
+			bucket = this.find(key);
+		}
+		if (bucket >= 0) {
+			value = this.values[bucket];
+			this.shiftBack(bucket);
+			this.size--;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the number of entries in the map.
+	 * 
+	 * @return The number of entries in the map
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all the entries of the map.
+	 */
+	void clear() {
+		this.keys = new Object[INITIAL_CAPACITY];
+		this.values = new int[INITIAL_CAPACITY];
+		this.mask = INITIAL_CAPACITY - 1;
+		this.size = 0;
+	}
+
+	/**
+	 * Returns the bucket containing the given key or -1.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The bucket containing the given key or -1
+	 */
+	private int find(Object key) {
+		int bucket = this.bucket(key);
+		while (this.keys[bucket] != null && !this.keys[bucket].equals(key)) {
+			bucket = (bucket + 1) & this.mask;
+		}
+		if (this.keys[bucket] == null) {
+			bucket = -1;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Returns the ideal bucket of the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The ideal bucket of the key
+	 */
+	private int bucket(Object key) {
+		int hash = key.hashCode() * HASH_SPREAD;
+		return (hash ^ (hash >>> HASH_SHIFT)) & this.mask;
+	}
+
+	/**
+	 * Frees the given bucket and moves back the entries of the probe sequence that follows it (backward shift
+	 * deletion), so that no tombstone is ever needed.
+	 * 
+	 * @param freed
+	 *            The bucket to free
+	 */
+	private void shiftBack(int freed) {
+		int gap = freed;
+		int current = (gap + 1) & this.mask;
+		while (this.keys[current] != null) {
+			int ideal = this.bucket(this.keys[current]);
+			if (((current - ideal) & this.mask) >= ((current - gap) & this.mask)) {
+				this.keys[gap] = this.keys[current];
+				this.values[gap] = this.values[current];
+				gap = current;
+			}
+			current = (current + 1) & this.mask;
+		}
+		this.keys[gap] = null;
+	}
+
+	/**
+	 * Moves all the entries of the map in new tables of the given capacity.
+	 * 
+	 * @param capacity
+	 *            The new capacity, a power of two
+	 */
+	private void rehash(int capacity) {
+		Object[] oldKeys = this.keys;
+		int[] oldValues = this.values;
+		this.keys = new Object[capacity];
+		this.values = new int[capacity];
+		this.mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int bucket = this.bucket(oldKeys[i]);
+				while (this.keys[bucket] != null) {
+					bucket = (bucket + 1) & this.mask;
+				}
+				this.keys[bucket] = oldKeys[i];
+				this.values[bucket] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,284 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IElementProcedure;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.internal.ISlotCursor;
+import fr.obeo.graph.api.internal.IntList;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fork/join task applying a procedure to the elements of a query plan. The task covers a range of
+ * positions, either directly a range of slots when the plan scans all the slots or a range of an array of
+ * candidate slots read beforehand from the access path of the plan. It splits its range in two halves until
+ * the range is small enough to be processed sequentially.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ParallelSlotTask extends RecursiveAction {
+	/**
+	 * The serial version UID.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The number of positions under which a task is not split anymore.
+	 */
+	private static final int SPLIT_THRESHOLD = 4096;
+
+	/**
+	 * The state shared by all the tasks of an execution.
+	 */
+	private final Execution execution;
+
+	/**
+	 * The start of the range of positions, inclusive.
+	 */
+	private final int start;
+
+	/**
+	 * The end of the range of positions, exclusive.
+	 */
+	private final int end;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param execution
+	 *            The state shared by all the tasks of an execution
+	 * @param start
+	 *            The start of the range of positions, inclusive
+	 * @param end
+	 *            The end of the range of positions, exclusive
+	 */
+	private ParallelSlotTask(Execution execution, int start, int end) {
+		this.execution = execution;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Creates the root task applying the given procedure to the vertices of the given plan.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param plan
+	 *            The plan of the query over the vertices
+	 * @param procedure
+	 *            The procedure
+	 * @return The root task
+	 */
+	static ParallelSlotTask vertices(MemoryGraph graph, QueryPlan plan,
+			IElementProcedure<? super IVertex> procedure) {
+		return ParallelSlotTask.create(new Execution(graph, plan, procedure, null));
+	}
+
+	/**
+	 * Creates the root task applying the given procedure to the edges of the given plan.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param plan
+	 *            The plan of the query over the edges
+	 * @param procedure
+	 *            The procedure
+	 * @return The root task
+	 */
+	static ParallelSlotTask edges(MemoryGraph graph, QueryPlan plan,
+			IElementProcedure<? super IEdge> procedure) {
+		return ParallelSlotTask.create(new Execution(graph, plan, null, procedure));
+	}
+
+	/**
+	 * Creates the root task covering all the positions of the given execution.
+	 * 
+	 * @param execution
+	 *            The execution
+	 * @return The root task
+	 */
+	private static ParallelSlotTask create(Execution execution) {
+		int size;
+		if (execution.slots != null) {
+			size = execution.slots.length;
+		} else if (execution.vertices) {
+			size = execution.graph.getVertexSlots();
+		} else {
+			size = execution.graph.getEdgeSlots();
+		}
+		return new ParallelSlotTask(execution, 0, size);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.util.concurrent.RecursiveAction#compute()
+	 */
+	@Override
+	protected void compute() {
+		if (this.end - this.start > SPLIT_THRESHOLD) {
+			int middle = (this.start + this.end) >>> 1;
+			ParallelSlotTask.invokeAll(new ParallelSlotTask(this.execution, this.start, middle),
+					new ParallelSlotTask(this.execution, middle, this.end));
+		} else {
+			int position = this.start;
+			while (position < this.end && !this.execution.isLimitReached()) {
+				int slot = position;
+				if (this.execution.slots != null) {
+					slot = this.execution.slots[position];
+				}
+				this.execution.process(slot);
+				position++;
+			}
+		}
+	}
+
+	/**
+	 * The state shared by all the tasks of an execution.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Execution {
+		/**
+		 * The graph.
+		 */
+		private final MemoryGraph graph;
+
+		/**
+		 * Indicates if the elements are vertices or edges.
+		 */
+		private final boolean vertices;
+
+		/**
+		 * The candidate slots read from the access path of the plan or <code>null</code> if the plan scans
+		 * all the slots.
+		 */
+		private final int[] slots;
+
+		/**
+		 * The matcher of the elements.
+		 */
+		private final PropertyMatcher matcher;
+
+		/**
+		 * The number of elements which can still be processed or <code>null</code> if the plan has no limit.
+		 */
+		private final AtomicLong remaining;
+
+		/**
+		 * The procedure applied to the vertices or <code>null</code> if the elements are edges.
+		 */
+		private final IElementProcedure<? super IVertex> vertexProcedure;
+
+		/**
+		 * The procedure applied to the edges or <code>null</code> if the elements are vertices.
+		 */
+		private final IElementProcedure<? super IEdge> edgeProcedure;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param graph
+		 *            The graph
+		 * @param plan
+		 *            The plan of the query
+		 * @param vertexProcedure
+		 *            The procedure applied to the vertices or <code>null</code> if the elements are edges
+		 * @param edgeProcedure
+		 *            The procedure applied to the edges or <code>null</code> if the elements are vertices
+		 */
+		Execution(MemoryGraph graph, QueryPlan plan, IElementProcedure<? super IVertex> vertexProcedure,
+				IElementProcedure<? super IEdge> edgeProcedure) {
+			this.graph = graph;
+			this.vertices = vertexProcedure != null;
+			this.vertexProcedure = vertexProcedure;
+			this.edgeProcedure = edgeProcedure;
+			this.matcher = plan.createMatcher(graph.getSymbols());
+			if (plan.getAccess().isScan()) {
+				this.slots = null;
+			} else {
+				IntList candidates = new IntList();
+				ISlotCursor cursor = plan.getAccess().open();
+				int slot = cursor.next();
+				while (slot != ISlotCursor.END) {
+					candidates.add(slot);
+					slot = cursor.next();
+				}
+				this.slots = candidates.toArray();
+			}
+			if (plan.getLimit() == Long.MAX_VALUE) {
+				this.remaining = null;
+			} else {
+				this.remaining = new AtomicLong(plan.getLimit());
+			}
+		}
+
+		/**
+		 * Indicates if the limit of the plan has been reached.
+		 * 
+		 * @return <code>true</code> if no more element can be processed, <code>false</code> otherwise
+		 */
+		boolean isLimitReached() {
+			return this.remaining != null && this.remaining.get() <= 0;
+		}
+
+		/**
+		 * Applies the procedure to the element of the given slot if it is alive and accepted by the matcher
+		 * and if the limit of the plan has not been reached.
+		 * 
+		 * @param slot
+		 *            The slot of the element
+		 */
+		void process(int slot) {
+			if (this.vertices) {
+				if (this.graph.isVertexAlive(slot) && this.matcher.matches(this.graph.getVertexStore(), slot)
+						&& this.acquire()) {
+					this.vertexProcedure.apply(new MemoryVertex(this.graph, slot));
+				}
+			} else if (this.graph.isEdgeAlive(slot) && this.matcher.matches(this.graph.getEdgeStore(), slot)
+					&& this.acquire()) {
+				this.edgeProcedure.apply(new MemoryEdge(this.graph, slot));
+			}
+		}
+
+		/**
+		 * Reserves one of the elements which can still be processed.
+		 * 
+		 * @return <code>true</code> if the element can be processed, <code>false</code> if the limit has been
+		 *         reached
+		 */
+		private boolean acquire() {
+			return this.remaining == null || this.remaining.getAndDecrement() > 0;
+		}
+	}
+}
@@ -0,0 +1,699 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hash map whose modifications return a new map sharing most of its structure with the original
+ * one. It is a hash array mapped trie: each node of the trie consumes 5 bits of the hash of the keys and only
+ * stores the branches which are used, so that a modification only copies the nodes on the path of the
+ * modified key, in time and space logarithmic in the size of the map with a base of 32.
+ * <p>
+ * The old versions of the map stay valid and unchanged, they can be read by any number of threads without
+ * synchronization while a new version is built. The keys can not be <code>null</code>.
+ * </p>
+ * 
+ * @param <K>
+ *            The type of the keys
+ * @param <V>
+ *            The type of the values
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class PersistentMap<K, V> {
+	/**
+	 * The number of bits of the hash consumed by each level of the trie.
+	 */
+	private static final int BITS = 5;
+
+	/**
+	 * The mask of the bits consumed by a level.
+	 */
+	private static final int MASK = (1 << BITS) - 1;
+
+	/**
+	 * The last shift at which the hash still has bits to consume, the keys with the same hash are stored in a
+	 * collision node below it.
+	 */
+	private static final int MAX_SHIFT = 30;
+
+	/**
+	 * The maximum depth of the trie, collision nodes included.
+	 */
+	private static final int MAX_DEPTH = MAX_SHIFT / BITS + 2;
+
+	/**
+	 * The multiplier spreading the bits of the hashes, the golden ratio in fixed point.
+	 */
+	private static final int GOLDEN_RATIO = 0x9e3779b9;
+
+	/**
+	 * Half the number of bits of an <code>int</code>.
+	 */
+	private static final int HALF_BITS = 16;
+
+	/**
+	 * The value returned by the nodes when a key is not found, values can be <code>null</code>.
+	 */
+	private static final Object NOT_FOUND = new Object();
+
+	/**
+	 * The empty map.
+	 */
+	private static final PersistentMap<Object, Object> EMPTY = new PersistentMap<Object, Object>(
+			new BitmapNode(0, new Object[0]), 0);
+
+	/**
+	 * The root of the trie.
+	 */
+	private final Node root;
+
+	/**
+	 * The number of entries.
+	 */
+	private final int size;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param root
+	 *            The root of the trie
+	 * @param size
+	 *            The number of entries
+	 */
+	private PersistentMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the empty map.
+	 * 
+	 * @param <K>
+	 *            The type of the keys
+	 * @param <V>
+	 *            The type of the values
+	 * @return The empty map
+	 */
+	@SuppressWarnings("unchecked")
+	static <K, V> PersistentMap<K, V> empty() {
+		return (PersistentMap<K, V>)EMPTY;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return The number of entries
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Indicates if the map is empty.
+	 * 
+	 * @return <code>true</code> if the map does not have any entry, <code>false</code> otherwise
+	 */
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Indicates if the map has an entry for the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return <code>true</code> if the map has an entry for the key, <code>false</code> otherwise
+	 */
+	boolean containsKey(Object key) {
+		return this.root.find(PersistentMap.hash(key), key, 0) != NOT_FOUND;
+	}
+
+	/**
+	 * Returns the value of the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The value of the key or <code>null</code> if the map does not have an entry for the key
+	 */
+	@SuppressWarnings("unchecked")
+	V get(Object key) {
+		V value = null;
+		Object found = this.root.find(PersistentMap.hash(key), key, 0);
+		if (found != NOT_FOUND) {
+			value = (V)found;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns a map with the given entry.
+	 * 
+	 * @param key
+	 *            The key
+	 * @param value
+	 *            The value
+	 * @return A map with the entry, this map if it already had the same entry
+	 */
+	PersistentMap<K, V> put(K key, V value) {
+		int hash = PersistentMap.hash(key);
+		PersistentMap<K, V> map = this;
+		Object found = this.root.find(hash, key, 0);
+		if (found != value) {
+			int newSize = this.size;
+			if (found == NOT_FOUND) {
+				newSize++;
+			}
+			map = new PersistentMap<K, V>(this.root.put(hash, key, value, 0), newSize);
+		}
+		return map;
+	}
+
+	/**
+	 * Returns a map without the entry of the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return A map without the entry of the key, this map if it did not have an entry for the key
+	 */
+	PersistentMap<K, V> remove(Object key) {
+		int hash = PersistentMap.hash(key);
+		PersistentMap<K, V> map = this;
+		if (this.root.find(hash, key, 0) != NOT_FOUND) {
+			Node newRoot = this.root.remove(hash, key, 0);
+			if (newRoot == null) {
+				map = PersistentMap.empty();
+			} else {
+				map = new PersistentMap<K, V>(newRoot, this.size - 1);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Returns an iterator over the keys, in no particular order.
+	 * 
+	 * @return An iterator over the keys
+	 */
+	Iterator<K> keys() {
+		return new TrieIterator<K>(this.root, true);
+	}
+
+	/**
+	 * Returns an iterator over the values, in no particular order.
+	 * 
+	 * @return An iterator over the values
+	 */
+	Iterator<V> values() {
+		return new TrieIterator<V>(this.root, false);
+	}
+
+	/**
+	 * Spreads the bits of the hash code of a key so that the first levels of the trie depend on all the bits.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The hash of the key
+	 */
+	private static int hash(Object key) {
+		int h = key.hashCode() * GOLDEN_RATIO;
+		return h ^ (h >>> HALF_BITS);
+	}
+
+	/**
+	 * Creates the node holding two entries whose hashes are equal up to the given shift.
+	 * 
+	 * @param shift
+	 *            The shift of the node
+	 * @param firstKey
+	 *            The key of the first entry
+	 * @param firstValue
+	 *            The value of the first entry
+	 * @param secondHash
+	 *            The hash of the key of the second entry
+	 * @param secondKey
+	 *            The key of the second entry
+	 * @param secondValue
+	 *            The value of the second entry
+	 * @return The node
+	 */
+	private static Node createNode(int shift, Object firstKey, Object firstValue, int secondHash,
+			Object secondKey, Object secondValue) {
+		Node node;
+		if (shift > MAX_SHIFT) {
+			node = new CollisionNode(new Object[] {firstKey, firstValue, secondKey, secondValue });
+		} else {
+			node = EMPTY.root.put(PersistentMap.hash(firstKey), firstKey, firstValue, shift);
+			node = node.put(secondHash, secondKey, secondValue, shift);
+		}
+		return node;
+	}
+
+	/**
+	 * Returns a copy of an array with a different element.
+	 * 
+	 * @param array
+	 *            The array
+	 * @param index
+	 *            The index of the element
+	 * @param element
+	 *            The new element
+	 * @return The copy of the array
+	 */
+	private static Object[] copyWith(Object[] array, int index, Object element) {
+		Object[] copy = array.clone();
+		copy[index] = element;
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of an array with a new pair of elements.
+	 * 
+	 * @param array
+	 *            The array
+	 * @param index
+	 *            The index of the first element of the new pair
+	 * @param first
+	 *            The first element of the pair
+	 * @param second
+	 *            The second element of the pair
+	 * @return The copy of the array
+	 */
+	private static Object[] copyInserting(Object[] array, int index, Object first, Object second) {
+		Object[] copy = new Object[array.length + 2];
+		System.arraycopy(array, 0, copy, 0, index);
+		copy[index] = first;
+		copy[index + 1] = second;
+		System.arraycopy(array, index, copy, index + 2, array.length - index);
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of an array without a pair of elements.
+	 * 
+	 * @param array
+	 *            The array
+	 * @param index
+	 *            The index of the first element of the pair
+	 * @return The copy of the array
+	 */
+	private static Object[] copyRemoving(Object[] array, int index) {
+		Object[] copy = new Object[array.length - 2];
+		System.arraycopy(array, 0, copy, 0, index);
+		System.arraycopy(array, index + 2, copy, index, array.length - index - 2);
+		return copy;
+	}
+
+	/**
+	 * A node of the trie. Its array holds pairs of elements: either a key and its value or <code>null</code>
+	 * and a child node.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private abstract static class Node {
+		/**
+		 * The pairs of elements of the node.
+		 */
+		protected final Object[] array;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param array
+		 *            The pairs of elements of the node
+		 */
+		Node(Object[] array) {
+			this.array = array;
+		}
+
+		/**
+		 * Returns the value of a key.
+		 * 
+		 * @param hash
+		 *            The hash of the key
+		 * @param key
+		 *            The key
+		 * @param shift
+		 *            The shift of the node
+		 * @return The value of the key or {@link PersistentMap#NOT_FOUND}
+		 */
+		abstract Object find(int hash, Object key, int shift);
+
+		/**
+		 * Returns a node with the given entry.
+		 * 
+		 * @param hash
+		 *            The hash of the key
+		 * @param key
+		 *            The key
+		 * @param value
+		 *            The value
+		 * @param shift
+		 *            The shift of the node
+		 * @return The node with the entry
+		 */
+		abstract Node put(int hash, Object key, Object value, int shift);
+
+		/**
+		 * Returns a node without the entry of a key which is in the node.
+		 * 
+		 * @param hash
+		 *            The hash of the key
+		 * @param key
+		 *            The key
+		 * @param shift
+		 *            The shift of the node
+		 * @return The node without the entry or <code>null</code> if the node would be empty
+		 */
+		abstract Node remove(int hash, Object key, int shift);
+	}
+
+	/**
+	 * A node of the trie holding the branches of the used values of the bits of the hash at its level, in the
+	 * order of these values. The bitmap of the node tells which values are used.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class BitmapNode extends Node {
+		/**
+		 * The used values of the bits of the hash.
+		 */
+		private final int bitmap;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param bitmap
+		 *            The used values of the bits of the hash
+		 * @param array
+		 *            The pairs of elements of the used values
+		 */
+		BitmapNode(int bitmap, Object[] array) {
+			super(array);
+			this.bitmap = bitmap;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PersistentMap.Node#find(int, java.lang.Object, int)
+		 */
+		@Override
+		Object find(int hash, Object key, int shift) {
+			Object found = NOT_FOUND;
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((this.bitmap & bit) != 0) {
+				int index = 2 * Integer.bitCount(this.bitmap & (bit - 1));
+				Object storedKey = this.array[index];
+				if (storedKey == null) {
+					found = ((Node)this.array[index + 1]).find(hash, key, shift + BITS);
+				} else if (key.equals(storedKey)) {
+					found = this.array[index + 1];
+				}
+			}
+			return found;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PersistentMap.Node#put(int, java.lang.Object, java.lang.Object, int)
+		 */
+		@Override
+		Node put(int hash, Object key, Object value, int shift) {
+			Node node;
+			int bit = 1 << ((hash >>> shift) & MASK);
+			int index = 2 * Integer.bitCount(this.bitmap & (bit - 1));
+			if ((this.bitmap & bit) == 0) {
+				node = new BitmapNode(this.bitmap | bit, PersistentMap.copyInserting(this.array, index, key,
+						value));
+			} else {
+				Object storedKey = this.array[index];
+				Object storedValue = this.array[index + 1];
+				if (storedKey == null) {
+					Node child = ((Node)storedValue).put(hash, key, value, shift + BITS);
+					node = new BitmapNode(this.bitmap, PersistentMap.copyWith(this.array, index + 1, child));
+				} else if (key.equals(storedKey)) {
+					node = new BitmapNode(this.bitmap, PersistentMap.copyWith(this.array, index + 1, value));
+				} else {
+					Node child = PersistentMap.createNode(shift + BITS, storedKey, storedValue, hash, key,
+							value);
+					Object[] newArray = PersistentMap.copyWith(this.array, index, null);
+					newArray[index + 1] = child;
+					node = new BitmapNode(this.bitmap, newArray);
+				}
+			}
+			return node;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PersistentMap.Node#remove(int, java.lang.Object, int)
+		 */
+		@Override
+		Node remove(int hash, Object key, int shift) {
+			Node node;
+			int bit = 1 << ((hash >>> shift) & MASK);
+			int index = 2 * Integer.bitCount(this.bitmap & (bit - 1));
+			Node child = null;
+			if (this.array[index] == null) {
+				child = ((Node)this.array[index + 1]).remove(hash, key, shift + BITS);
+			}
+			if (child != null) {
+				node = new BitmapNode(this.bitmap, PersistentMap.copyWith(this.array, index + 1, child));
+			} else if (this.bitmap == bit) {
+				node = null;
+			} else {
+				node = new BitmapNode(this.bitmap ^ bit, PersistentMap.copyRemoving(this.array, index));
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * A node of the trie holding the entries whose keys have the same hash.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class CollisionNode extends Node {
+		/**
+		 * The constructor.
+		 * 
+		 * @param array
+		 *            The pairs of keys and values
+		 */
+		CollisionNode(Object[] array) {
+			super(array);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PersistentMap.Node#find(int, java.lang.Object, int)
+		 */
+		@Override
+		Object find(int hash, Object key, int shift) {
+			Object found = NOT_FOUND;
+			int index = this.indexOf(key);
+			if (index != -1) {
+				found = this.array[index + 1];
+			}
+			return found;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PersistentMap.Node#put(int, java.lang.Object, java.lang.Object, int)
+		 */
+		@Override
+		Node put(int hash, Object key, Object value, int shift) {
+			Node node;
+			int index = this.indexOf(key);
+			if (index == -1) {
+				Object[] newArray = PersistentMap.copyInserting(this.array, this.array.length, key, value);
+				node = new CollisionNode(newArray);
+			} else {
+				node = new CollisionNode(PersistentMap.copyWith(this.array, index + 1, value));
+			}
+			return node;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PersistentMap.Node#remove(int, java.lang.Object, int)
+		 */
+		@Override
+		Node remove(int hash, Object key, int shift) {
+			Node node = null;
+			if (this.array.length > 2) {
+				node = new CollisionNode(PersistentMap.copyRemoving(this.array, this.indexOf(key)));
+			}
+			return node;
+		}
+
+		/**
+		 * Returns the index of a key in the array.
+		 * 
+		 * @param key
+		 *            The key
+		 * @return The index of the key or <code>-1</code> if the node does not hold the key
+		 */
+		private int indexOf(Object key) {
+			int index = -1;
+			for (int i = 0; index == -1 && i < this.array.length; i += 2) {
+				if (key.equals(this.array[i])) {
+					index = i;
+				}
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * The iterator over the keys or the values of a trie, depth first.
+	 * 
+	 * @param <T>
+	 *            The type of the keys or of the values
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class TrieIterator<T> implements Iterator<T> {
+		/**
+		 * Indicates if the iterator returns the keys or the values.
+		 */
+		private final boolean keys;
+
+		/**
+		 * The arrays of the nodes on the path to the current entry.
+		 */
+		private final Object[][] arrays = new Object[MAX_DEPTH][];
+
+		/**
+		 * The position of the next pair in each array of the path.
+		 */
+		private final int[] positions = new int[MAX_DEPTH];
+
+		/**
+		 * The depth of the current node, <code>-1</code> once the iteration is over.
+		 */
+		private int depth;
+
+		/**
+		 * The key of the next entry or <code>null</code> if there are no more entries.
+		 */
+		private Object nextKey;
+
+		/**
+		 * The value of the next entry.
+		 */
+		private Object nextValue;
+
+		/**
+		 * The constructor.
+		 * 
+		 * @param root
+		 *            The root of the trie
+		 * @param keys
+		 *            Indicates if the iterator returns the keys or the values
+		 */
+		TrieIterator(Node root, boolean keys) {
+			this.keys = keys;
+			this.arrays[0] = root.array;
+			this.advance();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.util.Iterator#hasNext()
+		 */
+		@Override
+		public boolean hasNext() {
+			return this.nextKey != null;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.util.Iterator#next()
+		 */
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (this.nextKey == null) {
+				throw new NoSuchElementException();
+			}
+			Object element = this.nextValue;
+			if (this.keys) {
+				element = this.nextKey;
+			}
+			this.advance();
+			return (T)element;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see java.util.Iterator#remove()
+		 */
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Moves to the next entry.
+		 */
+		private void advance() {
+			this.nextKey = null;
+			while (this.nextKey == null && this.depth >= 0) {
+				Object[] array = this.arrays[this.depth];
+				int position = this.positions[this.depth];
+				if (position >= array.length) {
+					this.arrays[this.depth] = null;
+					this.depth--;
+				} else {
+					this.positions[this.depth] = position + 2;
+					if (array[position] == null) {
+						this.depth++;
+						this.arrays[this.depth] = ((Node)array[position + 1]).array;
+						this.positions[this.depth] = 0;
+					} else {
+						this.nextKey = array[position];
+						this.nextValue = array[position + 1];
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,659 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.NumericAggregate;
+import fr.obeo.graph.api.PropertyType;
+import fr.obeo.graph.api.internal.Capacities;
+import fr.obeo.graph.api.internal.CompiledFilter;
+
+import java.util.Arrays;
+
+/**
+ * The values of a property key declared with a primitive {@link PropertyType}, stored unboxed in an array
+ * indexed by the slots of the elements. A bitmap records the slots which have a value, the columns thus
+ * cost a few bytes per slot instead of a boxed value and an entry in the {@link PropertyMap} of each
+ * element.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class PropertyColumn {
+	/**
+	 * The shift giving the word of the bitmap holding the bit of a slot.
+	 */
+	private static final int WORD_SHIFT = 6;
+
+	/**
+	 * The type of the column.
+	 */
+	private final PropertyType type;
+
+	/**
+	 * The bitmap of the slots which have a value.
+	 */
+	private long[] present = new long[0];
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param type
+	 *            The type of the column
+	 */
+	PropertyColumn(PropertyType type) {
+		this.type = type;
+	}
+
+	/**
+	 * Creates an empty column of the given type.
+	 * 
+	 * @param type
+	 *            The type of the column
+	 * @return The new column
+	 */
+	static PropertyColumn create(PropertyType type) {
+		PropertyColumn column;
+		switch (type) {
+			case INT:
+				column = new Ints();
+				break;
+			case LONG:
+				column = new Longs();
+				break;
+			case DOUBLE:
+				column = new Doubles();
+				break;
+			case BOOLEAN:
+				column = new Booleans();
+				break;
+			case STRING:
+				column = new Strings();
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(type));
+		}
+		return column;
+	}
+
+	/**
+	 * Returns the type of the column.
+	 * 
+	 * @return The type of the column
+	 */
+	PropertyType getType() {
+		return this.type;
+	}
+
+	/**
+	 * Indicates if the given value can be stored in the column.
+	 * 
+	 * @param value
+	 *            The value
+	 * @return <code>true</code> if the value is an instance of the class of the type of the column
+	 */
+	boolean accepts(Object value) {
+		return this.type.getValueClass().isInstance(value);
+	}
+
+	/**
+	 * Indicates if the given slot has a value.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return <code>true</code> if the slot has a value, <code>false</code> otherwise
+	 */
+	boolean has(int slot) {
+		int word = slot >>> WORD_SHIFT;
+		return word < this.present.length && (this.present[word] & (1L << slot)) != 0;
+	}
+
+	/**
+	 * Returns the first slot which has a value starting from the given one.
+	 * 
+	 * @param from
+	 *            The first slot to consider
+	 * @return The first slot which has a value or <code>-1</code> if there is none
+	 */
+	int nextSlot(int from) {
+		int slot = -1;
+		int word = from >>> WORD_SHIFT;
+		if (word < this.present.length) {
+			long bits = this.present[word] & (-1L << from);
+			while (bits == 0 && word + 1 < this.present.length) {
+				word++;
+				bits = this.present[word];
+			}
+			if (bits != 0) {
+				slot = (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		return slot;
+	}
+
+	/**
+	 * Returns the value of the given slot.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return The value of the slot or <code>null</code> if it does not have one
+	 */
+	Object get(int slot) {
+		Object value = null;
+		if (this.has(slot)) {
+			value = this.read(slot);
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the value of the given slot.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @param value
+	 *            The value, it must be accepted by the column
+	 */
+	abstract void set(int slot, Object value);
+
+	/**
+	 * Removes the value of the given slot.
+	 * 
+	 * @param slot
+	 *            The slot
+	 */
+	void remove(int slot) {
+		int word = slot >>> WORD_SHIFT;
+		if (word < this.present.length) {
+			this.present[word] &= ~(1L << slot);
+		}
+	}
+
+	/**
+	 * Tests the value of the given slot with the given filter.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @param slot
+	 *            The slot
+	 * @return <code>true</code> if the slot is accepted by the filter, <code>false</code> otherwise
+	 */
+	boolean test(CompiledFilter filter, int slot) {
+		return filter.test(this.get(slot));
+	}
+
+	/**
+	 * Adds the value of the given slot, if it has one, to the given aggregate.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @param aggregate
+	 *            The aggregate
+	 */
+	void aggregate(int slot, NumericAggregate aggregate) {
+		aggregate.add(this.get(slot));
+	}
+
+	/**
+	 * Adds the values of all the slots which have one to the given aggregate.
+	 * 
+	 * @param aggregate
+	 *            The aggregate
+	 */
+	void aggregate(NumericAggregate aggregate) {
+		for (int slot = this.nextSlot(0); slot >= 0; slot = this.nextSlot(slot + 1)) {
+			this.aggregate(slot, aggregate);
+		}
+	}
+
+	/**
+	 * Reads the value of a slot which has one.
+	 * 
+	 * @param slot
+	 *            The slot
+	 * @return The value of the slot
+	 */
+	protected abstract Object read(int slot);
+
+	/**
+	 * Records that the given slot has a value.
+	 * 
+	 * @param slot
+	 *            The slot
+	 */
+	protected void mark(int slot) {
+		int word = slot >>> WORD_SHIFT;
+		if (word >= this.present.length) {
+			this.present = Arrays.copyOf(this.present, Capacities.grow(this.present.length, word + 1));
+		}
+		this.present[word] |= 1L << slot;
+	}
+
+	/**
+	 * The column of the {@link PropertyType#INT} properties.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	static final class Ints extends PropertyColumn {
+		/**
+		 * The values.
+		 */
+		private int[] values = new int[0];
+
+		/**
+		 * The constructor.
+		 */
+		Ints() {
+			super(PropertyType.INT);
+		}
+
+		/**
+		 * Returns the value of a slot which has one.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @return The value of the slot
+		 */
+		int getInt(int slot) {
+			return this.values[slot];
+		}
+
+		/**
+		 * Sets the value of the given slot.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @param value
+		 *            The value
+		 */
+		void setInt(int slot, int value) {
+			if (slot >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, Capacities.grow(this.values.length, slot + 1));
+			}
+			this.values[slot] = value;
+			this.mark(slot);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#set(int, java.lang.Object)
+		 */
+		@Override
+		void set(int slot, Object value) {
+			this.setInt(slot, ((Integer)value).intValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#aggregate(int, fr.obeo.graph.api.NumericAggregate)
+		 */
+		@Override
+		void aggregate(int slot, NumericAggregate aggregate) {
+			if (this.has(slot)) {
+				aggregate.addLong(this.values[slot]);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#test(fr.obeo.graph.api.internal.CompiledFilter, int)
+		 */
+		@Override
+		boolean test(CompiledFilter filter, int slot) {
+			boolean result;
+			if (this.has(slot)) {
+				result = filter.testInt(this.values[slot]);
+			} else {
+				result = filter.test(null);
+			}
+			return result;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#read(int)
+		 */
+		@Override
+		protected Object read(int slot) {
+			return Integer.valueOf(this.values[slot]);
+		}
+	}
+
+	/**
+	 * The column of the {@link PropertyType#LONG} properties.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	static final class Longs extends PropertyColumn {
+		/**
+		 * The values.
+		 */
+		private long[] values = new long[0];
+
+		/**
+		 * The constructor.
+		 */
+		Longs() {
+			super(PropertyType.LONG);
+		}
+
+		/**
+		 * Returns the value of a slot which has one.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @return The value of the slot
+		 */
+		long getLong(int slot) {
+			return this.values[slot];
+		}
+
+		/**
+		 * Sets the value of the given slot.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @param value
+		 *            The value
+		 */
+		void setLong(int slot, long value) {
+			if (slot >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, Capacities.grow(this.values.length, slot + 1));
+			}
+			this.values[slot] = value;
+			this.mark(slot);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#set(int, java.lang.Object)
+		 */
+		@Override
+		void set(int slot, Object value) {
+			this.setLong(slot, ((Long)value).longValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#aggregate(int, fr.obeo.graph.api.NumericAggregate)
+		 */
+		@Override
+		void aggregate(int slot, NumericAggregate aggregate) {
+			if (this.has(slot)) {
+				aggregate.addLong(this.values[slot]);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#test(fr.obeo.graph.api.internal.CompiledFilter, int)
+		 */
+		@Override
+		boolean test(CompiledFilter filter, int slot) {
+			boolean result;
+			if (this.has(slot)) {
+				result = filter.testLong(this.values[slot]);
+			} else {
+				result = filter.test(null);
+			}
+			return result;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#read(int)
+		 */
+		@Override
+		protected Object read(int slot) {
+			return Long.valueOf(this.values[slot]);
+		}
+	}
+
+	/**
+	 * The column of the {@link PropertyType#DOUBLE} properties.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	static final class Doubles extends PropertyColumn {
+		/**
+		 * The values.
+		 */
+		private double[] values = new double[0];
+
+		/**
+		 * The constructor.
+		 */
+		Doubles() {
+			super(PropertyType.DOUBLE);
+		}
+
+		/**
+		 * Returns the value of a slot which has one.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @return The value of the slot
+		 */
+		double getDouble(int slot) {
+			return this.values[slot];
+		}
+
+		/**
+		 * Sets the value of the given slot.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @param value
+		 *            The value
+		 */
+		void setDouble(int slot, double value) {
+			if (slot >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, Capacities.grow(this.values.length, slot + 1));
+			}
+			this.values[slot] = value;
+			this.mark(slot);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#set(int, java.lang.Object)
+		 */
+		@Override
+		void set(int slot, Object value) {
+			this.setDouble(slot, ((Double)value).doubleValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#aggregate(int, fr.obeo.graph.api.NumericAggregate)
+		 */
+		@Override
+		void aggregate(int slot, NumericAggregate aggregate) {
+			if (this.has(slot)) {
+				aggregate.addDouble(this.values[slot]);
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#test(fr.obeo.graph.api.internal.CompiledFilter, int)
+		 */
+		@Override
+		boolean test(CompiledFilter filter, int slot) {
+			boolean result;
+			if (this.has(slot)) {
+				result = filter.testDouble(this.values[slot]);
+			} else {
+				result = filter.test(null);
+			}
+			return result;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#read(int)
+		 */
+		@Override
+		protected Object read(int slot) {
+			return Double.valueOf(this.values[slot]);
+		}
+	}
+
+	/**
+	 * The column of the {@link PropertyType#BOOLEAN} properties, the values are stored as a bitmap.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	static final class Booleans extends PropertyColumn {
+		/**
+		 * The bitmap of the slots whose value is <code>true</code>.
+		 */
+		private long[] values = new long[0];
+
+		/**
+		 * The constructor.
+		 */
+		Booleans() {
+			super(PropertyType.BOOLEAN);
+		}
+
+		/**
+		 * Returns the value of a slot which has one.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @return The value of the slot
+		 */
+		boolean getBoolean(int slot) {
+			int word = slot >>> WORD_SHIFT;
+			return word < this.values.length && (this.values[word] & (1L << slot)) != 0;
+		}
+
+		/**
+		 * Sets the value of the given slot.
+		 * 
+		 * @param slot
+		 *            The slot
+		 * @param value
+		 *            The value
+		 */
+		void setBoolean(int slot, boolean value) {
+			int word = slot >>> WORD_SHIFT;
+			if (word >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, Capacities.grow(this.values.length, word + 1));
+			}
+			if (value) {
+				this.values[word] |= 1L << slot;
+			} else {
+				this.values[word] &= ~(1L << slot);
+			}
+			this.mark(slot);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#set(int, java.lang.Object)
+		 */
+		@Override
+		void set(int slot, Object value) {
+			this.setBoolean(slot, ((Boolean)value).booleanValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#read(int)
+		 */
+		@Override
+		protected Object read(int slot) {
+			return Boolean.valueOf(this.getBoolean(slot));
+		}
+	}
+
+	/**
+	 * The column of the {@link PropertyType#STRING} properties, the values are stored as the integers of a
+	 * dictionary.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	static final class Strings extends PropertyColumn {
+		/**
+		 * The dictionary of the values.
+		 */
+		private final StringDictionary dictionary = new StringDictionary();
+
+		/**
+		 * The integer of the value of each slot.
+		 */
+		private int[] values = new int[0];
+
+		/**
+		 * The constructor.
+		 */
+		Strings() {
+			super(PropertyType.STRING);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#set(int, java.lang.Object)
+		 */
+		@Override
+		void set(int slot, Object value) {
+			if (slot >= this.values.length) {
+				this.values = Arrays.copyOf(this.values, Capacities.grow(this.values.length, slot + 1));
+			}
+			this.values[slot] = this.dictionary.intern((String)value);
+			this.mark(slot);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * 
+		 * @see fr.obeo.graph.memory.PropertyColumn#read(int)
+		 */
+		@Override
+		protected Object read(int slot) {
+			return this.dictionary.get(this.values[slot]);
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.internal.Capacities;
+
+import java.util.Arrays;
+
+/**
+ * The properties of a single element. Keys are stored as the integers of the key dictionary of the graph in
+ * a flat array that is scanned linearly, which is both smaller and faster than a hash map for the handful of
+ * properties that an element usually holds.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class PropertyMap {
+	/**
+	 * The initial capacity of the map.
+	 */
+	private static final int INITIAL_CAPACITY = 2;
+
+	/**
+	 * The keys of the properties.
+	 */
+	private int[] keys = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The values of the properties.
+	 */
+	private Object[] values = new Object[INITIAL_CAPACITY];
+
+	/**
+	 * The number of properties.
+	 */
+	private int size;
+
+	/**
+	 * Returns the value of the given key or <code>null</code>.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The value of the given key or <code>null</code>
+	 */
+	Object get(int key) {
+		Object value = null;
+		int position = this.indexOf(key);
+		if (position >= 0) {
+			value = this.values[position];
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the value of the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 * @param value
+	 *            The value
+	 * @return The previous value of the key or <code>null</code>
+	 */
+	Object put(int key, Object value) {
+		Object previous = null;
+		int position = this.indexOf(key);
+		if (position >= 0) {
+			previous = this.values[position];
+			this.values[position] = value;
+		} else {
+			if (this.size == this.keys.length) {
+				int capacity = Capacities.grow(this.keys.length, this.size + 1);
+				this.keys = Arrays.copyOf(this.keys, capacity);
+				this.values = Arrays.copyOf(this.values, capacity);
+			}
+			this.keys[this.size] = key;
+			this.values[this.size] = value;
+			this.size++;
+		}
+		return previous;
+	}
+
+	/**
+	 * Removes the given key.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The previous value of the key or <code>null</code>
+	 */
+	Object remove(int key) {
+		Object previous = null;
+		int position = this.indexOf(key);
+		if (position >= 0) {
+			previous = this.values[position];
+			this.size--;
+			this.keys[position] = this.keys[this.size];
+			this.values[position] = this.values[this.size];
+			this.values[this.size] = null;
+		}
+		return previous;
+	}
+
+	/**
+	 * Returns the number of properties.
+	 * 
+	 * @return The number of properties
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the key at the given position.
+	 * 
+	 * @param position
+	 *            The position, between 0 and {@link #size()}
+	 * @return The key at the given position
+	 */
+	int keyAt(int position) {
+		return this.keys[position];
+	}
+
+	/**
+	 * Returns the value at the given position.
+	 * 
+	 * @param position
+	 *            The position, between 0 and {@link #size()}
+	 * @return The value at the given position
+	 */
+	Object valueAt(int position) {
+		return this.values[position];
+	}
+
+	/**
+	 * Returns the position of the given key or -1.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return The position of the given key or -1
+	 */
+	private int indexOf(int key) {
+		int position = -1;
+		for (int i = 0; i < this.size && position < 0; i++) {
+			if (this.keys[i] == key) {
+				position = i;
+			}
+		}
+		return position;
+	}
+}
@@ -0,0 +1,126 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.internal.CompiledFilter;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The filters of a query bound to a graph: the keys of the properties are resolved once to the integers of
+ * the key dictionary so that testing an element never has to look up a string, and each filter is tested
+ * by its {@link CompiledFilter}, directly on the primitive values for the keys stored in a
+ * {@link PropertyColumn}. A filter on a key which is not in the dictionary sees the same missing
+ * property for every element, it is thus evaluated once when the matcher is created.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class PropertyMatcher {
+	/**
+	 * The evaluators of the filters on the keys of the dictionary.
+	 */
+	private final CompiledFilter[] filters;
+
+	/**
+	 * The integer of the key of each filter.
+	 */
+	private final int[] keyIds;
+
+	/**
+	 * <code>true</code> if a filter on a key which is not in the dictionary rejects every element.
+	 */
+	private final boolean rejectsAll;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param filters
+	 *            The filters
+	 * @param keys
+	 *            The dictionary of the property keys
+	 */
+	PropertyMatcher(List<PropertyFilter> filters, StringDictionary keys) {
+		CompiledFilter[] compiled = new CompiledFilter[filters.size()];
+		int[] ids = new int[filters.size()];
+		int count = 0;
+		boolean rejected = false;
+		for (PropertyFilter filter : filters) {
+			int keyId = keys.lookup(filter.getKey());
+			if (keyId != ObjectIntMap.MISSING) {
+				compiled[count] = filter.compiled();
+				ids[count] = keyId;
+				count++;
+			} else if (!filter.test(null)) {
+				rejected = true;
+			}
+		}
+		this.filters = Arrays.copyOf(compiled, count);
+		this.keyIds = Arrays.copyOf(ids, count);
+		this.rejectsAll = rejected;
+	}
+
+	/**
+	 * Indicates if the given element is accepted by all the filters.
+	 * 
+	 * @param store
+	 *            The properties of the elements
+	 * @param slot
+	 *            The slot of the element
+	 * @return <code>true</code> if the element is accepted by all the filters, <code>false</code> otherwise
+	 */
+	boolean matches(PropertyStore store, int slot) {
+		boolean matches = !this.rejectsAll;
+		if (matches && this.filters.length > 0) {
+			PropertyMap map = store.map(slot);
+			for (int i = 0; i < this.filters.length && matches; i++) {
+				PropertyColumn column = store.column(this.keyIds[i]);
+				if (column != null) {
+					matches = column.test(this.filters[i], slot);
+				} else if (map != null) {
+					matches = this.filters[i].test(map.get(this.keyIds[i]));
+				} else {
+					matches = this.filters[i].test(null);
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Indicates if the matcher accepts every element.
+	 * 
+	 * @return <code>true</code> if there is no filter left to test, <code>false</code> otherwise
+	 */
+	boolean isEmpty() {
+		return this.filters.length == 0 && !this.rejectsAll;
+	}
+}
@@ -0,0 +1,996 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.KeyIndexType;
+import fr.obeo.graph.api.NumericAggregate;
+import fr.obeo.graph.api.PropertyType;
+import fr.obeo.graph.api.internal.Capacities;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The properties of all the vertices or of all the edges of a graph, indexed by the slot of the element.
+ * Elements without any property do not allocate anything.
+ * <p>
+ * The keys declared with a {@link PropertyType} are stored in a {@link PropertyColumn} instead of the
+ * property map of each element, their values can then be read and written without boxing.
+ * </p>
+ * <p>
+ * The store also owns the key indexes of its elements and, for the edges, their vertex-centric indexes. Both
+ * are stored by key integer so that checking if a modified property is indexed costs a single array read.
+ * The maintenance of the indexes can be suspended during a bulk load, they are then rebuilt in a single pass
+ * once the load is over and they are not used to answer the queries meanwhile.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class PropertyStore {
+	/**
+	 * The initial capacity of the store.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The dictionary of the property keys, shared by the vertices and the edges.
+	 */
+	private final StringDictionary keys;
+
+	/**
+	 * The properties of each slot, <code>null</code> if the element has no property.
+	 */
+	private PropertyMap[] maps = new PropertyMap[INITIAL_CAPACITY];
+
+	/**
+	 * The column of each key integer, <code>null</code> if the key is not declared.
+	 */
+	private PropertyColumn[] columns = new PropertyColumn[0];
+
+	/**
+	 * The index of each key integer, <code>null</code> if the key is not indexed.
+	 */
+	private KeyIndex[] indexes = new KeyIndex[0];
+
+	/**
+	 * The vertex-centric index of each key integer, <code>null</code> if the key does not have one. Only the
+	 * store of the edges has vertex-centric indexes.
+	 */
+	private VertexCentricIndex[] vertexCentricIndexes = new VertexCentricIndex[0];
+
+	/**
+	 * The number of elements holding each key integer, used by the query planner to estimate the selectivity
+	 * of the filters.
+	 */
+	private int[] keyCounts = new int[0];
+
+	/**
+	 * Indicates if the maintenance of the indexes is suspended.
+	 */
+	private boolean indexesSuspended;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param keys
+	 *            The dictionary of the property keys
+	 */
+	PropertyStore(StringDictionary keys) {
+		this.keys = keys;
+	}
+
+	/**
+	 * Returns the value of the given property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property or <code>null</code>
+	 */
+	Object get(int slot, String key) {
+		return this.get(slot, this.keys.lookup(key));
+	}
+
+	/**
+	 * Returns the value of the given property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key of the property in the key dictionary
+	 * @return The value of the property or <code>null</code>
+	 */
+	Object get(int slot, int keyId) {
+		Object value = null;
+		PropertyColumn column = this.column(keyId);
+		if (column != null) {
+			value = column.get(slot);
+		} else if (keyId != ObjectIntMap.MISSING && slot < this.maps.length && this.maps[slot] != null) {
+			value = this.maps[slot].get(keyId);
+		}
+		return value;
+	}
+
+	/**
+	 * Adds the value of the given property, if the element has one, to the given aggregate. The values of
+	 * the declared keys are read from their column without being boxed.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key of the property in the key dictionary
+	 * @param aggregate
+	 *            The aggregate
+	 */
+	void aggregate(int slot, int keyId, NumericAggregate aggregate) {
+		PropertyColumn column = this.column(keyId);
+		if (column != null) {
+			column.aggregate(slot, aggregate);
+		} else {
+			aggregate.add(this.get(slot, keyId));
+		}
+	}
+
+	/**
+	 * Indicates if the given element has the given property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return <code>true</code> if the element has the property, <code>false</code> otherwise
+	 */
+	boolean has(int slot, String key) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		boolean has;
+		if (column != null) {
+			has = column.has(slot);
+		} else {
+			has = this.get(slot, keyId) != null;
+		}
+		return has;
+	}
+
+	/**
+	 * Returns the value of the given int property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	int getInt(int slot, String key) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		int value;
+		if (column instanceof PropertyColumn.Ints && column.has(slot)) {
+			value = ((PropertyColumn.Ints)column).getInt(slot);
+		} else {
+			value = ((Integer)this.getTyped(slot, keyId, key, Integer.class)).intValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of the given long property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	long getLong(int slot, String key) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		long value;
+		if (column instanceof PropertyColumn.Longs && column.has(slot)) {
+			value = ((PropertyColumn.Longs)column).getLong(slot);
+		} else {
+			value = ((Long)this.getTyped(slot, keyId, key, Long.class)).longValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of the given double property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	double getDouble(int slot, String key) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		double value;
+		if (column instanceof PropertyColumn.Doubles && column.has(slot)) {
+			value = ((PropertyColumn.Doubles)column).getDouble(slot);
+		} else {
+			value = ((Double)this.getTyped(slot, keyId, key, Double.class)).doubleValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of the given boolean property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The value of the property
+	 */
+	boolean getBoolean(int slot, String key) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		boolean value;
+		if (column instanceof PropertyColumn.Booleans && column.has(slot)) {
+			value = ((PropertyColumn.Booleans)column).getBoolean(slot);
+		} else {
+			value = ((Boolean)this.getTyped(slot, keyId, key, Boolean.class)).booleanValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the value of the given int property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setInt(int slot, String key, int value) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		if (column instanceof PropertyColumn.Ints && !this.hasIndexes(keyId)) {
+			this.countSlot(keyId, column, slot);
+			((PropertyColumn.Ints)column).setInt(slot, value);
+		} else {
+			this.put(slot, key, Integer.valueOf(value));
+		}
+	}
+
+	/**
+	 * Sets the value of the given long property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setLong(int slot, String key, long value) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		if (column instanceof PropertyColumn.Longs && !this.hasIndexes(keyId)) {
+			this.countSlot(keyId, column, slot);
+			((PropertyColumn.Longs)column).setLong(slot, value);
+		} else {
+			this.put(slot, key, Long.valueOf(value));
+		}
+	}
+
+	/**
+	 * Sets the value of the given double property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setDouble(int slot, String key, double value) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		if (column instanceof PropertyColumn.Doubles && !this.hasIndexes(keyId)) {
+			this.countSlot(keyId, column, slot);
+			((PropertyColumn.Doubles)column).setDouble(slot, value);
+		} else {
+			this.put(slot, key, Double.valueOf(value));
+		}
+	}
+
+	/**
+	 * Sets the value of the given boolean property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 */
+	void setBoolean(int slot, String key, boolean value) {
+		int keyId = this.keys.lookup(key);
+		PropertyColumn column = this.column(keyId);
+		if (column instanceof PropertyColumn.Booleans && !this.hasIndexes(keyId)) {
+			this.countSlot(keyId, column, slot);
+			((PropertyColumn.Booleans)column).setBoolean(slot, value);
+		} else {
+			this.put(slot, key, Boolean.valueOf(value));
+		}
+	}
+
+	/**
+	 * Sets the value of the given property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @param value
+	 *            The value of the property
+	 * @return The previous value of the property or <code>null</code>
+	 */
+	Object put(int slot, String key, Object value) {
+		PropertyStore.validate(key);
+		return this.put(slot, this.keys.intern(key), value);
+	}
+
+	/**
+	 * Sets the value of the given property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key of the property in the key dictionary
+	 * @param value
+	 *            The value of the property
+	 * @return The previous value of the property or <code>null</code>
+	 */
+	Object put(int slot, int keyId, Object value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Property value can not be null");
+		}
+		PropertyColumn column = this.column(keyId);
+		Object previous;
+		if (column != null) {
+			if (!column.accepts(value)) {
+				throw new IllegalArgumentException("The property " + this.keys.get(keyId) + " is declared as "
+						+ column.getType() + ": " + value);
+			}
+			previous = column.get(slot);
+			column.set(slot, value);
+		} else {
+			this.ensureCapacity(slot + 1);
+			if (this.maps[slot] == null) {
+				this.maps[slot] = new PropertyMap();
+			}
+			previous = this.maps[slot].put(keyId, value);
+		}
+		if (previous == null) {
+			this.increment(keyId);
+		} else {
+			this.unindex(keyId, previous, slot);
+		}
+		this.index(keyId, value, slot);
+		return previous;
+	}
+
+	/**
+	 * Removes the given property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param key
+	 *            The key of the property
+	 * @return The previous value of the property or <code>null</code>
+	 */
+	Object remove(int slot, String key) {
+		return this.remove(slot, this.keys.lookup(key));
+	}
+
+	/**
+	 * Removes the given property.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key of the property in the key dictionary
+	 * @return The previous value of the property or <code>null</code>
+	 */
+	Object remove(int slot, int keyId) {
+		Object previous = null;
+		PropertyColumn column = this.column(keyId);
+		if (column != null) {
+			previous = column.get(slot);
+			column.remove(slot);
+		} else if (keyId != ObjectIntMap.MISSING && slot < this.maps.length && this.maps[slot] != null) {
+			previous = this.maps[slot].remove(keyId);
+			if (this.maps[slot].size() == 0) {
+				this.maps[slot] = null;
+			}
+		}
+		if (previous != null) {
+			this.keyCounts[keyId]--;
+			this.unindex(keyId, previous, slot);
+		}
+		return previous;
+	}
+
+	/**
+	 * Returns the keys of the properties of the given element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @return The keys of the properties of the element
+	 */
+	Set<String> keys(int slot) {
+		Set<String> result = Collections.emptySet();
+		if (slot < this.maps.length && this.maps[slot] != null) {
+			PropertyMap map = this.maps[slot];
+			result = new HashSet<String>(map.size() * 2);
+			for (int i = 0; i < map.size(); i++) {
+				result.add(this.keys.get(map.keyAt(i)));
+			}
+		}
+		for (int keyId = 0; keyId < this.columns.length; keyId++) {
+			if (this.columns[keyId] != null && this.columns[keyId].has(slot)) {
+				if (result.isEmpty()) {
+					result = new HashSet<String>();
+				}
+				result.add(this.keys.get(keyId));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the properties of the given element which are not stored in a column.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @return The properties of the element or <code>null</code> if it has none
+	 */
+	PropertyMap map(int slot) {
+		PropertyMap map = null;
+		if (slot < this.maps.length) {
+			map = this.maps[slot];
+		}
+		return map;
+	}
+
+	/**
+	 * Removes all the properties of the given element.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 */
+	void clear(int slot) {
+		if (slot < this.maps.length && this.maps[slot] != null) {
+			PropertyMap map = this.maps[slot];
+			for (int i = 0; i < map.size(); i++) {
+				this.keyCounts[map.keyAt(i)]--;
+				this.unindex(map.keyAt(i), map.valueAt(i), slot);
+			}
+			this.maps[slot] = null;
+		}
+		for (int keyId = 0; keyId < this.columns.length; keyId++) {
+			PropertyColumn column = this.columns[keyId];
+			if (column != null && column.has(slot)) {
+				this.keyCounts[keyId]--;
+				this.unindex(keyId, column.get(slot), slot);
+				column.remove(slot);
+			}
+		}
+	}
+
+	/**
+	 * Declares the given key with the given type, moving its existing values from the property maps to a new
+	 * column.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @param type
+	 *            The type of the property
+	 */
+	void declare(String key, PropertyType type) {
+		PropertyStore.validate(key);
+		if (type == null) {
+			throw new IllegalArgumentException("The type of the property can not be null");
+		}
+		int keyId = this.keys.intern(key);
+		PropertyColumn column = this.column(keyId);
+		if (column == null) {
+			column = PropertyColumn.create(type);
+			for (PropertyMap map : this.maps) {
+				Object value = null;
+				if (map != null) {
+					value = map.get(keyId);
+				}
+				if (value != null && !column.accepts(value)) {
+					throw new IllegalArgumentException("The property " + key + " can not be declared as "
+							+ type + ", it has the value: " + value);
+				}
+			}
+			for (int slot = 0; slot < this.maps.length; slot++) {
+				PropertyMap map = this.maps[slot];
+				if (map != null && map.get(keyId) != null) {
+					column.set(slot, map.remove(keyId));
+					if (map.size() == 0) {
+						this.maps[slot] = null;
+					}
+				}
+			}
+			if (keyId >= this.columns.length) {
+				this.columns = Arrays.copyOf(this.columns, Capacities.grow(this.columns.length, keyId + 1));
+			}
+			this.columns[keyId] = column;
+		} else if (column.getType() != type) {
+			throw new IllegalArgumentException("The property " + key + " is already declared as "
+					+ column.getType());
+		}
+	}
+
+	/**
+	 * Returns the type with which the given key is declared.
+	 * 
+	 * @param key
+	 *            The key of the property
+	 * @return The type of the property or <code>null</code> if the key is not declared
+	 */
+	PropertyType getType(String key) {
+		PropertyColumn column = this.column(this.keys.lookup(key));
+		PropertyType type = null;
+		if (column != null) {
+			type = column.getType();
+		}
+		return type;
+	}
+
+	/**
+	 * Returns the declared keys.
+	 * 
+	 * @return The declared keys
+	 */
+	Set<String> getDeclaredKeys() {
+		Set<String> declaredKeys = new HashSet<String>();
+		for (int keyId = 0; keyId < this.columns.length; keyId++) {
+			if (this.columns[keyId] != null) {
+				declaredKeys.add(this.keys.get(keyId));
+			}
+		}
+		return declaredKeys;
+	}
+
+	/**
+	 * Returns the column of the given key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 * @return The column of the key or <code>null</code> if the key is not declared
+	 */
+	PropertyColumn column(int keyId) {
+		PropertyColumn column = null;
+		if (keyId >= 0 && keyId < this.columns.length) {
+			column = this.columns[keyId];
+		}
+		return column;
+	}
+
+	/**
+	 * Returns the dictionary of the property keys.
+	 * 
+	 * @return The dictionary of the property keys
+	 */
+	StringDictionary getKeys() {
+		return this.keys;
+	}
+
+	/**
+	 * Creates the index of the given key and indexes the existing elements. Creating an index which already
+	 * exists with the same type has no effect, an index which exists with another type is replaced.
+	 * 
+	 * @param key
+	 *            The key
+	 * @param type
+	 *            The type of the index
+	 */
+	void createIndex(String key, KeyIndexType type) {
+		PropertyStore.validate(key);
+		int keyId = this.keys.intern(key);
+		KeyIndex previous = null;
+		if (keyId < this.indexes.length) {
+			previous = this.indexes[keyId];
+		}
+		if (previous == null || !previous.getType().equals(type)) {
+			KeyIndex index = new KeyIndex(key, type);
+			this.fill(keyId, index, null);
+			if (keyId >= this.indexes.length) {
+				this.indexes = Arrays.copyOf(this.indexes, Capacities.grow(this.indexes.length, keyId + 1));
+			}
+			this.indexes[keyId] = index;
+		}
+	}
+
+	/**
+	 * Indicates if the given key is indexed.
+	 * 
+	 * @param key
+	 *            The key
+	 * @return <code>true</code> if the key is indexed, <code>false</code> otherwise
+	 */
+	boolean isIndexed(String key) {
+		int keyId = this.keys.lookup(key);
+		return keyId >= 0 && keyId < this.indexes.length && this.indexes[keyId] != null;
+	}
+
+	/**
+	 * Drops the index of the given key. Dropping an index which does not exist has no effect.
+	 * 
+	 * @param key
+	 *            The key
+	 */
+	void dropIndex(String key) {
+		int keyId = this.keys.lookup(key);
+		if (keyId >= 0 && keyId < this.indexes.length) {
+			this.indexes[keyId] = null;
+		}
+	}
+
+	/**
+	 * Returns the indexed keys.
+	 * 
+	 * @return The indexed keys
+	 */
+	Set<String> getIndexedKeys() {
+		Set<String> indexedKeys = new HashSet<String>();
+		for (KeyIndex index : this.indexes) {
+			if (index != null) {
+				indexedKeys.add(index.getKey());
+			}
+		}
+		return indexedKeys;
+	}
+
+	/**
+	 * Returns the index of the given key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 * @return The index of the key or <code>null</code> if the key is not indexed or if the maintenance of
+	 *         the indexes is suspended
+	 */
+	KeyIndex getIndex(int keyId) {
+		KeyIndex index = null;
+		if (!this.indexesSuspended && keyId >= 0 && keyId < this.indexes.length) {
+			index = this.indexes[keyId];
+		}
+		return index;
+	}
+
+	/**
+	 * Creates the given vertex-centric index and indexes the existing edges. Creating an index for a key
+	 * which already has one has no effect.
+	 * 
+	 * @param index
+	 *            The vertex-centric index
+	 */
+	void createVertexCentricIndex(VertexCentricIndex index) {
+		PropertyStore.validate(index.getKey());
+		int keyId = this.keys.intern(index.getKey());
+		if (keyId >= this.vertexCentricIndexes.length || this.vertexCentricIndexes[keyId] == null) {
+			this.fill(keyId, null, index);
+			if (keyId >= this.vertexCentricIndexes.length) {
+				int capacity = Capacities.grow(this.vertexCentricIndexes.length, keyId + 1);
+				this.vertexCentricIndexes = Arrays.copyOf(this.vertexCentricIndexes, capacity);
+			}
+			this.vertexCentricIndexes[keyId] = index;
+		}
+	}
+
+	/**
+	 * Drops the vertex-centric index of the given key. Dropping an index which does not exist has no effect.
+	 * 
+	 * @param key
+	 *            The key
+	 */
+	void dropVertexCentricIndex(String key) {
+		int keyId = this.keys.lookup(key);
+		if (keyId >= 0 && keyId < this.vertexCentricIndexes.length) {
+			this.vertexCentricIndexes[keyId] = null;
+		}
+	}
+
+	/**
+	 * Returns the keys having a vertex-centric index.
+	 * 
+	 * @return The keys having a vertex-centric index
+	 */
+	Set<String> getVertexCentricIndexedKeys() {
+		Set<String> indexedKeys = new HashSet<String>();
+		for (VertexCentricIndex index : this.vertexCentricIndexes) {
+			if (index != null) {
+				indexedKeys.add(index.getKey());
+			}
+		}
+		return indexedKeys;
+	}
+
+	/**
+	 * Returns the vertex-centric index of the given key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 * @return The vertex-centric index of the key or <code>null</code> if the key does not have one or if the
+	 *         maintenance of the indexes is suspended
+	 */
+	VertexCentricIndex getVertexCentricIndex(int keyId) {
+		VertexCentricIndex index = null;
+		if (!this.indexesSuspended && keyId >= 0 && keyId < this.vertexCentricIndexes.length) {
+			index = this.vertexCentricIndexes[keyId];
+		}
+		return index;
+	}
+
+	/**
+	 * Suspends the maintenance of the indexes until {@link #resumeIndexes()} is called. The indexes are not
+	 * used to answer the queries meanwhile.
+	 */
+	void suspendIndexes() {
+		this.indexesSuspended = true;
+	}
+
+	/**
+	 * Resumes the maintenance of the indexes and rebuilds them, in a single pass over the properties.
+	 */
+	void resumeIndexes() {
+		if (this.indexesSuspended) {
+			for (int keyId = 0; keyId < this.indexes.length; keyId++) {
+				KeyIndex index = this.indexes[keyId];
+				if (index != null) {
+					this.indexes[keyId] = new KeyIndex(index.getKey(), index.getType());
+				}
+			}
+			for (VertexCentricIndex index : this.vertexCentricIndexes) {
+				if (index != null) {
+					index.clear();
+				}
+			}
+			this.indexesSuspended = false;
+			for (int slot = 0; slot < this.maps.length; slot++) {
+				PropertyMap map = this.maps[slot];
+				for (int i = 0; map != null && i < map.size(); i++) {
+					this.index(map.keyAt(i), map.valueAt(i), slot);
+				}
+			}
+			for (int keyId = 0; keyId < this.columns.length; keyId++) {
+				if (this.columns[keyId] != null) {
+					this.fill(keyId, this.getIndex(keyId), this.getVertexCentricIndex(keyId));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of elements holding the given key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 * @return The number of elements holding the key
+	 */
+	int count(int keyId) {
+		int count = 0;
+		if (keyId >= 0 && keyId < this.keyCounts.length) {
+			count = this.keyCounts[keyId];
+		}
+		return count;
+	}
+
+	/**
+	 * Records the given property in the indexes of its key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key of the property
+	 * @param value
+	 *            The value of the property
+	 * @param slot
+	 *            The slot of the element
+	 */
+	private void index(int keyId, Object value, int slot) {
+		KeyIndex index = this.getIndex(keyId);
+		if (index != null) {
+			index.add(value, slot);
+		}
+		VertexCentricIndex vertexCentricIndex = this.getVertexCentricIndex(keyId);
+		if (vertexCentricIndex != null) {
+			vertexCentricIndex.add(value, slot);
+		}
+	}
+
+	/**
+	 * Removes the given property from the indexes of its key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key of the property
+	 * @param value
+	 *            The value of the property
+	 * @param slot
+	 *            The slot of the element
+	 */
+	private void unindex(int keyId, Object value, int slot) {
+		KeyIndex index = this.getIndex(keyId);
+		if (index != null) {
+			index.remove(value, slot);
+		}
+		VertexCentricIndex vertexCentricIndex = this.getVertexCentricIndex(keyId);
+		if (vertexCentricIndex != null) {
+			vertexCentricIndex.remove(value, slot);
+		}
+	}
+
+	/**
+	 * Adds the existing values of the given key to the given new indexes.
+	 * 
+	 * @param keyId
+	 *            The integer of the key
+	 * @param index
+	 *            The new key index or <code>null</code>
+	 * @param vertexCentricIndex
+	 *            The new vertex-centric index or <code>null</code>
+	 */
+	private void fill(int keyId, KeyIndex index, VertexCentricIndex vertexCentricIndex) {
+		PropertyColumn column = this.column(keyId);
+		if (column == null) {
+			for (int slot = 0; slot < this.maps.length; slot++) {
+				if (this.maps[slot] != null) {
+					this.fill(this.maps[slot].get(keyId), slot, index, vertexCentricIndex);
+				}
+			}
+		} else {
+			for (int slot = column.nextSlot(0); slot >= 0; slot = column.nextSlot(slot + 1)) {
+				this.fill(column.get(slot), slot, index, vertexCentricIndex);
+			}
+		}
+	}
+
+	/**
+	 * Adds the given value of a property to the given indexes.
+	 * 
+	 * @param value
+	 *            The value of the property or <code>null</code> if the element does not have it
+	 * @param slot
+	 *            The slot of the element
+	 * @param index
+	 *            The key index to fill or <code>null</code>
+	 * @param vertexCentricIndex
+	 *            The vertex-centric index to fill or <code>null</code>
+	 */
+	private void fill(Object value, int slot, KeyIndex index, VertexCentricIndex vertexCentricIndex) {
+		if (value != null && index != null) {
+			index.add(value, slot);
+		}
+		if (value != null && vertexCentricIndex != null) {
+			vertexCentricIndex.add(value, slot);
+		}
+	}
+
+	/**
+	 * Returns the value of the given property, checking that it exists and that it is of the given type.
+	 * 
+	 * @param slot
+	 *            The slot of the element
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 * @param key
+	 *            The key of the property
+	 * @param type
+	 *            The expected type of the value
+	 * @return The value of the property
+	 */
+	private Object getTyped(int slot, int keyId, String key, Class<?> type) {
+		Object value = this.get(slot, keyId);
+		if (value == null) {
+			throw new IllegalStateException("The element does not have the property: " + key);
+		}
+		if (!type.isInstance(value)) {
+			throw new IllegalArgumentException("The property " + key + " is not a " + type.getSimpleName()
+					+ ": " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * Counts the given slot as holding the given key if it does not have a value in the given column yet.
+	 * 
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 * @param column
+	 *            The column of the key
+	 * @param slot
+	 *            The slot of the element
+	 */
+	private void countSlot(int keyId, PropertyColumn column, int slot) {
+		if (!column.has(slot)) {
+			this.increment(keyId);
+		}
+	}
+
+	/**
+	 * Increments the number of elements holding the given key.
+	 * 
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 */
+	private void increment(int keyId) {
+		if (keyId >= this.keyCounts.length) {
+			int capacity = Capacities.grow(this.keyCounts.length, keyId + 1);
+			this.keyCounts = Arrays.copyOf(this.keyCounts, capacity);
+		}
+		this.keyCounts[keyId]++;
+	}
+
+	/**
+	 * Indicates if the given key has a key index or a vertex-centric index to maintain.
+	 * 
+	 * @param keyId
+	 *            The integer of the key in the key dictionary
+	 * @return <code>true</code> if the key has an index, <code>false</code> otherwise
+	 */
+	private boolean hasIndexes(int keyId) {
+		return this.getIndex(keyId) != null || this.getVertexCentricIndex(keyId) != null;
+	}
+
+	/**
+	 * Makes sure that the store can hold the given number of slots.
+	 * 
+	 * @param capacity
+	 *            The number of slots
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > this.maps.length) {
+			this.maps = Arrays.copyOf(this.maps, Capacities.grow(this.maps.length, capacity));
+		}
+	}
+
+	/**
+	 * Checks that the given key can be used as the key of a property.
+	 * 
+	 * @param key
+	 *            The key
+	 */
+	static void validate(String key) {
+		if (key == null || key.length() == 0) {
+			throw new IllegalArgumentException("Property key can not be null or empty");
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The execution plan of a query, computed by the {@link QueryPlanner}: the access path to the candidate
+ * elements, the filters checked on each candidate, most selective first, and the limit of the query.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class QueryPlan {
+	/**
+	 * The name of the elements returned by the plan.
+	 */
+	private final String elements;
+
+	/**
+	 * The access path to the candidate elements.
+	 */
+	private final AccessPath access;
+
+	/**
+	 * The filters checked on each candidate, in the order in which they are checked.
+	 */
+	private final PropertyFilter[] filters;
+
+	/**
+	 * The estimated selectivity of each filter.
+	 */
+	private final double[] selectivities;
+
+	/**
+	 * The maximum number of elements to return.
+	 */
+	private final long limit;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param elements
+	 *            The name of the elements returned by the plan
+	 * @param access
+	 *            The access path to the candidate elements
+	 * @param filters
+	 *            The filters checked on each candidate, in the order in which they are checked
+	 * @param selectivities
+	 *            The estimated selectivity of each filter
+	 * @param limit
+	 *            The maximum number of elements to return
+	 */
+	QueryPlan(String elements, AccessPath access, PropertyFilter[] filters, double[] selectivities,
+			long limit) {
+		this.elements = elements;
+		this.access = access;
+		this.filters = filters;
+		this.selectivities = selectivities;
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the access path to the candidate elements.
+	 * 
+	 * @return The access path to the candidate elements
+	 */
+	AccessPath getAccess() {
+		return this.access;
+	}
+
+	/**
+	 * Returns the maximum number of elements to return.
+	 * 
+	 * @return The maximum number of elements to return
+	 */
+	long getLimit() {
+		return this.limit;
+	}
+
+	/**
+	 * Returns the number of elements returned by the plan when it can be computed from the access path
+	 * without reading the elements, that is to say when the only filter of the plan is answered exactly by
+	 * the access path.
+	 * 
+	 * @return The number of elements returned by the plan or {@link AccessPath#UNKNOWN}
+	 */
+	long count() {
+		long count = AccessPath.UNKNOWN;
+		if (this.filters.length == 1 && this.filters[0] == this.access.getFilter()) {
+			count = this.access.count();
+			if (count != AccessPath.UNKNOWN) {
+				count = Math.min(count, this.limit);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Indicates if the plan has filters, that is to say if an index could have answered one of them.
+	 * 
+	 * @return <code>true</code> if the plan has filters, <code>false</code> otherwise
+	 */
+	boolean hasFilters() {
+		return this.filters.length > 0;
+	}
+
+	/**
+	 * Indicates if the access path of the plan is an index answering one of its filters.
+	 * 
+	 * @return <code>true</code> if the access path is an index, <code>false</code> otherwise
+	 */
+	boolean usesIndex() {
+		return this.access.getFilter() != null;
+	}
+
+	/**
+	 * Creates the matcher checking the filters of the plan in their order.
+	 * 
+	 * @param keys
+	 *            The dictionary of the property keys
+	 * @return The matcher checking the filters of the plan
+	 */
+	PropertyMatcher createMatcher(StringDictionary keys) {
+		return new PropertyMatcher(Arrays.asList(this.filters), keys);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(this.elements).append(": ").append(this.access);
+		builder.append(" (").append(this.access.estimate()).append(" candidates)");
+		for (int i = 0; i < this.filters.length; i++) {
+			builder.append("\n  filter ").append(this.filters[i]);
+			builder.append(String.format(Locale.ENGLISH, " (selectivity %.4f)", this.selectivities[i]));
+		}
+		if (this.limit != Long.MAX_VALUE) {
+			builder.append("\n  limit ").append(this.limit);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,353 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Compare;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Utility class turning the filters accumulated by a query into a {@link QueryPlan}.
+ * <p>
+ * For a graph query, the planner considers a scan of all the slots and every access path that a key index
+ * can offer for one of the filters (a lookup for an equality, a range scan of a sorted index for an interval
+ * or an ordered {@link Compare} predicate) and keeps the one returning the fewest candidates. The lookups are
+ * counted exactly from the indexes while the ranges are estimated from their first values, so that the cost
+ * of planning does not grow with the size of the range.
+ * </p>
+ * <p>
+ * The filters are then ordered by estimated selectivity so that a candidate is rejected as early as
+ * possible. The selectivity of a filter is estimated from the number of elements holding its key, the
+ * indexes when they exist and fixed ratios otherwise. The filter answered by the access path is checked
+ * last.
+ * </p>
+ * <p>
+ * For a vertex query, the planner compares the number of edges incident to the vertex with the number of
+ * candidates returned by the vertex-centric indexes on the keys of the filters.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class QueryPlanner {
+	/**
+	 * The estimated ratio of the elements holding a key accepted by an equality on an unindexed key.
+	 */
+	private static final double EQUALITY_SELECTIVITY = 0.1;
+
+	/**
+	 * The estimated ratio of the elements holding a key accepted by an interval or an ordered comparison.
+	 */
+	private static final double RANGE_SELECTIVITY = 1.0 / 3;
+
+	/**
+	 * The estimated ratio of the elements accepted by an unknown predicate.
+	 */
+	private static final double PREDICATE_SELECTIVITY = 0.5;
+
+	/**
+	 * The constructor.
+	 */
+	private QueryPlanner() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Plans a query over all the vertices or all the edges of the graph.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertices
+	 *            <code>true</code> to plan the query over the vertices, <code>false</code> over the edges
+	 * @param filters
+	 *            The filters of the query
+	 * @param limit
+	 *            The maximum number of elements to return
+	 * @return The plan of the query
+	 */
+	static QueryPlan plan(MemoryGraph graph, boolean vertices, List<PropertyFilter> filters, long limit) {
+		PropertyStore store;
+		long count;
+		String elements;
+		if (vertices) {
+			store = graph.getVertexStore();
+			count = graph.countVertices();
+			elements = "vertices";
+		} else {
+			store = graph.getEdgeStore();
+			count = graph.countEdges();
+			elements = "edges";
+		}
+
+		AccessPath access;
+		if (limit == 0) {
+			access = AccessPath.empty();
+		} else {
+			access = QueryPlanner.chooseAccess(graph, store, vertices, filters);
+		}
+		return QueryPlanner.order(elements, access, store, graph.getSymbols(), count, filters, limit);
+	}
+
+	/**
+	 * Plans a query over the edges incident to a vertex. The planner reads the adjacency of the vertex unless
+	 * a vertex-centric index on the key of one of the filters returns fewer candidates.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param adjacency
+	 *            The access path to all the incident edges of the query
+	 * @param filters
+	 *            The filters of the query
+	 * @param limit
+	 *            The maximum number of edges to return
+	 * @return The plan of the query
+	 */
+	static QueryPlan plan(MemoryGraph graph, AccessPath.IncidentEdges adjacency, List<PropertyFilter> filters,
+			long limit) {
+		PropertyStore store = graph.getEdgeStore();
+		StringDictionary keys = graph.getSymbols();
+		AccessPath access = adjacency;
+		long estimate = adjacency.estimate();
+		for (PropertyFilter filter : filters) {
+			VertexCentricIndex index = store.getVertexCentricIndex(keys.lookup(filter.getKey()));
+			if (index != null) {
+				AccessPath candidate = adjacency.withIndex(index, filter);
+				if (candidate != null && candidate.estimate() < estimate) {
+					access = candidate;
+					estimate = candidate.estimate();
+				}
+			}
+		}
+		return QueryPlanner.order("edges", access, store, keys, graph.countEdges(), filters, limit);
+	}
+
+	/**
+	 * Chooses the access path returning the fewest candidates.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param store
+	 *            The properties of the elements
+	 * @param vertices
+	 *            <code>true</code> if the elements are vertices, <code>false</code> if they are edges
+	 * @param filters
+	 *            The filters of the query
+	 * @return The access path returning the fewest candidates
+	 */
+	private static AccessPath chooseAccess(MemoryGraph graph, PropertyStore store, boolean vertices,
+			List<PropertyFilter> filters) {
+		AccessPath best = AccessPath.scan(graph, vertices);
+		long bestEstimate = best.estimate();
+		StringDictionary keys = graph.getSymbols();
+		for (PropertyFilter filter : filters) {
+			KeyIndex index = store.getIndex(keys.lookup(filter.getKey()));
+			if (index != null) {
+				AccessPath candidate = QueryPlanner.createIndexAccess(index, filter);
+				if (candidate != null && candidate.estimate() < bestEstimate) {
+					best = candidate;
+					bestEstimate = candidate.estimate();
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Creates the access path answering the given filter from the given index.
+	 * 
+	 * @param index
+	 *            The index of the key of the filter
+	 * @param filter
+	 *            The filter
+	 * @return The access path answering the filter or <code>null</code> if the index can not answer it
+	 */
+	private static AccessPath createIndexAccess(KeyIndex index, PropertyFilter filter) {
+		AccessPath access = null;
+		if (QueryPlanner.isEquality(filter)) {
+			access = AccessPath.lookup(index, filter);
+		} else if (index.isSorted()) {
+			ValueRange range = ValueRange.of(filter);
+			if (range != null) {
+				access = AccessPath.range(index, filter, range);
+			}
+		}
+		return access;
+	}
+
+	/**
+	 * Indicates if the given filter only accepts the elements whose property is equal to a non
+	 * <code>null</code> value.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @return <code>true</code> if the filter is an equality with a non <code>null</code> value,
+	 *         <code>false</code> otherwise
+	 */
+	static boolean isEquality(PropertyFilter filter) {
+		PropertyFilter.Kind kind = filter.getKind();
+		return filter.getValue() != null
+				&& (PropertyFilter.Kind.EQUAL.equals(kind) || PropertyFilter.Kind.PREDICATE.equals(kind)
+						&& Compare.EQUAL.equals(filter.getPredicate()));
+	}
+
+	/**
+	 * Orders the filters of the query by estimated selectivity and creates the plan.
+	 * 
+	 * @param elements
+	 *            The name of the elements returned by the plan
+	 * @param access
+	 *            The access path to the candidate elements
+	 * @param store
+	 *            The properties of the elements
+	 * @param keys
+	 *            The dictionary of the property keys
+	 * @param count
+	 *            The number of elements in the graph
+	 * @param filters
+	 *            The filters of the query
+	 * @param limit
+	 *            The maximum number of elements to return
+	 * @return The plan of the query
+	 */
+	private static QueryPlan order(String elements, AccessPath access, PropertyStore store,
+			StringDictionary keys, long count, List<PropertyFilter> filters, long limit) {
+		final double[] estimates = new double[filters.size()];
+		Integer[] positions = new Integer[filters.size()];
+		for (int i = 0; i < estimates.length; i++) {
+			PropertyFilter filter = filters.get(i);
+			if (filter == access.getFilter()) {
+				estimates[i] = 1;
+			} else {
+				estimates[i] = QueryPlanner.selectivity(filter, store, keys, count);
+			}
+			positions[i] = Integer.valueOf(i);
+		}
+		// The sort is stable, the filters with the same selectivity keep the order of the query
+		Arrays.sort(positions, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer first, Integer second) {
+				return Double.compare(estimates[first.intValue()], estimates[second.intValue()]);
+			}
+		});
+
+		PropertyFilter[] ordered = new PropertyFilter[positions.length];
+		double[] selectivities = new double[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			ordered[i] = filters.get(positions[i].intValue());
+			selectivities[i] = estimates[positions[i].intValue()];
+		}
+		return new QueryPlan(elements, access, ordered, selectivities, limit);
+	}
+
+	/**
+	 * Estimates the ratio of the elements accepted by the given filter.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @param store
+	 *            The properties of the elements
+	 * @param keys
+	 *            The dictionary of the property keys
+	 * @param count
+	 *            The number of elements in the graph
+	 * @return The estimated ratio of the elements accepted by the filter, between 0 and 1
+	 */
+	private static double selectivity(PropertyFilter filter, PropertyStore store, StringDictionary keys,
+			long count) {
+		int keyId = keys.lookup(filter.getKey());
+		double present = 0;
+		if (count > 0) {
+			present = Math.min(1, (double)store.count(keyId) / count);
+		}
+		KeyIndex index = store.getIndex(keyId);
+
+		double selectivity;
+		switch (filter.getKind()) {
+			case HAS:
+				selectivity = present;
+				break;
+			case HAS_NOT:
+				selectivity = 1 - present;
+				break;
+			case EQUAL:
+				selectivity = QueryPlanner.equality(filter.getValue(), present, index, count);
+				break;
+			case NOT_EQUAL:
+				selectivity = 1 - QueryPlanner.equality(filter.getValue(), present, index, count);
+				break;
+			case PREDICATE:
+				IPredicate predicate = filter.getPredicate();
+				if (Compare.EQUAL.equals(predicate)) {
+					selectivity = QueryPlanner.equality(filter.getValue(), present, index, count);
+				} else if (Compare.NOT_EQUAL.equals(predicate)) {
+					selectivity = 1 - QueryPlanner.equality(filter.getValue(), present, index, count);
+				} else if (predicate instanceof Compare) {
+					selectivity = present * RANGE_SELECTIVITY;
+				} else {
+					selectivity = PREDICATE_SELECTIVITY;
+				}
+				break;
+			case INTERVAL:
+				selectivity = present * RANGE_SELECTIVITY;
+				break;
+			default:
+				throw new IllegalStateException(String.valueOf(filter.getKind()));
+		}
+		return selectivity;
+	}
+
+	/**
+	 * Estimates the ratio of the elements whose property is equal to the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param present
+	 *            The ratio of the elements holding the key of the property
+	 * @param index
+	 *            The index of the key or <code>null</code> if the key is not indexed
+	 * @param count
+	 *            The number of elements in the graph
+	 * @return The estimated ratio of the elements whose property is equal to the value
+	 */
+	private static double equality(Object value, double present, KeyIndex index, long count) {
+		double selectivity;
+		if (value == null) {
+			selectivity = 1 - present;
+		} else if (index != null && count > 0) {
+			selectivity = Math.min(1, (double)index.count(value) / count);
+		} else {
+			selectivity = present * EQUALITY_SELECTIVITY;
+		}
+		return selectivity;
+	}
+}
@@ -0,0 +1,113 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.internal.ISlotCursor;
+
+/**
+ * A cursor over a range of the vertex slots or of the edge slots of a graph, all the slots by default. The
+ * number of slots is read at each step so that the elements added while the cursor is used are returned too
+ * if they are in the range.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class SlotRangeCursor implements ISlotCursor {
+	/**
+	 * The graph.
+	 */
+	private final MemoryGraph graph;
+
+	/**
+	 * Indicates if the cursor reads the vertex slots or the edge slots.
+	 */
+	private final boolean vertices;
+
+	/**
+	 * The next slot to return.
+	 */
+	private int slot;
+
+	/**
+	 * The end of the range of slots, exclusive.
+	 */
+	private final int end;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertices
+	 *            <code>true</code> to read the vertex slots, <code>false</code> to read the edge slots
+	 */
+	SlotRangeCursor(MemoryGraph graph, boolean vertices) {
+		this(graph, vertices, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param vertices
+	 *            <code>true</code> to read the vertex slots, <code>false</code> to read the edge slots
+	 * @param start
+	 *            The start of the range of slots, inclusive
+	 * @param end
+	 *            The end of the range of slots, exclusive
+	 */
+	SlotRangeCursor(MemoryGraph graph, boolean vertices, int start, int end) {
+		this.graph = graph;
+		this.vertices = vertices;
+		this.slot = start;
+		this.end = end;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.internal.ISlotCursor#next()
+	 */
+	@Override
+	public int next() {
+		int slots;
+		if (this.vertices) {
+			slots = this.graph.getVertexSlots();
+		} else {
+			slots = this.graph.getEdgeSlots();
+		}
+		int next = END;
+		if (this.slot < slots && this.slot < this.end) {
+			next = this.slot;
+			this.slot++;
+		}
+		return next;
+	}
+}
@@ -0,0 +1,141 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.internal.Capacities;
+import fr.obeo.graph.api.internal.IntList;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary mapping the edge labels and the property keys of the graph to small integers. Internal tables
+ * only store those integers and compare them instead of strings.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class StringDictionary {
+	/**
+	 * The initial capacity of the dictionary.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * The integer associated to each string.
+	 */
+	private final ObjectIntMap ids = new ObjectIntMap();
+
+	/**
+	 * The string associated to each integer.
+	 */
+	private String[] strings = new String[INITIAL_CAPACITY];
+
+	/**
+	 * The number of strings in the dictionary.
+	 */
+	private int size;
+
+	/**
+	 * Returns the integer associated to the given string, registering the string if necessary.
+	 * 
+	 * @param string
+	 *            The string
+	 * @return The integer associated to the string
+	 */
+	int intern(String string) {
+		int id = this.ids.get(string);
+		if (id == ObjectIntMap.MISSING) {
+			id = this.size;
+			if (id == this.strings.length) {
+				this.strings = Arrays.copyOf(this.strings, Capacities.grow(this.strings.length, id + 1));
+			}
+			this.strings[id] = string;
+			this.ids.put(string, id);
+			this.size++;
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the integer associated to the given string or {@link ObjectIntMap#MISSING} if the string has
+	 * never been registered.
+	 * 
+	 * @param string
+	 *            The string
+	 * @return The integer associated to the string or {@link ObjectIntMap#MISSING}
+	 */
+	int lookup(String string) {
+		return this.ids.get(string);
+	}
+
+	/**
+	 * Returns the integers associated to the given strings, ignoring the duplicated strings and the strings
+	 * that have never been registered. Since nothing can match an unknown string, the result can be empty
+	 * even if some strings have been given.
+	 * 
+	 * @param values
+	 *            The strings
+	 * @return The integers associated to the strings or <code>null</code> if no string has been given
+	 */
+	int[] lookupAll(String... values) {
+		int[] result = null;
+		if (values != null && values.length > 0) {
+			IntList found = new IntList(values.length);
+			for (String value : values) {
+				int id = this.ids.get(value);
+				if (id != ObjectIntMap.MISSING && found.indexOf(id) < 0) {
+					found.add(id);
+				}
+			}
+			result = found.toArray();
+			Arrays.sort(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the string associated to the given integer.
+	 * 
+	 * @param id
+	 *            The integer
+	 * @return The string associated to the integer
+	 */
+	String get(int id) {
+		return this.strings[id];
+	}
+
+	/**
+	 * Returns the number of strings in the dictionary.
+	 * 
+	 * @return The number of strings in the dictionary
+	 */
+	int size() {
+		return this.size;
+	}
+}
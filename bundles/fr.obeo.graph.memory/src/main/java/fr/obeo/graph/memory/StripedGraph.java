@@ -0,0 +1,576 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IGraphQuery;
+import fr.obeo.graph.api.IVertex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A thread safe in-memory implementation of the graph API partitioned in stripes for multi-core writes.
+ * <p>
+ * The vertices are distributed in stripes by the hash of their identifier and each edge is stored in the
+ * stripe of its out vertex. Each stripe has its own maps and its own read-write lock (see
+ * {@link GraphStripe}), so that the writers working on different stripes never contend. The edges are also
+ * indexed by identifier in a concurrent map, which only finds their stripe: the edge itself is read under
+ * the lock of the stripe of its out vertex.
+ * </p>
+ * <p>
+ * The operations spanning several stripes lock all of them, in the order of their indexes so that they can
+ * not deadlock: the creation and the removal of an edge lock the stripes of its two vertices, the removal of
+ * a vertex locks the stripes of the vertex and of the other vertices of its incident edges, so that the
+ * cascade removes all the incident edges atomically. As a result the graph scales with the number of stripes
+ * as long as the writers do not all work on the same vertices.
+ * </p>
+ * <p>
+ * The iterators of the graph read the stripes one after the other, lazily, taking the read lock of a stripe
+ * only to check each of its elements. They are weakly consistent: they never fail nor hold a lock between two
+ * elements, and they may or may not return the elements added to a stripe while it is read.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class StripedGraph implements IGraph {
+	/**
+	 * The number of stripes per available processor of the default configuration.
+	 */
+	private static final int STRIPES_PER_PROCESSOR = 4;
+
+	/**
+	 * The multiplier spreading the bits of the hashes, the golden ratio in fixed point.
+	 */
+	private static final int GOLDEN_RATIO = 0x9e3779b9;
+
+	/**
+	 * The load factor of the index of the edges.
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * Half the number of bits of an <code>int</code>.
+	 */
+	private static final int HALF_BITS = 16;
+
+	/**
+	 * The message of the exception thrown for null identifiers.
+	 */
+	private static final String NULL_ID = "Element identifiers can not be null";
+
+	/**
+	 * The stripes.
+	 */
+	private final GraphStripe[] stripes;
+
+	/**
+	 * The edges, by identifier, modified under the write lock of the stripe of each edge.
+	 */
+	private final ConcurrentMap<Object, StripedEdge> edges;
+
+	/**
+	 * The next identifier to generate.
+	 */
+	private final AtomicLong nextId = new AtomicLong();
+
+	/**
+	 * The pool of the labels of the edges.
+	 */
+	private final StringPool labels = new StringPool();
+
+	/**
+	 * The constructor of a graph with four stripes per available processor.
+	 */
+	public StripedGraph() {
+		this(STRIPES_PER_PROCESSOR * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param stripeCount
+	 *            The minimum number of stripes, rounded up to a power of two
+	 */
+	public StripedGraph(int stripeCount) {
+		if (stripeCount < 1 || stripeCount > 1 << (Integer.SIZE - 2)) {
+			throw new IllegalArgumentException("The number of stripes must be positive: "
+					+ stripeCount);
+		}
+		this.stripes = new GraphStripe[Integer.highestOneBit(stripeCount * 2 - 1)];
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new GraphStripe();
+		}
+		this.edges = new ConcurrentHashMap<Object, StripedEdge>(this.stripes.length, LOAD_FACTOR,
+				this.stripes.length);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex addVertex(Object id) {
+		StripedVertex vertex = null;
+		while (vertex == null) {
+			Object vertexId = id;
+			if (vertexId == null) {
+				vertexId = Long.valueOf(this.nextId.getAndIncrement());
+			}
+			StripedVertex candidate = new StripedVertex(this, vertexId);
+			GraphStripe stripe = this.stripes[candidate.getStripe()];
+			Lock lock = stripe.getLock().writeLock();
+			lock.lock();
+			try {
+				if (!stripe.getVertices().containsKey(vertexId)) {
+					stripe.getVertices().put(vertexId, candidate);
+					vertex = candidate;
+				} else if (id != null) {
+					throw new IllegalArgumentException("Vertex with id already exists: " + id);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex getVertex(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IVertex vertex;
+		GraphStripe stripe = this.stripes[this.stripeOf(id)];
+		Lock lock = stripe.getLock().readLock();
+		lock.lock();
+		try {
+			vertex = stripe.getVertices().get(id);
+		} finally {
+			lock.unlock();
+		}
+		return vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The stripes of the other vertices of the incident edges are computed under the read lock of the stripe
+	 * of the vertex and checked again once all the stripes are locked, the removal is retried if edges have
+	 * been added to other stripes meanwhile.
+	 * </p>
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeVertex(fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public void removeVertex(IVertex vertex) {
+		StripedVertex stripedVertex = this.vertex(vertex);
+		boolean done = false;
+		while (!done) {
+			BitSet locked = this.incidentStripes(stripedVertex);
+			this.lock(locked);
+			try {
+				BitSet required = this.stripesOf(stripedVertex);
+				required.andNot(locked);
+				if (stripedVertex.isRemoved()) {
+					done = true;
+				} else if (required.isEmpty()) {
+					for (Direction direction : new Direction[] {Direction.OUT, Direction.IN }) {
+						Set<StripedEdge> incident = stripedVertex.getEdges(direction);
+						List<StripedEdge> edges = new ArrayList<StripedEdge>(incident);
+						for (StripedEdge edge : edges) {
+							this.unregister(edge);
+						}
+					}
+					this.stripes[stripedVertex.getStripe()].getVertices().remove(stripedVertex.getId());
+					stripedVertex.markRemoved();
+					done = true;
+				}
+			} finally {
+				this.unlock(locked);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices() {
+		return this.query().vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(String key, Object value) {
+		return this.query().has(key, value).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addEdge(java.lang.Object, fr.obeo.graph.api.IVertex,
+	 *      fr.obeo.graph.api.IVertex, java.lang.String)
+	 */
+	@Override
+	public IEdge addEdge(Object id, IVertex outVertex, IVertex inVertex, String label) {
+		if (label == null) {
+			throw new IllegalArgumentException("Edge label can not be null");
+		}
+		StripedVertex out = this.vertex(outVertex);
+		StripedVertex in = this.vertex(inVertex);
+		String pooledLabel = this.labels.intern(label);
+		StripedEdge edge = null;
+		while (edge == null) {
+			Object edgeId = id;
+			if (edgeId == null) {
+				edgeId = Long.valueOf(this.nextId.getAndIncrement());
+			}
+			StripedEdge candidate = new StripedEdge(this, edgeId, out, in, pooledLabel);
+			BitSet locked = this.stripesOf(candidate);
+			this.lock(locked);
+			try {
+				out.checkAlive();
+				in.checkAlive();
+				if (this.edges.putIfAbsent(edgeId, candidate) == null) {
+					this.stripes[candidate.getStripe()].getEdges().put(edgeId, candidate);
+					out.getEdges(Direction.OUT).add(candidate);
+					in.getEdges(Direction.IN).add(candidate);
+					edge = candidate;
+				} else if (id != null) {
+					throw new IllegalArgumentException("Edge with id already exists: " + id);
+				}
+			} finally {
+				this.unlock(locked);
+			}
+		}
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The index of the edges only finds the stripe of the edge, the edge is then read in the stripe of its
+	 * out vertex under its read lock, so that an edge being created or removed is only returned once its
+	 * vertices know it.
+	 * </p>
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdge(java.lang.Object)
+	 */
+	@Override
+	public IEdge getEdge(Object id) {
+		if (id == null) {
+			throw new IllegalArgumentException(NULL_ID);
+		}
+		IEdge edge = null;
+		StripedEdge indexed = this.edges.get(id);
+		if (indexed != null) {
+			GraphStripe stripe = this.stripes[indexed.getStripe()];
+			Lock lock = stripe.getLock().readLock();
+			lock.lock();
+			try {
+				edge = stripe.getEdges().get(id);
+			} finally {
+				lock.unlock();
+			}
+		}
+		return edge;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeEdge(fr.obeo.graph.api.IEdge)
+	 */
+	@Override
+	public void removeEdge(IEdge edge) {
+		if (!(edge instanceof StripedEdge) || ((StripedEdge)edge).graph != this) {
+			throw new IllegalArgumentException("The edge does not belong to this graph: " + edge);
+		}
+		StripedEdge stripedEdge = (StripedEdge)edge;
+		BitSet locked = this.stripesOf(stripedEdge);
+		this.lock(locked);
+		try {
+			if (!stripedEdge.isRemoved()) {
+				this.unregister(stripedEdge);
+			}
+		} finally {
+			this.unlock(locked);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges() {
+		return this.query().edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(String key, Object value) {
+		return this.query().has(key, value).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#query()
+	 */
+	@Override
+	public IGraphQuery query() {
+		return new StripedGraphQuery(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		// Nothing to release, the graph only lives in memory
+	}
+
+	/**
+	 * Returns the number of vertices of the graph.
+	 * 
+	 * @return The number of vertices of the graph
+	 */
+	public long countVertices() {
+		long count = 0;
+		for (GraphStripe stripe : this.stripes) {
+			Lock lock = stripe.getLock().readLock();
+			lock.lock();
+			try {
+				count += stripe.getVertices().size();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of edges of the graph.
+	 * 
+	 * @return The number of edges of the graph
+	 */
+	public long countEdges() {
+		long count = 0;
+		for (GraphStripe stripe : this.stripes) {
+			Lock lock = stripe.getLock().readLock();
+			lock.lock();
+			try {
+				count += stripe.getEdges().size();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of stripes of the graph.
+	 * 
+	 * @return The number of stripes of the graph
+	 */
+	public int getStripeCount() {
+		return this.stripes.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "stripedgraph[vertices:" + this.countVertices() + " edges:" + this.countEdges() + " stripes:"
+				+ this.stripes.length + "]";
+	}
+
+	/**
+	 * Returns the index of the stripe of the given identifier.
+	 * 
+	 * @param id
+	 *            The identifier
+	 * @return The index of the stripe
+	 */
+	int stripeOf(Object id) {
+		int h = id.hashCode() * GOLDEN_RATIO;
+		return (h ^ (h >>> HALF_BITS)) & (this.stripes.length - 1);
+	}
+
+	/**
+	 * Returns the stripe with the given index.
+	 * 
+	 * @param index
+	 *            The index of the stripe
+	 * @return The stripe
+	 */
+	GraphStripe getStripe(int index) {
+		return this.stripes[index];
+	}
+
+	/**
+	 * Returns the stripes of the vertices of an edge, the edge being stored in the stripe of its out vertex.
+	 * 
+	 * @param edge
+	 *            The edge
+	 * @return The indexes of the stripes
+	 */
+	private BitSet stripesOf(StripedEdge edge) {
+		BitSet indexes = new BitSet(this.stripes.length);
+		indexes.set(edge.getEndpoint(Direction.OUT).getStripe());
+		indexes.set(edge.getEndpoint(Direction.IN).getStripe());
+		return indexes;
+	}
+
+	/**
+	 * Returns the stripes of a vertex and of the other vertices of its incident edges, the lock of the stripe
+	 * of the vertex must be held.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The indexes of the stripes
+	 */
+	private BitSet stripesOf(StripedVertex vertex) {
+		BitSet indexes = new BitSet(this.stripes.length);
+		indexes.set(vertex.getStripe());
+		for (Direction direction : new Direction[] {Direction.OUT, Direction.IN }) {
+			for (StripedEdge edge : vertex.getEdges(direction)) {
+				indexes.or(this.stripesOf(edge));
+			}
+		}
+		return indexes;
+	}
+
+	/**
+	 * Returns the stripes of a vertex and of the other vertices of its incident edges under the read lock of
+	 * the stripe of the vertex.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The indexes of the stripes
+	 */
+	private BitSet incidentStripes(StripedVertex vertex) {
+		BitSet indexes;
+		Lock lock = this.stripes[vertex.getStripe()].getLock().readLock();
+		lock.lock();
+		try {
+			indexes = this.stripesOf(vertex);
+		} finally {
+			lock.unlock();
+		}
+		return indexes;
+	}
+
+	/**
+	 * Removes an edge from its stripe, from the index of the edges and from its vertices, the locks of the
+	 * stripes of its vertices must be held.
+	 * 
+	 * @param edge
+	 *            The edge
+	 */
+	private void unregister(StripedEdge edge) {
+		this.stripes[edge.getStripe()].getEdges().remove(edge.getId());
+		this.edges.remove(edge.getId(), edge);
+		edge.getEndpoint(Direction.OUT).getEdges(Direction.OUT).remove(edge);
+		edge.getEndpoint(Direction.IN).getEdges(Direction.IN).remove(edge);
+		edge.markRemoved();
+	}
+
+	/**
+	 * Takes the write locks of the given stripes, in the order of their indexes.
+	 * 
+	 * @param indexes
+	 *            The indexes of the stripes
+	 */
+	private void lock(BitSet indexes) {
+		for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+			this.stripes[i].getLock().writeLock().lock();
+		}
+	}
+
+	/**
+	 * Releases the write locks of the given stripes.
+	 * 
+	 * @param indexes
+	 *            The indexes of the stripes
+	 */
+	private void unlock(BitSet indexes) {
+		for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+			this.stripes[i].getLock().writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the given vertex as a vertex of this graph.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 * @return The vertex of this graph
+	 */
+	private StripedVertex vertex(IVertex vertex) {
+		if (!(vertex instanceof StripedVertex) || ((StripedVertex)vertex).graph != this) {
+			throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertex);
+		}
+		return (StripedVertex)vertex;
+	}
+}
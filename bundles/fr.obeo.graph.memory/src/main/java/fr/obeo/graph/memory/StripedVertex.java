@@ -0,0 +1,168 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A vertex of the striped graph. The vertex holds its outgoing and incoming edges, guarded by the lock of
+ * its stripe like its properties. The sets of edges are only modified under the write lock of the stripe but
+ * they are concurrent sets, so that the queries of the vertex iterate over them without holding the lock.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class StripedVertex extends AbstractStripedElement implements IVertex {
+	/**
+	 * The initial capacity of the sets of edges.
+	 */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * The load factor of the sets of edges.
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * The outgoing edges.
+	 */
+	private final Set<StripedEdge> outEdges = newEdgeSet();
+
+	/**
+	 * The incoming edges.
+	 */
+	private final Set<StripedEdge> inEdges = newEdgeSet();
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param id
+	 *            The identifier of the vertex
+	 */
+	StripedVertex(StripedGraph graph, Object id) {
+		super(graph, id, graph.stripeOf(id));
+	}
+
+	/**
+	 * Creates an empty set of edges. The set is modified by a single writer at a time, the holder of the
+	 * write lock of the stripe, its map thus has a single segment.
+	 * 
+	 * @return The set of edges
+	 */
+	private static Set<StripedEdge> newEdgeSet() {
+		return Collections.newSetFromMap(new ConcurrentHashMap<StripedEdge, Boolean>(INITIAL_CAPACITY,
+				LOAD_FACTOR, 1));
+	}
+
+	/**
+	 * Returns the edges of the vertex in the given direction, they must only be modified under the write lock
+	 * of its stripe.
+	 * 
+	 * @param direction
+	 *            The direction, {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The edges of the vertex
+	 */
+	Set<StripedEdge> getEdges(Direction direction) {
+		Set<StripedEdge> edges = this.inEdges;
+		if (direction == Direction.OUT) {
+			edges = this.outEdges;
+		}
+		return edges;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getEdges(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(Direction direction, String... labels) {
+		return this.query().direction(direction).labels(labels).edges();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#getVertices(fr.obeo.graph.api.Direction, java.lang.String[])
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(Direction direction, String... labels) {
+		return this.query().direction(direction).labels(labels).vertices();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#query()
+	 */
+	@Override
+	public IVertexQuery query() {
+		return new StripedVertexQuery(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertex#addEdge(java.lang.String, fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public IEdge addEdge(String label, IVertex inVertex) {
+		return this.graph.addEdge(null, this, inVertex, label);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IElement#remove()
+	 */
+	@Override
+	public void remove() {
+		this.graph.removeVertex(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "v[" + this.id + "]";
+	}
+}
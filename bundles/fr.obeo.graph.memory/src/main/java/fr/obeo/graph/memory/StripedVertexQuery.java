@@ -0,0 +1,409 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Aggregations;
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.IVertex;
+import fr.obeo.graph.api.IVertexQuery;
+import fr.obeo.graph.api.internal.AbstractLazyIterable;
+import fr.obeo.graph.api.internal.AbstractLazyIterator;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A query over the edges incident to a vertex of the striped graph. Each execution reads the edges of the
+ * vertex lazily, with the weakly consistent iterators of its sets of edges, and checks the labels and the
+ * property filters of each edge under the read lock of the stripe of the edge.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class StripedVertexQuery extends AbstractStripedQuery implements IVertexQuery {
+	/**
+	 * The vertex.
+	 */
+	private final StripedVertex vertex;
+
+	/**
+	 * The direction of the edges.
+	 */
+	private Direction direction = Direction.BOTH;
+
+	/**
+	 * The labels of the edges, empty for all the labels.
+	 */
+	private List<String> labels = Collections.emptyList();
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param vertex
+	 *            The vertex
+	 */
+	StripedVertexQuery(StripedVertex vertex) {
+		this.vertex = vertex;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#direction(fr.obeo.graph.api.Direction)
+	 */
+	@Override
+	public IVertexQuery direction(Direction newDirection) {
+		if (newDirection == null) {
+			throw new IllegalArgumentException("The direction can not be null");
+		}
+		this.direction = newDirection;
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#labels(java.lang.String[])
+	 */
+	@Override
+	public IVertexQuery labels(String... newLabels) {
+		if (newLabels == null) {
+			this.labels = Collections.emptyList();
+		} else {
+			this.labels = new ArrayList<String>(Arrays.asList(newLabels));
+		}
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#count()
+	 */
+	@Override
+	public long count() {
+		long count = 0;
+		IncidentEdges edges = new IncidentEdges();
+		while (count < this.limit && edges.next() != null) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#vertexIds()
+	 */
+	@Override
+	public Object vertexIds() {
+		List<Object> ids = new ArrayList<Object>();
+		IncidentEdges edges = new IncidentEdges();
+		StripedEdge edge = edges.next();
+		while (edge != null && ids.size() < this.limit) {
+			ids.add(edge.getOtherVertex(this.vertex).getId());
+			edge = edges.next();
+		}
+		return ids;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery has(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.HAS_NOT, key, null));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#hasNot(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery hasNot(String key, Object value) {
+		this.addFilter(PropertyFilter.create(PropertyFilter.Kind.NOT_EQUAL, key, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#has(java.lang.String, fr.obeo.graph.api.IPredicate,
+	 *      java.lang.Object)
+	 */
+	@Override
+	public IVertexQuery has(String key, IPredicate predicate, Object value) {
+		this.addFilter(PropertyFilter.predicate(key, predicate, value));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#interval(java.lang.String, java.lang.Comparable,
+	 *      java.lang.Comparable)
+	 */
+	@Override
+	public IVertexQuery interval(String key, Comparable<?> startValue, Comparable<?> endValue) {
+		this.addFilter(PropertyFilter.interval(key, startValue, endValue));
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#limit(int)
+	 */
+	@Override
+	public IVertexQuery limit(int max) {
+		this.setLimit(max);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#edges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> edges() {
+		return new AbstractLazyIterable<IEdge>() {
+			@Override
+			protected AbstractLazyIterator<IEdge> open() {
+				final StripedVertexQuery query = StripedVertexQuery.this;
+				final IncidentEdges edges = query.new IncidentEdges();
+				return new AbstractLazyIterator<IEdge>(query.limit) {
+					@Override
+					protected IEdge computeNext() {
+						return edges.next();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#vertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> vertices() {
+		return new AbstractLazyIterable<IVertex>() {
+			@Override
+			protected AbstractLazyIterator<IVertex> open() {
+				final StripedVertexQuery query = StripedVertexQuery.this;
+				final IncidentEdges edges = query.new IncidentEdges();
+				return new AbstractLazyIterator<IVertex>(query.limit) {
+					@Override
+					protected IVertex computeNext() {
+						IVertex next = null;
+						StripedEdge edge = edges.next();
+						if (edge != null) {
+							next = edge.getOtherVertex(query.vertex);
+						}
+						return next;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#min(java.lang.String)
+	 */
+	@Override
+	public Number min(String key) {
+		return Aggregations.aggregate(this.edges(), key).getMin();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#max(java.lang.String)
+	 */
+	@Override
+	public Number max(String key) {
+		return Aggregations.aggregate(this.edges(), key).getMax();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#sum(java.lang.String)
+	 */
+	@Override
+	public Number sum(String key) {
+		return Aggregations.aggregate(this.edges(), key).getSum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countBy(java.lang.String)
+	 */
+	@Override
+	public Map<Object, Long> countBy(String key) {
+		return Aggregations.countBy(this.edges(), key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IVertexQuery#countByLabel()
+	 */
+	@Override
+	public Map<String, Long> countByLabel() {
+		return Aggregations.countByLabel(this.edges());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		StringBuilder access = new StringBuilder();
+		access.append("edges of ").append(this.vertex).append(' ').append(this.direction);
+		if (!this.labels.isEmpty()) {
+			access.append(' ').append(this.labels);
+		}
+		long candidates = 0;
+		if (this.direction != Direction.IN) {
+			candidates += this.vertex.getEdges(Direction.OUT).size();
+		}
+		if (this.direction != Direction.OUT) {
+			candidates += this.vertex.getEdges(Direction.IN).size();
+		}
+		return this.describe("edges", access.toString(), candidates);
+	}
+
+	/**
+	 * The edges of the vertex matching the direction, the labels and the filters of the query, read lazily
+	 * from the sets of the vertex. The outgoing edges come first, a loop is thus returned twice for
+	 * {@link Direction#BOTH}.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private final class IncidentEdges {
+		/**
+		 * The edges being read.
+		 */
+		private Iterator<StripedEdge> edges;
+
+		/**
+		 * The direction of the edges to read once the current ones have been read, <code>null</code> if there
+		 * are none.
+		 */
+		private Direction nextDirection;
+
+		/**
+		 * The constructor.
+		 */
+		IncidentEdges() {
+			Direction direction = StripedVertexQuery.this.direction;
+			if (direction == Direction.IN) {
+				this.edges = StripedVertexQuery.this.vertex.getEdges(Direction.IN).iterator();
+			} else {
+				this.edges = StripedVertexQuery.this.vertex.getEdges(Direction.OUT).iterator();
+				if (direction == Direction.BOTH) {
+					this.nextDirection = Direction.IN;
+				}
+			}
+		}
+
+		/**
+		 * Returns the next matching edge.
+		 * 
+		 * @return The next matching edge or <code>null</code> if there are no more edges
+		 */
+		StripedEdge next() {
+			StripedEdge next = null;
+			while (next == null && this.hasEdges()) {
+				StripedEdge edge = this.edges.next();
+				List<String> labels = StripedVertexQuery.this.labels;
+				boolean candidate = labels.isEmpty() || labels.contains(edge.getLabel());
+				if (candidate && StripedVertexQuery.this.matchesLocked(edge)) {
+					next = edge;
+				}
+			}
+			return next;
+		}
+
+		/**
+		 * Moves to the edges of the next direction if the current ones have been read.
+		 * 
+		 * @return <code>true</code> if there are edges left, <code>false</code> otherwise
+		 */
+		private boolean hasEdges() {
+			if (!this.edges.hasNext() && this.nextDirection != null) {
+				this.edges = StripedVertexQuery.this.vertex.getEdges(this.nextDirection).iterator();
+				this.nextDirection = null;
+			}
+			return this.edges.hasNext();
+		}
+	}
+}
@@ -0,0 +1,165 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Compare;
+import fr.obeo.graph.api.IPredicate;
+import fr.obeo.graph.api.internal.PropertyFilter;
+
+/**
+ * A range of property values which can be read from a sorted {@link KeyIndex}. Its bounds are
+ * {@link Comparable} values of the same class.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class ValueRange {
+	/**
+	 * The lower bound of the range or <code>null</code> if the range has no lower bound.
+	 */
+	private final Object lower;
+
+	/**
+	 * Indicates if the lower bound is part of the range.
+	 */
+	private final boolean lowerInclusive;
+
+	/**
+	 * The upper bound of the range or <code>null</code> if the range has no upper bound.
+	 */
+	private final Object upper;
+
+	/**
+	 * Indicates if the upper bound is part of the range.
+	 */
+	private final boolean upperInclusive;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param lower
+	 *            The lower bound of the range or <code>null</code> if the range has no lower bound
+	 * @param lowerInclusive
+	 *            Indicates if the lower bound is part of the range
+	 * @param upper
+	 *            The upper bound of the range or <code>null</code> if the range has no upper bound
+	 * @param upperInclusive
+	 *            Indicates if the upper bound is part of the range
+	 */
+	private ValueRange(Object lower, boolean lowerInclusive, Object upper, boolean upperInclusive) {
+		this.lower = lower;
+		this.lowerInclusive = lowerInclusive;
+		this.upper = upper;
+		this.upperInclusive = upperInclusive;
+	}
+
+	/**
+	 * Returns the range of the values accepted by the given filter.
+	 * 
+	 * @param filter
+	 *            The filter
+	 * @return The range of the values accepted by an interval or an ordered {@link Compare} filter with
+	 *         {@link Comparable} bounds of the same class, <code>null</code> for any other filter
+	 */
+	static ValueRange of(PropertyFilter filter) {
+		ValueRange range = null;
+		Object value = filter.getValue();
+		if (value instanceof Comparable<?>) {
+			if (PropertyFilter.Kind.INTERVAL.equals(filter.getKind())) {
+				Object endValue = filter.getEndValue();
+				if (endValue != null && value.getClass() == endValue.getClass()) {
+					range = new ValueRange(value, true, endValue, false);
+				}
+			} else if (PropertyFilter.Kind.PREDICATE.equals(filter.getKind())) {
+				IPredicate predicate = filter.getPredicate();
+				if (Compare.GREATER_THAN.equals(predicate)) {
+					range = new ValueRange(value, false, null, false);
+				} else if (Compare.GREATER_THAN_EQUAL.equals(predicate)) {
+					range = new ValueRange(value, true, null, false);
+				} else if (Compare.LESS_THAN.equals(predicate)) {
+					range = new ValueRange(null, false, value, false);
+				} else if (Compare.LESS_THAN_EQUAL.equals(predicate)) {
+					range = new ValueRange(null, false, value, true);
+				}
+			}
+		}
+		return range;
+	}
+
+	/**
+	 * Returns the lower bound of the range.
+	 * 
+	 * @return The lower bound of the range or <code>null</code> if the range has no lower bound
+	 */
+	Object getLower() {
+		return this.lower;
+	}
+
+	/**
+	 * Indicates if the lower bound is part of the range.
+	 * 
+	 * @return <code>true</code> if the lower bound is part of the range, <code>false</code> otherwise
+	 */
+	boolean isLowerInclusive() {
+		return this.lowerInclusive;
+	}
+
+	/**
+	 * Returns the upper bound of the range.
+	 * 
+	 * @return The upper bound of the range or <code>null</code> if the range has no upper bound
+	 */
+	Object getUpper() {
+		return this.upper;
+	}
+
+	/**
+	 * Indicates if the upper bound is part of the range.
+	 * 
+	 * @return <code>true</code> if the upper bound is part of the range, <code>false</code> otherwise
+	 */
+	boolean isUpperInclusive() {
+		return this.upperInclusive;
+	}
+
+	/**
+	 * Returns the class of the values of the range.
+	 * 
+	 * @return The class of the bounds of the range
+	 */
+	Class<?> getValueClass() {
+		Class<?> valueClass;
+		if (this.lower != null) {
+			valueClass = this.lower.getClass();
+		} else {
+			valueClass = this.upper.getClass();
+		}
+		return valueClass;
+	}
+}
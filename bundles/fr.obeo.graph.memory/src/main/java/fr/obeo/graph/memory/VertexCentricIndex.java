@@ -0,0 +1,176 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+import fr.obeo.graph.api.KeyIndexType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A vertex-centric index of the edges holding a property key. For each vertex, direction and label, the
+ * incident edges holding the key are stored in a sorted {@link KeyIndex} bucket, so that a vertex query
+ * filtering on the key only reads the matching edges instead of the whole adjacency of the vertex.
+ * <p>
+ * Buckets are only allocated for the vertices having incident edges which hold the key.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class VertexCentricIndex {
+	/**
+	 * The number of bits used by the vertex in the identifier of a bucket.
+	 */
+	private static final int VERTEX_SHIFT = 32;
+
+	/**
+	 * The graph.
+	 */
+	private final MemoryGraph graph;
+
+	/**
+	 * The key of the indexed property.
+	 */
+	private final String key;
+
+	/**
+	 * The buckets, by vertex, direction and label.
+	 */
+	private final Map<Long, KeyIndex> buckets = new HashMap<Long, KeyIndex>();
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The graph
+	 * @param key
+	 *            The key of the indexed property
+	 */
+	VertexCentricIndex(MemoryGraph graph, String key) {
+		this.graph = graph;
+		this.key = key;
+	}
+
+	/**
+	 * Returns the key of the indexed property.
+	 * 
+	 * @return The key of the indexed property
+	 */
+	String getKey() {
+		return this.key;
+	}
+
+	/**
+	 * Records that the given edge holds the given value.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param edge
+	 *            The slot of the edge
+	 */
+	void add(Object value, int edge) {
+		int label = this.graph.getEdgeLabels()[edge];
+		for (Direction direction : Direction.PROPER_DIRECTIONS) {
+			int vertex = this.graph.getEdgeVertex(edge, direction);
+			Long id = VertexCentricIndex.bucketId(vertex, direction, label);
+			KeyIndex bucket = this.buckets.get(id);
+			if (bucket == null) {
+				bucket = new KeyIndex(this.key, KeyIndexType.SORTED);
+				this.buckets.put(id, bucket);
+			}
+			bucket.add(value, edge);
+		}
+	}
+
+	/**
+	 * Records that the given edge does not hold the given value anymore.
+	 * 
+	 * @param value
+	 *            The value
+	 * @param edge
+	 *            The slot of the edge
+	 */
+	void remove(Object value, int edge) {
+		int label = this.graph.getEdgeLabels()[edge];
+		for (Direction direction : Direction.PROPER_DIRECTIONS) {
+			int vertex = this.graph.getEdgeVertex(edge, direction);
+			Long id = VertexCentricIndex.bucketId(vertex, direction, label);
+			KeyIndex bucket = this.buckets.get(id);
+			if (bucket != null) {
+				bucket.remove(value, edge);
+				if (bucket.size() == 0) {
+					this.buckets.remove(id);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all the edges from the index.
+	 */
+	void clear() {
+		this.buckets.clear();
+	}
+
+	/**
+	 * Returns the bucket of the edges of the given vertex, direction and label.
+	 * 
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param direction
+	 *            The proper direction of the edges
+	 * @param label
+	 *            The integer of the label of the edges
+	 * @return The bucket or <code>null</code> if no such edge holds the key
+	 */
+	KeyIndex getBucket(int vertex, Direction direction, int label) {
+		return this.buckets.get(VertexCentricIndex.bucketId(vertex, direction, label));
+	}
+
+	/**
+	 * Computes the identifier of a bucket.
+	 * 
+	 * @param vertex
+	 *            The slot of the vertex
+	 * @param direction
+	 *            The proper direction of the edges
+	 * @param label
+	 *            The integer of the label of the edges
+	 * @return The identifier of the bucket
+	 */
+	private static Long bucketId(int vertex, Direction direction, int label) {
+		long id = (long)vertex << VERTEX_SHIFT | (long)label << 1;
+		if (Direction.IN.equals(direction)) {
+			id = id | 1;
+		}
+		return Long.valueOf(id);
+	}
+}
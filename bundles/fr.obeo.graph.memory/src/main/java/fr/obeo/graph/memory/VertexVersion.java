@@ -0,0 +1,203 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.memory;
+
+import fr.obeo.graph.api.Direction;
+
+/**
+ * An immutable version of a vertex of the multi-version graph. The version holds the properties of the vertex
+ * and the identifiers and labels of its incident edges, a modification of the vertex creates a new version
+ * sharing the unchanged maps with the previous one.
+ * <p>
+ * The version records the number of the commit which last created or modified the vertex and the number of
+ * the commit which last modified its incident edges, the transactions use them to detect their conflicts.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+final class VertexVersion {
+	/**
+	 * The identifier of the vertex.
+	 */
+	private final Object id;
+
+	/**
+	 * The properties of the vertex.
+	 */
+	private final PersistentMap<String, Object> properties;
+
+	/**
+	 * The labels of the outgoing edges, by identifier.
+	 */
+	private final PersistentMap<Object, String> outEdges;
+
+	/**
+	 * The labels of the incoming edges, by identifier.
+	 */
+	private final PersistentMap<Object, String> inEdges;
+
+	/**
+	 * The number of the commit which last created the vertex or modified its properties.
+	 */
+	private final long version;
+
+	/**
+	 * The number of the commit which last added or removed one of the incident edges of the vertex.
+	 */
+	private final long adjacencyVersion;
+
+	/**
+	 * The constructor of a new vertex, without any property or edge.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @param version
+	 *            The number of the commit creating the vertex
+	 */
+	VertexVersion(Object id, long version) {
+		this(id, PersistentMap.<String, Object> empty(), PersistentMap.<Object, String> empty(), PersistentMap
+				.<Object, String> empty(), version, version);
+	}
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param id
+	 *            The identifier of the vertex
+	 * @param properties
+	 *            The properties of the vertex
+	 * @param outEdges
+	 *            The labels of the outgoing edges, by identifier
+	 * @param inEdges
+	 *            The labels of the incoming edges, by identifier
+	 * @param version
+	 *            The number of the commit which last created the vertex or modified its properties
+	 * @param adjacencyVersion
+	 *            The number of the commit which last added or removed one of the incident edges
+	 */
+	private VertexVersion(Object id, PersistentMap<String, Object> properties,
+			PersistentMap<Object, String> outEdges, PersistentMap<Object, String> inEdges, long version,
+			long adjacencyVersion) {
+		this.id = id;
+		this.properties = properties;
+		this.outEdges = outEdges;
+		this.inEdges = inEdges;
+		this.version = version;
+		this.adjacencyVersion = adjacencyVersion;
+	}
+
+	/**
+	 * Returns the identifier of the vertex.
+	 * 
+	 * @return The identifier of the vertex
+	 */
+	Object getId() {
+		return this.id;
+	}
+
+	/**
+	 * Returns the properties of the vertex.
+	 * 
+	 * @return The properties of the vertex
+	 */
+	PersistentMap<String, Object> getProperties() {
+		return this.properties;
+	}
+
+	/**
+	 * Returns the labels of the edges of the vertex in the given direction, by identifier.
+	 * 
+	 * @param direction
+	 *            The direction of the edges, {@link Direction#OUT} or {@link Direction#IN}
+	 * @return The labels of the edges, by identifier
+	 */
+	PersistentMap<Object, String> getEdges(Direction direction) {
+		PersistentMap<Object, String> edges = this.inEdges;
+		if (direction == Direction.OUT) {
+			edges = this.outEdges;
+		}
+		return edges;
+	}
+
+	/**
+	 * Returns the number of the commit which last created the vertex or modified its properties.
+	 * 
+	 * @return The number of the commit
+	 */
+	long getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * Returns the number of the commit which last added or removed one of the incident edges of the vertex.
+	 * 
+	 * @return The number of the commit
+	 */
+	long getAdjacencyVersion() {
+		return this.adjacencyVersion;
+	}
+
+	/**
+	 * Returns a version of the vertex with the given properties.
+	 * 
+	 * @param newProperties
+	 *            The properties of the vertex
+	 * @param newVersion
+	 *            The number of the commit modifying the properties
+	 * @return The new version of the vertex
+	 */
+	VertexVersion withProperties(PersistentMap<String, Object> newProperties, long newVersion) {
+		return new VertexVersion(this.id, newProperties, this.outEdges, this.inEdges, newVersion,
+				this.adjacencyVersion);
+	}
+
+	/**
+	 * Returns a version of the vertex with the given edges in the given direction.
+	 * 
+	 * @param direction
+	 *            The direction of the edges, {@link Direction#OUT} or {@link Direction#IN}
+	 * @param edges
+	 *            The labels of the edges, by identifier
+	 * @param newVersion
+	 *            The number of the commit modifying the edges
+	 * @return The new version of the vertex
+	 */
+	VertexVersion withEdges(Direction direction, PersistentMap<Object, String> edges, long newVersion) {
+		VertexVersion vertex;
+		if (direction == Direction.OUT) {
+			vertex = new VertexVersion(this.id, this.properties, edges, this.inEdges, this.version,
+					newVersion);
+		} else {
+			vertex = new VertexVersion(this.id, this.properties, this.outEdges, edges, this.version,
+					newVersion);
+		}
+		return vertex;
+	}
+}
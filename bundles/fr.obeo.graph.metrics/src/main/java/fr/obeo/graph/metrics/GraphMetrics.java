@@ -0,0 +1,366 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.metrics;
+
+import fr.obeo.graph.api.GraphOperation;
+import fr.obeo.graph.api.IGraphMonitor;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A monitor collecting the measures of the operations of graphs: a {@link LatencyHistogram} by operation, the
+ * number of executions of the queries with the number of elements they scanned and returned, and the hits
+ * and misses of each cache or index. The metrics can be given to a {@link MetricsGraph} to measure the
+ * latencies of any graph, and to {@link fr.obeo.graph.api.IMonitorableGraph#setMonitor(IGraphMonitor)} to
+ * collect the scans and lookups reported by the graphs themselves.
+ * <p>
+ * The metrics can be disabled and enabled at any time, the measures are then dropped without reading the
+ * clock. The metrics are thread safe and record without lock.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class GraphMetrics implements IGraphMonitor {
+	/**
+	 * The start of an operation which is not measured.
+	 */
+	static final long NOT_MEASURED = Long.MIN_VALUE;
+
+	/**
+	 * The histograms of the latencies by ordinal of the operation.
+	 */
+	private final LatencyHistogram[] latencies;
+
+	/**
+	 * The number of executions of the queries by ordinal of the operation.
+	 */
+	private final AtomicLongArray executions;
+
+	/**
+	 * The number of elements scanned by the queries by ordinal of the operation.
+	 */
+	private final AtomicLongArray scanned;
+
+	/**
+	 * The number of elements returned by the queries by ordinal of the operation.
+	 */
+	private final AtomicLongArray returned;
+
+	/**
+	 * The hits and misses by cache or index.
+	 */
+	private final ConcurrentMap<String, Lookups> lookups = new ConcurrentHashMap<String, Lookups>();
+
+	/**
+	 * Indicates if the measures are recorded.
+	 */
+	private volatile boolean enabled = true;
+
+	/**
+	 * The constructor.
+	 */
+	public GraphMetrics() {
+		int operations = GraphOperation.values().length;
+		this.latencies = new LatencyHistogram[operations];
+		for (int i = 0; i < operations; i++) {
+			this.latencies[i] = new LatencyHistogram();
+		}
+		this.executions = new AtomicLongArray(operations);
+		this.scanned = new AtomicLongArray(operations);
+		this.returned = new AtomicLongArray(operations);
+	}
+
+	/**
+	 * Enables or disables the recording of the measures.
+	 * 
+	 * @param enable
+	 *            <code>true</code> to record the measures, <code>false</code> to drop them
+	 */
+	public void setEnabled(boolean enable) {
+		this.enabled = enable;
+	}
+
+	/**
+	 * Indicates if the measures are recorded.
+	 * 
+	 * @return <code>true</code> if the measures are recorded, <code>false</code> otherwise
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphMonitor#recordLatency(fr.obeo.graph.api.GraphOperation, long)
+	 */
+	@Override
+	public void recordLatency(GraphOperation operation, long nanos) {
+		if (this.enabled) {
+			this.latencies[operation.ordinal()].record(nanos);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphMonitor#recordScan(fr.obeo.graph.api.GraphOperation, long, long)
+	 */
+	@Override
+	public void recordScan(GraphOperation operation, long scannedElements, long returnedElements) {
+		if (this.enabled) {
+			int index = operation.ordinal();
+			this.executions.incrementAndGet(index);
+			this.scanned.addAndGet(index, scannedElements);
+			this.returned.addAndGet(index, returnedElements);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraphMonitor#recordLookup(java.lang.String, boolean)
+	 */
+	@Override
+	public void recordLookup(String name, boolean hit) {
+		if (this.enabled) {
+			Lookups counters = this.lookups.get(name);
+			if (counters == null) {
+				Lookups newCounters = new Lookups();
+				counters = this.lookups.putIfAbsent(name, newCounters);
+				if (counters == null) {
+					counters = newCounters;
+				}
+			}
+			if (hit) {
+				counters.hits.incrementAndGet();
+			} else {
+				counters.misses.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Returns the time at which a measured operation starts.
+	 * 
+	 * @return The time at which the operation starts or {@link #NOT_MEASURED} if the metrics are disabled
+	 */
+	long start() {
+		long start = NOT_MEASURED;
+		if (this.enabled) {
+			start = System.nanoTime();
+		}
+		return start;
+	}
+
+	/**
+	 * Records the latency of an operation started at the given time.
+	 * 
+	 * @param operation
+	 *            The operation
+	 * @param start
+	 *            The time returned by {@link #start()} when the operation started
+	 */
+	void stop(GraphOperation operation, long start) {
+		if (start != NOT_MEASURED) {
+			this.recordLatency(operation, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Returns the histogram of the latencies of the given operation.
+	 * 
+	 * @param operation
+	 *            The operation
+	 * @return The histogram of the latencies of the operation
+	 */
+	public LatencyHistogram getLatency(GraphOperation operation) {
+		return this.latencies[operation.ordinal()];
+	}
+
+	/**
+	 * Returns the number of executions of the queries of the given operation whose scans have been reported.
+	 * 
+	 * @param operation
+	 *            The operation
+	 * @return The number of executions of the queries
+	 */
+	public long getExecutions(GraphOperation operation) {
+		return this.executions.get(operation.ordinal());
+	}
+
+	/**
+	 * Returns the number of elements scanned by the queries of the given operation.
+	 * 
+	 * @param operation
+	 *            The operation
+	 * @return The number of elements scanned
+	 */
+	public long getScanned(GraphOperation operation) {
+		return this.scanned.get(operation.ordinal());
+	}
+
+	/**
+	 * Returns the number of elements returned by the queries of the given operation.
+	 * 
+	 * @param operation
+	 *            The operation
+	 * @return The number of elements returned
+	 */
+	public long getReturned(GraphOperation operation) {
+		return this.returned.get(operation.ordinal());
+	}
+
+	/**
+	 * Returns the names of the caches and indexes whose lookups have been reported, sorted.
+	 * 
+	 * @return The names of the caches and indexes
+	 */
+	public Set<String> getLookupNames() {
+		return new TreeSet<String>(this.lookups.keySet());
+	}
+
+	/**
+	 * Returns the number of lookups which found their value in the given cache or index.
+	 * 
+	 * @param name
+	 *            The name of the cache or of the index
+	 * @return The number of hits
+	 */
+	public long getHits(String name) {
+		Lookups counters = this.lookups.get(name);
+		long hits = 0;
+		if (counters != null) {
+			hits = counters.hits.get();
+		}
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups which did not find their value in the given cache or index.
+	 * 
+	 * @param name
+	 *            The name of the cache or of the index
+	 * @return The number of misses
+	 */
+	public long getMisses(String name) {
+		Lookups counters = this.lookups.get(name);
+		long misses = 0;
+		if (counters != null) {
+			misses = counters.misses.get();
+		}
+		return misses;
+	}
+
+	/**
+	 * Returns the ratio of the lookups which found their value in the given cache or index.
+	 * 
+	 * @param name
+	 *            The name of the cache or of the index
+	 * @return The ratio of hits between 0 and 1, or 0 if no lookup has been reported
+	 */
+	public double getHitRate(String name) {
+		long hits = this.getHits(name);
+		long total = hits + this.getMisses(name);
+		double hitRate = 0;
+		if (total > 0) {
+			hitRate = (double)hits / total;
+		}
+		return hitRate;
+	}
+
+	/**
+	 * Removes all the measures recorded.
+	 */
+	public void reset() {
+		for (int i = 0; i < this.latencies.length; i++) {
+			this.latencies[i].reset();
+			this.executions.set(i, 0);
+			this.scanned.set(i, 0);
+			this.returned.set(i, 0);
+		}
+		this.lookups.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("graphmetrics");
+		for (GraphOperation operation : GraphOperation.values()) {
+			LatencyHistogram latency = this.getLatency(operation);
+			long executed = this.getExecutions(operation);
+			if (latency.getCount() > 0 || executed > 0) {
+				builder.append("\n  ").append(operation.getName());
+				if (latency.getCount() > 0) {
+					builder.append(": ").append(latency);
+				}
+				if (executed > 0) {
+					builder.append(" [executions=").append(executed);
+					builder.append(", scanned=").append(this.getScanned(operation));
+					builder.append(", returned=").append(this.getReturned(operation)).append(']');
+				}
+			}
+		}
+		for (String name : this.getLookupNames()) {
+			builder.append("\n  ").append(name);
+			builder.append(String.format(Locale.ENGLISH, ": hits=%d, misses=%d, hit rate=%.4f",
+					Long.valueOf(this.getHits(name)), Long.valueOf(this.getMisses(name)),
+					Double.valueOf(this.getHitRate(name))));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * The hits and misses of a cache or an index.
+	 * 
+	 * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+	 */
+	private static final class Lookups {
+		/**
+		 * The number of hits.
+		 */
+		private final AtomicLong hits = new AtomicLong();
+
+		/**
+		 * The number of misses.
+		 */
+		private final AtomicLong misses = new AtomicLong();
+	}
+}
@@ -0,0 +1,237 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds. The latencies are counted in buckets whose width grows with the
+ * latency: each power of two is split in eight buckets, the percentiles are thus known within 12.5% whatever
+ * the latency while the histogram keeps a fixed number of counters. The latencies are recorded without lock
+ * by any number of threads.
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public final class LatencyHistogram {
+	/**
+	 * The number of bits of the latency selecting the bucket within a power of two.
+	 */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/**
+	 * The number of buckets by power of two.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The number of bits of a latency.
+	 */
+	private static final int BITS = 63;
+
+	/**
+	 * The number of buckets, enough for all the positive longs.
+	 */
+	private static final int BUCKETS = (BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	/**
+	 * The number of latencies by bucket.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * The number of latencies.
+	 */
+	private final AtomicLong count = new AtomicLong();
+
+	/**
+	 * The sum of the latencies.
+	 */
+	private final AtomicLong total = new AtomicLong();
+
+	/**
+	 * The maximum latency.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a latency.
+	 * 
+	 * @param nanos
+	 *            The latency in nanoseconds, the negative latencies are recorded as zero
+	 */
+	public void record(long nanos) {
+		long latency = Math.max(0, nanos);
+		this.counts.incrementAndGet(bucketOf(latency));
+		this.count.incrementAndGet();
+		this.total.addAndGet(latency);
+		long currentMax = this.max.get();
+		while (latency > currentMax && !this.max.compareAndSet(currentMax, latency)) {
+			currentMax = this.max.get();
+		}
+	}
+
+	/**
+	 * Returns the number of latencies recorded.
+	 * 
+	 * @return The number of latencies recorded
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 * Returns the sum of the latencies recorded in nanoseconds.
+	 * 
+	 * @return The sum of the latencies recorded
+	 */
+	public long getTotal() {
+		return this.total.get();
+	}
+
+	/**
+	 * Returns the mean of the latencies recorded in nanoseconds.
+	 * 
+	 * @return The mean of the latencies recorded or 0 if no latency has been recorded
+	 */
+	public double getMean() {
+		long recorded = this.count.get();
+		double mean = 0;
+		if (recorded > 0) {
+			mean = (double)this.total.get() / recorded;
+		}
+		return mean;
+	}
+
+	/**
+	 * Returns the maximum latency recorded in nanoseconds.
+	 * 
+	 * @return The maximum latency recorded or 0 if no latency has been recorded
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * Returns the latency below which the given percentage of the latencies recorded fall, rounded up to the
+	 * upper bound of its bucket.
+	 * 
+	 * @param percentile
+	 *            The percentage, between 0 and 100
+	 * @return The latency in nanoseconds or 0 if no latency has been recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("The percentile must be between 0 and 100: " + percentile);
+		}
+		final double hundred = 100;
+		long recorded = this.count.get();
+		long latency = 0;
+		if (recorded > 0) {
+			long rank = Math.max(1, (long)Math.ceil(percentile / hundred * recorded));
+			int bucket = 0;
+			long seen = this.counts.get(bucket);
+			while (seen < rank && bucket < BUCKETS - 1) {
+				bucket++;
+				seen += this.counts.get(bucket);
+			}
+			latency = Math.min(upperBoundOf(bucket), this.max.get());
+		}
+		return latency;
+	}
+
+	/**
+	 * Removes all the latencies recorded. The latencies recorded meanwhile may be partially removed.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts.set(i, 0);
+		}
+		this.count.set(0);
+		this.total.set(0);
+		this.max.set(0);
+	}
+
+	/**
+	 * Returns the bucket of the given latency.
+	 * 
+	 * @param latency
+	 *            The positive latency
+	 * @return The bucket of the latency
+	 */
+	private static int bucketOf(long latency) {
+		int bucket;
+		if (latency < SUB_BUCKETS) {
+			bucket = (int)latency;
+		} else {
+			int exponent = BITS - Long.numberOfLeadingZeros(latency);
+			int subBucket = (int)(latency >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			bucket = (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Returns the highest latency of the given bucket.
+	 * 
+	 * @param bucket
+	 *            The bucket
+	 * @return The highest latency of the bucket
+	 */
+	private static long upperBoundOf(int bucket) {
+		long upperBound;
+		if (bucket < SUB_BUCKETS) {
+			upperBound = bucket;
+		} else {
+			int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			long width = 1L << (exponent - SUB_BUCKET_BITS);
+			long lowerBound = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+			upperBound = lowerBound + width - 1;
+		}
+		return upperBound;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final double median = 50;
+		final double high = 99;
+		final double highest = 99.9;
+		return String.format(Locale.ENGLISH, "count=%d, mean=%.0fns, p50=%dns, p99=%dns, p999=%dns, max=%dns",
+				Long.valueOf(this.getCount()), Double.valueOf(this.getMean()),
+				Long.valueOf(this.getPercentile(median)), Long.valueOf(this.getPercentile(high)),
+				Long.valueOf(this.getPercentile(highest)), Long.valueOf(this.getMax()));
+	}
+}
@@ -0,0 +1,147 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.metrics;
+
+import fr.obeo.graph.api.GraphOperation;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.ICloseableIterator;
+
+/**
+ * The results of the measured graph, whose elements are wrapped one after the other while they are iterated.
+ * The latency of each iteration is measured from the creation of its iterator until it is exhausted or
+ * closed. Closing the iterable or its iterators closes the results of the measured graph.
+ * 
+ * @param <T>
+ *            The kind of element returned
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+abstract class MeasuredIterable<T> implements ICloseableIterable<T> {
+	/**
+	 * The metrics.
+	 */
+	private final GraphMetrics metrics;
+
+	/**
+	 * The operation returning the results.
+	 */
+	private final GraphOperation operation;
+
+	/**
+	 * The results of the measured graph.
+	 */
+	private final ICloseableIterable<T> iterable;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param metrics
+	 *            The metrics
+	 * @param operation
+	 *            The operation returning the results
+	 * @param iterable
+	 *            The results of the measured graph
+	 */
+	MeasuredIterable(GraphMetrics metrics, GraphOperation operation, ICloseableIterable<T> iterable) {
+		this.metrics = metrics;
+		this.operation = operation;
+		this.iterable = iterable;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ICloseableIterable#iterator()
+	 */
+	@Override
+	public ICloseableIterator<T> iterator() {
+		final long start = this.metrics.start();
+		final ICloseableIterator<T> iterator = this.iterable.iterator();
+		return new ICloseableIterator<T>() {
+			/**
+			 * Indicates if the latency of the iteration has been recorded.
+			 */
+			private boolean stopped;
+
+			@Override
+			public boolean hasNext() {
+				boolean hasNext = iterator.hasNext();
+				if (!hasNext) {
+					this.stop();
+				}
+				return hasNext;
+			}
+
+			@Override
+			public T next() {
+				return MeasuredIterable.this.wrap(iterator.next());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				this.stop();
+				iterator.close();
+			}
+
+			/**
+			 * Records the latency of the iteration the first time it is called.
+			 */
+			private void stop() {
+				if (!this.stopped) {
+					this.stopped = true;
+					MeasuredIterable.this.metrics.stop(MeasuredIterable.this.operation, start);
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.ICloseableIterable#close()
+	 */
+	@Override
+	public void close() {
+		this.iterable.close();
+	}
+
+	/**
+	 * Wraps an element of the measured graph.
+	 * 
+	 * @param element
+	 *            The element of the measured graph
+	 * @return The wrapper of the element
+	 */
+	protected abstract T wrap(T element);
+}
@@ -0,0 +1,339 @@
+/********************************************************************************
+ * Copyright (c) 2009-2014, Obeo and others
+ * All rights reserved. This code is available under the New BSD License:
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the TinkerPop nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL TINKERPOP BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * Contributors:
+ *     Obeo - initial API and implementation
+ ********************************************************************************/
+package fr.obeo.graph.metrics;
+
+import fr.obeo.graph.api.GraphOperation;
+import fr.obeo.graph.api.ICloseableIterable;
+import fr.obeo.graph.api.IEdge;
+import fr.obeo.graph.api.IGraph;
+import fr.obeo.graph.api.IGraphQuery;
+import fr.obeo.graph.api.IMonitorableGraph;
+import fr.obeo.graph.api.IVertex;
+
+/**
+ * A graph measuring the operations of another graph. The latency of each operation of the graph, of its
+ * vertices, edges and queries is recorded in the {@link GraphMetrics} of the graph, the iterations being
+ * measured from the creation of their iterator until it is exhausted or closed. If the measured graph is an
+ * {@link IMonitorableGraph}, the metrics are also set as its monitor so that they collect the number of
+ * elements scanned and returned by its queries and the hit rates of its caches and indexes:
+ * 
+ * <pre>
+ * GraphMetrics metrics = new GraphMetrics();
+ * IGraph graph = new MetricsGraph(new MemoryGraph(), metrics);
+ * ...
+ * long p99 = metrics.getLatency(GraphOperation.VERTEX_QUERY_COUNT).getPercentile(99);
+ * </pre>
+ * <p>
+ * While the metrics are disabled the graph does not read the clock, its only cost is then the wrapping of
+ * the elements returned. The measured graph can also be monitored without this graph, the monitor then costs
+ * a single check by query while it is not set.
+ * </p>
+ * 
+ * @author <a href="mailto:stephane.begaudeau@obeo.fr">Stephane Begaudeau</a>
+ */
+public class MetricsGraph implements IGraph {
+	/**
+	 * The measured graph.
+	 */
+	private final IGraph graph;
+
+	/**
+	 * The metrics.
+	 */
+	private final GraphMetrics metrics;
+
+	/**
+	 * The constructor.
+	 * 
+	 * @param graph
+	 *            The measured graph, monitored by the metrics if it is an {@link IMonitorableGraph}
+	 * @param metrics
+	 *            The metrics
+	 */
+	public MetricsGraph(IGraph graph, GraphMetrics metrics) {
+		this.graph = graph;
+		this.metrics = metrics;
+		if (graph instanceof IMonitorableGraph) {
+			((IMonitorableGraph)graph).setMonitor(metrics);
+		}
+	}
+
+	/**
+	 * Returns the measured graph.
+	 * 
+	 * @return The measured graph
+	 */
+	public IGraph getBaseGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * Returns the metrics of the graph.
+	 * 
+	 * @return The metrics of the graph
+	 */
+	public GraphMetrics getMetrics() {
+		return this.metrics;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex addVertex(Object id) {
+		long start = this.metrics.start();
+		IVertex vertex = this.graph.addVertex(id);
+		this.metrics.stop(GraphOperation.ADD_VERTEX, start);
+		return this.wrap(vertex);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertex(java.lang.Object)
+	 */
+	@Override
+	public IVertex getVertex(Object id) {
+		long start = this.metrics.start();
+		IVertex vertex = this.graph.getVertex(id);
+		this.metrics.stop(GraphOperation.GET_VERTEX, start);
+		return this.wrap(vertex);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeVertex(fr.obeo.graph.api.IVertex)
+	 */
+	@Override
+	public void removeVertex(IVertex vertex) {
+		IVertex baseVertex = this.unwrap(vertex);
+		long start = this.metrics.start();
+		this.graph.removeVertex(baseVertex);
+		this.metrics.stop(GraphOperation.REMOVE_VERTEX, start);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices()
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices() {
+		return this.wrapVertices(GraphOperation.GET_VERTICES, this.graph.getVertices());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getVertices(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IVertex> getVertices(String key, Object value) {
+		return this.wrapVertices(GraphOperation.GET_VERTICES, this.graph.getVertices(key, value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#addEdge(java.lang.Object, fr.obeo.graph.api.IVertex,
+	 *      fr.obeo.graph.api.IVertex, java.lang.String)
+	 */
+	@Override
+	public IEdge addEdge(Object id, IVertex outVertex, IVertex inVertex, String label) {
+		IVertex out = this.unwrap(outVertex);
+		IVertex in = this.unwrap(inVertex);
+		long start = this.metrics.start();
+		IEdge edge = this.graph.addEdge(id, out, in, label);
+		this.metrics.stop(GraphOperation.ADD_EDGE, start);
+		return this.wrap(edge);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdge(java.lang.Object)
+	 */
+	@Override
+	public IEdge getEdge(Object id) {
+		long start = this.metrics.start();
+		IEdge edge = this.graph.getEdge(id);
+		this.metrics.stop(GraphOperation.GET_EDGE, start);
+		return this.wrap(edge);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#removeEdge(fr.obeo.graph.api.IEdge)
+	 */
+	@Override
+	public void removeEdge(IEdge edge) {
+		if (!(edge instanceof MeasuredEdge) || ((MeasuredEdge)edge).graph != this) {
+			throw new IllegalArgumentException("The edge does not belong to this graph: " + edge);
+		}
+		IEdge baseEdge = ((MeasuredEdge)edge).getBaseEdge();
+		long start = this.metrics.start();
+		this.graph.removeEdge(baseEdge);
+		this.metrics.stop(GraphOperation.REMOVE_EDGE, start);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges()
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges() {
+		return this.wrapEdges(GraphOperation.GET_EDGES, this.graph.getEdges());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#getEdges(java.lang.String, java.lang.Object)
+	 */
+	@Override
+	public ICloseableIterable<IEdge> getEdges(String key, Object value) {
+		return this.wrapEdges(GraphOperation.GET_EDGES, this.graph.getEdges(key, value));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#query()
+	 */
+	@Override
+	public IGraphQuery query() {
+		return new MeasuredGraphQuery(this, this.graph.query());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see fr.obeo.graph.api.IGraph#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		this.graph.shutdown();
+	}
+
+	/**
+	 * Wraps the given vertex of the measured graph.
+	 * 
+	 * @param vertex
+	 *            The vertex of the measured graph or <code>null</code>
+	 * @return The wrapper of the vertex or <code>null</code>
+	 */
+	IVertex wrap(IVertex vertex) {
+		IVertex measuredVertex = null;
+		if (vertex != null) {
+			measuredVertex = new MeasuredVertex(this, vertex);
+		}
+		return measuredVertex;
+	}
+
+	/**
+	 * Wraps the given edge of the measured graph.
+	 * 
+	 * @param edge
+	 *            The edge of the measured graph or <code>null</code>
+	 * @return The wrapper of the edge or <code>null</code>
+	 */
+	IEdge wrap(IEdge edge) {
+		IEdge measuredEdge = null;
+		if (edge != null) {
+			measuredEdge = new MeasuredEdge(this, edge);
+		}
+		return measuredEdge;
+	}
+
+	/**
+	 * Wraps the vertices of the given results of the measured graph, measuring their iterations.
+	 * 
+	 * @param operation
+	 *            The operation returning the results
+	 * @param iterable
+	 *            The results of the measured graph
+	 * @return The wrapped results
+	 */
+	ICloseableIterable<IVertex> wrapVertices(GraphOperation operation, ICloseableIterable<IVertex> iterable) {
+		return new MeasuredIterable<IVertex>(this.metrics, operation, iterable) {
+			@Override
+			protected IVertex wrap(IVertex element) {
+				return MetricsGraph.this.wrap(element);
+			}
+		};
+	}
+
+	/**
+	 * Wraps the edges of the given results of the measured graph, measuring their iterations.
+	 * 
+	 * @param operation
+	 *            The operation returning the results
+	 * @param iterable
+	 *            The results of the measured graph
+	 * @return The wrapped results
+	 */
+	ICloseableIterable<IEdge> wrapEdges(GraphOperation operation, ICloseableIterable<IEdge> iterable) {
+		return new MeasuredIterable<IEdge>(this.metrics, operation, iterable) {
+			@Override
+			protected IEdge wrap(IEdge element) {
+				return MetricsGraph.this.wrap(element);
+			}
+		};
+	}
+
+	/**
+	 * Returns the vertex of the measured graph wrapped by the given vertex of this graph.
+	 * 
+	 * @param vertex
+	 *            The vertex of this graph
+	 * @return The vertex of the measured graph
+	 */
+	private IVertex unwrap(IVertex vertex) {
+		if (!(vertex instanceof MeasuredVertex) || ((MeasuredVertex)vertex).graph != this) {
+			throw new IllegalArgumentException("The vertex does not belong to this graph: " + vertex);
+		}
+		return ((MeasuredVertex)vertex).getBaseVertex();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "metricsgraph[" + this.graph + "]";
+	}
+}